@@ -112,8 +112,7 @@ public class Animation2D extends Simulation
 	exbundle=ResourceBundle.getBundle("org.bzdev.anim2d.lpack.Animation2D");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     /**
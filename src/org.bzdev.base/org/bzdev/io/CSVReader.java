@@ -66,6 +66,9 @@ import java.util.regex.*;
  * {@link java.io.InputStreamReader} or a {@link java.io.Reader} that
  * contains an instance of {@link java.io.InputStreamReader}, possibly
  * with several intermediate readers.
+ * <P>
+ * For large inputs, the class {@link CSVScanner} parses the same
+ * format, but reuses its buffers and can read memory-mapped files.
  */
 public class CSVReader extends Reader {
 
@@ -389,4 +392,4 @@ public class CSVReader extends Reader {
 
 //  LocalWords:  CSV HREF CSVWriter CSVReader CRLF getHeaders nextRow
 //  LocalWords:  BLOCKQUOTE PRE FileReader csv nextField MacOS LF
-//  LocalWords:  hasHeader IOException LineReader
+//  LocalWords:  hasHeader IOException LineReader CSVScanner
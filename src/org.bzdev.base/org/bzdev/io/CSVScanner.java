@@ -0,0 +1,924 @@
+package org.bzdev.io;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+//@exbundle org.bzdev.io.lpack.IO
+
+/**
+ * High-throughput reader for CSV (Comma Separated Values) input.
+ * This class parses the same format as {@link CSVReader}, and for a
+ * given input and delimiter produces the same fields, but is designed
+ * for large inputs:
+ * <UL>
+ *   <LI> input is scanned directly from a large character buffer
+ *        rather than being read line by line.
+ *   <LI> {@link #nextRow()} returns the same {@link Row} object each
+ *        time it is called. A row's fields are provided as
+ *        {@link CharSequence} views of the buffer, so in most cases
+ *        no strings are created. Numeric fields can be parsed
+ *        directly by calling {@link Row#parseLong(int)},
+ *        {@link Row#parseInt(int)}, or {@link Row#parseDouble(int)}.
+ *   <LI> a file containing UTF-8 text can be memory mapped
+ *        (see {@link #CSVScanner(File,boolean,LineReader.Delimiter)}),
+ *        and can be parsed by multiple threads
+ *        (see {@link #forEachRow(File,boolean,LineReader.Delimiter,int,Consumer)}).
+ * </UL>
+ * A row and its fields are valid only until the next call to
+ * {@link #nextRow()}: to keep a field, call its <CODE>toString()</CODE>
+ * method or use {@link Row#getString(int)}.  Unlike {@link CSVReader},
+ * this class is not thread safe.
+ * <P>
+ * When the delimiter is null, a line ends with a carriage return,
+ * a line feed, or a carriage return followed by a line feed, as with
+ * {@link java.io.BufferedReader#readLine()}.  Otherwise lines end with
+ * the delimiter, as with {@link LineReader#readLine()}.  As with
+ * {@link CSVReader}, a line separator within a quoted field is
+ * replaced with the delimiter (or the system line separator if the
+ * delimiter is null).
+ * <P>
+ * For example,
+ * <BLOCKQUOTE><PRE><CODE>
+ *     try (CSVScanner scanner =
+ *              new CSVScanner(new File("input.csv"), true, null)) {
+ *         String[] headers = scanner.getHeaders();
+ *         CSVScanner.Row row;
+ *         while ((row = scanner.nextRow()) != null) {
+ *             long time = row.parseLong(0);
+ *             double value = row.parseDouble(1);
+ *             ...
+ *         }
+ *     }
+ * </CODE></PRE></BLOCKQUOTE>
+ */
+public class CSVScanner implements Closeable {
+
+    static String errorMsg(String key, Object... args) {
+	return IoErrorMsg.errorMsg(key, args);
+    }
+
+    private static final int INITIAL_BUFSIZE = 1 << 16;
+
+    // size of memory-mapped segments
+    private static final long SEGMENT_SIZE = 1L << 28;
+
+    // files smaller than this are not split between threads
+    private static final long MIN_PARALLEL_SIZE = 1L << 20;
+
+    /**
+     * A row read by a {@link CSVScanner}.
+     * The fields returned by {@link #get(int)} are views of the
+     * scanner's buffer and, like the row itself, are valid only until
+     * the scanner's next row is read.
+     */
+    public static final class Row {
+	int nfields = 0;
+	// arrays[i] == null when a field is stored in scratch
+	char[][] arrays = new char[16][];
+	int[] offsets = new int[16];
+	int[] lengths = new int[16];
+	Field[] views = new Field[16];
+	char[] scratch = new char[256];
+	int scratchLen = 0;
+
+	Row() {}
+
+	void ensureCapacity(int n) {
+	    if (n > arrays.length) {
+		int len = Math.max(n, 2*arrays.length);
+		arrays = Arrays.copyOf(arrays, len);
+		offsets = Arrays.copyOf(offsets, len);
+		lengths = Arrays.copyOf(lengths, len);
+		views = Arrays.copyOf(views, len);
+	    }
+	}
+
+	char[] array(int i) {
+	    char[] array = arrays[i];
+	    return (array == null)? scratch: array;
+	}
+
+	/**
+	 * Get the number of fields in this row.
+	 * @return the number of fields
+	 */
+	public int size() {return nfields;}
+
+	/**
+	 * Get a field.
+	 * The value returned is valid only until the next row is read.
+	 * @param i the field's index, which is the same as its column
+	 * @return the field
+	 * @exception IndexOutOfBoundsException the index is out of range
+	 */
+	public CharSequence get(int i) throws IndexOutOfBoundsException {
+	    if (i < 0 || i >= nfields) throw new IndexOutOfBoundsException(i);
+	    Field view = views[i];
+	    if (view == null) {
+		view = new Field(this, i);
+		views[i] = view;
+	    }
+	    return view;
+	}
+
+	/**
+	 * Get a field as a string.
+	 * @param i the field's index, which is the same as its column
+	 * @return the field
+	 * @exception IndexOutOfBoundsException the index is out of range
+	 */
+	public String getString(int i) throws IndexOutOfBoundsException {
+	    if (i < 0 || i >= nfields) throw new IndexOutOfBoundsException(i);
+	    return new String(array(i), offsets[i], lengths[i]);
+	}
+
+	/**
+	 * Get the length of a field.
+	 * @param i the field's index, which is the same as its column
+	 * @return the number of characters in the field
+	 * @exception IndexOutOfBoundsException the index is out of range
+	 */
+	public int length(int i) throws IndexOutOfBoundsException {
+	    if (i < 0 || i >= nfields) throw new IndexOutOfBoundsException(i);
+	    return lengths[i];
+	}
+
+	/**
+	 * Parse a field as a long integer.
+	 * The field is parsed as a decimal number as specified by
+	 * {@link Long#parseLong(String)}.
+	 * @param i the field's index, which is the same as its column
+	 * @return the value of the field
+	 * @exception NumberFormatException the field is not an integer
+	 *            that can be represented as a long
+	 * @exception IndexOutOfBoundsException the index is out of range
+	 */
+	public long parseLong(int i)
+	    throws NumberFormatException, IndexOutOfBoundsException
+	{
+	    return Long.parseLong(get(i), 0, lengths[i], 10);
+	}
+
+	/**
+	 * Parse a field as an integer.
+	 * The field is parsed as a decimal number as specified by
+	 * {@link Integer#parseInt(String)}.
+	 * @param i the field's index, which is the same as its column
+	 * @return the value of the field
+	 * @exception NumberFormatException the field is not an integer
+	 *            that can be represented as an int
+	 * @exception IndexOutOfBoundsException the index is out of range
+	 */
+	public int parseInt(int i)
+	    throws NumberFormatException, IndexOutOfBoundsException
+	{
+	    return Integer.parseInt(get(i), 0, lengths[i], 10);
+	}
+
+	private static final double[] POW10 = {
+	    1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7,
+	    1.0e8, 1.0e9, 1.0e10, 1.0e11, 1.0e12, 1.0e13, 1.0e14, 1.0e15,
+	    1.0e16, 1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22
+	};
+
+	/**
+	 * Parse a field as a double.
+	 * The value is the same as the one returned by
+	 * {@link Double#parseDouble(String)}. Decimal numbers with at
+	 * most 15 significant digits and a small exponent are converted
+	 * without creating a string; other values are passed to
+	 * {@link Double#parseDouble(String)}.
+	 * @param i the field's index, which is the same as its column
+	 * @return the value of the field
+	 * @exception NumberFormatException the field is not a number
+	 * @exception IndexOutOfBoundsException the index is out of range
+	 */
+	public double parseDouble(int i)
+	    throws NumberFormatException, IndexOutOfBoundsException
+	{
+	    if (i < 0 || i >= nfields) throw new IndexOutOfBoundsException(i);
+	    char[] array = array(i);
+	    int k = offsets[i];
+	    int end = k + lengths[i];
+	    boolean negative = false;
+	    if (k < end && (array[k] == '-' || array[k] == '+')) {
+		negative = (array[k++] == '-');
+	    }
+	    long mantissa = 0;
+	    int ndigits = 0;	// significant digits, ignoring leading zeros
+	    int nseen = 0;
+	    int scale = 0;
+	    boolean fast = true;
+	    while (k < end && array[k] >= '0' && array[k] <= '9') {
+		if (mantissa != 0 || array[k] != '0') ndigits++;
+		mantissa = mantissa*10 + (array[k++] - '0');
+		nseen++;
+		if (ndigits > 15) {fast = false; break;}
+	    }
+	    if (fast && k < end && array[k] == '.') {
+		k++;
+		while (k < end && array[k] >= '0' && array[k] <= '9') {
+		    if (mantissa != 0 || array[k] != '0') ndigits++;
+		    mantissa = mantissa*10 + (array[k++] - '0');
+		    nseen++;
+		    scale--;
+		    if (ndigits > 15) {fast = false; break;}
+		}
+	    }
+	    if (nseen == 0) fast = false;
+	    if (fast && k < end && (array[k] == 'e' || array[k] == 'E')) {
+		k++;
+		boolean eneg = false;
+		if (k < end && (array[k] == '-' || array[k] == '+')) {
+		    eneg = (array[k++] == '-');
+		}
+		int exp = 0;
+		int edigits = 0;
+		while (k < end && array[k] >= '0' && array[k] <= '9'
+		       && edigits < 4) {
+		    exp = exp*10 + (array[k++] - '0');
+		    edigits++;
+		}
+		if (edigits == 0) fast = false;
+		scale += eneg? -exp: exp;
+	    }
+	    if (fast && k == end && scale >= -22 && scale <= 22) {
+		// both the mantissa and the power of 10 are exact, so
+		// a single operation gives a correctly rounded result
+		double value = (double) mantissa;
+		value = (scale < 0)? value / POW10[-scale]: value * POW10[scale];
+		return negative? -value: value;
+	    }
+	    return Double.parseDouble(getString(i));
+	}
+
+	/**
+	 * Get the fields in this row as an array of strings.
+	 * @return an array containing the fields in column order
+	 */
+	public String[] toArray() {
+	    String[] results = new String[nfields];
+	    for (int i = 0; i < nfields; i++) {
+		results[i] = getString(i);
+	    }
+	    return results;
+	}
+
+	@Override
+	public String toString() {
+	    return Arrays.toString(toArray());
+	}
+    }
+
+    // CharSequence view of a row's field.
+    static final class Field implements CharSequence {
+	final Row row;
+	final int index;
+	Field(Row row, int index) {
+	    this.row = row;
+	    this.index = index;
+	}
+	@Override
+	public int length() {return row.lengths[index];}
+
+	@Override
+	public char charAt(int i) {
+	    if (i < 0 || i >= row.lengths[index]) {
+		throw new IndexOutOfBoundsException(i);
+	    }
+	    return row.array(index)[row.offsets[index] + i];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+	    return toString().subSequence(start, end);
+	}
+
+	@Override
+	public String toString() {
+	    return new String(row.array(index), row.offsets[index],
+			      row.lengths[index]);
+	}
+    }
+
+    // Provides characters to the scanner's buffer.
+    private static abstract class Source implements Closeable {
+	abstract int fill(char[] cbuf, int off, int len) throws IOException;
+    }
+
+    private static class ReaderSource extends Source {
+	Reader in;
+	ReaderSource(Reader in) {this.in = in;}
+	@Override
+	int fill(char[] cbuf, int off, int len) throws IOException {
+	    return in.read(cbuf, off, len);
+	}
+	@Override
+	public void close() throws IOException {in.close();}
+    }
+
+    // Decodes a region of a memory-mapped UTF-8 file.
+    private static class MappedSource extends Source {
+	FileChannel fc;
+	boolean closeChannel;
+	long segStart;
+	long end;
+	MappedByteBuffer bb = null;
+	boolean lastSegment = false;
+	boolean done = false;
+	CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+	    .onMalformedInput(CodingErrorAction.REPLACE)
+	    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	MappedSource(FileChannel fc, long start, long end,
+		     boolean closeChannel)
+	{
+	    this.fc = fc;
+	    this.segStart = start;
+	    this.end = end;
+	    this.closeChannel = closeChannel;
+	}
+
+	private void map() throws IOException {
+	    long size = Math.min(SEGMENT_SIZE, end - segStart);
+	    bb = fc.map(FileChannel.MapMode.READ_ONLY, segStart, size);
+	    lastSegment = (segStart + size == end);
+	}
+
+	@Override
+	int fill(char[] cbuf, int off, int len) throws IOException {
+	    if (done) return -1;
+	    CharBuffer cb = CharBuffer.wrap(cbuf, off, len);
+	    if (bb == null) map();
+	    for (;;) {
+		CoderResult result = decoder.decode(bb, cb, lastSegment);
+		if (result.isError()) result.throwException();
+		if (cb.position() > off) return cb.position() - off;
+		if (result.isUnderflow()) {
+		    if (lastSegment) {
+			decoder.flush(cb);
+			done = true;
+			int n = cb.position() - off;
+			return (n == 0)? -1: n;
+		    }
+		    // remap, starting with any bytes not yet decoded
+		    segStart += bb.position();
+		    map();
+		}
+	    }
+	}
+
+	@Override
+	public void close() throws IOException {
+	    bb = null;
+	    if (closeChannel) fc.close();
+	}
+    }
+
+    private enum Mode {ANY, LF, CR, CRLF}
+
+    private Source source;
+    private final Mode mode;
+    private final char[] joiner;
+    private String[] header = null;
+
+    private char[] buf = new char[INITIAL_BUFSIZE];
+    private int limit = 0;	// number of valid characters in buf
+    private int pos = 0;	// next character to scan
+    private int rowStart = 0;	// start of the row being scanned
+    private boolean eof = false;
+
+    private final Row row = new Row();
+    // field boundaries relative to rowStart
+    private int[] fstarts = new int[16];
+    private int[] fends = new int[16];
+    private boolean[] fterms = new boolean[16];
+
+    /**
+     * Constructor.
+     * When the first row is classified as a header, it is skipped but
+     * can be retrieved by calling {@link #getHeaders()}.
+     * @param in the input
+     * @param hasHeader true if the first line (or row) is a header;
+     *                  false otherwise
+     * @exception IOException an IO Exception was thrown
+     */
+    public CSVScanner(Reader in, boolean hasHeader) throws IOException {
+	this(new ReaderSource(in), hasHeader, null);
+    }
+
+    /**
+     * Constructor specifying a delimiter.
+     * When the first row is classified as a header, it is skipped but
+     * can be retrieved by calling {@link #getHeaders()}.
+     * @param in the input
+     * @param hasHeader true if the first line (or row) is a header;
+     *                  false otherwise
+     * @param delimiter the delimiter ({@link LineReader.Delimiter#LF}
+     *        for a new line, {@link LineReader.Delimiter#CR} for a
+     *        carriage return, or {@link LineReader.Delimiter#CRLF}
+     *        for a carriage return followed by a new line; null for
+     *        the system-defined line separator
+     * @exception IOException an IO Exception was thrown
+     * @see CSVReader#CSVReader(Reader,boolean,LineReader.Delimiter)
+     */
+    public CSVScanner(Reader in, boolean hasHeader,
+		      LineReader.Delimiter delimiter)
+	throws IOException
+    {
+	this(new ReaderSource(in), hasHeader, delimiter);
+    }
+
+    /**
+     * Constructor for a memory-mapped file.
+     * The file must use the UTF-8 character encoding.
+     * When the first row is classified as a header, it is skipped but
+     * can be retrieved by calling {@link #getHeaders()}.
+     * @param f the file
+     * @param hasHeader true if the first line (or row) is a header;
+     *                  false otherwise
+     * @param delimiter the delimiter ({@link LineReader.Delimiter#LF}
+     *        for a new line, {@link LineReader.Delimiter#CR} for a
+     *        carriage return, or {@link LineReader.Delimiter#CRLF}
+     *        for a carriage return followed by a new line; null for
+     *        the system-defined line separator
+     * @exception IOException an IO Exception was thrown
+     */
+    public CSVScanner(File f, boolean hasHeader,
+		      LineReader.Delimiter delimiter)
+	throws IOException
+    {
+	this(mappedSource(f), hasHeader, delimiter);
+    }
+
+    private static Source mappedSource(File f) throws IOException {
+	FileChannel fc = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+	return new MappedSource(fc, 0, fc.size(), true);
+    }
+
+    private CSVScanner(Source source, boolean hasHeader,
+		       LineReader.Delimiter delimiter)
+	throws IOException
+    {
+	this.source = source;
+	if (delimiter == null) {
+	    mode = Mode.ANY;
+	    joiner = CSVReader.DEFAULT_DELIMITER.toCharArray();
+	} else {
+	    switch(delimiter) {
+	    case LF:
+		mode = Mode.LF;
+		joiner = new char[] {'\n'};
+		break;
+	    case CR:
+		mode = Mode.CR;
+		joiner = new char[] {'\r'};
+		break;
+	    default:
+		mode = Mode.CRLF;
+		joiner = new char[] {'\r', '\n'};
+		break;
+	    }
+	}
+	if (hasHeader) {
+	    Row hrow = nextRow();
+	    header = (hrow == null)? null: hrow.toArray();
+	}
+    }
+
+    /**
+     * Get the headers.
+     * @return the headers; null if the constructor indicates that
+     *         the first row does not contain headers
+     */
+    public String[] getHeaders() {
+	return (header == null)? null: header.clone();
+    }
+
+    // Read more characters, compacting or growing the buffer if
+    // necessary.  The characters in the current row are preserved,
+    // but may be moved.
+    private boolean fill() throws IOException {
+	if (eof) return false;
+	if (buf.length - limit < buf.length/4 && rowStart > 0) {
+	    int n = limit - rowStart;
+	    System.arraycopy(buf, rowStart, buf, 0, n);
+	    pos -= rowStart;
+	    limit = n;
+	    rowStart = 0;
+	}
+	if (limit == buf.length) {
+	    buf = Arrays.copyOf(buf, 2*buf.length);
+	}
+	int n = source.fill(buf, limit, buf.length - limit);
+	if (n == -1) {
+	    eof = true;
+	    return false;
+	}
+	limit += n;
+	return true;
+    }
+
+    private void addField(int nf, int start, int end, boolean hasTerm) {
+	if (nf == fstarts.length) {
+	    int len = 2*nf;
+	    fstarts = Arrays.copyOf(fstarts, len);
+	    fends = Arrays.copyOf(fends, len);
+	    fterms = Arrays.copyOf(fterms, len);
+	}
+	fstarts[nf] = start;
+	fends[nf] = end;
+	fterms[nf] = hasTerm;
+    }
+
+    /**
+     * Get the next row.
+     * The object returned is the same for each call, and is valid only
+     * until this method is called again.
+     * @return the next row; null if there are no more rows
+     * @exception IOException an IO Exception was thrown, or the input
+     *            ended in the middle of a quoted field
+     */
+    public Row nextRow() throws IOException {
+	if (source == null) throw new IOException(errorMsg("streamClosed"));
+	rowStart = pos;
+	if (pos == limit && !fill()) return null;
+	int p = pos;
+	boolean quoting = false;
+	boolean hasTerm = false;
+	int nf = 0;
+	int fstart = 0;
+	int rowEnd;
+	for (;;) {
+	    if (p == limit) {
+		int rel = p - rowStart;
+		boolean more = fill();
+		p = rowStart + rel;
+		if (!more) {
+		    if (quoting) throw new IOException(errorMsg("emptyLine"));
+		    rowEnd = rel;
+		    pos = p;
+		    break;
+		}
+	    }
+	    char c = buf[p];
+	    if (c > ',') {
+		p++;
+		continue;
+	    }
+	    if (c == '"') {
+		// quoting state changes at each quote: "" toggles it twice
+		quoting = !quoting;
+		p++;
+	    } else if (c == ',') {
+		if (!quoting) {
+		    addField(nf++, fstart, p - rowStart, hasTerm);
+		    fstart = p + 1 - rowStart;
+		    hasTerm = false;
+		}
+		p++;
+	    } else if (c == '\n' || c == '\r') {
+		int tlen = 0;
+		switch (mode) {
+		case ANY:
+		case CRLF:
+		    if (c == '\r') {
+			if (p + 1 == limit) {
+			    int rel = p - rowStart;
+			    fill();
+			    p = rowStart + rel;
+			}
+			boolean lf = (p + 1 < limit && buf[p+1] == '\n');
+			tlen = lf? 2: ((mode == Mode.ANY)? 1: 0);
+		    } else {
+			tlen = (mode == Mode.ANY)? 1: 0;
+		    }
+		    break;
+		case LF:
+		    tlen = (c == '\n')? 1: 0;
+		    break;
+		case CR:
+		    tlen = (c == '\r')? 1: 0;
+		    break;
+		}
+		if (tlen == 0) {
+		    p++;
+		} else if (quoting) {
+		    hasTerm = true;
+		    p += tlen;
+		} else {
+		    rowEnd = p - rowStart;
+		    pos = p + tlen;
+		    break;
+		}
+	    } else {
+		p++;
+	    }
+	}
+	addField(nf++, fstart, rowEnd, hasTerm);
+	setFields(nf);
+	return row;
+    }
+
+    private boolean isTerm(int p, int end) {
+	char c = buf[p];
+	switch (mode) {
+	case ANY:
+	    return c == '\n' || c == '\r';
+	case LF:
+	    return c == '\n';
+	case CR:
+	    return c == '\r';
+	default:
+	    return c == '\r' && p + 1 < end && buf[p+1] == '\n';
+	}
+    }
+
+    // Convert raw fields to field values, using the same rules as
+    // CSVReader.
+    private void setFields(int nf) {
+	row.ensureCapacity(nf);
+	row.nfields = nf;
+	row.scratchLen = 0;
+	int last = nf - 1;
+	for (int i = 0; i < nf; i++) {
+	    int s = rowStart + fstarts[i];
+	    int e = rowStart + fends[i];
+	    int rawEnd = e;
+	    boolean quoted = (e > s && buf[s] == '"');
+	    boolean collapse = quoted || i < last;
+	    if (e > s && buf[e-1] == '"') e--;
+	    if (quoted) s++;
+	    if (s > e) s = e;
+	    boolean copy = fterms[i];
+	    if (!copy && collapse) {
+		for (int k = s; k < e; k++) {
+		    if (buf[k] == '"') {
+			copy = true;
+			break;
+		    }
+		}
+	    }
+	    if (copy) {
+		copyField(i, s, e, rawEnd, collapse);
+	    } else {
+		row.arrays[i] = buf;
+		row.offsets[i] = s;
+		row.lengths[i] = e - s;
+	    }
+	}
+    }
+
+    private void copyField(int i, int s, int e, int rawEnd,
+			   boolean collapse)
+    {
+	int needed = row.scratchLen + (e - s) * joiner.length;
+	if (needed > row.scratch.length) {
+	    row.scratch = Arrays.copyOf(row.scratch,
+					Math.max(needed, 2*row.scratch.length));
+	}
+	char[] scratch = row.scratch;
+	int start = row.scratchLen;
+	int n = start;
+	int k = s;
+	while (k < e) {
+	    char c = buf[k];
+	    if (c == '"' && collapse && k + 1 < e && buf[k+1] == '"') {
+		scratch[n++] = '"';
+		k += 2;
+	    } else if ((c == '\r' || c == '\n') && isTerm(k, rawEnd)) {
+		for (char jc: joiner) scratch[n++] = jc;
+		k += (mode == Mode.CRLF
+		      || (c == '\r' && k + 1 < rawEnd && buf[k+1] == '\n'
+			  && mode == Mode.ANY))? 2: 1;
+	    } else {
+		scratch[n++] = c;
+		k++;
+	    }
+	}
+	row.arrays[i] = null;
+	row.offsets[i] = start;
+	row.lengths[i] = n - start;
+	row.scratchLen = n;
+    }
+
+    /**
+     * Close this scanner and its input.
+     * @exception IOException an IO Exception was thrown
+     */
+    @Override
+    public void close() throws IOException {
+	if (source != null) {
+	    source.close();
+	    source = null;
+	}
+    }
+
+    private static boolean endsLine(ByteBuffer bb, int p, Mode mode) {
+	// true if a line ends just before p
+	byte b = bb.get(p-1);
+	switch (mode) {
+	case ANY:
+	    return b == '\n' || (b == '\r' && (p == bb.limit()
+					       || bb.get(p) != '\n'));
+	case LF:
+	    return b == '\n';
+	case CR:
+	    return b == '\r';
+	default:
+	    return b == '\n' && p > 1 && bb.get(p-2) == '\r';
+	}
+    }
+
+    // Find the start of the first row that starts at or after position
+    // start, given whether a quoted field is open at that position.
+    private static long rowStart(FileChannel fc, long start, long size,
+				 boolean quoting, Mode mode)
+	throws IOException
+    {
+	if (start == 0) return 0;
+	boolean first = true;
+	long pos = start;
+	while (pos < size) {
+	    // include two bytes before pos so endsLine can test them
+	    long base = Math.max(0, pos - 2);
+	    long len = Math.min(SEGMENT_SIZE, size - base);
+	    MappedByteBuffer bb =
+		fc.map(FileChannel.MapMode.READ_ONLY, base, len);
+	    int p = (int)(pos - base);
+	    if (first) {
+		first = false;
+		if (!quoting && endsLine(bb, p, mode)) return pos;
+	    }
+	    int lim = bb.limit();
+	    while (p < lim) {
+		byte b = bb.get(p);
+		if (b == '"') {
+		    quoting = !quoting;
+		} else if (!quoting && (b == '\n' || b == '\r')) {
+		    int q = p + 1;
+		    if (q == lim && base + q < size) {
+			// need the next byte: continue in the next segment
+			break;
+		    }
+		    if (endsLine(bb, q, mode)) return base + q;
+		}
+		p++;
+	    }
+	    pos = base + p;
+	}
+	return size;
+    }
+
+    private static long countQuotes(FileChannel fc, long start, long end)
+	throws IOException
+    {
+	long count = 0;
+	while (start < end) {
+	    long len = Math.min(SEGMENT_SIZE, end - start);
+	    MappedByteBuffer bb =
+		fc.map(FileChannel.MapMode.READ_ONLY, start, len);
+	    int lim = bb.limit();
+	    for (int i = 0; i < lim; i++) {
+		if (bb.get(i) == '"') count++;
+	    }
+	    start += len;
+	}
+	return count;
+    }
+
+    private static Mode modeFor(LineReader.Delimiter delimiter) {
+	if (delimiter == null) return Mode.ANY;
+	switch (delimiter) {
+	case LF: return Mode.LF;
+	case CR: return Mode.CR;
+	default: return Mode.CRLF;
+	}
+    }
+
+    @FunctionalInterface
+    private interface Task {
+	void run(int i) throws Exception;
+    }
+
+    private static void runTasks(int n, Task task) throws IOException {
+	Thread[] threads = new Thread[n];
+	Exception[] errors = new Exception[n];
+	for (int i = 0; i < n; i++) {
+	    final int index = i;
+	    threads[i] = new Thread(() -> {
+		    try {
+			task.run(index);
+		    } catch (Exception e) {
+			errors[index] = e;
+		    }
+	    });
+	    threads[i].start();
+	}
+	try {
+	    for (Thread thread: threads) thread.join();
+	} catch (InterruptedException e) {
+	    throw new IOException(e);
+	}
+	for (Exception e: errors) {
+	    if (e instanceof IOException) throw (IOException) e;
+	    if (e instanceof RuntimeException) throw (RuntimeException) e;
+	    if (e != null) throw new IOException(e);
+	}
+    }
+
+    /**
+     * Process each row in a memory-mapped file, possibly using multiple
+     * threads.
+     * The file must use the UTF-8 character encoding.  The file is
+     * split into contiguous regions, each starting at the beginning of
+     * a row, and each region is parsed by a separate thread.  The
+     * action may be called concurrently by these threads, and each
+     * thread provides its own {@link Row}. The rows from a single
+     * region are processed in the order in which they appear in the
+     * file.
+     * @param f the file
+     * @param hasHeader true if the first line (or row) is a header;
+     *                  false otherwise
+     * @param delimiter the delimiter ({@link LineReader.Delimiter#LF}
+     *        for a new line, {@link LineReader.Delimiter#CR} for a
+     *        carriage return, or {@link LineReader.Delimiter#CRLF}
+     *        for a carriage return followed by a new line; null for
+     *        the system-defined line separator
+     * @param nthreads the number of threads to use
+     * @param action the action to apply to each row (excluding the header)
+     * @return the headers; null if hasHeader is false
+     * @exception IOException an IO Exception was thrown, or the input
+     *            ended in the middle of a quoted field
+     * @exception IllegalArgumentException nthreads was less than 1
+     */
+    public static String[] forEachRow(File f, boolean hasHeader,
+				      LineReader.Delimiter delimiter,
+				      int nthreads, Consumer<Row> action)
+	throws IOException, IllegalArgumentException
+    {
+	if (nthreads < 1) {
+	    throw new IllegalArgumentException
+		(errorMsg("nthreadsNotPositive", nthreads));
+	}
+	try (FileChannel fc = FileChannel.open(f.toPath(),
+					       StandardOpenOption.READ)) {
+	    long size = fc.size();
+	    if (size < MIN_PARALLEL_SIZE * nthreads) {
+		nthreads = (int)Math.max(1, size/MIN_PARALLEL_SIZE);
+	    }
+	    final int n = nthreads;
+	    Mode mode = modeFor(delimiter);
+	    long[] bounds = new long[n+1];
+	    for (int i = 0; i <= n; i++) {
+		bounds[i] = (size / n) * i + Math.min(i, size % n);
+	    }
+	    long[] counts = new long[n];
+	    if (n > 1) {
+		runTasks(n, (i) -> {
+			counts[i] = countQuotes(fc, bounds[i], bounds[i+1]);
+		    });
+	    }
+	    long[] starts = new long[n+1];
+	    starts[n] = size;
+	    String[][] header = new String[1][];
+	    runTasks(n, (i) -> {
+		    long count = 0;
+		    for (int j = 0; j < i; j++) count += counts[j];
+		    starts[i] = rowStart(fc, bounds[i], size,
+					 (count % 2) == 1, mode);
+	    });
+	    runTasks(n, (i) -> {
+		    long end = starts[i+1];
+		    if (starts[i] >= end) return;
+		    Source source = new MappedSource(fc, starts[i], end, false);
+		    CSVScanner scanner =
+			new CSVScanner(source, i == 0 && hasHeader, delimiter);
+		    if (i == 0) header[0] = scanner.header;
+		    Row row;
+		    while ((row = scanner.nextRow()) != null) {
+			action.accept(row);
+		    }
+		});
+	    return header[0];
+	}
+    }
+}
+
+//  LocalWords:  exbundle CSV CSVReader CharSequence parseLong parseInt
+//  LocalWords:  parseDouble forEachRow toString getString UL LI LF
+//  LocalWords:  BufferedReader readLine LineReader BLOCKQUOTE PRE
+//  LocalWords:  CSVScanner csv getHeaders nextRow hasHeader CRLF
+//  LocalWords:  IOException nthreads
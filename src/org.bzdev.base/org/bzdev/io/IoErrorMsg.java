@@ -8,7 +8,6 @@ class IoErrorMsg {
 	("org.bzdev.io.lpack.IO");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
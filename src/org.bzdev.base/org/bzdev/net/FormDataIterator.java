@@ -2,6 +2,7 @@ package org.bzdev.net;
 import java.io.InputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -78,6 +79,11 @@ import java.util.NoSuchElementException;
  *     {@link FormDataIterator hasNext()} is called. Otherwise an
  *     {@link java.lang.IllegalStateException IllegalStateException}
  *     will be thrown.
+ *   <LI> The streams returned by {@link #next()} should be read using
+ *     {@link java.io.InputStream#read(byte[],int,int)} when entries
+ *     may be large.  The class {@link FormDataParser} reads a
+ *     complete multipart/form-data stream, storing large entries in
+ *     temporary files.
  * </UL>
  */
 public class FormDataIterator implements Iterator<InputStream> {
@@ -111,9 +117,11 @@ public class FormDataIterator implements Iterator<InputStream> {
     byte[] boundary;
     static byte[] internalEnd = {'\r', '\n'};
     static byte[] finalEnd = {'-', '-', '\r', '\n'};
-    static final int DEFAULT_BSIZE = 512;
-    static int BSIZE = 1024;	     // never changed after constructor
-    byte[] buffer = new byte[BSIZE]; // circular buffer
+    static final int DEFAULT_BSIZE = 8192;
+    final int BSIZE;		     // never changed after constructor
+    final byte[] buffer;	     // circular buffer
+    // Boyer-Moore-Horspool shift table for the boundary
+    final int[] shift = new int[256];
     long rposition = 0;		     // next to read when rposition < wposition
     long wposition = 0;
     long end = -1;		// -1 is undetermined
@@ -158,7 +166,7 @@ public class FormDataIterator implements Iterator<InputStream> {
 	}
     }
     Charset USASCII = Charset.forName("US-ASCII");
-    byte[] tmpbuf = new byte[BSIZE];
+    final byte[] tmpbuf;
 
     // Will not read the terminating 'CRLF' for an empty line.
     // Returns null for an empty line.
@@ -250,45 +258,24 @@ public class FormDataIterator implements Iterator<InputStream> {
 	}
     }
 
+    // Bytes before testPositionStart are known not to be part of the
+    // next boundary, so streams can return them without further tests.
     private boolean scanForBoundary() throws IOException {
+	int blen = boundary.length;
+	int last = blen - 1;
 	long pos = Math.max(rposition, testPositionStart);
-	while (pos+1 < wposition) {
-	    if (buffer[(int)(pos%BSIZE)] == '\r'
-		&& buffer[(int)((pos+1)%BSIZE)] == '\n') {
-		break;
+	// Boyer-Moore-Horspool search, requiring the 4 bytes that follow
+	// a boundary to be in the buffer as well.
+	while (pos + blen + 4 <= wposition) {
+	    int i = last;
+	    while (i >= 0 && buffer[(int)((pos+i)%BSIZE)] == boundary[i]) {
+		i--;
 	    }
-	    pos++;
-	}
-	if (pos < wposition) {
-	    testPositionStart = pos;
+	    if (i < 0) break;
+	    pos += shift[buffer[(int)((pos+last)%BSIZE)] & 0xFF];
 	}
-	if (wposition - pos >= boundary.length + 4) {
-	    // there are enough remaining bytes in the buffer
-	    // to find a boundary.
-	    for (int i = 0; i < boundary.length; i++) {
-		long bpos = i + testPositionStart;
-		if (buffer[(int)(bpos%BSIZE)] != boundary[i]) {
-		    testPositionStart = bpos;
-		    pos = testPositionStart;
-		    while (pos+1 < wposition) {
-			if (buffer[(int)(pos%BSIZE)] == '\r'
-			    && buffer[(int)((pos+1)%BSIZE)] == '\n') {
-			    break;
-			}
-			pos++;
-		    }
-		    if (pos < wposition) {
-			testPositionStart = pos;
-		    }
-		    if (wposition - bpos > boundary.length + 4) {
-			i = -1;
-			continue;
-		    } else {
-			return false;
-		    }
-		}
-	    }
-
+	testPositionStart = pos;
+	if (pos + blen + 4 <= wposition) {
 	    endStream = testPositionStart;
 	    endBoundary = testPositionStart + boundary.length;
 	    if (buffer[(int)(endBoundary%BSIZE)] == '-'
@@ -517,10 +504,13 @@ public class FormDataIterator implements Iterator<InputStream> {
     {
 	int boundaryLength = boundary.length();
 	int boundaryLength2 = boundaryLength*2;
-	BSIZE = DEFAULT_BSIZE;
-	while (BSIZE < boundaryLength2) {
-	    BSIZE *= 2;
+	int bsize = DEFAULT_BSIZE;
+	while (bsize < boundaryLength2) {
+	    bsize *= 2;
 	}
+	BSIZE = bsize;
+	buffer = new byte[BSIZE];
+	tmpbuf = new byte[BSIZE];
 	this.is = is;
 	this.boundary = new byte[4 + boundaryLength];
 	initialBoundary = new byte[4 + boundaryLength];
@@ -540,6 +530,11 @@ public class FormDataIterator implements Iterator<InputStream> {
 	}
 	initialBoundary[ii++] = '\r';
 	initialBoundary[ii++] = '\n';
+	int last = this.boundary.length - 1;
+	Arrays.fill(shift, this.boundary.length);
+	for (i = 0; i < last; i++) {
+	    shift[this.boundary[i] & 0xFF] = last - i;
+	}
 
 	fillBuffer();
 	i = 0;
@@ -598,7 +593,7 @@ public class FormDataIterator implements Iterator<InputStream> {
 	       // the end at this point, the caller does not have
 	       // to explicitly read the full stream, although reading
 	       // it anyway is harmless.
-	       while (read() != -1);
+	       while (read(tmpbuf, 0, BSIZE) != -1);
 	   }
 
 	    if (endBoundary < rposition) {
@@ -638,6 +633,47 @@ public class FormDataIterator implements Iterator<InputStream> {
 		}
 	    }
 	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+	    if (off < 0 || len < 0 || len > b.length - off) {
+		throw new IndexOutOfBoundsException();
+	    }
+	    if (len == 0) return 0;
+	    if (streamOpened == false) return -1;
+	    int n = 0;
+	    while (n < len) {
+		if (needBoundary && scanForBoundary()) {
+		    needBoundary = false;
+		}
+		if (!needBoundary && rposition == endStream) {
+		    if (n == 0) {
+			streamOpened = false;
+			return -1;
+		    }
+		    break;
+		}
+		// Until the boundary is found, bytes before
+		// testPositionStart cannot be part of it.
+		long limit = needBoundary? testPositionStart: endStream;
+		if (limit <= rposition) {
+		    int c = read();
+		    if (c == -1) return (n == 0)? -1: n;
+		    b[off + n++] = (byte) c;
+		    continue;
+		}
+		int start = (int)(rposition % BSIZE);
+		int count = (int)Math.min(limit - rposition, len - n);
+		count = Math.min(count, BSIZE - start);
+		System.arraycopy(buffer, start, b, off + n, count);
+		n += count;
+		rposition += count;
+		if (rposition >= wposition - boundary.length - 4) {
+		    fillBuffer();
+		}
+	    }
+	    return n;
+	}
     }
 }
 
@@ -0,0 +1,437 @@
+package org.bzdev.net;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//@exbundle org.bzdev.net.lpack.Net
+
+/**
+ * Parser for input streams that provide data using the
+ * multipart/form-data media type.
+ * <P>
+ * This class uses a {@link FormDataIterator} to read each entry in a
+ * multipart/form-data stream.  Entries whose size does not exceed a
+ * threshold are stored in memory; larger entries are written to
+ * temporary files as they are read.  A limit can also be placed on
+ * the total number of bytes stored in memory, after which all
+ * remaining entries are written to temporary files. As a result,
+ * the memory used is bounded regardless of the size of an upload.
+ * The design pattern for using this class is
+ * <BLOCKQUOTE><PRE><CODE>
+ *     InputStream is = requestInfo.getDecodedInputStream();
+ *     String boundary =
+ *          requestHeader.getFromHeader("content-type", "boundary");
+ *     try (FormDataParser parser = new FormDataParser(is, boundary)) {
+ *         String title = parser.getField("title");
+ *         for (FormDataParser.Part part: parser.getParts("upload")) {
+ *             part.transferTo(new File(dir, part.getFileName()));
+ *         }
+ *     }
+ * </CODE></PRE></BLOCKQUOTE>
+ * Closing the parser deletes any temporary files that were created,
+ * so data that should be kept must be copied or moved first (e.g., by
+ * calling {@link Part#transferTo(File)}).
+ * <P>
+ * Following the HTML convention, an entry named "_charset_" that is
+ * stored in memory sets the default charset used for subsequent
+ * text/plain entries that do not specify a charset.
+ */
+public class FormDataParser implements Closeable {
+
+    static String errorMsg(String key, Object... args) {
+	return NetErrorMsg.errorMsg(key, args);
+    }
+
+    /**
+     * The default threshold in bytes above which an entry is stored
+     * in a temporary file.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    /**
+     * The default limit on the total number of bytes stored in
+     * memory for all of the entries.
+     */
+    public static final long DEFAULT_MEMORY_LIMIT = 1 << 24;
+
+    private static final int BUFSIZE = 1 << 16;
+
+    // Some JVMs reserve header words in an array, so stay a bit below
+    // Integer.MAX_VALUE when growing an in-memory entry.
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * An entry in a multipart/form-data stream.
+     */
+    public static final class Part {
+	private final HeaderOps headers;
+	private final String name;
+	private final String fileName;
+	private final String contentType;
+	private final String mediaType;
+	private final Charset charset;
+	private byte[] data = null;
+	private File file = null;
+	private long size = 0;
+
+	Part(FormDataIterator it) {
+	    headers = it.getHeaders();
+	    name = it.getName();
+	    fileName = it.getFileName();
+	    contentType = it.getContentType();
+	    mediaType = it.getMediaType();
+	    charset = it.getCharset();
+	}
+
+	/**
+	 * Get the headers provided for this entry.
+	 * @return the headers
+	 */
+	public HeaderOps getHeaders() {return headers;}
+
+	/**
+	 * Get the name for this entry.
+	 * @return the name; null if there is none
+	 * @see FormDataIterator#getName()
+	 */
+	public String getName() {return name;}
+
+	/**
+	 * Get the file name for this entry.
+	 * @return the file name; null if there is none
+	 * @see FormDataIterator#getFileName()
+	 */
+	public String getFileName() {return fileName;}
+
+	/**
+	 * Get the value of the content-type header for this entry.
+	 * @return the full content-type header; null if there is not one
+	 */
+	public String getContentType() {return contentType;}
+
+	/**
+	 * Get the media type, excluding its parameters, for this entry.
+	 * @return the media type; null if a media type was not provided
+	 */
+	public String getMediaType() {return mediaType;}
+
+	/**
+	 * Get the charset for this entry.
+	 * @return the charset
+	 * @see FormDataIterator#getCharset()
+	 */
+	public Charset getCharset() {return charset;}
+
+	/**
+	 * Get the size of this entry.
+	 * @return the number of bytes in this entry
+	 */
+	public long size() {return size;}
+
+	/**
+	 * Determine if this entry is stored in memory.
+	 * @return true if the entry is stored in memory; false if it is
+	 *         stored in a temporary file
+	 */
+	public boolean isInMemory() {return file == null;}
+
+	/**
+	 * Get the temporary file containing this entry.
+	 * The file will be deleted when the parser that created this
+	 * entry is closed.
+	 * @return the file; null if this entry is stored in memory
+	 */
+	public File getFile() {return file;}
+
+	/**
+	 * Get an input stream containing this entry's data.
+	 * @return the input stream
+	 * @exception IOException an IO error occurred
+	 */
+	public InputStream getInputStream() throws IOException {
+	    if (file == null) {
+		return new ByteArrayInputStream(data);
+	    } else {
+		return new FileInputStream(file);
+	    }
+	}
+
+	/**
+	 * Get this entry's data as a string.
+	 * The entry's charset is used to decode the data.  For an entry
+	 * stored in a temporary file, the whole file is read.
+	 * @return the string
+	 * @exception IOException an IO error occurred
+	 */
+	public String getString() throws IOException {
+	    if (file == null) {
+		return new String(data, charset);
+	    } else {
+		try (InputStream is = getInputStream()) {
+		    return new String(is.readAllBytes(), charset);
+		}
+	    }
+	}
+
+	/**
+	 * Write this entry's data to an output stream.
+	 * @param os the output stream
+	 * @exception IOException an IO error occurred
+	 */
+	public void transferTo(OutputStream os) throws IOException {
+	    if (file == null) {
+		os.write(data);
+	    } else {
+		try (InputStream is = getInputStream()) {
+		    is.transferTo(os);
+		}
+	    }
+	}
+
+	/**
+	 * Store this entry's data in a file.
+	 * For an entry stored in a temporary file, the temporary file is
+	 * renamed when possible, in which case {@link #getFile()} will
+	 * return the new file.
+	 * @param target the file
+	 * @exception IOException an IO error occurred
+	 */
+	public void transferTo(File target) throws IOException {
+	    if (file != null && file.renameTo(target)) {
+		file = target.getAbsoluteFile();
+		return;
+	    }
+	    try (FileChannel fc = FileChannel.open
+		 (target.toPath(), StandardOpenOption.CREATE,
+		  StandardOpenOption.WRITE,
+		  StandardOpenOption.TRUNCATE_EXISTING)) {
+		if (file == null) {
+		    ByteBuffer bb = ByteBuffer.wrap(data);
+		    while (bb.hasRemaining()) fc.write(bb);
+		} else {
+		    try (FileChannel in = FileChannel.open(file.toPath())) {
+			long pos = 0;
+			while (pos < size) {
+			    pos += in.transferTo(pos, size - pos, fc);
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    private final List<Part> parts = new ArrayList<>();
+    private final List<File> tmpfiles = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * The stream is read to the end of the multipart/form-data object
+     * using the default threshold and memory limit, and temporary files
+     * are created in the system's default temporary-file directory.
+     * @param is an input stream containing the multipart/form-data object
+     * @param boundary the boundary, typically obtained by reading
+     *        the 'boundary' parameter of a multipart/form-data media type
+     * @exception IOException an IO error occurred
+     */
+    public FormDataParser(InputStream is, String boundary) throws IOException {
+	this(is, boundary, DEFAULT_THRESHOLD, DEFAULT_MEMORY_LIMIT, null);
+    }
+
+    /**
+     * Constructor specifying how entries are stored.
+     * The stream is read to the end of the multipart/form-data object.
+     * @param is an input stream containing the multipart/form-data object
+     * @param boundary the boundary, typically obtained by reading
+     *        the 'boundary' parameter of a multipart/form-data media type
+     * @param threshold the largest entry size in bytes for entries
+     *        that will be stored in memory
+     * @param memoryLimit the maximum total number of bytes stored in
+     *        memory for all entries
+     * @param dir the directory in which to create temporary files;
+     *        null for the system's default temporary-file directory
+     * @exception IOException an IO error occurred
+     * @exception IllegalArgumentException the threshold or memory limit
+     *            was negative
+     */
+    public FormDataParser(InputStream is, String boundary,
+			  int threshold, long memoryLimit, File dir)
+	throws IOException, IllegalArgumentException
+    {
+	if (threshold < 0 || memoryLimit < 0) {
+	    throw new IllegalArgumentException(errorMsg("negativeLimit"));
+	}
+	FormDataIterator it = new FormDataIterator(is, boundary);
+	byte[] buffer = null;
+	long inMemory = 0;
+	try {
+	    while (it.hasNext()) {
+		InputStream cis = it.next();
+		if (cis == null) break;
+		Part part = new Part(it);
+		int limit = (int)Math.min(threshold, memoryLimit - inMemory);
+		byte[] data = new byte[(int)Math.min(limit + 1L, 1024)];
+		int len = 0;
+		int n;
+		// Read into memory until the limit is exceeded.
+		while ((n = cis.read(data, len, data.length - len)) != -1) {
+		    len += n;
+		    if (len == data.length) {
+			if (len > limit || len == MAX_ARRAY_LENGTH) break;
+			data = Arrays.copyOf
+			    (data, (int)Math.min(Math.min(limit + 1L, 2L*len),
+						 MAX_ARRAY_LENGTH));
+		    }
+		}
+		if (n == -1) {
+		    part.data = (len == data.length)? data:
+			Arrays.copyOf(data, len);
+		    part.size = len;
+		    inMemory += len;
+		    if ("_charset_".equals(part.name)) {
+			try {
+			    it.setDefaultCharset
+				(Charset.forName(part.getString().trim()));
+			} catch (IllegalArgumentException e) {}
+		    }
+		} else {
+		    if (buffer == null) buffer = new byte[BUFSIZE];
+		    spill(part, data, len, cis, buffer, dir);
+		}
+		cis.close();
+		parts.add(part);
+	    }
+	} catch (IOException | RuntimeException e) {
+	    close();
+	    throw e;
+	}
+    }
+
+    private void spill(Part part, byte[] data, int len, InputStream cis,
+		       byte[] buffer, File dir)
+	throws IOException
+    {
+	File f = File.createTempFile("formdata", ".tmp", dir);
+	tmpfiles.add(f);
+	part.file = f;
+	long size = len;
+	try (FileChannel fc = FileChannel.open(f.toPath(),
+					       StandardOpenOption.WRITE)) {
+	    ByteBuffer bb = ByteBuffer.wrap(data, 0, len);
+	    while (bb.hasRemaining()) fc.write(bb);
+	    bb = ByteBuffer.wrap(buffer);
+	    int n;
+	    while ((n = cis.read(buffer, 0, buffer.length)) != -1) {
+		bb.clear().limit(n);
+		while (bb.hasRemaining()) fc.write(bb);
+		size += n;
+	    }
+	}
+	part.size = size;
+    }
+
+    /**
+     * Get all the entries in the order in which they appeared.
+     * @return an unmodifiable list of the entries
+     */
+    public List<Part> getParts() {
+	return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * Get the entries with a given name.
+     * Multiple files provided for the same form field use the same
+     * name.
+     * @param name the name
+     * @return a list of the matching entries, in the order in which
+     *         they appeared
+     */
+    public List<Part> getParts(String name) {
+	ArrayList<Part> list = new ArrayList<>();
+	for (Part part: parts) {
+	    if (name.equals(part.name)) list.add(part);
+	}
+	return list;
+    }
+
+    /**
+     * Get the first entry with a given name.
+     * @param name the name
+     * @return the entry; null if there is none
+     */
+    public Part getPart(String name) {
+	for (Part part: parts) {
+	    if (name.equals(part.name)) return part;
+	}
+	return null;
+    }
+
+    /**
+     * Get the value of a field.
+     * Only entries that are stored in memory and that do not have
+     * a file name are considered.
+     * @param name the field's name
+     * @return the value of the first matching entry; null if there
+     *         is none
+     */
+    public String getField(String name) {
+	for (Part part: parts) {
+	    if (part.file == null && part.fileName == null
+		&& name.equals(part.name)) {
+		return new String(part.data, part.charset);
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Get the values of fields.
+     * Only entries that are stored in memory and that do not have
+     * a file name are included. When multiple entries have the same
+     * name, the first one is used.
+     * @return a map whose keys are field names and whose values are
+     *         the fields' values
+     */
+    public Map<String,String> getFields() {
+	LinkedHashMap<String,String> map = new LinkedHashMap<>();
+	for (Part part: parts) {
+	    if (part.file == null && part.fileName == null
+		&& part.name != null && !map.containsKey(part.name)) {
+		map.put(part.name, new String(part.data, part.charset));
+	    }
+	}
+	return map;
+    }
+
+    /**
+     * Delete any temporary files this parser created.
+     * Files that were renamed by calling {@link Part#transferTo(File)}
+     * are not deleted.
+     */
+    @Override
+    public void close() {
+	for (File f: tmpfiles) {
+	    f.delete();
+	}
+	tmpfiles.clear();
+    }
+}
+
+//  LocalWords:  exbundle BLOCKQUOTE PRE requestInfo boundary's
+//  LocalWords:  getDecodedInputStream requestHeader getFromHeader
+//  LocalWords:  FormDataParser getField getParts getFileName charset
+//  LocalWords:  transferTo FormDataIterator getName getCharset
+//  LocalWords:  negativeLimit
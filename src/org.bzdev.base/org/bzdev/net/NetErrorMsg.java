@@ -8,7 +8,6 @@ class NetErrorMsg {
 	exbundle=ResourceBundle.getBundle("org.bzdev.net.lpack.Net");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
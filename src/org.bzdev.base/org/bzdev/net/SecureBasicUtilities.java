@@ -656,6 +656,40 @@ public class SecureBasicUtilities {
     private static final String DIGEST = "SHA-256";
     private static final int DIGEST_LENGTH = 32;
 
+    // Per-thread state for checkPassword so that a server's handler
+    // threads can verify passwords concurrently without creating and
+    // initializing a new Signature or MessageDigest for each request.
+    private static class VerifierState {
+	Signature signature = null;
+	// certificate chain whose public keys were last encoded
+	Certificate[] certs = null;
+	byte[][] encodedKeys = null;
+
+	byte[][] getEncodedKeys(Certificate[] certs) {
+	    if (certs != this.certs) {
+		byte[][] keys = new byte[certs.length][];
+		for (int i = 0; i < certs.length; i++) {
+		    keys[i] = certs[i].getPublicKey().getEncoded();
+		}
+		this.certs = certs;
+		encodedKeys = keys;
+	    }
+	    return encodedKeys;
+	}
+    }
+
+    private final ThreadLocal<VerifierState> verifierTL =
+	ThreadLocal.withInitial(VerifierState::new);
+
+    private static final ThreadLocal<MessageDigest> digestTL =
+	ThreadLocal.withInitial(() -> {
+		try {
+		    return MessageDigest.getInstance(DIGEST);
+		} catch (GeneralSecurityException e) {
+		    throw new UnexpectedExceptionError(e);
+		}
+	    });
+
 
     /**
      * Create a password based on digital signatures or message digests.
@@ -902,6 +936,12 @@ public class SecureBasicUtilities {
     /**
      * Determine if a password is valid given a certificate chain.
      * This method is not appropriate for basic password authentication.
+     * <P>
+     * This method may be called concurrently by multiple threads.  Each
+     * thread reuses its own initialized {@link Signature} and the
+     * encoded public keys from the most recent certificate chain it
+     * was passed, so repeated calls avoid most of the cost of setting
+     * up a signature verification.
      * @param sigarray the decoded password
      * @param certs the certificate chain used when a password is created;
      *        null for digest authentication
@@ -929,7 +969,8 @@ public class SecureBasicUtilities {
 		return false;
 	    }
 	    byte[] sigbytes = new byte[8+DIGEST_LENGTH];
-	    MessageDigest md = MessageDigest.getInstance("SHA-256");
+	    MessageDigest md = digestTL.get();
+	    md.reset();
 	    md.update(sigarray, 0, 8);
 	    md.update(pwbytes);
 	    md.digest(sigbytes, 8, DIGEST_LENGTH);
@@ -939,19 +980,30 @@ public class SecureBasicUtilities {
 	    }
 	    return true;
 	} else {
-	    String provider = sigpmap.get(signatureAlgorithm);
-	    Signature sig = (provider == null)?
-		Signature.getInstance(signatureAlgorithm):
-		Signature.getInstance(signatureAlgorithm, provider);
-	    sig.initVerify(publicKey);
+	    VerifierState vs = verifierTL.get();
+	    Signature sig = vs.signature;
+	    if (sig == null) {
+		String provider = sigpmap.get(signatureAlgorithm);
+		sig = (provider == null)?
+		    Signature.getInstance(signatureAlgorithm):
+		    Signature.getInstance(signatureAlgorithm, provider);
+		// A Signature is reset to the state it had after this
+		// call when verify is called.
+		sig.initVerify(publicKey);
+	    }
+	    // remove sig while in use so that it will not be reused
+	    // if an exception leaves it in an unknown state.
+	    vs.signature = null;
 	    sig.update(sigarray, 0, 8);
 	    if (certs != null) {
-		for (Certificate cert: certs) {
-		    sig.update(cert.getPublicKey().getEncoded());
+		for (byte[] key: vs.getEncodedKeys(certs)) {
+		    sig.update(key);
 		}
 	    }
 	    sig.update(pwbytes);
-	    return sig.verify(sigarray, 8, sigarray.length - 8);
+	    boolean result = sig.verify(sigarray, 8, sigarray.length - 8);
+	    vs.signature = sig;
+	    return result;
 	}
     }
 
@@ -8,7 +8,6 @@ class CalendarErrorMsg {
 	ResourceBundle.getBundle("org.bzdev.net.calender.lpack.Calendar");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
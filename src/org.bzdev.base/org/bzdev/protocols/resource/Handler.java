@@ -66,8 +66,7 @@ public class Handler extends URLStreamHandler {
 	("org.bzdev.protocols.resource.lpack.Handler");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     static String pathsep = "|";
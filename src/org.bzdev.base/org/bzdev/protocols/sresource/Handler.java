@@ -15,8 +15,7 @@ public class Handler extends URLStreamHandler {
 	("org.bzdev.protocols.sresource.lpack.Handler");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     static String pathsep;
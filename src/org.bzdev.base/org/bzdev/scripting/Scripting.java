@@ -19,8 +19,7 @@ public class Scripting {
 	("org.bzdev.scripting.lpack.Scripting");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     static class Info {
@@ -1,9 +1,17 @@
 package org.bzdev.util;
 import org.bzdev.lang.MathOps;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 //@exbundle org.bzdev.util.lpack.Util
 
@@ -878,10 +886,467 @@ public class ACMatcher  {
 	    }
 	};
     }
+
+    /**
+     * Handler for matches found by a {@link ACMatcher.ByteDFA}.
+     * When a search uses multiple threads, the handler will be
+     * called concurrently from each of those threads.
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+	/**
+	 * Process a match.
+	 * @param index the index into the array of strings passed to
+	 *        the constructor of {@link ACMatcher} for this match
+	 * @param start the index of the first byte of the match
+	 * @param end the index one past the last byte of the match
+	 * @return true if the search should continue; false if it should
+	 *         stop
+	 */
+	boolean matched(int index, long start, long end);
+    }
+
+    private ByteDFA byteDFA = null;
+
+    /**
+     * Get a deterministic finite automaton that searches for this
+     * matcher's patterns in sequences of bytes.
+     * The automaton is created when this method is first called.
+     * @return the automaton
+     * @see ACMatcher.ByteDFA
+     */
+    public synchronized ByteDFA getByteDFA() {
+	if (byteDFA == null) {
+	    byteDFA = new ByteDFA(this);
+	}
+	return byteDFA;
+    }
+
+    /**
+     * Deterministic finite automaton for searching byte sequences.
+     * The patterns used to create an {@link ACMatcher} are encoded
+     * using UTF-8, and the Aho Corasick failure function is used to
+     * precompute a transition for every state and every input byte,
+     * so that each byte scanned requires a single table lookup.
+     * To keep the table small, bytes that do not appear in any
+     * pattern share a column in the table.
+     * <P>
+     * Matches are reported by calling a {@link ACMatcher.MatchHandler}
+     * rather than by creating objects, and the start and end of a match
+     * are byte offsets.  For matchers that are case insensitive, only
+     * ASCII letters are treated as case insensitive: other bytes must
+     * match a pattern converted to lower case.
+     * <P>
+     * A search may be split into chunks that are processed by
+     * separate threads.  Each chunk after the first is started early
+     * by one less than the length of the longest pattern, so that
+     * matches spanning a chunk boundary are found, and each match is
+     * reported once.  Matches are then not necessarily reported in
+     * the order in which they occur.
+     */
+    public static final class ByteDFA {
+	// bytes per chunk when scanning files
+	private static final int SEGMENT = 1 << 28;
+
+	private final int nclasses;
+	private final int[] classes = new int[256];
+	// delta[row + classes[b]] is the row for the next state, where
+	// row is a state multiplied by nclasses; the value is -row - 1
+	// if the next state has outputs.
+	private final int[] delta;
+	// The outputs for a state s are at indices in the range
+	// [outStart[s], outStart[s+1]) in outIndices and outLengths.
+	private final int[] outStart;
+	private final int[] outIndices;
+	private final int[] outLengths;
+	private final int maxLength;
+
+	ByteDFA(ACMatcher matcher) {
+	    String[] patterns = matcher.patterns;
+	    int k = patterns.length;
+	    byte[][] bpatterns = new byte[k][];
+	    int nstates = 1;
+	    int maxlen = 0;
+	    for (int i = 0; i < k; i++) {
+		bpatterns[i] = patterns[i].getBytes(StandardCharsets.UTF_8);
+		nstates += bpatterns[i].length;
+		if (bpatterns[i].length > maxlen) maxlen = bpatterns[i].length;
+	    }
+	    maxLength = maxlen;
+	    int nc = 1;
+	    for (byte[] bpattern: bpatterns) {
+		for (byte b: bpattern) {
+		    int ub = 0xFF & b;
+		    if (classes[ub] == 0) classes[ub] = nc++;
+		}
+	    }
+	    if (!matcher.caseSensitive) {
+		for (int b = 'A'; b <= 'Z'; b++) {
+		    classes[b] = classes[b + ('a' - 'A')];
+		}
+	    }
+	    nclasses = nc;
+
+	    // trie
+	    int[] g = new int[nstates * nc];
+	    Arrays.fill(g, -1);
+	    // indices of the patterns ending at each state (more than one
+	    // when patterns are duplicated)
+	    BitSet[] terminal = new BitSet[nstates];
+	    int states = 1;
+	    for (int i = 0; i < k; i++) {
+		int state = 0;
+		for (byte b: bpatterns[i]) {
+		    int ind = state * nc + classes[0xFF & b];
+		    if (g[ind] == -1) g[ind] = states++;
+		    state = g[ind];
+		}
+		if (terminal[state] == null) terminal[state] = new BitSet(k);
+		terminal[state].set(i);
+	    }
+
+	    // breadth-first traversal to fill in failure transitions
+	    int[] f = new int[states];
+	    int[] queue = new int[states];
+	    int head = 0;
+	    int tail = 0;
+	    for (int c = 0; c < nc; c++) {
+		if (g[c] == -1) {
+		    g[c] = 0;
+		} else {
+		    f[g[c]] = 0;
+		    queue[tail++] = g[c];
+		}
+	    }
+	    while (head < tail) {
+		int state = queue[head++];
+		int row = state * nc;
+		int frow = f[state] * nc;
+		for (int c = 0; c < nc; c++) {
+		    int next = g[row + c];
+		    if (next == -1) {
+			g[row + c] = g[frow + c];
+		    } else {
+			f[next] = g[frow + c];
+			queue[tail++] = next;
+		    }
+		}
+	    }
+
+	    // outputs, with each state's outputs followed by those of
+	    // the states reached by failure transitions
+	    outStart = new int[states + 1];
+	    int count = 0;
+	    for (int s = 0; s < states; s++) {
+		outStart[s] = count;
+		for (int t = s; t != 0; t = f[t]) {
+		    if (terminal[t] != null) {
+			count += terminal[t].cardinality();
+		    }
+		}
+	    }
+	    outStart[states] = count;
+	    outIndices = new int[count];
+	    outLengths = new int[count];
+	    count = 0;
+	    for (int s = 0; s < states; s++) {
+		for (int t = s; t != 0; t = f[t]) {
+		    if (terminal[t] == null) continue;
+		    for (int j = terminal[t].nextSetBit(0); j >= 0;
+			 j = terminal[t].nextSetBit(j+1)) {
+			outIndices[count] = matcher.kmap[j];
+			outLengths[count] = bpatterns[j].length;
+			count++;
+		    }
+		}
+	    }
+
+	    delta = new int[states * nc];
+	    for (int i = 0; i < delta.length; i++) {
+		int next = g[i];
+		delta[i] = (outStart[next] == outStart[next+1])? next * nc:
+		    -(next * nc) - 1;
+	    }
+	}
+
+	/**
+	 * Get the length in bytes of the longest pattern.
+	 * @return the length
+	 */
+	public int getMaxPatternLength() {
+	    return maxLength;
+	}
+
+	// Report the outputs for the state whose row is given, where the
+	// last byte of each match is at index i. Matches ending at or
+	// before the index 'limit' are ignored.
+	private boolean report(int row, long i, long limit,
+			       MatchHandler handler)
+	{
+	    if (i < limit) return true;
+	    int state = row / nclasses;
+	    int last = outStart[state+1];
+	    for (int j = outStart[state]; j < last; j++) {
+		if (!handler.matched(outIndices[j], i + 1 - outLengths[j],
+				     i + 1)) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+
+	private boolean scanRange(byte[] text, int start, int end, int limit,
+			     MatchHandler handler)
+	{
+	    int row = 0;
+	    for (int i = start; i < end; i++) {
+		int next = delta[row + classes[0xFF & text[i]]];
+		if (next < 0) {
+		    row = -next - 1;
+		    if (!report(row, i, limit, handler)) return false;
+		} else {
+		    row = next;
+		}
+	    }
+	    return true;
+	}
+
+	// offset is added to the buffer's indices when reporting a match.
+	private boolean scanRange(ByteBuffer buffer, int start, int end,
+				  int limit, long offset,
+				  MatchHandler handler)
+	{
+	    int row = 0;
+	    for (int i = start; i < end; i++) {
+		int next = delta[row + classes[0xFF & buffer.get(i)]];
+		if (next < 0) {
+		    row = -next - 1;
+		    if (!report(row, offset + i, offset + limit, handler)) {
+			return false;
+		    }
+		} else {
+		    row = next;
+		}
+	    }
+	    return true;
+	}
+
+	/**
+	 * Search an array of bytes.
+	 * @param text the bytes to search
+	 * @param handler the handler for matches
+	 * @return true if the search completed; false if it was stopped
+	 *         by the handler
+	 */
+	public boolean scan(byte[] text, MatchHandler handler) {
+	    return scanRange(text, 0, text.length, 0, handler);
+	}
+
+	/**
+	 * Search a portion of an array of bytes.
+	 * The start and end indices of the matches are indices into
+	 * the array.
+	 * @param text the bytes to search
+	 * @param start the starting index (inclusive) for the text
+	 *        being scanned
+	 * @param end the ending index (exclusive) for the text being
+	 *        scanned
+	 * @param handler the handler for matches
+	 * @return true if the search completed; false if it was stopped
+	 *         by the handler
+	 */
+	public boolean scan(byte[] text, int start, int end,
+			    MatchHandler handler)
+	{
+	    return scanRange(text, start, end, start, handler);
+	}
+
+	/**
+	 * Search a portion of an array of bytes using multiple threads.
+	 * The start and end indices of the matches are indices into
+	 * the array. The handler may be called concurrently and the
+	 * matches will not necessarily be reported in order.  When the
+	 * handler stops the search, matches found by other threads may
+	 * still be reported before those threads stop.
+	 * @param text the bytes to search
+	 * @param start the starting index (inclusive) for the text
+	 *        being scanned
+	 * @param end the ending index (exclusive) for the text being
+	 *        scanned
+	 * @param nthreads the number of threads
+	 * @param handler the handler for matches
+	 * @return true if the search completed; false if it was stopped
+	 *         by the handler
+	 */
+	public boolean scan(byte[] text, int start, int end, int nthreads,
+			    MatchHandler handler)
+	{
+	    int len = end - start;
+	    if (nthreads < 2 || len < 2 * maxLength) {
+		return scanRange(text, start, end, start, handler);
+	    }
+	    Stopper stopper = new Stopper(handler);
+	    int overlap = Math.max(maxLength - 1, 0);
+	    runTasks(nthreads, (i) -> {
+		    int cs = start + (int)(((long)len * i) / nthreads);
+		    int ce = start + (int)(((long)len * (i+1)) / nthreads);
+		    int s = Math.max(start, cs - overlap);
+		    if (!scanRange(text, s, ce, cs, stopper)) stopper.stop();
+		});
+	    return !stopper.stopped;
+	}
+
+	/**
+	 * Search a byte buffer.
+	 * The bytes from the buffer's position up to its limit are
+	 * scanned, and the start and end indices of the matches are
+	 * indices into the buffer. The buffer's position is not changed.
+	 * @param buffer the byte buffer
+	 * @param handler the handler for matches
+	 * @return true if the search completed; false if it was stopped
+	 *         by the handler
+	 */
+	public boolean scan(ByteBuffer buffer, MatchHandler handler) {
+	    int start = buffer.position();
+	    return scanRange(buffer, start, buffer.limit(), start, 0L,
+			     handler);
+	}
+
+	/**
+	 * Search a file.
+	 * The file is mapped into memory in segments and the start and
+	 * end indices of the matches are byte offsets into the file.
+	 * @param file the file
+	 * @param handler the handler for matches
+	 * @return true if the search completed; false if it was stopped
+	 *         by the handler
+	 * @exception IOException an IO error occurred
+	 */
+	public boolean scan(File file, MatchHandler handler)
+	    throws IOException
+	{
+	    return scan(file, 1, handler);
+	}
+
+	/**
+	 * Search a file using multiple threads.
+	 * The file is mapped into memory in chunks, which are divided
+	 * among the threads, and the start and end indices of the
+	 * matches are byte offsets into the file.  The handler may be
+	 * called concurrently and the matches will not necessarily be
+	 * reported in order.
+	 * @param file the file
+	 * @param nthreads the number of threads
+	 * @param handler the handler for matches
+	 * @return true if the search completed; false if it was stopped
+	 *         by the handler
+	 * @exception IOException an IO error occurred
+	 */
+	public boolean scan(File file, int nthreads, MatchHandler handler)
+	    throws IOException
+	{
+	    if (nthreads < 1) nthreads = 1;
+	    try (FileChannel fc = FileChannel.open(file.toPath(),
+						   StandardOpenOption.READ)) {
+		long size = fc.size();
+		int overlap = Math.max(maxLength - 1, 0);
+		long nchunks = Math.max((size + SEGMENT - 1) / SEGMENT,
+					(size < 2 * maxLength)? 1: nthreads);
+		if (nchunks > size) nchunks = Math.max(size, 1);
+		final long n = nchunks;
+		final int nt = (int)Math.min(nthreads, n);
+		Stopper stopper = new Stopper(handler);
+		IOException[] ioe = new IOException[1];
+		runTasks(nt, (t) -> {
+			long first = (n * t) / nt;
+			long last = (n * (t+1)) / nt;
+			try {
+			    for (long c = first; c < last; c++) {
+				if (stopper.stopped) return;
+				long cs = (size * c) / n;
+				long ce = (size * (c+1)) / n;
+				long s = Math.max(0L, cs - overlap);
+				if (ce == s) continue;
+				MappedByteBuffer buffer =
+				    fc.map(FileChannel.MapMode.READ_ONLY,
+					   s, ce - s);
+				if (!scanRange(buffer, 0, (int)(ce - s),
+					       (int)(cs - s), s, stopper)) {
+				    stopper.stop();
+				    return;
+				}
+			    }
+			} catch (IOException e) {
+			    synchronized (ioe) {
+				if (ioe[0] == null) ioe[0] = e;
+			    }
+			    stopper.stop();
+			}
+		    });
+		if (ioe[0] != null) throw ioe[0];
+		return !stopper.stopped;
+	    }
+	}
+    }
+
+    // Handler wrapper that lets one thread stop the others.
+    private static final class Stopper implements MatchHandler {
+	final MatchHandler handler;
+	volatile boolean stopped = false;
+	Stopper(MatchHandler handler) {
+	    this.handler = handler;
+	}
+	void stop() {
+	    stopped = true;
+	}
+	@Override
+	public boolean matched(int index, long start, long end) {
+	    return !stopped && handler.matched(index, start, end);
+	}
+    }
+
+    // Run task(0) ... task(n-1), with task(n-1) run by the current
+    // thread and the others by new threads.
+    private static void runTasks(int n, IntConsumer task) {
+	Thread[] threads = new Thread[n-1];
+	RuntimeException[] errors = new RuntimeException[n];
+	for (int i = 0; i < n-1; i++) {
+	    final int index = i;
+	    threads[i] = new Thread(() -> {
+		    try {
+			task.accept(index);
+		    } catch (RuntimeException e) {
+			errors[index] = e;
+		    }
+	    });
+	    threads[i].start();
+	}
+	try {
+	    task.accept(n-1);
+	} catch (RuntimeException e) {
+	    errors[n-1] = e;
+	}
+	boolean interrupted = false;
+	for (Thread thread: threads) {
+	    for (;;) {
+		try {
+		    thread.join();
+		    break;
+		} catch (InterruptedException e) {
+		    interrupted = true;
+		}
+	    }
+	}
+	if (interrupted) Thread.currentThread().interrupt();
+	for (RuntimeException e: errors) {
+	    if (e != null) throw e;
+	}
+    }
 }
 
 //  LocalWords:  exbundle Aho Corasick substrings ACMatcher substring
 //  LocalWords:  SuffixArray Princi HREF BitSet subsequence Iterable
 //  LocalWords:  iterableOver GOTO TRIE matcher BLOCKQUOTE PRE enum
 //  LocalWords:  SpecType specType MatchResult mr interatorOver alen
-//  LocalWords:  getIndex iterable noNextElem ignoreCase
+//  LocalWords:  getIndex iterable noNextElem ignoreCase DFA nclasses
+//  LocalWords:  outStart outIndices outLengths nthreads
@@ -16,12 +16,18 @@ import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -436,6 +442,218 @@ public class ConfigPropUtilities {
 	}
     }
 
+    /**
+     * Decrypted values for the encrypted properties of an instance
+     * of {@link Properties}.
+     * Instances are created by calling
+     * {@link ConfigPropUtilities#decryptProperties(Properties,char[])}
+     * or
+     * {@link ConfigPropUtilities#decryptProperties(Properties,char[],String)}.
+     * All the properties whose keys start with "ebase64." are
+     * decrypted when an instance is created, and the decrypted values
+     * are cached until {@link #close()} is called, at which point the
+     * arrays containing them are filled with zeros. The arrays
+     * returned by {@link #get(String)} for these keys are the cached
+     * arrays, so the caller should not modify them and should copy
+     * any value that is needed after this object is closed.
+     * <P>
+     * This class is intended for use in a try-with-resources statement:
+     * <BLOCKQUOTE><PRE><CODE>
+     * try (ConfigPropUtilities.Decrypted decrypted = ConfigPropUtilities
+     *        .decryptProperties(props, passphrase)) {
+     *     char[] password = decrypted.get("ebase64.password");
+     *     ...
+     * }
+     * </CODE></PRE></BLOCKQUOTE>
+     */
+    public static final class Decrypted implements AutoCloseable {
+	Properties props;
+	HashMap<String,char[]> values = new HashMap<>();
+
+	Decrypted(Properties props) {
+	    this.props = props;
+	}
+
+	/**
+	 * Get the names of the keys whose values were decrypted.
+	 * @return the keys
+	 * @throws IllegalStateException if this object has been closed
+	 */
+	public synchronized Set<String> keySet() throws IllegalStateException {
+	    if (values == null) {
+		throw new IllegalStateException(errorMsg("decryptedClosed"));
+	    }
+	    return Collections.unmodifiableSet(values.keySet());
+	}
+
+	/**
+	 * Get the value, decrypted if necessary, stored under a given key.
+	 * For keys that do not start with "ebase64.", the value returned
+	 * is the one provided by
+	 * {@link ConfigPropUtilities#getProperty(Properties,String)},
+	 * converted to a character array.
+	 * @param key the key
+	 * @return the value for the key
+	 * @throws IllegalStateException if this object has been closed
+	 */
+	public synchronized char[] get(String key)
+	    throws IllegalStateException
+	{
+	    if (values == null) {
+		throw new IllegalStateException(errorMsg("decryptedClosed"));
+	    }
+	    if (key.startsWith(EB64KEY_START)) {
+		char[] value = values.get(key);
+		return (value == null)? EMPTY_CHAR_ARRAY: value;
+	    } else {
+		String value = getProperty(props, key);
+		return (value == null)? null: value.toCharArray();
+	    }
+	}
+
+	/**
+	 * Zero the decrypted values and release them.
+	 */
+	@Override
+	public synchronized void close() {
+	    if (values == null) return;
+	    for (char[] value: values.values()) {
+		Arrays.fill(value, '\0');
+	    }
+	    values = null;
+	    props = null;
+	}
+    }
+
+    /**
+     * Decrypt all the encrypted properties of an instance of
+     * {@link Properties}.
+     * @param props the properties
+     * @param passphrase the GPG passphrase for decryption
+     * @return an object containing the decrypted values
+     * @throws GeneralSecurityException if decryption failed
+     * @see ConfigPropUtilities.Decrypted
+     */
+    public static Decrypted decryptProperties(Properties props,
+					      char[] passphrase)
+	throws GeneralSecurityException
+    {
+	return decryptProperties(props, passphrase, null);
+    }
+
+    /**
+     * Decrypt all the encrypted properties of an instance of
+     * {@link Properties} given a GPG home directory.
+     * The GPG home directory is the argument for the GPG --homedir
+     * command-line option.
+     * <P>
+     * Each distinct encrypted value is decrypted once, with the
+     * decryptions run concurrently using as many threads as there are
+     * available processors.  For values encrypted using GPG, a GPG
+     * process is still needed for each distinct value as GPG does not
+     * provide a way of separating multiple decrypted messages produced
+     * by a single process; for values encrypted with a symmetric
+     * cipher, the time is dominated by computing a key from the
+     * passphrase, which uses a different salt for each value.
+     * <P>
+     * When gpgdir is non-null, a GPG TOFU (Trust On First Use) trust
+     * model is used.
+     * @param props the properties
+     * @param passphrase the GPG passphrase for decryption
+     * @param gpgdir the GPG 'home' directory to use; null for the default
+     * @return an object containing the decrypted values
+     * @throws GeneralSecurityException if decryption failed
+     * @see ConfigPropUtilities.Decrypted
+     */
+    public static Decrypted decryptProperties(Properties props,
+					      char[] passphrase,
+					      String gpgdir)
+	throws GeneralSecurityException
+    {
+	Decrypted result = new Decrypted(props);
+	// Map each distinct encrypted value to the keys that use it.
+	HashMap<String,List<String>> map = new HashMap<>();
+	for (String key: props.stringPropertyNames()) {
+	    if (!key.startsWith(EB64KEY_START)) continue;
+	    String encrypted = props.getProperty(key);
+	    if (encrypted == null) continue;
+	    map.computeIfAbsent(encrypted, (k) -> new LinkedList<String>())
+		.add(key);
+	}
+	ArrayList<String> encrypted = new ArrayList<>(map.keySet());
+	int n = encrypted.size();
+	char[][] decrypted = new char[n][];
+	boolean succeeded = false;
+	try {
+	    GeneralSecurityException[] errors =
+		new GeneralSecurityException[n];
+	    int nthreads = Math.min(n, Runtime.getRuntime()
+				    .availableProcessors());
+	    AtomicInteger next = new AtomicInteger();
+	    Runnable task = () -> {
+		int i;
+		while ((i = next.getAndIncrement()) < n) {
+		    try {
+			decrypted[i] = decryptToCharArray(encrypted.get(i),
+							  passphrase, gpgdir);
+		    } catch (GeneralSecurityException e) {
+			errors[i] = e;
+		    } catch (RuntimeException e) {
+			// e.g., a value that is not valid base64
+			String msg = errorMsg("decryption", e.getMessage());
+			errors[i] = new GeneralSecurityException(msg, e);
+		    }
+		}
+	    };
+	    Thread[] threads = new Thread[Math.max(nthreads - 1, 0)];
+	    InterruptedException interrupted = null;
+	    try {
+		for (int i = 0; i < threads.length; i++) {
+		    threads[i] = new Thread(task);
+		    threads[i].start();
+		}
+		task.run();
+	    } finally {
+		// the workers may still be writing to decrypted[]
+		for (Thread thread: threads) {
+		    if (thread == null) break;
+		    for (;;) {
+			try {
+			    thread.join();
+			    break;
+			} catch (InterruptedException e) {
+			    interrupted = e;
+			}
+		    }
+		}
+	    }
+	    if (interrupted != null) {
+		Thread.currentThread().interrupt();
+		String msg = errorMsg("decryption", interrupted.getMessage());
+		throw new GeneralSecurityException(msg, interrupted);
+	    }
+	    for (GeneralSecurityException e: errors) {
+		if (e != null) throw e;
+	    }
+	    for (int i = 0; i < n; i++) {
+		if (decrypted[i] != null) {
+		    for (String key: map.get(encrypted.get(i))) {
+			result.values.put(key, decrypted[i]);
+		    }
+		}
+	    }
+	    succeeded = true;
+	} finally {
+	    if (!succeeded) {
+		for (char[] value: decrypted) {
+		    if (value != null) Arrays.fill(value, '\0');
+		}
+		result.close();
+	    }
+	}
+	return result;
+    }
+
     private static final Pattern keyPattern =
 	Pattern.compile("[a-zA-Z][a-zA-Z0-9_]*([.][a-zA-Z][a-zA-Z0-9_]*)*");
     static final Pattern pattern =
@@ -1203,3 +1421,4 @@ public class ConfigPropUtilities {
 //  LocalWords:  MEDIATYPE mediaType noFileSpecified wrongMediaType
 //  LocalWords:  ebase decrypted GeneralSecurityException
 //  LocalWords:  needPassphrase
+//  LocalWords:  gpgdir homedir TOFU decryptProperties keySet
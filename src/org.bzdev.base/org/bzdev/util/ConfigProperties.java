@@ -213,6 +213,40 @@ public class ConfigProperties {
 	    .getDecryptedProperty(props, key, passphrase, gpgdir);
     }
 
+    /**
+     * Decrypt all the encrypted properties stored in this object.
+     * @param passphrase the GPG passphrase for decryption
+     * @return an object containing the decrypted values
+     * @throws GeneralSecurityException if decryption failed
+     * @see ConfigPropUtilities#decryptProperties(Properties,char[])
+     */
+    public ConfigPropUtilities.Decrypted decryptProperties(char[] passphrase)
+	throws GeneralSecurityException
+    {
+	return ConfigPropUtilities.decryptProperties(props, passphrase);
+    }
+
+    /**
+     * Decrypt all the encrypted properties stored in this object
+     * given a GPG home directory.
+     * The GPG home directory is the argument for the GPG --homedir
+     * command-line option.
+     * When gpgdir is non-null, a GPG TOFU (Trust On First Use) trust
+     * model is used.
+     * @param passphrase the GPG passphrase for decryption
+     * @param gpgdir the GPG 'home' directory to use
+     * @return an object containing the decrypted values
+     * @throws GeneralSecurityException if decryption failed
+     * @see ConfigPropUtilities#decryptProperties(Properties,char[],String)
+     */
+    public ConfigPropUtilities.Decrypted
+	decryptProperties(char[] passphrase, String gpgdir)
+	throws GeneralSecurityException
+    {
+	return ConfigPropUtilities.decryptProperties(props, passphrase,
+						     gpgdir);
+    }
+
     /**
      * Get the value stored in this object under a given key.
      * Values whose keys start with "base64." are decoded using a Base-64
@@ -104,8 +104,7 @@ public class ExpressionParser implements ObjectParser<Object>
 	("org.bzdev.util.lpack.ObjectParser");
 
     private static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
     // Use in inner classes that are subclasses of some other class
     // that defines errorMsg.
@@ -0,0 +1,258 @@
+package org.bzdev.util;
+import java.io.IOException;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.Locale;
+import java.util.MissingFormatArgumentException;
+import java.util.UnknownFormatConversionException;
+
+/**
+ * A segment of a parsed format string.
+ * A segment is either literal text or a single formatting directive
+ * whose argument index has been resolved.  The syntax is the one
+ * described in the documentation for {@link java.util.Formatter}:
+ * <blockquote>
+ *  %[argument_index$][flags][width][.precision]conversion
+ * </blockquote>
+ * This class is used by {@link SafeFormatter.Compiled} and
+ * {@link SciFormatter.Compiled} so that a format string is parsed
+ * once instead of each time it is used.
+ */
+final class FormatSpec {
+    // literal text; null for a directive
+    String text;
+    // index into the argument array; -1 for directives without arguments
+    int argIndex = -1;
+    String flags;
+    String widthPrecision;
+    char conversion;
+    // the directive without an argument index or a '<' flag
+    String spec;
+    // true if there are no flags, no width, and no precision
+    boolean plain;
+
+    private FormatSpec() {}
+
+    private static final String FLAGS = "-#+ 0,(<";
+
+    private static boolean isDigit(char ch) {
+	return ch >= '0' && ch <= '9';
+    }
+
+    private static void addText(ArrayList<FormatSpec> list,
+				StringBuilder sb)
+    {
+	if (sb.length() > 0) {
+	    FormatSpec fs = new FormatSpec();
+	    fs.text = sb.toString();
+	    list.add(fs);
+	    sb.setLength(0);
+	}
+    }
+
+    /**
+     * Parse a format string using the argument indexing rules of
+     * {@link java.util.Formatter}.
+     * @param format the format string
+     * @return the segments of the format string in order
+     * @exception UnknownFormatConversionException the format string
+     *            contained a directive with a syntax error
+     * @exception MissingFormatArgumentException a directive with a
+     *            '&lt;' flag did not follow one that used an argument
+     */
+    static FormatSpec[] parse(String format)
+	throws UnknownFormatConversionException,
+	       MissingFormatArgumentException
+    {
+	return parse(format, false);
+    }
+
+    /**
+     * Parse a format string, optionally using the argument indexing
+     * rules of {@link SciFormatter}.
+     * When countAll is true, a directive without an explicit argument
+     * index uses the argument whose index is the number of preceding
+     * directives with a letter as their conversion (whether or not those
+     * directives used an argument or had an explicit index).
+     * @param format the format string
+     * @param countAll true for SciFormatter's indexing rules; false for
+     *        those used by {@link java.util.Formatter}
+     * @return the segments of the format string in order
+     * @exception UnknownFormatConversionException the format string
+     *            contained a directive with a syntax error
+     * @exception MissingFormatArgumentException a directive with a
+     *            '&lt;' flag did not follow one that used an argument
+     */
+    static FormatSpec[] parse(String format, boolean countAll)
+	throws UnknownFormatConversionException,
+	       MissingFormatArgumentException
+    {
+	ArrayList<FormatSpec> list = new ArrayList<>();
+	StringBuilder sb = new StringBuilder();
+	int ordinary = 0;
+	int last = -1;
+	int n = format.length();
+	int i = 0;
+	while (i < n) {
+	    char ch = format.charAt(i);
+	    if (ch != '%') {
+		sb.append(ch);
+		i++;
+		continue;
+	    }
+	    int start = i++;
+	    int index = 0;
+	    int j = i;
+	    while (j < n && isDigit(format.charAt(j))) j++;
+	    if (j > i && j < n && format.charAt(j) == '$') {
+		try {
+		    index = Integer.parseInt(format.substring(i, j));
+		} catch (NumberFormatException e) {
+		    index = 0;
+		}
+		if (index < 1) {
+		    throw new UnknownFormatConversionException
+			(format.substring(start, j+1));
+		}
+		i = j + 1;
+	    }
+	    int fstart = i;
+	    while (i < n && FLAGS.indexOf(format.charAt(i)) >= 0) i++;
+	    String flags = format.substring(fstart, i);
+	    int wstart = i;
+	    while (i < n && isDigit(format.charAt(i))) i++;
+	    if (i < n && format.charAt(i) == '.') {
+		int pstart = ++i;
+		while (i < n && isDigit(format.charAt(i))) i++;
+		if (i == pstart) {
+		    throw new UnknownFormatConversionException
+			(format.substring(start, i));
+		}
+	    }
+	    String wp = format.substring(wstart, i);
+	    if (i == n) {
+		throw new UnknownFormatConversionException
+		    (format.substring(start));
+	    }
+	    char conv = format.charAt(i++);
+	    String suffix = "";
+	    if (conv == 't' || conv == 'T') {
+		if (i == n) {
+		    throw new UnknownFormatConversionException
+			(String.valueOf(conv));
+		}
+		suffix = String.valueOf(format.charAt(i++));
+	    } else if (!((conv >= 'a' && conv <= 'z')
+			 || (conv >= 'A' && conv <= 'Z')
+			 || conv == '%')) {
+		throw new UnknownFormatConversionException
+		    (String.valueOf(conv));
+	    }
+	    int position = ordinary;
+	    if (countAll && conv != '%') ordinary++;
+	    boolean plain = flags.length() == 0 && wp.length() == 0;
+	    if (plain && conv == '%' && index == 0) {
+		sb.append('%');
+		continue;
+	    }
+	    if (plain && conv == 'n' && index == 0) {
+		sb.append(System.lineSeparator());
+		continue;
+	    }
+	    addText(list, sb);
+	    FormatSpec fs = new FormatSpec();
+	    if (conv != '%' && conv != 'n') {
+		if (flags.indexOf('<') >= 0) {
+		    if (last < 0) {
+			throw new MissingFormatArgumentException
+			    (format.substring(start, i));
+		    }
+		    fs.argIndex = last;
+		    flags = flags.replace("<", "");
+		    plain = flags.length() == 0 && wp.length() == 0;
+		} else if (index > 0) {
+		    fs.argIndex = index - 1;
+		} else if (countAll) {
+		    fs.argIndex = position;
+		} else {
+		    fs.argIndex = ordinary++;
+		}
+		last = fs.argIndex;
+	    }
+	    fs.flags = flags;
+	    fs.widthPrecision = wp;
+	    fs.conversion = conv;
+	    fs.spec = "%" + flags + wp + conv + suffix;
+	    fs.plain = plain && suffix.length() == 0;
+	    list.add(fs);
+	}
+	addText(list, sb);
+	return list.toArray(new FormatSpec[list.size()]);
+    }
+
+    /**
+     * Get the argument for this directive.
+     * @param args the arguments passed to a format method
+     * @return the argument
+     * @exception MissingFormatArgumentException there are too few
+     *            arguments
+     */
+    Object getArg(Object[] args) throws MissingFormatArgumentException {
+	if (args == null) return null;
+	if (argIndex >= args.length) {
+	    throw new MissingFormatArgumentException(spec);
+	}
+	return args[argIndex];
+    }
+
+    /**
+     * Determine if a locale formats integers using the digits '0' to '9'.
+     * @param l the locale; null if no localization is applied
+     * @return true if the digits '0' to '9' are used; false otherwise
+     */
+    static boolean usesASCIIDigits(Locale l) {
+	return l == null
+	    || DecimalFormatSymbols.getInstance(l).getZeroDigit() == '0';
+    }
+
+    /**
+     * Append the value of an argument for a "%s" or "%d" directive
+     * without using a formatter.
+     * The directive must have no flags, width, or precision.
+     * @param a the destination
+     * @param arg the argument
+     * @param asciiDigits true if integers use the digits '0' to '9'
+     * @return true if the argument was appended; false if a formatter
+     *         must be used instead
+     */
+    boolean appendPlain(Appendable a, Object arg, boolean asciiDigits)
+	throws IOException
+    {
+	switch (conversion) {
+	case 's':
+	    if (arg instanceof Formattable) return false;
+	    a.append(String.valueOf(arg));
+	    return true;
+	case 'd':
+	    if (asciiDigits && (arg instanceof Integer || arg instanceof Long
+				|| arg instanceof Short
+				|| arg instanceof Byte)) {
+		long value = ((Number) arg).longValue();
+		if (a instanceof StringBuilder) {
+		    ((StringBuilder) a).append(value);
+		} else {
+		    a.append(Long.toString(value));
+		}
+		return true;
+	    }
+	    return false;
+	default:
+	    return false;
+	}
+    }
+}
+
+//  LocalWords:  blockquote SafeFormatter SciFormatter args
+//  LocalWords:  UnknownFormatConversionException lt asciiDigits
+//  LocalWords:  MissingFormatArgumentException countAll SciFormatter's
@@ -0,0 +1,495 @@
+package org.bzdev.util;
+import java.util.Arrays;
+
+//@exbundle org.bzdev.util.lpack.Util
+
+/**
+ * A* search for graphs whose nodes are integers.
+ * This class provides the same search as {@link AStarSearch}, but for
+ * graphs whose nodes are represented by integers in the range
+ * [0, n), as is the case for the cells of a grid. Instead of objects
+ * and hash tables, a search uses arrays indexed by node, and the
+ * priority queue is an indexed binary heap of nodes, so that large
+ * graphs can be searched without allocating an object for each node
+ * visited.  The arrays are allocated when an instance of this class is
+ * first used and are reused by subsequent searches, so a search
+ * allocates only the array it returns.
+ * <P>
+ * The neighbors of a node are provided by an implementation of
+ * {@link IntAStarSearch.Neighbors}, which is passed a node and an
+ * {@link IntAStarSearch.EdgeConsumer} that it calls for each neighbor
+ * together with the cost of the edge leading to that neighbor.
+ * A heuristic, which provides an estimate of the cost from a node to
+ * the goal node, is provided by an implementation of
+ * {@link IntAStarSearch.Heuristic}. The conditions on the heuristic are
+ * the ones described in the documentation for {@link AStarSearch}.
+ * <P>
+ * A bidirectional search is also available. It searches from both
+ * the initial node and the final node, and requires the heuristic to
+ * be consistent (h(n) &le; d(n,m) + h(m) for each edge (n, m)) and
+ * symmetric.
+ * <P>
+ * Instances of this class are not intended to be shared by multiple
+ * threads: the search methods are synchronized so that the arrays
+ * used during a search are not modified concurrently.
+ */
+public class IntAStarSearch {
+
+    static String errorMsg(String key, Object... args) {
+	return UtilErrorMsg.errorMsg(key, args);
+    }
+
+    /**
+     * Consumer for the edges leading from a node.
+     */
+    @FunctionalInterface
+    public interface EdgeConsumer {
+	/**
+	 * Process an edge.
+	 * @param node the node at the end of the edge
+	 * @param cost the cost or length of the edge, which must not be
+	 *        negative
+	 */
+	void accept(int node, double cost);
+    }
+
+    /**
+     * Provider for the neighbors of a node.
+     */
+    @FunctionalInterface
+    public interface Neighbors {
+	/**
+	 * Call a consumer for each edge leading from a node to its
+	 * neighbors.  A neighbor should not be provided more than once.
+	 * @param node the node
+	 * @param consumer the consumer
+	 */
+	void forEach(int node, EdgeConsumer consumer);
+    }
+
+    /**
+     * Heuristic estimating the cost from a node to a goal.
+     */
+    @FunctionalInterface
+    public interface Heuristic {
+	/**
+	 * Estimate the cost of the shortest path between two nodes.
+	 * @param node the starting node
+	 * @param goal the goal node
+	 * @return an estimate of the cost from node to goal, which must
+	 *         be 0 when node and goal are the same
+	 */
+	double estimate(int node, int goal);
+    }
+
+    private static final int CLOSED = -1;
+
+    // The state for a search in one direction.  A node is in the
+    // search when stamps[node] == stamp, so the arrays do not have to
+    // be cleared for each new search.
+    private static final class State {
+	double[] gvals;
+	double[] hvals;
+	double[] fvals;
+	int[] parents;
+	int[] stamps;
+	// index into heap, or CLOSED after a node is polled
+	int[] positions;
+	int[] heap;
+	int size = 0;
+	int stamp = 0;
+
+	State(int n) {
+	    gvals = new double[n];
+	    hvals = new double[n];
+	    fvals = new double[n];
+	    parents = new int[n];
+	    stamps = new int[n];
+	    positions = new int[n];
+	    heap = new int[n];
+	}
+
+	void reset() {
+	    size = 0;
+	    if (stamp == Integer.MAX_VALUE) {
+		Arrays.fill(stamps, 0);
+		stamp = 0;
+	    }
+	    stamp++;
+	}
+
+	boolean contains(int node) {
+	    return stamps[node] == stamp;
+	}
+
+	void add(int node, double g, double h, int parent) {
+	    stamps[node] = stamp;
+	    gvals[node] = g;
+	    hvals[node] = h;
+	    fvals[node] = g + h;
+	    parents[node] = parent;
+	    heap[size] = node;
+	    siftUp(size++);
+	}
+
+	// Set a node's path cost and parent, adding it to the heap if
+	// it was polled.
+	void update(int node, double g, int parent) {
+	    gvals[node] = g;
+	    fvals[node] = g + hvals[node];
+	    parents[node] = parent;
+	    int position = positions[node];
+	    if (position == CLOSED) {
+		heap[size] = node;
+		siftUp(size++);
+	    } else {
+		siftUp(position);
+	    }
+	}
+
+	double minKey() {
+	    return fvals[heap[0]];
+	}
+
+	int poll() {
+	    int node = heap[0];
+	    size--;
+	    if (size > 0) {
+		heap[0] = heap[size];
+		siftDown(0);
+	    }
+	    positions[node] = CLOSED;
+	    return node;
+	}
+
+	private void siftUp(int i) {
+	    int node = heap[i];
+	    double f = fvals[node];
+	    while (i > 0) {
+		int parent = (i - 1) >>> 1;
+		int pnode = heap[parent];
+		if (fvals[pnode] <= f) break;
+		heap[i] = pnode;
+		positions[pnode] = i;
+		i = parent;
+	    }
+	    heap[i] = node;
+	    positions[node] = i;
+	}
+
+	private void siftDown(int i) {
+	    int node = heap[i];
+	    double f = fvals[node];
+	    int half = size >>> 1;
+	    while (i < half) {
+		int child = 2*i + 1;
+		int cnode = heap[child];
+		int right = child + 1;
+		if (right < size && fvals[heap[right]] < fvals[cnode]) {
+		    child = right;
+		    cnode = heap[child];
+		}
+		if (f <= fvals[cnode]) break;
+		heap[i] = cnode;
+		positions[cnode] = i;
+		i = child;
+	    }
+	    heap[i] = node;
+	    positions[node] = i;
+	}
+    }
+
+    // Relaxes the edges from the node being expanded.  A single
+    // instance per direction is used so that expanding a node does
+    // not allocate a lambda that captures local variables.
+    private final class Relaxer implements EdgeConsumer {
+	State state;
+	State other = null;
+	int current;
+	double currentG;
+	int target;
+	// the node (start or goal) the other direction starts from
+	int otherTarget;
+	boolean pollOnce;
+	boolean bidirectional;
+
+	@Override
+	public void accept(int node, double cost) {
+	    if (node == current) return;
+	    double g = currentG + cost;
+	    if (!state.contains(node)) {
+		double hval = bidirectional?
+		    potential(node, target, otherTarget):
+		    h.estimate(node, target);
+		state.add(node, g, hval, current);
+	    } else if (state.positions[node] == CLOSED) {
+		if (pollOnce || bidirectional) return;
+		if (g < state.gvals[node]) {
+		    state.update(node, g, current);
+		}
+	    } else if (g < state.gvals[node]) {
+		state.update(node, g, current);
+	    } else if (!bidirectional) {
+		return;
+	    }
+	    if (bidirectional && other.contains(node)) {
+		double total = state.gvals[node] + other.gvals[node];
+		if (total < mu) {
+		    mu = total;
+		    meet = node;
+		}
+	    }
+	}
+    }
+
+    private int nnodes;
+    private Neighbors neighbors;
+    private Neighbors reverseNeighbors;
+    private Heuristic h = (n1, n2) -> {
+	return 0.0;
+    };
+
+    private State forward = null;
+    private State reverse = null;
+    private Relaxer frelaxer = new Relaxer();
+    private Relaxer rrelaxer = new Relaxer();
+    private double mu;
+    private int meet;
+    private double pathCost = Double.NaN;
+
+    /**
+     * Constructor.
+     * When h is null, a default heuristic that produces the same
+     * results as Dijkstra's shortest path algorithm is used.
+     * @param nnodes the number of nodes in the graph, which are
+     *        numbered from 0 to nnodes-1 inclusive
+     * @param neighbors the provider of the neighbors of each node
+     * @param h the heuristic; null for a default that always returns 0
+     * @exception IllegalArgumentException nnodes was negative
+     */
+    public IntAStarSearch(int nnodes, Neighbors neighbors, Heuristic h)
+	throws IllegalArgumentException
+    {
+	this(nnodes, neighbors, null, h);
+    }
+
+    /**
+     * Constructor for directed graphs, providing the neighbors for
+     * searches in both directions.
+     * The second argument provides, for each node n, the nodes m
+     * for which there is an edge from n to m, and the third provides,
+     * for each node m, the nodes n for which there is an edge from n
+     * to m.  In both cases the cost is the cost of the edge from n
+     * to m. The third argument is used only by
+     * {@link #searchBidirectional(int,int)}.
+     * When h is null, a default heuristic that produces the same
+     * results as Dijkstra's shortest path algorithm is used.
+     * @param nnodes the number of nodes in the graph, which are
+     *        numbered from 0 to nnodes-1 inclusive
+     * @param neighbors the provider of the neighbors of each node
+     * @param reverseNeighbors the provider of the nodes with an edge
+     *        leading to each node; null if the graph is undirected
+     * @param h the heuristic; null for a default that always returns 0
+     * @exception IllegalArgumentException nnodes was negative
+     */
+    public IntAStarSearch(int nnodes, Neighbors neighbors,
+			  Neighbors reverseNeighbors, Heuristic h)
+	throws IllegalArgumentException
+    {
+	if (nnodes < 0) {
+	    throw new IllegalArgumentException(errorMsg("argsOutOfRange"));
+	}
+	this.nnodes = nnodes;
+	this.neighbors = neighbors;
+	this.reverseNeighbors = (reverseNeighbors == null)? neighbors:
+	    reverseNeighbors;
+	if (h != null) {
+	    this.h = h;
+	}
+    }
+
+    /**
+     * Get the cost of the path found by the last search.
+     * @return the cost; Double.NaN if the last search did not find
+     *         a path or if there has not been a search
+     */
+    public synchronized double getPathCost() {
+	return pathCost;
+    }
+
+    // The potential for a bidirectional search from start to goal:
+    // for the reverse search, start and goal are swapped, which
+    // changes the sign.
+    private double potential(int node, int goal, int start) {
+	return 0.5 * (h.estimate(node, goal) - h.estimate(node, start));
+    }
+
+    private void checkNodes(int start, int goal) {
+	if (start < 0 || start >= nnodes || goal < 0 || goal >= nnodes) {
+	    throw new IllegalArgumentException(errorMsg("argsOutOfRange"));
+	}
+	if (forward == null) {
+	    forward = new State(nnodes);
+	}
+    }
+
+    // Count the nodes from a node back to the start of a search.
+    private static int pathLength(State state, int node) {
+	int count = 1;
+	while (state.parents[node] != -1) {
+	    node = state.parents[node];
+	    count++;
+	}
+	return count;
+    }
+
+    /**
+     * Search for a path between two nodes.
+     * This is equivalent to calling
+     * {@link #search(int,int,boolean) search(start,goal,false)}.
+     * @param start the initial node in a path
+     * @param goal the final node in a path
+     * @return the nodes from the initial node to the final node,
+     *         inclusive; null if there is no path
+     * @exception IllegalArgumentException a node was out of range
+     */
+    public int[] search(int start, int goal)
+	throws IllegalArgumentException
+    {
+	return search(start, goal, false);
+    }
+
+    /**
+     * Search for a path between two nodes, specifying if a node can not be
+     * added to the priority queue after being polled or have its values
+     * updated by a neighbor.
+     * The argument pollOnce has the same meaning as the
+     * corresponding argument for
+     * {@link AStarSearch#search(Object,Object,boolean)}.
+     * @param start the initial node in a path
+     * @param goal the final node in a path
+     * @param pollOnce true if a node provided by the priority queue via
+     *        a call to poll() will not be added to the priority queue again
+     *        or have its values updated by a neighbor
+     * @return the nodes from the initial node to the final node,
+     *         inclusive; null if there is no path
+     * @exception IllegalArgumentException a node was out of range
+     */
+    public synchronized int[] search(int start, int goal, boolean pollOnce)
+	throws IllegalArgumentException
+    {
+	checkNodes(start, goal);
+	pathCost = Double.NaN;
+	State state = forward;
+	state.reset();
+	state.add(start, 0.0, h.estimate(start, goal), -1);
+	Relaxer relaxer = frelaxer;
+	relaxer.state = state;
+	relaxer.target = goal;
+	relaxer.pollOnce = pollOnce;
+	relaxer.bidirectional = false;
+	while (state.size > 0) {
+	    int current = state.poll();
+	    if (current == goal) {
+		pathCost = state.gvals[goal];
+		int[] result = new int[pathLength(state, goal)];
+		int node = goal;
+		for (int i = result.length - 1; i >= 0; i--) {
+		    result[i] = node;
+		    node = state.parents[node];
+		}
+		return result;
+	    }
+	    relaxer.current = current;
+	    relaxer.currentG = state.gvals[current];
+	    neighbors.forEach(current, relaxer);
+	}
+	return null;
+    }
+
+    /**
+     * Search for a path between two nodes, searching from both the
+     * initial node and the final node.
+     * The search alternates between the two directions, expanding
+     * the one whose priority queue is smaller. The heuristic is used
+     * to compute a potential p(n) = (h(n,goal) - h(n,start))/2 that
+     * is consistent in both directions, and the search ends when the
+     * sum of the smallest keys in the two priority queues is no less
+     * than the cost of the best path found so far.
+     * <P>
+     * The heuristic must be consistent, h(n,m) &le; d(n,k) + h(k,m)
+     * for each edge (n,k) and each goal m, and symmetric,
+     * h(n,m) = h(m,n). Otherwise the path found may not be the
+     * shortest one.
+     * @param start the initial node in a path
+     * @param goal the final node in a path
+     * @return the nodes from the initial node to the final node,
+     *         inclusive; null if there is no path
+     * @exception IllegalArgumentException a node was out of range
+     */
+    public synchronized int[] searchBidirectional(int start, int goal)
+	throws IllegalArgumentException
+    {
+	checkNodes(start, goal);
+	pathCost = Double.NaN;
+	if (start == goal) {
+	    pathCost = 0.0;
+	    return new int[] {start};
+	}
+	if (reverse == null) {
+	    reverse = new State(nnodes);
+	}
+	State fstate = forward;
+	State rstate = reverse;
+	fstate.reset();
+	rstate.reset();
+	fstate.add(start, 0.0, potential(start, goal, start), -1);
+	rstate.add(goal, 0.0, potential(goal, start, goal), -1);
+	frelaxer.state = fstate;
+	frelaxer.other = rstate;
+	frelaxer.target = goal;
+	frelaxer.otherTarget = start;
+	frelaxer.bidirectional = true;
+	rrelaxer.state = rstate;
+	rrelaxer.other = fstate;
+	rrelaxer.target = start;
+	rrelaxer.otherTarget = goal;
+	rrelaxer.bidirectional = true;
+	mu = Double.POSITIVE_INFINITY;
+	meet = -1;
+	while (fstate.size > 0 && rstate.size > 0) {
+	    if (fstate.minKey() + rstate.minKey() >= mu) break;
+	    Relaxer relaxer;
+	    Neighbors nbrs;
+	    if (fstate.size <= rstate.size) {
+		relaxer = frelaxer;
+		nbrs = neighbors;
+	    } else {
+		relaxer = rrelaxer;
+		nbrs = reverseNeighbors;
+	    }
+	    State state = relaxer.state;
+	    int current = state.poll();
+	    relaxer.current = current;
+	    relaxer.currentG = state.gvals[current];
+	    nbrs.forEach(current, relaxer);
+	}
+	if (meet == -1) return null;
+	pathCost = mu;
+	int flen = pathLength(fstate, meet);
+	int[] result = new int[flen + pathLength(rstate, meet) - 1];
+	int node = meet;
+	for (int i = flen - 1; i >= 0; i--) {
+	    result[i] = node;
+	    node = fstate.parents[node];
+	}
+	node = rstate.parents[meet];
+	for (int i = flen; i < result.length; i++) {
+	    result[i] = node;
+	    node = rstate.parents[node];
+	}
+	return result;
+    }
+}
+
+//  LocalWords:  exbundle le nnodes pollOnce reverseNeighbors
@@ -10,9 +10,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Locale;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.ResourceBundle;
 
 //@exbundle org.bzdev.util.lpack.JSUtilities
@@ -54,8 +56,7 @@ public class JSUtilities {
 	("org.bzdev.util.lpack.JSUtilities");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     static class JSException extends IOException {
@@ -313,6 +314,402 @@ public class JSUtilities {
 
 
 
+    /**
+     * Events provided by an {@link EventParser}.
+     */
+    public static enum Event {
+	/**
+	 * The start of an object.
+	 */
+	START_OBJECT,
+	/**
+	 * The end of an object.
+	 */
+	END_OBJECT,
+	/**
+	 * The start of an array.
+	 */
+	START_ARRAY,
+	/**
+	 * The end of an array.
+	 */
+	END_ARRAY,
+	/**
+	 * An object's key.
+	 * The key is provided by {@link EventParser#getString()}.
+	 */
+	KEY,
+	/**
+	 * A string value.
+	 * The value is provided by {@link EventParser#getString()}.
+	 */
+	STRING,
+	/**
+	 * A number whose value is an integer that can be represented
+	 * as a long.
+	 * The value is provided by {@link EventParser#getLong()} and
+	 * {@link EventParser#getDouble()}.
+	 */
+	INTEGER,
+	/**
+	 * A number that is not an integer or that is too large to
+	 * be represented as a long.
+	 * The value is provided by {@link EventParser#getDouble()}.
+	 */
+	DOUBLE,
+	/**
+	 * A boolean value.
+	 * The value is provided by {@link EventParser#getBoolean()}.
+	 */
+	BOOLEAN,
+	/**
+	 * The value null.
+	 */
+	NULL,
+	/**
+	 * A value whose type is not a JSON type. Such values can
+	 * be created by YAML tags.
+	 * The value is provided by {@link EventParser#getValue()}.
+	 */
+	OBJECT
+    }
+
+    /**
+     * Pull parser for JSON and YAML values.
+     * Instead of creating a tree of {@link JSObject} and {@link JSArray}
+     * instances, an event parser provides a sequence of
+     * {@link Event events}, one per call to {@link #next()}.  The
+     * event {@link Event#KEY} is followed by the events for the key's
+     * value. For example,
+     * <BLOCKQUOTE><PRE><CODE>
+     *     EventParser parser = JSUtilities.JSON.newEventParser(reader);
+     *     double sum = 0.0;
+     *     while (parser.hasNext()) {
+     *         if (parser.next() == JSUtilities.Event.KEY
+     *             &amp;&amp; parser.getString().equals("value")) {
+     *             parser.next();
+     *             sum += parser.getDouble();
+     *         }
+     *     }
+     * </CODE></PRE></BLOCKQUOTE>
+     * Numbers are provided as primitive values.  The method
+     * {@link #getValue()} will create the value (including a
+     * {@link JSObject} or {@link JSArray}) that starts at the current
+     * event, so that, for example, each element of a large array
+     * can be processed separately.
+     * <P>
+     * Instances are created by
+     * {@link JSON#newEventParser(Reader)},
+     * {@link YAML#newEventParser(Reader)}, and
+     * {@link EventParser#newInstance(Object)}.
+     */
+    public static abstract class EventParser implements Closeable {
+
+	Event event = null;
+	String string = null;
+	long longValue = 0;
+	double doubleValue = 0.0;
+	boolean booleanValue = false;
+	Object objectValue = null;
+	int depth = 0;
+
+	// only JSUtilities provides implementations
+	EventParser() {}
+
+	/**
+	 * Create an event parser that provides the events for an
+	 * object.
+	 * The object may be a {@link JSObject}, {@link JSArray},
+	 * {@link String}, {@link Number}, {@link Boolean}, or null.
+	 * @param object the object
+	 * @return the event parser
+	 */
+	public static EventParser newInstance(Object object) {
+	    return new TreeEventParser(new Object[] {object});
+	}
+
+	/**
+	 * Determine if there are more events.
+	 * @return true if there are more events; false otherwise
+	 * @exception IOException an IO error occurred
+	 */
+	public abstract boolean hasNext() throws IOException;
+
+	/**
+	 * Get the next event.
+	 * @return the event
+	 * @exception IOException an IO error or a syntax error occurred
+	 * @exception NoSuchElementException there are no more events
+	 */
+	public abstract Event next()
+	    throws IOException, NoSuchElementException;
+
+	/**
+	 * Get the line number for the current event.
+	 * @return the line number; -1 if not known
+	 */
+	public long getLineNumber() {return -1;}
+
+	/**
+	 * Get the current event.
+	 * @return the event most recently returned by {@link #next()};
+	 *         null if {@link #next()} has not been called
+	 */
+	public Event getEvent() {return event;}
+
+	/**
+	 * Get the nesting depth.
+	 * The depth is the number of objects and arrays that have been
+	 * started but not ended, including one started by the current
+	 * event.
+	 * @return the depth
+	 */
+	public int getDepth() {return depth;}
+
+	private IllegalStateException stateException() {
+	    return new IllegalStateException(errorMsg("noEventValue", event));
+	}
+
+	/**
+	 * Get the string for the current event.
+	 * @return the string for a {@link Event#KEY} or
+	 *         {@link Event#STRING} event
+	 * @exception IllegalStateException the current event does not
+	 *            provide a string
+	 */
+	public String getString() throws IllegalStateException {
+	    if (event != Event.KEY && event != Event.STRING) {
+		throw stateException();
+	    }
+	    return string;
+	}
+
+	/**
+	 * Get the long-integer value for the current event.
+	 * @return the value for an {@link Event#INTEGER} event
+	 * @exception IllegalStateException the current event does not
+	 *            provide an integer
+	 */
+	public long getLong() throws IllegalStateException {
+	    if (event != Event.INTEGER) throw stateException();
+	    return longValue;
+	}
+
+	/**
+	 * Get the double-precision value for the current event.
+	 * @return the value for an {@link Event#INTEGER} or
+	 *         {@link Event#DOUBLE} event
+	 * @exception IllegalStateException the current event does not
+	 *            provide a number
+	 */
+	public double getDouble() throws IllegalStateException {
+	    if (event == Event.INTEGER) return (double) longValue;
+	    if (event != Event.DOUBLE) throw stateException();
+	    return doubleValue;
+	}
+
+	/**
+	 * Get the boolean value for the current event.
+	 * @return the value for a {@link Event#BOOLEAN} event
+	 * @exception IllegalStateException the current event does not
+	 *            provide a boolean
+	 */
+	public boolean getBoolean() throws IllegalStateException {
+	    if (event != Event.BOOLEAN) throw stateException();
+	    return booleanValue;
+	}
+
+	/**
+	 * Skip the value that starts at the current event.
+	 * If the current event is {@link Event#START_OBJECT} or
+	 * {@link Event#START_ARRAY}, the events up to and including the
+	 * matching {@link Event#END_OBJECT} or {@link Event#END_ARRAY}
+	 * are skipped. Otherwise this method does nothing.
+	 * @exception IOException an IO error or a syntax error occurred
+	 */
+	public void skipValue() throws IOException {
+	    if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+		int level = depth - 1;
+		while (depth > level) next();
+	    }
+	}
+
+	/**
+	 * Get the value that starts at the current event.
+	 * For {@link Event#START_OBJECT} and {@link Event#START_ARRAY}
+	 * events, the events up to and including the matching
+	 * {@link Event#END_OBJECT} or {@link Event#END_ARRAY} are read
+	 * and used to create a {@link JSObject} or {@link JSArray}.
+	 * The value for an {@link Event#INTEGER} event is an
+	 * {@link Integer} when it is in the range for an int and a
+	 * {@link Long} otherwise, as with {@link JSON#parse(Reader)}.
+	 * @return the value
+	 * @exception IOException an IO error or a syntax error occurred
+	 * @exception IllegalStateException the current event does not
+	 *            start a value
+	 */
+	public Object getValue() throws IOException, IllegalStateException {
+	    switch (event) {
+	    case START_OBJECT:
+		{
+		    JSObject object = new JSObject();
+		    while (next() != Event.END_OBJECT) {
+			String key = string;
+			next();
+			object.putObject(key, getValue());
+		    }
+		    return object;
+		}
+	    case START_ARRAY:
+		{
+		    JSArray array = new JSArray();
+		    while (next() != Event.END_ARRAY) {
+			array.addObject(getValue());
+		    }
+		    return array;
+		}
+	    case STRING:
+		return string;
+	    case INTEGER:
+		if (longValue >= Integer.MIN_VALUE
+		    && longValue <= Integer.MAX_VALUE) {
+		    return Integer.valueOf((int)longValue);
+		}
+		return Long.valueOf(longValue);
+	    case DOUBLE:
+		return Double.valueOf(doubleValue);
+	    case BOOLEAN:
+		return Boolean.valueOf(booleanValue);
+	    case NULL:
+		return null;
+	    case OBJECT:
+		return objectValue;
+	    default:
+		throw stateException();
+	    }
+	}
+
+	/**
+	 * Close this event parser.
+	 * @exception IOException an IO error occurred
+	 */
+	@Override
+	public void close() throws IOException {}
+    }
+
+    // Event parser for objects that have already been created,
+    // one object after another.
+    static class TreeEventParser extends EventParser {
+
+	static abstract class Source {
+	    abstract boolean hasNext() throws IOException;
+	    abstract Object next() throws IOException;
+	    void close() throws IOException {}
+	}
+
+	static class Frame {
+	    Iterator<?> iterator;
+	    boolean isObject;
+	    Frame(Iterator<?> iterator, boolean isObject) {
+		this.iterator = iterator;
+		this.isObject = isObject;
+	    }
+	}
+
+	Source source;
+	ArrayList<Frame> stack = new ArrayList<>();
+	Object pending = null;
+	boolean hasPending = false;
+
+	TreeEventParser(Object[] objects) {
+	    this(new Source() {
+		    int index = 0;
+		    boolean hasNext() {return index < objects.length;}
+		    Object next() {return objects[index++];}
+		});
+	}
+
+	TreeEventParser(Source source) {
+	    this.source = source;
+	}
+
+	@Override
+	public boolean hasNext() throws IOException {
+	    return hasPending || !stack.isEmpty() || source.hasNext();
+	}
+
+	private Event setValue(Object value) {
+	    if (value == null) {
+		event = Event.NULL;
+	    } else if (value instanceof JSObject) {
+		stack.add(new Frame(((JSObject) value).entrySet().iterator(),
+				    true));
+		depth++;
+		event = Event.START_OBJECT;
+	    } else if (value instanceof JSArray) {
+		stack.add(new Frame(((JSArray) value).iterator(), false));
+		depth++;
+		event = Event.START_ARRAY;
+	    } else if (value instanceof String) {
+		string = (String) value;
+		event = Event.STRING;
+	    } else if (value instanceof Boolean) {
+		booleanValue = (Boolean) value;
+		event = Event.BOOLEAN;
+	    } else if (value instanceof Integer || value instanceof Long
+		       || value instanceof Short || value instanceof Byte) {
+		longValue = ((Number) value).longValue();
+		event = Event.INTEGER;
+	    } else if (value instanceof Number) {
+		doubleValue = ((Number) value).doubleValue();
+		event = Event.DOUBLE;
+	    } else {
+		objectValue = value;
+		event = Event.OBJECT;
+	    }
+	    return event;
+	}
+
+	@Override
+	public Event next() throws IOException, NoSuchElementException {
+	    if (hasPending) {
+		hasPending = false;
+		Object value = pending;
+		pending = null;
+		return setValue(value);
+	    }
+	    if (stack.isEmpty()) {
+		if (!source.hasNext()) {
+		    throw new NoSuchElementException(errorMsg("noMoreEvents"));
+		}
+		return setValue(source.next());
+	    }
+	    int top = stack.size() - 1;
+	    Frame frame = stack.get(top);
+	    if (frame.iterator.hasNext()) {
+		Object next = frame.iterator.next();
+		if (frame.isObject) {
+		    Map.Entry<?,?> entry = (Map.Entry<?,?>) next;
+		    string = (String)entry.getKey();
+		    pending = entry.getValue();
+		    hasPending = true;
+		    event = Event.KEY;
+		    return event;
+		}
+		return setValue(next);
+	    }
+	    stack.remove(top);
+	    depth--;
+	    event = frame.isObject? Event.END_OBJECT: Event.END_ARRAY;
+	    return event;
+	}
+
+	@Override
+	public void close() throws IOException {
+	    source.close();
+	}
+    }
+
     /**
      * Methods for parsing and generating JSON.
      * All the public methods of this class are static.
@@ -352,7 +749,327 @@ public class JSUtilities {
 	public static void writeTo(Writer w, Object object)
 	    throws IOException
 	{
-	    json.write(w, object);
+	    // write(Writer,Object) flushes after each value it writes, so
+	    // the nested calls would flush once per element: flush once
+	    // at the end instead.
+	    json.write(new NoFlushWriter(w), object);
+	    w.flush();
+	}
+
+	// Writer used to suppress the flushes made by write(Writer,Object)
+	// for nested values.
+	private static class NoFlushWriter extends FilterWriter {
+	    NoFlushWriter(Writer w) {super(w);}
+	    @Override
+	    public void flush() {}
+	    @Override
+	    public void close() {}
+	}
+
+	/**
+	 * Writer that generates JSON-formatted text incrementally.
+	 * Instead of creating a tree of {@link JSObject} and
+	 * {@link JSArray} instances and then calling
+	 * {@link JSON#writeTo(Writer,Object)}, one can call methods that
+	 * start and end objects and arrays, provide keys, and provide
+	 * values.  The text generated is the same as the text that
+	 * {@link JSON#writeTo(Writer,Object)} would generate for the
+	 * corresponding tree. For example,
+	 * <BLOCKQUOTE><PRE><CODE>
+	 *     JSUtilities.JSON.EventWriter ew =
+	 *         new JSUtilities.JSON.EventWriter(writer);
+	 *     ew.startArray();
+	 *     for (int i = 0; i &lt; n; i++) {
+	 *         ew.startObject();
+	 *         ew.key("index");
+	 *         ew.value(i);
+	 *         ew.key("value");
+	 *         ew.value(values[i]);
+	 *         ew.endObject();
+	 *     }
+	 *     ew.endArray();
+	 *     ew.flush();
+	 * </CODE></PRE></BLOCKQUOTE>
+	 * Within an object, each value must be preceded by a call to
+	 * {@link #key(String)}. A single top-level value can be written.
+	 * Calls made out of order result in an
+	 * {@link IllegalStateException}.
+	 * <P>
+	 * The methods of this class do not flush the writer: the
+	 * method {@link #flush()} should be called explicitly if the
+	 * writer is not closed.
+	 */
+	public static class EventWriter implements Closeable, Flushable {
+	    Writer w;
+	    // true for an object, false for an array, at each level
+	    boolean[] objects = new boolean[32];
+	    int depth = 0;
+	    boolean needComma = false;
+	    boolean afterKey = false;
+	    boolean done = false;
+
+	    /**
+	     * Constructor.
+	     * @param w the writer to which JSON-formatted text will be
+	     *        written
+	     */
+	    public EventWriter(Writer w) {
+		this.w = w;
+	    }
+
+	    private IllegalStateException stateException(String op) {
+		return new IllegalStateException
+		    (errorMsg("eventWriterState", op));
+	    }
+
+	    private void beforeValue(String op) throws IOException {
+		if (depth == 0) {
+		    if (done) throw stateException(op);
+		} else if (objects[depth-1]) {
+		    if (!afterKey) throw stateException(op);
+		    afterKey = false;
+		} else if (needComma) {
+		    w.write(", ");
+		}
+	    }
+
+	    private void afterValue() {
+		needComma = true;
+		if (depth == 0) done = true;
+	    }
+
+	    private void push(boolean isObject) {
+		if (depth == objects.length) {
+		    objects = Arrays.copyOf(objects, 2*depth);
+		}
+		objects[depth++] = isObject;
+		needComma = false;
+	    }
+
+	    private void pop(boolean isObject, String op) throws IOException {
+		if (depth == 0 || objects[depth-1] != isObject || afterKey) {
+		    throw stateException(op);
+		}
+		w.write(isObject? '}': ']');
+		depth--;
+		afterValue();
+	    }
+
+	    /**
+	     * Start an object.
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void startObject() throws IOException {
+		beforeValue("startObject");
+		w.write('{');
+		push(true);
+	    }
+
+	    /**
+	     * End an object.
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException the current value is not
+	     *            an object or a key's value is missing
+	     */
+	    public void endObject() throws IOException {
+		pop(true, "endObject");
+	    }
+
+	    /**
+	     * Start an array.
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void startArray() throws IOException {
+		beforeValue("startArray");
+		w.write('[');
+		push(false);
+	    }
+
+	    /**
+	     * End an array.
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException the current value is not
+	     *            an array
+	     */
+	    public void endArray() throws IOException {
+		pop(false, "endArray");
+	    }
+
+	    /**
+	     * Write an object's key.
+	     * @param key the key
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException the current value is not
+	     *            an object or the previous key's value is missing
+	     */
+	    public void key(String key) throws IOException {
+		if (depth == 0 || !objects[depth-1] || afterKey) {
+		    throw stateException("key");
+		}
+		if (needComma) w.write(", ");
+		w.write(quote(key));
+		w.write(": ");
+		afterKey = true;
+	    }
+
+	    /**
+	     * Write a string value.
+	     * @param value the value; null for the JSON value null
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void value(String value) throws IOException {
+		beforeValue("value");
+		w.write((value == null)? "null": quote(value));
+		afterValue();
+	    }
+
+	    /**
+	     * Write an integer value.
+	     * @param value the value
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void value(long value) throws IOException {
+		beforeValue("value");
+		w.write(Long.toString(value));
+		afterValue();
+	    }
+
+	    /**
+	     * Write a double-precision value.
+	     * @param value the value
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void value(double value) throws IOException {
+		beforeValue("value");
+		w.write(Double.toString(value));
+		afterValue();
+	    }
+
+	    /**
+	     * Write a boolean value.
+	     * @param value the value
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void value(boolean value) throws IOException {
+		beforeValue("value");
+		w.write(value? "true": "false");
+		afterValue();
+	    }
+
+	    /**
+	     * Write the value null.
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void nullValue() throws IOException {
+		beforeValue("nullValue");
+		w.write("null");
+		afterValue();
+	    }
+
+	    /**
+	     * Write an object as a value.
+	     * The type of the object may be {@link JSObject},
+	     * {@link JSArray}, {@link String}, {@link Number}, or
+	     * {@link Boolean}, and the object may be null.
+	     * @param value the value
+	     * @exception IOException an IO error occurred or the object's
+	     *            type is not supported
+	     * @exception IllegalStateException a value cannot be written
+	     *            at this point
+	     */
+	    public void value(Object value) throws IOException {
+		beforeValue("value");
+		json.write(new NoFlushWriter(w), value);
+		afterValue();
+	    }
+
+	    /**
+	     * Write the current event of an event parser.
+	     * For {@link Event#START_OBJECT} and {@link Event#START_ARRAY},
+	     * only the start of the object or array is written, so
+	     * <BLOCKQUOTE><PRE><CODE>
+	     *     while (parser.hasNext()) {
+	     *         parser.next();
+	     *         ew.write(parser);
+	     *     }
+	     * </CODE></PRE></BLOCKQUOTE>
+	     * will copy a parser's values without storing them.
+	     * @param parser the event parser
+	     * @exception IOException an IO error occurred
+	     * @exception IllegalStateException the event cannot be written
+	     *            at this point or the parser has no current event
+	     */
+	    public void write(EventParser parser) throws IOException {
+		Event event = parser.getEvent();
+		if (event == null) throw stateException("write");
+		switch (event) {
+		case START_OBJECT:
+		    startObject();
+		    break;
+		case END_OBJECT:
+		    endObject();
+		    break;
+		case START_ARRAY:
+		    startArray();
+		    break;
+		case END_ARRAY:
+		    endArray();
+		    break;
+		case KEY:
+		    key(parser.getString());
+		    break;
+		case STRING:
+		    value(parser.getString());
+		    break;
+		case INTEGER:
+		    value(parser.getLong());
+		    break;
+		case DOUBLE:
+		    value(parser.getDouble());
+		    break;
+		case BOOLEAN:
+		    value(parser.getBoolean());
+		    break;
+		case NULL:
+		    nullValue();
+		    break;
+		case OBJECT:
+		    value(parser.getValue());
+		    break;
+		}
+	    }
+
+	    /**
+	     * Flush the writer.
+	     * @exception IOException an IO error occurred
+	     */
+	    @Override
+	    public void flush() throws IOException {
+		w.flush();
+	    }
+
+	    /**
+	     * Close the writer.
+	     * @exception IOException an IO error occurred
+	     */
+	    @Override
+	    public void close() throws IOException {
+		w.close();
+	    }
 	}
 
 	/**
@@ -658,6 +1375,250 @@ public class JSUtilities {
 	    return parser.getResults();
 	}
 
+	/**
+	 * Create an event parser for JSON-formatted text read from a
+	 * {@link Reader}.
+	 * The text is read incrementally as events are requested, so
+	 * the memory used does not grow with the size of the input.
+	 * Unlike {@link #parse(Reader)}, duplicate keys in an object are
+	 * not detected and locations are not recorded.
+	 * @param r the reader
+	 * @return the event parser
+	 * @exception IOException an error occurred while reading from
+	 *            the reader
+	 * @see EventParser
+	 */
+	public static EventParser newEventParser(Reader r) throws IOException {
+	    if (!(r instanceof BufferedReader || r instanceof StringReader
+		  || r instanceof CharArrayReader)) {
+		r = new BufferedReader(r);
+	    }
+	    return new JSONEventParser(r);
+	}
+
+	/**
+	 * Create an event parser for JSON-formatted text read from an
+	 * input stream.
+	 * @param is the input stream
+	 * @param charset the charset used by the input stream
+	 * @return the event parser
+	 * @exception IOException an error occurred while reading from
+	 *            the input stream
+	 * @see #newEventParser(Reader)
+	 */
+	public static EventParser newEventParser(InputStream is,
+						 Charset charset)
+	    throws IOException
+	{
+	    return newEventParser(new InputStreamReader(is, charset));
+	}
+
+	// Event parser that reads JSON text directly, using the
+	// tokenizing methods of JSON.Parser and a stack recording
+	// whether each enclosing value is an object or an array.
+	private static class JSONEventParser extends EventParser {
+	    static final int VALUE = 0;		// a value is expected
+	    static final int FIRST_KEY = 1;	// after '{'
+	    static final int NEXT_KEY = 2;	// after a value in an object
+	    static final int FIRST_ELEMENT = 3;	// after '['
+	    static final int NEXT_ELEMENT = 4;	// after a value in an array
+	    static final int DONE = 5;
+
+	    Reader r;
+	    Parser p;
+	    int state = VALUE;
+	    boolean[] objects = new boolean[32];
+
+	    JSONEventParser(Reader r) throws IOException {
+		this.r = r;
+		p = new Parser(r);
+	    }
+
+	    @Override
+	    public long getLineNumber() {return p.lineno;}
+
+	    @Override
+	    public boolean hasNext() {
+		return state != DONE;
+	    }
+
+	    @Override
+	    public Event next() throws IOException, NoSuchElementException {
+		switch (state) {
+		case DONE:
+		    throw new NoSuchElementException(errorMsg("noMoreEvents"));
+		case FIRST_KEY:
+		    p.skipWhitespace();
+		    if (p.b == '}') return endValue(Event.END_OBJECT);
+		    return key();
+		case NEXT_KEY:
+		    p.skipWhitespace();
+		    if (p.b == '}') return endValue(Event.END_OBJECT);
+		    if (p.b != ',') {
+			String msg = errorMsg("missingComma1");
+			throw new JSException(p.lineno, msg);
+		    }
+		    p.nextChar();
+		    p.skipWhitespace();
+		    return key();
+		case FIRST_ELEMENT:
+		    p.skipWhitespace();
+		    if (p.b == ']') return endValue(Event.END_ARRAY);
+		    return value();
+		case NEXT_ELEMENT:
+		    p.skipWhitespace();
+		    if (p.b == ']') return endValue(Event.END_ARRAY);
+		    if (p.b != ',') {
+			String msg = errorMsg("missingComma2", (char)p.b);
+			throw new JSException(p.lineno, msg);
+		    }
+		    p.nextChar();
+		    return value();
+		default:
+		    return value();
+		}
+	    }
+
+	    private Event key() throws IOException {
+		boolean isIdent = false;
+		if (Character.isJavaIdentifierStart(p.b)) {
+		    isIdent = true;
+		} else if (p.b != '"') {
+		    String msg = errorMsg("needsDoubleQuote");
+		    throw new JSException(p.lineno, msg);
+		}
+		string = p.parseString(isIdent);
+		p.skipWhitespace();
+		if (p.b != ':') {
+		    String msg = errorMsg("missingColon");
+		    throw new JSException(p.lineno, msg);
+		}
+		p.nextChar();
+		state = VALUE;
+		event = Event.KEY;
+		return event;
+	    }
+
+	    private void afterValue() {
+		state = (depth == 0)? DONE:
+		    (objects[depth-1]? NEXT_KEY: NEXT_ELEMENT);
+	    }
+
+	    private Event endValue(Event e) throws IOException {
+		p.nextChar();
+		depth--;
+		afterValue();
+		event = e;
+		return e;
+	    }
+
+	    private Event startValue(boolean isObject) throws IOException {
+		p.nextChar();
+		if (depth == objects.length) {
+		    objects = Arrays.copyOf(objects, 2*depth);
+		}
+		objects[depth++] = isObject;
+		state = isObject? FIRST_KEY: FIRST_ELEMENT;
+		event = isObject? Event.START_OBJECT: Event.START_ARRAY;
+		return event;
+	    }
+
+	    private Event value() throws IOException {
+		p.skipWhitespace();
+		switch (p.b) {
+		case -1:
+		    throw new JSException(p.lineno, errorMsg("EOF"));
+		case '{':
+		    return startValue(true);
+		case '[':
+		    return startValue(false);
+		case '"':
+		    string = p.parseString(false);
+		    event = Event.STRING;
+		    break;
+		case 't':
+		    if (p.nextChar() == 'r' && p.nextChar() == 'u'
+			&& p.nextChar() == 'e') {
+			p.nextChar();
+			booleanValue = true;
+			event = Event.BOOLEAN;
+			break;
+		    } else {
+			String msg = errorMsg("expectingBoolean");
+			throw new JSException(p.lineno, msg);
+		    }
+		case 'f':
+		    if (p.nextChar() == 'a' && p.nextChar() == 'l'
+			&& p.nextChar() == 's' && p.nextChar() == 'e') {
+			p.nextChar();
+			booleanValue = false;
+			event = Event.BOOLEAN;
+			break;
+		    } else {
+			String msg = errorMsg("expectingBoolean");
+			throw new JSException(p.lineno, msg);
+		    }
+		case 'n':
+		    if (p.nextChar() == 'u' && p.nextChar() == 'l'
+			&& p.nextChar() == 'l') {
+			p.nextChar();
+			event = Event.NULL;
+			break;
+		    } else {
+			String msg = errorMsg("expectingNull");
+			throw new JSException(p.lineno, msg);
+		    }
+		case '-':
+		case '0': case '1': case '2': case '3': case '4':
+		case '5': case '6': case '7': case '8': case '9':
+		    number();
+		    break;
+		default:
+		    String msg = errorMsg("illegalChar", (char)p.b, p.b);
+		    throw new JSException(p.lineno, msg);
+		}
+		afterValue();
+		return event;
+	    }
+
+	    // Same conversions as Parser.parseNumber() but without
+	    // creating Number instances.
+	    private void number() throws IOException {
+		boolean floatingPoint = p.scanNumber();
+		StringBuilder sb = p.sb;
+		if (!floatingPoint) {
+		    try {
+			longValue = Long.parseLong(sb, 0, sb.length(), 10);
+			event = Event.INTEGER;
+			return;
+		    } catch (NumberFormatException e) {}
+		}
+		double value;
+		try {
+		    value = Double.parseDouble(sb.toString());
+		} catch (NumberFormatException e) {
+		    String msg = errorMsg("badNumber");
+		    throw new JSException(p.lineno, msg);
+		}
+		if (floatingPoint && Long.MIN_VALUE <= value
+		    && value <= Long.MAX_VALUE) {
+		    long lv = Math.round(value);
+		    if ((double) lv == value) {
+			longValue = lv;
+			event = Event.INTEGER;
+			return;
+		    }
+		}
+		doubleValue = value;
+		event = Event.DOUBLE;
+	    }
+
+	    @Override
+	    public void close() throws IOException {
+		r.close();
+	    }
+	}
+
 	/**
 	 * Parser support class for JSON.
 	 */
@@ -1510,12 +2471,9 @@ public class JSUtilities {
 		throw new JSException(lineno, msg);
 	    }
 
-	    /**
-	     * Parse a number.
-	     * @return the number
-	     * @exception IOException an error occurred
-	     */
-	    protected Number parseNumber() throws IOException {
+	    // Read a number's characters into sb, returning true if
+	    // the number uses a floating-point syntax.
+	    boolean scanNumber() throws IOException {
 		boolean floatingPoint = false;
 		sb.setLength(0);
 		if (b == '-') {
@@ -1594,8 +2552,17 @@ public class JSUtilities {
 			if (done) break;
 			notFirst= true;
 		    }
-		    nextChar();
 		}
+		return floatingPoint;
+	    }
+
+	    /**
+	     * Parse a number.
+	     * @return the number
+	     * @exception IOException an error occurred
+	     */
+	    protected Number parseNumber() throws IOException {
+		boolean floatingPoint = scanNumber();
 		String s = sb.toString();
 		if (floatingPoint) {
 		    Double value = Double.valueOf(s);
@@ -1998,6 +2965,76 @@ public class JSUtilities {
 	    return parser.getResults();
 	}
 
+	/**
+	 * Create an event parser for YAML-formatted text read from a
+	 * {@link Reader}.
+	 * @param r the reader
+	 * @return the event parser
+	 * @exception IOException an error occurred while reading from
+	 *            the reader
+	 * @see #newEventParser(Reader,TagSpec...)
+	 */
+	public static EventParser newEventParser(Reader r) throws IOException {
+	    return newEventParser(r, new TagSpec[0]);
+	}
+
+	/**
+	 * Create an event parser for YAML-formatted text read from an
+	 * input stream.
+	 * @param is the input stream
+	 * @param charset the charset used by the input stream
+	 * @return the event parser
+	 * @exception IOException an error occurred while reading from
+	 *            the input stream
+	 * @see #newEventParser(Reader,TagSpec...)
+	 */
+	public static EventParser newEventParser(InputStream is,
+						 Charset charset)
+	    throws IOException
+	{
+	    return newEventParser(new InputStreamReader(is, charset),
+				  new TagSpec[0]);
+	}
+
+	/**
+	 * Create an event parser for YAML-formatted text read from a
+	 * {@link Reader}, using tag specifications.
+	 * When the YAML stream contains multiple documents, the events
+	 * for each document follow the events for the previous one.
+	 * <P>
+	 * Because YAML anchors, aliases, and merge keys can refer to
+	 * any previous part of a document, each document is parsed in
+	 * full before its events are provided: the memory used grows
+	 * with the size of the largest document rather than with the
+	 * size of the stream.
+	 * @param r the reader
+	 * @param tags tag specifications
+	 * @return the event parser
+	 * @exception IOException an error occurred while reading from
+	 *            the reader
+	 * @see EventParser
+	 * @see Parser#Parser(Reader,TagSpec...)
+	 */
+	public static EventParser newEventParser(Reader r, TagSpec... tags)
+	    throws IOException
+	{
+	    Parser parser = new Parser(r, tags);
+	    return new TreeEventParser(new TreeEventParser.Source() {
+		    // Parser.hasNext() is also true before the end of
+		    // a stream with a single document has been detected.
+		    boolean first = true;
+		    boolean hasNext() {
+			return first || parser.termination
+			    == Parser.Termination.NEXT_OBJECT_AVAILABLE;
+		    }
+		    Object next() throws IOException {
+			first = false;
+			return parser.getResults();
+		    }
+		    void close() throws IOException {r.close();}
+		});
+	}
+
 
 	/**
 	 * Parser support class for YAML.
@@ -4232,3 +5269,4 @@ public class JSUtilities {
 //  LocalWords:  init inputNotTerminated badTerminationCol parseValue
 //  LocalWords:  badTermination oneKeyPerLine missingAnchor nextChar
 //  LocalWords:  currentObject arrayAfterKey badNewLine
+//  LocalWords:  EventParser EventWriter startObject endObject nullValue
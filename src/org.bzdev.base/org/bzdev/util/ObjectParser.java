@@ -35,8 +35,8 @@ class ObjectParserRB {
 public interface ObjectParser<T> {
 
     private static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter())
-	    .format(ObjectParserRB.exbundle.getString(key), args).toString();
+	return SafeFormatter.formatMessage
+	    (ObjectParserRB.exbundle.getString(key), args);
     }
 
     /**
@@ -198,6 +198,43 @@ public class PrimArrays {
 	else IntTimSort.sort(a, fromIndex, toIndex, c);
     }
 
+    /**
+     * Sort an array whose components are the primitive type int,
+     * using multiple threads.
+     * The sort is stable and the sorted ranges are merged in parallel.
+     * Tasks are run using the common fork/join pool or, when this
+     * method is called from a fork/join task, the pool running that
+     * task. Arrays too short to benefit are sorted sequentially.
+     * @param a the array to sort
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(int[] a, IntComparator c) {
+	if (c == null) Arrays.parallelSort(a);
+	else PrimParallelSort.sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sort a range of an array whose components are the primitive type
+     * int, using multiple threads.
+     * The elements sorted will be those whose indices are in the interval
+     * [fromIndex, toIndex). The sort is stable and tasks are run using
+     * the common fork/join pool or, when this method is called from a
+     * fork/join task, the pool running that task.
+     * @param a the array to sort
+     * @param fromIndex the lowest index for the sort (inclusive)
+     * @param toIndex the highest index for the sort (exclusive)
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(int[] a, int fromIndex, int toIndex,
+				    IntComparator c) {
+	if (c == null) Arrays.parallelSort(a, fromIndex, toIndex);
+	else PrimParallelSort.sort(a, fromIndex, toIndex, c);
+    }
+
     /**
      * Binary search of a sorted byte array.
      * <P>
@@ -373,6 +410,43 @@ public class PrimArrays {
 	else ByteTimSort.sort(a, fromIndex, toIndex, c);
     }
 
+    /**
+     * Sort an array whose components are the primitive type byte,
+     * using multiple threads.
+     * The sort is stable and the sorted ranges are merged in parallel.
+     * Tasks are run using the common fork/join pool or, when this
+     * method is called from a fork/join task, the pool running that
+     * task. Arrays too short to benefit are sorted sequentially.
+     * @param a the array to sort
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(byte[] a, ByteComparator c) {
+	if (c == null) Arrays.parallelSort(a);
+	else PrimParallelSort.sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sort a range of an array whose components are the primitive type
+     * byte, using multiple threads.
+     * The elements sorted will be those whose indices are in the interval
+     * [fromIndex, toIndex). The sort is stable and tasks are run using
+     * the common fork/join pool or, when this method is called from a
+     * fork/join task, the pool running that task.
+     * @param a the array to sort
+     * @param fromIndex the lowest index for the sort (inclusive)
+     * @param toIndex the highest index for the sort (exclusive)
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(byte[] a, int fromIndex, int toIndex,
+				    ByteComparator c) {
+	if (c == null) Arrays.parallelSort(a, fromIndex, toIndex);
+	else PrimParallelSort.sort(a, fromIndex, toIndex, c);
+    }
+
     /**
      * Binary search of a sorted char array.
      * <P>
@@ -548,6 +622,43 @@ public class PrimArrays {
 	else CharTimSort.sort(a, fromIndex, toIndex, c);
     }
 
+    /**
+     * Sort an array whose components are the primitive type char,
+     * using multiple threads.
+     * The sort is stable and the sorted ranges are merged in parallel.
+     * Tasks are run using the common fork/join pool or, when this
+     * method is called from a fork/join task, the pool running that
+     * task. Arrays too short to benefit are sorted sequentially.
+     * @param a the array to sort
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(char[] a, CharComparator c) {
+	if (c == null) Arrays.parallelSort(a);
+	else PrimParallelSort.sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sort a range of an array whose components are the primitive type
+     * char, using multiple threads.
+     * The elements sorted will be those whose indices are in the interval
+     * [fromIndex, toIndex). The sort is stable and tasks are run using
+     * the common fork/join pool or, when this method is called from a
+     * fork/join task, the pool running that task.
+     * @param a the array to sort
+     * @param fromIndex the lowest index for the sort (inclusive)
+     * @param toIndex the highest index for the sort (exclusive)
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(char[] a, int fromIndex, int toIndex,
+				    CharComparator c) {
+	if (c == null) Arrays.parallelSort(a, fromIndex, toIndex);
+	else PrimParallelSort.sort(a, fromIndex, toIndex, c);
+    }
+
     /**
      * Binary search of a sorted short array.
      * <P>
@@ -724,6 +835,43 @@ public class PrimArrays {
 	else ShortTimSort.sort(a, fromIndex, toIndex, c);
     }
 
+    /**
+     * Sort an array whose components are the primitive type short,
+     * using multiple threads.
+     * The sort is stable and the sorted ranges are merged in parallel.
+     * Tasks are run using the common fork/join pool or, when this
+     * method is called from a fork/join task, the pool running that
+     * task. Arrays too short to benefit are sorted sequentially.
+     * @param a the array to sort
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(short[] a, ShortComparator c) {
+	if (c == null) Arrays.parallelSort(a);
+	else PrimParallelSort.sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sort a range of an array whose components are the primitive type
+     * short, using multiple threads.
+     * The elements sorted will be those whose indices are in the interval
+     * [fromIndex, toIndex). The sort is stable and tasks are run using
+     * the common fork/join pool or, when this method is called from a
+     * fork/join task, the pool running that task.
+     * @param a the array to sort
+     * @param fromIndex the lowest index for the sort (inclusive)
+     * @param toIndex the highest index for the sort (exclusive)
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(short[] a, int fromIndex, int toIndex,
+				    ShortComparator c) {
+	if (c == null) Arrays.parallelSort(a, fromIndex, toIndex);
+	else PrimParallelSort.sort(a, fromIndex, toIndex, c);
+    }
+
     /**
      * Binary search of a sorted long array.
      * <P>
@@ -899,6 +1047,43 @@ public class PrimArrays {
 	else LongTimSort.sort(a, fromIndex, toIndex, c);
     }
 
+    /**
+     * Sort an array whose components are the primitive type long,
+     * using multiple threads.
+     * The sort is stable and the sorted ranges are merged in parallel.
+     * Tasks are run using the common fork/join pool or, when this
+     * method is called from a fork/join task, the pool running that
+     * task. Arrays too short to benefit are sorted sequentially.
+     * @param a the array to sort
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(long[] a, LongComparator c) {
+	if (c == null) Arrays.parallelSort(a);
+	else PrimParallelSort.sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sort a range of an array whose components are the primitive type
+     * long, using multiple threads.
+     * The elements sorted will be those whose indices are in the interval
+     * [fromIndex, toIndex). The sort is stable and tasks are run using
+     * the common fork/join pool or, when this method is called from a
+     * fork/join task, the pool running that task.
+     * @param a the array to sort
+     * @param fromIndex the lowest index for the sort (inclusive)
+     * @param toIndex the highest index for the sort (exclusive)
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(long[] a, int fromIndex, int toIndex,
+				    LongComparator c) {
+	if (c == null) Arrays.parallelSort(a, fromIndex, toIndex);
+	else PrimParallelSort.sort(a, fromIndex, toIndex, c);
+    }
+
     /**
      * Binary search of a sorted float array.
      * <P>
@@ -1074,6 +1259,43 @@ public class PrimArrays {
 	else FloatTimSort.sort(a, fromIndex, toIndex, c);
     }
 
+    /**
+     * Sort an array whose components are the primitive type float,
+     * using multiple threads.
+     * The sort is stable and the sorted ranges are merged in parallel.
+     * Tasks are run using the common fork/join pool or, when this
+     * method is called from a fork/join task, the pool running that
+     * task. Arrays too short to benefit are sorted sequentially.
+     * @param a the array to sort
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(float[] a, FloatComparator c) {
+	if (c == null) Arrays.parallelSort(a);
+	else PrimParallelSort.sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sort a range of an array whose components are the primitive type
+     * float, using multiple threads.
+     * The elements sorted will be those whose indices are in the interval
+     * [fromIndex, toIndex). The sort is stable and tasks are run using
+     * the common fork/join pool or, when this method is called from a
+     * fork/join task, the pool running that task.
+     * @param a the array to sort
+     * @param fromIndex the lowest index for the sort (inclusive)
+     * @param toIndex the highest index for the sort (exclusive)
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(float[] a, int fromIndex, int toIndex,
+				    FloatComparator c) {
+	if (c == null) Arrays.parallelSort(a, fromIndex, toIndex);
+	else PrimParallelSort.sort(a, fromIndex, toIndex, c);
+    }
+
     /**
      * Binary search of a sorted double array.
      * <P>
@@ -1248,6 +1470,43 @@ public class PrimArrays {
 	if (c == null) Arrays.sort(a, fromIndex, toIndex);
 	else DoubleTimSort.sort(a, fromIndex, toIndex, c);
     }
+
+    /**
+     * Sort an array whose components are the primitive type double,
+     * using multiple threads.
+     * The sort is stable and the sorted ranges are merged in parallel.
+     * Tasks are run using the common fork/join pool or, when this
+     * method is called from a fork/join task, the pool running that
+     * task. Arrays too short to benefit are sorted sequentially.
+     * @param a the array to sort
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(double[] a, DoubleComparator c) {
+	if (c == null) Arrays.parallelSort(a);
+	else PrimParallelSort.sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sort a range of an array whose components are the primitive type
+     * double, using multiple threads.
+     * The elements sorted will be those whose indices are in the interval
+     * [fromIndex, toIndex). The sort is stable and tasks are run using
+     * the common fork/join pool or, when this method is called from a
+     * fork/join task, the pool running that task.
+     * @param a the array to sort
+     * @param fromIndex the lowest index for the sort (inclusive)
+     * @param toIndex the highest index for the sort (exclusive)
+     * @param c the comparator used to determine the order of elements
+     *        in the sorted array
+     * @see java.util.concurrent.ForkJoinPool#commonPool()
+     */
+    public static void parallelSort(double[] a, int fromIndex, int toIndex,
+				    DoubleComparator c) {
+	if (c == null) Arrays.parallelSort(a, fromIndex, toIndex);
+	else PrimParallelSort.sort(a, fromIndex, toIndex, c);
+    }
 }
 //  LocalWords:  IntComparator indices fromIndex toIndex keyflag GPL
 //  LocalWords:  TimSort openJDK
@@ -0,0 +1,798 @@
+package org.bzdev.util;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel sorts of primitive arrays using a comparator.
+ * An array is split recursively into ranges that are sorted by the
+ * TimSort classes (e.g., {@link IntTimSort}) using the common
+ * fork/join pool, or the pool running the calling thread when the
+ * sort is called from a fork/join task.  Adjacent sorted ranges are
+ * then merged, with each merge split into independent merges of
+ * smaller ranges by finding the position of the middle element of the
+ * longer range in the shorter one.  When elements compare as equal, those from the
+ * range on the left are placed first, so the sort is stable.
+ * <P>
+ * The public API is provided by the parallelSort methods in
+ * {@link PrimArrays}.
+ */
+class PrimParallelSort {
+
+    // Arrays shorter than this are sorted sequentially.
+    static final int MIN_ARRAY_LENGTH = 1 << 13;
+
+    // Return the pool in which the current thread runs, or the
+    // common pool if the current thread is not a fork/join worker.
+    static ForkJoinPool pool() {
+	ForkJoinPool pool = ForkJoinTask.getPool();
+	return (pool == null)? ForkJoinPool.commonPool(): pool;
+    }
+
+    // Return the maximum length of a range that will not be split
+    // further, or 0 if the whole range should be sorted sequentially.
+    static int granularity(int n, ForkJoinPool pool) {
+	int p = pool.getParallelism();
+	if (n <= MIN_ARRAY_LENGTH || p <= 1) return 0;
+	return Math.max(n / (p << 2), MIN_ARRAY_LENGTH);
+    }
+
+    static void invoke(ForkJoinPool pool, ForkJoinTask<?> task) {
+	if (ForkJoinTask.inForkJoinPool()) {
+	    task.invoke();
+	} else {
+	    pool.invoke(task);
+	}
+    }
+
+    static void sort(int[] a, int lo, int hi, IntComparator c) {
+	IntTimSort.checkStartAndEnd(a.length, lo, hi);
+	int n = hi - lo;
+	ForkJoinPool pool = pool();
+	int g = granularity(n, pool);
+	if (g == 0) {
+	    IntTimSort.sort(a, lo, hi, c);
+	    return;
+	}
+	int[] w = new int[n];
+	invoke(pool, new IntSorter(a, w, lo, lo, hi, g, c));
+    }
+
+    private static final class IntSorter extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	int[] a;
+	int[] w;
+	int base;
+	int lo;
+	int hi;
+	int g;
+	IntComparator c;
+
+	IntSorter(int[] a, int[] w, int base, int lo, int hi, int g,
+		  IntComparator c)
+	{
+	    this.a = a; this.w = w; this.base = base;
+	    this.lo = lo; this.hi = hi; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo <= g) {
+		IntTimSort.sort(a, lo, hi, c);
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new IntSorter(a, w, base, lo, mid, g, c),
+		      new IntSorter(a, w, base, mid, hi, g, c));
+	    if (c.compare(a[mid-1], a[mid]) <= 0) return;
+	    System.arraycopy(a, lo, w, lo - base, hi - lo);
+	    new IntMerger(w, lo - base, mid - base, mid - base, hi - base,
+			  a, lo, g, c).compute();
+	}
+    }
+
+    private static final class IntMerger extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	int[] src;
+	int lo1, hi1, lo2, hi2;
+	int[] dst;
+	int dlo;
+	int g;
+	IntComparator c;
+
+	IntMerger(int[] src, int lo1, int hi1, int lo2, int hi2,
+		  int[] dst, int dlo, int g, IntComparator c)
+	{
+	    this.src = src;
+	    this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+	    this.dst = dst; this.dlo = dlo; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    int n1 = hi1 - lo1;
+	    int n2 = hi2 - lo2;
+	    if (n1 + n2 <= g || n1 == 0 || n2 == 0) {
+		int i = lo1, j = lo2, k = dlo;
+		while (i < hi1 && j < hi2) {
+		    dst[k++] = (c.compare(src[j], src[i]) < 0)?
+			src[j++]: src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		return;
+	    }
+	    int m1, m2;
+	    if (n1 >= n2) {
+		m1 = (lo1 + hi1) >>> 1;
+		int key = src[m1];
+		// first element of the second run not less than the key
+		int low = lo2, high = hi2;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) < 0) low = mid + 1;
+		    else high = mid;
+		}
+		m2 = low;
+	    } else {
+		m2 = (lo2 + hi2) >>> 1;
+		int key = src[m2];
+		// first element of the first run greater than the key
+		int low = lo1, high = hi1;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) <= 0) low = mid + 1;
+		    else high = mid;
+		}
+		m1 = low;
+	    }
+	    invokeAll(new IntMerger(src, lo1, m1, lo2, m2, dst, dlo, g, c),
+		      new IntMerger(src, m1, hi1, m2, hi2, dst,
+				    dlo + (m1 - lo1) + (m2 - lo2), g, c));
+	}
+    }
+
+    static void sort(byte[] a, int lo, int hi, ByteComparator c) {
+	ByteTimSort.checkStartAndEnd(a.length, lo, hi);
+	int n = hi - lo;
+	ForkJoinPool pool = pool();
+	int g = granularity(n, pool);
+	if (g == 0) {
+	    ByteTimSort.sort(a, lo, hi, c);
+	    return;
+	}
+	byte[] w = new byte[n];
+	invoke(pool, new ByteSorter(a, w, lo, lo, hi, g, c));
+    }
+
+    private static final class ByteSorter extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	byte[] a;
+	byte[] w;
+	int base;
+	int lo;
+	int hi;
+	int g;
+	ByteComparator c;
+
+	ByteSorter(byte[] a, byte[] w, int base, int lo, int hi, int g,
+		  ByteComparator c)
+	{
+	    this.a = a; this.w = w; this.base = base;
+	    this.lo = lo; this.hi = hi; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo <= g) {
+		ByteTimSort.sort(a, lo, hi, c);
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new ByteSorter(a, w, base, lo, mid, g, c),
+		      new ByteSorter(a, w, base, mid, hi, g, c));
+	    if (c.compare(a[mid-1], a[mid]) <= 0) return;
+	    System.arraycopy(a, lo, w, lo - base, hi - lo);
+	    new ByteMerger(w, lo - base, mid - base, mid - base, hi - base,
+			  a, lo, g, c).compute();
+	}
+    }
+
+    private static final class ByteMerger extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	byte[] src;
+	int lo1, hi1, lo2, hi2;
+	byte[] dst;
+	int dlo;
+	int g;
+	ByteComparator c;
+
+	ByteMerger(byte[] src, int lo1, int hi1, int lo2, int hi2,
+		  byte[] dst, int dlo, int g, ByteComparator c)
+	{
+	    this.src = src;
+	    this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+	    this.dst = dst; this.dlo = dlo; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    int n1 = hi1 - lo1;
+	    int n2 = hi2 - lo2;
+	    if (n1 + n2 <= g || n1 == 0 || n2 == 0) {
+		int i = lo1, j = lo2, k = dlo;
+		while (i < hi1 && j < hi2) {
+		    dst[k++] = (c.compare(src[j], src[i]) < 0)?
+			src[j++]: src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		return;
+	    }
+	    int m1, m2;
+	    if (n1 >= n2) {
+		m1 = (lo1 + hi1) >>> 1;
+		byte key = src[m1];
+		// first element of the second run not less than the key
+		int low = lo2, high = hi2;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) < 0) low = mid + 1;
+		    else high = mid;
+		}
+		m2 = low;
+	    } else {
+		m2 = (lo2 + hi2) >>> 1;
+		byte key = src[m2];
+		// first element of the first run greater than the key
+		int low = lo1, high = hi1;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) <= 0) low = mid + 1;
+		    else high = mid;
+		}
+		m1 = low;
+	    }
+	    invokeAll(new ByteMerger(src, lo1, m1, lo2, m2, dst, dlo, g, c),
+		      new ByteMerger(src, m1, hi1, m2, hi2, dst,
+				    dlo + (m1 - lo1) + (m2 - lo2), g, c));
+	}
+    }
+
+    static void sort(char[] a, int lo, int hi, CharComparator c) {
+	CharTimSort.checkStartAndEnd(a.length, lo, hi);
+	int n = hi - lo;
+	ForkJoinPool pool = pool();
+	int g = granularity(n, pool);
+	if (g == 0) {
+	    CharTimSort.sort(a, lo, hi, c);
+	    return;
+	}
+	char[] w = new char[n];
+	invoke(pool, new CharSorter(a, w, lo, lo, hi, g, c));
+    }
+
+    private static final class CharSorter extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	char[] a;
+	char[] w;
+	int base;
+	int lo;
+	int hi;
+	int g;
+	CharComparator c;
+
+	CharSorter(char[] a, char[] w, int base, int lo, int hi, int g,
+		  CharComparator c)
+	{
+	    this.a = a; this.w = w; this.base = base;
+	    this.lo = lo; this.hi = hi; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo <= g) {
+		CharTimSort.sort(a, lo, hi, c);
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new CharSorter(a, w, base, lo, mid, g, c),
+		      new CharSorter(a, w, base, mid, hi, g, c));
+	    if (c.compare(a[mid-1], a[mid]) <= 0) return;
+	    System.arraycopy(a, lo, w, lo - base, hi - lo);
+	    new CharMerger(w, lo - base, mid - base, mid - base, hi - base,
+			  a, lo, g, c).compute();
+	}
+    }
+
+    private static final class CharMerger extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	char[] src;
+	int lo1, hi1, lo2, hi2;
+	char[] dst;
+	int dlo;
+	int g;
+	CharComparator c;
+
+	CharMerger(char[] src, int lo1, int hi1, int lo2, int hi2,
+		  char[] dst, int dlo, int g, CharComparator c)
+	{
+	    this.src = src;
+	    this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+	    this.dst = dst; this.dlo = dlo; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    int n1 = hi1 - lo1;
+	    int n2 = hi2 - lo2;
+	    if (n1 + n2 <= g || n1 == 0 || n2 == 0) {
+		int i = lo1, j = lo2, k = dlo;
+		while (i < hi1 && j < hi2) {
+		    dst[k++] = (c.compare(src[j], src[i]) < 0)?
+			src[j++]: src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		return;
+	    }
+	    int m1, m2;
+	    if (n1 >= n2) {
+		m1 = (lo1 + hi1) >>> 1;
+		char key = src[m1];
+		// first element of the second run not less than the key
+		int low = lo2, high = hi2;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) < 0) low = mid + 1;
+		    else high = mid;
+		}
+		m2 = low;
+	    } else {
+		m2 = (lo2 + hi2) >>> 1;
+		char key = src[m2];
+		// first element of the first run greater than the key
+		int low = lo1, high = hi1;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) <= 0) low = mid + 1;
+		    else high = mid;
+		}
+		m1 = low;
+	    }
+	    invokeAll(new CharMerger(src, lo1, m1, lo2, m2, dst, dlo, g, c),
+		      new CharMerger(src, m1, hi1, m2, hi2, dst,
+				    dlo + (m1 - lo1) + (m2 - lo2), g, c));
+	}
+    }
+
+    static void sort(short[] a, int lo, int hi, ShortComparator c) {
+	ShortTimSort.checkStartAndEnd(a.length, lo, hi);
+	int n = hi - lo;
+	ForkJoinPool pool = pool();
+	int g = granularity(n, pool);
+	if (g == 0) {
+	    ShortTimSort.sort(a, lo, hi, c);
+	    return;
+	}
+	short[] w = new short[n];
+	invoke(pool, new ShortSorter(a, w, lo, lo, hi, g, c));
+    }
+
+    private static final class ShortSorter extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	short[] a;
+	short[] w;
+	int base;
+	int lo;
+	int hi;
+	int g;
+	ShortComparator c;
+
+	ShortSorter(short[] a, short[] w, int base, int lo, int hi, int g,
+		  ShortComparator c)
+	{
+	    this.a = a; this.w = w; this.base = base;
+	    this.lo = lo; this.hi = hi; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo <= g) {
+		ShortTimSort.sort(a, lo, hi, c);
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new ShortSorter(a, w, base, lo, mid, g, c),
+		      new ShortSorter(a, w, base, mid, hi, g, c));
+	    if (c.compare(a[mid-1], a[mid]) <= 0) return;
+	    System.arraycopy(a, lo, w, lo - base, hi - lo);
+	    new ShortMerger(w, lo - base, mid - base, mid - base, hi - base,
+			  a, lo, g, c).compute();
+	}
+    }
+
+    private static final class ShortMerger extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	short[] src;
+	int lo1, hi1, lo2, hi2;
+	short[] dst;
+	int dlo;
+	int g;
+	ShortComparator c;
+
+	ShortMerger(short[] src, int lo1, int hi1, int lo2, int hi2,
+		  short[] dst, int dlo, int g, ShortComparator c)
+	{
+	    this.src = src;
+	    this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+	    this.dst = dst; this.dlo = dlo; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    int n1 = hi1 - lo1;
+	    int n2 = hi2 - lo2;
+	    if (n1 + n2 <= g || n1 == 0 || n2 == 0) {
+		int i = lo1, j = lo2, k = dlo;
+		while (i < hi1 && j < hi2) {
+		    dst[k++] = (c.compare(src[j], src[i]) < 0)?
+			src[j++]: src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		return;
+	    }
+	    int m1, m2;
+	    if (n1 >= n2) {
+		m1 = (lo1 + hi1) >>> 1;
+		short key = src[m1];
+		// first element of the second run not less than the key
+		int low = lo2, high = hi2;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) < 0) low = mid + 1;
+		    else high = mid;
+		}
+		m2 = low;
+	    } else {
+		m2 = (lo2 + hi2) >>> 1;
+		short key = src[m2];
+		// first element of the first run greater than the key
+		int low = lo1, high = hi1;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) <= 0) low = mid + 1;
+		    else high = mid;
+		}
+		m1 = low;
+	    }
+	    invokeAll(new ShortMerger(src, lo1, m1, lo2, m2, dst, dlo, g, c),
+		      new ShortMerger(src, m1, hi1, m2, hi2, dst,
+				    dlo + (m1 - lo1) + (m2 - lo2), g, c));
+	}
+    }
+
+    static void sort(long[] a, int lo, int hi, LongComparator c) {
+	LongTimSort.checkStartAndEnd(a.length, lo, hi);
+	int n = hi - lo;
+	ForkJoinPool pool = pool();
+	int g = granularity(n, pool);
+	if (g == 0) {
+	    LongTimSort.sort(a, lo, hi, c);
+	    return;
+	}
+	long[] w = new long[n];
+	invoke(pool, new LongSorter(a, w, lo, lo, hi, g, c));
+    }
+
+    private static final class LongSorter extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	long[] a;
+	long[] w;
+	int base;
+	int lo;
+	int hi;
+	int g;
+	LongComparator c;
+
+	LongSorter(long[] a, long[] w, int base, int lo, int hi, int g,
+		  LongComparator c)
+	{
+	    this.a = a; this.w = w; this.base = base;
+	    this.lo = lo; this.hi = hi; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo <= g) {
+		LongTimSort.sort(a, lo, hi, c);
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new LongSorter(a, w, base, lo, mid, g, c),
+		      new LongSorter(a, w, base, mid, hi, g, c));
+	    if (c.compare(a[mid-1], a[mid]) <= 0) return;
+	    System.arraycopy(a, lo, w, lo - base, hi - lo);
+	    new LongMerger(w, lo - base, mid - base, mid - base, hi - base,
+			  a, lo, g, c).compute();
+	}
+    }
+
+    private static final class LongMerger extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	long[] src;
+	int lo1, hi1, lo2, hi2;
+	long[] dst;
+	int dlo;
+	int g;
+	LongComparator c;
+
+	LongMerger(long[] src, int lo1, int hi1, int lo2, int hi2,
+		  long[] dst, int dlo, int g, LongComparator c)
+	{
+	    this.src = src;
+	    this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+	    this.dst = dst; this.dlo = dlo; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    int n1 = hi1 - lo1;
+	    int n2 = hi2 - lo2;
+	    if (n1 + n2 <= g || n1 == 0 || n2 == 0) {
+		int i = lo1, j = lo2, k = dlo;
+		while (i < hi1 && j < hi2) {
+		    dst[k++] = (c.compare(src[j], src[i]) < 0)?
+			src[j++]: src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		return;
+	    }
+	    int m1, m2;
+	    if (n1 >= n2) {
+		m1 = (lo1 + hi1) >>> 1;
+		long key = src[m1];
+		// first element of the second run not less than the key
+		int low = lo2, high = hi2;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) < 0) low = mid + 1;
+		    else high = mid;
+		}
+		m2 = low;
+	    } else {
+		m2 = (lo2 + hi2) >>> 1;
+		long key = src[m2];
+		// first element of the first run greater than the key
+		int low = lo1, high = hi1;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) <= 0) low = mid + 1;
+		    else high = mid;
+		}
+		m1 = low;
+	    }
+	    invokeAll(new LongMerger(src, lo1, m1, lo2, m2, dst, dlo, g, c),
+		      new LongMerger(src, m1, hi1, m2, hi2, dst,
+				    dlo + (m1 - lo1) + (m2 - lo2), g, c));
+	}
+    }
+
+    static void sort(float[] a, int lo, int hi, FloatComparator c) {
+	FloatTimSort.checkStartAndEnd(a.length, lo, hi);
+	int n = hi - lo;
+	ForkJoinPool pool = pool();
+	int g = granularity(n, pool);
+	if (g == 0) {
+	    FloatTimSort.sort(a, lo, hi, c);
+	    return;
+	}
+	float[] w = new float[n];
+	invoke(pool, new FloatSorter(a, w, lo, lo, hi, g, c));
+    }
+
+    private static final class FloatSorter extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	float[] a;
+	float[] w;
+	int base;
+	int lo;
+	int hi;
+	int g;
+	FloatComparator c;
+
+	FloatSorter(float[] a, float[] w, int base, int lo, int hi, int g,
+		  FloatComparator c)
+	{
+	    this.a = a; this.w = w; this.base = base;
+	    this.lo = lo; this.hi = hi; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo <= g) {
+		FloatTimSort.sort(a, lo, hi, c);
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new FloatSorter(a, w, base, lo, mid, g, c),
+		      new FloatSorter(a, w, base, mid, hi, g, c));
+	    if (c.compare(a[mid-1], a[mid]) <= 0) return;
+	    System.arraycopy(a, lo, w, lo - base, hi - lo);
+	    new FloatMerger(w, lo - base, mid - base, mid - base, hi - base,
+			  a, lo, g, c).compute();
+	}
+    }
+
+    private static final class FloatMerger extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	float[] src;
+	int lo1, hi1, lo2, hi2;
+	float[] dst;
+	int dlo;
+	int g;
+	FloatComparator c;
+
+	FloatMerger(float[] src, int lo1, int hi1, int lo2, int hi2,
+		  float[] dst, int dlo, int g, FloatComparator c)
+	{
+	    this.src = src;
+	    this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+	    this.dst = dst; this.dlo = dlo; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    int n1 = hi1 - lo1;
+	    int n2 = hi2 - lo2;
+	    if (n1 + n2 <= g || n1 == 0 || n2 == 0) {
+		int i = lo1, j = lo2, k = dlo;
+		while (i < hi1 && j < hi2) {
+		    dst[k++] = (c.compare(src[j], src[i]) < 0)?
+			src[j++]: src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		return;
+	    }
+	    int m1, m2;
+	    if (n1 >= n2) {
+		m1 = (lo1 + hi1) >>> 1;
+		float key = src[m1];
+		// first element of the second run not less than the key
+		int low = lo2, high = hi2;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) < 0) low = mid + 1;
+		    else high = mid;
+		}
+		m2 = low;
+	    } else {
+		m2 = (lo2 + hi2) >>> 1;
+		float key = src[m2];
+		// first element of the first run greater than the key
+		int low = lo1, high = hi1;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) <= 0) low = mid + 1;
+		    else high = mid;
+		}
+		m1 = low;
+	    }
+	    invokeAll(new FloatMerger(src, lo1, m1, lo2, m2, dst, dlo, g, c),
+		      new FloatMerger(src, m1, hi1, m2, hi2, dst,
+				    dlo + (m1 - lo1) + (m2 - lo2), g, c));
+	}
+    }
+
+    static void sort(double[] a, int lo, int hi, DoubleComparator c) {
+	DoubleTimSort.checkStartAndEnd(a.length, lo, hi);
+	int n = hi - lo;
+	ForkJoinPool pool = pool();
+	int g = granularity(n, pool);
+	if (g == 0) {
+	    DoubleTimSort.sort(a, lo, hi, c);
+	    return;
+	}
+	double[] w = new double[n];
+	invoke(pool, new DoubleSorter(a, w, lo, lo, hi, g, c));
+    }
+
+    private static final class DoubleSorter extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	double[] a;
+	double[] w;
+	int base;
+	int lo;
+	int hi;
+	int g;
+	DoubleComparator c;
+
+	DoubleSorter(double[] a, double[] w, int base, int lo, int hi, int g,
+		  DoubleComparator c)
+	{
+	    this.a = a; this.w = w; this.base = base;
+	    this.lo = lo; this.hi = hi; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo <= g) {
+		DoubleTimSort.sort(a, lo, hi, c);
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new DoubleSorter(a, w, base, lo, mid, g, c),
+		      new DoubleSorter(a, w, base, mid, hi, g, c));
+	    if (c.compare(a[mid-1], a[mid]) <= 0) return;
+	    System.arraycopy(a, lo, w, lo - base, hi - lo);
+	    new DoubleMerger(w, lo - base, mid - base, mid - base, hi - base,
+			  a, lo, g, c).compute();
+	}
+    }
+
+    private static final class DoubleMerger extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	double[] src;
+	int lo1, hi1, lo2, hi2;
+	double[] dst;
+	int dlo;
+	int g;
+	DoubleComparator c;
+
+	DoubleMerger(double[] src, int lo1, int hi1, int lo2, int hi2,
+		  double[] dst, int dlo, int g, DoubleComparator c)
+	{
+	    this.src = src;
+	    this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+	    this.dst = dst; this.dlo = dlo; this.g = g; this.c = c;
+	}
+
+	@Override
+	protected void compute() {
+	    int n1 = hi1 - lo1;
+	    int n2 = hi2 - lo2;
+	    if (n1 + n2 <= g || n1 == 0 || n2 == 0) {
+		int i = lo1, j = lo2, k = dlo;
+		while (i < hi1 && j < hi2) {
+		    dst[k++] = (c.compare(src[j], src[i]) < 0)?
+			src[j++]: src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		return;
+	    }
+	    int m1, m2;
+	    if (n1 >= n2) {
+		m1 = (lo1 + hi1) >>> 1;
+		double key = src[m1];
+		// first element of the second run not less than the key
+		int low = lo2, high = hi2;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) < 0) low = mid + 1;
+		    else high = mid;
+		}
+		m2 = low;
+	    } else {
+		m2 = (lo2 + hi2) >>> 1;
+		double key = src[m2];
+		// first element of the first run greater than the key
+		int low = lo1, high = hi1;
+		while (low < high) {
+		    int mid = (low + high) >>> 1;
+		    if (c.compare(src[mid], key) <= 0) low = mid + 1;
+		    else high = mid;
+		}
+		m1 = low;
+	    }
+	    invokeAll(new DoubleMerger(src, lo1, m1, lo2, m2, dst, dlo, g, c),
+		      new DoubleMerger(src, m1, hi1, m2, hi2, dst,
+				    dlo + (m1 - lo1) + (m2 - lo2), g, c));
+	}
+    }
+}
+
+//  LocalWords:  TimSort parallelSort
@@ -1,5 +1,6 @@
 package org.bzdev.util;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.*;
 import java.io.File;
 import java.io.OutputStream;
@@ -9,6 +10,7 @@ import java.io.UnsupportedEncodingException;
 import java.io.FileNotFoundException;
 import java.io.Closeable;
 import java.io.Flushable;
+import org.bzdev.lang.UnexpectedExceptionError;
 
 
 /**
@@ -582,6 +584,211 @@ public final class SafeFormatter {
 	return format(formatter.locale(), format, args);
     }
 
+    /**
+     * A format string that has been parsed so that it can be used
+     * repeatedly.
+     * Instances are created by calling {@link SafeFormatter#compile(String)}
+     * or {@link SafeFormatter#compile(Locale,String)}, are immutable, and
+     * may be used by multiple threads concurrently.
+     * <P>
+     * Formatting is fail-safe in the same sense as
+     * {@link SafeFormatter#format(Locale,String,Object...)}, but
+     * failures are handled one directive at a time: if a directive's
+     * argument cannot be formatted, that directive alone is replaced by a
+     * "%s" directive using the same argument.  Literal text, and "%s" and
+     * "%d" directives without flags, a width, or a precision, are
+     * appended to the destination directly.  An exception is thrown
+     * if there are too few arguments, in which case the output may have
+     * been partially written.
+     */
+    public static final class Compiled {
+	private final String format;
+	private final Locale locale;
+	private final FormatSpec[] specs;
+	private final boolean asciiDigits;
+
+	Compiled(Locale l, String format) {
+	    this.format = format;
+	    this.locale = l;
+	    this.specs = FormatSpec.parse(format);
+	    this.asciiDigits = FormatSpec.usesASCIIDigits(l);
+	}
+
+	/**
+	 * Get the format string used to create this object.
+	 * @return the format string
+	 */
+	public String getFormat() {
+	    return format;
+	}
+
+	/**
+	 * Get the locale used by this object.
+	 * @return {@code null} if no localization is applied, otherwise a
+	 *          locale
+	 */
+	public Locale locale() {
+	    return locale;
+	}
+
+	/**
+	 * Format arguments, appending the results to an {@link Appendable}.
+	 * @param a the destination for the formatted output
+	 * @param args the arguments referenced by the format specifiers
+	 * @return the destination
+	 * @exception IOException an IO error occurred
+	 * @exception MissingFormatArgumentException there are fewer
+	 *            arguments than the format string requires
+	 */
+	public <A extends Appendable> A formatTo(A a, Object... args)
+	    throws IOException, MissingFormatArgumentException
+	{
+	    Formatter f = null;
+	    for (FormatSpec s: specs) {
+		if (s.text != null) {
+		    a.append(s.text);
+		    continue;
+		}
+		if (f == null) f = new Formatter(a, locale);
+		if (s.argIndex < 0) {
+		    f.format(locale, s.spec);
+		    continue;
+		}
+		Object arg = s.getArg(args);
+		if (s.plain && s.appendPlain(a, arg, asciiDigits)) continue;
+		try {
+		    f.format(locale, s.spec, arg);
+		} catch (IllegalFormatException e) {
+		    f.format(locale, "%s", arg);
+		}
+	    }
+	    if (f != null && f.ioException() != null) {
+		throw f.ioException();
+	    }
+	    return a;
+	}
+
+	/**
+	 * Format arguments, returning a string.
+	 * A per-thread buffer is reused so that the only object allocated
+	 * for a typical call is the string that is returned.
+	 * @param args the arguments referenced by the format specifiers
+	 * @return the formatted string
+	 * @exception MissingFormatArgumentException there are fewer
+	 *            arguments than the format string requires
+	 */
+	public String format(Object... args)
+	    throws MissingFormatArgumentException
+	{
+	    StringBuilder sb = buffer.get();
+	    if (sb == null) {
+		// none yet, or in use by a format call that is calling
+		// this method recursively (e.g., from a toString method)
+		sb = new StringBuilder();
+	    } else {
+		buffer.set(null);
+	    }
+	    try {
+		formatTo(sb, args);
+		return sb.toString();
+	    } catch (IOException e) {
+		// a StringBuilder does not throw IOExceptions
+		throw new UnexpectedExceptionError(e);
+	    } finally {
+		sb.setLength(0);
+		if (sb.capacity() > MAX_BUFFER_CAPACITY) sb.trimToSize();
+		buffer.set(sb);
+	    }
+	}
+
+	/**
+	 * Get the format string used to create this object.
+	 * @return the format string
+	 */
+	@Override
+	public String toString() {
+	    return format;
+	}
+    }
+
+    private static final int MAX_BUFFER_CAPACITY = 1024;
+    private static final ThreadLocal<StringBuilder> buffer =
+	new ThreadLocal<>();
+
+    /**
+     * Compile a format string, using the default locale.
+     * The locale is the one returned by
+     * {@link Locale#getDefault(Locale.Category)
+     * Locale.getDefault(Locale.Category.FORMAT)}
+     * when this method is called.
+     * @param format a format string as described in
+     *        {@link java.util.Formatter Formatter}
+     * @return the compiled format
+     * @exception IllegalFormatException the format string contained a
+     *            directive with a syntax error
+     */
+    public static Compiled compile(String format)
+	throws IllegalFormatException
+    {
+	return new Compiled(Locale.getDefault(Locale.Category.FORMAT),
+			    format);
+    }
+
+    /**
+     * Compile a format string, using a specified locale.
+     * @param  l
+     *         The {@linkplain java.util.Locale locale} to apply during
+     *         formatting.  If {@code l} is {@code null} then no localization
+     *         is applied.
+     * @param format a format string as described in
+     *        {@link java.util.Formatter Formatter}
+     * @return the compiled format
+     * @exception IllegalFormatException the format string contained a
+     *            directive with a syntax error
+     */
+    public static Compiled compile(Locale l, String format)
+	throws IllegalFormatException
+    {
+	return new Compiled(l, format);
+    }
+
+    private static final int CACHE_LIMIT = 512;
+    private static final ConcurrentHashMap<String,Compiled> cache =
+	new ConcurrentHashMap<>();
+
+    /**
+     * Format a message, returning a string.
+     * This is intended for messages such as localized exception
+     * messages that use a relatively small number of format strings
+     * (for example, ones obtained from resource bundles), and is
+     * equivalent to
+     * <BLOCKQUOTE><PRE>
+     *   SafeFormatter.compile(format).format(args)
+     * </PRE></BLOCKQUOTE>
+     * except that compiled formats are cached and the default locale is
+     * the one in effect when this method is called.
+     * @param format a format string as described in
+     *        {@link java.util.Formatter Formatter}
+     * @param args the arguments referenced by the format specifiers
+     * @return the formatted message
+     * @exception IllegalFormatException the format string contained a
+     *            directive with a syntax error or there were too few
+     *            arguments
+     * @see Compiled
+     */
+    public static String formatMessage(String format, Object... args)
+	throws IllegalFormatException
+    {
+	Locale l = Locale.getDefault(Locale.Category.FORMAT);
+	Compiled compiled = cache.get(format);
+	if (compiled == null || !l.equals(compiled.locale)) {
+	    compiled = new Compiled(l, format);
+	    if (cache.size() >= CACHE_LIMIT) cache.clear();
+	    cache.put(format, compiled);
+	}
+	return compiled.format(args);
+    }
+
     /**
      * Returns the {@code IOException} last thrown by this formatter's {@link
      * Appendable}.
@@ -660,3 +867,4 @@ public final class SafeFormatter {
 //  LocalWords:  HIklMSLNpzZsQBbhAaCYyjmdeRTrDFc formatter's
 //  LocalWords:  IllegalFormatException Appendable blockquote
 //  LocalWords:  lastRebootDate
+//  LocalWords:  MissingFormatArgumentException args formatTo
@@ -1,5 +1,6 @@
 package org.bzdev.util;
 import org.bzdev.lang.MathOps;
+import org.bzdev.lang.UnexpectedExceptionError;
 import java.lang.reflect.Array;
 import java.util.regex.*;
 import java.math.BigDecimal;
@@ -1131,6 +1132,235 @@ public final class SciFormatter implements Closeable, Flushable {
 	return format(formatter.locale(), format, args);
     }
 
+    /**
+     * A format string that has been parsed so that it can be used
+     * repeatedly.
+     * Instances are created by calling one of the compile methods
+     * (e.g., {@link SciFormatter#compile(String)}), are immutable, and
+     * may be used by multiple threads concurrently.
+     * The output is the same as that produced by
+     * {@link SciFormatter#format(Locale,String,Object...)} for a
+     * formatter with the same locale and strict mode, but the format
+     * string is parsed only once. Literal text, and "%s" and "%d"
+     * directives without flags, a width, or a precision, are appended
+     * to the destination directly. As with {@link java.util.Formatter},
+     * the output may have been partially written when an exception is
+     * thrown.
+     */
+    public static final class Compiled {
+	private final String format;
+	private final Locale locale;
+	private final boolean nonstrict;
+	private final FormatSpec[] specs;
+	// directives used when an argument is replaced with an
+	// instance of OurDouble or OurZeroDouble
+	private final String[] sspecs;
+	private final boolean asciiDigits;
+
+	Compiled(Locale l, String format, boolean strict) {
+	    this.format = format;
+	    this.locale = l;
+	    this.nonstrict = !strict;
+	    this.specs = FormatSpec.parse(format, true);
+	    this.asciiDigits = FormatSpec.usesASCIIDigits(l);
+	    sspecs = new String[specs.length];
+	    for (int i = 0; i < specs.length; i++) {
+		FormatSpec s = specs[i];
+		if (s.text != null) continue;
+		switch (s.conversion) {
+		case 'e':
+		case 'E':
+		    sspecs[i] = "%" + s.flags.replace("#", "")
+			+ s.widthPrecision + ((s.conversion == 'E')? "S": "s");
+		    break;
+		case 'g':
+		case 'G':
+		    sspecs[i] = "%" + s.flags + s.widthPrecision
+			+ ((s.conversion == 'G')? "S": "s");
+		    break;
+		}
+	    }
+	}
+
+	/**
+	 * Get the format string used to create this object.
+	 * @return the format string
+	 */
+	public String getFormat() {
+	    return format;
+	}
+
+	/**
+	 * Get the locale used by this object.
+	 * @return {@code null} if no localization is applied, otherwise a
+	 *          locale
+	 */
+	public Locale locale() {
+	    return locale;
+	}
+
+	/**
+	 * Get strict mode.
+	 * @return true if strict mode is on; false if it is off.
+	 * @see SciFormatter#getStrictMode()
+	 */
+	public boolean getStrictMode() {
+	    return !nonstrict;
+	}
+
+	/**
+	 * Format arguments, appending the results to an {@link Appendable}.
+	 * @param a the destination for the formatted output
+	 * @param args the arguments referenced by the format specifiers
+	 * @return the destination
+	 * @exception IOException an IO error occurred
+	 * @exception IllegalFormatException a format specifier was
+	 *            incompatible with its argument or there were too few
+	 *            arguments
+	 */
+	public <A extends Appendable> A formatTo(A a, Object... args)
+	    throws IOException, IllegalFormatException
+	{
+	    Formatter f = null;
+	    for (int i = 0; i < specs.length; i++) {
+		FormatSpec s = specs[i];
+		if (s.text != null) {
+		    a.append(s.text);
+		    continue;
+		}
+		if (f == null) f = new Formatter(a, locale);
+		if (s.argIndex < 0) {
+		    f.format(locale, s.spec);
+		    continue;
+		}
+		Object arg = s.getArg(args);
+		String spec = s.spec;
+		switch (s.conversion) {
+		case 'd':
+		case 'o':
+		case 'x':
+		case 'X':
+		    if (nonstrict && arg instanceof Double) {
+			double x = (Double) arg;
+			long ix = Math.round(x);
+			if (x == (double) ix) arg = Long.valueOf(ix);
+		    }
+		    break;
+		case 'e':
+		case 'E':
+		case 'g':
+		case 'G':
+		    if (arg instanceof Number) {
+			double x = ((Number) arg).doubleValue();
+			if (s.flags.indexOf('#') != -1) {
+			    arg = new OurDouble(locale, x);
+			    spec = sspecs[i];
+			} else if (USING_JAVA7 && x == 0.0) {
+			    arg = new OurZeroDouble(locale,
+						    s.conversion == 'g'
+						    || s.conversion == 'G');
+			    spec = sspecs[i];
+			} else if (!(arg instanceof Double)) {
+			    arg = Double.valueOf(x);
+			}
+		    }
+		    break;
+		}
+		if (s.plain && s.appendPlain(a, arg, asciiDigits)) continue;
+		f.format(locale, spec, arg);
+	    }
+	    if (f != null && f.ioException() != null) {
+		throw f.ioException();
+	    }
+	    return a;
+	}
+
+	/**
+	 * Format arguments, returning a string.
+	 * @param args the arguments referenced by the format specifiers
+	 * @return the formatted string
+	 * @exception IllegalFormatException a format specifier was
+	 *            incompatible with its argument or there were too few
+	 *            arguments
+	 */
+	public String format(Object... args) throws IllegalFormatException {
+	    try {
+		return formatTo(new StringBuilder(), args).toString();
+	    } catch (IOException e) {
+		// a StringBuilder does not throw IOExceptions
+		throw new UnexpectedExceptionError(e);
+	    }
+	}
+
+	/**
+	 * Get the format string used to create this object.
+	 * @return the format string
+	 */
+	@Override
+	public String toString() {
+	    return format;
+	}
+    }
+
+    /**
+     * Compile a format string, using the default locale and with
+     * strict mode turned off.
+     * The locale is the one returned by
+     * {@link Locale#getDefault(Locale.Category)
+     * Locale.getDefault(Locale.Category.FORMAT)}
+     * when this method is called.
+     * @param format a format string as described in
+     *        {@link java.util.Formatter Formatter}
+     * @return the compiled format
+     * @exception IllegalFormatException the format string contained a
+     *            directive with a syntax error
+     */
+    public static Compiled compile(String format)
+	throws IllegalFormatException
+    {
+	return new Compiled(Locale.getDefault(Locale.Category.FORMAT),
+			    format, false);
+    }
+
+    /**
+     * Compile a format string, using a specified locale and with
+     * strict mode turned off.
+     * @param  l
+     *         The {@linkplain java.util.Locale locale} to apply during
+     *         formatting.  If {@code l} is {@code null} then no localization
+     *         is applied.
+     * @param format a format string as described in
+     *        {@link java.util.Formatter Formatter}
+     * @return the compiled format
+     * @exception IllegalFormatException the format string contained a
+     *            directive with a syntax error
+     */
+    public static Compiled compile(Locale l, String format)
+	throws IllegalFormatException
+    {
+	return new Compiled(l, format, false);
+    }
+
+    /**
+     * Compile a format string, using a specified locale and strict mode.
+     * @param  l
+     *         The {@linkplain java.util.Locale locale} to apply during
+     *         formatting.  If {@code l} is {@code null} then no localization
+     *         is applied.
+     * @param format a format string as described in
+     *        {@link java.util.Formatter Formatter}
+     * @param strict true if strict mode is on; false if it is off
+     * @return the compiled format
+     * @exception IllegalFormatException the format string contained a
+     *            directive with a syntax error
+     * @see #setStrictMode(boolean)
+     */
+    public static Compiled compile(Locale l, String format, boolean strict)
+	throws IllegalFormatException
+    {
+	return new Compiled(l, format, strict);
+    }
+
 
     /**
      * Writes a formatted string to this object's destination using the
@@ -2196,3 +2426,4 @@ public final class SciFormatter implements Closeable, Flushable {
 //  LocalWords:  ioException FormatterClosedException zA args newargs
 //  LocalWords:  IllegalFormatException argIndex OurDouble arg pre tc
 //  LocalWords:  IOException formatter's Appendable lastRebootDate
+//  LocalWords:  OurZeroDouble formatTo
@@ -1,6 +1,14 @@
 package org.bzdev.util;
 import org.bzdev.lang.MathOps;
+import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -352,6 +360,300 @@ public abstract class SuffixArray {
 	}
     }
 
+    // Suffix arrays shorter than this are processed by a single thread.
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * Task that processes a range of indices.
+     */
+    @FunctionalInterface
+    interface RangeTask {
+	/**
+	 * Process a range of indices.
+	 * @param start the first index in the range
+	 * @param end one more than the last index in the range
+	 */
+	void run(int start, int end);
+    }
+
+    // Split [0, n) into nthreads ranges, processed concurrently by
+    // nthreads-1 new threads and the current thread.
+    static void parallelFor(int nthreads, int n, RangeTask task) {
+	if (nthreads > n) nthreads = Math.max(n, 1);
+	if (nthreads < 2) {
+	    task.run(0, n);
+	    return;
+	}
+	int nt = nthreads - 1;
+	Thread[] threads = new Thread[nt];
+	RuntimeException[] errors = new RuntimeException[nthreads];
+	for (int i = 0; i < nt; i++) {
+	    final int index = i;
+	    final int start = (int)(((long)n * i) / nthreads);
+	    final int end = (int)(((long)n * (i+1)) / nthreads);
+	    threads[i] = new Thread(() -> {
+		    try {
+			task.run(start, end);
+		    } catch (RuntimeException e) {
+			errors[index] = e;
+		    }
+	    });
+	    threads[i].start();
+	}
+	try {
+	    task.run((int)(((long)n * nt) / nthreads), n);
+	} catch (RuntimeException e) {
+	    errors[nt] = e;
+	}
+	boolean interrupted = false;
+	for (Thread thread: threads) {
+	    for (;;) {
+		try {
+		    thread.join();
+		    break;
+		} catch (InterruptedException e) {
+		    interrupted = true;
+		}
+	    }
+	}
+	if (interrupted) Thread.currentThread().interrupt();
+	for (RuntimeException e: errors) {
+	    if (e != null) throw e;
+	}
+    }
+
+    /**
+     * Get the inverse mapping for this suffix array, using multiple
+     * threads.
+     * The value returned is the same as the value returned by
+     * {@link #getInverse()}.
+     * @param nthreads the number of threads to use
+     * @return the inverse mapping
+     * @see #getInverse()
+     */
+    public synchronized int[] getInverse(int nthreads) {
+	int[] existing = rank;
+	if (existing == null) {
+	    if (nthreads < 2 || array.length < PARALLEL_THRESHOLD) {
+		return getInverse();
+	    }
+	    int[] result = new int[array.length];
+	    // array is a permutation, so each thread sets distinct
+	    // elements of result
+	    parallelFor(nthreads, array.length, (start, end) -> {
+		    for (int i = start; i < end; i++) {
+			result[array[i]] = i;
+		    }
+		});
+	    existing = result;
+	}
+	return existing;
+    }
+
+    /**
+     * Get the LCP array corresponding to this suffix array, using
+     * multiple threads.
+     * The value returned is the same as the value returned by
+     * {@link #getLCP()}.  The sequence is split into contiguous
+     * blocks, one per thread, and the algorithm by Kasai et al. is
+     * applied to the suffixes starting in each block, so that some
+     * work is repeated at the start of each block.
+     * @param nthreads the number of threads to use
+     * @return the LCP array
+     * @see #getLCP()
+     */
+    public synchronized int[] getLCP(int nthreads) {
+	if (lcpArray != null) return lcpArray;
+	if (nthreads < 2 || array.length < PARALLEL_THRESHOLD) {
+	    return getLCP();
+	}
+	int[] ourRank = getInverse(nthreads);
+	int[] ourlcpArray = new int[array.length];
+	ourlcpArray[0] = -1; // signal that no valid entry exists.
+	int n = array.length - 1;
+	// rank is a permutation, so each thread sets distinct elements
+	// of ourlcpArray.
+	parallelFor(nthreads, n, (start, end) -> {
+		int k = 0;
+		for (int i = start; i < end; i++) {
+		    int r = ourRank[i];
+		    if (r == n) {
+			k = 0;
+			continue;
+		    }
+		    int j = array[r+1];
+		    k += commonPrefixLength(i+k, j+k);
+		    ourlcpArray[r+1] = k;
+		    if (k > 0) k--;
+		}
+	    });
+	return ourlcpArray;
+    }
+
+    /**
+     * Configure this suffix array to use an LCP (Longest Common Prefix)
+     * table, computing the table with multiple threads.
+     * @param nthreads the number of threads to use
+     * @see #useLCP()
+     * @see #getLCP(int)
+     */
+    public synchronized void useLCP(int nthreads) {
+	lcpArray = getLCP(nthreads);
+    }
+
+    // "BZSA" in ASCII
+    private static final int SAVE_MAGIC = 0x425A5341;
+    private static final int SAVE_VERSION = 1;
+    private static final int SAVE_HEADER_SIZE = 16;
+    private static final int SAVE_HAS_LCP = 1;
+    // bytes per block when reading or writing saved arrays.
+    private static final int SAVE_BLOCK = 1 << 26;
+
+    private static void writeInts(FileChannel fc, int[] ints,
+				  ByteBuffer bbuf)
+	throws IOException
+    {
+	bbuf.clear();
+	IntBuffer ibuf = bbuf.asIntBuffer();
+	int offset = 0;
+	while (offset < ints.length) {
+	    int n = Math.min(ibuf.capacity(), ints.length - offset);
+	    ibuf.clear();
+	    ibuf.put(ints, offset, n);
+	    bbuf.clear();
+	    bbuf.limit(4*n);
+	    while (bbuf.hasRemaining()) fc.write(bbuf);
+	    offset += n;
+	}
+    }
+
+    private static int[] readInts(FileChannel fc, long position, int n)
+	throws IOException
+    {
+	int[] result = new int[n];
+	int offset = 0;
+	while (offset < n) {
+	    int m = Math.min(n - offset, SAVE_BLOCK/4);
+	    MappedByteBuffer mbuf = fc.map(FileChannel.MapMode.READ_ONLY,
+					   position + 4L*offset, 4L*m);
+	    mbuf.order(ByteOrder.LITTLE_ENDIAN);
+	    mbuf.asIntBuffer().get(result, offset, m);
+	    offset += m;
+	}
+	return result;
+    }
+
+    // Read and check a saved file's header, returning the flags.
+    private static int readHeader(FileChannel fc, File file, int[] length)
+	throws IOException
+    {
+	ByteBuffer header = ByteBuffer.allocate(SAVE_HEADER_SIZE)
+	    .order(ByteOrder.LITTLE_ENDIAN);
+	while (header.hasRemaining()) {
+	    if (fc.read(header) == -1) break;
+	}
+	header.flip();
+	if (header.remaining() != SAVE_HEADER_SIZE
+	    || header.getInt() != SAVE_MAGIC
+	    || header.getInt() != SAVE_VERSION) {
+	    throw new IOException(errorMsg("notSavedSuffixArray", file));
+	}
+	length[0] = header.getInt();
+	int flags = header.getInt();
+	long expected = SAVE_HEADER_SIZE + 4L * length[0]
+	    * (((flags & SAVE_HAS_LCP) != 0)? 2: 1);
+	if (length[0] < 1 || fc.size() != expected) {
+	    throw new IOException(errorMsg("notSavedSuffixArray", file));
+	}
+	return flags;
+    }
+
+    /**
+     * Save this suffix array in a file.
+     * The file will contain the suffix array and, if it is cached, the
+     * LCP array (see {@link #useLCP()}).  The sequence is not saved.
+     * The suffix array can be restored by calling
+     * {@link #loadArray(File)} and passing the value it returns to a
+     * subclass's constructor for precomputed suffix arrays, and
+     * the LCP array can be restored by calling {@link #loadLCP(File)}.
+     * For example,
+     * <BLOCKQUOTE><PRE><CODE>
+     *     SuffixArray.UnsignedByte sa =
+     *         new SuffixArray.UnsignedByte(sequence,
+     *                                      SuffixArray.loadArray(file));
+     *     sa.loadLCP(file);
+     * </CODE></PRE></BLOCKQUOTE>
+     * The arrays are stored as little-endian 32-bit integers after a
+     * 16-byte header, and are read using memory-mapped I/O.
+     * @param file the file
+     * @exception IOException an IO error occurred
+     */
+    public synchronized void save(File file) throws IOException {
+	try (FileChannel fc = FileChannel.open
+	     (file.toPath(), StandardOpenOption.CREATE,
+	      StandardOpenOption.WRITE,
+	      StandardOpenOption.TRUNCATE_EXISTING)) {
+	    ByteBuffer bbuf = ByteBuffer.allocateDirect(1 << 20)
+		.order(ByteOrder.LITTLE_ENDIAN);
+	    bbuf.putInt(SAVE_MAGIC);
+	    bbuf.putInt(SAVE_VERSION);
+	    bbuf.putInt(array.length);
+	    bbuf.putInt((lcpArray != null)? SAVE_HAS_LCP: 0);
+	    bbuf.flip();
+	    while (bbuf.hasRemaining()) fc.write(bbuf);
+	    writeInts(fc, array, bbuf);
+	    if (lcpArray != null) {
+		writeInts(fc, lcpArray, bbuf);
+	    }
+	}
+    }
+
+    /**
+     * Read a suffix array from a file created by {@link #save(File)}.
+     * @param file the file
+     * @return the suffix array
+     * @exception IOException an IO error occurred or the file was not
+     *            created by {@link #save(File)}
+     */
+    public static int[] loadArray(File file) throws IOException {
+	try (FileChannel fc = FileChannel.open(file.toPath(),
+					       StandardOpenOption.READ)) {
+	    int[] length = new int[1];
+	    readHeader(fc, file, length);
+	    return readInts(fc, SAVE_HEADER_SIZE, length[0]);
+	}
+    }
+
+    /**
+     * Restore a cached LCP array from a file created by
+     * {@link #save(File)}.
+     * The file must have been created for this suffix array.
+     * @param file the file
+     * @return true if the file contained an LCP array, which is now
+     *         cached; false if the file did not contain an LCP array
+     * @exception IOException an IO error occurred or the file was not
+     *            created by {@link #save(File)}
+     * @exception IllegalArgumentException the file was created for a
+     *            suffix array with a different length
+     */
+    public synchronized boolean loadLCP(File file)
+	throws IOException, IllegalArgumentException
+    {
+	try (FileChannel fc = FileChannel.open(file.toPath(),
+					       StandardOpenOption.READ)) {
+	    int[] length = new int[1];
+	    int flags = readHeader(fc, file, length);
+	    if (length[0] != array.length) {
+		throw new IllegalArgumentException
+		    (errorMsg("seqArrayNotCompatible"));
+	    }
+	    if ((flags & SAVE_HAS_LCP) == 0) return false;
+	    lcpArray = readInts(fc, SAVE_HEADER_SIZE + 4L*length[0],
+				length[0]);
+	    return true;
+	}
+    }
+
     /**
      * The LCP_L table.
      * @see #useLCPLR()
@@ -7830,6 +8132,136 @@ public abstract class SuffixArray {
 	    return new OurRange(end - start, i1, i2+1);
 	}
 
+	private int symbolAt(int i, int d) {
+	    int ind = array[i] + d;
+	    return (ind >= sequenceLength)? -1: 0xFF & sequence[ind];
+	}
+
+	// Find the first index in [lo, hi) whose suffix has a symbol at
+	// offset d that is at least key, given that all the suffixes in
+	// [lo, hi) start with the same d symbols.
+	private int lowerBound(int lo, int hi, int d, int key) {
+	    while (lo < hi) {
+		int middle = (lo + hi) >>> 1;
+		if (symbolAt(middle, d) < key) {
+		    lo = middle + 1;
+		} else {
+		    hi = middle;
+		}
+	    }
+	    return lo;
+	}
+
+	/**
+	 * Find all instances of each of a set of subsequences.
+	 * This is equivalent to calling {@link #findRanges(byte[][],int[],
+	 * int[],int)} with a single thread.
+	 * @param subsequences the subsequences
+	 * @param starts an array whose i<sup>th</sup> element will be set
+	 *        to the starting index into the suffix array (inclusive)
+	 *        for the i<sup>th</sup> subsequence
+	 * @param ends an array whose i<sup>th</sup> element will be set
+	 *        to the ending index into the suffix array (exclusive)
+	 *        for the i<sup>th</sup> subsequence
+	 * @exception IllegalArgumentException an array was too short
+	 */
+	public void findRanges(byte[][] subsequences, int[] starts, int[] ends)
+	    throws IllegalArgumentException
+	{
+	    findRanges(subsequences, starts, ends, 1);
+	}
+
+	/**
+	 * Find all instances of each of a set of subsequences, using
+	 * multiple threads.
+	 * For each subsequence, the starting and ending indices into the
+	 * suffix array are those that would be returned by the methods
+	 * {@link Range#start()} and {@link Range#end()} for the range
+	 * returned by {@link #findRange(byte[])}: when a subsequence is
+	 * empty or does not occur in the sequence, both are set to 0.
+	 * The number of instances is the difference between the ending
+	 * and starting indices, and each instance's index into the
+	 * sequence is given by the suffix array (see
+	 * {@link SuffixArray#getArray()}) for indices in that range.
+	 * <P>
+	 * The subsequences are sorted and then split into contiguous
+	 * blocks, one per thread.  Within a block, each subsequence is
+	 * matched a symbol at a time, with the suffix-array range for
+	 * each prefix saved so that a prefix shared with the previous
+	 * subsequence is not searched for again.  This is much faster
+	 * than calling {@link #findRange(byte[])} for each subsequence
+	 * when there are many short subsequences with common prefixes.
+	 * @param subsequences the subsequences
+	 * @param starts an array whose i<sup>th</sup> element will be set
+	 *        to the starting index into the suffix array (inclusive)
+	 *        for the i<sup>th</sup> subsequence
+	 * @param ends an array whose i<sup>th</sup> element will be set
+	 *        to the ending index into the suffix array (exclusive)
+	 *        for the i<sup>th</sup> subsequence
+	 * @param nthreads the number of threads to use
+	 * @exception IllegalArgumentException an array was too short
+	 */
+	public void findRanges(byte[][] subsequences, int[] starts, int[] ends,
+			       int nthreads)
+	    throws IllegalArgumentException
+	{
+	    int n = subsequences.length;
+	    if (starts.length < n || ends.length < n) {
+		throw new IllegalArgumentException(errorMsg("argsOutOfRange"));
+	    }
+	    int[] order = new int[n];
+	    for (int i = 0; i < n; i++) {
+		order[i] = i;
+	    }
+	    PrimArrays.sort(order, (i, j) -> {
+		    return Arrays.compareUnsigned(subsequences[i],
+						  subsequences[j]);
+		});
+	    parallelFor(nthreads, n, (first, last) -> {
+		    int maxlen = 0;
+		    for (int k = first; k < last; k++) {
+			maxlen = Math.max(maxlen, subsequences[order[k]].length);
+		    }
+		    // lows[d] and highs[d] bound the range of suffixes
+		    // starting with the first d symbols of prev.
+		    int[] lows = new int[maxlen + 1];
+		    int[] highs = new int[maxlen + 1];
+		    lows[0] = 1;
+		    highs[0] = array.length;
+		    byte[] prev = null;
+		    int depth = 0;
+		    for (int k = first; k < last; k++) {
+			int index = order[k];
+			byte[] subsequence = subsequences[index];
+			int len = subsequence.length;
+			int d = 0;
+			if (prev != null) {
+			    int limit = Math.min(depth, len);
+			    while (d < limit && prev[d] == subsequence[d]) d++;
+			}
+			int low = lows[d];
+			int high = highs[d];
+			while (d < len && low < high) {
+			    int key = 0xFF & subsequence[d];
+			    low = lowerBound(low, high, d, key);
+			    high = lowerBound(low, high, d, key + 1);
+			    d++;
+			    lows[d] = low;
+			    highs[d] = high;
+			}
+			prev = subsequence;
+			depth = d;
+			if (len == 0 || low >= high) {
+			    starts[index] = 0;
+			    ends[index] = 0;
+			} else {
+			    starts[index] = low;
+			    ends[index] = high;
+			}
+		    }
+		});
+	}
+
 
 	/**
 	 * Get the Burrows-Wheeler Transform  (BWT) of the sequence associated
@@ -8278,6 +8710,51 @@ public abstract class SuffixArray {
 	    }
 	}
 
+	/**
+	 * Constructor given a file containing the sequence.
+	 * The file is read using memory-mapped I/O, and its contents
+	 * are used as the sequence.  The file must be shorter than
+	 * 2<sup>31</sup> - 8 bytes.
+	 * @param file the file containing the sequence
+	 * @param n the size of an alphabet encoded as values in [0,n)
+	 *        where n is positive and no larger than 255
+	 * @exception IOException the file could not be read or is too
+	 *            large
+	 * @exception IllegalArgumentException an argument was out of range
+	 */
+	public UnsignedByte(File file, int n)
+	    throws IOException, IllegalArgumentException
+	{
+	    this(readSequence(file), n);
+	}
+
+	/**
+	 * Read a file's contents into a byte array.
+	 * The file is mapped into memory and copied in blocks.
+	 * @param file the file
+	 * @return the file's contents
+	 * @exception IOException the file could not be read or is too
+	 *            large for a suffix array
+	 */
+	static byte[] readSequence(File file) throws IOException {
+	    try (FileChannel fc = FileChannel.open(file.toPath(),
+						   StandardOpenOption.READ)) {
+		long size = fc.size();
+		if (size > java.lang.Integer.MAX_VALUE - 8) {
+		    throw new IOException(errorMsg("fileTooLarge", file));
+		}
+		byte[] result = new byte[(int)size];
+		int offset = 0;
+		while (offset < result.length) {
+		    int m = Math.min(result.length - offset, SAVE_BLOCK);
+		    fc.map(FileChannel.MapMode.READ_ONLY, offset, m)
+			.get(result, offset, m);
+		    offset += m;
+		}
+		return result;
+	    }
+	}
+
 	/**
 	 * Constructor for precomputed suffix arrays.
 	 * The maximum reasonable value of n should be no higher than the
@@ -8422,6 +8899,37 @@ public abstract class SuffixArray {
 	    }
 	}
 
+	/**
+	 * Find all instances of each of a set of subsequences, with the
+	 * subsequences specified by strings, using multiple threads.
+	 * The strings are converted to UTF-8 and passed to
+	 * {@link UnsignedByte#findRanges(byte[][],int[],int[],int)}.
+	 * @param subsequences the subsequences
+	 * @param starts an array whose i<sup>th</sup> element will be set
+	 *        to the starting index into the suffix array (inclusive)
+	 *        for the i<sup>th</sup> subsequence
+	 * @param ends an array whose i<sup>th</sup> element will be set
+	 *        to the ending index into the suffix array (exclusive)
+	 *        for the i<sup>th</sup> subsequence
+	 * @param nthreads the number of threads to use
+	 * @exception IllegalArgumentException an array was too short
+	 */
+	public void findRanges(java.lang.String[] subsequences,
+			       int[] starts, int[] ends, int nthreads)
+	    throws IllegalArgumentException
+	{
+	    byte[][] bytes = new byte[subsequences.length][];
+	    try {
+		for (int i = 0; i < bytes.length; i++) {
+		    bytes[i] = subsequences[i].getBytes(UTF8);
+		}
+	    } catch (UnsupportedEncodingException e) {
+		// UTF-8 is always supported
+		throw new UnexpectedExceptionError(e);
+	    }
+	    findRanges(bytes, starts, ends, nthreads);
+	}
+
 
 	/**
 	 * Constructor.
@@ -8435,6 +8943,19 @@ public abstract class SuffixArray {
 	    super(sequence, ALPHABET_SIZE);
 	}
 
+	/**
+	 * Constructor given a file containing the sequence.
+	 * The file is read using memory-mapped I/O, and its contents,
+	 * which must be UTF-8 encoded text, are used as the sequence.
+	 * The file must be shorter than 2<sup>31</sup> - 8 bytes.
+	 * @param file the file containing the sequence
+	 * @exception IOException the file could not be read or is too
+	 *            large
+	 */
+	public UTF(File file) throws IOException {
+	    super(file, ALPHABET_SIZE);
+	}
+
 	/**
 	 * Constructor for precomputed suffix arrays.
 	 * The maximum reasonable value of n should be no higher than the
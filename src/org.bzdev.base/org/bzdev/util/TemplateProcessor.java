@@ -1,7 +1,11 @@
 package org.bzdev.util;
 import java.io.*;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.URL;
 
 //@exbundle org.bzdev.util.lpack.Util
@@ -69,6 +73,16 @@ import java.net.URL;
  *  case, if the KeyMap value is another KeyMap, the iteration
  *  includes only that KeyMap.  The class TemplateProcessor.KeyMapList
  *  provides a list implementation of the KeyMapIterable interface.
+ * <p>
+ *  A template that will be processed many times can be compiled
+ *  by calling {@link TemplateProcessor#compile(Reader)} or one of the
+ *  {@link TemplateProcessor#getTemplate(Class,String,String) getTemplate}
+ *  methods.  The resulting {@link TemplateProcessor.Template} is
+ *  immutable and can be processed with different KeyMaps, possibly
+ *  by multiple threads, without reading or scanning the template again.
+ *  The methods that get or process system resources can use a bounded
+ *  cache of compiled templates, which is disabled by default (see
+ *  {@link TemplateProcessor#setTemplateCacheLimit(int)}).
  */
 
 public class TemplateProcessor {
@@ -480,8 +494,7 @@ public class TemplateProcessor {
 	new LinkedList<HashMap<String,Object>>();
     ********/
 
-    LinkedList<KeyMap> origTables = new LinkedList<KeyMap>();
-    LinkedList<KeyMap> tables = new LinkedList<KeyMap>();
+    KeyMap[] tables;
 
     char openDelim = '(';
     char closeDelim = ')';
@@ -521,25 +534,7 @@ public class TemplateProcessor {
      *        value matching a key.
      */
     public TemplateProcessor(KeyMap... tbls) {
-	for (KeyMap tbl: tbls) {
-	    origTables.addFirst(tbl);
-	}
-    }
-
-    String replacement(String token) {
-	for (KeyMap tbl: tables) {
-	    Object entry = tbl.get(token);
-	    if (entry != null) {
-		if (entry instanceof String) {
-		    return (String) entry;
-		} else {
-		    String cn = entry.getClass().getName();
-		    throw new TemplateProcessor.Exception
-			(errorMsg("badReplacement", token, cn, "String"));
-		}
-	    }
-	}
-	return "";
+	tables = tbls.clone();
     }
 
     // methods that modify this map are overridden to make this keymap
@@ -560,74 +555,277 @@ public class TemplateProcessor {
 	};
     private static KeyMap[] emptyKeyMapArray = new KeyMap[0];
 
-    Object replacements(String token) {
-	for (KeyMap tbl: tables) {
-	    Object entry = tbl.get(token);
-	    if (entry != null) {
-		if (entry instanceof KeyMapIterable) {
-		    return (KeyMapIterable) entry;
+    // The instructions in a compiled template.
+    private static abstract class Node {
+	abstract void process(Template template, State state)
+	    throws IOException;
+    }
+
+    // Text copied from the template.
+    private static final class Text extends Node {
+	int offset;
+	int length;
+	Text(int offset, int length) {
+	    this.offset = offset;
+	    this.length = length;
+	}
+	@Override
+	void process(Template template, State state) throws IOException {
+	    state.write(template.text, offset, length);
+	}
+    }
+
+    // A directive replaced by a string.
+    private static final class Replacement extends Node {
+	String token;
+	Replacement(String token) {this.token = token;}
+	@Override
+	void process(Template template, State state) throws IOException {
+	    state.write(state.replacement(token));
+	}
+    }
+
+    // A directive that processes a region of the template once per
+    // KeyMap.  When the region could not be compiled, the error is
+    // reported only if the region is used, as it would be if the
+    // template were processed without compiling it.
+    private static final class Iteration extends Node {
+	String token;
+	Node[] body;
+	String error;
+	Iteration(String token, Node[] body) {
+	    this.token = token;
+	    this.body = body;
+	}
+	Iteration(String token, String error) {
+	    this.token = token;
+	    this.error = error;
+	}
+	@Override
+	void process(Template template, State state) throws IOException {
+	    Object sequence = state.replacements(token);
+	    if (error != null) {
+		if ((sequence instanceof KeyMapIterable
+		     && ((KeyMapIterable) sequence).iterator().hasNext())
+		    || (sequence instanceof KeyMap[]
+			&& ((KeyMap[]) sequence).length > 0)
+		    || sequence instanceof KeyMap) {
+		    throw new IOException(error);
 		}
-		if (entry instanceof KeyMap[]) {
-		    return (KeyMap[]) entry;
-		} else if (entry instanceof KeyMap) {
-		    return (KeyMap) entry;
-		} else {
-		    // System.out.println("found " + entry.getClass());
-		    String cn = entry.getClass().getName();
-		    String s1 = "TemplateProcessor.KeyMap[]";
-		    String s2 = " List<TemplateProcessor.KeyMap>";
-		    throw new 
-			TemplateProcessor.Exception
-			(errorMsg("badReplacement2", token, cn, s1, s2));
+		return;
+	    }
+	    if (sequence instanceof KeyMapIterable) {
+		for (KeyMap tbl: (KeyMapIterable) sequence) {
+		    state.push(tbl);
+		    template.process(body, state);
+		    state.pop();
+		}
+	    } else if (sequence instanceof KeyMap[]) {
+		for (KeyMap tbl: (KeyMap[]) sequence) {
+		    state.push(tbl);
+		    template.process(body, state);
+		    state.pop();
+		}
+	    } else if (sequence instanceof KeyMap) {
+		state.push((KeyMap) sequence);
+		template.process(body, state);
+		state.pop();
+	    }
+	}
+    }
+
+    // The state of a single use of a compiled template: the output and
+    // a stack of KeyMap tables, searched from the top down.
+    private static final class State {
+	Appendable out;
+	Writer writer;
+	StringBuilder sb;
+	KeyMap[] tables;
+	int depth;
+
+	State(Appendable out, KeyMap[] tbls) {
+	    this.out = out;
+	    if (out instanceof Writer) {
+		writer = (Writer) out;
+	    } else if (out instanceof StringBuilder) {
+		sb = (StringBuilder) out;
+	    }
+	    tables = new KeyMap[tbls.length + 8];
+	    System.arraycopy(tbls, 0, tables, 0, tbls.length);
+	    depth = tbls.length;
+	}
+
+	void write(char[] text, int offset, int length) throws IOException {
+	    if (writer != null) {
+		writer.write(text, offset, length);
+	    } else if (sb != null) {
+		sb.append(text, offset, length);
+	    } else {
+		out.append(CharBuffer.wrap(text, offset, length));
+	    }
+	}
+
+	void write(String s) throws IOException {
+	    if (writer != null) {
+		writer.write(s);
+	    } else {
+		out.append(s);
+	    }
+	}
+
+	void push(KeyMap tbl) {
+	    if (depth == tables.length) {
+		tables = Arrays.copyOf(tables, 2*depth);
+	    }
+	    tables[depth++] = tbl;
+	}
+
+	void pop() {
+	    tables[--depth] = null;
+	}
+
+	String replacement(String token) {
+	    for (int i = depth-1; i >= 0; i--) {
+		Object entry = tables[i].get(token);
+		if (entry != null) {
+		    if (entry instanceof String) {
+			return (String) entry;
+		    } else {
+			String cn = entry.getClass().getName();
+			throw new TemplateProcessor.Exception
+			    (errorMsg("badReplacement", token, cn, "String"));
+		    }
 		}
 	    }
+	    return "";
+	}
+
+	Object replacements(String token) {
+	    for (int i = depth-1; i >= 0; i--) {
+		Object entry = tables[i].get(token);
+		if (entry != null) {
+		    if (entry instanceof KeyMapIterable
+			|| entry instanceof KeyMap[]
+			|| entry instanceof KeyMap) {
+			return entry;
+		    } else {
+			String cn = entry.getClass().getName();
+			String s1 = "TemplateProcessor.KeyMap[]";
+			String s2 = " List<TemplateProcessor.KeyMap>";
+			throw new
+			    TemplateProcessor.Exception
+			    (errorMsg("badReplacement2", token, cn, s1, s2));
+		    }
+		}
+	    }
+	    return emptyKeyMapArray;
+	}
+    }
+
+    /**
+     * Compiled template.
+     * A compiled template is created by calling
+     * {@link TemplateProcessor#compile(Reader)} or one of the
+     * {@link TemplateProcessor#getTemplate(Class,String,String) getTemplate}
+     * methods. The template is scanned for directives once, when it
+     * is compiled, so that the same template can be processed
+     * repeatedly with different {@link KeyMap} tables without reading
+     * or scanning it again. Errors in the template's syntax are
+     * reported when the template is compiled, except for errors in a
+     * region of the template controlled by an iteration directive:
+     * those are reported when the region is processed, as they
+     * would be if the template had not been compiled.
+     * <P>
+     * Instances of this class are immutable and may be used by
+     * multiple threads concurrently, provided that the
+     * {@link KeyMap} tables are not modified while a template is
+     * being processed.
+     */
+    public static final class Template {
+	private final char[] text;
+	private final Node[] program;
+
+	Template(char[] text, Node[] program) {
+	    this.text = text;
+	    this.program = program;
+	}
+
+	void process(Node[] nodes, State state) throws IOException {
+	    for (Node node: nodes) {
+		node.process(this, state);
+	    }
+	}
+
+	/**
+	 * Process this template.
+	 * The tables are searched last to first for a value matching
+	 * a key, as with {@link TemplateProcessor#TemplateProcessor(KeyMap...)}.
+	 * The output is not flushed.
+	 * @param out the Appendable used to output the replacement text
+	 * @param tbls a list of KeyMap tables, searched last to first for
+	 *        a value matching a key.
+	 * @exception IOException an IO error occurred during processing
+	 */
+	public void process(Appendable out, KeyMap... tbls)
+	    throws IOException
+	{
+	    if (out == null) {
+		throw new NullPointerException(errorMsg("nullArgument"));
+	    }
+	    KeyMap saved = root.get();
+	    try {
+		root.set((tbls.length == 0)? null: tbls[0]);
+		process(program, new State(out, tbls));
+	    } finally {
+		root.set(saved);
+	    }
+	}
+    }
+
+    // Add text to a program, merging it with the previous text when
+    // the two are adjacent.
+    private static void addText(ArrayList<Node> program,
+				int offset, int length)
+    {
+	if (length == 0) return;
+	int last = program.size() - 1;
+	if (last >= 0 && program.get(last) instanceof Text) {
+	    Text prev = (Text) program.get(last);
+	    if (prev.offset + prev.length == offset) {
+		prev.length += length;
+		return;
+	    }
 	}
-	return emptyKeyMapArray;
+	program.add(new Text(offset, length));
     }
-    
 
-    private void processTemplate(char[] template, int start, int length,
-				 Writer writer)
+    private Node[] compile(char[] template, int start, int length)
 	throws IOException
     {
-	int origlen = length;
-	int origstart = start;
+	ArrayList<Node> program = new ArrayList<>();
 	int index = start;
-	//  System.out.println("processing Template");
 	for (;;) {
 	    while (index < start + length && template[index] != '$' ) {
 		index++;
 	    }
 	    if (index >= start + length) break;
 	    if (template[index] == '$') {
-		// System.out.println("found first $");
-		// System.out.println(start +" " +(index - start));
-		writer.write(template, start, index - start);
+		addText(program, start, index - start);
 		length -= (1 + index - start);
 		start = index + 1;
 		index = start;
-		if ((start - origstart + length) != origlen) {
-		    throw new RuntimeException((start-origstart+length) 
-					       + " != " + origlen);
-		}
 		if (index < start + length) {
-		    /*
-		    System.out.println("scanning after $, openDelim = "
-				       +openDelim);
-		    */
 		    if (template[index] == '$') {
-			// System.out.println(index +" 1");
-			writer.write(template, index, 1);
+			addText(program, index, 1);
 			start = index + 1;
 			length--;
 			index = start;
 		    } else if (template[index] == openDelim) {
-			// System.out.println("found openDelim");
 			start = index + 1;
 			length--;
 			index = start;
 			if (template[index] == '!') {
-			    while (length > 0 
+			    while (length > 0
 				   && template[index] != closeDelim) {
 				start++; index++; length--;
 			    }
@@ -655,17 +853,10 @@ public class TemplateProcessor {
 			    String msg = errorMsg("openingDelim", lineno);
 			    throw new IOException(msg);
 			}
-			String token = 
+			String token =
 			    new String(template, start, (index - start));
-			// System.out.println("found token \"" +token +"\"");
 			length -=(index - start);
 			start = index;
-			if ((start-origstart + length) != origlen) {
-			    throw new 
-				RuntimeException((start-origstart+length)
-						 + " != " + origlen);
-			}
-			// index = start;
 			if (template[index] == ':') {
 			    start++;
 			    index++;
@@ -682,25 +873,6 @@ public class TemplateProcessor {
 				index++;
 				length -= (index - start);
 				start = index;
-				if ((start-origstart +length) != origlen) {
-				    throw new 
-					RuntimeException((start-origstart+length)
-							 + " != " 
-							 + origlen);
-				}
-
-				/*
-				String end = new String(template, mark1,
-							(mark2 - mark1));
-				System.out.println("start = " + start
-						   +", mark1 = " +mark1
-						   +", mark2 = " +mark2
-						   +" \"" + end +"\"");
-				System.out.println("start = " +start
-						   +", length = " +length
-						   +", char before start = "
-						   +template[start-1]);
-				*/
 				while (index < start + length) {
 				    if (template[index] == '$' &&
 					index+1 < start + length &&
@@ -731,95 +903,38 @@ public class TemplateProcessor {
 						     (mark2 - mark1));
 						throw new IOException
 			    (errorMsg("delimNest",thisline,token,et,lineno));
-						// test = false;
-						// break;
 					    }
 					    if (template[index+2+i] !=
 						template[mark1 + i]) {
 						test = false;
-						// System.out.println("!pattern");
 						break;
 					    }
 					}
-					if (test && 
+					if (test &&
 					    template[index+2+(mark2-mark1)]
 					    != closeDelim) {
 					    test = false;
 					}
 					if (test) {
 					    endDirectiveFound = true;
-					    /*
-					    System.out.println
-						("test succeeded");
-					    */
-					    Object sequence =
-						replacements(token);
-					    if (sequence instanceof
-						KeyMapIterable) {
-						for (KeyMap tbl:
-							 (KeyMapIterable)
-							 sequence) {
-						    tables.addFirst(tbl);
-						    /*
-						      System.out.println
-						      ("start recursion");
-						    */
-						    processTemplate
-							(template,
-							 start,
-							 (index-start),
-							 writer);
-						    /*
-						      System.out.println
-						      ("end recursion");
-						    */
-						    tables.removeFirst();
-						}
-					    } else if(sequence instanceof
-						      KeyMap[]) {
-						for (KeyMap tbl: (KeyMap[])
-							 sequence) {
-						    tables.addFirst(tbl);
-						    /*
-						      System.out.println
-						      ("start recursion");
-						    */
-						    processTemplate
-							(template,
-							 start,
-							 (index-start),
-							 writer);
-						    /*
-						      System.out.println
-						      ("end recursion");
-						    */
-						    tables.removeFirst();
-						}
-					    } else if (sequence instanceof
-						       KeyMap) {
-						KeyMap tbl = (KeyMap)sequence;
-						tables.addFirst(tbl);
-						processTemplate(template,
-								start,
-								(index-start),
-								writer);
-						tables.removeFirst();
+					    try {
+						Node[] body = compile
+						    (template, start,
+						     (index-start));
+						program.add(new Iteration
+							    (token, body));
+					    } catch (IOException e) {
+						program.add(new Iteration
+							    (token,
+							     e.getMessage()));
 					    }
 					    length -= (index - start);
 					    length -= 3 + (mark2-mark1);
 					    start = index + 3 + (mark2-mark1);
 					    index = start;
-					    if ((start-origstart +length) 
-						!= origlen) {
-						throw new 
-						    RuntimeException
-						    ((start-origstart+length)
-						     + " != " + origlen);
-					    }
 					    break;
 					} else {
 					    index++;
-					    // System.out.println("test failed");
 					}
 				    } else {
 					index++;
@@ -860,27 +975,14 @@ public class TemplateProcessor {
 				throw new IOException(msg);
 			    }
 			} else if (template[index] == closeDelim) {
-			    /*
-			    System.out.println(token +" --> "
-					       +replacement(token));
-			    */
 			    if (token != null && token.length() > 0) {
-				writer.write(replacement(token));
+				program.add(new Replacement(token));
 			    }
 			    length -= (1 + index - start);
 			    start = index + 1;
 			    index = start;
-			    /*
-			    System.out.println("start = " +start +
-					       ", length = " + length);
-			    */
-			    if ((start-origstart +length) != origlen) {
-				throw new RuntimeException
-				    ((start-origstart + length) + " != " + origlen);
-			    }
 			} else {
-			    // not terminated properly, so skip to closing
-			    // delimiter.
+			    // not terminated properly
 			    int lineno = 1;
 			    for (int k = 0; k < index; k++) {
 				if (template[k] == '\n') {
@@ -890,24 +992,310 @@ public class TemplateProcessor {
 			    String msg =
 				errorMsg("closingDelim", lineno, token);
 			    throw new IOException(msg);
-			    /*
-			    while (template[index] != closeDelim) {
-				index++;
-			    }
-			    length -= (1 + index - start);
-			    start = index + 1;
-			    index = start;
-			    */
 			}
 		    }
 		}
 	    }
 	}
 	if (length > 0) {
-	    // System.out.println(start +" " + length);
-	    writer.write(template, start, length);
-	    // System.out.println("\"" + new String(template, start, length) + "\"");
+	    addText(program, start, length);
 	}
+	return program.toArray(new Node[program.size()]);
+    }
+
+    /**
+     * Compile a template.
+     * The template's delimiters are the ones set by
+     * {@link #setDelimiter(char)} when this method is called.
+     * @param reader the Reader used to read a template
+     * @return the compiled template
+     * @exception IOException an IO error occurred or the template's
+     *            syntax is not valid
+     */
+    public Template compile(Reader reader) throws IOException {
+	return compile(reader, 1024);
+    }
+
+    private Template compile(Reader reader, int sizeHint) throws IOException {
+	if (reader == null) {
+	    throw new NullPointerException(errorMsg("nullArgument"));
+	}
+	CharArrayWriter caw = new CharArrayWriter(sizeHint);
+	char[] cbuf = new char[sizeHint];
+	int len;
+	while ((len = reader.read(cbuf, 0, cbuf.length)) != -1) {
+	    caw.write(cbuf, 0, len);
+	}
+	char[] template = caw.toCharArray();
+	return new Template(template, compile(template, 0, template.length));
+    }
+
+    // Cache of compiled templates indexed by where a template was
+    // found, its encoding, and the delimiter.  The source (a class or
+    // a marker class) is referenced weakly so that the cache does not
+    // keep class loaders reachable; keys whose class was collected are
+    // removed the next time the cache is used.
+    private static final class CacheKey extends WeakReference<Object> {
+	String name;
+	String encoding;
+	char delim;
+	int hash;
+	CacheKey(Object source, String name, String encoding, char delim,
+		 ReferenceQueue<Object> queue)
+	{
+	    super(source, queue);
+	    this.name = name;
+	    this.encoding = encoding;
+	    this.delim = delim;
+	    hash = Objects.hash(System.identityHashCode(source), name,
+				encoding, delim);
+	}
+	@Override
+	public boolean equals(Object o) {
+	    if (o == this) return true;
+	    if (!(o instanceof CacheKey)) return false;
+	    CacheKey other = (CacheKey) o;
+	    Object source = get();
+	    return source != null && source == other.get()
+		&& delim == other.delim
+		&& name.equals(other.name) && encoding.equals(other.encoding);
+	}
+	@Override
+	public int hashCode() {
+	    return hash;
+	}
+    }
+
+    private static int cacheLimit = 0;
+    private static final ReferenceQueue<Object> cacheQueue =
+	new ReferenceQueue<>();
+    // access-ordered so that the least recently used template is
+    // removed when the cache is full.
+    private static final LinkedHashMap<CacheKey,Template> cache =
+	new LinkedHashMap<CacheKey,Template>(16, 0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+	    @Override
+	    protected boolean
+		removeEldestEntry(Map.Entry<CacheKey,Template> eldest)
+	    {
+		return size() > cacheLimit;
+	    }
+	};
+
+    // must be called while synchronized on the cache
+    private static void expungeStaleKeys() {
+	Reference<?> ref;
+	while ((ref = cacheQueue.poll()) != null) {
+	    cache.remove(ref);
+	}
+    }
+
+    /**
+     * Set the maximum number of compiled templates that will be cached.
+     * The cache is used by the
+     * {@link #getTemplate(Class,String,String) getTemplate} and
+     * {@link #processSystemResource(Class,String,String,Writer)
+     * processSystemResource} methods, and is shared by all template
+     * processors. When the cache is full, the least recently used
+     * template is removed. A limit of zero, the default, disables
+     * caching, so that a template is read and compiled each time one
+     * of these methods is called. Caching should be enabled only when
+     * the templates that are read do not change.
+     * @param limit the maximum number of cached templates; 0 to disable
+     *        caching
+     * @exception IllegalArgumentException the limit was negative
+     */
+    public static void setTemplateCacheLimit(int limit)
+	throws IllegalArgumentException
+    {
+	if (limit < 0) {
+	    throw new IllegalArgumentException
+		(errorMsg("negativeCacheLimit", limit));
+	}
+	synchronized (cache) {
+	    cacheLimit = limit;
+	    expungeStaleKeys();
+	    if (cache.size() > limit) {
+		Iterator<CacheKey> it = cache.keySet().iterator();
+		int n = cache.size() - limit;
+		while (n-- > 0) {
+		    it.next();
+		    it.remove();
+		}
+	    }
+	}
+    }
+
+    /**
+     * Get the maximum number of compiled templates that will be cached.
+     * @return the maximum number of cached templates; 0 if caching is
+     *         disabled
+     * @see #setTemplateCacheLimit(int)
+     */
+    public static int getTemplateCacheLimit() {
+	synchronized (cache) {
+	    return cacheLimit;
+	}
+    }
+
+    private Template getCachedTemplate(Object source, String name,
+				       String encoding)
+    {
+	synchronized (cache) {
+	    if (cacheLimit == 0) return null;
+	    expungeStaleKeys();
+	    return cache.get(new CacheKey(source, name, encoding, openDelim,
+					  null));
+	}
+    }
+
+    private Template getTemplate(Object source, String name,
+				 InputStream is, String encoding)
+	throws IOException
+    {
+	Template template;
+	try (InputStreamReader rd = new InputStreamReader(is, encoding)) {
+	    template = compile(rd);
+	}
+	synchronized (cache) {
+	    if (cacheLimit == 0) return template;
+	    CacheKey key = new CacheKey(source, name, encoding, openDelim,
+					cacheQueue);
+	    Template previous = cache.putIfAbsent(key, template);
+	    return (previous == null)? template: previous;
+	}
+    }
+
+    private static InputStream getSystemResourceAsStream(String resource)
+	throws IOException
+    {
+	InputStream is =  null;
+	try {
+	    is = ClassLoader.getSystemResourceAsStream(resource);
+	} catch (Exception e) {}
+	if (is == null) {
+	    if (!resource.startsWith("/")) {
+		resource = "/" + resource;
+	    }
+	    is = TemplateProcessor.class.getResourceAsStream(resource);
+	}
+	if (is == null) {
+	    throw new IOException(errorMsg("missingResource", resource));
+	}
+	return is;
+    }
+
+    /**
+     * Get a compiled template stored as a system resource.
+     * When caching is enabled (see {@link #setTemplateCacheLimit(int)}),
+     * the resource is read and compiled only if a template for the
+     * same resource, encoding, and delimiter is not in the cache.
+     * This can be problematic with Java modules unless the module
+     * containing the resource is an open module.
+     * @param resource the name of the resource containing the template
+     * @param encoding the character encoding for the resource
+     * @return the compiled template
+     * @exception IOException an IO error occurred or the template's
+     *            syntax is not valid
+     * @see #processSystemResource(String,String,Writer)
+     */
+    public Template getTemplate(String resource, String encoding)
+	throws IOException
+    {
+	Template template =
+	    getCachedTemplate(ClassLoader.class, resource, encoding);
+	if (template != null) return template;
+	return getTemplate(ClassLoader.class, resource,
+			   getSystemResourceAsStream(resource), encoding);
+    }
+
+    /**
+     * Get a compiled template stored as a resource, provided a class in
+     * the same package as the resource.
+     * When caching is enabled (see {@link #setTemplateCacheLimit(int)}),
+     * the resource is read and compiled only if a template for the
+     * same class, resource, encoding, and delimiter is not in the
+     * cache. The cache does not prevent the class from being garbage
+     * collected.
+     * @param clasz a class in the same package as the resource
+     * @param resource the name of the resource containing the template
+     * @param encoding the character encoding for the resource
+     * @return the compiled template
+     * @exception IOException an IO error occurred or the template's
+     *            syntax is not valid
+     * @see #processSystemResource(Class,String,String,Writer)
+     */
+    public Template getTemplate(Class<?> clasz, String resource,
+				String encoding)
+	throws IOException
+    {
+	if (!resource.startsWith("/")) {
+	    resource = "/" + resource;
+	}
+	Template template = getCachedTemplate(clasz, resource, encoding);
+	if (template != null) return template;
+	InputStream is = null;
+	try {
+	    is = clasz.getResourceAsStream(resource);
+	} catch (Exception e) {}
+	if (is == null) {
+	    throw new IOException(errorMsg("missingResource", resource));
+	}
+	return getTemplate(clasz, resource, is, encoding);
+    }
+
+    /**
+     * Get a compiled template located via a URL.
+     * When caching is enabled (see {@link #setTemplateCacheLimit(int)}),
+     * the URL is read and compiled only if a template for the same URL,
+     * encoding, and delimiter is not in the cache, so caching should
+     * be enabled only when the contents of the URL do not change.
+     * @param url the url locating the template
+     * @param encoding the character encoding for the resource
+     * @return the compiled template
+     * @exception IOException an IO error occurred or the template's
+     *            syntax is not valid
+     */
+    public Template getTemplate(URL url, String encoding)
+	throws IOException
+    {
+	// URL.equals may perform DNS lookups, so use the URL's string
+	String name = url.toString();
+	Template template = getCachedTemplate(URL.class, name, encoding);
+	if (template != null) return template;
+	return getTemplate(URL.class, name, url.openStream(), encoding);
+    }
+
+    /**
+     * Remove all compiled templates from the cache used by the
+     * {@link #getTemplate(Class,String,String) getTemplate} methods.
+     * This method should be called when a template that may have been
+     * cached has changed.
+     * @see #setTemplateCacheLimit(int)
+     */
+    public static void clearTemplateCache() {
+	synchronized (cache) {
+	    cache.clear();
+	    expungeStaleKeys();
+	}
+    }
+
+    /**
+     * Process a compiled template.
+     * The KeyMap tables used are the ones provided to this template
+     * processor's constructor.
+     * @param template the compiled template
+     * @param writer the Writer used to output the replacement text
+     * @exception IOException an IO error occurred during processing
+     */
+    public void processTemplate(Template template, Writer writer)
+	throws IOException
+    {
+	if (template == null || writer == null) {
+	    throw new NullPointerException(errorMsg("nullArgument"));
+	}
+	template.process(writer, tables);
+	writer.flush();
     }
 
     /**
@@ -939,24 +1327,8 @@ public class TemplateProcessor {
 	if (reader == null || writer == null) {
 	    throw new NullPointerException(errorMsg("nullArgument"));
 	}
-	CharArrayWriter caw = new CharArrayWriter(sizeHint);
-	char[] cbuf = new char[sizeHint];
-	int len;
-	while ((len = reader.read(cbuf, 0, cbuf.length)) != -1) {
-	    caw.write(cbuf, 0, len);
-	}
-	char[] template = caw.toCharArray();
-	try {
-	    boolean isEmpty = origTables.isEmpty();
-	    tables = isEmpty? new LinkedList<KeyMap>():
-		new LinkedList<KeyMap>(origTables);
-	    root.set(isEmpty? null: tables.getLast());
-	    processTemplate(template, 0, template.length, writer);
-	    writer.flush();
-	} finally {
-	    tables = null;
-	    root.set(null);
-	}
+	compile(reader, sizeHint).process(writer, tables);
+	writer.flush();
     }
 
     /**
@@ -993,6 +1365,8 @@ public class TemplateProcessor {
      * as a File.
      * This can be problematic with Java modules unless the module
      * containing the resource is an open module.
+     * The compiled template may be cached as described for
+     * {@link #getTemplate(String,String)}.
      * @param resource the name of the resource containing the template
      * @param encoding the character encoding for the resource
      * @param outputFile a file in which the output is stored
@@ -1003,32 +1377,19 @@ public class TemplateProcessor {
 				      File outputFile)
 	throws IOException
     {
-	InputStream is =  null;
-	try {
-	    is = ClassLoader.getSystemResourceAsStream(resource);
-	} catch (Exception e) {}
-	if (is == null) {
-	    if (!resource.startsWith("/")) {
-		resource = "/" + resource;
-	    }
-	    is = TemplateProcessor.class.getResourceAsStream(resource);
-	}
-	if (is == null) {
-	    throw new IOException(errorMsg("missingResource", resource));
-	}
-	InputStreamReader rd = new InputStreamReader(is, encoding);
+	Template template = getTemplate(resource, encoding);
 	OutputStream os = new FileOutputStream(outputFile);
 	OutputStreamWriter wr = new OutputStreamWriter(os, encoding);
-	processTemplate(rd,wr);
-	is.close();
+	processTemplate(template, wr);
 	wr.close();
-
     }
 
     /**
      * Process a template stored as a system resource.
      * This can be problematic with Java modules unless the module
      * containing the resource is an open module.
+     * The compiled template may be cached as described for
+     * {@link #getTemplate(String,String)}.
      * @param resource the name of the resource containing the template
      * @param encoding the character encoding for the resource
      * @param writer the Writer used to output the replacement text
@@ -1039,22 +1400,7 @@ public class TemplateProcessor {
 				      Writer writer)
 	throws IOException
     {
-	InputStream is = null;
-	try {
-	    is = ClassLoader.getSystemResourceAsStream(resource);
-	} catch (Exception e) {}
-	if (is == null) {
-	    if (!resource.startsWith("/")) {
-		resource = "/" + resource;
-	    }
-	    is = TemplateProcessor.class.getResourceAsStream(resource);
-	}
-	if (is == null) {
-	    throw new IOException(errorMsg("missingResource", resource));
-	}
-	InputStreamReader rd = new InputStreamReader(is, encoding);
-	processTemplate(rd,writer);
-	is.close();
+	processTemplate(getTemplate(resource, encoding), writer);
     }
 
     /**
@@ -1062,6 +1408,8 @@ public class TemplateProcessor {
      * as an output stream.
      * This can be problematic with Java modules unless the module
      * containing the resource is an open module.
+     * The compiled template may be cached as described for
+     * {@link #getTemplate(String,String)}.
      * @param resource the name of the resource containing the template
      * @param encoding the character encoding for the resource
      * @param os an output stream for the processed template
@@ -1071,23 +1419,9 @@ public class TemplateProcessor {
 				      OutputStream os) 
 	throws IOException
     {
-	InputStream is = null;
-	try {
-	    is = ClassLoader.getSystemResourceAsStream (resource);
-	} catch (Exception e) {}
-	if (is == null) {
-	    if (!resource.startsWith("/")) {
-		resource = "/" + resource;
-	    }
-	    is = TemplateProcessor.class.getResourceAsStream(resource);
-	}
-	if (is == null) {
-	    throw new IOException(errorMsg("missingResource", resource));
-	}
-	InputStreamReader rd = new InputStreamReader(is, encoding);
+	Template template = getTemplate(resource, encoding);
 	OutputStreamWriter wr = new OutputStreamWriter(os, encoding);
-	processTemplate(rd,wr);
-	is.close();
+	processTemplate(template, wr);
     }
 
     /**
@@ -1097,33 +1431,24 @@ public class TemplateProcessor {
      * or just <CODE>getClass()</CODE>.  The first argument is needed
      * in most cases due to the restrictions modules place on the visibility
      * of resources.
+     * The compiled template may be cached as described for
+     * {@link #getTemplate(Class,String,String)}.
      * @param clasz a class in the same package as the resource
      * @param resource the name of the resource containing the template
      * @param encoding the character encoding for the resource
      * @param outputFile a file in which the output is stored
      * @exception IOException an IO error occurred during processing
      */
-public void processSystemResource(Class clasz,
-				  String resource,
-				  String encoding,
-				  File outputFile)
+    public void processSystemResource(Class<?> clasz,
+				      String resource,
+				      String encoding,
+				      File outputFile)
 	throws IOException
     {
-	if (!resource.startsWith("/")) {
-	    resource = "/" + resource;
-	}
-	InputStream is = null;
-	try {
-	    is = clasz.getResourceAsStream(resource);
-	} catch (Exception e) {}
-	if (is == null) {
-	    throw new IOException(errorMsg("missingResource", resource));
-	}
-	InputStreamReader rd = new InputStreamReader(is, encoding);
+	Template template = getTemplate(clasz, resource, encoding);
 	OutputStream os = new FileOutputStream(outputFile);
 	OutputStreamWriter wr = new OutputStreamWriter(os, encoding);
-	processTemplate(rd,wr);
-	is.close();
+	processTemplate(template, wr);
 	wr.close();
     }
 
@@ -1134,31 +1459,21 @@ public void processSystemResource(Class clasz,
      * or just <CODE>getClass()</CODE>.  The first argument is needed
      * in most cases due to the restrictions modules place on the visibility
      * of resources.
+     * The compiled template may be cached as described for
+     * {@link #getTemplate(Class,String,String)}.
      * @param clasz a class in the same package as the resource
      * @param resource the name of the resource containing the template
      * @param encoding the character encoding for the resource
      * @param writer the Writer used to output the replacement text
      * @exception IOException an IO error occurred during processing
      */
-    public void processSystemResource(Class clasz,
+    public void processSystemResource(Class<?> clasz,
 				      String resource,
 				      String encoding,
 				      Writer writer)
 	throws IOException
     {
-	if (!resource.startsWith("/")) {
-	    resource = "/" + resource;
-	}
-	InputStream is = null;
-	try {
-	    is = clasz.getResourceAsStream(resource);
-	} catch (Exception e) {}
-	if (is == null) {
-	    throw new IOException(errorMsg("missingResource", resource));
-	}
-	InputStreamReader rd = new InputStreamReader(is, encoding);
-	processTemplate(rd,writer);
-	is.close();
+	processTemplate(getTemplate(clasz, resource, encoding), writer);
     }
 
     /**
@@ -1169,32 +1484,23 @@ public void processSystemResource(Class clasz,
      * or just <CODE>getClass()</CODE>.  The first argument is needed
      * in most cases due to the restrictions modules place on the visibility
      * of resources.
+     * The compiled template may be cached as described for
+     * {@link #getTemplate(Class,String,String)}.
      * @param clasz a class in the same package as the resource
      * @param resource the name of the resource containing the template
      * @param encoding the character encoding for the resource
      * @param os an output stream for the processed template
      * @exception IOException an IO error occurred during processing
      */
-    public void processSystemResource(Class clasz,
+    public void processSystemResource(Class<?> clasz,
 				      String resource,
 				      String encoding,
 				      OutputStream os)
 	throws IOException
     {
-	if (!resource.startsWith("/")) {
-	    resource = "/" + resource;
-	}
-	InputStream is = null;
-	try {
-	    is = clasz.getResourceAsStream(resource);
-	} catch (Exception e) {}
-	if (is == null) {
-	    throw new IOException(errorMsg("missingResource", resource));
-	}
-	InputStreamReader rd = new InputStreamReader(is, encoding);
+	Template template = getTemplate(clasz, resource, encoding);
 	OutputStreamWriter wr = new OutputStreamWriter(os, encoding);
-	processTemplate(rd,wr);
-	is.close();
+	processTemplate(template, wr);
     }
 
 
@@ -1262,3 +1568,4 @@ public void processSystemResource(Class clasz,
 //  LocalWords:  outputFile keyNotString negposkey hasList hasntList
 //  LocalWords:  keymapList UTF charset csn keymap subtable delimNest
 //  LocalWords:  openingDelim closingDelim closeDelim
+//  LocalWords:  Appendable clasz getTemplate processSystemResource
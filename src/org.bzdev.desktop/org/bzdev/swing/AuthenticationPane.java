@@ -55,8 +55,7 @@ public class AuthenticationPane extends JComponent {
 	return bundle.getString(name);
     }
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(bundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(bundle.getString(key), args);
     }
 
     private static SecureBasicUtilities dops = new SecureBasicUtilities();
@@ -71,8 +71,7 @@ public class CSSCellEditor extends AbstractCellEditor
 	("org.bzdev.swing.lpack.CSSCellEditor");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     Component parent;
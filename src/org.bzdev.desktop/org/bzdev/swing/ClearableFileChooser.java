@@ -30,8 +30,7 @@ public class ClearableFileChooser {
 	("org.bzdev.swing.lpack.ClearableFileChooser");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
     
     JFileChooser fileChooser;
@@ -74,8 +74,7 @@ public class FileNameCellEditor extends AbstractCellEditor
 	("org.bzdev.swing.lpack.FileNameCellEditor");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     Component parent;
@@ -8,7 +8,6 @@ class SwingErrorMsg {
 	("org.bzdev.swing.lpack.Swing");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
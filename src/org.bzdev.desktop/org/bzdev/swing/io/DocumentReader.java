@@ -26,8 +26,7 @@ public class DocumentReader extends Reader {
 	("org.bzdev.swing.io.lpack.IO");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     Document doc;
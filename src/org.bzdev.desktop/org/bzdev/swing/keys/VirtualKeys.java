@@ -22,8 +22,7 @@ public class VirtualKeys {
 	("org.bzdev.swing.keys.lpack.Keys");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     static HashMap<String,Integer> map = new HashMap<>(190*2);
@@ -61,8 +61,7 @@ public class CSSTableCellRenderer extends JLabel
 	("org.bzdev.swing.table.lpack.CSSTableCellRenderer");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
     
     Border unselectedBorder = null;
@@ -46,8 +46,7 @@ public class SimFunctionFactory extends DefaultSimObjectFactory<SimFunction>
 	throws
 	    NullPointerException, MissingResourceException, ClassCastException
     {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
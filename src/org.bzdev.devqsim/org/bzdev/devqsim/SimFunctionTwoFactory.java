@@ -51,8 +51,7 @@ public class SimFunctionTwoFactory extends DefaultSimObjectFactory<SimFunctionTw
 	throws
 	    NullPointerException, MissingResourceException, ClassCastException
     {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
@@ -47,8 +47,7 @@ public class Simulation extends SimulationHelper
 	("org.bzdev.devqsim.lpack.Simulation");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     class State {
@@ -1,5 +1,6 @@
 package org.bzdev.devqsim;
 import org.bzdev.io.AppendableWriter;
+import org.bzdev.util.SafeFormatter;
 // import org.bzdev.lang.StackTraceModePermission;
 import java.io.PrintWriter;
 import java.io.Writer;
@@ -165,22 +166,26 @@ public class TraceSet extends DefaultSimObject {
 
     Set<SimObject> traceSet = new LinkedHashSet<SimObject>();
 
+    // Formats for the start of a trace message and for stack-trace
+    // lines.  SafeFormatter.formatMessage caches their compiled forms
+    // and recompiles them if the default locale changes.
+    private static final String internedPrefix = "[<%d> %s @ %d (%g)]: ";
+    private static final String prefix = "[<%d> <<%s>> @ %d (%g)]: ";
+    private static final String stacktraceLine =
+	"       \"%s\", %d: called from %s#%s\n";
+
     // used by SimObject
     void trace(SimObject object, int level, String format, Object... args) {
 	if (!sim.tracingEnabled) return;
 	if (level > this.level) return;
 	PrintWriter output = (out == null)? sim.traceOut: out;
 	if (output == null) return;
-	String pf;
-	if (object.isInterned()) {
-	    pf = "[<%d> %s @ %d (%g)]: ";
-	} else {
-	    pf = "[<%d> <<%s>> @ %d (%g)]: ";
-	}
-	String prefix = String.format(pf, level, object.getName(),
-				      sim.currentTicks(),
-				      sim.currentTime());
-	output.format(prefix + format + "\n", args); 
+	String pf = object.isInterned()? internedPrefix: prefix;
+	output.write(SafeFormatter.formatMessage(pf, level, object.getName(),
+						 sim.currentTicks(),
+						 sim.currentTime()));
+	output.format(format, args);
+	output.write('\n');
 	if (stacktraceMode) {
 	    StackTraceElement[] stacktrace =
 		Thread.currentThread().getStackTrace();
@@ -191,11 +196,12 @@ public class TraceSet extends DefaultSimObject {
 		3 + stacktraceLimit;
 	    if (lim > stacktrace.length) lim = stacktrace.length;
 	    for (int i = 3; i < lim; i++) {
-		output.format("       \"%s\", %d: called from %s#%s\n",
+		output.write(SafeFormatter.formatMessage
+			     (stacktraceLine,
 			      stacktrace[i].getFileName(),
 			      stacktrace[i].getLineNumber(),
 			      stacktrace[i].getClassName(),
-			      stacktrace[i].getMethodName());
+			      stacktrace[i].getMethodName()));
 	    }
 	}
     }
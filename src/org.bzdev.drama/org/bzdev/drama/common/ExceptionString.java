@@ -9,8 +9,7 @@ class ExceptionString {
 	("org.bzdev.drama.common.lpack.ExceptionString");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
 
@@ -42,8 +42,7 @@ abstract public class GenericSimulation<
       exbundle = ResourceBundle.getBundle("org.bzdev.drama.generic.lpack.GenericSimulation");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     F factory;
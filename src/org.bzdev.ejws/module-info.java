@@ -17,7 +17,7 @@ module org.bzdev.ejws {
     requires java.desktop;
     requires java.xml;
     requires jdk.httpserver;
-    requires org.bzdev.base;
+    requires transitive org.bzdev.base;
     uses org.bzdev.ejws.CertManager;
 }
 
@@ -142,8 +142,7 @@ public abstract class CertManager {
 	("org.bzdev.ejws.lpack.EmbeddedWebServer");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
@@ -367,8 +367,7 @@ public class ConfigurableWS {
 	("org.bzdev.ejws.lpack.ConfigurableWS");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     private static final  String REDACTED = errorMsg("redacted");
@@ -76,6 +76,8 @@ public abstract class EjwsAuthenticator<E extends EjwsAuthenticator>
 
     EmbeddedWebServer ews = null;
     String prefix = null;
+    // set by EmbeddedWebServer.addMetricsFilter
+    volatile EjwsMetrics metrics = null;
 
     File gpghome = null;
 
@@ -48,8 +48,7 @@ public class EjwsBasicAuthenticator
 	("org.bzdev.ejws.lpack.SecureBasicAuth");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     static final String SBLDATA = "application/vnd.bzdev.sblogindata";
@@ -0,0 +1,335 @@
+package org.bzdev.ejws;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+import org.bzdev.net.HttpSessionOps;
+
+/**
+ * Bounded implementation of the HttpSessionOps interface.
+ * This class is similar to {@link EjwsStateTable}, but in addition
+ * <UL>
+ *   <LI> a state can expire when it has not been used for a
+ *        specified time interval (an idle timeout).
+ *   <LI> a state can expire a specified time interval after it
+ *        was created (an absolute timeout).
+ *   <LI> the number of states can be bounded.  When a new state is
+ *        added to a full table, an expired state or the least
+ *        recently used state in a small random sample of the table's
+ *        entries is evicted.
+ * </UL>
+ * Lookups do not acquire a table-wide lock, so handler threads for
+ * an {@link EmbeddedWebServer} do not serialize on this table. Methods
+ * that add, remove, or rename states share a lock, so the bound on
+ * the number of states is never exceeded. Because eviction is based
+ * on sampling, the state evicted is not necessarily the least recently
+ * used state in the table, but is very likely to be one of the older
+ * ones.
+ * <P>
+ * Expired states are removed lazily: a state is removed when a
+ * lookup finds that it has expired, and calls to
+ * {@link #put(String,Object)} scan the table for expired states at
+ * most a few times per timeout interval.  A table that is not
+ * modified is not scanned, so an application that stops adding
+ * states should call {@link #purge()} to release the memory used
+ * by expired states that will never be looked up.
+ * <P>
+ * An eviction handler (see {@link #setEvictionHandler(BiConsumer)})
+ * is called whenever a state is removed because it expired or because
+ * the table was full. An application can use this handler to release
+ * resources or to save a state (for example, in a file) so that it can
+ * be restored when the session is used again.
+ * <P>
+ * An instance of this class can be passed to
+ * {@link EmbeddedWebServer#addSessionFilter(String,HttpSessionOps)}.
+ * @see EjwsStateTable
+ */
+public class EjwsBoundedStateTable implements HttpSessionOps {
+
+    // ConcurrentHashMap does not allow null values.
+    private static final Object NULL_STATE = new Object();
+
+    private static final int SAMPLE_SIZE = 16;
+
+    private static class Entry {
+	String sid;
+	final Object state;
+	final long creationTime;
+	volatile long lastAccessedTime;
+	// index into the entries array; modified only while holding
+	// the table's lock
+	int slot = -1;
+	Entry(String sid, Object state, long creationTime) {
+	    this.sid = sid;
+	    this.state = state;
+	    this.creationTime = creationTime;
+	    lastAccessedTime = creationTime;
+	}
+    }
+
+    private final ConcurrentHashMap<String,Entry> map;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final long absoluteTimeout;
+    private volatile BiConsumer<String,Object> evictionHandler = null;
+
+    // The entries in the map, in no particular order, so that
+    // eviction can sample random entries.  The array, count, and
+    // nextPurgeTime are modified only while holding the table's lock.
+    private Entry[] entries;
+    private int count = 0;
+    // full scans for expired entries are amortized by running them
+    // from put at most once per purgeInterval.
+    private final long purgeInterval;
+    private long nextPurgeTime = 0;
+
+    /**
+     * Constructor.
+     * A timeout whose value is zero indicates that there is no timeout.
+     * @param maxSize the maximum number of states; 0 if there is no limit
+     * @param idleTimeout the time in seconds after which a state that
+     *        has not been used will expire
+     * @param absoluteTimeout the time in seconds after a state's creation
+     *        at which it will expire
+     * @exception IllegalArgumentException an argument was negative
+     */
+    public EjwsBoundedStateTable(int maxSize, int idleTimeout,
+				 int absoluteTimeout)
+	throws IllegalArgumentException
+    {
+	if (maxSize < 0 || idleTimeout < 0 || absoluteTimeout < 0) {
+	    throw new IllegalArgumentException
+		(EmbeddedWebServer.errorMsg("illegalArgument"));
+	}
+	this.maxSize = maxSize;
+	this.idleTimeout = idleTimeout*1000L;
+	this.absoluteTimeout = absoluteTimeout*1000L;
+	long shortest = (idleTimeout == 0)? this.absoluteTimeout:
+	    (absoluteTimeout == 0)? this.idleTimeout:
+	    Math.min(this.idleTimeout, this.absoluteTimeout);
+	purgeInterval = (shortest == 0)? Long.MAX_VALUE: (shortest + 3)/4;
+	map = (maxSize == 0)? new ConcurrentHashMap<String,Entry>():
+	    new ConcurrentHashMap<String,Entry>(maxSize + maxSize/3 + 1);
+	entries = new Entry[(maxSize == 0)? 16: maxSize];
+    }
+
+    /**
+     * Set the eviction handler.
+     * The handler's first argument is a session ID and its second
+     * argument is the state that was removed.  The handler is not
+     * called when a state is removed by calling {@link #remove(String)}.
+     * The handler may be called by any thread that accesses this table,
+     * but is not called while the table's lock is held.
+     * @param handler the handler; null if there is none
+     */
+    public void setEvictionHandler(BiConsumer<String,Object> handler) {
+	evictionHandler = handler;
+    }
+
+    /**
+     * Get the number of states in this table.
+     * The count includes states that have expired but have not yet
+     * been removed.
+     * @return the number of states
+     */
+    public int size() {
+	return map.size();
+    }
+
+    private boolean expired(Entry entry, long now) {
+	return (idleTimeout > 0 && now - entry.lastAccessedTime > idleTimeout)
+	    || (absoluteTimeout > 0
+		&& now - entry.creationTime > absoluteTimeout);
+    }
+
+    // The following methods must be called while holding this
+    // table's lock.
+
+    private void addEntry(Entry entry) {
+	if (count == entries.length) {
+	    Entry[] tmp = new Entry[2*count];
+	    System.arraycopy(entries, 0, tmp, 0, count);
+	    entries = tmp;
+	}
+	entry.slot = count;
+	entries[count++] = entry;
+	map.put(entry.sid, entry);
+    }
+
+    private void replaceEntry(Entry old, Entry entry) {
+	entry.slot = old.slot;
+	entries[entry.slot] = entry;
+	old.slot = -1;
+	map.put(entry.sid, entry);
+    }
+
+    private void removeEntry(Entry entry) {
+	map.remove(entry.sid);
+	int slot = entry.slot;
+	Entry last = entries[--count];
+	entries[slot] = last;
+	last.slot = slot;
+	entries[count] = null;
+	entry.slot = -1;
+    }
+
+    private void purgeLocked(long now, ArrayList<Entry> evicted) {
+	// iterate backwards so that removals move only entries that
+	// were already examined.
+	for (int i = count - 1; i >= 0; i--) {
+	    Entry entry = entries[i];
+	    if (expired(entry, now)) {
+		removeEntry(entry);
+		evicted.add(entry);
+	    }
+	}
+	nextPurgeTime = (purgeInterval > Long.MAX_VALUE - now)?
+	    Long.MAX_VALUE: now + purgeInterval;
+    }
+
+    private void makeRoom(long now, ArrayList<Entry> evicted) {
+	if (maxSize == 0 || count < maxSize) return;
+	ThreadLocalRandom random = ThreadLocalRandom.current();
+	while (count >= maxSize) {
+	    Entry oldest = null;
+	    for (int i = 0; i < SAMPLE_SIZE; i++) {
+		Entry entry = entries[random.nextInt(count)];
+		if (expired(entry, now)) {
+		    oldest = entry;
+		    break;
+		}
+		if (oldest == null
+		    || entry.lastAccessedTime < oldest.lastAccessedTime) {
+		    oldest = entry;
+		}
+	    }
+	    removeEntry(oldest);
+	    evicted.add(oldest);
+	}
+    }
+
+    private void notifyEvicted(ArrayList<Entry> evicted) {
+	BiConsumer<String,Object> handler = evictionHandler;
+	if (handler != null) {
+	    for (Entry entry: evicted) {
+		handler.accept(entry.sid,
+			       (entry.state == NULL_STATE)? null: entry.state);
+	    }
+	}
+    }
+
+    private void evict(Entry entry) {
+	String sid;
+	synchronized (this) {
+	    // The entry may have been replaced or removed by another
+	    // thread.
+	    if (entry.slot < 0) return;
+	    removeEntry(entry);
+	    sid = entry.sid;
+	}
+	BiConsumer<String,Object> handler = evictionHandler;
+	if (handler != null) {
+	    handler.accept(sid, (entry.state == NULL_STATE)? null: entry.state);
+	}
+    }
+
+    /**
+     * Remove all expired states.
+     * Expired states are also removed when they are looked up and,
+     * periodically, when states are added, so calling this method is
+     * not necessary while the table is in use.  Calling it will
+     * release memory used by sessions that will not be used again
+     * when no new sessions are being created.
+     */
+    public void purge() {
+	ArrayList<Entry> evicted = new ArrayList<>();
+	synchronized (this) {
+	    purgeLocked(System.currentTimeMillis(), evicted);
+	}
+	notifyEvicted(evicted);
+    }
+
+    @Override
+    public synchronized void remove(String sid) {
+	Entry entry = map.get(sid);
+	if (entry != null) {
+	    removeEntry(entry);
+	}
+    }
+
+    @Override
+    public void put(String sid, Object state) {
+	ArrayList<Entry> evicted = null;
+	long now = System.currentTimeMillis();
+	synchronized (this) {
+	    if (now >= nextPurgeTime) {
+		evicted = new ArrayList<>();
+		purgeLocked(now, evicted);
+	    }
+	    Entry old = map.get(sid);
+	    if (old != null && expired(old, now)) {
+		// an expired state is treated as absent
+		removeEntry(old);
+		if (evicted == null) evicted = new ArrayList<>();
+		evicted.add(old);
+		old = null;
+	    }
+	    // replacing a state does not extend its absolute timeout
+	    Entry entry = new Entry(sid, (state == null)? NULL_STATE: state,
+				    (old == null)? now: old.creationTime);
+	    entry.lastAccessedTime = now;
+	    if (old == null) {
+		if (maxSize > 0 && count >= maxSize) {
+		    if (evicted == null) evicted = new ArrayList<>();
+		    makeRoom(now, evicted);
+		}
+		addEntry(entry);
+	    } else {
+		replaceEntry(old, entry);
+	    }
+	}
+	if (evicted != null) notifyEvicted(evicted);
+    }
+
+    @Override
+    public synchronized void rename(String oldID, String newID)
+	throws IllegalStateException
+    {
+	Entry entry = map.get(oldID);
+	if (entry == null || map.containsKey(newID)) {
+	    throw new IllegalStateException();
+	}
+	map.remove(oldID);
+	entry.sid = newID;
+	map.put(newID, entry);
+    }
+
+    @Override
+    public boolean contains(String sid) {
+	Entry entry = map.get(sid);
+	if (entry == null) return false;
+	if (expired(entry, System.currentTimeMillis())) {
+	    evict(entry);
+	    return false;
+	}
+	return true;
+    }
+
+    @Override
+    public Object get(String sid) {
+	Entry entry = map.get(sid);
+	if (entry == null) return null;
+	long now = System.currentTimeMillis();
+	if (expired(entry, now)) {
+	    evict(entry);
+	    return null;
+	}
+	entry.lastAccessedTime = now;
+	return (entry.state == NULL_STATE)? null: entry.state;
+    }
+}
+
+//  LocalWords:  HttpSessionOps EjwsStateTable UL LI EmbeddedWebServer
+//  LocalWords:  setEvictionHandler BiConsumer addSessionFilter
+//  LocalWords:  maxSize idleTimeout absoluteTimeout
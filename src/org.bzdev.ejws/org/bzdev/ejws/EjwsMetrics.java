@@ -0,0 +1,341 @@
+package org.bzdev.ejws;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.bzdev.util.JSObject;
+
+/**
+ * Request metrics for an HTTP context.
+ * An instance of this class is created by calling
+ * {@link EmbeddedWebServer#addMetricsFilter(String)} and can be
+ * obtained by calling {@link EmbeddedWebServer#getMetrics(String)}.
+ * It records the number of requests processed, the number of
+ * responses for each HTTP status code, the number of bytes in
+ * response bodies, and a histogram of request latencies. When the
+ * context's authenticator is an instance of {@link EjwsSecureBasicAuth},
+ * the number of authentication-cache hits, the number of full
+ * credential checks, and the number of authentication failures are
+ * recorded as well.
+ * <P>
+ * The counters are updated without locking so that collecting metrics
+ * does not serialize the threads handling requests.  The latency
+ * histogram uses logarithmic buckets, each subdivided into 16 linear
+ * sub-buckets, so that a percentile is reported with a relative error
+ * of at most about 6 percent.  Latencies are measured in
+ * microseconds from the time the metrics filter starts processing a
+ * request until the request's handler returns.
+ * <P>
+ * The class {@link org.bzdev.ejws.maps.MetricsWebMap} can be used to
+ * provide these metrics in JSON format.
+ */
+public class EjwsMetrics {
+
+    // Latency histogram with HDR-style buckets: values below
+    // SUBCOUNT are stored exactly, larger values are stored in
+    // buckets indexed by the position of their leading bit and
+    // by the next SUBBITS bits.
+    static final int SUBBITS = 4;
+    static final int SUBCOUNT = 1 << SUBBITS;
+    static final int MAXEXP = 40;
+    static final int NBUCKETS = (MAXEXP - SUBBITS + 2) * SUBCOUNT;
+
+    static int bucketIndex(long value) {
+	if (value < SUBCOUNT) {
+	    return (value < 0)? 0: (int) value;
+	}
+	int exp = 63 - Long.numberOfLeadingZeros(value);
+	if (exp > MAXEXP) return NBUCKETS - 1;
+	int sub = (int)((value >>> (exp - SUBBITS)) & (SUBCOUNT - 1));
+	return (exp - SUBBITS + 1) * SUBCOUNT + sub;
+    }
+
+    // largest value that maps to a bucket
+    static long bucketLimit(int index) {
+	if (index < SUBCOUNT) return index;
+	int exp = index / SUBCOUNT + SUBBITS - 1;
+	long sub = index % SUBCOUNT;
+	long base = 1L << exp;
+	long width = 1L << (exp - SUBBITS);
+	return base + (sub + 1) * width - 1;
+    }
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(600);
+    private final AtomicLongArray latencies = new AtomicLongArray(NBUCKETS);
+    private final LongAdder authCacheHits = new LongAdder();
+    private final LongAdder authChecks = new LongAdder();
+    private final LongAdder authFailures = new LongAdder();
+
+    /**
+     * Constructor.
+     */
+    public EjwsMetrics() {}
+
+    /**
+     * Record a request.
+     * @param status the HTTP status code; -1 if no response was sent
+     * @param latency the time in microseconds needed to process the
+     *        request
+     * @param nbytes the number of bytes in the response body
+     */
+    void recordRequest(int status, long latency, long nbytes) {
+	requests.increment();
+	if (status >= 0 && status < 600) {
+	    statusCounts.incrementAndGet(status);
+	}
+	bytesOut.add(nbytes);
+	totalLatency.add(latency);
+	latencies.incrementAndGet(bucketIndex(latency));
+	long max = maxLatency.get();
+	while (latency > max) {
+	    if (maxLatency.compareAndSet(max, latency)) break;
+	    max = maxLatency.get();
+	}
+    }
+
+    void recordAuthCacheHit() {
+	authCacheHits.increment();
+    }
+
+    void recordAuthCheck(boolean success) {
+	authChecks.increment();
+	if (!success) authFailures.increment();
+    }
+
+    void recordAuthFailure() {
+	authFailures.increment();
+    }
+
+    /**
+     * Get the number of requests processed.
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+	return requests.sum();
+    }
+
+    /**
+     * Get the number of responses with a given status code.
+     * @param status the HTTP status code
+     * @return the number of responses with the given status code
+     */
+    public long getStatusCount(int status) {
+	if (status < 0 || status >= 600) return 0;
+	return statusCounts.get(status);
+    }
+
+    /**
+     * Get the number of bytes sent in response bodies.
+     * @return the number of bytes
+     */
+    public long getBytesOut() {
+	return bytesOut.sum();
+    }
+
+    /**
+     * Get the mean latency.
+     * @return the mean latency in microseconds; 0.0 if no requests
+     *         have been recorded
+     */
+    public double getMeanLatency() {
+	long n = requests.sum();
+	return (n == 0)? 0.0: ((double)totalLatency.sum())/n;
+    }
+
+    /**
+     * Get the maximum latency.
+     * @return the maximum latency in microseconds
+     */
+    public long getMaxLatency() {
+	return maxLatency.get();
+    }
+
+    /**
+     * Get a latency percentile.
+     * The value returned is the upper limit of the histogram bucket
+     * containing the requested percentile, but will not exceed
+     * the maximum latency that was recorded.
+     * @param percentile the percentile in the range [0.0, 100.0]
+     * @return the latency in microseconds; 0 if no requests have been
+     *         recorded
+     * @exception IllegalArgumentException the percentile was out of range
+     */
+    public long getLatencyPercentile(double percentile)
+	throws IllegalArgumentException
+    {
+	if (percentile < 0.0 || percentile > 100.0) {
+	    throw new IllegalArgumentException
+		(EmbeddedWebServer.errorMsg("percentile", percentile));
+	}
+	long[] counts = new long[NBUCKETS];
+	long total = 0;
+	for (int i = 0; i < NBUCKETS; i++) {
+	    counts[i] = latencies.get(i);
+	    total += counts[i];
+	}
+	if (total == 0) return 0;
+	long target = (long)Math.ceil(total * percentile / 100.0);
+	if (target == 0) target = 1;
+	long sum = 0;
+	for (int i = 0; i < NBUCKETS; i++) {
+	    sum += counts[i];
+	    if (sum >= target) {
+		return Math.min(bucketLimit(i), maxLatency.get());
+	    }
+	}
+	return maxLatency.get();
+    }
+
+    /**
+     * Get the number of requests authenticated using cached credentials.
+     * @return the number of authentication-cache hits
+     */
+    public long getAuthCacheHits() {
+	return authCacheHits.sum();
+    }
+
+    /**
+     * Get the number of full credential checks.
+     * A full check verifies a digital signature or message digest
+     * rather than using cached credentials.
+     * @return the number of credential checks
+     */
+    public long getAuthChecks() {
+	return authChecks.sum();
+    }
+
+    /**
+     * Get the number of failed authentication attempts.
+     * @return the number of failures
+     */
+    public long getAuthFailures() {
+	return authFailures.sum();
+    }
+
+    /**
+     * Reset all counters and the latency histogram.
+     * Updates that occur concurrently with this method may be lost.
+     */
+    public void reset() {
+	requests.reset();
+	bytesOut.reset();
+	totalLatency.reset();
+	maxLatency.set(0);
+	for (int i = 0; i < 600; i++) {
+	    statusCounts.set(i, 0);
+	}
+	for (int i = 0; i < NBUCKETS; i++) {
+	    latencies.set(i, 0);
+	}
+	authCacheHits.reset();
+	authChecks.reset();
+	authFailures.reset();
+    }
+
+    /**
+     * Create a JSON-compatible representation of these metrics.
+     * The object returned contains the keys
+     * <UL>
+     *   <LI><STRONG>requests</STRONG>. The number of requests.
+     *   <LI><STRONG>bytesOut</STRONG>. The number of bytes sent in
+     *       response bodies.
+     *   <LI><STRONG>status</STRONG>. An object whose keys are HTTP
+     *       status codes and whose values are the number of responses
+     *       with that status code. Only status codes that occurred are
+     *       included.
+     *   <LI><STRONG>latency</STRONG>. An object with the keys
+     *      <STRONG>mean</STRONG>, <STRONG>p50</STRONG>,
+     *      <STRONG>p90</STRONG>, <STRONG>p99</STRONG>,
+     *      <STRONG>p999</STRONG>, and <STRONG>max</STRONG>, whose
+     *      values are latencies in microseconds.
+     *   <LI><STRONG>auth</STRONG>. An object with the keys
+     *      <STRONG>cacheHits</STRONG>, <STRONG>checks</STRONG>, and
+     *      <STRONG>failures</STRONG>.
+     * </UL>
+     * @return the object
+     */
+    public JSObject toJSObject() {
+	JSObject result = new JSObject();
+	result.put("requests", getRequestCount());
+	result.put("bytesOut", getBytesOut());
+	JSObject status = new JSObject();
+	for (int i = 0; i < 600; i++) {
+	    long count = statusCounts.get(i);
+	    if (count > 0) {
+		status.put("" + i, count);
+	    }
+	}
+	result.put("status", status);
+	JSObject latency = new JSObject();
+	latency.put("mean", getMeanLatency());
+	latency.put("p50", getLatencyPercentile(50.0));
+	latency.put("p90", getLatencyPercentile(90.0));
+	latency.put("p99", getLatencyPercentile(99.0));
+	latency.put("p999", getLatencyPercentile(99.9));
+	latency.put("max", getMaxLatency());
+	result.put("latency", latency);
+	JSObject auth = new JSObject();
+	auth.put("cacheHits", getAuthCacheHits());
+	auth.put("checks", getAuthChecks());
+	auth.put("failures", getAuthFailures());
+	result.put("auth", auth);
+	return result;
+    }
+
+    // Counts the bytes written to a response body.  An exchange is
+    // handled by a single thread so the count does not have to be
+    // synchronized.
+    static class CountingOutputStream extends FilterOutputStream {
+	long count = 0;
+	CountingOutputStream(OutputStream os) {
+	    super(os);
+	}
+	@Override
+	public void write(int b) throws IOException {
+	    out.write(b);
+	    count++;
+	}
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+	    out.write(b, off, len);
+	    count += len;
+	}
+    }
+
+    class MetricsFilter extends Filter {
+	@Override
+	public String description() {return "request metrics";}
+
+	@Override
+	public void doFilter(HttpExchange exchange, Filter.Chain chain)
+	    throws IOException
+	{
+	    long start = System.nanoTime();
+	    CountingOutputStream os =
+		new CountingOutputStream(exchange.getResponseBody());
+	    exchange.setStreams(null, os);
+	    try {
+		chain.doFilter(exchange);
+	    } finally {
+		long latency = (System.nanoTime() - start) / 1000;
+		recordRequest(exchange.getResponseCode(), latency, os.count);
+	    }
+	}
+    }
+
+    private final MetricsFilter filter = new MetricsFilter();
+
+    Filter getFilter() {return filter;}
+}
+
+//  LocalWords:  EmbeddedWebServer addMetricsFilter getMetrics HTTP
+//  LocalWords:  EjwsSecureBasicAuth HDR JSON MetricsWebMap bytesOut
+//  LocalWords:  UL LI STRONG p50 p90 p99 p999 cacheHits
@@ -146,8 +146,7 @@ public class EjwsSecureBasicAuth
 	("org.bzdev.ejws.lpack.SecureBasicAuth");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     static final String SBLDATA = "application/vnd.bzdev.sblogindata";
@@ -1582,8 +1581,8 @@ public class EjwsSecureBasicAuth
 			    .toASCIIString();
 			if (dest == null) dest = "/";
 			// msg = errorMsg(msg, dest);
-			msg = (new SafeFormatter()).format
-			    (exbundle.getString(msg), dest).toString();
+			msg = SafeFormatter.formatMessage
+			    (exbundle.getString(msg), dest);
 			byte[] data = msg.getBytes(UTF8);
 			Headers rhdrs = t.getResponseHeaders();
 			rhdrs.set("Content-type",
@@ -2026,8 +2025,8 @@ public class EjwsSecureBasicAuth
 					    .getEpochSecond();
 					PWInfoKey key = new
 					    PWInfoKey(un, cookie);
-					pwmap.put(key, new PWInfo
-						  (now+passphraseTimeout, pw1));
+					cachePW(key, new PWInfo
+						(now+passphraseTimeout, pw1));
 					loginMap.put(cookie.getValue(), un);
 				    }
 				}
@@ -2297,7 +2296,8 @@ public class EjwsSecureBasicAuth
 
 
     private static class PWInfo {
-	long expires;
+	// modified without locking when a cached password is used.
+	volatile long expires;
 	// InetAddress addr;		// client IP address
 	String password;
 	public PWInfo(long time, /*InetAddress addr,*/ String pw) {
@@ -2307,17 +2307,44 @@ public class EjwsSecureBasicAuth
 	}
     }
 
-    //  private Map<PWInfoKey,PWInfo> pwmap = new ConcurrentHashMap<>();
-    private Map<PWInfoKey,PWInfo> pwmap = Collections
-	.synchronizedMap(new HashMap<PWInfoKey, PWInfo>());
+    // Concurrent maps so that handler threads do not serialize on
+    // the password cache during bursts of logins.
+    private Map<PWInfoKey,PWInfo> pwmap = new ConcurrentHashMap<>();
 
     // Cache-control deosn't prevent an old login from being used by
     // a browser.
-    private Set<PWInfoKey> logoutSet = Collections
-	.synchronizedSet(new HashSet<PWInfoKey>());
+    private Set<PWInfoKey> logoutSet = ConcurrentHashMap.newKeySet();
+
+    private Map<String,String> loginMap = new ConcurrentHashMap<>();
+
+    // Timing wheel used by prune(): each slot contains the keys whose
+    // expiration time (in units of WHEEL_TICK seconds) is congruent to
+    // the slot index modulo WHEEL_SIZE.  Expiration times can be
+    // extended after a key is scheduled, so a key is rescheduled when
+    // its slot is processed and it has not yet expired.
+    private static final int WHEEL_SIZE = 64;
+    private static final long WHEEL_TICK = 60;
+    @SuppressWarnings("unchecked")
+    private Set<PWInfoKey>[] wheel = (Set<PWInfoKey>[])
+	new Set<?>[WHEEL_SIZE];
+    {
+	for (int i = 0; i < WHEEL_SIZE; i++) {
+	    wheel[i] = ConcurrentHashMap.newKeySet();
+	}
+    }
+    // the last tick processed by prune()
+    private long lastTick = -1;
+
+    private void schedule(PWInfoKey key, long expires) {
+	int slot = (int)Math.floorMod(expires/WHEEL_TICK, (long)WHEEL_SIZE);
+	wheel[slot].add(key);
+    }
 
-    private Map<String,String> loginMap = Collections.
-	synchronizedMap(new HashMap<String,String>());
+    // add an entry to pwmap and schedule its removal
+    private void cachePW(PWInfoKey key, PWInfo pwinfo) {
+	pwmap.put(key, pwinfo);
+	schedule(key, pwinfo.expires + TOFFSET);
+    }
 
 
     /**
@@ -2348,19 +2375,43 @@ public class EjwsSecureBasicAuth
      * The method can be called periodically to eliminate passwords
      * when a user has not explicitly logged out and has not sent
      * any HTTP requests for some time.
+     * <P>
+     * Cached passwords are grouped by their expiration times, so
+     * each call examines only the passwords that could have expired
+     * since the previous call rather than the entire cache, and does
+     * not block threads that are authenticating requests.
      */
     public void prune() {
 	long now = Instant.now().getEpochSecond();
-	Iterator<Map.Entry<PWInfoKey,PWInfo>> it = pwmap.entrySet().iterator();
-	while (it.hasNext()) {
-	    Map.Entry<PWInfoKey,PWInfo> info = it.next();
-	    if (info.getValue().expires < now - TOFFSET) {
-		String un = info.getKey().username;
-		it.remove();
-		EjwsPrincipal p = new EjwsPrincipal(un, unencodedRealm,
-						    map.get(un).roles);
-		if (logoutFunction != null) {
-		    logoutFunction.accept(p, null);
+	// the last complete tick: keys in its slot have expired unless
+	// their expiration times were extended.
+	long tick = now/WHEEL_TICK - 1;
+	long first;
+	synchronized (wheel) {
+	    first = (lastTick < 0 || tick - lastTick >= WHEEL_SIZE)?
+		tick - WHEEL_SIZE + 1: lastTick + 1;
+	    if (first > tick) return;
+	    lastTick = tick;
+	}
+	for (long t = first; t <= tick; t++) {
+	    Set<PWInfoKey> slot = wheel[Math.floorMod(t, WHEEL_SIZE)];
+	    // copy the slot: a key may be rescheduled into the same slot.
+	    for (PWInfoKey key: new ArrayList<PWInfoKey>(slot)) {
+		slot.remove(key);
+		PWInfo pwinfo = pwmap.get(key);
+		if (pwinfo == null) continue;
+		if (pwinfo.expires < now - TOFFSET) {
+		    if (pwmap.remove(key, pwinfo)) {
+			String un = key.username;
+			Entry entry = map.get(un);
+			if (entry != null && logoutFunction != null) {
+			    EjwsPrincipal p = new
+				EjwsPrincipal(un, unencodedRealm, entry.roles);
+			    logoutFunction.accept(p, null);
+			}
+		    }
+		} else {
+		    schedule(key, pwinfo.expires + TOFFSET);
 		}
 	    }
 	}
@@ -2384,6 +2435,7 @@ public class EjwsSecureBasicAuth
 	InetAddress iaddr = addr.get();
 	ServerCookie cookie = cookieTL.get();
 	PWInfoKey key = new PWInfoKey(username, cookie);
+	EjwsMetrics metrics = this.metrics;
 	if (logoutSet.contains(key)) {
 	    logoutSet.remove(key);
 	    return false;
@@ -2399,6 +2451,7 @@ public class EjwsSecureBasicAuth
 		if (pwinfo.password.equals(password)) {
 		    pwinfo.expires = ((passphraseTimeout == 0)?
 				      TOFFSET: passphraseTimeout) + now;
+		    if (metrics != null) metrics.recordAuthCacheHit();
 		    if (tracer != null) {
 			String ct = "" + Thread.currentThread().getId();
 			try {
@@ -2446,6 +2499,7 @@ public class EjwsSecureBasicAuth
 	Entry entry = map.get(username);
 	// System.out.println("entry = " + entry);
 	if (entry == null) {
+	    if (metrics != null) metrics.recordAuthFailure();
 	    if (tracer != null) {
 		String ct = "" + Thread.currentThread().getId();
 		try {
@@ -2474,17 +2528,22 @@ public class EjwsSecureBasicAuth
 	if (ops == null) {
 	    // the user was configured with just a password
 	    boolean result = password.equals(entry.pw);
+	    if (metrics != null) metrics.recordAuthCheck(result);
 	    if (result == true && passphraseTimeout > 0) {
-		pwmap.put(key, new PWInfo(now + passphraseTimeout,
-					  password));
+		cachePW(key, new PWInfo(now + passphraseTimeout,
+					password));
 		loginMap.put(cookie.getValue(), username);
 	    }
 	    return result;
 	}
 	byte[] sigarray = SecureBasicUtilities.decodePassword(password);
-	if (sigarray == null) return false;
+	if (sigarray == null) {
+	    if (metrics != null) metrics.recordAuthFailure();
+	    return false;
+	}
 	int timediff = SecureBasicUtilities.getTimeDiff(sigarray);
 	if (timediff < lowerTimeDiffLimit || timediff > upperTimeDiffLimit) {
+	    if (metrics != null) metrics.recordAuthFailure();
 	    if (tracer != null) {
 		String ct = "" + Thread.currentThread().getId();
 		try {
@@ -2495,12 +2554,14 @@ public class EjwsSecureBasicAuth
 	    return false;
 	}
 	try {
-	    if (ops.checkPassword(sigarray, certificates,
-				  entry.getPassword())) {
-		pwmap.put(key,
-			  new PWInfo(now + ((passphraseTimeout == 0)?
-					    TOFFSET: passphraseTimeout),
-				     password));
+	    boolean ok = ops.checkPassword(sigarray, certificates,
+					   entry.getPassword());
+	    if (metrics != null) metrics.recordAuthCheck(ok);
+	    if (ok) {
+		cachePW(key,
+			new PWInfo(now + ((passphraseTimeout == 0)?
+					  TOFFSET: passphraseTimeout),
+				   password));
 		loginMap.put(cookie.getValue(), username);
 		/*
 		System.out.println("loginMap.put " + username + ", "
@@ -2529,6 +2590,7 @@ public class EjwsSecureBasicAuth
 	    }
 
 	} catch (GeneralSecurityException e) {
+	    if (metrics != null) metrics.recordAuthCheck(false);
 	    if (tracer != null) {
 		String ct = "" + Thread.currentThread().getId();
 		try {
@@ -1,22 +1,32 @@
 package org.bzdev.ejws;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bzdev.net.HttpSessionOps;
 
 
 /**
- *  Ejws immplenation of the HttpSessionOps interface
+ *  Ejws immplenation of the HttpSessionOps interface.
+ *  <P>
+ *  An {@link EmbeddedWebServer} handles requests on multiple threads,
+ *  so this class uses a concurrent map: lookups do not lock the table.
+ *  States are never removed except when a session ends. The class
+ *  {@link EjwsBoundedStateTable} can be used when the number of
+ *  sessions must be bounded or when states should expire.
+ *  @see EjwsBoundedStateTable
  */
 public class EjwsStateTable implements HttpSessionOps {
 
+    // ConcurrentHashMap does not allow null values.
+    private static final Object NULL_STATE = new Object();
+
     Map<String,Object> map;
 
     /**
      * Constructor.
      */
     public EjwsStateTable() {
-	map = new HashMap<String,Object>();
+	map = new ConcurrentHashMap<String,Object>();
     }
 
     /**
@@ -24,7 +34,7 @@ public class EjwsStateTable implements HttpSessionOps {
      * @param size the table size
      */
     public EjwsStateTable(int size) {
-	map = new HashMap<String,Object>(size);
+	map = new ConcurrentHashMap<String,Object>(size);
     }
 
     @Override
@@ -34,7 +44,7 @@ public class EjwsStateTable implements HttpSessionOps {
 
     @Override
     public void put(String sid, Object state) {
-	map.put(sid, state);
+	map.put(sid, (state == null)? NULL_STATE: state);
     }
 
     @Override
@@ -45,7 +55,16 @@ public class EjwsStateTable implements HttpSessionOps {
 	    throw new IllegalStateException();
 	}
 	Object state = map.remove(oldID);
-	map.put(newID, state);
+	if (state == null) {
+	    // removed by another thread
+	    throw new IllegalStateException();
+	}
+	// put does not lock the table, so another thread may have
+	// added newID after the test above.
+	if (map.putIfAbsent(newID, state) != null) {
+	    map.putIfAbsent(oldID, state);
+	    throw new IllegalStateException();
+	}
     }
 
 
@@ -56,7 +75,8 @@ public class EjwsStateTable implements HttpSessionOps {
 
     @Override
     public Object get(String sid) {
-	return map.get(sid);
+	Object state = map.get(sid);
+	return (state == NULL_STATE)? null: state;
     }
 
 }
@@ -260,8 +260,7 @@ public class EmbeddedWebServer {
 	("org.bzdev.ejws.lpack.EmbeddedWebServer");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     /**
@@ -1055,6 +1054,7 @@ public class EmbeddedWebServer {
 	com.sun.net.httpserver.Authenticator authenticator;
 	HttpContext context = null;
 	EjwsSessionMgr sessionMgr = null;
+	EjwsMetrics metrics = null;
 	PrefixData(HttpHandler h, com.sun.net.httpserver.Authenticator a) {
 	    handler = h;
 	    authenticator = a;
@@ -1112,6 +1112,8 @@ public class EmbeddedWebServer {
      * {@link EjwsStateTable} provides the default implementation. This
      * implementation is suitable for most purposes. Subclassing it might
      * be useful for debugging (e.g., to insert print statements).
+     * {@link EjwsBoundedStateTable} can be used when the number of
+     * states must be bounded or when states should expire.
      * <P>
      * {@link EmbeddedWebServer} does not provide any way of
      * deallocating resources once a state is no longer in use. The
@@ -1127,6 +1129,7 @@ public class EmbeddedWebServer {
      *         have an {@link com.sun.net.httpserver.HttpContext HttpContext})
      * @see org.bzdev.net.HttpSessionOps
      * @see EjwsStateTable
+     * @see EjwsBoundedStateTable
      * @see EmbeddedWebServer#addSessionFilter(String,boolean)
      */
     public boolean addSessionFilter(String path, HttpSessionOps sessionOps)  {
@@ -1142,6 +1145,66 @@ public class EmbeddedWebServer {
 	return true;
     }
 
+    /**
+     * Add a filter that collects request metrics for a path.
+     * The metrics include the number of requests, the number of
+     * responses for each status code, the number of bytes in response
+     * bodies, and request latencies. If the path's authenticator is an
+     * instance of {@link EjwsSecureBasicAuth}, authentication counts are
+     * collected as well.  Calling this method more than once for the
+     * same path has the same effect as calling it once.
+     * @param path a path that has been added to this server
+     * @return true on success; false otherwise (for example, the path
+     *         had not been added to this server or the path does not
+     *         have an {@link com.sun.net.httpserver.HttpContext HttpContext})
+     * @see EjwsMetrics
+     * @see #getMetrics(String)
+     */
+    public boolean addMetricsFilter(String path) {
+	PrefixData data = prefixMap.get(path);
+	if (data == null) return false;
+	HttpContext context = data.context;
+	if (context == null) return false;
+	if (data.metrics == null) {
+	    EjwsMetrics metrics = new EjwsMetrics();
+	    // first so that the latency includes the other filters.
+	    context.getFilters().add(0, metrics.getFilter());
+	    data.metrics = metrics;
+	    if (data.authenticator instanceof EjwsAuthenticator) {
+		((EjwsAuthenticator)data.authenticator).metrics = metrics;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Get the request metrics for a prefix.
+     * A leading and/or trailing '/' will be added to the prefix if
+     * missing.
+     * @param p the prefix (null implies the root prefix)
+     * @return the metrics; null if
+     *         {@link #addMetricsFilter(String)} has not been called for
+     *         this prefix
+     */
+    public EjwsMetrics getMetrics(String p) {
+	if (p != null) {
+	    if (!p.startsWith("/")) {
+		p = "/" + p;
+	    }
+	    if (!p.endsWith("/")) {
+		p = p + "/";
+	    }
+	} else {
+	    p = "/";
+	}
+	PrefixData pdata = prefixMap.get(p);
+	if (pdata == null) {
+	    return null;
+	} else {
+	    return pdata.metrics;
+	}
+    }
+
     /**
      * Add a filter to the HTTP context associated with a path.
      * @param path the path
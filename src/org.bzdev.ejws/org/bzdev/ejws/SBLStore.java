@@ -41,8 +41,7 @@ public class SBLStore implements AutoCloseable {
 	("org.bzdev.ejws.lpack.SBLStore");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     File file;
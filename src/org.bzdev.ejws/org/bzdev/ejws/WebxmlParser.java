@@ -125,8 +125,7 @@ public class WebxmlParser {
     }
 
     static String errorMsg(String key, Object ... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     SAXParser parser;
@@ -0,0 +1,135 @@
+package org.bzdev.ejws.maps;
+import org.bzdev.ejws.*;
+import org.bzdev.util.JSObject;
+import org.bzdev.util.JSUtilities;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+//@exbundle org.bzdev.ejws.maps.lpack.WebMap
+
+/**
+ * WebMap providing the request metrics for an embedded web server.
+ * The sole argument to the constructor is the
+ * {@link EmbeddedWebServer} whose metrics will be provided. Metrics
+ * are available only for prefixes for which
+ * {@link EmbeddedWebServer#addMetricsFilter(String)} was called.
+ * <P>
+ * A request whose path (excluding the prefix for this web map) is
+ * empty will return a JSON object whose keys are the server's
+ * prefixes and whose values are the objects created by
+ * {@link EjwsMetrics#toJSObject()}. Otherwise the path (excluding
+ * the prefix for this web map) is treated as a prefix for the server,
+ * and the response will be the JSON object for that prefix's metrics.
+ * For example,
+ * <BLOCKQUOTE><PRE><CODE>
+ *    EmbeddedWebServer ews = new EmbeddedWebServer(8080);
+ *    ews.add("/docs/", DirWebMap.class, new File("docs"), null,
+ *            true, true, true);
+ *    ews.addMetricsFilter("/docs/");
+ *    ews.add("/metrics/", MetricsWebMap.class, ews, auth,
+ *            true, false, true);
+ * </CODE></PRE></BLOCKQUOTE>
+ * will allow an administrator to use the URL
+ * <CODE>http://localhost:8080/metrics/docs</CODE> to view the metrics
+ * for the prefix <CODE>/docs/</CODE>.  As metrics can reveal
+ * information about a server's usage, the prefix for this web map
+ * should normally have an authenticator.
+ */
+public class MetricsWebMap extends WebMap {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    EmbeddedWebServer ews;
+
+    static String errorMsg(String key, Object... args) {
+	return WebMapErrorMsg.errorMsg(key, args);
+    }
+
+    /**
+     * Constructor.
+     * @param ews the embedded web server whose metrics will be provided
+     * @exception IllegalArgumentException the argument is not an
+     *            instance of {@link EmbeddedWebServer}
+     */
+    public MetricsWebMap(Object ews) throws IllegalArgumentException {
+	if (ews instanceof EmbeddedWebServer) {
+	    this.ews = (EmbeddedWebServer) ews;
+	} else {
+	    throw new IllegalArgumentException(errorMsg("constrArgNotEWS"));
+	}
+    }
+
+    @Override
+    public WebMap.Info getWebxml() {
+	return null;
+    }
+
+    @Override
+    public WebMap.Info getWelcomeInfo() throws IOException {
+	return metricsInfo(null);
+    }
+
+    private WebMap.Info metricsInfo(String prefix) throws IOException {
+	Object object;
+	if (prefix == null) {
+	    JSObject all = new JSObject();
+	    for (String p: ews.getPrefixes()) {
+		EjwsMetrics metrics = ews.getMetrics(p);
+		if (metrics != null) {
+		    all.put(p, metrics.toJSObject());
+		}
+	    }
+	    object = all;
+	} else {
+	    EjwsMetrics metrics = ews.getMetrics(prefix);
+	    if (metrics == null) return null;
+	    object = metrics.toJSObject();
+	}
+	ByteArrayOutputStream os = new ByteArrayOutputStream();
+	Writer w = new OutputStreamWriter(os, UTF8);
+	JSUtilities.JSON.writeTo(w, object);
+	w.close();
+	byte[] bytes = os.toByteArray();
+	WebMap.Info info =
+	    new WebMap.Info(new ByteArrayInputStream(bytes), bytes.length,
+			    "application/json; charset=utf-8", prefix);
+	return info;
+    }
+
+    /**
+     * Get an Info object for a resource.
+     * Only the path component is used.
+     * @param prepath the initial portion of the request URI - the part
+     *        before the path portion of the URI
+     * @param path the relative path to the resource
+     * @param query the query portion of the request URI
+     * @param fragment the fragment portion of the request URI
+     * @param requestInfo an object encapsulating request data
+     *        (headers, input streams, etc.)
+     * @return an Info object describing properties of a resource and
+     *         providing an input stream to the resource
+     * @exception IOException an IO error occurred
+     */
+    @Override
+    protected WebMap.Info getInfoFromPath(String prepath,
+					  String path,
+					  String query,
+					  String fragment,
+					  WebMap.RequestInfo requestInfo)
+	throws IOException
+    {
+	if (path.startsWith("/")) {
+	    path = path.substring(1);
+	}
+	if (path.length() == 0) {
+	    return metricsInfo(null);
+	} else {
+	    return metricsInfo(path);
+	}
+    }
+}
+
+//  LocalWords:  exbundle WebMap JSON EmbeddedWebServer BLOCKQUOTE
+//  LocalWords:  PRE ews DirWebMap addMetricsFilter MetricsWebMap
+//  LocalWords:  toJSObject prepath
@@ -9,7 +9,6 @@ class WebMapErrorMsg {
 	("org.bzdev.ejws.maps.lpack.WebMap");
     
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
\ No newline at end of file
@@ -32,8 +32,7 @@ public class ESPEngine extends AbstractScriptEngine
 	("org.bzdev.providers.esp.lpack.ESP");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     ExpressionParser parser;
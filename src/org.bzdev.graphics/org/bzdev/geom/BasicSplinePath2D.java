@@ -2346,6 +2346,64 @@ public class BasicSplinePath2D extends SplinePath2D {
     }
 
 
+    // Get the path parameter, relative to the start of the segment
+    // whose index is given, for a distance sd from the start of the
+    // path, where sd is within that segment.
+    private double segmentU(int index, double sd) {
+	double du;
+	final CubicSpline spline = getSublength(index);
+	try {
+	    du = spline.inverseAt(sd);
+	    if (enhancedAccuracy) {
+		// if du matches a knot, we have nothing to do.
+		int n = spline.countKnots() - 1;
+		double ndu = du*n;
+		double dutmp = Math.round(ndu)/n;
+		if (Math.abs(dutmp - du) > 1.e-12) {
+		    final double sbase = spline.valueAt(0.0);
+		    Path2DInfo.Entry entry = entries[index];
+		    RealValuedFunctOps distf = entry
+			.getSegmentLengthFunction();
+		    RootFinder nf = RootFinder.Newton
+			.newInstance((t) -> {
+				return distf.valueAt(t);
+			    }, (t) -> {
+				return Path2DInfo
+				    .dsDu(t, entry.x, entry.y,
+					  entry.type, entry.coords);
+			    });
+		    // The knots of the spline are evenly spaced.
+		    double lb = Math.floor(ndu)/n;
+		    double ub = Math.ceil(ndu)/n;
+		    du = nf.solve(sd - sbase, du, lb, ub);
+		}
+	    }
+	} catch (IllegalArgumentException e) {
+	    // If ds/du is close to 0.0 the inverse may fail.
+	    // In that case, we use Brent's algorithm. This case
+	    // should not occur very often. It did show up in a
+	    // test program.
+	    RootFinder rf = new RootFinder.Brent() {
+		    public double function(double u) {
+			return spline.valueAt(u);
+		    }
+		};
+	    try {
+		du = rf.solve(sd, 0.0, 1.0);
+	    } catch (RootFinder.ConvergenceException ee) {
+		// Brent's algorithm failed as well, so we must be
+		// very close to an end of a segment where
+		// either du = 0.0 or du = 1.0.  We'll pick whichever
+		// is closest.  If the  segment length is nearly zero,
+		// the choice is arbitrary.
+		double sd0 = spline.valueAt(0.0);
+		double sd1 = spline.valueAt(1.0);
+		du = (Math.abs(sd0 - sd) < Math.abs(sd1 - sd))? 0.0: 1.0;
+	    }
+	}
+	return du;
+    }
+
     /**
      * Get the path parameter corresponding to a specified distance
      * along a path from its start.
@@ -2375,57 +2433,7 @@ public class BasicSplinePath2D extends SplinePath2D {
 		// cumulativeLength[0] = 0.0 so the minimum insertion point
 		// is 1.
 		index = -index - 2;
-		double du;
-		final CubicSpline spline = getSublength(index);
-		try {
-		    du = spline.inverseAt(sd);
-		    if (enhancedAccuracy) {
-			// if du matches a knot, we have nothing to do.
-			int n = spline.countKnots() - 1;
-			double ndu = du*n;
-			double dutmp = Math.round(ndu)/n;
-			if (Math.abs(dutmp - du) > 1.e-12) {
-			    final double sbase = spline.valueAt(0.0);
-			    Path2DInfo.Entry entry = entries[index];
-			    RealValuedFunctOps distf = entry
-				.getSegmentLengthFunction();
-			    RootFinder nf = RootFinder.Newton
-				.newInstance((t) -> {
-					return distf.valueAt(t);
-				    }, (t) -> {
-					return Path2DInfo
-					    .dsDu(t, entry.x, entry.y,
-						  entry.type, entry.coords);
-				    });
-			    // The knots of the spline are evenly spaced.
-			    double lb = Math.floor(ndu)/n;
-			    double ub = Math.ceil(ndu)/n;
-			    du = nf.solve(sd - sbase, du, lb, ub);
-			}
-		    }
-		} catch (IllegalArgumentException e) {
-		    // If ds/du is close to 0.0 the inverse may fail.
-		    // In that case, we use Brent's algorithm. This case
-		    // should not occur very often. It did show up in a
-		    // test program.
-		    RootFinder rf = new RootFinder.Brent() {
-			    public double function(double u) {
-				return spline.valueAt(u);
-			    }
-			};
-		    try {
-			du = rf.solve(sd, 0.0, 1.0);
-		    } catch (RootFinder.ConvergenceException ee) {
-			// if Brent's method didn't work, we must
-			// be very close to an edge, so pick the
-			// value that is closest.
-			double sd0 = spline.valueAt(0.0);
-			double sd1 = spline.valueAt(1.0);
-			du = (Math.abs(sd0 - sd) < Math.abs(sd1 - sd))? 0.0:
-			    1.0;
-		    }
-		}
-		return u0 + index + du;
+		return u0 + index + segmentU(index, sd);
 	    } else {
 		return u0 + index;
 	    }
@@ -2437,73 +2445,357 @@ public class BasicSplinePath2D extends SplinePath2D {
 	    }
 	    int index = Arrays.binarySearch(cumulativeLength, s);
 	    if (index < 0) {
-		// binarySearch for a missing key returns 
-		// -(insertion point) - 1
-		// where the insertion point is the index at which the
-		// missing key would be inserted.  We want the index
-		// before the insertion point.  Meanwhile sd >= 0.0 and
-		// cumulativeLength[0] = 0.0 so the minimum insertion point
-		// is 1.
+		// see the comment above.
 		index = -index - 2;
-		double du;
-		final CubicSpline spline = getSublength(index);
-		try {
-		    du = spline.inverseAt(s);
-		    if (enhancedAccuracy) {
-			// if du matches a knot, we have nothing to do.
-			int n = spline.countKnots() - 1;
-			double ndu = du*n;
-			double dutmp = Math.round(ndu)/n;
-			if (Math.abs(dutmp - du) > 1.e-12) {
-			    final double sbase = spline.valueAt(0.0);
-			    Path2DInfo.Entry entry = entries[index];
-			    RealValuedFunctOps distf = entry
-				.getSegmentLengthFunction();
-			    RootFinder nf = RootFinder.Newton
-				.newInstance((t) -> {
-					return distf.valueAt(t);
-				    }, (t) -> {
-					return Path2DInfo
-					    .dsDu(t, entry.x, entry.y,
-						  entry.type, entry.coords);
-				    });
-			    // The knots of the spline are evenly spaced.
-			    double lb = Math.floor(ndu)/n;
-			    double ub = Math.ceil(ndu)/n;
-			    du = nf.solve(s-sbase, du, lb, ub);
-			}
-		    }
-		} catch (IllegalArgumentException e) {
-		    // If ds/du is close to 0.0 the inverse may fail.
-		    // In that case, we use Brent's algorithm. This case
-		    // should not occur very often. It did show up in a
-		    // test program.
-		    // final CubicSpline spline = getSublength(index);
-		    RootFinder rf = new RootFinder.Brent() {
-			    public double function(double u) {
-				return spline.valueAt(u);
-			    }
-			};
-		    try {
-			du = rf.solve(s, 0.0, 1.0);
-		    } catch (RootFinder.ConvergenceException ee) {
-			// Brent's algorithm failed as well, so we must be
-			// very close to an end of a segment where
-			// either du = 0.0 or du = 1.0.  We'll pick whichever
-			// is closest.  If the  segment length is nearly zero,
-			// the choice is arbitrary.
-			double s0 = spline.valueAt(0.0);
-			double s1 = spline.valueAt(1.0);
-			du = Math.abs(s-s0) < Math.abs(s-s1)? 0.0: 1.0;
-		    }
-		}
-		return index + du;
+		return index + segmentU(index, s);
 	    } else {
 		return index;
 	    }
 	}
     }
 
+    /**
+     * Get the path parameters corresponding to specified distances
+     * along a path from its start.
+     * The results are the same as those obtained by calling
+     * {@link #u(double)} for each distance, up to floating-point
+     * errors, but the segment containing a distance is found
+     * starting from the segment used for the previous one, and the
+     * previous result is used as the starting point for finding the
+     * next one.  When the distances are sorted into ascending order,
+     * the segments are traversed once rather than being located by a
+     * binary search for each distance.
+     * @param s the distances along a path from its start
+     * @param u an array that will contain the path parameters, with
+     *        u[i] containing the value corresponding to s[i]
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a distance is out of bounds
+     */
+    public void u(double[] s, double[] u)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	u(s, u, s.length);
+    }
+
+    /**
+     * Get the path parameters corresponding to a specified number of
+     * distances along a path from its start.
+     * The results are the same as those obtained by calling
+     * {@link #u(double)} for each distance, up to floating-point
+     * errors, but the segment containing a distance is found
+     * starting from the segment used for the previous one, and the
+     * previous result is used as the starting point for finding the
+     * next one.  When the distances are sorted into ascending order,
+     * the segments are traversed once rather than being located by a
+     * binary search for each distance.
+     * @param s the distances along a path from its start
+     * @param u an array that will contain the path parameters, with
+     *        u[i] containing the value corresponding to s[i]
+     * @param n the number of distances, which must not be larger than
+     *        the length of either array
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a distance is out of bounds
+     */
+    public void u(double[] s, double[] u, int n)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	if (n == 0) return;
+	double pathLen = getPathLength();
+	initCumulativeLengths();
+	int last = cumulativeLength.length - 1;
+	int index = 0;
+	int prevIndex = -1;
+	double prevDu = 0.0;
+	for (int i = 0; i < n; i++) {
+	    double si = s[i];
+	    if (si == 0.0) {
+		u[i] = 0.0;
+		continue;
+	    }
+	    double u0 = 0.0;
+	    double sd = si;
+	    if (cyclic) {
+		double tmp = Math.floor(si/pathLen);
+		u0 = tmp*entries.length;
+		sd = si - tmp*pathLen;
+	    } else if (si < 0.0 || si > pathLen) {
+		throw new
+		    IllegalArgumentException(errorMsg("argOutOfRange", si));
+	    }
+	    // find the index of the segment containing sd, trying the
+	    // previous segment and the one after it first.
+	    if (index < 0 || cumulativeLength[index] > sd
+		|| (index < last && cumulativeLength[index+1] <= sd)) {
+		if (index < last && cumulativeLength[index+1] <= sd
+		    && (index+1 == last || sd < cumulativeLength[index+2])) {
+		    index++;
+		} else {
+		    index = Arrays.binarySearch(cumulativeLength, sd);
+		    if (index < 0) index = -index - 2;
+		}
+	    }
+	    if (index >= 0 && cumulativeLength[index] == sd) {
+		// Use the index binarySearch provides so that the
+		// result matches u(double) for zero-length segments.
+		index = Arrays.binarySearch(cumulativeLength, sd);
+		u[i] = u0 + index;
+	    } else {
+		double guess;
+		if (index == prevIndex) {
+		    guess = prevDu;
+		} else {
+		    double send = (index == last)? totalLength:
+			cumulativeLength[index+1];
+		    guess = (sd - cumulativeLength[index])
+			/ (send - cumulativeLength[index]);
+		}
+		prevDu = segmentU(index, sd, guess);
+		prevIndex = index;
+		u[i] = u0 + index + prevDu;
+	    }
+	}
+    }
+
+    // Get the path parameter, relative to the start of the segment
+    // whose index is given, for a distance sd from the start of the
+    // path by applying Newton's method to the segment's length
+    // spline, starting from an initial guess.  Bisection keeps the
+    // iteration within a bracket for the solution.  This is much
+    // faster than solving a cubic equation when a good initial guess
+    // is available, as it is for sorted distances.
+    private double segmentU(int index, double sd, double guess) {
+	if (enhancedAccuracy) return segmentU(index, sd);
+	CubicSpline spline = getSublength(index);
+	double lower = 0.0;
+	double upper = 1.0;
+	double du = (guess > 0.0 && guess < 1.0)? guess: 0.5;
+	for (int k = 0; k < 32; k++) {
+	    double f = spline.valueAt(du) - sd;
+	    if (f == 0.0) return du;
+	    if (f < 0.0) {
+		lower = du;
+	    } else {
+		upper = du;
+	    }
+	    double deriv = spline.derivAt(du);
+	    double next = du - f/deriv;
+	    if (deriv > 0.0 && next > lower && next < upper) {
+		if (Math.abs(next - du) < 1.e-12) return next;
+	    } else {
+		next = 0.5 * (lower + upper);
+		if (upper - lower < 1.e-15) return next;
+	    }
+	    du = next;
+	}
+	return segmentU(index, sd);
+    }
+
+    // Get the index of the entry for a path parameter u.  For an open
+    // path, entries.length is returned when u is the end of the path.
+    private int entryIndex(double u) throws IllegalArgumentException {
+	double xindex = Math.floor(u);
+	int index = (int)Math.round(xindex);
+	if (cyclic) {
+	    if (index < 0) {
+		if (index < -entries.length) {
+		    index = index % entries.length;
+		}
+		if (index < 0)	index += entries.length;
+	    } else if (index >= entries.length) {
+		index = index % entries.length;
+	    }
+	} else {
+	    if (index < 0 || index > entries.length) {
+		throw new IllegalArgumentException
+		    (errorMsg("argOutOfRange", u));
+	    }
+	    if (index == entries.length && u - xindex > ROUNDOFF_ERROR) {
+		throw new IllegalArgumentException
+		    (errorMsg("argOutOfRange", u));
+	    }
+	}
+	return index;
+    }
+
+    /**
+     * Get the points on a path corresponding to given values of the
+     * path parameter.
+     * The coordinates are stored in an array in the order
+     * x<sub>0</sub>, y<sub>0</sub>, x<sub>1</sub>, y<sub>1</sub>, ....
+     * No objects are allocated for each point.
+     * @param u the path parameters
+     * @param xy an array that will contain the X and Y coordinates of
+     *        each point, with xy[2*i] and xy[2*i+1] containing the
+     *        coordinates for u[i]; its length must be at least
+     *        twice that of u
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a parameter is out of bounds
+     * @see #getPoint(double)
+     */
+    public void getXY(double[] u, double[] xy)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	getXY(u, xy, u.length);
+    }
+
+    /**
+     * Get the points on a path corresponding to a specified number of
+     * values of the path parameter.
+     * The coordinates are stored in an array in the order
+     * x<sub>0</sub>, y<sub>0</sub>, x<sub>1</sub>, y<sub>1</sub>, ....
+     * No objects are allocated for each point.
+     * @param u the path parameters
+     * @param xy an array that will contain the X and Y coordinates of
+     *        each point, with xy[2*i] and xy[2*i+1] containing the
+     *        coordinates for u[i]
+     * @param n the number of path parameters
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a parameter is out of bounds
+     * @see #getPoint(double)
+     */
+    public void getXY(double[] u, double[] xy, int n)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	if (entries == null) refresh();
+	int k = 0;
+	for (int i = 0; i < n; i++) {
+	    double ui = u[i];
+	    int index = entryIndex(ui);
+	    double t;
+	    if (index == entries.length) {
+		index--;
+		t = 1.0;
+	    } else {
+		t = ui - Math.floor(ui);
+	    }
+	    double omt = 1.0 - t;
+	    Path2DInfo.Entry entry = entries[index];
+	    double[] coords = entry.coords;
+	    switch (entry.type) {
+	    case PathIterator.SEG_CUBICTO:
+		double omt2 = omt*omt;
+		double t2 = t*t;
+		xy[k++] = omt2*omt*entry.x
+		    + 3.0*omt2*t*coords[0]
+		    + 3.0*omt*t2*coords[2]
+		    + t2*t*coords[4];
+		xy[k++] = omt2*omt*entry.y
+		    + 3.0*omt2*t*coords[1]
+		    + 3.0*omt*t2*coords[3]
+		    + t2*t*coords[5];
+		break;
+	    case PathIterator.SEG_LINETO:
+		xy[k++] = entry.x * omt + t * coords[0];
+		xy[k++] = entry.y * omt + t * coords[1];
+		break;
+	    case PathIterator.SEG_QUADTO:
+		xy[k++] = omt*omt*entry.x
+		    + 2*omt*t*coords[0] + t*t*coords[2];
+		xy[k++] = omt*omt*entry.y
+		    + 2*omt*t*coords[1] + t*t*coords[3];
+		break;
+	    default:
+		throw new Error(errorMsg("badSwitch"));
+	    }
+	}
+    }
+
+    /**
+     * Get the tangent vectors for given values of the path parameter.
+     * Each tangent vector is the one {@link #getTangent(double,double[],int)}
+     * would provide, and is set to zero if it does not exist.
+     * @param u the path parameters
+     * @param tangents an array that will contain the X and Y components
+     *        of each tangent vector, with the components for u[i]
+     *        starting at index 2*i
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a parameter is out of bounds
+     */
+    public void getTangents(double[] u, double[] tangents)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	getTangents(u, tangents, u.length);
+    }
+
+    /**
+     * Get the tangent vectors for given values of the path parameter.
+     * Each tangent vector is the one {@link #getTangent(double,double[],int)}
+     * would provide, and is set to zero if it does not exist.
+     * @param u the path parameters
+     * @param tangents an array that will contain the X and Y components
+     *        of each tangent vector, with the components for u[i]
+     *        starting at index 2*i
+     * @param n the number of path parameters
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a parameter is out of bounds
+     */
+    public void getTangents(double[] u, double[] tangents, int n)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	if (entries == null) refresh();
+	Path2DInfo.UValues uv = new Path2DInfo.UValues(0.0);
+	for (int i = 0; i < n; i++) {
+	    double ui = u[i];
+	    int index = entryIndex(ui);
+	    double t;
+	    if (index == entries.length) {
+		index--;
+		t = 1.0;
+	    } else {
+		t = ui - Math.floor(ui);
+	    }
+	    uv.set(t);
+	    entries[index].data.getTangent(uv, tangents, 2*i);
+	}
+    }
+
+    /**
+     * Compute the curvature for given values of the path parameter.
+     * Each value is the one {@link #curvature(double)} would provide.
+     * @param u the path parameters
+     * @param curvatures an array that will contain the curvature for
+     *        each path parameter, with curvatures[i] containing the
+     *        curvature for u[i]
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a parameter is out of bounds
+     */
+    public void curvature(double[] u, double[] curvatures)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	curvature(u, curvatures, u.length);
+    }
+
+    /**
+     * Compute the curvature for given values of the path parameter.
+     * Each value is the one {@link #curvature(double)} would provide.
+     * @param u the path parameters
+     * @param curvatures an array that will contain the curvature for
+     *        each path parameter, with curvatures[i] containing the
+     *        curvature for u[i]
+     * @param n the number of path parameters
+     * @exception IllegalStateException the path is not a simple path
+     * @exception IllegalArgumentException a parameter is out of bounds
+     */
+    public void curvature(double[] u, double[] curvatures, int n)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	if (entries == null) refresh();
+	Path2DInfo.UValues uv = new Path2DInfo.UValues(0.0);
+	for (int i = 0; i < n; i++) {
+	    double ui = u[i];
+	    int index = entryIndex(ui);
+	    double t;
+	    if (index == entries.length) {
+		index--;
+		t = 1.0;
+	    } else {
+		t = ui - Math.floor(ui);
+	    }
+	    uv.set(t);
+	    curvatures[i] = entries[index].data.curvature(uv);
+	}
+    }
+
     /**
      * Reset the path so that it contains no entries.
      * This method should be used instead of {@link Path2D#reset()}, which
@@ -2802,3 +3094,4 @@ public class BasicSplinePath2D extends SplinePath2D {
 //  LocalWords:  reinitializes emptyPath ArrayList piSEGMOVETO cpoint
 //  LocalWords:  segsAfterClose segmentIndex precomputed
 //  LocalWords:  setAccuracyMode segmentLength
+//  LocalWords:  segmentU getXY xy getTangents
@@ -21,6 +21,8 @@ import java.util.function.BiFunction;
 import java.util.function.UnaryOperator;
 import java.io.Flushable;
 import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 
 //@exbundle org.bzdev.geom.lpack.Geom
 
@@ -63,12 +65,13 @@ import java.io.IOException;
  * </UL>
  * The remaining control points for the cubic B&eacute;zier patch
  * associated with a grid element are provided by the adjacent grid
- * elements.  All of these points are stored as double precision
- * numbers that have been rounded to the nearest float value by
- * replacing a value v with (double)(float)v.  This is done for
+ * elements.  All of these points are rounded to the nearest float
+ * value by replacing a value v with (double)(float)v.  This is done for
  * consistency with the Surface3D and Model3D classes, and to reduce
- * the impact of floating point errors in computing coordinates.  The
- * methods
+ * the impact of floating point errors in computing coordinates. As a
+ * result, the points can be stored without loss in packed arrays of
+ * floats indexed by a grid element's position, rather than in an object
+ * per grid element.  The methods
  * {@link BezierGrid#createConnectionsTo(BezierGrid)},
  * {@link BezierGrid#createConnectionsTo(BezierGrid,int)},
  * {@link BezierGrid#createConnectionsTo(BezierGrid,int,boolean)},
@@ -332,21 +335,177 @@ public class BezierGrid implements Shape3D {
     static final double PLANAR_LIMIT = 1.e-6;
 
 
-    private static class Vertex {
-	int i;
-	int j;
-	Point3D p = null;
-	Color color = null;
-	// boolean ucSet = false;
-	double[] uc = null;
-	// boolean vcSet = false;
-	double[] vc = null;
-	boolean filled = false;
-	int region = 0;
-	double[] rest = null;
-	// spline numbers
-	int vsn = -1;
-	int usn = -1;
+    // Grid elements are stored in packed arrays rather than as
+    // individual objects.  The element with indices (i,j) has a
+    // vertex index k = i*nv + j, with -1 used when there is no
+    // element. Its grid point's X, Y, and Z coordinates start at
+    // pcoords[3*k], the intermediate control points for edge 0
+    // followed by the next grid point in the U direction start at
+    // ucoords[9*k], those for edge 3 and the next grid point in the
+    // V direction start at vcoords[9*k], and explicitly set values
+    // for P11, P21, P12, and P22 start at rcoords[12*k].  As all of
+    // these values are rounded to the nearest float, storing them as
+    // floats does not lose any information. The array vflags
+    // indicates which of these values have been set, and whether the
+    // element's patch is filled.
+
+    private static final byte HAS_P = 1;
+    private static final byte FILLED = 2;
+    private static final byte HAS_UC = 4;
+    private static final byte HAS_VC = 8;
+    private static final byte HAS_REST = 16;
+
+    float[] pcoords;
+    float[] ucoords;
+    float[] vcoords;
+    float[] rcoords = null;
+    byte[] vflags;
+    int[] regions;
+    // spline numbers
+    int[] vsns;
+    int[] usns;
+    Color[] colors = null;
+
+    private void allocate() throws IllegalArgumentException {
+	long n = (long)nu * (long)nv;
+	if (12L * n > Integer.MAX_VALUE) {
+	    String msg = errorMsg("gridTooLarge", nu, nv);
+	    throw new IllegalArgumentException(msg);
+	}
+	int sz = (int)n;
+	pcoords = new float[3*sz];
+	ucoords = new float[9*sz];
+	vcoords = new float[9*sz];
+	vflags = new byte[sz];
+	regions = new int[sz];
+	vsns = new int[sz];
+	usns = new int[sz];
+	Arrays.fill(vsns, -1);
+	Arrays.fill(usns, -1);
+    }
+
+    private int vindex(int i, int j) {return i*nv + j;}
+
+    // Like vindex, but throws the exception a Java array would have
+    // thrown for indices that are out of range.
+    private int checkedIndex(int i, int j) {
+	if (i < 0 || i >= nu || j < 0 || j >= nv) {
+	    throw new ArrayIndexOutOfBoundsException
+		(errorMsg("argOutOfRange2ii", i, j));
+	}
+	return i*nv + j;
+    }
+
+    private boolean hasP(int k) {return (vflags[k] & HAS_P) != 0;}
+
+    private boolean isFilled(int k) {return (vflags[k] & FILLED) != 0;}
+
+    private boolean hasUC(int k) {return (vflags[k] & HAS_UC) != 0;}
+
+    private boolean hasVC(int k) {return (vflags[k] & HAS_VC) != 0;}
+
+    private boolean hasRest(int k) {return (vflags[k] & HAS_REST) != 0;}
+
+    private void setFlag(int k, byte flag, boolean value) {
+	if (value) {
+	    vflags[k] |= flag;
+	} else {
+	    vflags[k] &= ~flag;
+	}
+    }
+
+    private double px(int k) {return pcoords[3*k];}
+
+    private double py(int k) {return pcoords[3*k+1];}
+
+    private double pz(int k) {return pcoords[3*k+2];}
+
+    // Set a grid point, rounding its coordinates to the nearest float.
+    private void setP(int k, double x, double y, double z) {
+	int off = 3*k;
+	pcoords[off++] = (float)x;
+	pcoords[off++] = (float)y;
+	pcoords[off] = (float)z;
+	vflags[k] |= HAS_P;
+    }
+
+    private void setP(int k, Point3D p) {
+	if (p == null) {
+	    vflags[k] &= ~HAS_P;
+	} else {
+	    setP(k, p.getX(), p.getY(), p.getZ());
+	}
+    }
+
+    // Returns a new point, so callers may modify it.
+    private Point3D getP(int k) {
+	if (k < 0 || !hasP(k)) return null;
+	int off = 3*k;
+	return new Point3D.Double(pcoords[off], pcoords[off+1],
+				  pcoords[off+2]);
+    }
+
+    // Equivalent to setting an element's control-point array to a new
+    // array of length 9: the values are set to zero.
+    private void newUC(int k) {
+	Arrays.fill(ucoords, 9*k, 9*k+9, 0.0F);
+	vflags[k] |= HAS_UC;
+    }
+
+    private void newVC(int k) {
+	Arrays.fill(vcoords, 9*k, 9*k+9, 0.0F);
+	vflags[k] |= HAS_VC;
+    }
+
+    private static void copy(float[] src, int srcOff, double[] dest,
+			     int destOff, int n)
+    {
+	for (int i = 0; i < n; i++) {
+	    dest[destOff++] = src[srcOff++];
+	}
+    }
+
+    private static void copy(double[] src, int srcOff, float[] dest,
+			     int destOff, int n)
+    {
+	for (int i = 0; i < n; i++) {
+	    dest[destOff++] = (float)src[srcOff++];
+	}
+    }
+
+    private double[] getVC(int k) {
+	if (!hasVC(k)) return null;
+	double[] results = new double[9];
+	copy(vcoords, 9*k, results, 0, 9);
+	return results;
+    }
+
+    private void setVC(int k, double[] vc) {
+	if (vc == null) {
+	    vflags[k] &= ~HAS_VC;
+	} else {
+	    copy(vc, 0, vcoords, 9*k, 9);
+	    vflags[k] |= HAS_VC;
+	}
+    }
+
+    // Set a grid point to a patch's corner.  If the grid point did
+    // not exist, its cell is marked as filled.
+    private void setCorner(int k, double[] coords, int offset) {
+	if (!hasP(k)) vflags[k] |= FILLED;
+	setP(k, coords[offset], coords[offset+1], coords[offset+2]);
+    }
+
+    private Color getColorAt(int k) {
+	return (colors == null)? null: colors[k];
+    }
+
+    private void setColorAt(int k, Color c) {
+	if (colors == null) {
+	    if (c == null) return;
+	    colors = new Color[vflags.length];
+	}
+	colors[k] = c;
     }
 
     int nu;
@@ -382,7 +541,6 @@ public class BezierGrid implements Shape3D {
 
     boolean  uclosed;
     boolean vclosed;
-    Vertex array[][];
     boolean flipped = false;
     boolean rflip = false;
 
@@ -436,23 +594,11 @@ public class BezierGrid implements Shape3D {
 	this.vclosed = vclosed;
 	this.nu = nu;
 	this.nv = nv;
-	array = new Vertex[nu][nv];
-	for (int i = 0; i < nu; i++) {
-	    for (int j = 0; j < nv; j++) {
-		Vertex v = new Vertex();
-		array[i][j] = v;
-		v.i = i;
-		v.j = j;
-	    }
-	}
+	allocate();
 	this.linear = linear;
 	if (linear) {
-	    int regionCode = 0;
-	    for (int i = 0; i < nu; i++) {
-		for (int j = 0; j < nv; j++) {
-		    Vertex v = array[i][j];
-		    v.region = regionCode++;
-		}
+	    for (int k = 0; k < regions.length; k++) {
+		regions[k] = k;
 	    }
 	}
     }
@@ -542,27 +688,140 @@ public class BezierGrid implements Shape3D {
     {
 
 	this(points.length, uclosed, points[0].length, vclosed, linear);
+	int k = 0;
 	for (int i = 0; i < nu; i++) {
 	    for (int j = 0; j < nv; j++) {
 		Point3D p = points[i][j];
 		if (p != null) {
-			p = new Point3D.Double((double)(float)p.getX(),
-					       (double)(float)p.getY(),
-					       (double)(float)p.getZ());
+		    setP(k, p.getX(), p.getY(), p.getZ());
+		    vflags[k] |= FILLED;
 		}
-		Vertex vertex = array[i][j];
-		/*
-		Vertex vertex = new Vertex();
-		vertex.p = p;
-		array[i][j] = vertex;
-		*/
-		vertex.p = p;
-		vertex.filled = (p != null);
-		// if (p == null) vertex.filled = false;
+		k++;
 	    }
 	}
     }
 
+    /**
+     * Constructor for open or closed grids whose points are stored
+     * in a packed buffer of double-precision values.
+     * The buffer contains three values, the X, Y, and Z coordinates
+     * in that order, for each grid point, with the point whose indices
+     * are [i][j] starting at the buffer's position plus 3*(i*nv + j).
+     * A point whose X, Y, or Z coordinate is NaN is treated as a
+     * missing point, equivalent to a null entry in the array passed
+     * to {@link #BezierGrid(Point3D[][],boolean,boolean,boolean)}.
+     * The buffer is read using absolute indices, so its position is
+     * not changed.
+     * <P>
+     * This constructor allows large grids to be created without first
+     * creating a two-dimensional array of points.  An array of coordinates
+     * can be passed by using {@link DoubleBuffer#wrap(double[],int,int)},
+     * and a file can be read directly by mapping it with
+     * {@link java.nio.channels.FileChannel#map FileChannel.map},
+     * setting the byte order of the mapped buffer, and calling
+     * {@link java.nio.ByteBuffer#asDoubleBuffer()}.
+     * <P>
+     * When uclosed or vclosed is true, the splines used to create
+     * the B&eacute;zier patches will be a smooth at all points
+     * including the end points.
+     * <P>
+     * When stored, the points provided will have their coordinates
+     * rounded to the nearest 'float' value by first casting the values
+     * to a float and then to a double.
+     * @param nu the number of vertices in the U direction
+     * @param uclosed the grid is closed in the U direction
+     * @param nv the number of vertices in the V direction
+     * @param vclosed the grid is closed in the V direction
+     * @param coords the buffer containing the coordinates of each
+     *        grid point
+     * @param linear true if lines connecting grid points are straight lines;
+     *        false otherwise
+     * @exception IllegalArgumentException the buffer has fewer than
+     *            3*nu*nv values remaining
+     */
+    public BezierGrid(int nu, boolean uclosed, int nv, boolean vclosed,
+		      DoubleBuffer coords, boolean linear)
+	throws IllegalArgumentException
+    {
+	this(nu, uclosed, nv, vclosed, linear);
+	long needed = 3L * nu * nv;
+	if (coords.remaining() < needed) {
+	    throw new IllegalArgumentException
+		(errorMsg("bufferTooShort", coords.remaining(), needed));
+	}
+	int pos = coords.position();
+	int n = vflags.length;
+	for (int k = 0; k < n; k++) {
+	    double x = coords.get(pos++);
+	    double y = coords.get(pos++);
+	    double z = coords.get(pos++);
+	    if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(z)) {
+		continue;
+	    }
+	    setP(k, x, y, z);
+	    vflags[k] |= FILLED;
+	}
+    }
+
+    /**
+     * Constructor for open or closed grids whose points are stored
+     * in a packed buffer of single-precision values.
+     * The buffer contains three values, the X, Y, and Z coordinates
+     * in that order, for each grid point, with the point whose indices
+     * are [i][j] starting at the buffer's position plus 3*(i*nv + j).
+     * A point whose X, Y, or Z coordinate is NaN is treated as a
+     * missing point, equivalent to a null entry in the array passed
+     * to {@link #BezierGrid(Point3D[][],boolean,boolean,boolean)}.
+     * The buffer is read using absolute indices, so its position is
+     * not changed.
+     * <P>
+     * As grid points are stored with single-precision coordinates,
+     * this constructor uses half the space of
+     * {@link #BezierGrid(int,boolean,int,boolean,DoubleBuffer,boolean)}
+     * for its input with no loss of accuracy. An array of coordinates
+     * can be passed by using {@link FloatBuffer#wrap(float[],int,int)},
+     * and a file can be read directly by mapping it with
+     * {@link java.nio.channels.FileChannel#map FileChannel.map},
+     * setting the byte order of the mapped buffer, and calling
+     * {@link java.nio.ByteBuffer#asFloatBuffer()}.
+     * <P>
+     * When uclosed or vclosed is true, the splines used to create
+     * the B&eacute;zier patches will be a smooth at all points
+     * including the end points.
+     * @param nu the number of vertices in the U direction
+     * @param uclosed the grid is closed in the U direction
+     * @param nv the number of vertices in the V direction
+     * @param vclosed the grid is closed in the V direction
+     * @param coords the buffer containing the coordinates of each
+     *        grid point
+     * @param linear true if lines connecting grid points are straight lines;
+     *        false otherwise
+     * @exception IllegalArgumentException the buffer has fewer than
+     *            3*nu*nv values remaining
+     */
+    public BezierGrid(int nu, boolean uclosed, int nv, boolean vclosed,
+		      FloatBuffer coords, boolean linear)
+	throws IllegalArgumentException
+    {
+	this(nu, uclosed, nv, vclosed, linear);
+	long needed = 3L * nu * nv;
+	if (coords.remaining() < needed) {
+	    throw new IllegalArgumentException
+		(errorMsg("bufferTooShort", coords.remaining(), needed));
+	}
+	// copy the coordinates in bulk, then mark the missing points.
+	coords.duplicate().get(pcoords);
+	int n = vflags.length;
+	for (int k = 0; k < n; k++) {
+	    int off = 3*k;
+	    if (Float.isNaN(pcoords[off]) || Float.isNaN(pcoords[off+1])
+		|| Float.isNaN(pcoords[off+2])) {
+		continue;
+	    }
+	    vflags[k] = HAS_P | FILLED;
+	}
+    }
+
     /**
      * Constructor using real-valued functions.
      * The grid is a two-dimensional array whose values are points
@@ -696,7 +955,7 @@ public class BezierGrid implements Shape3D {
 	    for (int j = 0; j < nv; j++) {
 		double s = sarray[i];
 		double t = tarray[j];
-		Vertex vertex = array[i][j];
+		int k = vindex(i, j);
 		boolean inXdomain = (xfunct instanceof RealValuedFunctionTwo)?
 		    ((RealValuedFunctionTwo)xfunct).isInDomain(s, t): true;
 		boolean inYdomain = (yfunct instanceof RealValuedFunctionTwo)?
@@ -704,16 +963,11 @@ public class BezierGrid implements Shape3D {
 		boolean inZdomain = (zfunct instanceof RealValuedFunctionTwo)?
 		    ((RealValuedFunctionTwo)xfunct).isInDomain(s, t): true;
 		if (inXdomain && inYdomain && inZdomain) {
-		    Point3D p =
-			new Point3D.Double((double)(float)xfunct.valueAt(s, t),
-					   (double)(float)yfunct.valueAt(s, t),
-					   (double)(float)zfunct.valueAt(s, t));
-		    vertex.p = p;
-		    vertex.filled = true;
-		    // array[i][j] = vertex;
+		    setP(k, xfunct.valueAt(s, t), yfunct.valueAt(s, t),
+			 zfunct.valueAt(s, t));
+		    vflags[k] |= FILLED;
 		} else {
-		    vertex.p = null;
-		    vertex.filled = false;
+		    vflags[k] &= ~(HAS_P | FILLED);
 		}
 	    }
 	}
@@ -786,27 +1040,24 @@ public class BezierGrid implements Shape3D {
 	if (grid.rflip) {
 	    rflip = grid.rflip;
 	}
-	for (int i = 0; i < nu; i++) {
-	    for (int j = 0; j < nv; j++) {
-		Vertex oldv = grid.array[i][j];
-		Vertex newv = array[i][j];
-		if (oldv.p != null) {
-		    if (f == null) {
-			newv.p = new Point3D.Double(oldv.p.getX(),
-						    oldv.p.getY(),
-						    oldv.p.getZ());
-		    } else {
-			newv.p = f.apply(oldv.p);
-			newv.p.setLocation((double)(float)(newv.p.getX()),
-					   (double)(float)(newv.p.getY()),
-					   (double)(float)(newv.p.getZ()));
-		    }
+	int n = vflags.length;
+	if (f == null) {
+	    System.arraycopy(grid.pcoords, 0, pcoords, 0, 3*n);
+	}
+	for (int k = 0; k < n; k++) {
+	    if (grid.hasP(k)) {
+		if (f == null) {
+		    vflags[k] |= HAS_P;
+		} else {
+		    setP(k, f.apply(grid.getP(k)));
 		}
-		newv.color = oldv.color;
-		newv.filled = oldv.filled;
-		newv.region = oldv.region;
 	    }
+	    setFlag(k, FILLED, grid.isFilled(k));
 	}
+	if (grid.colors != null) {
+	    colors = grid.colors.clone();
+	}
+	System.arraycopy(grid.regions, 0, regions, 0, n);
 	for (SplineDescriptor sd: grid.splineDescriptors) {
 	    splineDescriptors.add(sd);
 	}
@@ -879,9 +1130,9 @@ public class BezierGrid implements Shape3D {
 		starty = coords[1];
 		p0 = new Point2D.Double(startx, starty);
 		for (int i = 0; i < nu; i++) {
-		    array[i][j].p =
-			mapper.apply(i, p0, Point3DMapper.Type.KNOT);
-		    array[i][j].filled = true;
+		    int k = vindex(i, j);
+		    setP(k, mapper.apply(i, p0, Point3DMapper.Type.KNOT));
+		    vflags[k] |= FILLED;
 		}
 		lastx = startx;
 		lasty = starty;
@@ -917,27 +1168,25 @@ public class BezierGrid implements Shape3D {
 		break;
 	    }
 	    for (int i = 0; i < nu; i++) {
-		array[i][j].vc = new double[9];
+		int vk = vindex(i, j);
+		vflags[vk] |= HAS_VC;
 		Point3D p = mapper.apply(i, p0, Point3DMapper.Type.KNOT);
-		p.setLocation((double)(float)p.getX(),
-			      (double)(float)p.getY(),
-			      (double)(float)p.getZ());
-		array[i][j].p = p;
-		array[i][j].filled = true;
+		setP(vk, p);
+		vflags[vk] |= FILLED;
 		p = mapper.apply(i, p1, Point3DMapper.Type.FIRST_CUBIC, p0, p3);
-		int k = 0;
-		array[i][j].vc[k++] = (double)(float)p.getX();
-		array[i][j].vc[k++] = (double)(float)p.getY();
-		array[i][j].vc[k++] = (double)(float)p.getZ();
+		int k = 9*vk;
+		vcoords[k++] = (float)p.getX();
+		vcoords[k++] = (float)p.getY();
+		vcoords[k++] = (float)p.getZ();
 		p = mapper.apply(i, p2, Point3DMapper.Type.SECOND_CUBIC,
 				 p0, p3);
-		array[i][j].vc[k++] = (double)(float)p.getX();
-		array[i][j].vc[k++] = (double)(float)p.getY();
-		array[i][j].vc[k++] = (double)(float)p.getZ();
+		vcoords[k++] = (float)p.getX();
+		vcoords[k++] = (float)p.getY();
+		vcoords[k++] = (float)p.getZ();
 		p = mapper.apply(i, p3, Point3DMapper.Type.KNOT);
-		array[i][j].vc[k++] = (double)(float)p.getX();
-		array[i][j].vc[k++] = (double)(float)p.getY();
-		array[i][j].vc[k++] = (double)(float)p.getZ();
+		vcoords[k++] = (float)p.getX();
+		vcoords[k++] = (float)p.getY();
+		vcoords[k++] = (float)p.getZ();
 	    }
 	    p0 = p3;
 	    lastx = p3.getX();
@@ -948,12 +1197,9 @@ public class BezierGrid implements Shape3D {
 	if (j < nv) {
 	    // need a final point
 	    for (int i = 0; i < nu; i++) {
-		Point3D p = mapper.apply(i, p0, Point3DMapper.Type.KNOT);
-		p.setLocation((double)(float)(p.getX()),
-			      (double)(float)(p.getY()),
-			      (double)(float)(p.getZ()));
-		array[i][j].p = p;
-		array[i][j].filled = true;
+		int k = vindex(i, j);
+		setP(k, mapper.apply(i, p0, Point3DMapper.Type.KNOT));
+		vflags[k] |= FILLED;
 	    }
 	}
 	if (mapper instanceof Mapper) {
@@ -1623,29 +1869,36 @@ public class BezierGrid implements Shape3D {
 	    throw new IllegalStateException(errorMsg("incompleteSpline"));
 	}
 	BezierGrid transposed = new BezierGrid(nv, vclosed, nu, uclosed);
+	if (colors != null) {
+	    transposed.colors = new Color[colors.length];
+	}
+	if (rcoords != null) {
+	    transposed.rcoords = new float[rcoords.length];
+	}
 	for (int i = 0; i < nu; i++) {
 	    for (int j = 0; j < nv; j++) {
-		Vertex v = array[i][j];
-		Vertex tv = transposed.array[j][i];
-		tv.p = (v.p == null)? null: (Point3D)v.p.clone();
-		tv.color = v.color;
-	        if (v.vc != null) {
-		    tv.uc = v.vc.clone();
-		}
-		if (v.uc != null) {
-		    tv.vc = v.uc.clone();
-		}
-		tv.filled = v.filled;
-		tv.region = v.region;
-		if (v.rest != null) {
-		    tv.rest = new double[12];
-		    System.arraycopy(v.rest, 0, tv.rest, 0, 3);
-		    System.arraycopy(v.rest, 3, tv.rest, 6, 3);
-		    System.arraycopy(v.rest, 6, tv.rest, 3, 3);
-		    System.arraycopy(v.rest, 9, tv.rest, 9, 3);
-		}
-		tv.vsn = v.usn;
-		tv.usn = v.vsn;
+		int k = vindex(i, j);
+		int tk = transposed.vindex(j, i);
+		System.arraycopy(pcoords, 3*k, transposed.pcoords, 3*tk, 3);
+		System.arraycopy(vcoords, 9*k, transposed.ucoords, 9*tk, 9);
+		System.arraycopy(ucoords, 9*k, transposed.vcoords, 9*tk, 9);
+		byte flags = (byte)(vflags[k] & (HAS_P | FILLED | HAS_REST));
+		if (hasVC(k)) flags |= HAS_UC;
+		if (hasUC(k)) flags |= HAS_VC;
+		transposed.vflags[tk] = flags;
+		if (colors != null) {
+		    transposed.colors[tk] = colors[k];
+		}
+		transposed.regions[tk] = regions[k];
+		if (hasRest(k)) {
+		    float[] rest = transposed.rcoords;
+		    System.arraycopy(rcoords, 12*k, rest, 12*tk, 3);
+		    System.arraycopy(rcoords, 12*k+3, rest, 12*tk+6, 3);
+		    System.arraycopy(rcoords, 12*k+6, rest, 12*tk+3, 3);
+		    System.arraycopy(rcoords, 12*k+9, rest, 12*tk+9, 3);
+		}
+		transposed.vsns[tk] = usns[k];
+		transposed.usns[tk] = vsns[k];
 	    }
 	}
 	transposed.flipped = flipped;
@@ -1782,39 +2035,31 @@ public class BezierGrid implements Shape3D {
 	    int jjj = j;
 	    for (int jj = 0; jj < m; jj++, jjj++) {
 		if (vclosed && jjj == nv) jjj = 0;
-		Point3D p = array[iii][jjj].p;
-		g.array[ii][jj].p = new Point3D.Double
-		    (p.getX(), p.getY(), p.getZ());
-		g.array[ii][jj].region = array[iii][jjj].region;
-		g.array[ii][jj].vsn = array[iii][jjj].vsn;
-		g.array[ii][jj].usn = array[iii][jjj].usn;
+		int k = vindex(iii, jjj);
+		int gk = g.vindex(ii, jj);
+		System.arraycopy(pcoords, 3*k, g.pcoords, 3*gk, 3);
+		g.vflags[gk] = (byte)(vflags[k] & HAS_P);
+		g.regions[gk] = regions[k];
+		g.vsns[gk] = vsns[k];
+		g.usns[gk] = usns[k];
 		if (ii < n-1 && jj < m-1) {
-		    g.array[ii][jj].color = array[iii][jjj].color;
-		    g.array[ii][jj].filled = array[iii][jjj].filled;
-		}
-		if (ii < n-1) {
-		    double[] uc = array[iii][jjj].uc;
-		    if (uc != null) {
-			double[] newuc = new double[uc.length];
-			System.arraycopy(uc, 0, newuc, 0, uc.length);
-			g.array[ii][jj].uc = newuc;
-		    }
+		    g.setColorAt(gk, getColorAt(k));
+		    g.setFlag(gk, FILLED, isFilled(k));
 		}
-		if (jj < m-1) {
-		    double[] vc = array[iii][jjj].vc;
-		    if (vc != null) {
-			double[] newvc = new double[vc.length];
-			System.arraycopy(vc, 0, newvc, 0, vc.length);
-			g.array[ii][jj].vc = newvc;
-		    }
+		if (ii < n-1 && hasUC(k)) {
+		    System.arraycopy(ucoords, 9*k, g.ucoords, 9*gk, 9);
+		    g.vflags[gk] |= HAS_UC;
 		}
-		if (ii < n-1 && jj < m-1) {
-		    double[] rest = array[iii][jjj].rest;
-		    if (rest != null) {
-			double[] newrest = new double[rest.length];
-			System.arraycopy(rest, 0, newrest, 0, rest.length);
-			g.array[ii][jj].rest = newrest;
+		if (jj < m-1 && hasVC(k)) {
+		    System.arraycopy(vcoords, 9*k, g.vcoords, 9*gk, 9);
+		    g.vflags[gk] |= HAS_VC;
+		}
+		if (ii < n-1 && jj < m-1 && hasRest(k)) {
+		    if (g.rcoords == null) {
+			g.rcoords = new float[12*g.vflags.length];
 		    }
+		    System.arraycopy(rcoords, 12*k, g.rcoords, 12*gk, 12);
+		    g.vflags[gk] |= HAS_REST;
 		}
 	    }
 	}
@@ -1839,14 +2084,12 @@ public class BezierGrid implements Shape3D {
      */
     public boolean getFullSplineU(int i, int j, double[] coords) {
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.uc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasUC(k)) {
 	    return false;
 	}
-	coords[0] = vertex.p.getX();
-	coords[1] = vertex.p.getY();
-	coords[2] = vertex.p.getZ();
-	System.arraycopy(vertex.uc, 0, coords, 3, 9);
+	copy(pcoords, 3*k, coords, 0, 3);
+	copy(ucoords, 9*k, coords, 3, 9);
 	return true;
     }
 
@@ -1867,14 +2110,12 @@ public class BezierGrid implements Shape3D {
      */
     public boolean getFullSplineV(int i, int j, double[] coords) {
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.vc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasVC(k)) {
 	    return false;
 	}
-	coords[0] = vertex.p.getX();
-	coords[1] = vertex.p.getY();
-	coords[2] = vertex.p.getZ();
-	System.arraycopy(vertex.vc, 0, coords, 3, 9);
+	copy(pcoords, 3*k, coords, 0, 3);
+	copy(vcoords, 9*k, coords, 3, 9);
 	return true;
     }
 
@@ -1896,11 +2137,11 @@ public class BezierGrid implements Shape3D {
      */
     public boolean getSplineU(int i, int j, double[] coords) {
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.uc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasUC(k)) {
 	    return false;
 	}
-	System.arraycopy(vertex.uc, 0, coords, 0, 9);
+	copy(ucoords, 9*k, coords, 0, 9);
 	return true;
     }
 
@@ -1922,11 +2163,11 @@ public class BezierGrid implements Shape3D {
      */
     public boolean getSplineV(int i, int j, double[] coords) {
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.vc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasVC(k)) {
 	    return false;
 	}
-	System.arraycopy(vertex.vc, 0, coords, 0, 9);
+	copy(vcoords, 9*k, coords, 0, 9);
 	return true;
     }
 
@@ -1986,18 +2227,12 @@ public class BezierGrid implements Shape3D {
 	}
 	bpathSet = false;
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.uc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasUC(k)) {
 	    return false;
 	}
 	frozen = true;
-	// System.arraycopy(coords, 0, vertex.uc, 0, 6);
-	vertex.uc[0] = (double)(float)coords[0];
-	vertex.uc[1] = (double)(float)coords[1];
-	vertex.uc[2] = (double)(float)coords[2];
-	vertex.uc[3] = (double)(float)coords[3];
-	vertex.uc[4] = (double)(float)coords[4];
-	vertex.uc[5] = (double)(float)coords[5];
+	copy(coords, 0, ucoords, 9*k, 6);
 	return true;
     }
 
@@ -2038,24 +2273,25 @@ public class BezierGrid implements Shape3D {
 	    String msg = errorMsg("argOutOfRange2ii", i, j);
 	    throw new IllegalArgumentException(msg);
 	}
-	Vertex vertex0 = array[i][j];
-	Vertex vertex3;
+	int k0 = vindex(i, j);
+	int k3;
 	if (i == nu-1) {
 	    if (uclosed) {
-		vertex3 = array[0][j];
+		k3 = vindex(0, j);
 	    } else {
 		String msg = errorMsg("argOutOfRange2ii", i, j);
 		throw new IllegalArgumentException(msg);
 	    }
 	} else {
-	    vertex3 = array[i+1][j];
+	    k3 = vindex(i+1, j);
 	}
-	if (vertex0.p == null || vertex3.p == null) {
+	if (!hasP(k0) || !hasP(k3)) {
 	    return false;
 	}
-	double[] pcoords = Path3D.setupCubic(vertex0.p, vertex3.p);
+	double[] cpcoords = Path3D.setupCubic(px(k0), py(k0), pz(k0),
+					      px(k3), py(k3), pz(k3));
 	double[] coords = new double[6];
-	System.arraycopy(pcoords, 3, coords, 0, 6);
+	System.arraycopy(cpcoords, 3, coords, 0, 6);
 	return setSplineU(i, j, coords);
     }
 
@@ -2095,24 +2331,25 @@ public class BezierGrid implements Shape3D {
 	    String msg = errorMsg("argOutOfRange2ii", i, j);
 	    throw new IllegalArgumentException(msg);
 	}
-	Vertex vertex0 = array[i][j];
-	Vertex vertex3;
+	int k0 = vindex(i, j);
+	int k3;
 	if (j == nv-1) {
 	    if (vclosed) {
-		vertex3 = array[i][0];
+		k3 = vindex(i, 0);
 	    } else {
 		String msg = errorMsg("argOutOfRange2ii", i, j);
 		throw new IllegalArgumentException(msg);
 	    }
 	} else {
-	    vertex3 = array[i][j+1];
+	    k3 = vindex(i, j+1);
 	}
-	if (vertex0.p == null || vertex3.p == null) {
+	if (!hasP(k0) || !hasP(k3)) {
 	    return false;
 	}
-	double[] pcoords = Path3D.setupCubic(vertex0.p, vertex3.p);
+	double[] cpcoords = Path3D.setupCubic(px(k0), py(k0), pz(k0),
+					      px(k3), py(k3), pz(k3));
 	double[] coords = new double[6];
-	System.arraycopy(pcoords, 3, coords, 0, 6);
+	System.arraycopy(cpcoords, 3, coords, 0, 6);
 	return setSplineV(i, j, coords);
     }
 
@@ -2160,18 +2397,12 @@ public class BezierGrid implements Shape3D {
 	}
 	bpathSet = false;
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.vc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasVC(k)) {
 	    return false;
 	}
 	frozen = true;
-	// System.arraycopy(coords, 0, vertex.vc, 0, 6);
-	vertex.vc[0] = (double)(float)coords[0];
-	vertex.vc[1] = (double)(float)coords[1];
-	vertex.vc[2] = (double)(float)coords[2];
-	vertex.vc[3] = (double)(float)coords[3];
-	vertex.vc[4] = (double)(float)coords[4];
-	vertex.vc[5] = (double)(float)coords[5];
+	copy(coords, 0, vcoords, 9*k, 6);
 	return true;
     }
 
@@ -2221,23 +2452,20 @@ public class BezierGrid implements Shape3D {
 	}
 	bpathSet = false;
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.vc == null
-	    || vertex.uc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasVC(k) || !hasUC(k)) {
 	    return false;
 	}
 	frozen = true;
 	if (rest == null) {
-	    vertex.rest = null;
+	    vflags[k] &= ~HAS_REST;
 	    return true;
 	}
-	if (vertex.rest == null) {
-	    vertex.rest = new double[12];
-	}
-	System.arraycopy(rest, 0, vertex.rest, 0, 12);
-	for (int k = 0; k < 12; k++) {
-	    vertex.rest[k] = (double)(float)vertex.rest[k];
+	if (rcoords == null) {
+	    rcoords = new float[12*vflags.length];
 	}
+	copy(rest, 0, rcoords, 12*k, 12);
+	vflags[k] |= HAS_REST;
 	return true;
     }
 
@@ -2270,12 +2498,11 @@ public class BezierGrid implements Shape3D {
 	}
 
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.vc == null
-	    || vertex.uc == null || vertex.rest == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasVC(k) || !hasUC(k) || !hasRest(k)) {
 	    return false;
 	}
-	System.arraycopy(vertex.rest, 0, coords, 0, 12);
+	copy(rcoords, 12*k, coords, 0, 12);
 	return true;
     }
 
@@ -2285,6 +2512,10 @@ public class BezierGrid implements Shape3D {
      * is {@link #getUArrayLength()}.
      * If the V direction is closed, j is treated as 0 when its value
      * is {@link #getVArrayLength()}.
+     * <P>
+     * The point returned is a new object holding a copy of the
+     * grid's coordinates.  Modifying it does not change this grid:
+     * use {@link #setPoint(int,int,double,double,double)} for that.
      * @param i the U index
      * @param j the V index
      * @return the corresponding point; null if there is none
@@ -2292,9 +2523,7 @@ public class BezierGrid implements Shape3D {
     public Point3D getPoint(int i, int j) {
 	if (uclosed && i == nu) i = 0;
 	if (vclosed && j == nv) j = 0;
-	Vertex vertex = array[i][j];
-	if (vertex == null) return null;
-	return vertex.p;
+	return getP(checkedIndex(i, j));
     }
 
     /**
@@ -2323,9 +2552,8 @@ public class BezierGrid implements Shape3D {
 	}
 
 	createSplines();
-	Vertex vertex = array[i][j];
-	if (vertex == null || vertex.p == null || vertex.vc == null
-	    || vertex.uc == null) {
+	int k = checkedIndex(i, j);
+	if (!hasP(k) || !hasVC(k) || !hasUC(k)) {
 	    return false;
 	}
 	if (i == nu-1 && !uclosed) {
@@ -2334,66 +2562,56 @@ public class BezierGrid implements Shape3D {
 	if (j == nv-1 && !vclosed) {
 	    return false;
 	}
-	coords[0] = vertex.p.getX();
-	coords[1] = vertex.p.getY();
-	coords[2] = vertex.p.getZ();
-	System.arraycopy(vertex.uc, 0, coords, 3, 6);
-	System.arraycopy(vertex.vc, 0, coords, 12, 3);
-	System.arraycopy(vertex.vc, 3, coords, 24, 3);
-	// System.arraycopy(vertex.vc, 6, coords, 36, 3);
-	boolean needRest = (vertex.rest == null);
+	copy(pcoords, 3*k, coords, 0, 3);
+	copy(ucoords, 9*k, coords, 3, 6);
+	copy(vcoords, 9*k, coords, 12, 3);
+	copy(vcoords, 9*k+3, coords, 24, 3);
+	boolean needRest = !hasRest(k);
 	if (!needRest) {
 	    // We have the value
-	    System.arraycopy(vertex.rest, 0, coords, 15, 6);
-	    System.arraycopy(vertex.rest, 6, coords, 27, 6);
+	    copy(rcoords, 12*k, coords, 15, 6);
+	    copy(rcoords, 12*k+6, coords, 27, 6);
 	}
 	if (j == nv-1) {
-	    vertex = array[i][0];
+	    k = vindex(i, 0);
 	} else {
-	    vertex = array[i][j+1];
+	    k = vindex(i, j+1);
 	}
-	if (vertex == null || vertex.p == null || vertex.uc == null) {
+	if (!hasP(k) || !hasUC(k)) {
 	    return false;
 	}
-	coords[36] = vertex.p.getX();
-	coords[37] = vertex.p.getY();
-	coords[38] = vertex.p.getZ();
-	System.arraycopy(vertex.uc, 0, coords, 39, 6);
+	copy(pcoords, 3*k, coords, 36, 3);
+	copy(ucoords, 9*k, coords, 39, 6);
 	if (i == nu-1) {
-	    vertex = array[0][j];
+	    k = vindex(0, j);
 	} else {
-	    vertex = array[i+1][j];
+	    k = vindex(i+1, j);
 	}
-	if (vertex == null || vertex.p == null || vertex.vc == null) {
+	if (!hasP(k) || !hasVC(k)) {
 	    return false;
 	}
-	coords[9] = vertex.p.getX();
-	coords[10] = vertex.p.getY();
-	coords[11] = vertex.p.getZ();
-	System.arraycopy(vertex.vc, 0, coords, 21, 3);
-	System.arraycopy(vertex.vc, 3, coords, 33, 3);
-	// System.arraycopy(vertex.vc, 6, coords, 45, 3);
+	copy(pcoords, 3*k, coords, 9, 3);
+	copy(vcoords, 9*k, coords, 21, 3);
+	copy(vcoords, 9*k+3, coords, 33, 3);
 	if (i == nu-1 && j == nv-1) {
-	    vertex = array[0][0];
+	    k = vindex(0, 0);
 	} else if (i == nu-1) {
-	    vertex = array[0][j];
+	    k = vindex(0, j);
 	} else if (j == nv-1) {
-	    vertex = array[i][0];
+	    k = vindex(i, 0);
 	} else {
-	    vertex = array[i+1][j+1];
+	    k = vindex(i+1, j+1);
 	}
-	if (vertex != null && vertex.p != null) {
-	    coords[45] = vertex.p.getX();
-	    coords[46] = vertex.p.getY();
-	    coords[47] = vertex.p.getZ();
+	if (hasP(k)) {
+	    copy(pcoords, 3*k, coords, 45, 3);
 	}
 	if (needRest) {
 	    // fill in the missing values
 	    Surface3D.setupRestForPatch(coords);
-	    for (int k = 15; k < 21; k++) {
+	    for (k = 15; k < 21; k++) {
 		coords[k] = (double)(float)coords[k];
 	    }
-	    for (int k = 27; k < 33; k++) {
+	    for (k = 27; k < 33; k++) {
 		coords[k] = (double)(float)coords[k];
 	    }
 	}
@@ -2434,9 +2652,7 @@ public class BezierGrid implements Shape3D {
 		throw new
 		    IllegalStateException(errorMsg("bgfrozen"));
 	    }
-	    Vertex vertex = array[i][j];
-	    vertex.p = null;
-	    vertex.filled = false;
+	    vflags[vindex(i, j)] &= ~(HAS_P | FILLED);
 	    bpathSet = false;
 	    return;
 	}
@@ -2464,75 +2680,30 @@ public class BezierGrid implements Shape3D {
 	    throw new
 		IllegalStateException(errorMsg("bgfrozen"));
 	}
-	Vertex vertex = array[i][j];
-	if (vertex.p == null) {
-	    vertex.p = new Point3D.Double((double)(float)coords[0],
-					  (double)(float)coords[1],
-					  (double)(float)coords[2]);
-	    vertex.filled = true;
-	} else {
-	    vertex.p.setLocation((double)(float)coords[0],
-				 (double)(float)coords[1],
-				 (double)(float)coords[2]);
-	}
+	setCorner(vindex(i, j), coords, 0);
 	int ii = (uclosed)? ((i+1)%nu): i+1;
 	int jj = (vclosed)? ((j+1)%nv): j+1;
 	int im = (uclosed)? ((i+nu-1)%nu):i-1;
 	int jm = (vclosed)? ((i+nv-1)%nv):j-1;
 	if (ii < nu) {
-	    vertex = array[ii][j];
-	    if (vertex.p == null) {
-		vertex.p =
-		    new Point3D.Double((double)(float)coords[9],
-				       (double)(float)coords[10],
-				       (double)(float)coords[11]);
-		vertex.filled = true;
-	    } else {
-		vertex.p.setLocation((double)(float)coords[9],
-				     (double)(float)coords[10],
-				     (double)(float)coords[11]);
-	    }
+	    setCorner(vindex(ii, j), coords, 9);
 	    if (jj < nv) {
-		vertex = array[ii][jj];
-		if (vertex.p == null) {
-		    vertex.p =
-			new Point3D.Double((double)(float)coords[45],
-					   (double)(float)coords[46],
-					   (double)(float)coords[47]);
-		    vertex.filled = true;
-		} else {
-		    vertex.p.setLocation((double)(float)coords[45],
-					 (double)(float)coords[46],
-					 (double)(float)coords[47]);
-		}
+		setCorner(vindex(ii, jj), coords, 45);
 	    }
 	}
 	if (im >= 0) {
-	    vertex = array[im][j];
-	    if (vertex.uc != null) {
-		System.arraycopy(coords, 0, vertex.uc, 6, 3);
+	    int k = vindex(im, j);
+	    if (hasUC(k)) {
+		copy(coords, 0, ucoords, 9*k+6, 3);
 	    }
 	}
 	if (jj < nv) {
-	    vertex = array[i][jj];
-	    if (vertex.p == null) {
-		vertex.p =
-		    new Point3D.Double((double)(float)coords[36],
-				       (double)(float)coords[37],
-				       (double)(float)coords[38]);
-		vertex.filled = true;
-	    } else {
-		vertex.p.setLocation((double)(float)coords[36],
-				     (double)(float)coords[37],
-				     (double)(float)coords[38]);
-	    }
+	    setCorner(vindex(i, jj), coords, 36);
 	}
 	if (jm >= 0) {
-	    vertex = array[i][jm];
-	    if (vertex.vc != null) {
-		vertex.vc[6] = coords[0];
-		vertex.vc[7] = coords[1];
-		vertex.vc[8] = coords[2];
+	    int k = vindex(i, jm);
+	    if (hasVC(k)) {
+		copy(coords, 0, vcoords, 9*k+6, 3);
 	    }
 	}
 	splinesCreated = false;
@@ -2571,134 +2742,61 @@ public class BezierGrid implements Shape3D {
 	bpathSet = false;
 	createSplines();
 	frozen = true;
-	Vertex vertex = array[i][j];
-	if (vertex.p == null) {
-	    vertex.p = new Point3D.Double((double)(float)coords[0],
-					  (double)(float)coords[1],
-					  (double)(float)coords[2]);
-	    vertex.filled = true;
-	} else {
-	    vertex.p.setLocation((double)(float)coords[0],
-				 (double)(float)coords[1],
-				 (double)(float)coords[2]);
-	}
+	int k = vindex(i, j);
+	setCorner(k, coords, 0);
 	int im = (uclosed)? ((i+nu-1)%nu): i-1;
 	int jm = (vclosed)? ((j+nv-1)%nv): j-1;
 	int ii = (uclosed)? ((i+1)%nu): i+1;
 	int jj = (vclosed)? ((j+1)%nv): j+1;
 	double[] tmp = new double[12];
 	if (ii < nu) {
-	    if (vertex.uc == null) vertex.uc = new double[9];
+	    if (!hasUC(k)) newUC(k);
 	    System.arraycopy(coords, 3, tmp, 0, 6);
 	    setSplineU(i, j, tmp);
-	    System.arraycopy(coords, 9, vertex.uc, 6, 3);
-	    for (int k = 6; k < 9; k++) {
-		vertex.uc[k] = (double)(float)vertex.uc[k];
-	    }
-	    vertex = array[ii][j];
-	    if (vertex.p == null) {
-		vertex.p =
-		    new Point3D.Double((double)(float)coords[9],
-				       (double)(float)coords[10],
-				       (double)(float)coords[11]);
-		vertex.filled = true;
-	    } else {
-		vertex.p.setLocation((double)(float)coords[9],
-				     (double)(float)coords[10],
-				     (double)(float)coords[11]);
-	    }
+	    copy(coords, 9, ucoords, 9*k+6, 3);
+	    setCorner(vindex(ii, j), coords, 9);
 	    if (jj < nv) {
-		vertex = array[i][jj];
+		int kk = vindex(i, jj);
 		System.arraycopy(coords, 39, tmp, 0, 6);
-		if (vertex.uc == null) vertex.uc = new double[9];
-		if (vertex.p == null) {
-		    vertex.p =
-			new Point3D.Double((double)(float)coords[36],
-					   (double)(float)coords[37],
-					   (double)(float)coords[38]);
-		    vertex.filled = true;
-		} else {
-		    vertex.p.setLocation((double)(float)coords[36],
-					 (double)(float)coords[37],
-					 (double)(float)coords[38]);
-		}
+		if (!hasUC(kk)) newUC(kk);
+		setCorner(kk, coords, 36);
 		setSplineU(i, jj, tmp);
-		System.arraycopy(coords, 45, vertex.uc, 6, 3);
-		for (int k = 6; k < 9; k++) {
-		    vertex.uc[k] = (double)(float)vertex.uc[k];
-		}
-		vertex = array[ii][jj];
-		if (vertex.p == null) {
-		    vertex.p =
-			new Point3D.Double((double)(float)coords[45],
-					   (double)(float)coords[46],
-					   (double)(float)coords[47]);
-		    vertex.filled = true;
-		} else {
-		    vertex.p.setLocation((double)(float)coords[45],
-					 (double)(float)coords[46],
-					 (double)(float)coords[47]);
-		}
-		vertex = array[i][j];
-		if (vertex.rest == null) {
-		    vertex.rest = new double[12];
-		}
-		System.arraycopy(coords, 15, vertex.rest, 0, 6);
-		System.arraycopy(coords, 27, vertex.rest, 6, 6);
-		for (int k = 0; k < vertex.rest.length; k++) {
-		    vertex.rest[k] = (double)(float)vertex.rest[k];
+		copy(coords, 45, ucoords, 9*kk+6, 3);
+		setCorner(vindex(ii, jj), coords, 45);
+		if (rcoords == null) {
+		    rcoords = new float[12*vflags.length];
 		}
+		copy(coords, 15, rcoords, 12*k, 6);
+		copy(coords, 27, rcoords, 12*k+6, 6);
+		vflags[k] |= HAS_REST;
 	    }
 	}
 	if (im >= 0) {
-	    vertex = array[im][j];
-	    if (vertex.uc != null) {
-		System.arraycopy(coords, 0, vertex.uc, 6, 3);
-		for (int k = 0; k < 3; k++) {
-		    vertex.uc[k] = (double)(float)vertex.uc[k];
-		}
+	    int km = vindex(im, j);
+	    if (hasUC(km)) {
+		copy(coords, 0, ucoords, 9*km+6, 3);
 	    }
 	}
 	if (jj < nv) {
-	    vertex = array[i][j];
 	    System.arraycopy(coords, 12, tmp, 0, 3);
 	    System.arraycopy(coords, 24, tmp, 3, 3);
-	    if (vertex.vc == null) vertex.vc = new double[9];
+	    if (!hasVC(k)) newVC(k);
 	    setSplineV(i, j, tmp);
-	    System.arraycopy(coords, 36, vertex.vc, 6, 3);
-	    for (int k = 6; k < 9; k++) {
-		vertex.vc[k] = (double)(float)vertex.vc[k];
-	    }
-	    vertex = array[i][jj];
-	    if (vertex.p == null) {
-		vertex.p =
-		    new Point3D.Double((double)(float)coords[36],
-				       (double)(float)coords[37],
-				       (double)(float)coords[38]);
-		vertex.filled = true;
-	    } else {
-		vertex.p.setLocation((double)(float)coords[36],
-				     (double)(float)coords[37],
-				     (double)(float)coords[38]);
-	    }
+	    copy(coords, 36, vcoords, 9*k+6, 3);
+	    setCorner(vindex(i, jj), coords, 36);
 	    if (ii < nu) {
-		vertex = array[ii][j];
+		int kk = vindex(ii, j);
 		System.arraycopy(coords, 21, tmp, 0, 3);
 		System.arraycopy(coords, 33, tmp, 3, 3);
-		if (vertex.vc == null) vertex.vc = new double[9];
+		if (!hasVC(kk)) newVC(kk);
 		setSplineV(ii, j, tmp);
-		System.arraycopy(coords, 45, vertex.vc, 6, 3);
-		for (int k = 6; k < 9; k++) {
-		    vertex.vc[k] = (double)(float)vertex.vc[k];
-		}
+		copy(coords, 45, vcoords, 9*kk+6, 3);
 	    }
 	}
 	if (jm >= 0) {
-	    vertex = array[i][jm];
-	    if (vertex.vc != null) {
-		vertex.vc[6] = (double)(float)coords[0];
-		vertex.vc[7] = (double)(float)coords[1];
-		vertex.vc[8] = (double)(float)coords[2];
+	    int km = vindex(i, jm);
+	    if (hasVC(km)) {
+		copy(coords, 0, vcoords, 9*km+6, 3);
 	    }
 	}
     }
@@ -2740,21 +2838,9 @@ public class BezierGrid implements Shape3D {
 		IllegalStateException(errorMsg("bgfrozen"));
 	}
 
-	Vertex vertex = array[i][j];
-	if (vertex == null) {
-	    vertex = new Vertex();
-	    array[i][j] = vertex;
-	}
-	if (vertex.p == null) {
-	    vertex.p = new Point3D.Double((double)(float)x,
-				       (double)(float)y,
-				       (double)(float) z);
-	    vertex.filled = true;
-	} else {
-	    vertex.p.setLocation((double)(float)x,
-				 (double)(float)y,
-				 (double)(float)z);
-	}
+	int k = vindex(i, j);
+	if (!hasP(k)) vflags[k] |= FILLED;
+	setP(k, x, y, z);
 	brect = null;		// clear the bounding rectangle
 	splinesCreated = false;
 	bpathSet = false;
@@ -3132,14 +3218,12 @@ public class BezierGrid implements Shape3D {
 	    for (int i = 0; i < nu; i++) {
 		out.append(prefix);
 		for (int j = 0; j < nv; j++) {
-		    Vertex v = array[i][j];
-		    if (v.p == null) {
+		    int k = vindex(i, j);
+		    if (!hasP(k)) {
 			out.append(" (null)");
 		    } else {
 			out.append(String.format(" (%g,%g,%g)",
-						 v.p.getX(),
-						 v.p.getY(),
-						 v.p.getZ()));
+						 px(k), py(k), pz(k)));
 		    }
 		}
 		out.append("\n");
@@ -3148,10 +3232,10 @@ public class BezierGrid implements Shape3D {
 	    for (int i = 0; i < nu; i++) {
 		out.append(prefix);
 		for (int j = 0; j < nv; j++) {
-		    Vertex v = array[i][j];
+		    int k = vindex(i, j);
 		    out.append(String.format(" (%c%c)",
-					     ((v.uc==null)? ' ': 'u'),
-					     ((v.vc==null)? ' ': 'v')));
+					     ((hasUC(k))? 'u': ' '),
+					     ((hasVC(k))? 'v': ' ')));
 		}
 		out.append("\n");
 	    }
@@ -3159,9 +3243,9 @@ public class BezierGrid implements Shape3D {
 	    for (int i = 0; i < nu; i++) {
 		out.append(prefix);
 		for (int j = 0; j < nv; j++) {
-		    Vertex v = array[i][j];
+		    int k = vindex(i, j);
 		    out.append(String.format(" (%c)",
-					     ((v.filled)? 'F': ' ')));
+					     ((isFilled(k))? 'F': ' ')));
 		}
 		out.append("\n");
 	    }
@@ -3173,19 +3257,19 @@ public class BezierGrid implements Shape3D {
 	    if (splinesCreated == false) {
 		for (int i = 0; i < nu; i++) {
 		    for (int j = 0; j < nv; j++) {
-			Vertex v = array[i][j];
+			int k = vindex(i, j);
 			if ((frozenUEnds1 && i == 0)
 			    || (frozenUEnds2 && i == nu-1)) {
-			    v.uc = null;
+			    vflags[k] &= ~HAS_UC;
 			} else if ((frozenVEnds1 && j == 0)
 				   || (frozenVEnds2 && j == nv-1)) {
-			    v.vc = null;
+			    vflags[k] &= ~HAS_VC;
 			} else {
 			    if (!frozenV) {
-				v.vc = null;
+				vflags[k] &= ~HAS_VC;
 			    }
 			    if (!frozenU) {
-				v.uc = null;
+				vflags[k] &= ~HAS_UC;
 			    }
 			}
 		    }
@@ -3329,15 +3413,15 @@ public class BezierGrid implements Shape3D {
     public boolean badSplines(Appendable out) {
 	boolean savedCreated = splinesCreated;
 	boolean result = false;
-	Vertex vertex;
+	int vertex;
 	try {
 	    for (int j = 0; j < nv; j++) {
 		for (int i = 0; i < nu; i++) {
-		    vertex = array[i][j];
-		    if (vertex.p != null) {
-			if (Double.isNaN(vertex.p.getX())
-			    || Double.isNaN(vertex.p.getY())
-			    || Double.isNaN(vertex.p.getZ())){
+		    vertex = vindex(i, j);
+		    if (hasP(vertex)) {
+			if (Double.isNaN(px(vertex))
+			    || Double.isNaN(py(vertex))
+			    || Double.isNaN(pz(vertex))){
 			    out.append(errorMsg("vertexNaN", i, j));
 			}
 		    }
@@ -3347,15 +3431,15 @@ public class BezierGrid implements Shape3D {
 	    if (!splinesCreated) createSplines();
 	    int num1 = uclosed? nu: nu - 1;
 	    int nvm1 = vclosed? nv: nv - 1;
-	    Vertex vertex2;
-	    Vertex vertex3;
+	    int vertex2;
+	    int vertex3;
 	    for (int j = 0; j < nv; j++) {
 		for (int i = 0; i < num1; i++) {
-		    vertex = array[i][j];
-		    vertex2 = array[(i+1)%nu][j];
-		    if (vertex.p != null) {
-			if (vertex2.p != null) {
-			    if (vertex.uc == null) {
+		    vertex = vindex(i, j);
+		    vertex2 = vindex((i+1)%nu, j);
+		    if (hasP(vertex)) {
+			if (hasP(vertex2)) {
+			    if (!hasUC(vertex)) {
 				if (out != null) {
 				    out.append(errorMsg("vertexnuc", i, j));
 				    out.append("\n");
@@ -3363,9 +3447,10 @@ public class BezierGrid implements Shape3D {
 				
 				result = true;
 			    } else {
-				if (vertex.uc[6] != vertex2.p.getX()
-				    || vertex.uc[7] != vertex2.p.getY()
-				    || vertex.uc[8] != vertex2.p.getZ()) {
+				int off = 9*vertex + 6;
+				if (ucoords[off] != px(vertex2)
+				    || ucoords[off+1] != py(vertex2)
+				    || ucoords[off+2] != pz(vertex2)) {
 				    if (out != null) {
 					out.append(errorMsg("vertexuc", i, j));
 					out.append("\n");
@@ -3377,7 +3462,7 @@ public class BezierGrid implements Shape3D {
 		    }
 		}
 		if (!uclosed) {
-		    if (array[num1][j].uc != null) {
+		    if (hasUC(vindex(num1, j))) {
 			if (out != null) {
 			    out.append(errorMsg("vertexnnuc", num1, j));
 			    out.append("\n");
@@ -3388,20 +3473,21 @@ public class BezierGrid implements Shape3D {
 	    }
 	    for (int i = 0; i < nu; i++) {
 		for (int j = 0; j < nvm1; j++) {
-		    vertex = array[i][j];
-		    vertex3 = array[i][(j+1)%nv];
-		    if (vertex.p != null) {
-			if (vertex3.p != null) {
-			    if (vertex.vc == null) {
+		    vertex = vindex(i, j);
+		    vertex3 = vindex(i, (j+1)%nv);
+		    if (hasP(vertex)) {
+			if (hasP(vertex3)) {
+			    if (!hasVC(vertex)) {
 				if (out != null) {
 				    out.append(errorMsg("vertexnvc", i, j));
 				    out.append("\n");
 				}
 				result = true;
 			    } else {
-				if (vertex.vc[6] != vertex3.p.getX()
-				    || vertex.vc[7] != vertex3.p.getY()
-				    || vertex.vc[8] != vertex3.p.getZ()) {
+				int off = 9*vertex + 6;
+				if (vcoords[off] != px(vertex3)
+				    || vcoords[off+1] != py(vertex3)
+				    || vcoords[off+2] != pz(vertex3)) {
 				    if (out != null) {
 					out.append(errorMsg("vertexvc", i, j));
 					out.append("\n");
@@ -3413,7 +3499,7 @@ public class BezierGrid implements Shape3D {
 		    }
 		}
 		if (!vclosed) {
-		    if (array[i][nvm1].vc != null) {
+		    if (hasVC(vindex(i, nvm1))) {
 			if (out != null) {
 			    out.append(errorMsg("vertexnnvc", i, nvm1));
 			    out.append("\n");
@@ -3428,15 +3514,12 @@ public class BezierGrid implements Shape3D {
 	} finally {
 	    splinesCreated = savedCreated;
 	    if (splinesCreated == false) {
-		for (int i = 0; i < nu; i++) {
-		    for (int j = 0; j < nv; j++) {
-			Vertex v = array[i][j];
-			if (!frozenU) {
-			    v.uc = null;
-			}
-			if (!frozenV) {
-			    v.vc = null;
-			}
+		for (int k = 0; k < vflags.length; k++) {
+		    if (!frozenU) {
+			vflags[k] &= ~HAS_UC;
+		    }
+		    if (!frozenV) {
+			vflags[k] &= ~HAS_VC;
 		    }
 		}
 	    }
@@ -3503,7 +3586,7 @@ public class BezierGrid implements Shape3D {
 	    int offset = 0;
 	    Point3D[] tmp = new Point3D[2*nv + 1];
 	    for (int k = 0; k < nv; k++) {
-		tmp[k] = array[i][k].p;
+		tmp[k] = getP(vindex(i, k));
 	    }
 	    if (vclosed) {
 		System.arraycopy(tmp, 0, tmp, nv, nv);
@@ -3514,14 +3597,14 @@ public class BezierGrid implements Shape3D {
 		int n = 0;
 		if (vclosed && offset != 0) {
 		    while (tmp[offset+n] != null
-			   && array[i][offset%nv].region ==
-			   array[i][(offset+n)%nv].region) {
+			   && regions[vindex(i, offset%nv)] ==
+			   regions[vindex(i, (offset+n)%nv)]) {
 			n++;
 		    }
 		} else {
 		    while (offset+n < nv && tmp[offset+n] != null
-			   && array[i][offset%nv].region ==
-			   array[i][(offset+n)%nv].region) {
+			   && regions[vindex(i, offset%nv)] ==
+			   regions[vindex(i, (offset+n)%nv)]) {
 			n++;
 		    }
 		}
@@ -3532,8 +3615,8 @@ public class BezierGrid implements Shape3D {
 		    splineStat.add(vclosed);
 		} else if (n == 1) {
 		    if (tmp[offset+1] != null) {
-			if (array[i][offset%nv].region !=
-			    array[i][(offset+1)%nv].region) {
+			if (regions[vindex(i, offset%nv)] !=
+			    regions[vindex(i, (offset+1)%nv)]) {
 			    spline = new Path3D.Double();
 			    splineNo++;
 			    splineStat.add(false);
@@ -3572,8 +3655,7 @@ public class BezierGrid implements Shape3D {
 		PathIterator3D pit = spline.getPathIterator(null);
 		double[] coords = new double[9];
 		double x = Double.NaN, y = Double.NaN, z = Double.NaN;
-		double[] vc;
-		Point3D pc;
+		int vk, nk;
 		while (!pit.isDone()) {
 		    /*
 		    if (!array[i][index%nv].vcSet) {
@@ -3590,35 +3672,29 @@ public class BezierGrid implements Shape3D {
 			    }
 			    break;
 			case PathIterator3D.SEG_LINETO:
-			    vc = new double[9];
 			    if (splout != null) {
 				sploutAppend(String.format
 					      ("adding V spline at (%d, %d)",
 					       i, index%nv));
 			    }
-			    array[i][(index)%nv].vsn = splineNo;
-			    array[i][(index++)%nv].vc = vc;
-			    System.arraycopy(Path3D.setupCubic
-					     (array[i][(index-1)%nv].p,
-					      array[i][index%nv].p),
-					     3, vc, 0, 9);
-			    for (int k = 0; k < 9; k++) {
-				vc[k] = (double)(float)vc[k];
-			    }
+			    vk = vindex(i, (index++)%nv);
+			    nk = vindex(i, index%nv);
+			    vsns[vk] = splineNo;
+			    copy(Path3D.setupCubic(px(vk), py(vk), pz(vk),
+						   px(nk), py(nk), pz(nk)),
+				 3, vcoords, 9*vk, 9);
+			    vflags[vk] |= HAS_VC;
 			    break;
 			case PathIterator3D.SEG_CUBICTO:
-			    vc = new double[9];
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding V spline at (%d, %d)",
 					      i, index%nv));
 			    }
-			    array[i][(index)%nv].vsn = splineNo;
-			    array[i][(index++)%nv].vc = vc;
-			    System.arraycopy(coords, 0, vc, 0, 9);
-			    for (int k = 0; k < 9; k++) {
-				vc[k] = (double)(float)vc[k];
-			    }
+			    vk = vindex(i, (index++)%nv);
+			    vsns[vk] = splineNo;
+			    copy(coords, 0, vcoords, 9*vk, 9);
+			    vflags[vk] |= HAS_VC;
 			    x = coords[6];
 			    y = coords[7];
 			    z = coords[8];
@@ -3653,7 +3729,7 @@ public class BezierGrid implements Shape3D {
 	    int offset = 0;
 	    Point3D[] tmp = new Point3D[2*nu + 1];
 	    for (int k = 0; k < nu; k++) {
-		tmp[k] = array[k][j].p;
+		tmp[k] = getP(vindex(k, j));
 	    }
 	    if (uclosed) {
 		System.arraycopy(tmp, 0, tmp, nu, nu);
@@ -3664,14 +3740,14 @@ public class BezierGrid implements Shape3D {
 		int n = 0;
 		if (uclosed && offset != 0) {
 		    while (tmp[offset+n] != null
-			   && array[offset%nu][j].region ==
-			   array[(offset+n)%nu][j].region) {
+			   && regions[vindex(offset%nu, j)] ==
+			   regions[vindex((offset+n)%nu, j)]) {
 			n++;
 		    }
 		} else {
 		    while (offset+n < nu && tmp[offset+n] != null
-			   && array[offset%nu][j].region ==
-			   array[(offset+n)%nu][j].region) {
+			   && regions[vindex(offset%nu, j)] ==
+			   regions[vindex((offset+n)%nu, j)]) {
 			n++;
 		    }
 		}
@@ -3682,8 +3758,8 @@ public class BezierGrid implements Shape3D {
 		    splineStat.add(uclosed);
 		} else if (n == 1) {
 		    if (tmp[offset+1] != null) {
-			if (array[offset%nu][j].region !=
-			    array[(offset+1)%nu][j].region) {
+			if (regions[vindex(offset%nu, j)] !=
+			    regions[vindex((offset+1)%nu, j)]) {
 			    spline = new Path3D.Double();
 			    splineNo++;
 			    splineStat.add(false);
@@ -3714,8 +3790,7 @@ public class BezierGrid implements Shape3D {
 		PathIterator3D pit = spline.getPathIterator(null);
 		double[] coords = new double[9];
 		double x = Double.NaN, y = Double.NaN, z = Double.NaN;
-		Point3D pc;
-		double[] uc;
+		int uk, nk;
 		int iii = -1;
 		while (!pit.isDone()) {
 		    iii++;
@@ -3734,35 +3809,29 @@ public class BezierGrid implements Shape3D {
 			    }
 			    break;
 			case PathIterator3D.SEG_LINETO:
-			    uc = new double[9];
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding U spline at (%d, %d)",
 					      index%nu, j));
 			    }
-			    array[(index)%nu][j].usn = splineNo;
-			    array[(index++)%nu][j].uc = uc;
-			    System.arraycopy(Path3D.setupCubic
-					     (array[(index-1)%nu][j].p,
-					      array[index%nu][j].p),
-					     3, uc, 0, 9);
-			    for (int k = 0; k < 9; k++) {
-				uc[k] = (double)(float)uc[k];
-			    }
+			    uk = vindex((index++)%nu, j);
+			    nk = vindex(index%nu, j);
+			    usns[uk] = splineNo;
+			    copy(Path3D.setupCubic(px(uk), py(uk), pz(uk),
+						   px(nk), py(nk), pz(nk)),
+				 3, ucoords, 9*uk, 9);
+			    vflags[uk] |= HAS_UC;
 			    break;
 			case PathIterator3D.SEG_CUBICTO:
-			    uc = new double[9];
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding U spline at (%d, %d)",
 					      index%nu, j));
 			    }
-			    array[(index)%nu][j].usn = splineNo;
-			    array[(index++)%nu][j].uc = uc;
-			    System.arraycopy(coords, 0, uc, 0, 9);
-			    for (int k = 0; k < 9; k++) {
-				uc[k] = (double)(float)uc[k];
-			    }
+			    uk = vindex((index++)%nu, j);
+			    usns[uk] = splineNo;
+			    copy(coords, 0, ucoords, 9*uk, 9);
+			    vflags[uk] |= HAS_UC;
 			    x = coords[6];
 			    y = coords[7];
 			    z = coords[8];
@@ -3792,7 +3861,7 @@ public class BezierGrid implements Shape3D {
 	    Point3D[] points = new Point3D[sd.points.length];
 	    int decr = sd.cyclic? 1: 0;
 	    for (int k = 0; k < sd.points.length; k++) {
-		points[k] = array[sd.points[k].i][sd.points[k].j].p;
+		points[k] = getP(vindex(sd.points[k].i, sd.points[k].j));
 	    }
 	    Path3D path = null;
 	    if (points.length < 2) {
@@ -3820,6 +3889,7 @@ public class BezierGrid implements Shape3D {
 	    }
 	    pit.next();
 	    int ni = -1, nj = -1;
+	    int ck, nk;
 	    boolean udir = false;
 	    while (!pit.isDone()) {
 		int type = pit.currentSegment(coords);
@@ -3829,6 +3899,7 @@ public class BezierGrid implements Shape3D {
 		nj = (type == PathIterator3D.SEG_CLOSE)? oj:
 		    sd.points[index].j;
 		udir = (cj == nj);
+		ck = vindex(ci, cj);
 		switch(type) {
 		case PathIterator3D.SEG_CLOSE:
 		    break;
@@ -3840,176 +3911,116 @@ public class BezierGrid implements Shape3D {
 		    }
 		    break;
 		case PathIterator3D.SEG_LINETO:
-		    if (coords[0] != array[ni][nj].p.getX()) {
+		    nk = vindex(ni, nj);
+		    if (coords[0] != px(nk)) {
 			String msg = errorMsg("wrongSpline", ni, nj);
 			throw new RuntimeException(msg);
 		    }
-		    if (coords[1] != array[ni][nj].p.getY()) {
+		    if (coords[1] != py(nk)) {
 			String msg = errorMsg("wrongSpline", ni, nj);
 			throw new RuntimeException(msg);
 		    }
-		    if (coords[2] != array[ni][nj].p.getZ()) {
+		    if (coords[2] != pz(nk)) {
 			String msg = errorMsg("wrongSpline", ni, nj);
 			throw new RuntimeException(msg);
 		    }
 		    if (udir) {
 			if (ni > ci) {
-			    if (array[ci][cj].uc == null) {
-				array[ci][cj].uc = new double[9];
-			    }
-			    double[] lcoords =
-				Path3D.setupCubic(array[ci][cj].p,
-						  array[ni][nj].p);
-			    System.arraycopy(lcoords, 3,
-					     array[ci][cj].uc, 0, 9);
-			    array[ci][cj].usn = splineNo;
-			    double[] uc = array[ci][cj].uc;
+			    copy(Path3D.setupCubic(px(ck), py(ck), pz(ck),
+						   px(nk), py(nk), pz(nk)),
+				 3, ucoords, 9*ck, 9);
+			    vflags[ck] |= HAS_UC;
+			    usns[ck] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding U spline at (%d, %d)\n",
 					      ci, cj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				uc[k] = (double)(float)uc[k];
-			    }
 			} else {
-			    if (array[ni][nj].uc == null) {
-				array[ni][nj].uc = new double[9];
-			    }
-			    double[] lcoords =
-				Path3D.setupCubic(array[ni][nj].p,
-						  array[ci][cj].p);
-			    System.arraycopy(lcoords, 3,
-					     array[ni][nj].uc, 0, 9);
-			    array[ni][nj].usn = splineNo;
-			    double[] uc = array[ni][nj].uc;
+			    copy(Path3D.setupCubic(px(nk), py(nk), pz(nk),
+						   px(ck), py(ck), pz(ck)),
+				 3, ucoords, 9*nk, 9);
+			    vflags[nk] |= HAS_UC;
+			    usns[nk] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding U spline at (%d, %d)",
 					      ni, nj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				uc[k] = (double)(float)uc[k];
-			    }
 			}
 		    } else {
 			if (nj > cj) {
-			    if (array[ci][cj].vc == null) {
-				array[ci][cj].vc = new double[9];
-			    }
-			    double[] lcoords =
-				Path3D.setupCubic(array[ci][cj].p,
-						  array[ni][nj].p);
-			    System.arraycopy(lcoords, 3,
-					     array[ci][cj].vc, 0, 9);
-			    array[ci][cj].vsn = splineNo;
-			    double[] vc = array[ci][cj].vc;
+			    copy(Path3D.setupCubic(px(ck), py(ck), pz(ck),
+						   px(nk), py(nk), pz(nk)),
+				 3, vcoords, 9*ck, 9);
+			    vflags[ck] |= HAS_VC;
+			    vsns[ck] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding V spline at (%d, %d)",
 					      ci, cj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				vc[k] = (double)(float)vc[k];
-			    }
 			} else {
-			    if (array[ni][nj].vc == null) {
-				array[ni][nj].vc = new double[9];
-			    }
-			    double[] lcoords =
-				Path3D.setupCubic(array[ni][nj].p,
-						  array[ci][cj].p);
-			    System.arraycopy(lcoords, 3,
-					     array[ni][nj].vc, 0, 9);
-			    array[ni][nj].vsn = splineNo;
-			    double[] vc = array[ni][nj].vc;
+			    copy(Path3D.setupCubic(px(nk), py(nk), pz(nk),
+						   px(ck), py(ck), pz(ck)),
+				 3, vcoords, 9*nk, 9);
+			    vflags[nk] |= HAS_VC;
+			    vsns[nk] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding V spline at (%d, %d)",
 					      ni, nj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				vc[k] = (double)(float)vc[k];
-			    }
 			}
 		    }
 		    break;
 		case PathIterator3D.SEG_CUBICTO:
+		    nk = vindex(ni, nj);
 		    if (udir) {
 			if (ni > ci) {
-			    if (array[ci][cj].uc == null) {
-				array[ci][cj].uc = new double[9];
-			    }
-			    System.arraycopy(coords, 0, array[ci][cj].uc, 0, 9);
-			    array[ci][cj].usn = splineNo;
-			    double[] uc = array[ci][cj].uc;
+			    copy(coords, 0, ucoords, 9*ck, 9);
+			    vflags[ck] |= HAS_UC;
+			    usns[ck] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding U spline at (%d, %d)",
 					      ci, cj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				uc[k] = (double)(float)uc[k];
-			    }
 			} else {
-			    if (array[ni][nj].uc == null) {
-				array[ni][nj].uc = new double[9];
-			    }
-			    array[ni][nj].uc[6] = array[ci][cj].p.getX();
-			    array[ni][nj].uc[7] = array[ci][cj].p.getY();
-			    array[ni][nj].uc[8] = array[ci][cj].p.getZ();
-			    for (int k = 0; k < 3; k++) {
-				array[ni][nj].uc[k] = coords[3+k];
-				array[ni][nj].uc[3+k] = coords[k];
-			    }
-			    array[ni][nj].usn = splineNo;
-			    double[] uc = array[ni][nj].uc;
+			    copy(coords, 3, ucoords, 9*nk, 3);
+			    copy(coords, 0, ucoords, 9*nk+3, 3);
+			    System.arraycopy(pcoords, 3*ck,
+					     ucoords, 9*nk+6, 3);
+			    vflags[nk] |= HAS_UC;
+			    usns[nk] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding U spline at (%d, %d)",
 					      ni, nj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				uc[k] = (double)(float)uc[k];
-			    }
 			}
 		    } else {
 			if (nj > cj) {
-			    if (array[ci][cj].vc == null) {
-				array[ci][cj].vc = new double[9];
-			    }
-			    System.arraycopy(coords, 0, array[ci][cj].vc, 0, 9);
-			    array[ci][cj].vsn = splineNo;
-			    double[] vc = array[ci][cj].vc;
+			    copy(coords, 0, vcoords, 9*ck, 9);
+			    vflags[ck] |= HAS_VC;
+			    vsns[ck] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding V spline at (%d, %d)",
 					      ci, cj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				vc[k] = (double)(float)vc[k];
-			    }
 			} else {
-			    if (array[ni][nj].vc == null) {
-				array[ni][nj].vc = new double[9];
-			    }
-			    array[ni][nj].vc[6] = array[ci][cj].p.getX();
-			    array[ni][nj].vc[7] = array[ci][cj].p.getY();
-			    array[ni][nj].vc[8] = array[ci][cj].p.getZ();
-			    for (int k = 0; k < 3; k++) {
-				array[ni][nj].vc[k] = coords[3+k];
-				array[ni][nj].vc[3+k] = coords[k];
-			    }
-			    array[ni][nj].vsn = splineNo;
-			    double[] vc = array[ni][nj].vc;
+			    copy(coords, 3, vcoords, 9*nk, 3);
+			    copy(coords, 0, vcoords, 9*nk+3, 3);
+			    System.arraycopy(pcoords, 3*ck,
+					     vcoords, 9*nk+6, 3);
+			    vflags[nk] |= HAS_VC;
+			    vsns[nk] = splineNo;
 			    if (splout != null) {
 				sploutAppend(String.format
 					     ("adding V spline at (%d, %d)",
 					      ni, nj));
 			    }
-			    for (int k = 0; k < 9; k++) {
-				vc[k] = (double)(float)vc[k];
-			    }
 			}
 		    }
 		    break;
@@ -4096,7 +4107,7 @@ public class BezierGrid implements Shape3D {
 	    String msg = errorMsg("argOutOfRange2ii", i, j);
 	    throw new IllegalArgumentException(msg);
 	}
-	array[i][j].region = id;
+	regions[vindex(i, j)] = id;
 	bpathSet = false;
     }
 
@@ -4122,7 +4133,7 @@ public class BezierGrid implements Shape3D {
 	    String msg = errorMsg("argOutOfRange2ii", i, j);
 	    throw new IllegalArgumentException(msg);
 	}
-	return array[i][j].region;
+	return regions[vindex(i, j)];
     }
 
     /**
@@ -4166,7 +4177,7 @@ public class BezierGrid implements Shape3D {
 	while (i < lasti) {
 	    int jj = j;
 	    while (jj < lastj) {
-		array[i][jj].region = id;
+		regions[vindex(i, jj)] = id;
 		jj++;
 	    }
 	    i++;
@@ -4185,7 +4196,7 @@ public class BezierGrid implements Shape3D {
      * @param j the index for the V direction
      */
     public void remove(int i, int j) {
-	array[i][j].filled = false;
+	vflags[checkedIndex(i, j)] &= ~FILLED;
 	bpathSet = false;
     }
 
@@ -4205,11 +4216,16 @@ public class BezierGrid implements Shape3D {
     public void remove(int i, int j, int width, int height) {
 	int ulimit = i + width;
 	int vlimit = j + height;
+	if (ulimit > i && vlimit > j) {
+	    checkedIndex(i, j);
+	    checkedIndex(ulimit-1, vlimit-1);
+	}
 	bpathSet = false;
 	while (i < ulimit) {
-	    int k = j;
-	    while (k < vlimit) {
-		array[i][k++].filled = false;
+	    int k = vindex(i, j);
+	    int klimit = k + vlimit - j;
+	    while (k < klimit) {
+		vflags[k++] &= ~FILLED;
 	    }
 	    i++;
 	}
@@ -4225,7 +4241,7 @@ public class BezierGrid implements Shape3D {
      * @param j the index in the V direction
      */
     public void restore(int i, int j) {
-	array[i][j].filled = true;
+	vflags[checkedIndex(i, j)] |= FILLED;
 	bpathSet = false;
     }
 
@@ -4243,11 +4259,16 @@ public class BezierGrid implements Shape3D {
     public void restore(int i, int j, int width, int height) {
 	int ulimit = i + width;
 	int vlimit = j + height;
+	if (ulimit > i && vlimit > j) {
+	    checkedIndex(i, j);
+	    checkedIndex(ulimit-1, vlimit-1);
+	}
 	bpathSet = false;
 	while (i < ulimit) {
-	    int k = j;
-	    while (k < vlimit) {
-		array[i][k++].filled = true;
+	    int k = vindex(i, j);
+	    int klimit = k + vlimit - j;
+	    while (k < klimit) {
+		vflags[k++] |= FILLED;
 	    }
 	    i++;
 	}
@@ -4257,7 +4278,70 @@ public class BezierGrid implements Shape3D {
     boolean oriented = true;
 
 
-    private class Iterator1 implements SurfaceIterator {
+    // Determine if the iterators should return a patch for the
+    // grid element with indices (i, j).
+    private boolean hasPatch(int i, int j) {
+	int k = vindex(i, j);
+	int num1 = nu-1;
+	int nvm1 = nv-1;
+	if (!hasP(k) || !hasUC(k) || !hasVC(k) || !isFilled(k)) {
+	    return false;
+	}
+	if (i < num1 && j < nvm1) {
+	    return hasP(k+nv) && hasVC(k+nv) && hasP(k+1) && hasUC(k+1);
+	} else if (i == num1 && j < nvm1) {
+	    return uclosed && hasP(j) && hasVC(j);
+	} else if (j == nvm1 && i < num1) {
+	    return vclosed && hasP(k-nvm1) && hasUC(k-nvm1);
+	} else {
+	    return uclosed && hasP(j) && hasVC(j)
+		&& vclosed && hasP(k-nvm1) && hasUC(k-nvm1);
+	}
+    }
+
+    // Set up the control points for a cubic patch, reading the packed
+    // arrays directly.  The vertex indices k1, k2, and k3 are those
+    // for the patch's corners at (u,v) = (0,0), (1,0), and (0,1)
+    // respectively. The values are the same as those that
+    // Surface3D.setupU0ForPatch, setupV0ForPatch, setupU1ForPatch,
+    // and setupV1ForPatch would provide when called in that order,
+    // followed by Surface3D.setupRestForPatch when P11, P21, P12,
+    // and P22 were not set explicitly.
+    private void setupPatch(int k1, int k2, int k3, double[] coords) {
+	int p1 = 3*k1;
+	int p2 = 3*k2;
+	int p3 = 3*k3;
+	int c1 = 9*k1;
+	int c2 = 9*k2;
+	int c3 = 9*k3;
+	for (int m = 0; m < 3; m++) {
+	    coords[m] = pcoords[p1+m];
+	    coords[9+m] = pcoords[p2+m];
+	    coords[36+m] = pcoords[p3+m];
+	    coords[12+m] = vcoords[c1+m];
+	    coords[24+m] = vcoords[c1+3+m];
+	    coords[21+m] = vcoords[c2+m];
+	    coords[33+m] = vcoords[c2+3+m];
+	    coords[45+m] = ucoords[c3+6+m];
+	}
+	for (int m = 0; m < 6; m++) {
+	    coords[3+m] = ucoords[c1+m];
+	    coords[39+m] = ucoords[c3+m];
+	}
+	if (hasRest(k1)) {
+	    int r = 12*k1;
+	    for (int m = 0; m < 6; m++) {
+		coords[15+m] = rcoords[r+m];
+		coords[27+m] = rcoords[r+6+m];
+	    }
+	} else {
+	    Surface3D.setupRestForPatch(coords);
+	}
+    }
+
+    private class Iterator1
+	implements SplittableSurfaceIterator, Cloneable
+    {
 	int index = -1;
 	int limit = nu*nv;
 	int limitm1 = limit -1;
@@ -4270,6 +4354,31 @@ public class BezierGrid implements Shape3D {
 	    next();
 	}
 
+	@Override
+	public SplittableSurfaceIterator trySplit() {
+	    int remaining = limit - index;
+	    if (remaining < 2) return null;
+	    int mid = index + remaining/2;
+	    Iterator1 prefix;
+	    try {
+		prefix = (Iterator1) clone();
+	    } catch (CloneNotSupportedException e) {
+		throw new UnexpectedExceptionError(e);
+	    }
+	    prefix.limit = mid;
+	    if (tcoords != null) prefix.tcoords = tcoords.clone();
+	    prefix.dcoords = null;
+	    index = mid - 1;
+	    triangleMode = 0;
+	    next();
+	    return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+	    return limit - index;
+	}
+
 	@Override
 	public boolean isDone() {
 	    return index >= limit;
@@ -4290,35 +4399,35 @@ public class BezierGrid implements Shape3D {
 	    } else {
 		int i = index % nu;
 		int j = index / nu;
-		Vertex v1 = array[i][j];
-		double x1 = v1.p.getX();
-		double y1 = v1.p.getY();
-		double z1 = v1.p.getZ();
-		Vertex v2 = (i < num1)? array[i+1][j]: array[0][j];
-		double x2 = v2.p.getX();
-		double y2 = v2.p.getY();
-		double z2 = v2.p.getZ();
-		Vertex v3 = (j < nvm1)? array[i][j+1]: array[i][0];
-		double x3 = v3.p.getX();
-		double y3 = v3.p.getY();
-		double z3 = v3.p.getZ();
+		int k1 = vindex(i, j);
+		int k2 = (i < num1)? k1 + nv: j;
+		int k3 = (j < nvm1)? k1 + 1: k1 - nvm1;
 		if (linear) {
-		    Vertex v4;
+		    double x1 = pcoords[3*k1];
+		    double y1 = pcoords[3*k1+1];
+		    double z1 = pcoords[3*k1+2];
+		    double x2 = pcoords[3*k2];
+		    double y2 = pcoords[3*k2+1];
+		    double z2 = pcoords[3*k2+2];
+		    double x3 = pcoords[3*k3];
+		    double y3 = pcoords[3*k3+1];
+		    double z3 = pcoords[3*k3+2];
+		    int k4;
 		    if (i < num1) {
 			if (j < nvm1) {
 			    // normal case
-			    v4 = array[i+1][j+1];
+			    k4 = k1 + nv + 1;
 			} else {
-			    v4 = array[i+1][0];
+			    k4 = vindex(i+1, 0);
 			}
 		    } else if (j < nvm1) {
-			v4 = array[0][j+1];
+			k4 = j + 1;
 		    } else {
-			v4 = array[0][0];
+			k4 = 0;
 		    }
-		    double x4 = v4.p.getX();
-		    double y4 = v4.p.getY();
-		    double z4 = v4.p.getZ();
+		    double x4 = pcoords[3*k4];
+		    double y4 = pcoords[3*k4+1];
+		    double z4 = pcoords[3*k4+2];
 		    tcoords[0] = x2-x1;
 		    tcoords[1] = y2-y1;
 		    tcoords[2] = z2-z1;
@@ -4371,20 +4480,7 @@ public class BezierGrid implements Shape3D {
 			return SurfaceIterator.PLANAR_TRIANGLE;
 		    }
 		}
-		Surface3D.setupU0ForPatch(x1, y1, z1, v1.vc, coords, false);
-		Surface3D.setupV0ForPatch(x1, y1, z1, v1.uc, coords, false);
-		Surface3D.setupU1ForPatch(x2, y2, z2, v2.vc, coords, false);
-		Surface3D.setupV1ForPatch(x3, y3, z3, v3.uc, coords, false);
-
-		if (v1.rest == null) {
-		    Surface3D.setupRestForPatch(coords);
-		} else {
-		    System.arraycopy(v1.rest, 0, coords, 5*3, 6);
-		    System.arraycopy(v1.rest, 6, coords, 9*3, 6);
-		    for (int k = 0; k < v1.rest.length; k++) {
-			v1.rest[k] = (double)(float) v1.rest[k];
-		    }
-		}
+		setupPatch(k1, k2, k3, coords);
 		if (flip) {
 		    Surface3D.reverseOrientation(SurfaceIterator.CUBIC_PATCH,
 						 coords);
@@ -4415,7 +4511,7 @@ public class BezierGrid implements Shape3D {
 	public Color currentColor() {
 		int i = index % nu;
 		int j = index / nu;
-		return array[i][j].color;
+		return getColorAt(vindex(i, j));
 	}
 
 	@Override
@@ -4443,44 +4539,14 @@ public class BezierGrid implements Shape3D {
 		}
 		int i = index % nu;
 		int j = index / nu;
-
-		Vertex vertex = array[i][j];
-		/*
-		if (vertex.p == null)
-		    System.out.println("... vertex.p == null");
-		if (vertex.uc == null)
-		    System.out.println("... vertex.uc == null");
-		if (vertex.vc == null)
-		    System.out.println("... vertex.vc == null");
-		*/
-		if (vertex.p!=null && vertex.uc!=null && vertex.vc!=null) {
-		    // System.out.println("vertex filled: " + vertex.filled);
-		    if (vertex.filled) {
-			if (i < num1 && j < nvm1) {
-			    if (array[i+1][j].p == null
-				|| array[i+1][j].vc == null) continue;
-			    if (array[i][j+1].p == null
-				|| array[i][j+1].uc == null) continue;
-			    break;
-			} else if (i == num1 && j < nvm1) {
-			    if (uclosed && array[0][j].p != null
-				&& array[0][j].vc != null) break;
-			} else if (j == nvm1 && i < num1) {
-			    if (vclosed && array[i][0].p != null
-				&& array[i][0].uc != null) break;
-			} else if (i == num1 && j == nvm1) {
-			    if (uclosed && array[0][j].p != null
-				&& array[0][j].vc != null
-				&& vclosed && array[i][0].p != null
-				&& array[i][0].uc != null) break;
-			}
-		    }
-		}
+		if (hasPatch(i, j)) break;
 	    }
 	}
     }
 
-    private class Iterator2 implements SurfaceIterator {
+    private class Iterator2
+	implements SplittableSurfaceIterator, Cloneable
+    {
 	int index = -1;
 	int limit = nu*nv;
 	int num1 = nu-1;
@@ -4495,6 +4561,35 @@ public class BezierGrid implements Shape3D {
 	    next();
 	}
 
+	@Override
+	public SplittableSurfaceIterator trySplit() {
+	    int remaining = limit - index;
+	    // an arbitrary transform may not be safe to use concurrently
+	    if (remaining < 2 || !(transform instanceof AffineTransform3D)) {
+		return null;
+	    }
+	    int mid = index + remaining/2;
+	    Iterator2 prefix;
+	    try {
+		prefix = (Iterator2) clone();
+	    } catch (CloneNotSupportedException e) {
+		throw new UnexpectedExceptionError(e);
+	    }
+	    prefix.limit = mid;
+	    if (tcoords != null) prefix.tcoords = tcoords.clone();
+	    prefix.dcoords2 = new double[48];
+	    prefix.dcoords = null;
+	    index = mid - 1;
+	    triangleMode = 0;
+	    next();
+	    return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+	    return limit - index;
+	}
+
 	@Override
 	public boolean isDone() {
 	    return index >= limit;
@@ -4512,35 +4607,35 @@ public class BezierGrid implements Shape3D {
 	    }
 	    int i = index % nu;
 	    int j = index / nu;
-	    Vertex v1 = array[i][j];
-	    double x1 = v1.p.getX();
-	    double y1 = v1.p.getY();
-	    double z1 = v1.p.getZ();
-	    Vertex v2 = (i < num1)? array[i+1][j]: array[0][j];
-	    double x2 = v2.p.getX();
-	    double y2 = v2.p.getY();
-	    double z2 = v2.p.getZ();
-	    Vertex v3 = (j < nvm1)? array[i][j+1]: array[i][0];
-	    double x3 = v3.p.getX();
-	    double y3 = v3.p.getY();
-	    double z3 = v3.p.getZ();
+	    int k1 = vindex(i, j);
+	    int k2 = (i < num1)? k1 + nv: j;
+	    int k3 = (j < nvm1)? k1 + 1: k1 - nvm1;
 	    if (linear) {
-		Vertex v4;
+		double x1 = pcoords[3*k1];
+		double y1 = pcoords[3*k1+1];
+		double z1 = pcoords[3*k1+2];
+		double x2 = pcoords[3*k2];
+		double y2 = pcoords[3*k2+1];
+		double z2 = pcoords[3*k2+2];
+		double x3 = pcoords[3*k3];
+		double y3 = pcoords[3*k3+1];
+		double z3 = pcoords[3*k3+2];
+		int k4;
 		if (i < num1) {
 		    if (j < nvm1) {
 			// normal case
-			v4 = array[i+1][j+1];
+			k4 = k1 + nv + 1;
 		    } else {
-			v4 = array[i+1][0];
+			k4 = vindex(i+1, 0);
 		    }
 		} else if (j < nvm1) {
-		    v4 = array[0][j+1];
+		    k4 = j + 1;
 		} else {
-		    v4 = array[0][0];
+		    k4 = 0;
 		}
-		double x4 = v4.p.getX();
-		double y4 = v4.p.getY();
-		double z4 = v4.p.getZ();
+		double x4 = pcoords[3*k4];
+		double y4 = pcoords[3*k4+1];
+		double z4 = pcoords[3*k4+2];
 		tcoords[0] = x2-x1;
 		tcoords[1] = y2-y1;
 		tcoords[2] = z2-z1;
@@ -4593,19 +4688,7 @@ public class BezierGrid implements Shape3D {
 		    return SurfaceIterator.PLANAR_TRIANGLE;
 		}
 	    }
-	    Surface3D.setupU0ForPatch(x1, y1, z1, v1.vc, result, false);
-	    Surface3D.setupV0ForPatch(x1, y1, z1, v1.uc, result, false);
-	    Surface3D.setupU1ForPatch(x2, y2, z2, v2.vc, result, false);
-	    Surface3D.setupV1ForPatch(x3, y3, z3, v3.uc, result, false);
-	    if (v1.rest == null) {
-		Surface3D.setupRestForPatch(result);
-	    } else {
-		System.arraycopy(v1.rest, 0, result, 5*3, 6);
-		System.arraycopy(v1.rest, 6, result, 9*3, 6);
-		for (int k = 0; k < v1.rest.length; k++) {
-		    v1.rest[k] = (double)(float) v1.rest[k];
-		}
-	    }
+	    setupPatch(k1, k2, k3, result);
 	    if (flip) {
 		Surface3D.reverseOrientation(SurfaceIterator.CUBIC_PATCH,
 					     result);
@@ -4644,7 +4727,7 @@ public class BezierGrid implements Shape3D {
 	public Color currentColor() {
 	    int i = index % nu;
 	    int j = index / nu;
-	    return array[i][j].color;
+	    return getColorAt(vindex(i, j));
 	}
 
 	@Override
@@ -4670,29 +4753,7 @@ public class BezierGrid implements Shape3D {
 		if (index == limit) return;
 		int i = index % nu;
 		int j = index / nu;
-		Vertex vertex = array[i][j];
-		if (vertex.p!=null && vertex.uc!=null && vertex.vc!=null) {
-		    if (vertex.filled) {
-			if (i < num1 && j < nvm1) {
-			    if (array[i+1][j].p == null
-				|| array[i+1][j].vc == null) continue;
-			    if (array[i][j+1].p == null
-				|| array[i][j+1].uc == null) continue;
-			    break;
-			} else if (i == num1 && j < nvm1) {
-			    if (uclosed && array[0][j].p != null
-				&& array[0][j].vc != null) break;
-			} else if (j == nvm1 && i < num1) {
-			    if (vclosed && array[i][0].p != null
-				&& array[i][0].uc != null) break;
-			} else if (i == num1 && j == nvm1) {
-			    if (uclosed && array[0][j].p != null
-				&& array[0][j].vc != null
-				&& vclosed && array[i][0].p != null
-				&& array[i][0].uc != null) break;
-			}
-		    }
-		}
+		if (hasPatch(i, j)) break;
 	    }
 	}
     }
@@ -4789,133 +4850,108 @@ public class BezierGrid implements Shape3D {
 	return (boundary.getPath() != null);
     }
 
-    private Vertex findVertex(double lastx, double lasty, double lastz) {
-	Vertex v;
-	for (int i = 0; i < nu; i++) {
-	    for (int j = 0; j < nv; j++) {
-		v = array[i][j];
-		if (v == null || v.p == null) {
-		    continue;
-		}
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    return v;
-		}
+    // Determine if a vertex has a grid point at (x, y, z).
+    private boolean pointAt(int k, double x, double y, double z) {
+	return hasP(k) && px(k) == x && py(k) == y && pz(k) == z;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+	int[] result = new int[list.size()];
+	int k = 0;
+	for (int v: list) {
+	    result[k++] = v;
+	}
+	return result;
+    }
+
+    private int findVertex(double lastx, double lasty, double lastz) {
+	int n = nu*nv;
+	for (int k = 0; k < n; k++) {
+	    if (pointAt(k, lastx, lasty, lastz)) {
+		return k;
 	    }
 	}
-	return null;
+	return -1;
     }
 
-    private Vertex findVertex(Vertex other) {
-	Vertex v;
-	if (other.p == null) return null;
-	double lastx = other.p.getX();
-	double lasty = other.p.getY();
-	double lastz = other.p.getZ();
-	for (int i = 0; i < nu; i++) {
-	    for (int j = 0; j < nv; j++) {
-		v = array[i][j];
-		if (v == null || v.p == null || v == other) {
-		    continue;
-		}
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    return v;
-		}
+    private int findVertex(int other) {
+	if (other == -1 || !hasP(other)) return -1;
+	double lastx = px(other);
+	double lasty = py(other);
+	double lastz = pz(other);
+	int n = nu*nv;
+	for (int k = 0; k < n; k++) {
+	    if (k != other && pointAt(k, lastx, lasty, lastz)) {
+		return k;
 	    }
 	}
-	return null;
+	return -1;
     }
 
 
-    private Vertex findVertex(Vertex lastv,
-			      double lastx, double lasty, double lastz)
+    private int findVertex(int lastv,
+			   double lastx, double lasty, double lastz)
     {
-	Vertex v;
+	int li = lastv / nv;
+	int lj = lastv % nv;
+	int v;
 	for (int i = -1; i < 2; i += 2) {
-	    if (lastv.i == 0 && i == -1) continue;
-	    if (lastv.i == nu-1 && i == 1) continue;
-	    v = array[lastv.i + i][lastv.j];
-	    if (v == null) continue;
-	    if (v.p == null) continue;
-	    if (v.p.getX() == lastx && v.p.getY() == lasty
-		&& v.p.getZ() == lastz) {
+	    if (li == 0 && i == -1) continue;
+	    if (li == nu-1 && i == 1) continue;
+	    v = vindex(li + i, lj);
+	    if (pointAt(v, lastx, lasty, lastz)) {
 		return v;
 	    }
 	}
 	for (int j = -1; j < 2; j += 2) {
-	    if (lastv.j == 0 && j == -1) continue;
-	    if (lastv.j == nv-1 && j == 1) continue;
-	    v = array[lastv.i][lastv.j + j];
-	    if (v == null) continue;
-	    if (v.p == null) continue;
-	    if (v.p.getX() == lastx && v.p.getY() == lasty
-		&& v.p.getZ() == lastz) {
+	    if (lj == 0 && j == -1) continue;
+	    if (lj == nv-1 && j == 1) continue;
+	    v = vindex(li, lj + j);
+	    if (pointAt(v, lastx, lasty, lastz)) {
 		return v;
 	    }
 	}
-	if (lastv.i == 0) {
-	    v = array[nu-1][lastv.j];
-	    if (v != null && v.p != null) {
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    return v;
-		}
+	if (li == 0) {
+	    v = vindex(nu-1, lj);
+	    if (pointAt(v, lastx, lasty, lastz)) {
+		return v;
 	    }
 	}
-	if (lastv.i == nu-1) {
-	    v = array[0][lastv.j];
-	    if (v != null && v.p != null) {
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    return v;
-		}
+	if (li == nu-1) {
+	    v = vindex(0, lj);
+	    if (pointAt(v, lastx, lasty, lastz)) {
+		return v;
 	    }
 	}
-	if (lastv.j == 0) {
-	    v = array[lastv.i][nv-1];
-	    if (v != null && v.p != null) {
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    return v;
-		}
+	if (lj == 0) {
+	    v = vindex(li, nv-1);
+	    if (pointAt(v, lastx, lasty, lastz)) {
+		return v;
 	    }
 	}
-	if (lastv.j == nv-1) {
-	    v = array[lastv.i][0];
-	    if (v != null && v.p != null) {
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    return v;
-		}
+	if (lj == nv-1) {
+	    v = vindex(li, 0);
+	    if (pointAt(v, lastx, lasty, lastz)) {
+		return v;
 	    }
 	}
-	/*
-	v = findVertex(lastx, lasty, lastz);
-	if (v == null) {
-	    System.out.format("... findVertex(%g, %g, %g) also failed\n",
-			       lastx, lasty, lastz);
-	} else {
-	    System.out.format("lastv (%d, %d), v (%d, %d)\n",
-			      lastv.i, lastv.j, v.i, v.j);
-	    System.out.format("v.p = (%s, %s, %s)\n", v.p.getX(),
-			       v.p.getY(), v.p.getZ());
-
-	}
-	*/
-	return null;
+	return -1;
     }
 
-    private boolean vertexOK(Vertex v, Vertex next) {
-	if (next == null) return false;
-	if (v.i == next.i) {
-	    if (Math.abs(v.i - next.i) == 1) {
+    private boolean vertexOK(int v, int next) {
+	if (next == -1) return false;
+	int vi = v / nv;
+	int vj = v % nv;
+	int ni = next / nv;
+	int nj = next % nv;
+	if (vi == ni) {
+	    if (Math.abs(vi - ni) == 1) {
 		return true;
 	    } else {
 		return false;
 	    }
-	} else if (v.j == next.j) {
-	    if (Math.abs(v.j - next.j) == 1) {
+	} else if (vj == nj) {
+	    if (Math.abs(vj - nj) == 1) {
 		return true;
 	    } else {
 		return false;
@@ -4925,7 +4961,7 @@ public class BezierGrid implements Shape3D {
 	}
     }
 
-    private Vertex findVertex(Vertex lastv, int type, double[] coords) {
+    private int findVertex(int lastv, int type, double[] coords) {
 	int len = 0;
 	switch(type) {
 	case PathIterator3D.SEG_LINETO:
@@ -4938,40 +4974,42 @@ public class BezierGrid implements Shape3D {
 	    len = 9;
 	    break;
 	}
-	Vertex v;
+	int li = lastv / nv;
+	int lj = lastv % nv;
+	int v;
 	for (int i = -1; i < 2; i += 2) {
-	    if (!uclosed && lastv.i == 0 && i == -1) continue;
-	    if (!uclosed && lastv.i == nu-1 && i == 1) continue;
-	    v = array[(nu+lastv.i+i)%nu][lastv.j];
+	    if (!uclosed && li == 0 && i == -1) continue;
+	    if (!uclosed && li == nu-1 && i == 1) continue;
+	    v = vindex((nu+li+i)%nu, lj);
 	    if (i < 0) {
-		if (matchCoords(coords, v.p, v.uc, len, true)) {
+		if (matchCoords(coords, v, ucoords, HAS_UC, len, true)) {
 		    return v;
 		}
 	    } else {
-		if (matchCoords(coords, lastv.p, lastv.uc, len, false)) {
+		if (matchCoords(coords, lastv, ucoords, HAS_UC, len, false)) {
 		    return v;
 		}
 	    }
 	}
 	for (int j = -1; j < 2; j += 2) {
-	    if (!vclosed && lastv.j == 0 && j == -1) continue;
-	    if (!vclosed && lastv.j == nv-1 && j == 1) continue;
-	    v = array[lastv.i][(nu+lastv.j+j)%nu];
+	    if (!vclosed && lj == 0 && j == -1) continue;
+	    if (!vclosed && lj == nv-1 && j == 1) continue;
+	    v = checkedIndex(li, (nu+lj+j)%nu);
 	    if (j < 0) {
-		if (matchCoords(coords, v.p, v.vc, len, true)) {
+		if (matchCoords(coords, v, vcoords, HAS_VC, len, true)) {
 		    return v;
 		}
 	    } else {
-		if (matchCoords(coords, lastv.p, lastv.vc, len, false)) {
+		if (matchCoords(coords, lastv, vcoords, HAS_VC, len, false)) {
 		    return v;
 		}
 	    }
 	}
-	return null;
+	return -1;
     }
 
-    private Vertex findVertex (double lastx, double lasty, double lastz,
-			      int type, double[] coords)
+    private int findVertex (double lastx, double lasty, double lastz,
+			    int type, double[] coords)
     {
 	int len = 0;
 	switch(type) {
@@ -4985,153 +5023,139 @@ public class BezierGrid implements Shape3D {
 	    len = 9;
 	    break;
 	}
-	Vertex v;
 	for (int i = 0; i < nu; i++) {
 	    for (int j = 0; j < nv; j++) {
-		v = array[i][j];
-		if (v == null || v.p == null) {
-		    continue;
-		}
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    if (uclosed || (v.i+1 < nu)) {
-			if (matchCoords(coords, v.p, v.uc, len, false)) {
+		int v = vindex(i, j);
+		if (pointAt(v, lastx, lasty, lastz)) {
+		    if (uclosed || (i+1 < nu)) {
+			if (matchCoords(coords, v, ucoords, HAS_UC, len,
+					false)) {
 			    return v;
 			}
 		    }
-		    if (vclosed || (v.j+1 < nv)) {
-			if (matchCoords(coords, v.p, v.vc, len, false)) {
+		    if (vclosed || (j+1 < nv)) {
+			if (matchCoords(coords, v, vcoords, HAS_VC, len,
+					false)) {
 			    return v;
 			}
 		    }
-		    if (uclosed || v.i > 0) {
-			Vertex vv = array[(nu+i-1)%nu][j];
-			if (matchCoords(coords, vv.p, vv.uc, len, true)) {
+		    if (uclosed || i > 0) {
+			int vv = vindex((nu+i-1)%nu, j);
+			if (matchCoords(coords, vv, ucoords, HAS_UC, len,
+					true)) {
 			    return v;
 			}
 		    }
-		    if (vclosed || v.j > 0) {
-			Vertex vv = array[i][(nv+j-1)%nv];
-			if (matchCoords(coords, vv.p, vv.vc, len, true)) {
+		    if (vclosed || j > 0) {
+			int vv = vindex(i, (nv+j-1)%nv);
+			if (matchCoords(coords, vv, vcoords, HAS_VC, len,
+					true)) {
 			    return v;
 			}
 		    }
 		}
 	    }
 	}
-	return null;
+	return -1;
     }
 
-    private boolean matchCoords(double[] coords1,
-				Point3D p,
-				double[] coords2, int len,
+    // The array coords2 is either ucoords or vcoords and flag is
+    // HAS_UC or HAS_VC respectively.
+    private boolean matchCoords(double[] coords1, int k,
+				float[] coords2, byte flag, int len,
 				boolean reverse) {
-	if (coords1 == null || coords2 == null) return false;
-	// For a linear segment, vc and uc are of different lengths;
+	if (coords1 == null || (vflags[k] & flag) == 0) return false;
+	// For a linear segment, only the end point is compared;
 	// we don't have a quad case.
-	int offset = (len == 3)? 6: 0;
+	int offset = 9*k + ((len == 3)? 6: 0);
 	if (reverse) {
-	    if (p == null) return false;
-	    if (coords1[--len] != p.getZ()) return false;
-	    if (coords1[--len] != p.getY()) return false;
-	    if (coords1[--len] != p.getX()) return false;
+	    if (!hasP(k)) return false;
+	    if (coords1[--len] != pz(k)) return false;
+	    if (coords1[--len] != py(k)) return false;
+	    if (coords1[--len] != px(k)) return false;
 	    int k2 = 3;
 	    while(len > 0) {
 		if (coords1[--len] != coords2[offset + (--k2)]) return false;
 		if (k2%3 == 0) k2 += 6;
 	    }
 	} else {
-	    for (int k = 0; k < len; k++) {
-		if (coords1[k] != coords2[offset+k]) return false;
+	    for (int m = 0; m < len; m++) {
+		if (coords1[m] != coords2[offset+m]) return false;
 	    }
 	}
 	return true;
     }
 
-    private int findSplineID(Vertex next, Vertex prev) {
-	if (next.i == prev.i) {
-	    if (next.j > prev.j) {
-		return prev.vsn;
-	    } else if (next.j < prev.j) {
-		return next.vsn;
+    private int findSplineID(int next, int prev) {
+	int ni = next / nv;
+	int nj = next % nv;
+	int pi = prev / nv;
+	int pj = prev % nv;
+	if (ni == pi) {
+	    if (nj > pj) {
+		return vsns[prev];
+	    } else if (nj < pj) {
+		return vsns[next];
 	    } else {
-		String msg = errorMsg("bgSpline", next.i, next.j);
+		String msg = errorMsg("bgSpline", ni, nj);
 		throw new IllegalStateException(msg);
 	    }
-	} else if (next.j == prev.j) {
-	    if (next.i > prev.i) {
-		return prev.usn;
-	    } else if (next.i < prev.i) {
-		return next.usn;
+	} else if (nj == pj) {
+	    if (ni > pi) {
+		return usns[prev];
+	    } else if (ni < pi) {
+		return usns[next];
 	    } else {
-		String msg = errorMsg("bgSpline", next.i, next.j);
+		String msg = errorMsg("bgSpline", ni, nj);
 		throw new IllegalStateException(msg);
 	    }
 	} else {
 	    // splines edges follow the borders of grid cells, so
 	    // this must be an error.
-	    String msg =
-		errorMsg("bgSplineDiag", prev.i, prev.j, next.i, next.j);
+	    String msg = errorMsg("bgSplineDiag", pi, pj, ni, nj);
 	    throw new IllegalStateException(msg);
 	}
     }
 
-    private boolean gridsSeparated(Vertex[] varray, BezierGrid grid) {
+    private boolean gridsSeparated(int[] varray, BezierGrid grid) {
 	if (grid == null) return true; // assume separated if not provided
 	for (int i = 0; i < varray.length - 1; i++) {
-	    Vertex v1 = varray[i];
-	    Vertex v2 = varray[i+1];
-	    Vertex gv1 = grid.array[v1.i][v1.j];
-	    Vertex gv2 = grid.array[v2.i][v2.j];
+	    int v1 = varray[i];
+	    int v2 = varray[i+1];
+	    int i1 = v1 / nv;
+	    int j1 = v1 % nv;
+	    int i2 = v2 / nv;
+	    int j2 = v2 % nv;
+	    int gv1 = grid.checkedIndex(i1, j1);
+	    int gv2 = grid.checkedIndex(i2, j2);
 	    boolean value = false;
-	    if (v1.p.getX() != gv1.p.getX()
-		|| v1.p.getY() != gv1.p.getY()
-		|| v1.p.getZ () != gv1.p.getZ()
-		|| v2.p.getX() != gv2.p.getX()
-		|| v2.p.getY() != gv2.p.getY()
-		|| v2.p.getZ () != gv2.p.getZ()) value = true;
-	    if (v1.i == v2.i) {
-		boolean forward = (v2.j == v1.j + 1)
-		    || (v2.j == 0 && v1.j == nv-1);
-		if (forward) {
-		    if (v1.vc != null && gv1.vc != null) {
-			for (int k = 0; k < 9; k++) {
-			    if(v1.vc[k] != gv1.vc[k]) {
-				value = true;
-				break;
-			    }
-			}
-		    }
-		} else {
-		    if (v2.vc != null && gv2.vc != null) {
-			for (int k = 0; k < 9; k++) {
-			    if(v2.vc[k] != gv2.vc[k]) {
-				value = true;
-				break;
-			    }
-			}
-		    }
-		}
-	    } else /* if (v1.j == v2.j) */ {
-		boolean forward = (v2.i == v1.i + 1)
-		    || (v2.i == 0 && v1.i == nu-1);
-		if (forward) {
-		    if (v1.uc != null && gv1.uc != null) {
-			for (int k = 0; k < 9; k++) {
-			    if(v1.uc[k] != gv1.uc[k]) {
-				value = true;
-				break;
-			    }
-			}
-		    }
-		} else {
-		    if (v2.uc != null && gv2.uc != null) {
-			for (int k = 0; k < 9; k++) {
-			    if(v2.uc[k] != gv2.uc[k]) {
-				value = true;
-				break;
-			    }
-			}
+	    for (int m = 0; m < 3; m++) {
+		if (pcoords[3*v1+m] != grid.pcoords[3*gv1+m]
+		    || pcoords[3*v2+m] != grid.pcoords[3*gv2+m]) {
+		    value = true;
+		}
+	    }
+	    boolean forward;
+	    float[] c1, c2;
+	    byte flag;
+	    if (i1 == i2) {
+		forward = (j2 == j1 + 1) || (j2 == 0 && j1 == nv-1);
+		c1 = vcoords;
+		c2 = grid.vcoords;
+		flag = HAS_VC;
+	    } else /* if (j1 == j2) */ {
+		forward = (i2 == i1 + 1) || (i2 == 0 && i1 == nu-1);
+		c1 = ucoords;
+		c2 = grid.ucoords;
+		flag = HAS_UC;
+	    }
+	    int v = forward? v1: v2;
+	    int gv = forward? gv1: gv2;
+	    if ((vflags[v] & flag) != 0 && (grid.vflags[gv] & flag) != 0) {
+		for (int m = 0; m < 9; m++) {
+		    if (c1[9*v+m] != c2[9*gv+m]) {
+			value = true;
+			break;
 		    }
 		}
 	    }
@@ -5140,16 +5164,74 @@ public class BezierGrid implements Shape3D {
 	return true;
     }
 
-    private boolean mustKeep(Vertex v, int[] indices) {
-	if (v == null) return false;
+    private boolean mustKeep(int v, int[] indices) {
+	if (v == -1) return false;
 	for (int k = 0; k < indices.length; k += 2) {
-	    if (v.i == indices[0] && v.j == indices[1]) {
+	    if (v / nv == indices[0] && v % nv == indices[1]) {
 		return true;
 	    }
 	}
 	return false;
     }
 
+    // Set the grid point for element kc of a connecting grid to the
+    // point of grid g (this grid or the one being connected to) that
+    // has the same U-V indices as this grid's vertex v, and mark the
+    // element as filled.
+    private void connectorPoint(BezierGrid connector, int kc,
+				BezierGrid g, int v)
+    {
+	int gv = g.checkedIndex(v / nv, v % nv);
+	if (g.hasP(gv)) {
+	    System.arraycopy(g.pcoords, 3*gv, connector.pcoords, 3*kc, 3);
+	    connector.vflags[kc] |= HAS_P;
+	} else {
+	    connector.vflags[kc] &= ~HAS_P;
+	}
+	connector.vflags[kc] |= FILLED;
+    }
+
+    // Set the V-direction control points for element kc of a
+    // connecting grid to those for grid g's edge between the
+    // vertices whose U-V indices match this grid's vertices v and vn,
+    // reversing them when needed.  Returns false, after clearing the
+    // element's control points, if g does not have that edge.
+    private boolean connectorEdge(BezierGrid connector, int kc,
+				  BezierGrid g, int v, int vn)
+    {
+	int vi = v / nv;
+	int vj = v % nv;
+	int ni = vn / nv;
+	int nj = vn % nv;
+	boolean forward;
+	float[] c;
+	byte flag;
+	if (vi == ni) {
+	    forward = (nj == vj + 1) || (vclosed && nj == 0 && vj == nv-1);
+	    c = g.vcoords;
+	    flag = HAS_VC;
+	} else /* vj == nj */ {
+	    forward = (ni == vi + 1) || (uclosed && ni == 0 && vi == nu-1);
+	    c = g.ucoords;
+	    flag = HAS_UC;
+	}
+	int gk = forward? g.checkedIndex(vi, vj): g.checkedIndex(ni, nj);
+	if ((g.vflags[gk] & flag) == 0) {
+	    connector.vflags[kc] &= ~HAS_VC;
+	    return false;
+	}
+	int offset = 9*kc;
+	if (forward) {
+	    System.arraycopy(c, 9*gk, connector.vcoords, offset, 9);
+	} else {
+	    System.arraycopy(c, 9*gk+3, connector.vcoords, offset, 3);
+	    System.arraycopy(c, 9*gk, connector.vcoords, offset+3, 3);
+	    System.arraycopy(g.pcoords, 3*gk, connector.vcoords, offset+6, 3);
+	}
+	connector.vflags[kc] |= HAS_VC;
+	return true;
+    }
+
     /**
      * Create B&eacute;zier grids that will connect this grid to a
      * specified grid.
@@ -5437,9 +5519,9 @@ public class BezierGrid implements Shape3D {
 	}
 	if (grid != null) grid.createSplines();
 	int nm1 = n-1;
-	ArrayList<Vertex[]> blist = new ArrayList<>();
+	ArrayList<int[]> blist = new ArrayList<>();
 	ArrayList<Integer[]> rlist = new ArrayList<>();
-	LinkedList<Vertex> vlist = new LinkedList<>();
+	LinkedList<Integer> vlist = new LinkedList<>();
 	LinkedList<Integer> vrlist = new LinkedList<>();
 	LinkedList<Boolean> clist = new LinkedList<>();
 	PathIterator3D pit = boundary.getPathIterator(null);
@@ -5449,8 +5531,8 @@ public class BezierGrid implements Shape3D {
 	int initialSplineID = -1;
 	int splineID = 0;
 	boolean currentSplineCyclic = false;
-	Vertex v = null;
-	Vertex vn;
+	int v = -1;
+	int vn;
 	ArrayList<BezierGrid> glist = new ArrayList<>();
 	int regionID = 0;
 	int count = 0;
@@ -5471,7 +5553,7 @@ public class BezierGrid implements Shape3D {
 		    // A SEG_MOVETO will always be preceded by a
 		    // SEG_CLOSE, so the final vrlist entry was
 		    // already added.
-		    Vertex[] varray = vlist.toArray(new Vertex[vlist.size()]);
+		    int[] varray = toIntArray(vlist);
 		    Integer[] iarray = vrlist.toArray
 			(new Integer[vrlist.size()]);
 		    if (gridsSeparated(varray, grid)) {
@@ -5499,7 +5581,7 @@ public class BezierGrid implements Shape3D {
 		keep = false;
 		count = 0;
 		// v = findVertex(lastx, lasty, lastz);
-		v = null;
+		v = -1;
 		/*
 		  when v is null, mustKeep always returns false
 		if (useIndices && mustKeep(v, indices)) {
@@ -5509,13 +5591,13 @@ public class BezierGrid implements Shape3D {
 		// vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_LINETO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_LINETO, coords);
 		}
 		vn = findVertex(v, coords[0], coords[1], coords[2]);
-		if (vn == null) {
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		if (vn == -1) {
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_LINETO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
 		}
@@ -5538,8 +5620,7 @@ public class BezierGrid implements Shape3D {
 			rmap.put(splineID, regionID);
 		    }
 		    if (split) {
-			Vertex[] varray =
-			    vlist.toArray(new Vertex[vlist.size()]);
+			int[] varray = toIntArray(vlist);
 			vrlist.add(rmap.get(splineID));
 			Integer[] iarray = vrlist.toArray
 			    (new Integer[vrlist.size()]);
@@ -5571,14 +5652,14 @@ public class BezierGrid implements Shape3D {
 		vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_QUADTO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_QUADTO, coords);
 		    // vlist.add(v);
 		}
 		vn = findVertex(v, coords[3], coords[4], coords[5]);
-		if (vn == null) {
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		if (vn == -1) {
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_QUADTO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_QUADTO, coords);
 		}
@@ -5601,8 +5682,7 @@ public class BezierGrid implements Shape3D {
 			rmap.put(splineID, regionID);
 		    }
 		    if (split) {
-			Vertex[] varray =
-			    vlist.toArray(new Vertex[vlist.size()]);
+			int[] varray = toIntArray(vlist);
 			vrlist.add(rmap.get(splineID));
 			Integer[] iarray = vrlist.toArray
 			    (new Integer[vrlist.size()]);
@@ -5635,22 +5715,22 @@ public class BezierGrid implements Shape3D {
 		vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_CUBICTO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_CUBICTO, coords);
 		    // vlist.add(v);
 		}
 		vn = findVertex(v, coords[6], coords[7], coords[8]);
-		if (vn == null) {
+		if (vn == -1) {
 		    // switch to the alternate vertex
 		    /*
-		    Vertex va = findVertex(v);
-		    if (va != null) {
+		    int va = findVertex(v);
+		    if (va != -1) {
 			v = va;
 			vn = findVertex(v, coords[6], coords[7], coords[8]);
 		    }
 		    */
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_CUBICTO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_CUBICTO, coords);
 		}
@@ -5673,8 +5753,7 @@ public class BezierGrid implements Shape3D {
 			rmap.put(splineID, regionID);
 		    }
 		    if (split) {
-			Vertex[] varray =
-			    vlist.toArray(new Vertex[vlist.size()]);
+			int[] varray = toIntArray(vlist);
 			vrlist.add(rmap.get(splineID));
 			Integer[] iarray = vrlist.toArray
 			    (new Integer[vrlist.size()]);
@@ -5712,25 +5791,25 @@ public class BezierGrid implements Shape3D {
 		// SEG_CLOSE is at the starting point set by the last
 		// SEG_MOVETO.  We handle the case where vn is not null
 		// just in case.
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    vn = null;
+		if (px(v) == lastx && py(v) == lasty
+		    && pz(v) == lastz) {
+		    vn = -1;
 		} else {
 		    coords[0] = lastx;
 		    coords[1] = lasty;
 		    coords[2] = lastz;
 		    vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
-		    if (vn == null) {
-			v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		    if (vn == -1) {
+			v = findVertex(px(v), py(v), pz(v),
 				       PathIterator3D.SEG_LINETO, coords);
 			vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
 		    }
 		}
-		if (useIndices && vn != null
+		if (useIndices && vn != -1
 		    && mustKeep(vn, indices)) {
 		    keep = true;
 		}
-		if (vn != null) {
+		if (vn != -1) {
 		    splineID = findSplineID(vn, v);
 		    if (!rmap.containsKey(splineID)) {
 			regionID++;
@@ -5741,7 +5820,7 @@ public class BezierGrid implements Shape3D {
 		if (currentSplineCyclic == false
 		    /*initialSplineID != lastSplineID
 		      || splineStatus[initialSplineID] == false */) {
-		    if (vn != null) {
+		    if (vn != -1) {
 			vlist.add(v);
 			vlist.add(vn);
 		    }
@@ -5751,7 +5830,7 @@ public class BezierGrid implements Shape3D {
 		    }
 		    // currentSplineCyclic = false;
 		} else {
-		    if (vn == null) {
+		    if (vn == -1) {
 			int sz = vlist.size();
 			if (sz > 0) {
 			    vlist.remove(sz-1);
@@ -5773,7 +5852,7 @@ public class BezierGrid implements Shape3D {
 	    }
 	}
 	if (vlist.size() > 0 && (keep == true || useIndices == false)) {
-	    Vertex[] varray = vlist.toArray(new Vertex[vlist.size()]);
+	    int[] varray = toIntArray(vlist);
 	    Integer[] iarray = vrlist.toArray
 		(new Integer[vrlist.size()]);
 	    if (gridsSeparated(varray, grid)) {
@@ -5792,7 +5871,7 @@ public class BezierGrid implements Shape3D {
 	// now have lists of segments making up a boundary.
 	int bindex = -1;
 	ListIterator<Integer[]> rit = rlist.listIterator();
-	for (Vertex[] vertices: blist) {
+	for (int[] vertices: blist) {
 
 	    Integer[] regions = rit.next();
 	    bindex++;
@@ -5807,220 +5886,40 @@ public class BezierGrid implements Shape3D {
 	    connector.frozenUEnds1 = true;
 	    if (grid != null) connector.frozenUEnds2 = true;
 	    int k;
-	    /*
-	    if (vertices.length/2 != regions.length) {
-		throw new RuntimeException("region length "
-					   + regions.length
-					   + ", expecting "
-					   + vertices.length/2);
-	    }
-	    System.out.print("c" + bindex + ":");
-
-
-	    System.out.format("(%d,%d)[%d] ", vertices[0].i,
-			      vertices[0].j, regions[0]);
-	    */
 	    for (k = 2; k < vertices.length; k += 2) {
-		Vertex vc1  = connector.array[0][k/2 - 1];
-		Vertex vc2  = connector.array[nm1][k/2 - 1];
+		int kc1 = connector.vindex(0, k/2 - 1);
+		int kc2 = connector.vindex(nm1, k/2 - 1);
 		v = vertices[k];
-		Vertex nV = vertices[k+1];
-
-		/*
-		System.out.format("(%d,%d)[%d] ", nV.i, nV.j, regions[k/2]);
-		if (k % 20 == 18) {
-		    System.out.println();
-		    System.out.print("    ");
-		}
-		if (k == vertices.length-2) {
-		    System.out.println();
-		}
-		*/
-		Vertex gV = (grid == null)? null: grid.array[v.i][v.j];
-		Vertex gnV = (grid == null)? null: grid.array[nV.i][nV.j];
-		vc1.p = v.p;
-		vc1.filled = true;
-		vc2.p = (gV == null)? null: gV.p;
-		if (gV != null) vc2.filled = true;
-		vc1.vc = new double[9];
-		vc2.vc = new double[9];
-		if (v.i == nV.i) {
-		    boolean forward = (nV.j == v.j + 1)
-			|| (vclosed && nV.j == 0 && v.j == nv-1);
-		    if (forward) {
-			if (v.vc != null) {
-			    System.arraycopy(v.vc, 0, vc1.vc, 0, 9);
-			} else {
-			    vc1.vc = null;
-			}
-			if (gV != null && gV.vc != null) {
-			    System.arraycopy(gV.vc, 0, vc2.vc, 0, 9);
-			} else {
-			    vc2.vc = null;
-			}
-		    } else {
-			if (nV.vc != null) {
-			    System.arraycopy(nV.vc, 3, vc1.vc, 0, 3);
-			    System.arraycopy(nV.vc, 0, vc1.vc, 3, 3);
-			    vc1.vc[6] = nV.p.getX();
-			    vc1.vc[7] = nV.p.getY();
-			    vc1.vc[8] = nV.p.getZ();
-			} else {
-			    vc1.vc = null;
-			}
-			if (gnV != null && gnV.vc != null) {
-			    System.arraycopy(gnV.vc, 3, vc2.vc, 0, 3);
-			    System.arraycopy(gnV.vc, 0, vc2.vc, 3, 3);
-			    vc2.vc[6] = gnV.p.getX();
-			    vc2.vc[7] = gnV.p.getY();
-			    vc2.vc[8] = gnV.p.getZ();
-			} else {
-			    vc2.vc = null;
-			}
-		    }
-		} else /* v.j = nV.j */ {
-		    boolean forward = (nV.i == v.i + 1)
-			|| (uclosed && nV.i == 0 && v.i == nu-1);
-		    if (forward) {
-			if (v.uc != null) {
-			    System.arraycopy(v.uc, 0, vc1.vc, 0, 9);
-			} else {
-			    vc1.vc = null;
-			}
-			if (gV != null && gV.uc != null) {
-			    System.arraycopy(gV.uc, 0, vc2.vc, 0, 9);
-			} else {
-			    vc2.vc = null;
-			}
-		    } else {
-			if (nV.uc != null) {
-			    System.arraycopy(nV.uc, 3, vc1.vc, 0, 3);
-			    System.arraycopy(nV.uc, 0, vc1.vc, 3, 3);
-			    vc1.vc[6] = nV.p.getX();
-			    vc1.vc[7] = nV.p.getY();
-			    vc1.vc[8] = nV.p.getZ();
-			} else {
-			    vc1.vc = null;
-			}
-			if (gnV != null && gnV.uc != null) {
-			    System.arraycopy(gnV.uc, 3, vc2.vc, 0, 3);
-			    System.arraycopy(gnV.uc, 0, vc2.vc, 3, 3);
-			    vc2.vc[6] = gnV.p.getX();
-			    vc2.vc[7] = gnV.p.getY();
-			    vc2.vc[8] = gnV.p.getZ();
-			} else {
-			    vc2.vc = null;
-			}
-		    }
+		int nV = vertices[k+1];
+		connectorPoint(connector, kc1, this, v);
+		connectorEdge(connector, kc1, this, v, nV);
+		if (grid != null) {
+		    connectorPoint(connector, kc2, grid, v);
+		    connectorEdge(connector, kc2, grid, v, nV);
 		}
 	    }
 	    if (currentSplineCyclic == false) {
-		/*
-		Vertex vc1  = connector.array[0][k/2];
-		Vertex vc2  = connector.array[nm1][k/2];
-		v = vertices[k-2];
-		Vertex nV = vertices[k-1];
-		System.out.format("v=(%d,%d), nV=(%d,%d)\n",
-				  v.i, v.j, nV.i, nV.j);
-		Vertex gV = (grid == null)? null: grid.array[nV.i][nV.j];
-		vc1.p = nV.p;
-		vc2.p = (gV == null)? null: gV.p;
-		*/
-		Vertex vc1  = connector.array[0][k/2 - 1];
-		Vertex vc2  = connector.array[nm1][k/2 -1];
-		Vertex nV = vertices[k-1];
-		Vertex gV = (grid == null)? null: grid.array[nV.i][nV.j];
-		vc1.p = nV.p;
-		vc1.filled = true;
-		vc2.p = (gV == null)? null: gV.p;
-		if (gV != null) vc2.filled = true;
+		int kc1 = connector.vindex(0, k/2 - 1);
+		int kc2 = connector.vindex(nm1, k/2 - 1);
+		int nV = vertices[k-1];
+		connectorPoint(connector, kc1, this, nV);
+		if (grid != null) connectorPoint(connector, kc2, grid, nV);
 	    } else {
-		Vertex vc1  = connector.array[0][k/2-1];
-		Vertex vc2  = connector.array[nm1][k/2-1];
+		int kc1 = connector.vindex(0, k/2 - 1);
+		int kc2 = connector.vindex(nm1, k/2 - 1);
 		v = vertices[k-1];
-		Vertex nV = vertices[0];
-		Vertex gV = (grid == null)? null: grid.array[v.i][v.j];
-		Vertex gnV = (grid == null)? null: grid.array[nV.i][nV.j];
-		vc1.p = v.p;
-		vc1.filled = true;
-		vc2.p = (gV == null)? null: gV.p;
-		if (gV != null) vc2.filled = true;
-		vc1.vc = new double[9];
-		vc2.vc = new double[9];
-		if (v.i == nV.i) {
-		    boolean forward = (nV.j == v.j + 1)
-			|| (vclosed && nV.j == 0 && v.j == nv-1);
-		    if (forward) {
-			if (v.vc != null) {
-			    System.arraycopy(v.vc, 0, vc1.vc, 0, 9);
-			} else {
-			    vc1.vc = null;
-			}
-			if (gV != null && gV.vc != null) {
-			    System.arraycopy(gV.vc, 0, vc2.vc, 0, 9);
-			} else {
-			    vc2.vc = null;
-			}
-		    } else {
-			if (nV.vc != null) {
-			    System.arraycopy(nV.vc, 3, vc1.vc, 0, 3);
-			    System.arraycopy(nV.vc, 0, vc1.vc, 3, 3);
-			    vc1.vc[6] = nV.p.getX();
-			    vc1.vc[7] = nV.p.getY();
-			    vc1.vc[8] = nV.p.getZ();
-			} else {
-			    vc1.vc = null;
-			}
-			if (gnV != null && gnV.vc != null) {
-			    System.arraycopy(gnV.vc, 3, vc2.vc, 0, 3);
-			    System.arraycopy(gnV.vc, 0, vc2.vc, 3, 3);
-			    vc2.vc[6] = gnV.p.getX();
-			    vc2.vc[7] = gnV.p.getY();
-			    vc2.vc[8] = gnV.p.getZ();
-			} else {
-			    vc2.vc = null;
-			}
-		    }
-		} else /* v.j = nV.j */ {
-		    boolean forward = (nV.i == v.i + 1)
-			|| (uclosed && nV.i == 0 && v.i == nu-1);
-		    if (forward) {
-			if (v.uc != null) {
-			    System.arraycopy(v.uc, 0, vc1.vc, 0, 9);
-			} else {
-			    vc1.vc = null;
-			}
-			if (gV != null && gV.uc != null) {
-			    System.arraycopy(gV.uc, 0, vc2.vc, 0, 9);
-			} else {
-			    vc2.vc = null;
-			}
-		    } else {
-			if (nV.uc != null) {
-			    System.arraycopy(nV.uc, 3, vc1.vc, 0, 3);
-			    System.arraycopy(nV.uc, 0, vc1.vc, 3, 3);
-			    vc1.vc[6] = nV.p.getX();
-			    vc1.vc[7] = nV.p.getY();
-			    vc1.vc[8] = nV.p.getZ();
-			} else {
-			    vc1.vc = null;
-			}
-			if (gnV != null && gnV.uc != null) {
-			    System.arraycopy(gnV.uc, 3, vc2.vc, 0, 3);
-			    System.arraycopy(gnV.uc, 0, vc2.vc, 3, 3);
-			    vc2.vc[6] = gnV.p.getX();
-			    vc2.vc[7] = gnV.p.getY();
-			    vc2.vc[8] = gnV.p.getZ();
-			} else {
-			    vc2.vc = null;
-			}
-		    }
+		int nV = vertices[0];
+		connectorPoint(connector, kc1, this, v);
+		connectorEdge(connector, kc1, this, v, nV);
+		if (grid != null) {
+		    connectorPoint(connector, kc2, grid, v);
+		    connectorEdge(connector, kc2, grid, v, nV);
 		}
 	    }
 	    for (k = 0; k < vertices.length; k += 2) {
 		int region = regions[k/2];
 		for (int i = 0; i < n; i++) {
-		    connector.array[i][k/2].region = region;
+		    connector.regions[connector.vindex(i, k/2)] = region;
 		}
 	    }
 	    glist.add(connector);
@@ -6049,8 +5948,48 @@ public class BezierGrid implements Shape3D {
 	}
     }
 
+    // Set the grid points in column j of an extension grid, starting
+    // at U index start, by mapping the grid point at U index 0.
+    private static void mapKnots(Point3DMapper<Point3D> mapping,
+				 BezierGrid connector, int j,
+				 int start, int n)
+    {
+	int kc1 = connector.vindex(0, j);
+	for (int i = start; i < n; i++) {
+	    int kc2 = connector.vindex(i, j);
+	    connector.setP(kc2, mapping.apply(i, connector.getP(kc1),
+					      Point3DMapper.Type.KNOT));
+	    connector.vflags[kc2] |= FILLED;
+	}
+    }
+
+    // Set the V-direction control points in column j of an extension
+    // grid: those at U index 0 are copied from this grid's edge from
+    // vertex v to vertex vn, and the others are obtained by mapping
+    // those.
+    private void mapEdge(Point3DMapper<Point3D> mapping,
+			 BezierGrid connector, int j, int v, int vn, int n)
+    {
+	int kc1 = connector.vindex(0, j);
+	if (connectorEdge(connector, kc1, this, v, vn)) {
+	    double[] vc1 = connector.getVC(kc1);
+	    double[] vc2 = new double[9];
+	    Point3D p1 = getP(v);
+	    Point3D p2 = getP(vn);
+	    for (int i = 1; i < n; i++) {
+		doMapping(mapping, i, vc1, vc2, p1, p2);
+		connector.setVC(connector.vindex(i, j), vc2);
+	    }
+	} else {
+	    for (int i = 1; i < n; i++) {
+		connector.setVC(connector.vindex(i, j), null);
+	    }
+	}
+    }
+
     static final int[] EMPTY_INT_ARRAY = new int[0];
 
+
     /**
      * Create an extension to a B&eacute;zier grid based on a mapping
      * function.
@@ -6121,9 +6060,9 @@ public class BezierGrid implements Shape3D {
 	    throw new IllegalStateException(errorMsg("noBoundaryForGrid"));
 	}
 	int nm1 = n-1;
-	ArrayList<Vertex[]> blist = new ArrayList<>();
+	ArrayList<int[]> blist = new ArrayList<>();
 	ArrayList<Integer[]> rlist = new ArrayList<>();
-	LinkedList<Vertex> vlist = new LinkedList<>();
+	LinkedList<Integer> vlist = new LinkedList<>();
 	LinkedList<Integer> vrlist = new LinkedList<>();
 	LinkedList<Boolean> clist = new LinkedList<>();
 	PathIterator3D pit = boundary.getPathIterator(null);
@@ -6133,10 +6072,10 @@ public class BezierGrid implements Shape3D {
 	int initialSplineID = -1;
 	int splineID = 0;
 	boolean currentSplineCyclic = false;
-	Vertex[] varray = null;
+	int[] varray = null;
 	Integer[] iarray = null;
-	Vertex v = null;
-	Vertex vn;
+	int v = -1;
+	int vn;
 	ArrayList<BezierGrid> glist = new ArrayList<>();
 	int regionID = 0;
 	boolean keep = false;
@@ -6148,7 +6087,7 @@ public class BezierGrid implements Shape3D {
 		    // A SEG_MOVETO will always be preceded by a
 		    // SEG_CLOSE, so the final vrlist entry was
 		    // already added.
-		    varray = vlist.toArray(new Vertex[vlist.size()]);
+		    varray = toIntArray(vlist);
 		    iarray = vrlist.toArray
 			(new Integer[vrlist.size()]);
 		    if (varray.length/2 != iarray.length) {
@@ -6173,20 +6112,20 @@ public class BezierGrid implements Shape3D {
 		currentSplineCyclic = true;
 		keep = false;
 		// v = findVertex(lastx, lasty, lastz);
-		v = null;
+		v = -1;
 		if (mustKeep(v, indices)) {
 		    keep = true;
 		}
 		// vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_LINETO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_LINETO, coords);
 		}
 		vn = findVertex(v, coords[0], coords[1], coords[2]);
-		if (vn == null) {
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		if (vn == -1) {
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_LINETO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
 		}
@@ -6218,14 +6157,14 @@ public class BezierGrid implements Shape3D {
 		vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_QUADTO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_QUADTO, coords);
 		    // vlist.add(v);
 		}
 		vn = findVertex(v, coords[3], coords[4], coords[5]);
-		if (vn == null) {
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		if (vn == -1) {
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_QUADTO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_QUADTO, coords);
 		}
@@ -6257,22 +6196,22 @@ public class BezierGrid implements Shape3D {
 		vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_CUBICTO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_CUBICTO, coords);
 		    // vlist.add(v);
 		}
 		vn = findVertex(v, coords[6], coords[7], coords[8]);
-		if (vn == null) {
+		if (vn == -1) {
 		    // switch to the alternate vertex
 		    /*
-		      Vertex va = findVertex(v);
-		      if (va != null) {
+		      int va = findVertex(v);
+		      if (va != -1) {
 		      v = va;
 		      vn = findVertex(v, coords[6], coords[7], coords[8]);
 		      }
 		    */
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_CUBICTO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_CUBICTO, coords);
 		}
@@ -6310,25 +6249,25 @@ public class BezierGrid implements Shape3D {
 		// SEG_CLOSE is at the starting point set by the last
 		// SEG_MOVETO.  We handle the case where vn is not null
 		// just in case.
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    vn = null;
+		if (px(v) == lastx && py(v) == lasty
+		    && pz(v) == lastz) {
+		    vn = -1;
 		} else {
 		    coords[0] = lastx;
 		    coords[1] = lasty;
 		    coords[2] = lastz;
 		    vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
-		    if (vn == null) {
-			v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		    if (vn == -1) {
+			v = findVertex(px(v), py(v), pz(v),
 				       PathIterator3D.SEG_LINETO, coords);
 			vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
 		    }
 		}
-		if (vn != null
+		if (vn != -1
 		    && mustKeep(vn, indices)) {
 		    keep = true;
 		}
-		if (vn != null) {
+		if (vn != -1) {
 		    splineID = findSplineID(vn, v);
 		    if (!rmap.containsKey(splineID)) {
 			regionID++;
@@ -6339,7 +6278,7 @@ public class BezierGrid implements Shape3D {
 		if (currentSplineCyclic == false
 		    /*initialSplineID != lastSplineID
 		      || splineStatus[initialSplineID] == false */) {
-		    if (vn != null) {
+		    if (vn != -1) {
 			vlist.add(v);
 			vlist.add(vn);
 		    }
@@ -6349,7 +6288,7 @@ public class BezierGrid implements Shape3D {
 		    }
 		    // currentSplineCyclic = false;
 		} else {
-		    if (vn == null) {
+		    if (vn == -1) {
 			int sz = vlist.size();
 			if (sz > 0) {
 			    vlist.remove(sz-1);
@@ -6363,7 +6302,7 @@ public class BezierGrid implements Shape3D {
 	    pit.next();
 	}
 	if (vlist.size() > 0 && (keep == true)) {
-	    varray = vlist.toArray(new Vertex[vlist.size()]);
+	    varray = toIntArray(vlist);
 	    iarray = vrlist.toArray
 		(new Integer[vrlist.size()]);
 	    if (varray.length/2 != iarray.length) {
@@ -6377,7 +6316,7 @@ public class BezierGrid implements Shape3D {
 	// now have lists of segments making up a boundary.
 	// int bindex = -1;
 	// ListIterator<Integer[]> rit = rlist.listIterator();
-	Vertex[] vertices = varray;
+	int[] vertices = varray;
 
 	if (vertices.length == 0) return null;
 
@@ -6396,90 +6335,25 @@ public class BezierGrid implements Shape3D {
 	int k;
 
 	for (k = 2; k < vertices.length; k += 2) {
-	    Vertex vc1  = connector.array[0][k/2 - 1];
-	    // Vertex vc2  = connector.array[nm1][k/2 - 1];
 	    v = vertices[k];
-	    Vertex nV = vertices[k+1];
-
-	    /*
-	      System.out.format("(%d,%d)[%d] ", nV.i, nV.j, regions[k/2]);
-	      if (k % 20 == 18) {
-	      System.out.println();
-	      System.out.print("    ");
-	      }
-	      if (k == vertices.length-2) {
-	      System.out.println();
-	      }
-	    */
-	    // Vertex gV = (grid == null)? null: grid.array[v.i][v.j];
-	    // Vertex gnV = (grid == null)? null: grid.array[nV.i][nV.j];
-	    vc1.p = v.p;
-	    vc1.filled = true;
-	    // vc2.p = (gV == null)? null: gV.p;
-	    for (int i = 1; i < n; i++) {
-		Vertex vc2 = connector.array[i][k/2 - 1];
-		// vc2.p = mapping.apply(i, vc1.p);
-		Point3D newp =
-		    mapping.apply(i, vc1.p, Point3DMapper.Type.KNOT);
-		vc2.p = new Point3D.Double((double)(float)newp.getX(),
-					   (double)(float)newp.getY(),
-					   (double)(float)newp.getZ());
-		vc2.filled = true;
-	    }
+	    connectorPoint(connector, connector.vindex(0, k/2 - 1), this, v);
+	    mapKnots(mapping, connector, k/2 - 1, 1, n);
 	}
 	if (currentSplineCyclic == false) {
-	    /*
-	      Vertex vc1  = connector.array[0][k/2];
-	      Vertex vc2  = connector.array[nm1][k/2];
-	      v = vertices[k-2];
-	      Vertex nV = vertices[k-1];
-	      System.out.format("v=(%d,%d), nV=(%d,%d)\n",
-	      v.i, v.j, nV.i, nV.j);
-	      Vertex gV = (grid == null)? null: grid.array[nV.i][nV.j];
-	      vc1.p = nV.p;
-	      vc2.p = (gV == null)? null: gV.p;
-	    */
-	    Vertex vc1  = connector.array[0][k/2 - 1];
-	    // Vertex vc2  = connector.array[nm1][k/2 -1];
-	    Vertex nV = vertices[k-1];
-	    vc1.p = nV.p;
-	    vc1.filled = true;
-	    for (int i = 1; i < n; i++) {
-		Vertex vc2 = connector.array[i][k/2 - 1];
-		// vc2.p = mapping.apply(i, vc1.p);
-		Point3D newp =
-		    mapping.apply(i, vc1.p, Point3DMapper.Type.KNOT);
-		vc2.p = new Point3D.Double((double)(float)newp.getX(),
-					   (double)(float)newp.getY(),
-					   (double)(float)newp.getZ());
-		vc2.filled = true;
-	    }
+	    int nV = vertices[k-1];
+	    connectorPoint(connector, connector.vindex(0, k/2 - 1), this, nV);
+	    mapKnots(mapping, connector, k/2 - 1, 1, n);
 	} else {
-	    Vertex vc1  = connector.array[0][k/2-1];
-	    // Vertex vc2  = connector.array[nm1][k/2-1];
 	    v = vertices[k-1];
-	    Vertex nV = vertices[0];
-	    // Vertex gV = (grid == null)? null: grid.array[v.i][v.j];
-	    // Vertex gnV = (grid == null)? null: grid.array[nV.i][nV.j];
-	    vc1.p = v.p;
-	    vc1.filled = true;
-	    for (int i = 0; i < n; i++) {
-		Vertex vc2 = connector.array[i][k/2-1];
-		// vc2.p = mapping.apply(i, vc1.p);
-		Point3D newp =
-		    mapping.apply(i, vc1.p, Point3DMapper.Type.KNOT);
-		vc2.p = new Point3D.Double((double)(float)newp.getX(),
-					   (double)(float)newp.getY(),
-					   (double)(float)newp.getZ());
-		vc2.filled = true;
-	    }
+	    connectorPoint(connector, connector.vindex(0, k/2 - 1), this, v);
+	    mapKnots(mapping, connector, k/2 - 1, 0, n);
 	}
 	int minRegion = Integer.MAX_VALUE;
 	int maxRegion = Integer.MIN_VALUE;
 	for (k = 0; k < vertices.length; k += 2) {
 	    int region = regions[k/2];
 	    for (int i = 0; i < n; i++) {
-		connector.array[i][k/2].region = region;
+		connector.regions[connector.vindex(i, k/2)] = region;
 	    }
 	    if (region < minRegion) minRegion = region;
 	    if (region > maxRegion) maxRegion = region;
@@ -6497,7 +6371,7 @@ public class BezierGrid implements Shape3D {
 		regionOffset += delta;
 	    }
 	    for (k = 0; k < vertices.length; k += 2) {
-		connector.array[i][k/2].region += regionOffset;
+		connector.regions[connector.vindex(i, k/2)] += regionOffset;
 	    }
 	}
 	// createSplines called so we will create the splines
@@ -6506,219 +6380,60 @@ public class BezierGrid implements Shape3D {
 	connector.createSplines();
 
 	for (k = 2; k < vertices.length; k += 2) {
-	    Vertex vc1  = connector.array[0][k/2 - 1];
-	    // Vertex vc2  = connector.array[nm1][k/2 - 1];
 	    v = vertices[k];
-	    Vertex nV = vertices[k+1];
-	    vc1.vc = new double[9];
-	    // vc2.vc = new double[9];
-	    if (v.i == nV.i) {
-		boolean forward = (nV.j == v.j + 1)
-		    || (vclosed && nV.j == 0 && v.j == nv-1);
-		if (forward) {
-		    if (v.vc != null) {
-			System.arraycopy(v.vc, 0, vc1.vc, 0, 9);
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc = null;
-			}
-		    }
-		} else {
-		    if (nV.vc != null) {
-			System.arraycopy(nV.vc, 3, vc1.vc, 0, 3);
-			System.arraycopy(nV.vc, 0, vc1.vc, 3, 3);
-			vc1.vc[6] = nV.p.getX();
-			vc1.vc[7] = nV.p.getY();
-			vc1.vc[8] = nV.p.getZ();
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc = null;
-			}
-		    }
-		}
-	    } else /* v.j = nV.j */ {
-		boolean forward = (nV.i == v.i + 1)
-		    || (uclosed && nV.i == 0 && v.i == nu-1);
-		if (forward) {
-		    if (v.uc != null) {
-			System.arraycopy(v.uc, 0, vc1.vc, 0, 9);
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc = null;
-			}
-		    }
-		} else {
-		    if (nV.uc != null) {
-			System.arraycopy(nV.uc, 3, vc1.vc, 0, 3);
-			System.arraycopy(nV.uc, 0, vc1.vc, 3, 3);
-			vc1.vc[6] = nV.p.getX();
-			vc1.vc[7] = nV.p.getY();
-			vc1.vc[8] = nV.p.getZ();
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc = null;
-			}
-		    }
-		}
-	    }
+	    int nV = vertices[k+1];
+	    mapEdge(mapping, connector, k/2 - 1, v, nV, n);
 	}
 	if (currentSplineCyclic == false) {
-	    /*
-	      Vertex vc1  = connector.array[0][k/2];
-	      Vertex vc2  = connector.array[nm1][k/2];
-	      v = vertices[k-2];
-	      Vertex nV = vertices[k-1];
-	      System.out.format("v=(%d,%d), nV=(%d,%d)\n",
-	      v.i, v.j, nV.i, nV.j);
-	      Vertex gV = (grid == null)? null: grid.array[nV.i][nV.j];
-	      vc1.p = nV.p;
-	      vc2.p = (gV == null)? null: gV.p;
-	    */
-	    Vertex vc1  = connector.array[0][k/2 - 1];
-	    Vertex vc2  = connector.array[nm1][k/2 -1];
-	    Vertex nV = vertices[k-1];
-	    // Vertex gV = (grid == null)? null: grid.array[nV.i][nV.j];
-	    vc1.p = nV.p;
-	    vc1.filled = true;
-	    // vc2.p = (gV == null)? null: gV.p;
-	    vc2.p = mapping.apply(nm1, vc1.p, Point3DMapper.Type.KNOT);
-	    Point3D newp =
-		mapping.apply(nm1, vc1.p, Point3DMapper.Type.KNOT);
-	    vc2.p = new Point3D.Double((double)(float)newp.getX(),
-				       (double)(float)newp.getY(),
-				       (double)(float)newp.getZ());
-	    vc2.filled = true;
-	    // if (gV != null) vc2.filled = true;
+	    int kc1 = connector.vindex(0, k/2 - 1);
+	    int kc2 = connector.vindex(nm1, k/2 - 1);
+	    int nV = vertices[k-1];
+	    connectorPoint(connector, kc1, this, nV);
+	    connector.setP(kc2, mapping.apply(nm1, connector.getP(kc1),
+					      Point3DMapper.Type.KNOT));
+	    connector.vflags[kc2] |= FILLED;
 	} else {
-	    Vertex vc1  = connector.array[0][k/2-1];
-	    // Vertex vc2  = connector.array[nm1][k/2-1];
 	    v = vertices[k-1];
-	    Vertex nV = vertices[0];
-	    // Vertex gV = (grid == null)? null: grid.array[v.i][v.j];
-	    // Vertex gnV = (grid == null)? null: grid.array[nV.i][nV.j];
-	    // vc2.p = (gV == null)? null: gV.p;
-	    // if (gV != null) vc2.filled = true;
-	    vc1.vc = new double[9];
-	    // vc2.vc = new double[9];
-	    if (v.i == nV.i) {
-		boolean forward = (nV.j == v.j + 1)
-		    || (vclosed && nV.j == 0 && v.j == nv-1);
-		if (forward) {
-		    if (v.vc != null) {
-			System.arraycopy(v.vc, 0, vc1.vc, 0, 9);
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc = null;
-			}
-		    }
-		} else {
-		    if (nV.vc != null) {
-			System.arraycopy(nV.vc, 3, vc1.vc, 0, 3);
-			System.arraycopy(nV.vc, 0, vc1.vc, 3, 3);
-			vc1.vc[6] = nV.p.getX();
-			vc1.vc[7] = nV.p.getY();
-			vc1.vc[8] = nV.p.getZ();
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc = null;
-			}
-		    }
-		}
-	    } else /* v.j = nV.j */ {
-		boolean forward = (nV.i == v.i + 1)
-		    || (uclosed && nV.i == 0 && v.i == nu-1);
-		if (forward) {
-		    if (v.uc != null) {
-			System.arraycopy(v.uc, 0, vc1.vc, 0, 9);
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc  = null;
-			}
-		    }
-		} else {
-		    if (nV.uc != null) {
-			System.arraycopy(nV.uc, 3, vc1.vc, 0, 3);
-			System.arraycopy(nV.uc, 0, vc1.vc, 3, 3);
-			vc1.vc[6] = nV.p.getX();
-			vc1.vc[7] = nV.p.getY();
-			vc1.vc[8] = nV.p.getZ();
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    if (vc2.vc == null) vc2.vc = new double[9];
-			    doMapping(mapping, i, vc1.vc, vc2.vc,
-				      v.p, nV.p);
-			}
-		    } else {
-			vc1.vc = null;
-			for (int i = 1; i < n; i++) {
-			    Vertex vc2 = connector.array[i][k/2 - 1];
-			    vc2.vc = null;
-			}
-		    }
-		}
-	    }
+	    int nV = vertices[0];
+	    mapEdge(mapping, connector, k/2 - 1, v, nV, n);
 	}
 	connector.frozen = true;
 	return connector;
     }
 
 
+    // Append the edge from vertex v to vertex vn to a path.
+    private void appendEdge(Path3D path, int v, int vn) {
+	int vi = v / nv;
+	int vj = v % nv;
+	int ni = vn / nv;
+	int nj = vn % nv;
+	boolean forward;
+	float[] c;
+	byte flag;
+	if (vi == ni) {
+	    forward = (nj == vj + 1) || (vclosed && nj == 0 && vj == nv-1);
+	    c = vcoords;
+	    flag = HAS_VC;
+	} else /* vj == nj */ {
+	    forward = (ni == vi + 1) || (uclosed && ni == 0 && vi == nu-1);
+	    c = ucoords;
+	    flag = HAS_UC;
+	}
+	int k = forward? v: vn;
+	if ((vflags[k] & flag) == 0) {
+	    path.lineTo(px(vn), py(vn), pz(vn));
+	} else if (forward) {
+	    int o = 9*k;
+	    path.curveTo(c[o], c[o+1], c[o+2], c[o+3], c[o+4], c[o+5],
+			 px(vn), py(vn), pz(vn));
+	} else {
+	    int o = 9*k;
+	    path.curveTo(c[o+3], c[o+4], c[o+5], c[o], c[o+1], c[o+2],
+			 px(vn), py(vn), pz(vn));
+	}
+    }
+
     @Override
     public Path3D getBoundary() {
 	if (!bpathSet) {
@@ -6757,16 +6472,9 @@ public class BezierGrid implements Shape3D {
 		throw new
 		    IllegalArgumentException(errorMsg("uvRange", indU, indV));
 	    }
-	    if (array[indU][indV].p == null) {
+	    if (!hasP(vindex(indU, indV))) {
 		throw new IllegalArgumentException
 		    (errorMsg("noindUVPoint", indU, indV));
-	    } else {
-		Point3D p = array[indU][indV].p;
-		if (p.getX() != (double)(float)p.getX()
-		    || p.getY() != (double)(float)p.getY()
-		    || p.getZ() != (double)(float)p.getZ()) {
-		    throw new RuntimeException("(double)(float) missing");
-		}
 	    }
 	}
 
@@ -6781,9 +6489,9 @@ public class BezierGrid implements Shape3D {
 	    // in it that match.
 	    return new Path3D.Double();
 	}
-	ArrayList<Vertex[]> blist = new ArrayList<>();
-	LinkedList<Vertex> vlist = new LinkedList<>();
-	LinkedList<Vertex> svlist = new LinkedList<>();
+	ArrayList<int[]> blist = new ArrayList<>();
+	LinkedList<Integer> vlist = new LinkedList<>();
+	LinkedList<Integer> svlist = new LinkedList<>();
 	LinkedList<Boolean> clist = new LinkedList<>();
 	PathIterator3D pit = boundary.getPathIterator(null);
 	double[] coords = new double[9];
@@ -6792,9 +6500,9 @@ public class BezierGrid implements Shape3D {
 	int initialSplineID = -1;
 	int splineID = 0;
 	boolean currentSplineCyclic = false;
-	Vertex v = null;
-	Vertex vn;
-	Vertex sv = null;	// what will be the starting vertex
+	int v = -1;
+	int vn;
+	int sv = -1;	// what will be the starting vertex
 	ArrayList<BezierGrid> glist = new ArrayList<>();
 	int regionID = 0;
 	int count = 0;
@@ -6814,7 +6522,7 @@ public class BezierGrid implements Shape3D {
 		if (vlist.size() > 0 && (keep == true || useIndices == false)) {
 		    // A SEG_MOVETO will always be preceded by a
 		    // SEG_CLOSE.
-		    Vertex[] varray = vlist.toArray(new Vertex[vlist.size()]);
+		    int[] varray = toIntArray(vlist);
 		    blist.add(varray);
 		    clist.offer(currentSplineCyclic);
 		    svlist.add(sv);
@@ -6828,10 +6536,10 @@ public class BezierGrid implements Shape3D {
 		lastSplineID = -1;
 		currentSplineCyclic = true;
 		keep = false;
-		sv = null;
+		sv = -1;
 		count = 0;
 		// v = findVertex(lastx, lasty, lastz);
-		v = null;
+		v = -1;
 		/*
 		  when v is null, mustKeep always returns false
 		if (useIndices && mustKeep(v, indices)) {
@@ -6841,13 +6549,13 @@ public class BezierGrid implements Shape3D {
 		// vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_LINETO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_LINETO, coords);
 		}
 		vn = findVertex(v, coords[0], coords[1], coords[2]);
-		if (vn == null) {
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		if (vn == -1) {
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_LINETO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
 		}
@@ -6879,14 +6587,14 @@ public class BezierGrid implements Shape3D {
 		vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_QUADTO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_QUADTO, coords);
 		    // vlist.add(v);
 		}
 		vn = findVertex(v, coords[3], coords[4], coords[5]);
-		if (vn == null) {
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		if (vn == -1) {
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_QUADTO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_QUADTO, coords);
 		}
@@ -6917,13 +6625,13 @@ public class BezierGrid implements Shape3D {
 		vlist.add(v);
 		break;
 	    case PathIterator3D.SEG_CUBICTO:
-		if (v == null) {
+		if (v == -1) {
 		    v = findVertex(lastx, lasty, lastz,
 				   PathIterator3D.SEG_CUBICTO, coords);
 		}
 		vn = findVertex(v, coords[6], coords[7], coords[8]);
-		if (vn == null) {
-		    v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		if (vn == -1) {
+		    v = findVertex(px(v), py(v), pz(v),
 				   PathIterator3D.SEG_CUBICTO, coords);
 		    vn = findVertex(v, PathIterator3D.SEG_CUBICTO, coords);
 		}
@@ -6960,26 +6668,26 @@ public class BezierGrid implements Shape3D {
 		// SEG_CLOSE is at the starting point set by the last
 		// SEG_MOVETO.  We handle the case where vn is not null
 		// just in case.
-		if (v.p.getX() == lastx && v.p.getY() == lasty
-		    && v.p.getZ() == lastz) {
-		    vn = null;
+		if (px(v) == lastx && py(v) == lasty
+		    && pz(v) == lastz) {
+		    vn = -1;
 		} else {
 		    coords[0] = lastx;
 		    coords[1] = lasty;
 		    coords[2] = lastz;
 		    vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
-		    if (vn == null) {
-			v = findVertex(v.p.getX(), v.p.getY(), v.p.getZ(),
+		    if (vn == -1) {
+			v = findVertex(px(v), py(v), pz(v),
 				       PathIterator3D.SEG_LINETO, coords);
 			vn = findVertex(v, PathIterator3D.SEG_LINETO, coords);
 		    }
 		}
-		if (useIndices && vn != null
+		if (useIndices && vn != -1
 		    && mustKeep(vn, indices)) {
 		    keep = true;
 		    sv = vn;
 		}
-		if (vn != null) {
+		if (vn != -1) {
 		    splineID = findSplineID(vn, v);
 		    if (!rmap.containsKey(splineID)) {
 			regionID++;
@@ -6989,13 +6697,13 @@ public class BezierGrid implements Shape3D {
 		if (currentSplineCyclic == false
 		    /*initialSplineID != lastSplineID
 		      || splineStatus[initialSplineID] == false */) {
-		    if (vn != null) {
+		    if (vn != -1) {
 			vlist.add(v);
 			vlist.add(vn);
 		    }
 		    // currentSplineCyclic = false;
 		} else {
-		    if (vn == null) {
+		    if (vn == -1) {
 			int sz = vlist.size();
 			if (sz > 0) {
 			    vlist.remove(sz-1);
@@ -7017,117 +6725,33 @@ public class BezierGrid implements Shape3D {
 	    }
 	}
 	if (vlist.size() > 0 && (keep == true || useIndices == false)) {
-	    Vertex[] varray = vlist.toArray(new Vertex[vlist.size()]);
+	    int[] varray = toIntArray(vlist);
 	    blist.add(varray);
 	    svlist.add(sv);
 	    clist.offer(currentSplineCyclic);
 	}
 	// now have lists of segments making up a boundary.
 	Path3D rpath = new Path3D.Double();
-	for (Vertex[] vertices: blist) {
+	for (int[] vertices: blist) {
 	    Path3D path = new Path3D.Double();
 	    currentSplineCyclic = clist.poll();
 	    sv = svlist.poll();
 	    int k;
 	    v = vertices[0];
-	    path.moveTo(v.p.getX(), v.p.getY(), v.p.getZ());
+	    path.moveTo(px(v), py(v), pz(v));
 	    for (k = 2; k < vertices.length; k += 2) {
-		v = vertices[k];
-		Vertex nV = vertices[k+1];
-		if (v.i == nV.i) {
-		    boolean forward = (nV.j == v.j + 1)
-			|| (vclosed && nV.j == 0 && v.j == nv-1);
-		    if (forward) {
-			if (v.vc != null) {
-			    path.curveTo(v.vc[0], v.vc[1], v.vc[2],
-					 v.vc[3], v.vc[4], v.vc[5],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    } else {
-			if (nV.vc != null) {
-			    path.curveTo(nV.vc[3], nV.vc[4], nV.vc[5],
-					 nV.vc[0], nV.vc[1], nV.vc[2],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    }
-		} else /* v.j = nV.j */ {
-		    boolean forward = (nV.i == v.i + 1)
-			|| (uclosed && nV.i == 0 && v.i == nu-1);
-		    if (forward) {
-			if (v.uc != null) {
-			    path.curveTo(v.uc[0], v.uc[1], v.uc[2],
-					 v.uc[3], v.uc[4], v.uc[5],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    } else {
-			if (nV.uc != null) {
-			    path.curveTo(nV.uc[3], nV.uc[4], nV.uc[5],
-					 nV.uc[0], nV.uc[1], nV.uc[2],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    }
-		}
+		appendEdge(path, vertices[k], vertices[k+1]);
 	    }
 	    if (currentSplineCyclic == false) {
 		path.closePath();
 	    } else {
-		v = vertices[k-1];
-		Vertex nV = vertices[0];
-		if (v.i == nV.i) {
-		    boolean forward = (nV.j == v.j + 1)
-			|| (vclosed && nV.j == 0 && v.j == nv-1);
-		    if (forward) {
-			if (v.vc != null) {
-			    path.curveTo(v.vc[0], v.vc[1], v.vc[2],
-					 v.vc[3], v.vc[4], v.vc[5],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    } else {
-			if (nV.vc != null) {
-			    path.curveTo(nV.vc[3], nV.vc[4], nV.vc[5],
-					 nV.vc[0], nV.vc[1], nV.vc[2],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    }
-		} else /* v.j = nV.j */ {
-		    boolean forward = (nV.i == v.i + 1)
-			|| (uclosed && nV.i == 0 && v.i == nu-1);
-		    if (forward) {
-			if (v.uc != null) {
-			    path.curveTo(v.uc[0], v.uc[1], v.uc[2],
-					 v.uc[3], v.uc[4], v.uc[5],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    } else {
-			if (nV.uc != null) {
-			    path.curveTo(nV.uc[3], nV.uc[4], nV.uc[5],
-					 nV.uc[0], nV.uc[1], nV.uc[2],
-					 nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			} else {
-			    path.lineTo(nV.p.getX(), nV.p.getY(), nV.p.getZ());
-			}
-		    }
-		}
+		appendEdge(path, vertices[k-1], vertices[0]);
 		path.closePath();
 	    }
-	    if (sv != null) {
-		double ourX = sv.p.getX();
-		double ourY = sv.p.getY();
-		double ourZ = sv.p.getZ();
+	    if (sv != -1) {
+		double ourX = px(sv);
+		double ourY = py(sv);
+		double ourZ = pz(sv);
 		path = Paths3D.shiftClosedPath(path, ourX, ourY, ourZ);
 	    }
 	    rpath.append(path, false);
@@ -7182,10 +6806,13 @@ public class BezierGrid implements Shape3D {
      * @param c the color; null if a color is not specified
      */
     public void setColor(Color c) {
-	for (int i = 0; i < nu; i++) {
-	    for (int j = 0; j < nv; j++) {
-		array[i][j].color = c;
+	if (c == null) {
+	    colors = null;
+	} else {
+	    if (colors == null) {
+		colors = new Color[vflags.length];
 	    }
+	    Arrays.fill(colors, c);
 	}
     }
 
@@ -7208,7 +6835,7 @@ public class BezierGrid implements Shape3D {
 	    String msg = errorMsg("argOutOfRange2ii", i, j);
 	    throw new IllegalArgumentException(msg);
 	}
-	array[i][j].color = c;
+	setColorAt(vindex(i, j), c);
     }
 
     /**
@@ -7244,7 +6871,7 @@ public class BezierGrid implements Shape3D {
 	while (i < ilimit) {
 	    int k = j;
 	    while (k < jlimit) {
-		array[i][k].color = c;
+		setColorAt(vindex(i, k), c);
 		k++;
 	    }
 	    i++;
@@ -7280,4 +6907,6 @@ public class BezierGrid implements Shape3D {
 //  LocalWords:  regionChanges blist varray rlist iarray clist gnV
 //  LocalWords:  ListIterator listIterator indU indV oddArgs uvRange
 //  LocalWords:  noindUVPoint incompleteSpline reverseOrientation
-//  LocalWords:  DMapper itheta ptheta
+//  LocalWords:  DMapper itheta ptheta nv asDoubleBuffer asFloatBuffer
+//  LocalWords:  bufferTooShort pcoords ucoords vcoords rcoords vflags
+//  LocalWords:  vindex gridTooLarge usns vsns
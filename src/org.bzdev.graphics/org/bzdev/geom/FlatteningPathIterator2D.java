@@ -514,11 +514,188 @@ public class FlatteningPathIterator2D implements PathIterator {
      */
     public int getRecursionLimit() {return limit;}
 
+    /**
+     * Get the number of straight-line segments needed to approximate
+     * a segment to within a given distance, using a uniform spacing
+     * of the path parameter.
+     * For a quadratic or cubic B&eacute;zier curve with control points
+     * P<sub>0</sub>, ... P<sub>n</sub>, the second derivative's
+     * magnitude is bounded by M = n(n-1) max<sub>i</sub>
+     * |P<sub>i</sub> - 2P<sub>i+1</sub> + P<sub>i+2</sub>|, and a
+     * curve whose path parameter changes by h over a straight-line
+     * segment deviates from that line by no more than Mh<sup>2</sup>/8.
+     * The value returned is the smallest number of lines for which this
+     * bound does not exceed the flatness, but not more than
+     * 2<sup>limit</sup>, the number of segments that a flattening path
+     * iterator with the same recursion limit can create.
+     * <P>
+     * A {@link PathIterator#SEG_CLOSE} segment is not accepted: its
+     * end point is the start of the current subpath, which
+     * {@link PathIterator#currentSegment(double[])} does not provide.
+     * To flatten one, use {@link PathIterator#SEG_LINETO} with coords
+     * containing the subpath's starting point.
+     * @param type the type of the segment ({@link PathIterator#SEG_LINETO},
+     *        {@link PathIterator#SEG_QUADTO}, or
+     *        {@link PathIterator#SEG_CUBICTO})
+     * @param x0 the starting X coordinate for the segment
+     * @param y0 the starting Y coordinate for the segment
+     * @param coords the coordinates for the segment as returned by
+     *        {@link PathIterator#currentSegment(double[])}
+     * @param flatness the flatness constraint; 0.0 if the recursion
+     *        limit alone determines the number of lines
+     * @param limit the recursion limit
+     * @return the number of lines
+     * @exception IllegalArgumentException the flatness or the limit was
+     *            negative, or the segment type was not recognized
+     *            (this includes {@link PathIterator#SEG_CLOSE})
+     */
+    public static int getLineCount(int type, double x0, double y0,
+				   double[] coords,
+				   double flatness, int limit)
+	throws IllegalArgumentException
+    {
+	if (limit < 0) {
+	    throw new IllegalArgumentException(errorMsg("negativeLimit"));
+	}
+	if (flatness < 0.0) {
+	    throw new IllegalArgumentException(errorMsg("negativeFlatness"));
+	}
+	int max = 1 << Math.min(limit, 30);
+	double m;
+	switch (type) {
+	case PathIterator.SEG_LINETO:
+	    return 1;
+	case PathIterator.SEG_QUADTO:
+	    {
+		double ddx = x0 - 2.0*coords[0] + coords[2];
+		double ddy = y0 - 2.0*coords[1] + coords[3];
+		m = 2.0 * Math.sqrt(ddx*ddx + ddy*ddy);
+	    }
+	    break;
+	case PathIterator.SEG_CUBICTO:
+	    {
+		double ddx1 = x0 - 2.0*coords[0] + coords[2];
+		double ddy1 = y0 - 2.0*coords[1] + coords[3];
+		double ddx2 = coords[0] - 2.0*coords[2] + coords[4];
+		double ddy2 = coords[1] - 2.0*coords[3] + coords[5];
+		m = 6.0 * Math.sqrt(Math.max(ddx1*ddx1 + ddy1*ddy1,
+					     ddx2*ddx2 + ddy2*ddy2));
+	    }
+	    break;
+	default:
+	    throw new IllegalArgumentException
+		(errorMsg("unknownSegmentType", type));
+	}
+	if (flatness == 0.0) return max;
+	double n = Math.ceil(Math.sqrt(m / (8.0 * flatness)));
+	return (n < 1.0)? 1: ((n > max)? max: (int)n);
+    }
+
+    /**
+     * Approximate a segment by straight lines, using forward differences.
+     * The number of lines is the value returned by
+     * {@link #getLineCount(int,double,double,double[],double,int)}
+     * and the lines' end points are the points on the segment at
+     * uniformly spaced values of its path parameter.  These are computed
+     * by forward differencing, which requires only additions for each
+     * point, and the last point is set to the segment's end point.
+     * No objects are allocated, so this method is suitable for
+     * flattening a large number of segments (for example, for hit
+     * testing). Unlike a flattening path iterator, the lines are not
+     * returned as quadratic or cubic segments, and no transform is
+     * applied.
+     * <P>
+     * The array points must have a length of at least
+     * offset + 2n, where n is the number of lines (this value is at most
+     * 2<sup>limit</sup>).  The end point of the i<sup>th</sup> line
+     * will be stored at indices offset+2i and offset+2i+1 for the X and Y
+     * coordinates respectively. The start point of the first line is
+     * (x0, y0) and is not stored.
+     * @param type the type of the segment ({@link PathIterator#SEG_LINETO},
+     *        {@link PathIterator#SEG_QUADTO}, or
+     *        {@link PathIterator#SEG_CUBICTO})
+     * @param x0 the starting X coordinate for the segment
+     * @param y0 the starting Y coordinate for the segment
+     * @param coords the coordinates for the segment as returned by
+     *        {@link PathIterator#currentSegment(double[])}
+     * @param flatness the flatness constraint; 0.0 if the recursion
+     *        limit alone determines the number of lines
+     * @param limit the recursion limit
+     * @param points an array to hold the lines' end points
+     * @param offset the offset into the points array for the first
+     *        end point
+     * @return the number of lines
+     * @exception IllegalArgumentException the flatness or the limit was
+     *            negative, or the segment type was not recognized
+     *            (this includes {@link PathIterator#SEG_CLOSE})
+     * @exception ArrayIndexOutOfBoundsException the points array is
+     *            too short
+     */
+    public static int flattenToLines(int type, double x0, double y0,
+				     double[] coords,
+				     double flatness, int limit,
+				     double[] points, int offset)
+	throws IllegalArgumentException, ArrayIndexOutOfBoundsException
+    {
+	int n = getLineCount(type, x0, y0, coords, flatness, limit);
+	int last = offset + 2*(n-1);
+	double ax, bx, cx, ay, by, cy;
+	switch (type) {
+	case PathIterator.SEG_LINETO:
+	    points[offset] = coords[0];
+	    points[offset+1] = coords[1];
+	    return n;
+	case PathIterator.SEG_QUADTO:
+	    ax = 0.0;
+	    ay = 0.0;
+	    bx = x0 - 2.0*coords[0] + coords[2];
+	    by = y0 - 2.0*coords[1] + coords[3];
+	    cx = 2.0*(coords[0] - x0);
+	    cy = 2.0*(coords[1] - y0);
+	    points[last] = coords[2];
+	    points[last+1] = coords[3];
+	    break;
+	default:
+	    // getLineCount rejected other types, so this is SEG_CUBICTO
+	    ax = coords[4] - x0 + 3.0*(coords[0] - coords[2]);
+	    ay = coords[5] - y0 + 3.0*(coords[1] - coords[3]);
+	    bx = 3.0*(x0 - 2.0*coords[0] + coords[2]);
+	    by = 3.0*(y0 - 2.0*coords[1] + coords[3]);
+	    cx = 3.0*(coords[0] - x0);
+	    cy = 3.0*(coords[1] - y0);
+	    points[last] = coords[4];
+	    points[last+1] = coords[5];
+	    break;
+	}
+	// The curve is a t^3 + b t^2 + c t + P0 and we step by h.
+	double h = 1.0/n;
+	double h2 = h*h;
+	double h3 = h2*h;
+	double x = x0;
+	double y = y0;
+	double dx = ax*h3 + bx*h2 + cx*h;
+	double dy = ay*h3 + by*h2 + cy*h;
+	double ddx = 6.0*ax*h3 + 2.0*bx*h2;
+	double ddy = 6.0*ay*h3 + 2.0*by*h2;
+	double dddx = 6.0*ax*h3;
+	double dddy = 6.0*ay*h3;
+	for (int i = offset; i < last; i += 2) {
+	    x += dx;
+	    y += dy;
+	    dx += ddx;
+	    dy += ddy;
+	    ddx += dddx;
+	    ddy += dddy;
+	    points[i] = x;
+	    points[i+1] = y;
+	}
+	return n;
+    }
+
     boolean usingRecursion = false;
     int mode = -1;
     double[] workspace = null;
 
-    double[][][] tmp = new double[3][3][2];
     double ftmp[] = new double[8];
 
     int depth = 0;
@@ -707,55 +884,42 @@ public class FlatteningPathIterator2D implements PathIterator {
 	    break;
 	case PathIterator.SEG_QUADTO:
 	    int depth6 = 6*depth;
-	    for (int i = 1; i < 3; i++) {
-		int im1 = i - 1;
-		for (int j = 0; j < 2; j++) {
-		    int k = 2*i+j;
-		    tmp[0][im1][j] = (workspace[depth6 + k-2] + 
-				      workspace[depth6 + k])/2.0;
-		}
-	    }
-	    for (int j = 0; j < 2; j++) {
-		tmp[1][0][j] = (tmp[0][0][j] + tmp[0][1][j])/2.0;
-	    }
 	    int ndepth6 = depth6 + 6;
 	    for (int j = 0; j < 2; j++) {
-		workspace[ndepth6+j] = workspace[depth6+j];
-		workspace[ndepth6+2+j] = tmp[0][0][j];
-		workspace[ndepth6+4+j] = tmp[1][0][j];
-		workspace[depth6+j] = tmp[1][0][j];
-		workspace[depth6+2+j] = tmp[0][1][j];
+		double p0 = workspace[depth6+j];
+		double p1 = workspace[depth6+2+j];
+		double p2 = workspace[depth6+4+j];
+		double m01 = (p0 + p1)/2.0;
+		double m12 = (p1 + p2)/2.0;
+		double m012 = (m01 + m12)/2.0;
+		workspace[ndepth6+j] = p0;
+		workspace[ndepth6+2+j] = m01;
+		workspace[ndepth6+4+j] = m012;
+		workspace[depth6+j] = m012;
+		workspace[depth6+2+j] = m12;
 	    }
 	    break;
 	case PathIterator.SEG_CUBICTO:
 	    int depth8 = 8*depth;
-	    for (int i = 1; i < 4; i++) {
-		int im1 = i - 1;
-		for (int j = 0; j < 2; j++) {
-		    int k = 2*i+j;
-		    tmp[0][im1][j] = (workspace[depth8 + k-2] + 
-				      workspace[depth8 + k])/2.0;
-		}
-	    }
-	    for (int i = 1; i < 3; i++) {
-		int im1 = i - 1;
-		for (int j = 0; j < 2; j++) {
-		    int k = 2*i+j;
-		    tmp[1][im1][j] = (tmp[0][im1][j] + tmp[0][i][j])/2.0;
-		}
-	    }
-	    for (int j = 0; j < 2; j++) {
-		tmp[2][0][j] = (tmp[1][0][j] + tmp[1][1][j])/2.0;
-	    }
 	    int ndepth8 = depth8 + 8;
 	    for (int j = 0; j < 2; j++) {
-		workspace[ndepth8+j] = workspace[depth8+j];
-		workspace[ndepth8+2+j] = tmp[0][0][j];
-		workspace[ndepth8+4+j] = tmp[1][0][j];
-		workspace[ndepth8+6+j] = tmp[2][0][j];
-		workspace[depth8+j] = tmp[2][0][j];
-		workspace[depth8+2+j] = tmp[1][1][j];
-		workspace[depth8+4+j] = tmp[0][2][j];
+		double p0 = workspace[depth8+j];
+		double p1 = workspace[depth8+2+j];
+		double p2 = workspace[depth8+4+j];
+		double p3 = workspace[depth8+6+j];
+		double m01 = (p0 + p1)/2.0;
+		double m12 = (p1 + p2)/2.0;
+		double m23 = (p2 + p3)/2.0;
+		double m012 = (m01 + m12)/2.0;
+		double m123 = (m12 + m23)/2.0;
+		double m0123 = (m012 + m123)/2.0;
+		workspace[ndepth8+j] = p0;
+		workspace[ndepth8+2+j] = m01;
+		workspace[ndepth8+4+j] = m012;
+		workspace[ndepth8+6+j] = m0123;
+		workspace[depth8+j] = m0123;
+		workspace[depth8+2+j] = m123;
+		workspace[depth8+4+j] = m23;
 	    }
 	    break;
 	}
@@ -969,4 +1133,5 @@ public class FlatteningPathIterator2D implements PathIterator {
 
 }
 //  LocalWords:  eacute zier FlatteningPathIterator PathIterator src
-//  LocalWords:  Bezier
+//  LocalWords:  Bezier sub ddx ddy dx dy ArrayIndexOutOfBoundsException
+//  LocalWords:  getLineCount
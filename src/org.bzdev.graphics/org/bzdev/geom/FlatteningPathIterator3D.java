@@ -475,10 +475,212 @@ public class FlatteningPathIterator3D implements PathIterator3D {
      */
     public int getRecursionLimit() {return limit;}
 
+    /**
+     * Get the number of straight-line segments needed to approximate
+     * a segment to within a given distance, using a uniform spacing
+     * of the path parameter.
+     * For a quadratic or cubic B&eacute;zier curve with control points
+     * P<sub>0</sub>, ... P<sub>n</sub>, the second derivative's
+     * magnitude is bounded by M = n(n-1) max<sub>i</sub>
+     * |P<sub>i</sub> - 2P<sub>i+1</sub> + P<sub>i+2</sub>|, and a
+     * curve whose path parameter changes by h over a straight-line
+     * segment deviates from that line by no more than Mh<sup>2</sup>/8.
+     * The value returned is the smallest number of lines for which this
+     * bound does not exceed the flatness, but not more than
+     * 2<sup>limit</sup>, the number of segments that a flattening path
+     * iterator with the same recursion limit can create.
+     * <P>
+     * A {@link PathIterator3D#SEG_CLOSE} segment is not accepted: its
+     * end point is the start of the current subpath, which
+     * {@link PathIterator3D#currentSegment(double[])} does not provide.
+     * To flatten one, use {@link PathIterator3D#SEG_LINETO} with coords
+     * containing the subpath's starting point.
+     * @param type the type of the segment ({@link PathIterator3D#SEG_LINETO},
+     *        {@link PathIterator3D#SEG_QUADTO}, or
+     *        {@link PathIterator3D#SEG_CUBICTO})
+     * @param x0 the starting X coordinate for the segment
+     * @param y0 the starting Y coordinate for the segment
+     * @param z0 the starting Z coordinate for the segment
+     * @param coords the coordinates for the segment as returned by
+     *        {@link PathIterator3D#currentSegment(double[])}
+     * @param flatness the flatness constraint; 0.0 if the recursion
+     *        limit alone determines the number of lines
+     * @param limit the recursion limit
+     * @return the number of lines
+     * @exception IllegalArgumentException the flatness or the limit was
+     *            negative, or the segment type was not recognized
+     *            (this includes {@link PathIterator3D#SEG_CLOSE})
+     */
+    public static int getLineCount(int type, double x0, double y0,
+				   double z0,
+				   double[] coords,
+				   double flatness, int limit)
+	throws IllegalArgumentException
+    {
+	if (limit < 0) {
+	    throw new IllegalArgumentException(errorMsg("negativeLimit"));
+	}
+	if (flatness < 0.0) {
+	    throw new IllegalArgumentException(errorMsg("negativeFlatness"));
+	}
+	int max = 1 << Math.min(limit, 30);
+	double m;
+	switch (type) {
+	case PathIterator3D.SEG_LINETO:
+	    return 1;
+	case PathIterator3D.SEG_QUADTO:
+	    {
+		double ddx = x0 - 2.0*coords[0] + coords[3];
+		double ddy = y0 - 2.0*coords[1] + coords[4];
+		double ddz = z0 - 2.0*coords[2] + coords[5];
+		m = 2.0 * Math.sqrt(ddx*ddx + ddy*ddy + ddz*ddz);
+	    }
+	    break;
+	case PathIterator3D.SEG_CUBICTO:
+	    {
+		double ddx1 = x0 - 2.0*coords[0] + coords[3];
+		double ddy1 = y0 - 2.0*coords[1] + coords[4];
+		double ddz1 = z0 - 2.0*coords[2] + coords[5];
+		double ddx2 = coords[0] - 2.0*coords[3] + coords[6];
+		double ddy2 = coords[1] - 2.0*coords[4] + coords[7];
+		double ddz2 = coords[2] - 2.0*coords[5] + coords[8];
+		m = 6.0 * Math.sqrt(Math.max(ddx1*ddx1 + ddy1*ddy1 + ddz1*ddz1,
+					     ddx2*ddx2 + ddy2*ddy2
+					     + ddz2*ddz2));
+	    }
+	    break;
+	default:
+	    throw new IllegalArgumentException
+		(errorMsg("unknownSegmentType", type));
+	}
+	if (flatness == 0.0) return max;
+	double n = Math.ceil(Math.sqrt(m / (8.0 * flatness)));
+	return (n < 1.0)? 1: ((n > max)? max: (int)n);
+    }
+
+    /**
+     * Approximate a segment by straight lines, using forward differences.
+     * The number of lines is the value returned by
+     * {@link #getLineCount(int,double,double,double,double[],double,int)}
+     * and the lines' end points are the points on the segment at
+     * uniformly spaced values of its path parameter.  These are computed
+     * by forward differencing, which requires only additions for each
+     * point, and the last point is set to the segment's end point.
+     * No objects are allocated, so this method is suitable for
+     * flattening a large number of segments (for example, for hit
+     * testing). Unlike a flattening path iterator, the lines are not
+     * returned as quadratic or cubic segments, and no transform is
+     * applied.
+     * <P>
+     * The array points must have a length of at least
+     * offset + 3n, where n is the number of lines (this value is at most
+     * 2<sup>limit</sup>).  The end point of the i<sup>th</sup> line
+     * will be stored at indices offset+3i, offset+3i+1, and offset+3i+2
+     * for the X, Y, and Z coordinates respectively. The start point of
+     * the first line is (x0, y0, z0) and is not stored.
+     * @param type the type of the segment ({@link PathIterator3D#SEG_LINETO},
+     *        {@link PathIterator3D#SEG_QUADTO}, or
+     *        {@link PathIterator3D#SEG_CUBICTO})
+     * @param x0 the starting X coordinate for the segment
+     * @param y0 the starting Y coordinate for the segment
+     * @param z0 the starting Z coordinate for the segment
+     * @param coords the coordinates for the segment as returned by
+     *        {@link PathIterator3D#currentSegment(double[])}
+     * @param flatness the flatness constraint; 0.0 if the recursion
+     *        limit alone determines the number of lines
+     * @param limit the recursion limit
+     * @param points an array to hold the lines' end points
+     * @param offset the offset into the points array for the first
+     *        end point
+     * @return the number of lines
+     * @exception IllegalArgumentException the flatness or the limit was
+     *            negative, or the segment type was not recognized
+     *            (this includes {@link PathIterator3D#SEG_CLOSE})
+     * @exception ArrayIndexOutOfBoundsException the points array is
+     *            too short
+     */
+    public static int flattenToLines(int type, double x0, double y0,
+				     double z0,
+				     double[] coords,
+				     double flatness, int limit,
+				     double[] points, int offset)
+	throws IllegalArgumentException, ArrayIndexOutOfBoundsException
+    {
+	int n = getLineCount(type, x0, y0, z0, coords, flatness, limit);
+	int last = offset + 3*(n-1);
+	double ax, bx, cx, ay, by, cy, az, bz, cz;
+	switch (type) {
+	case PathIterator3D.SEG_LINETO:
+	    points[offset] = coords[0];
+	    points[offset+1] = coords[1];
+	    points[offset+2] = coords[2];
+	    return n;
+	case PathIterator3D.SEG_QUADTO:
+	    ax = 0.0;
+	    ay = 0.0;
+	    az = 0.0;
+	    bx = x0 - 2.0*coords[0] + coords[3];
+	    by = y0 - 2.0*coords[1] + coords[4];
+	    bz = z0 - 2.0*coords[2] + coords[5];
+	    cx = 2.0*(coords[0] - x0);
+	    cy = 2.0*(coords[1] - y0);
+	    cz = 2.0*(coords[2] - z0);
+	    points[last] = coords[3];
+	    points[last+1] = coords[4];
+	    points[last+2] = coords[5];
+	    break;
+	default:
+	    // getLineCount rejected other types, so this is SEG_CUBICTO
+	    ax = coords[6] - x0 + 3.0*(coords[0] - coords[3]);
+	    ay = coords[7] - y0 + 3.0*(coords[1] - coords[4]);
+	    az = coords[8] - z0 + 3.0*(coords[2] - coords[5]);
+	    bx = 3.0*(x0 - 2.0*coords[0] + coords[3]);
+	    by = 3.0*(y0 - 2.0*coords[1] + coords[4]);
+	    bz = 3.0*(z0 - 2.0*coords[2] + coords[5]);
+	    cx = 3.0*(coords[0] - x0);
+	    cy = 3.0*(coords[1] - y0);
+	    cz = 3.0*(coords[2] - z0);
+	    points[last] = coords[6];
+	    points[last+1] = coords[7];
+	    points[last+2] = coords[8];
+	    break;
+	}
+	// The curve is a t^3 + b t^2 + c t + P0 and we step by h.
+	double h = 1.0/n;
+	double h2 = h*h;
+	double h3 = h2*h;
+	double x = x0;
+	double y = y0;
+	double z = z0;
+	double dx = ax*h3 + bx*h2 + cx*h;
+	double dy = ay*h3 + by*h2 + cy*h;
+	double dz = az*h3 + bz*h2 + cz*h;
+	double ddx = 6.0*ax*h3 + 2.0*bx*h2;
+	double ddy = 6.0*ay*h3 + 2.0*by*h2;
+	double ddz = 6.0*az*h3 + 2.0*bz*h2;
+	double dddx = 6.0*ax*h3;
+	double dddy = 6.0*ay*h3;
+	double dddz = 6.0*az*h3;
+	for (int i = offset; i < last; i += 3) {
+	    x += dx;
+	    y += dy;
+	    z += dz;
+	    dx += ddx;
+	    dy += ddy;
+	    dz += ddz;
+	    ddx += dddx;
+	    ddy += dddy;
+	    ddz += dddz;
+	    points[i] = x;
+	    points[i+1] = y;
+	    points[i+2] = z;
+	}
+	return n;
+    }
+
     boolean usingRecursion = false;
     int mode = -1;
     double[] workspace = null;
-    double[][][] tmp = new double[3][3][3];
     double ftmp[] = new double[12];
 
     int depth = 0;
@@ -671,55 +873,42 @@ public class FlatteningPathIterator3D implements PathIterator3D {
 	    break;
 	case PathIterator3D.SEG_QUADTO:
 	    int depth9 = 9*depth;
-	    for (int i = 1; i < 3; i++) {
-		int im1 = i - 1;
-		for (int j = 0; j < 3; j++) {
-		    int k = 3*i+j;
-		    tmp[0][im1][j] = (workspace[depth9 + k-3] + 
-				      workspace[depth9 + k])/2.0;
-		}
-	    }
-	    for (int j = 0; j < 3; j++) {
-		tmp[1][0][j] = (tmp[0][0][j] + tmp[0][1][j])/2.0;
-	    }
 	    int ndepth9 = depth9 + 9;
 	    for (int j = 0; j < 3; j++) {
-		workspace[ndepth9+j] = workspace[depth9+j];
-		workspace[ndepth9+3+j] = tmp[0][0][j];
-		workspace[ndepth9+6+j] = tmp[1][0][j];
-		workspace[depth9+j] = tmp[1][0][j];
-		workspace[depth9+3+j] = tmp[0][1][j];
+		double p0 = workspace[depth9+j];
+		double p1 = workspace[depth9+3+j];
+		double p2 = workspace[depth9+6+j];
+		double m01 = (p0 + p1)/2.0;
+		double m12 = (p1 + p2)/2.0;
+		double m012 = (m01 + m12)/2.0;
+		workspace[ndepth9+j] = p0;
+		workspace[ndepth9+3+j] = m01;
+		workspace[ndepth9+6+j] = m012;
+		workspace[depth9+j] = m012;
+		workspace[depth9+3+j] = m12;
 	    }
 	    break;
 	case PathIterator3D.SEG_CUBICTO:
 	    int depth12 = 12*depth;
-	    for (int i = 1; i < 4; i++) {
-		int im1 = i - 1;
-		for (int j = 0; j < 3; j++) {
-		    int k = 3*i+j;
-		    tmp[0][im1][j] = (workspace[depth12 + k-3] + 
-				      workspace[depth12 + k])/2.0;
-		}
-	    }
-	    for (int i = 1; i < 3; i++) {
-		int im1 = i - 1;
-		for (int j = 0; j < 3; j++) {
-		    int k = 3*i+j;
-		    tmp[1][im1][j] = (tmp[0][im1][j] + tmp[0][i][j])/2.0;
-		}
-	    }
-	    for (int j = 0; j < 3; j++) {
-		tmp[2][0][j] = (tmp[1][0][j] + tmp[1][1][j])/2.0;
-	    }
 	    int ndepth12 = depth12 + 12;
 	    for (int j = 0; j < 3; j++) {
-		workspace[ndepth12+j] = workspace[depth12+j];
-		workspace[ndepth12+3+j] = tmp[0][0][j];
-		workspace[ndepth12+6+j] = tmp[1][0][j];
-		workspace[ndepth12+9+j] = tmp[2][0][j];
-		workspace[depth12+j] = tmp[2][0][j];
-		workspace[depth12+3+j] = tmp[1][1][j];
-		workspace[depth12+6+j] = tmp[0][2][j];
+		double p0 = workspace[depth12+j];
+		double p1 = workspace[depth12+3+j];
+		double p2 = workspace[depth12+6+j];
+		double p3 = workspace[depth12+9+j];
+		double m01 = (p0 + p1)/2.0;
+		double m12 = (p1 + p2)/2.0;
+		double m23 = (p2 + p3)/2.0;
+		double m012 = (m01 + m12)/2.0;
+		double m123 = (m12 + m23)/2.0;
+		double m0123 = (m012 + m123)/2.0;
+		workspace[ndepth12+j] = p0;
+		workspace[ndepth12+3+j] = m01;
+		workspace[ndepth12+6+j] = m012;
+		workspace[ndepth12+9+j] = m0123;
+		workspace[depth12+j] = m0123;
+		workspace[depth12+3+j] = m123;
+		workspace[depth12+6+j] = m23;
 	    }
 	    break;
 	}
@@ -916,4 +1105,5 @@ public class FlatteningPathIterator3D implements PathIterator3D {
     }
 }
 //  LocalWords:  eacute zier FlatteningPathIterator PathIterator src
-//  LocalWords:  Bezier
+//  LocalWords:  Bezier sub ddx ddy dx dy ArrayIndexOutOfBoundsException
+//  LocalWords:  getLineCount ddz dz
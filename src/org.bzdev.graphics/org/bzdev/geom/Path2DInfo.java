@@ -2942,7 +2942,7 @@ public class Path2DInfo {
 	    for (int i = 0; i < degree; i++) {
 		bcoords[i+1] = (coords[2*i+1]-y1) -a*(coords[2*i] - x1);
 	    }
-	    double[] result = new double[2];
+	    double[] result = new double[degree];
 	    int n = RootFinder.solveBezier(bcoords, 0, degree, result);
 	    if (n == 0) return null;
 	    bcoords[0] = x3;
@@ -3186,6 +3186,378 @@ public class Path2DInfo {
 	return result;
     }
 
+    /**
+     * Intersection of two path segments.
+     * Instances are created by
+     * {@link Path2DInfo#getSegmentIntersections(List)} and
+     * {@link Path2DInfo#getSegmentIntersections(List,List)}.
+     */
+    public static final class SegmentIntersection {
+	private Entry entry1;
+	private Entry entry2;
+	private double u1;
+	private double u2;
+	private double x;
+	private double y;
+
+	SegmentIntersection(Entry entry1, Entry entry2,
+			    double u1, double u2, double x, double y)
+	{
+	    this.entry1 = entry1;
+	    this.entry2 = entry2;
+	    this.u1 = u1;
+	    this.u2 = u2;
+	    this.x = x;
+	    this.y = y;
+	}
+
+	/**
+	 * Get the entry for the first segment.
+	 * @return the entry for the first segment
+	 */
+	public Entry getEntry1() {return entry1;}
+
+	/**
+	 * Get the entry for the second segment.
+	 * @return the entry for the second segment
+	 */
+	public Entry getEntry2() {return entry2;}
+
+	/**
+	 * Get the path parameter for the first segment at this
+	 * intersection.
+	 * @return the path parameter, in the range [0.0, 1.0]
+	 */
+	public double getU1() {return u1;}
+
+	/**
+	 * Get the path parameter for the second segment at this
+	 * intersection.
+	 * @return the path parameter, in the range [0.0, 1.0]
+	 */
+	public double getU2() {return u2;}
+
+	/**
+	 * Get the X coordinate of this intersection.
+	 * @return the X coordinate
+	 */
+	public double getX() {return x;}
+
+	/**
+	 * Get the Y coordinate of this intersection.
+	 * @return the Y coordinate
+	 */
+	public double getY() {return y;}
+    }
+
+    // Tolerance for the path parameter used to recognize the point
+    // shared by adjacent segments.
+    private static final double ADJACENT_LIMIT = 1.0e-9;
+
+    // A segment that can intersect another segment, with the
+    // bounding box of its control points.
+    private static final class IntersectionCandidate {
+	Entry entry;
+	int type;
+	double x;
+	double y;
+	double[] coords;
+	double endX;
+	double endY;
+	double minX;
+	double maxX;
+	double minY;
+	double maxY;
+	int seq;
+	int subpath;
+	boolean first = false;
+	boolean closes = false;
+
+	IntersectionCandidate(Entry entry, int type, int seq, int subpath) {
+	    this.entry = entry;
+	    this.type = type;
+	    this.seq = seq;
+	    this.subpath = subpath;
+	    x = entry.x;
+	    y = entry.y;
+	    coords = entry.coords;
+	    minX = x; maxX = x;
+	    minY = y; maxY = y;
+	    int n;
+	    switch (type) {
+	    case PathIterator.SEG_LINETO:
+		n = 2;
+		break;
+	    case PathIterator.SEG_QUADTO:
+		n = 4;
+		break;
+	    case PathIterator.SEG_CUBICTO:
+		n = 6;
+		break;
+	    default:
+		throw new IllegalArgumentException(errorMsg("piUnknown"));
+	    }
+	    for (int i = 0; i < n; i += 2) {
+		double cx = coords[i];
+		double cy = coords[i+1];
+		if (cx < minX) minX = cx;
+		if (cx > maxX) maxX = cx;
+		if (cy < minY) minY = cy;
+		if (cy > maxY) maxY = cy;
+	    }
+	    endX = coords[n-2];
+	    endY = coords[n-1];
+	}
+    }
+
+    private static IntersectionCandidate[]
+	getIntersectionCandidates(List<Entry> entries)
+    {
+	ArrayList<IntersectionCandidate> list =
+	    new ArrayList<>(entries.size());
+	int subpath = 0;
+	IntersectionCandidate first = null;
+	IntersectionCandidate last = null;
+	for (Entry entry: entries) {
+	    int type = entry.type;
+	    if (type == PathIterator.SEG_MOVETO) {
+		if (first != null && last != first
+		    && last.endX == first.x && last.endY == first.y) {
+		    last.closes = true;
+		}
+		first = null;
+		last = null;
+		subpath++;
+		continue;
+	    }
+	    if (!entry.hasStart) continue;
+	    if (type == PathIterator.SEG_CLOSE
+		|| type == PathIterator.SEG_LINETO) {
+		// zero-length lines (e.g., a SEG_CLOSE following a
+		// segment that ends at the subpath's initial point)
+		// cannot contribute an intersection.
+		if (entry.coords[0] == entry.x
+		    && entry.coords[1] == entry.y) {
+		    continue;
+		}
+		type = PathIterator.SEG_LINETO;
+	    }
+	    IntersectionCandidate c =
+		new IntersectionCandidate(entry, type, list.size(), subpath);
+	    if (first == null) {
+		first = c;
+		c.first = true;
+	    }
+	    last = c;
+	    list.add(c);
+	}
+	if (first != null && last != first
+	    && last.endX == first.x && last.endY == first.y) {
+	    last.closes = true;
+	}
+	return list.toArray(new IntersectionCandidate[list.size()]);
+    }
+
+    // Sort and sweep: candidates are sorted by the lower X coordinate
+    // of their bounding boxes, so the boxes that can overlap a given
+    // box are the ones that follow it in sorted order until the lower
+    // X coordinate exceeds the upper X coordinate of the given box.
+    // Pairs are returned sorted, encoded as seq1 << 32 | seq2.
+    private static long[] sweep(IntersectionCandidate[] sorted,
+				boolean cross)
+    {
+	Arrays.sort(sorted, (c1, c2) -> Double.compare(c1.minX, c2.minX));
+	long[] pairs = new long[Math.max(16, sorted.length)];
+	int npairs = 0;
+	for (int i = 0; i < sorted.length; i++) {
+	    IntersectionCandidate c1 = sorted[i];
+	    for (int j = i+1; j < sorted.length; j++) {
+		IntersectionCandidate c2 = sorted[j];
+		if (c2.minX > c1.maxX) break;
+		if (c2.minY > c1.maxY || c1.minY > c2.maxY) continue;
+		long pair;
+		if (cross) {
+		    // for cross pairs, subpath is 0 for the first list
+		    // and 1 for the second.
+		    if (c1.subpath == c2.subpath) continue;
+		    pair = (c1.subpath == 0)?
+			(((long)c1.seq) << 32) | c2.seq:
+			(((long)c2.seq) << 32) | c1.seq;
+		} else {
+		    pair = (c1.seq < c2.seq)?
+			(((long)c1.seq) << 32) | c2.seq:
+			(((long)c2.seq) << 32) | c1.seq;
+		}
+		if (npairs == pairs.length) {
+		    pairs = Arrays.copyOf(pairs, 2*npairs);
+		}
+		pairs[npairs++] = pair;
+	    }
+	}
+	pairs = Arrays.copyOf(pairs, npairs);
+	Arrays.sort(pairs);
+	return pairs;
+    }
+
+    private static void addIntersections(List<SegmentIntersection> results,
+					 IntersectionCandidate c1,
+					 IntersectionCandidate c2,
+					 boolean adjacent,
+					 boolean closing)
+    {
+	double[] uvxy = getSegmentIntersectionUVXY(c1.type, c1.x, c1.y,
+						   c1.coords,
+						   c2.type, c2.x, c2.y,
+						   c2.coords);
+	if (uvxy == null) return;
+	for (int k = 0; k < uvxy.length; k += 4) {
+	    double u1 = uvxy[k];
+	    double u2 = uvxy[k+1];
+	    if (adjacent && u1 >= 1.0 - ADJACENT_LIMIT
+		&& u2 <= ADJACENT_LIMIT) {
+		continue;
+	    }
+	    if (closing && u1 <= ADJACENT_LIMIT
+		&& u2 >= 1.0 - ADJACENT_LIMIT) {
+		continue;
+	    }
+	    results.add(new SegmentIntersection(c1.entry, c2.entry, u1, u2,
+						uvxy[k+2], uvxy[k+3]));
+	}
+    }
+
+    /**
+     * Find the intersections between the distinct segments of a shape.
+     * This is equivalent to calling
+     * {@link #getSegmentIntersections(List)} with the entries
+     * returned by {@link #getEntries(Shape)}.
+     * @param shape the shape
+     * @return the intersections
+     * @exception IllegalArgumentException the shape's path is ill formed
+     */
+    public static List<SegmentIntersection>
+	getSegmentIntersections(Shape shape)
+	throws IllegalArgumentException
+    {
+	return getSegmentIntersections(getEntries(shape));
+    }
+
+    /**
+     * Find the intersections between the distinct segments in a list
+     * of entries.
+     * The bounding box of each segment's control points contains the
+     * segment, so the exact intersection computation (the one used by
+     * {@link #getSegmentIntersectionUVXY(int,double,double,double[],int,double,double,double[])})
+     * is applied only to pairs of segments whose bounding boxes
+     * overlap.  These pairs are found by sorting the boxes by their
+     * lower X coordinate and sweeping across them, which for typical
+     * paths is much faster than testing every pair of segments.
+     * <P>
+     * Entries whose type is PathIterator.SEG_MOVETO separate subpaths
+     * and entries whose type is PathIterator.SEG_CLOSE are treated as
+     * straight lines.  The end point of a segment and the start point
+     * of the following segment in the same subpath are not reported
+     * as an intersection, nor is the start of a subpath if the subpath
+     * is closed.  A segment that intersects itself (e.g., a cubic
+     * B&eacute;zier curve that forms a loop) is not checked.
+     * <P>
+     * The intersections are ordered by the positions of the first
+     * segment and then the second segment in the list, and the
+     * first segment precedes the second segment in the list.
+     * @param entries the entries, typically the list returned by
+     *        {@link #getEntries(Shape)}
+     * @return the intersections
+     * @exception IllegalArgumentException an entry had an unknown
+     *            segment type
+     */
+    public static List<SegmentIntersection>
+	getSegmentIntersections(List<Entry> entries)
+	throws IllegalArgumentException
+    {
+	IntersectionCandidate[] candidates =
+	    getIntersectionCandidates(entries);
+	long[] pairs = sweep(candidates.clone(), false);
+	ArrayList<SegmentIntersection> results = new ArrayList<>();
+	for (long pair: pairs) {
+	    IntersectionCandidate c1 = candidates[(int)(pair >>> 32)];
+	    IntersectionCandidate c2 = candidates[(int)pair];
+	    boolean sameSubpath = (c1.subpath == c2.subpath);
+	    boolean adjacent = sameSubpath && c2.seq == c1.seq + 1
+		&& c1.endX == c2.x && c1.endY == c2.y;
+	    boolean closing = sameSubpath && c1.first && c2.closes;
+	    addIntersections(results, c1, c2, adjacent, closing);
+	}
+	return results;
+    }
+
+    /**
+     * Find the intersections between the segments of two shapes.
+     * This is equivalent to calling
+     * {@link #getSegmentIntersections(List,List)} with the entries
+     * returned by {@link #getEntries(Shape)}.
+     * @param shape1 the first shape
+     * @param shape2 the second shape
+     * @return the intersections
+     * @exception IllegalArgumentException a shape's path is ill formed
+     */
+    public static List<SegmentIntersection>
+	getSegmentIntersections(Shape shape1, Shape shape2)
+	throws IllegalArgumentException
+    {
+	return getSegmentIntersections(getEntries(shape1),
+				       getEntries(shape2));
+    }
+
+    /**
+     * Find the intersections between the segments in one list of
+     * entries and the segments in another.
+     * Candidate pairs are found as described for
+     * {@link #getSegmentIntersections(List)}, but only pairs with
+     * one segment from each list are tested, and no intersections
+     * are ignored.
+     * <P>
+     * For each intersection, the first segment is from the first list
+     * and the second segment is from the second list.  The
+     * intersections are ordered by the positions of the first segment
+     * in the first list and then the second segment in the second list.
+     * @param entries1 the first list of entries
+     * @param entries2 the second list of entries
+     * @return the intersections
+     * @exception IllegalArgumentException an entry had an unknown
+     *            segment type
+     */
+    public static List<SegmentIntersection>
+	getSegmentIntersections(List<Entry> entries1, List<Entry> entries2)
+	throws IllegalArgumentException
+    {
+	IntersectionCandidate[] candidates1 =
+	    getIntersectionCandidates(entries1);
+	IntersectionCandidate[] candidates2 =
+	    getIntersectionCandidates(entries2);
+	IntersectionCandidate[] all =
+	    new IntersectionCandidate[candidates1.length
+				      + candidates2.length];
+	// reuse the subpath field to indicate which list a candidate
+	// came from; adjacency does not apply to cross pairs.
+	for (int i = 0; i < candidates1.length; i++) {
+	    candidates1[i].subpath = 0;
+	    all[i] = candidates1[i];
+	}
+	for (int i = 0; i < candidates2.length; i++) {
+	    candidates2[i].subpath = 1;
+	    all[candidates1.length + i] = candidates2[i];
+	}
+	long[] pairs = sweep(all, true);
+	ArrayList<SegmentIntersection> results = new ArrayList<>();
+	for (long pair: pairs) {
+	    addIntersections(results,
+			     candidates1[(int)(pair >>> 32)],
+			     candidates2[(int)pair],
+			     false, false);
+	}
+	return results;
+    }
+
     /**
      * Class to represent a value of the path parameter u.
      * This class caches the parameter u and some related values
@@ -3220,6 +3592,13 @@ public class Path2DInfo {
 		throw new
 		    IllegalArgumentException(errorMsg("argOutOfRange", u));
 	    }
+	    set(u);
+	}
+
+	// Reset the values for a new path parameter, which must be in
+	// the range [0.0, 1.0]. Used to avoid creating an instance for
+	// each of a sequence of values.
+	void set(double u) {
 	    this.u = u;
 	    u1 = 1.0 - u;
 	    uu = u*u;
@@ -8748,4 +9127,4 @@ public class Path2DInfo {
 //  LocalWords:  noSegsBeforeClose unknownSegmentType endingMOVETO
 //  LocalWords:  inlineMath displayMath argarraylength monomial frac
 //  LocalWords:  ArithmeticException asCubic subsegment NOSCRIPT
-//  LocalWords:  areaOf
+//  LocalWords:  areaOf SegmentIntersection eacute zier
@@ -1567,6 +1567,13 @@ public class Path3DInfo {
 		throw new
 		    IllegalArgumentException(errorMsg("argOutOfRange", u));
 	    }
+	    set(u);
+	}
+
+	// Reset the values for a new path parameter, which must be in
+	// the range [0.0, 1.0]. Used to avoid creating an instance for
+	// each of a sequence of values.
+	void set(double u) {
 	    this.u = u;
 	    u1 = 1.0 - u;
 	    uu = u*u;
@@ -0,0 +1,51 @@
+package org.bzdev.geom;
+
+/**
+ * A surface iterator that can be split into iterators covering
+ * disjoint ranges of its segments.
+ * This interface is analogous to {@link java.util.Spliterator}: an
+ * iterator can be split recursively so that separate threads can
+ * process separate ranges of a surface's segments concurrently.
+ * Splitting an iterator does not copy the surface's segments. The
+ * iterators share the surface's data, so the surface must not be
+ * modified while any of them are in use.
+ * <P>
+ * The iterator returned by {@link #trySplit()} covers a prefix of the
+ * segments that this iterator has not yet provided, and this iterator
+ * will then cover the remaining segments.  Consequently, results
+ * computed from the segments provided by each iterator can be merged
+ * deterministically, with the result for the iterator returned by
+ * {@link #trySplit()} preceding the result for this iterator.  The
+ * segments from all of the iterators, taken in that order, are the
+ * segments the original iterator would have provided.
+ * <P>
+ * The class {@link SurfaceExecutor} uses this interface to process a
+ * surface in parallel when a surface iterator implements it.
+ */
+public interface SplittableSurfaceIterator extends SurfaceIterator {
+
+    /**
+     * Split this iterator.
+     * If this iterator can be split, the iterator returned will
+     * provide the segments starting with this iterator's current
+     * segment and ending before some later segment, and this
+     * iterator will be advanced to that later segment.  An iterator
+     * will not be split if it has too few segments remaining or if
+     * it uses a transform that may not be safe to use concurrently.
+     * @return an iterator covering a prefix of this iterator's
+     *         remaining segments; null if this iterator cannot be
+     *         split
+     */
+    SplittableSurfaceIterator trySplit();
+
+    /**
+     * Estimate the number of segments that this iterator has not
+     * yet provided.
+     * The estimate is used to decide how finely to split an iterator
+     * and need not be exact.
+     * @return the estimated number of remaining segments
+     */
+    long estimateSize();
+}
+
+//  LocalWords:  trySplit SurfaceExecutor
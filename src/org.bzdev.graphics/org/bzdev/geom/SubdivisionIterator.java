@@ -504,71 +504,77 @@ public class SubdivisionIterator implements SurfaceIterator {
 	double[][] results = new double[2][];
 	results[0] = new double[12];
 	results[1] = new double[12];
+	splitCubicBezierCurve(curve, offset, results[0], 0, results[1], 0);
+	return results;
+    }
+
+    // Kahan summation of row 'row' of a 4x4 column-ordered matrix
+    // times the vector (v0, v1, v2, v3), with the terms added in the
+    // same order that MatrixOps.multiply uses so that the results are
+    // identical.
+    private static double kahanDot(double[] matrix, int row,
+				   double v0, double v1,
+				   double v2, double v3)
+    {
+	double total = 0.0;
+	double c = 0.0;
+	for (int k = 0; k < 4; k++) {
+	    double v = (k == 0)? v0: (k == 1)? v1: (k == 2)? v2: v3;
+	    double y = matrix[row + 4*k]*v - c;
+	    double t = total + y;
+	    c = (t - total) - y;
+	    total = t;
+	}
+	return total;
+    }
+
+    /**
+     * Split a cubic B&eacute;zier curve into two parts at the midpoint of
+     * the path parameter, storing the results in arrays provided by
+     * the caller.
+     * <P>
+     * The values stored are identical to those returned by
+     * {@link #splitCubicBezierCurve(double[],int)}, but no objects are
+     * allocated.  The left or right array may be the curve array
+     * provided that its offset is the same as the curve's offset;
+     * otherwise the region of the curve array that contains the curve
+     * must not overlap the regions of the left and right arrays that
+     * will contain the results.
+     * @param curve the four control points making up a cubic
+     *        B&eacute;zier curve
+     * @param offset the offset into the curve array at which the
+     *        cubic B&eacute;zier curve starts
+     * @param left an array to store the 12 coordinates of the control
+     *        points for the left partition
+     * @param loffset the offset into the left array at which to store
+     *        the left partition
+     * @param right an array to store the 12 coordinates of the control
+     *        points for the right partition
+     * @param roffset the offset into the right array at which to store
+     *        the right partition
+     */
+    public static void splitCubicBezierCurve(double[] curve, int offset,
+					     double[] left, int loffset,
+					     double[] right, int roffset)
+    {
 	for (int i = 0; i < 3; i++) {
-	    MatrixOps.multiply(results[0], 4, 1, 0, SL, 4, 4, 0,
-			       curve, 4, 1, offset,
-			       true, i, 3, 0, 1, i, 3);
-	}
-	for (int i = 0; i < 3; i++) {
-	    MatrixOps.multiply(results[1], 4, 1, 0, SR, 4, 4, 0,
-			       curve, 4, 1, offset,
-			       true, i, 3, 0, 1, i, 3);
-	}
-	double[] tmp = new double[12];
-	double[] tmp2 = new double[12];
-	int ii = 3;
-	for (int i = 0; i < 4; i++, ii--) {
-	    int j = i*3;
-	    int jj = ii*3;
-	    tmp[j] = curve[offset +jj];
-	    tmp[j+1] = curve[offset + jj + 1];
-	    tmp[j+2] = curve[offset + jj + 2];
-	}
-	for (int i = 0; i < 3; i++) {
-	    MatrixOps.multiply(tmp2, 4, 1, 0, SR, 4, 4, 0,
-			       tmp, 4, 1, 0,
-			       true, i, 3, 0, 1, i, 3);
-	}
-	ii = 3;
-	for (int i = 0; i < 2; i++, ii--) {
-	    int j = i*3;
-	    int jj = ii*3;
-	    double tval = tmp2[j];
-	    tmp2[j] = tmp2[jj];
-	    tmp2[jj] = tval;
-	    tval = tmp2[j+1];
-	    tmp2[j+1] = tmp2[jj+1];
-	    tmp2[jj+1] = tval;
-	    tval = tmp2[j+2];
-	    tmp2[j+2] = tmp2[jj+2];
-	    tmp2[jj+2] = tval;
-	}
-	for (int i = 0; i < 12; i++) {
-	    results[0][i] = (results[0][i] + tmp2[i]) / 2.0;
-	}
-	for (int i = 0; i < 3; i++) {
-	    MatrixOps.multiply(tmp2, 4, 1, 0, SL, 4, 4, 0,
-			       tmp, 4, 1, 0,
-			       true, i, 3, 0, 1, i, 3);
-	}
-	ii = 3;
-	for (int i = 0; i < 2; i++, ii--) {
-	    int j = i*3;
-	    int jj = ii*3;
-	    double tval = tmp2[j];
-	    tmp2[j] = tmp2[jj];
-	    tmp2[jj] = tval;
-	    tval = tmp2[j+1];
-	    tmp2[j+1] = tmp2[jj+1];
-	    tmp2[jj+1] = tval;
-	    tval = tmp2[j+2];
-	    tmp2[j+2] = tmp2[jj+2];
-	    tmp2[jj+2] = tval;
-	}
-	for (int i = 0; i < 12; i++) {
-	    results[1][i] = (results[1][i] + tmp2[i]) / 2.0;
+	    double c0 = curve[offset + i];
+	    double c1 = curve[offset + 3 + i];
+	    double c2 = curve[offset + 6 + i];
+	    double c3 = curve[offset + 9 + i];
+	    // Average the split of the curve and the split of the
+	    // reversed curve so that the results do not depend on
+	    // the curve's direction.
+	    for (int j = 0; j < 4; j++) {
+		int k = 3 - j;
+		left[loffset + 3*j + i] =
+		    (kahanDot(SL, j, c0, c1, c2, c3)
+		     + kahanDot(SR, k, c3, c2, c1, c0)) / 2.0;
+		right[roffset + 3*j + i] =
+		    (kahanDot(SR, j, c0, c1, c2, c3)
+		     + kahanDot(SL, k, c3, c2, c1, c0)) / 2.0;
+	    }
 	}
-	return results;
     }
 
 
@@ -723,8 +729,9 @@ public class SubdivisionIterator implements SurfaceIterator {
 	double[] cp111L = new double[3];
 	double[] cp111U = new double[3];
 
-	double[][] splitEdges = SubdivisionIterator
-	    .splitCubicBezierCurve(coords, offset);
+	double[][] splitEdges = {new double[12], new double[12]};
+	splitCubicBezierCurve(coords, offset,
+			      splitEdges[0], 0, splitEdges[1], 0);
 	for (int i = 0; i < 3; i++) {
 	    cp120[i] = 0.25*coords[offset+12+i]
 		+ 0.5*coords[offset+15+i] + 0.25*coords[offset+18+i];
@@ -1263,9 +1270,7 @@ public class SubdivisionIterator implements SurfaceIterator {
     void splitCubicPath(double[] workspace, double[] workspaceA,
 			double[] workspaceB)
     {
-	double[][] split = splitCubicBezierCurve(workspace);
-	System.arraycopy(split[0], 0, workspaceA, 0, 12);
-	System.arraycopy(split[1], 0, workspaceB, 0, 12);
+	splitCubicBezierCurve(workspace, 0, workspaceA, 0, workspaceB, 0);
     }
 
     /*
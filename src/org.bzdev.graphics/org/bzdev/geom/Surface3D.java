@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.security.*;
 
 //@exbundle org.bzdev.geom.lpack.Geom
@@ -214,8 +215,291 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
     Path3D boundary = null;
     ArrayList<Object> boundaryTags = null;
     ArrayList<Color> boundaryColors = null;
-    ArrayList<Integer> boundarySegments = null;
-    ArrayList<Integer> edgeNumbers = null;
+    // segment indices and edge numbers for the boundary's edges
+    int[] boundarySegments = null;
+    int[] edgeNumbers = null;
+    int boundarySize = 0;
+
+    void addBoundaryEdge(int entryNumber, int edgeNumber) {
+	if (boundarySize == boundarySegments.length) {
+	    int len = 2 * boundarySize;
+	    boundarySegments = Arrays.copyOf(boundarySegments, len);
+	    edgeNumbers = Arrays.copyOf(edgeNumbers, len);
+	}
+	boundarySegments[boundarySize] = entryNumber;
+	edgeNumbers[boundarySize++] = edgeNumber;
+    }
+
+    /*
+     * The results of the last boundary computation.  These are
+     * published via a volatile field so that queries do not have to
+     * acquire this surface's lock once a boundary has been computed.
+     */
+    static final class BoundaryResult {
+	boolean wellFormed;
+	Path3D boundary;
+	int[] segments;
+	int[] edgeNumbers;
+    }
+
+    volatile BoundaryResult boundaryResult = null;
+
+    // Called by computeBoundary after it sets boundaryComputed to true.
+    void publishBoundary() {
+	BoundaryResult result = new BoundaryResult();
+	result.wellFormed = wellFormed;
+	result.boundary = boundary;
+	if (boundarySegments != null) {
+	    result.segments = Arrays.copyOf(boundarySegments, boundarySize);
+	    result.edgeNumbers = Arrays.copyOf(edgeNumbers, boundarySize);
+	}
+	boundaryResult = result;
+    }
+
+    private BoundaryResult getBoundaryResult() {
+	BoundaryResult result = boundaryResult;
+	if (result == null) {
+	    synchronized (this) {
+		if (boundaryComputed == false) {
+		    computeBoundary(null);
+		}
+		result = boundaryResult;
+	    }
+	}
+	return result;
+    }
+
+    /*
+     * Edges provided to an EdgeIndex.
+     */
+    interface IndexedEdge<E> extends Comparable<E> {
+	int match(E other);
+	boolean isReversed();
+	// a hash code that depends only on an edge's end points
+	int endpointHash();
+	boolean sameEndpoints(E other);
+    }
+
+    /*
+     * Index of the edges of a surface's segments, updated as segments
+     * are appended so that a boundary can be recomputed without
+     * sorting all of a surface's edges again.
+     *
+     * Edges are placed in buckets by their end points, so edges that
+     * match are in the same bucket.  The edges in a bucket are sorted
+     * and grouped into runs of matching edges exactly as computeBoundary
+     * does for a sorted array of all edges. A bucket has a conflict if
+     * a run has more than two edges, or two edges with the same
+     * direction when the surface is oriented, and is a boundary bucket
+     * if a run has a single edge.  Only buckets to which edges were
+     * added since the last call to update() are examined again.
+     * Buckets and their edges are stored in int arrays.
+     */
+    static final class EdgeIndex<E extends IndexedEdge<E>> {
+	private static final int CONFLICT = 1;
+	private static final int BOUNDARY = 2;
+	private static final int DIRTY = 4;
+
+	boolean oriented;
+	// number of segments whose edges have been added
+	int nsegments = 0;
+	// false if a segment has a degenerate edge or an edge loop
+	boolean segmentsOK = true;
+
+	private Object[] edges = new Object[64];
+	private int[] next = new int[64];
+	private int nedges = 0;
+
+	private int[] heads = new int[32];
+	private int[] sizes = new int[32];
+	private int[] hashes = new int[32];
+	private int[] flags = new int[32];
+	private int[] boundaryPos = new int[32];
+	private int nbuckets = 0;
+
+	private int[] table = new int[64];
+
+	private int conflicts = 0;
+	private int[] boundaryBuckets = new int[16];
+	private int nboundary = 0;
+	private int[] dirty = new int[16];
+	private int ndirty = 0;
+
+	EdgeIndex(boolean oriented) {
+	    this.oriented = oriented;
+	    Arrays.fill(table, -1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E edge(int k) {
+	    return (E)edges[k];
+	}
+
+	private static int spread(int h) {
+	    h *= 0x9e3779b9;
+	    return h ^ (h >>> 16);
+	}
+
+	private void rehash() {
+	    table = new int[2 * table.length];
+	    Arrays.fill(table, -1);
+	    int mask = table.length - 1;
+	    for (int b = 0; b < nbuckets; b++) {
+		int slot = spread(hashes[b]) & mask;
+		while (table[slot] != -1) slot = (slot + 1) & mask;
+		table[slot] = b;
+	    }
+	}
+
+	private int newBucket(int hash) {
+	    if (nbuckets == heads.length) {
+		int len = 2 * nbuckets;
+		heads = Arrays.copyOf(heads, len);
+		sizes = Arrays.copyOf(sizes, len);
+		hashes = Arrays.copyOf(hashes, len);
+		flags = Arrays.copyOf(flags, len);
+		boundaryPos = Arrays.copyOf(boundaryPos, len);
+	    }
+	    int b = nbuckets++;
+	    heads[b] = -1;
+	    sizes[b] = 0;
+	    hashes[b] = hash;
+	    flags[b] = 0;
+	    boundaryPos[b] = -1;
+	    return b;
+	}
+
+	void add(E e) {
+	    int hash = e.endpointHash();
+	    int mask = table.length - 1;
+	    int slot = spread(hash) & mask;
+	    int b;
+	    for (;;) {
+		b = table[slot];
+		if (b == -1) {
+		    b = newBucket(hash);
+		    table[slot] = b;
+		    if (2 * nbuckets > table.length) rehash();
+		    break;
+		}
+		if (hashes[b] == hash && edge(heads[b]).sameEndpoints(e)) {
+		    break;
+		}
+		slot = (slot + 1) & mask;
+	    }
+	    if (nedges == edges.length) {
+		edges = Arrays.copyOf(edges, 2 * nedges);
+		next = Arrays.copyOf(next, 2 * nedges);
+	    }
+	    int k = nedges++;
+	    edges[k] = e;
+	    next[k] = heads[b];
+	    heads[b] = k;
+	    sizes[b]++;
+	    if ((flags[b] & DIRTY) == 0) {
+		flags[b] |= DIRTY;
+		if (ndirty == dirty.length) {
+		    dirty = Arrays.copyOf(dirty, 2 * ndirty);
+		}
+		dirty[ndirty++] = b;
+	    }
+	}
+
+	// Get a bucket's edges, sorted.
+	private Object[] sortedEdges(int b, Object[] tmp) {
+	    int n = sizes[b];
+	    if (tmp.length < n) tmp = new Object[n];
+	    int i = 0;
+	    for (int k = heads[b]; k != -1; k = next[k]) {
+		tmp[i++] = edges[k];
+	    }
+	    Arrays.sort(tmp, 0, n);
+	    return tmp;
+	}
+
+	// Compute a bucket's flags, adding its unmatched edges to a list
+	// if the list is not null.
+	@SuppressWarnings("unchecked")
+	private int examine(Object[] tmp, int n, ArrayList<E> unmatched) {
+	    int result = 0;
+	    int lower = 0;
+	    int upper = 1;
+	    while (lower < n) {
+		E first = (E)tmp[lower];
+		boolean reversed = false;
+		while (upper < n) {
+		    E e = (E)tmp[upper];
+		    if (first.match(e) == 0) {
+			reversed = (first.isReversed() != e.isReversed());
+			upper++;
+		    } else {
+			break;
+		    }
+		}
+		if (upper - lower == 1) {
+		    result |= BOUNDARY;
+		    if (unmatched != null) unmatched.add(first);
+		} else if (!((upper-lower) == 2 && (reversed || !oriented))) {
+		    result |= CONFLICT;
+		}
+		lower = upper;
+		upper++;
+	    }
+	    return result;
+	}
+
+	// Reexamine the buckets to which edges were added.
+	void update() {
+	    Object[] tmp = new Object[8];
+	    for (int i = 0; i < ndirty; i++) {
+		int b = dirty[i];
+		tmp = sortedEdges(b, tmp);
+		int f = examine(tmp, sizes[b], null);
+		int old = flags[b];
+		if ((old & CONFLICT) != 0) conflicts--;
+		if ((f & CONFLICT) != 0) conflicts++;
+		if ((old & BOUNDARY) != 0 && (f & BOUNDARY) == 0) {
+		    // remove from the boundary buckets
+		    int pos = boundaryPos[b];
+		    int last = boundaryBuckets[--nboundary];
+		    boundaryBuckets[pos] = last;
+		    boundaryPos[last] = pos;
+		    boundaryPos[b] = -1;
+		} else if ((old & BOUNDARY) == 0 && (f & BOUNDARY) != 0) {
+		    if (nboundary == boundaryBuckets.length) {
+			boundaryBuckets =
+			    Arrays.copyOf(boundaryBuckets, 2 * nboundary);
+		    }
+		    boundaryPos[b] = nboundary;
+		    boundaryBuckets[nboundary++] = b;
+		}
+		flags[b] = f;
+	    }
+	    Arrays.fill(tmp, null);
+	    ndirty = 0;
+	}
+
+	boolean isWellFormed() {
+	    return segmentsOK && conflicts == 0;
+	}
+
+	// Get the edges that match no other edge, in sorted order.
+	E[] getUnmatchedEdges(E[] array) {
+	    ArrayList<E> unmatched = new ArrayList<>();
+	    Object[] tmp = new Object[8];
+	    for (int i = 0; i < nboundary; i++) {
+		int b = boundaryBuckets[i];
+		tmp = sortedEdges(b, tmp);
+		examine(tmp, sizes[b], unmatched);
+	    }
+	    array = unmatched.toArray(array);
+	    Arrays.sort(array);
+	    return array;
+	}
+    }
+
+    // Discard any incrementally computed edges.
+    void clearEdgeIndex() {}
 
     boolean oriented = true;
     
@@ -277,6 +561,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	// All cases in which the boundary has to be
 	// recomputed call this method, with the exception of reset().
 	boundaryComputed = false;
+	boundaryResult = null;
 
 	// n ignored - used by subclasses - unless n == -1 (which indicates
 	// that no entry will be added specific to the subclass.  If n is 0,
@@ -303,10 +588,13 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	colors = ctmp;
     }
 
-    static abstract class Iterator implements SurfaceIterator {
+    static abstract class Iterator
+	implements SplittableSurfaceIterator, Cloneable
+    {
 	int index = 0;
 	int surfaceIndex;
 	int[] surfaceTypes;
+	int[] surfaceCIndices;
 	Object[]  surfaceTags;
 	Color[] surfaceColors;
 	Object tag;
@@ -336,12 +624,41 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	    this.surface = surface;
 	    surfaceIndex = surface.index;
 	    surfaceTypes = surface.types;
+	    surfaceCIndices = surface.cindices;
 	    surfaceTags = surface.tags;
 	    surfaceColors = surface.colors;
 	    tag = surfaceTags[0];
 	    color = surfaceColors[0];
 	}
 
+	// Subclasses using a transform that may not be safe to use
+	// concurrently should return false.
+	boolean canSplit() {return true;}
+
+	@Override
+	public SplittableSurfaceIterator trySplit() {
+	    int remaining = surfaceIndex - index;
+	    if (remaining < 2 || !canSplit()) return null;
+	    int mid = index + remaining/2;
+	    Iterator prefix;
+	    try {
+		prefix = (Iterator) clone();
+	    } catch (CloneNotSupportedException e) {
+		throw new UnexpectedExceptionError(e);
+	    }
+	    prefix.surfaceIndex = mid;
+	    index = mid;
+	    cindex = surfaceCIndices[mid];
+	    tag = (surfaceTags == null)? null: surfaceTags[mid];
+	    color = (surfaceColors == null)? null: surfaceColors[mid];
+	    return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+	    return surfaceIndex - index;
+	}
+
 	@Override
 	public boolean isDone() {
 	    return index >= surfaceIndex;
@@ -998,76 +1315,95 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	    return result;
 	}
 
-	void computeBoundary (SurfaceIterator it, Appendable out) {
+	// The edges of a contiguous range of a surface's segments.
+	// Entry numbers start at 0 for the first segment in the range.
+	static final class EdgeList {
+	    ArrayList<Edge> edges = new ArrayList<>();
+	    int count = 0;
+	    boolean wellFormed = true;
+
+	    // Append the edges of the range that immediately follows
+	    // this one.
+	    EdgeList append(EdgeList next) {
+		for (Edge e: next.edges) {
+		    e.entryNumber += count;
+		}
+		edges.addAll(next.edges);
+		count += next.count;
+		wellFormed = wellFormed && next.wellFormed;
+		return this;
+	    }
+	}
+
+	EdgeList collectEdges(SurfaceIterator it, Appendable out) {
+	    EdgeList list = new EdgeList();
+	    ArrayList<Edge> queue = list.edges;
 	    double[] coords = new double[48];
-	    LinkedList<Edge> queue = new LinkedList<Edge>();
 	    int i = -1;
-	    boolean oriented0 = false;
 	    while (!it.isDone()) {
 		i++;
 		int type = it.currentSegment(coords);
 		Color color = it.currentColor();
 		Object tag = it.currentTag();
 		boolean oriented = it.isOriented();
-		if (i == 0) oriented0 = oriented;
 		Edge e;
 		switch(type) {
 		case SurfaceIterator.CUBIC_VERTEX:
 		    if (identicalCP(coords, 0, 3, 6, 9)) {
-			wellFormed = false;
+			list.wellFormed = false;
 			if (out != null) {
 			    printDegenerateTriangle(i, 0, tag, out);
 			}
 		    }
 		    e = new Edge(type, coords, color, tag, 0, 3, 6, 9,
 				 false, i, 0, oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    e = new Edge(type, coords, color, tag, 9, 12,
 				 false, i, 1, oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    e = new Edge(type, coords, color, tag, 12, 0,
 				 false, i, 2, oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    break;
 		case SurfaceIterator.PLANAR_TRIANGLE:
 		    e = new Edge(type, coords, color, tag, 0, 6, false, i, 0,
 				 oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    e = new Edge(type, coords, color, tag, 6, 3, false,
 				 i, 1, oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    e = new Edge(type, coords, color, tag, 0, 3, true, i, 2,
 				 oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    break;
 		case SurfaceIterator.CUBIC_TRIANGLE:
 		    if (identicalCP(coords, 0, 4*3, 7*3, 9*3)) {
-			wellFormed = false;
+			list.wellFormed = false;
 			if (out != null) {
 			    printDegenerateTriangle(i, 0, tag, out);
 			}
 		    }
 		    if (identicalCP(coords, 9*3, 8*3, 6*3, 3*3)) {
-			wellFormed = false;
+			list.wellFormed = false;
 			if (out != null) {
 			    printDegenerateTriangle(i, 1, tag, out);
 			}
 		    }
 		    if (identicalCP(coords, 0, 1*3, 2*3, 3*3)) {
-			wellFormed = false;
+			list.wellFormed = false;
 			if (out != null) {
 			    printDegenerateTriangle(i, 2, tag, out);
 			}
 		    }
 		    e = new Edge(type, coords, color, tag, 0, 4*3, 7*3, 9*3,
 				 false, i, 0, oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    e = new Edge(type, coords, color, tag, 9*3, 8*3, 6*3, 3*3,
 				 false, i, 1, oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    e = new Edge(type, coords, color, tag, 0, 1*3, 2*3, 3*3,
 				 true, i, 2, oriented);
-		    queue.offer(e);
+		    queue.add(e);
 		    break;
 		case SurfaceIterator.CUBIC_PATCH:
 		    boolean e1z = false;
@@ -1077,22 +1413,22 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    if (identicalCP(coords, 0, 3, 6, 9)) {
 			e1z = true;
 			if (hasEdgeLoop(coords, 0, 3, 6, 9)) {
-			    wellFormed = false;
+			    list.wellFormed = false;
 			    if (out != null) printEdgeLoop(i, 0, tag, out);
 			}
 		    } else {
 			e = new Edge(type, coords, color, tag, 0, 3, 6, 9,
 				     false, i, 0, oriented);
-			queue.offer(e);
+			queue.add(e);
 		    }
 		    if (identicalCP(coords, 9, 21, 33, 45)) {
 			e2z = true;
 			if (hasEdgeLoop(coords, 9, 21, 33, 45)) {
-			    wellFormed = false;
+			    list.wellFormed = false;
 			    if (out != null) printEdgeLoop(i, 1, tag, out);
 			}
 			if (e1z) {
-			    wellFormed = false;
+			    list.wellFormed = false;
 			    if (out != null) {
 				printDegeneratePatch(i, e1z, e2z, false, false,
 						     tag,
@@ -1102,16 +1438,16 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    } else {
 			e = new Edge(type, coords, color, tag, 9, 21, 33, 45,
 				     false, i, 1, oriented);
-			queue.offer(e);
+			queue.add(e);
 		    }
 		    if (identicalCP(coords, 36, 39, 42, 45)) {
 			e3z = true;
 			if (hasEdgeLoop(coords, 36, 39, 42, 45)) {
-			    wellFormed = false;
+			    list.wellFormed = false;
 			    if (out != null) printEdgeLoop(i, 2, tag, out);
 			}
 			if (e2z) {
-			    wellFormed = false;
+			    list.wellFormed = false;
 			    if (out != null) {
 				printDegeneratePatch(i, false, e2z, e3z, false,
 						     tag,
@@ -1121,16 +1457,16 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    } else {
 			e = new Edge(type, coords, color, tag, 36, 39, 42, 45,
 				     true, i, 2, oriented);
-			queue.offer(e);
+			queue.add(e);
 		    }
 		    if (identicalCP(coords, 0, 12, 24, 36)) {
 			e4z = true;
 			if (hasEdgeLoop(coords, 0, 12, 34, 36)) {
-			    wellFormed = false;
+			    list.wellFormed = false;
 			    if (out != null) printEdgeLoop(i, 3, tag, out);
 			}
 			if (e3z || e1z) {
-			    wellFormed = false;
+			    list.wellFormed = false;
 			    if (out != null) {
 				printDegeneratePatch(i, e1z, false, e3z, e4z,
 						     tag,
@@ -1140,20 +1476,33 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    } else {
 			e = new Edge(type, coords, color,  tag, 0, 12, 24, 36,
 				     true, i, 3, oriented);
-			queue.offer(e);
+			queue.add(e);
 		    }
 		    break;
 		}
 		it.next();
 	    }
-	    Edge[] array = new Edge[queue.size()];
-	    queue.toArray(array);
+	    list.count = i + 1;
+	    return list;
+	}
+
+	void computeBoundary (SurfaceIterator it, Appendable out) {
+	    // Edges are collected in parallel only when there is no
+	    // output, as messages are printed in segment order.
+	    EdgeList list = (out == null
+			     && it instanceof SplittableSurfaceIterator)?
+		SurfaceExecutor.reduce(it, (si) -> collectEdges(si, null),
+				       EdgeList::append):
+		collectEdges(it, out);
+	    if (!list.wellFormed) wellFormed = false;
+	    LinkedList<Edge> queue = new LinkedList<Edge>();
+	    Edge[] array = list.edges.toArray(new Edge[list.edges.size()]);
+	    list = null;
 	    Arrays.sort(array);
-	    int sz = Math.round(1.5F * queue.size()) + 1;
+	    int sz = Math.round(1.5F * array.length) + 1;
 	    Map<Point3D,Edge> edgeMap = new HashMap<Point3D,Edge>(sz);
 	    Map<Point3D,Edge> edgeMap2 = oriented? null:
 		new HashMap<Point3D,Edge>(sz);
-	    queue.clear();
 	    int lower = 0;
 	    int upper = 1;
 	    while (lower < array.length) {
@@ -1541,7 +1890,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	}
 
 
-	class Edge implements Comparable<Edge> {
+	class Edge implements IndexedEdge<Edge> {
 	    int entryNumber;
 	    int edgeNumber;
 	    int type;
@@ -1688,6 +2037,38 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 
 	    double[] getCoords() {return coords;}
 
+	    @Override
+	    public boolean isReversed() {return reversed;}
+
+	    @Override
+	    public int endpointHash() {
+		// adding 0.0 maps -0.0 to 0.0, as the two are equal
+		int h = 0;
+		for (int i = 0; i < 3; i++) {
+		    h = 31*h
+			+ java.lang.Double.hashCode(coords[cindex0+i] + 0.0);
+		}
+		for (int i = 0; i < 3; i++) {
+		    h = 31*h
+			+ java.lang.Double.hashCode(coords[cindex3+i] + 0.0);
+		}
+		return h;
+	    }
+
+	    @Override
+	    public boolean sameEndpoints(Edge other) {
+		double[] otherCoords = other.getCoords();
+		for (int i = 0; i < 3; i++) {
+		    if (coords[cindex0+i] != otherCoords[other.cindex0+i]) {
+			return false;
+		    }
+		    if (coords[cindex3+i] != otherCoords[other.cindex3+i]) {
+			return false;
+		    }
+		}
+		return true;
+	    }
+
 
 	    Edge(int type, Color color, Object tag,
 		 int cindex0, int cindex3, boolean reversed,
@@ -2142,6 +2523,11 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	        coords = surface.coords;
 		this.transform = transform;
 	    }
+
+	    @Override
+	    boolean canSplit() {
+		return transform instanceof AffineTransform3D;
+	    }
 	    
 	    @Override
 	    public int currentSegment(float[] fc) {
@@ -2196,7 +2582,9 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	@Override
 	public Object clone() {
 	    try {
-		return super.clone();
+		Surface3D.Double result = (Surface3D.Double) super.clone();
+		result.edgeIndex = null;
+		return result;
 	    } catch (CloneNotSupportedException e) {
 		throw new UnexpectedExceptionError(e);
 	    }
@@ -2466,6 +2854,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	@Override
 	public final synchronized void transform(Transform3D tform) {
 	    expandIfNeeded(1);
+	    edgeIndex = null;
 	    System.arraycopy(coords, 0, coords, 3, coords.length);
 	    tform.transform(coords, 3, coords, 0, coords.length/3);
 	}
@@ -2533,6 +2922,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	@Override
 	public final synchronized void reverseOrientation() {
 	    expandIfNeeded(-1);
+	    edgeIndex = null;
 	    int ci = 0;
 	    for (int i = 0; i < index; i++) {
 		ci = reverseOrientation(types[i], ci);
@@ -2601,15 +2991,15 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	    return true;
 	}
 
-	@Override
-	public synchronized void computeBoundary(Appendable out,
-						 boolean multipleEdges)
+	// Create the edges for the segments starting at index start,
+	// providing them to a consumer.  The value returned is false if
+	// a segment has a degenerate edge or an edge loop.
+	private boolean addEdges(int start, Appendable out,
+				 Consumer<Edge> edges)
 	{
-	    if (boundaryComputed && lastMultipleEdges == multipleEdges) return;
-	    wellFormed = true;
-	    LinkedList<Edge> queue = new LinkedList<Edge>();
-	    int ci = 0;
-	    for (int i = 0; i < index; i++) {
+	    boolean wellFormed = true;
+	    int ci = (start < index)? cindices[start]: 0;
+	    for (int i = start; i < index; i++) {
 		int type = types[i];
 		Object tag = tags[i];
 		Color color = colors[i];
@@ -2617,12 +3007,12 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		switch(type) {
 		case SurfaceIterator.PLANAR_TRIANGLE:
 		    e = new Edge(type, color, tag, ci, ci + 6, false, i, 0);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci + 6, ci + 3, false,
 				 i, 1);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci, ci + 3, true, i, 2);
-		    queue.offer(e);
+		    edges.accept(e);
 		    ci += 9;
 		    break;
 		case SurfaceIterator.CUBIC_VERTEX:
@@ -2634,13 +3024,13 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    }
 		    e = new Edge(type, color, tag, ci, ci+3, ci+6, ci+9,
 				 false, i, 0);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci+9, ci+12,
 				 false, i, 1);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci+ 12, ci,
 				 false, i, 2);
-		    queue.offer(e);
+		    edges.accept(e);
 		    ci += 15;
 		    break;
 		case SurfaceIterator.CUBIC_TRIANGLE:
@@ -2664,14 +3054,14 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    }
 		    e = new Edge(type, color, tag, ci, ci+4*3, ci+7*3, ci+9*3,
 				 false, i, 0);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag,
 				 ci+9*3, ci+8*3, ci+6*3, ci+3*3,
 				 false, i, 1);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci+0, ci+1*3, ci+2*3, ci+3*3,
 				 true, i, 2);
-		    queue.offer(e);
+		    edges.accept(e);
 		    ci += 30;
 		    break;
 		case SurfaceIterator.CUBIC_PATCH:
@@ -2688,7 +3078,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    } else {
 			e = new Edge(type, color, tag, ci, ci+3, ci+6, ci+9,
 				     false, i, 0);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    if (identicalCP(ci+9, ci+21, ci+33, ci+45)) {
 			e2z = true;
@@ -2709,7 +3099,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 			e = new Edge(type, color, tag,
 				     ci+9, ci+21, ci+33, ci+45,
 				     false, i, 1);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    if (identicalCP(ci+36, ci+39, ci+42, ci+45)) {
 			e3z = true;
@@ -2730,7 +3120,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 			e = new Edge(type, color, tag,
 				     ci+36, ci+39, ci+42, ci+45,
 				     true, i, 2);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    if (identicalCP(ci, ci+12, ci+24, ci+36)) {
 			e4z = true;
@@ -2749,15 +3139,56 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    } else {
 			e = new Edge(type, color, tag, ci, ci+12, ci+24, ci+36,
 				     true, i, 3);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    ci += 48;
 		    break;
 		}
 	    }
-	    Edge[] array = new Edge[queue.size()];
-	    queue.toArray(array);
-	    Arrays.sort(array);
+	    return wellFormed;
+	}
+
+	// Edges of the segments added so far; null if not yet created.
+	EdgeIndex<Edge> edgeIndex = null;
+
+	@Override
+	void clearEdgeIndex() {
+	    edgeIndex = null;
+	}
+
+	@Override
+	public synchronized void computeBoundary(Appendable out,
+						 boolean multipleEdges)
+	{
+	    if (boundaryComputed && lastMultipleEdges == multipleEdges) return;
+	    LinkedList<Edge> queue = new LinkedList<Edge>();
+	    Edge[] array;
+	    // true if array contains only edges that match no other edge
+	    boolean unmatched;
+	    if (out == null) {
+		// Only the edges of the segments added since the last
+		// computation have to be examined.  When out is not
+		// null, all of the edges are examined so that messages
+		// are printed in the same order as the edges are sorted.
+		if (edgeIndex == null) {
+		    edgeIndex = new EdgeIndex<Edge>(oriented);
+		}
+		if (!addEdges(edgeIndex.nsegments, null, edgeIndex::add)) {
+		    edgeIndex.segmentsOK = false;
+		}
+		edgeIndex.nsegments = index;
+		edgeIndex.update();
+		wellFormed = edgeIndex.isWellFormed();
+		array = wellFormed? edgeIndex.getUnmatchedEdges(new Edge[0]):
+		    new Edge[0];
+		unmatched = true;
+	    } else {
+		wellFormed = addEdges(0, out, queue::offer);
+		array = new Edge[queue.size()];
+		queue.toArray(array);
+		Arrays.sort(array);
+		unmatched = false;
+	    }
 	    /*
 	    if (!oriented)
 	    for (Edge e: array) {
@@ -2789,7 +3220,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		}
 	    }
 	    */
-	    int sz = Math.round(1.5F * queue.size()) + 1;
+	    int sz = Math.round(1.5F * array.length) + 1;
 	    Map<Point3D,Edge> edgeMap = new HashMap<Point3D,Edge>(sz);
 	    Map<Point3D,Edge> edgeMap2 = oriented? null:
 		new HashMap<Point3D,Edge>(sz);
@@ -2798,7 +3229,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	    int upper = 1;
 	    while (lower < array.length) {
 		boolean reversed = false;
-		while (upper < array.length) {
+		while (!unmatched && upper < array.length) {
 		    if (array[lower].match(array[upper]) == 0) {
 			reversed =
 			    (array[lower].reversed != array[upper].reversed);
@@ -2914,8 +3345,9 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		Edge e;
 		Path3D path = new Path3D.Double();
 		boundaryTags = new ArrayList<Object>();
-		boundarySegments = new ArrayList<Integer>();
-		edgeNumbers = new ArrayList<Integer>();
+		boundarySegments = new int[16];
+		edgeNumbers = new int[16];
+		boundarySize = 0;
 		while ((e = queue.poll()) != null) {
 		    Point3D bp = e.getBasePoint();
 		    if (multipleEdges || edgeMap.containsKey(bp)
@@ -2932,8 +3364,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 					 fp.getX(), fp.getY(), fp.getZ());
 			}
 			boundaryTags.add(e.getTag());
-			boundarySegments.add(e.entryNumber);
-			edgeNumbers.add(e.edgeNumber);
+			addBoundaryEdge(e.entryNumber, e.edgeNumber);
 			Edge n = null;
 			if (oriented) {
 			    n = edgeMap.remove(fp);
@@ -2992,8 +3423,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 					 cp3.getX(), cp3.getY(), cp3.getZ());
 				}
 				boundaryTags.add(n.getTag());
-				boundarySegments.add(n.entryNumber);
-				edgeNumbers.add(n.edgeNumber);
+				addBoundaryEdge(n.entryNumber, n.edgeNumber);
 
 				if (oriented) {
 				    n = edgeMap.remove(cp3);
@@ -3034,9 +3464,11 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		boundaryTags  = null;
 		boundarySegments = null;
 		edgeNumbers = null;
+		boundarySize = 0;
 	    }
 	    boundaryComputed = true;
 	    lastMultipleEdges = multipleEdges;
+	    publishBoundary();
 	}
 
 	static Edge findReverse(Edge[] array, Edge key, boolean oriented) {
@@ -3331,7 +3763,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	}
 
 
-	class Edge implements Comparable<Edge> {
+	class Edge implements IndexedEdge<Edge> {
 	    int entryNumber;
 	    int edgeNumber;
 	    int type;
@@ -3473,6 +3905,38 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 
 	    float[] getCoords() {return coords;}
 
+	    @Override
+	    public boolean isReversed() {return reversed;}
+
+	    @Override
+	    public int endpointHash() {
+		// adding 0.0F maps -0.0F to 0.0F, as the two are equal
+		int h = 0;
+		for (int i = 0; i < 3; i++) {
+		    h = 31*h
+			+ java.lang.Float.hashCode(coords[cindex0+i] + 0.0F);
+		}
+		for (int i = 0; i < 3; i++) {
+		    h = 31*h
+			+ java.lang.Float.hashCode(coords[cindex3+i] + 0.0F);
+		}
+		return h;
+	    }
+
+	    @Override
+	    public boolean sameEndpoints(Edge other) {
+		float[] otherCoords = other.getCoords();
+		for (int i = 0; i < 3; i++) {
+		    if (coords[cindex0+i] != otherCoords[other.cindex0+i]) {
+			return false;
+		    }
+		    if (coords[cindex3+i] != otherCoords[other.cindex3+i]) {
+			return false;
+		    }
+		}
+		return true;
+	    }
+
 	    Edge(int type, Color color, Object tag,
 		 int cindex0, int cindex3, boolean reversed,
 		 int entryNumber, int edgeNumber)
@@ -3938,6 +4402,11 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		this.transform = transform;
 	    }
 
+	    @Override
+	    boolean canSplit() {
+		return transform instanceof AffineTransform3D;
+	    }
+
 	    @Override
 	    public int currentSegment(float[] fc) {
 		// int type = surface.types[index];
@@ -3992,7 +4461,9 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	@Override
 	public Object clone() {
 	    try {
-		return super.clone();
+		Surface3D.Float result = (Surface3D.Float) super.clone();
+		result.edgeIndex = null;
+		return result;
 	    } catch (CloneNotSupportedException e) {
 		throw new UnexpectedExceptionError(e);
 	    }
@@ -4283,6 +4754,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	@Override
 	public final synchronized void transform(Transform3D tform) {
 	    expandIfNeeded(1);
+	    edgeIndex = null;
 	    System.arraycopy(coords, 0, coords, 3, coords.length);
 	    tform.transform(coords, 3, coords, 0, coords.length/3);
 	}
@@ -4334,6 +4806,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	@Override
 	public final synchronized void reverseOrientation() {
 	    expandIfNeeded(-1);
+	    edgeIndex = null;
 	    int ci = 0;
 	    for (int i = 0; i < index; i++) {
 		ci = reverseOrientation(types[i], ci);
@@ -4398,15 +4871,15 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	    return true;
 	}
 
-	@Override
-	public synchronized void computeBoundary(Appendable out,
-						 boolean multipleEdges)
+	// Create the edges for the segments starting at index start,
+	// providing them to a consumer.  The value returned is false if
+	// a segment has a degenerate edge or an edge loop.
+	private boolean addEdges(int start, Appendable out,
+				 Consumer<Edge> edges)
 	{
-	    if (boundaryComputed && multipleEdges == lastMultipleEdges) return;
-	    wellFormed = true;
-	    LinkedList<Edge> queue = new LinkedList<Edge>();
-	    int ci = 0;
-	    for (int i = 0; i < index; i++) {
+	    boolean wellFormed = true;
+	    int ci = (start < index)? cindices[start]: 0;
+	    for (int i = start; i < index; i++) {
 		int type = types[i];
 		Object tag = tags[i];
 		Color color = colors[i];
@@ -4414,12 +4887,12 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		switch(type) {
 		case SurfaceIterator.PLANAR_TRIANGLE:
 		    e = new Edge(type, color, tag, ci, ci + 6, false, i, 0);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci + 6, ci + 3, false,
 				 i, 1);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci, ci + 3, true, i, 2);
-		    queue.offer(e);
+		    edges.accept(e);
 		    ci += 9;
 		    break;
 		case SurfaceIterator.CUBIC_VERTEX:
@@ -4431,13 +4904,13 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    }
 		    e = new Edge(type, color, tag, ci, ci+3, ci+6, ci+9,
 				 false, i, 0);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci+9, ci+12,
 				 false, i, 1);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci+ 12, ci,
 				 false, i, 2);
-		    queue.offer(e);
+		    edges.accept(e);
 		    ci += 15;
 		    break;
 		case SurfaceIterator.CUBIC_TRIANGLE:
@@ -4461,14 +4934,14 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    }
 		    e = new Edge(type, color, tag, ci, ci+4*3, ci+7*3, ci+9*3,
 				 false, i, 0);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag,
 				 ci+9*3, ci+8*3, ci+6*3, ci+3*3,
 				 false, i, 1);
-		    queue.offer(e);
+		    edges.accept(e);
 		    e = new Edge(type, color, tag, ci+0, ci+1*3, ci+2*3, ci+3*3,
 				 true, i, 2);
-		    queue.offer(e);
+		    edges.accept(e);
 		    ci += 30;
 		    break;
 		case SurfaceIterator.CUBIC_PATCH:
@@ -4485,7 +4958,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    } else {
 			e = new Edge(type, color, tag, ci, ci+3, ci+6, ci+9,
 				     false, i, 0);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    if (identicalCP(ci+9, ci+21, ci+33, ci+45)) {
 			e2z = true;
@@ -4505,7 +4978,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 			e = new Edge(type, color, tag,
 				     ci+9, ci+21, ci+33, ci+45,
 				     false, i, 1);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    if (identicalCP(ci+36, ci+39, ci+42, ci+45)) {
 			e3z = true;
@@ -4525,7 +4998,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 			e = new Edge(type, color, tag,
 				     ci+36, ci+39, ci+42, ci+45,
 				     true, i, 2);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    if (identicalCP(ci, ci+12, ci+24, ci+36)) {
 			e4z = true;
@@ -4544,16 +5017,57 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		    } else {
 			e = new Edge(type, color, tag, ci, ci+12, ci+24, ci+36,
 				     true, i, 3);
-			queue.offer(e);
+			edges.accept(e);
 		    }
 		    ci += 48;
 		    break;
 		}
 	    }
-	    Edge[] array = new Edge[queue.size()];
-	    queue.toArray(array);
-	    Arrays.sort(array);
-	    int sz = Math.round(1.5F * queue.size()) + 1;
+	    return wellFormed;
+	}
+
+	// Edges of the segments added so far; null if not yet created.
+	EdgeIndex<Edge> edgeIndex = null;
+
+	@Override
+	void clearEdgeIndex() {
+	    edgeIndex = null;
+	}
+
+	@Override
+	public synchronized void computeBoundary(Appendable out,
+						 boolean multipleEdges)
+	{
+	    if (boundaryComputed && multipleEdges == lastMultipleEdges) return;
+	    LinkedList<Edge> queue = new LinkedList<Edge>();
+	    Edge[] array;
+	    // true if array contains only edges that match no other edge
+	    boolean unmatched;
+	    if (out == null) {
+		// Only the edges of the segments added since the last
+		// computation have to be examined.  When out is not
+		// null, all of the edges are examined so that messages
+		// are printed in the same order as the edges are sorted.
+		if (edgeIndex == null) {
+		    edgeIndex = new EdgeIndex<Edge>(oriented);
+		}
+		if (!addEdges(edgeIndex.nsegments, null, edgeIndex::add)) {
+		    edgeIndex.segmentsOK = false;
+		}
+		edgeIndex.nsegments = index;
+		edgeIndex.update();
+		wellFormed = edgeIndex.isWellFormed();
+		array = wellFormed? edgeIndex.getUnmatchedEdges(new Edge[0]):
+		    new Edge[0];
+		unmatched = true;
+	    } else {
+		wellFormed = addEdges(0, out, queue::offer);
+		array = new Edge[queue.size()];
+		queue.toArray(array);
+		Arrays.sort(array);
+		unmatched = false;
+	    }
+	    int sz = Math.round(1.5F * array.length) + 1;
 	    Map<Point3D,Edge> edgeMap = new HashMap<Point3D,Edge>(sz);
 	    Map<Point3D,Edge> edgeMap2 = oriented? null:
 		new HashMap<Point3D,Edge>(sz);
@@ -4562,7 +5076,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	    int upper = 1;
 	    while (lower < array.length) {
 		boolean reversed = false;
-		while (upper < array.length) {
+		while (!unmatched && upper < array.length) {
 		    if (array[lower].match(array[upper]) == 0) {
 			reversed =
 			    (array[lower].reversed != array[upper].reversed);
@@ -4674,8 +5188,9 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		Path3D path = new Path3D.Float();
 		boundaryColors = new ArrayList<Color>();
 		boundaryTags = new ArrayList<Object>();
-		boundarySegments = new ArrayList<Integer>();
-		edgeNumbers = new ArrayList<Integer>();
+		boundarySegments = new int[16];
+		edgeNumbers = new int[16];
+		boundarySize = 0;
 		while ((e = queue.poll()) != null) {
 		    Point3D bp = e.getBasePoint();
 		    if (edgeMap.containsKey(bp)
@@ -4693,8 +5208,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 			}
 			boundaryColors.add(e.color);
 			boundaryTags.add(e.getTag());
-			boundarySegments.add(e.entryNumber);
-			edgeNumbers.add(e.edgeNumber);
+			addBoundaryEdge(e.entryNumber, e.edgeNumber);
 			Edge n = null;
 			if (oriented) {
 			    n = edgeMap.remove(fp);
@@ -4754,8 +5268,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 				}
 				boundaryTags.add(e.color);
 				boundaryTags.add(e.getTag());
-				boundarySegments.add(e.entryNumber);
-				edgeNumbers.add(n.edgeNumber);
+				addBoundaryEdge(e.entryNumber, n.edgeNumber);
 				if (oriented) {
 				    n = edgeMap.remove(cp3);
 				} else {
@@ -4795,9 +5308,11 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		boundaryTags  = null;
 		boundarySegments = null;
 		edgeNumbers = null;
+		boundarySize = 0;
 	    }
 	    boundaryComputed = true;
 	    lastMultipleEdges = multipleEdges;
+	    publishBoundary();
 	}
 
 	static Edge findReverse(Edge[] array, Edge key, boolean oriented) {
@@ -5217,6 +5732,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	// we want to recompute the boundary because otherwise
 	// any errors would not be printed on the output
 	boundaryComputed = false;
+	boundaryResult = null;
 	computeBoundary(out);
 	return wellFormed;
     }
@@ -5250,6 +5766,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	// we want to recompute the boundary because otherwise
 	// any errors would not be printed on the output
 	boundaryComputed = false;
+	boundaryResult = null;
 	computeBoundary(out, multipleEdges);
 	return wellFormed;
     }
@@ -5265,11 +5782,8 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
      * and the surface is oriented.
      * @return true if a surface is well formed; false otherwise
      */
-    public synchronized boolean isWellFormed() {
-	if (boundaryComputed == false) {
-	    computeBoundary(null);
-	}
-	return wellFormed;
+    public boolean isWellFormed() {
+	return getBoundaryResult().wellFormed;
     }
 
     /**
@@ -5279,27 +5793,17 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
      * @return the boundary of this surface; null if a boundary cannot
      *         be computed
      */
-    public synchronized Path3D getBoundary() {
-	if (boundaryComputed == false) {
-	    computeBoundary(null);
-	}
+    public Path3D getBoundary() {
+	Path3D boundary = getBoundaryResult().boundary;
 	if (boundary == null) return null;
 	return (Path3D)boundary.clone();
     }
 
 
    @Override
-    public synchronized int[] getBoundarySegmentIndices() {
-	if (boundaryComputed == false) {
-	    computeBoundary(null);
-	}
-	if (boundarySegments == null) return null;
-	int[] result = new int[boundarySegments.size()];
-	int i = 0;
-	for (Integer ind: boundarySegments) {
-	    result[i++] = ind;
-	}
-	return result;
+    public int[] getBoundarySegmentIndices() {
+	int[] segments = getBoundaryResult().segments;
+	return (segments == null)? null: segments.clone();
     }
 
     /*
@@ -5317,17 +5821,9 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
     */
 
     @Override
-    public synchronized int[] getBoundaryEdgeNumbers() {
-	if (boundaryComputed == false) {
-	    computeBoundary(null);
-	}
-	if (edgeNumbers == null) return null;
-	int[] result = new int[edgeNumbers.size()];
-	int i = 0;
-	for (Integer e: edgeNumbers) {
-	    result[i++] = e;
-	}
-	return result;
+    public int[] getBoundaryEdgeNumbers() {
+	int[] edgeNumbers = getBoundaryResult().edgeNumbers;
+	return (edgeNumbers == null)? null: edgeNumbers.clone();
     }
 
 
@@ -5339,9 +5835,13 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	index = 0;
 	cindex = 0;
 	boundaryComputed = false;
+	boundaryResult = null;
 	boundary = null;
 	boundaryTags = null;
+	boundarySegments = null;
 	edgeNumbers = null;
+	boundarySize = 0;
+	clearEdgeIndex();
     }
 
     /**
@@ -10329,12 +10829,10 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
      * @return true if the surface is closed; false otherwise
      */
     public boolean isClosedManifold() {
-	if (boundaryComputed == false) {
-	    computeBoundary(null);
-	}
-	if (wellFormed) {
+	BoundaryResult result = getBoundaryResult();
+	if (result.wellFormed) {
 	    // the boundary exists if the path is closed, but is empty.
-	    return boundary.isEmpty();
+	    return result.boundary.isEmpty();
 	} else {
 	    return false;
 	}
@@ -11147,10 +11645,6 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
     }
 
 
-    // a test indicated that there was little advantage in increasing
-    // this beyond 2.
-    static final int AREA_SPLIT = 2;
-
     /**
      * Compute the area of this surface, perhaps in parallel
      * @param parallel true if the implementation should take advantage
@@ -11158,36 +11652,14 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
      * @return the area
      */
     public double area(boolean parallel) {
-	if (parallel && Runtime.getRuntime().availableProcessors() > 2) {
-	    final SurfaceIteratorSplitter splitter =
-		new SurfaceIteratorSplitter(AREA_SPLIT,
-					    getSurfaceIterator(null));
-	    int lim = AREA_SPLIT-1;
-	    Adder[] adders = new Adder[lim];
-	    Thread[] threads = new Thread[lim];
-	    for (int i = 0; i < lim; i++) {
-		final int ind = i;
-		adders[i] = new Adder.Kahan();
-		threads[i] = new Thread(() -> {
-			SurfaceIterator tsi = splitter.getSurfaceIterator(ind);
-			addAreaToAdder(adders[ind], tsi);
-		});
-		threads[i].start();
-	    }
-	    Adder adder = new Adder.Kahan();
-	    addAreaToAdder(adder, splitter.getSurfaceIterator(lim));
-	    try {
-		for (int i = 0; i < lim; i++) {
-		    threads[i].join();
-		    adder.add(adders[i].getSum());
-		}
-	    } catch (InterruptedException ei) {
-		splitter.interrupt();
-		for (int i = 0; i < lim; i++) {
-		    threads[i].interrupt();
-		}
-	    }
-	    return adder.getSum();
+	if (parallel && SurfaceExecutor.getParallelism() > 1) {
+	    return SurfaceExecutor.reduce(getSurfaceIterator(null), size(),
+					  (tsi) -> {
+					      Adder adder = new Adder.Kahan();
+					      addAreaToAdder(adder, tsi);
+					      return adder.getSum();
+					  },
+					  (x, y) -> x + y);
 	} else {
 	    SurfaceIterator si = getSurfaceIterator(null);
 	    Adder adder = new Adder.Kahan();
@@ -11369,8 +11841,6 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 	*/
     }
 
-    private static final int VOLUME_SPLIT = 2;
-
     /**
      * Compute the volume enclosed by this surface.
      * The surface must be a closed manifold.
@@ -11397,8 +11867,7 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
      *            well formed
      */
     public double volume(boolean parallel) {
-	int maxProc = Runtime.getRuntime().availableProcessors();
-	if (parallel && maxProc > 2) {
+	if (parallel && SurfaceExecutor.getParallelism() > 1) {
 	    if (!isWellFormed()) {
 		throw new IllegalStateException(errorMsg("notWellFormed"));
 	    }
@@ -11411,43 +11880,19 @@ public abstract class Surface3D implements Shape3D, SurfaceOps {
 		throw new IllegalStateException(errorMsg("notOriented"));
 	    }
 
-	    Adder adder = new Adder.Kahan();
 	    Rectangle3D bb = getBounds();
 	    final Point3D refPoint = new Point3D.Double(bb.getCenterX(),
 							bb.getCenterY(),
 							bb.getCenterZ());
-
-	    int nsplit = (VOLUME_SPLIT > (maxProc-1))? maxProc-1:
-		VOLUME_SPLIT;
-	    SurfaceIteratorSplitter splitter =
-		new SurfaceIteratorSplitter(nsplit,
-					    getSurfaceIterator(null));
-	    nsplit--;
-	    final Adder[] adders = new Adder[nsplit];
-	    final Thread[] threads = new Thread[nsplit];
-	    for (int i = 0; i < nsplit; i++) {
-		final int ind = i;
-		adders[i] = new Adder.Kahan();
-		threads[i] = new Thread(() -> {
-			SurfaceIterator tsi = splitter.getSurfaceIterator(ind);
-			addVolumeToAdder(adders[ind], tsi, refPoint);
-		});
-		threads[i].start();
-	    }
-	    addVolumeToAdder(adder, splitter.getSurfaceIterator(nsplit),
-			     refPoint);
-	    try {
-		for (int i  = 0; i < nsplit; i++) {
-		    threads[i].join();
-		    adder.add(adders[i].getSum());
-		}
-	    } catch (InterruptedException ei) {
-		splitter.interrupt();
-		for (int i = 0; i < nsplit; i++) {
-		    threads[i].interrupt();
-		}
-	    }
-	    return adder.getSum()/3.0;
+	    double sum = SurfaceExecutor.reduce
+		(getSurfaceIterator(null), size(),
+		 (tsi) -> {
+		     Adder adder = new Adder.Kahan();
+		     addVolumeToAdder(adder, tsi, refPoint);
+		     return adder.getSum();
+		 },
+		 (x, y) -> x + y);
+	    return sum/3.0;
 	} else {
 	    if (!isWellFormed()) {
 		throw new IllegalStateException(errorMsg("notWellFormed"));
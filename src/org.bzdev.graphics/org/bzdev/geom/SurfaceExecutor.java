@@ -0,0 +1,378 @@
+package org.bzdev.geom;
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+//@exbundle org.bzdev.geom.lpack.Geom
+
+/**
+ * Shared executor for parallel surface computations.
+ * Computations such as surface integrals, areas, volumes, centers of
+ * mass, and moments perform the same computation on each segment of a
+ * surface and sum the results.  When these are done in parallel,
+ * the segments provided by a surface iterator are first copied
+ * into a buffer. The buffer's index range is split recursively into
+ * fork/join tasks, so idle threads steal work from busy ones, and the
+ * partial results are then combined.  The classes that use this
+ * executor include {@link SurfaceIntegral},
+ * {@link SurfaceIntegral.Batched}, and {@link Surface3D} (for its area
+ * and volume methods), and consequently the static methods in
+ * {@link SurfaceOps} and {@link Shape3D} that compute centers of mass
+ * and moments.
+ * <P>
+ * By default, the {@link ForkJoinPool#commonPool() common pool} is
+ * used, so no threads are created for each computation. The method
+ * {@link #setParallelism(int)} can configure a dedicated pool with a
+ * specified number of threads or disable parallel computations
+ * entirely.  This setting is global.
+ */
+public final class SurfaceExecutor {
+
+    static String errorMsg(String key, Object... args) {
+	return GeomErrorMsg.errorMsg(key, args);
+    }
+
+    private SurfaceExecutor() {}
+
+    // minimum number of segments processed by a single task
+    private static final int MIN_LEAF_SIZE = 16;
+
+    // 0 for the common pool, 1 for sequential computations
+    private static int parallelism = 0;
+    private static ForkJoinPool pool = null;
+
+    /**
+     * Set the parallelism for surface computations.
+     * A value of 0 restores the default, in which the common
+     * fork/join pool is used. A value of 1 disables parallel
+     * computations, so that all computations will be performed on
+     * the calling thread.  A larger value creates a dedicated
+     * fork/join pool with that parallelism.  Any previously created
+     * dedicated pool is shut down after its current tasks complete.
+     * @param parallelism the parallelism; 0 for the default
+     * @exception IllegalArgumentException the argument was negative
+     */
+    public static void setParallelism(int parallelism)
+	throws IllegalArgumentException
+    {
+	if (parallelism < 0) {
+	    throw new IllegalArgumentException
+		(errorMsg("negativeParallelism", parallelism));
+	}
+	ForkJoinPool old;
+	synchronized (SurfaceExecutor.class) {
+	    old = pool;
+	    pool = (parallelism > 1)? new ForkJoinPool(parallelism): null;
+	    SurfaceExecutor.parallelism = parallelism;
+	}
+	if (old != null) old.shutdown();
+    }
+
+    /**
+     * Get the parallelism for surface computations.
+     * The value returned is the number of threads that may be used
+     * concurrently, and is 1 if parallel computations are disabled.
+     * @return the parallelism
+     */
+    public static synchronized int getParallelism() {
+	switch (parallelism) {
+	case 0:
+	    return ForkJoinPool.getCommonPoolParallelism();
+	case 1:
+	    return 1;
+	default:
+	    return pool.getParallelism();
+	}
+    }
+
+    // Get the pool to use; null if computations should be sequential.
+    private static synchronized ForkJoinPool getPool() {
+	switch (parallelism) {
+	case 0:
+	    return (ForkJoinPool.getCommonPoolParallelism() > 1)?
+		ForkJoinPool.commonPool(): null;
+	case 1:
+	    return null;
+	default:
+	    return pool;
+	}
+    }
+
+    /*
+     * The segments read from a surface iterator.  Segment i's
+     * coordinates start at offsets[i] in the coords array.
+     */
+    static final class SegmentBuffer {
+	int n = 0;
+	int[] types;
+	int[] offsets;
+	double[] coords;
+	Color[] colors = null;
+	Object[] tags = null;
+	boolean oriented;
+
+	SegmentBuffer(SurfaceIterator si, int estimate) {
+	    if (estimate < 16) estimate = 16;
+	    types = new int[estimate];
+	    offsets = new int[estimate+1];
+	    coords = new double[estimate*16];
+	    oriented = si.isOriented();
+	    double[] tmp = new double[48];
+	    int offset = 0;
+	    while (!si.isDone()) {
+		int type = si.currentSegment(tmp);
+		int nc = ncoords(type);
+		if (n == types.length) {
+		    int len = 2*n;
+		    types = Arrays.copyOf(types, len);
+		    offsets = Arrays.copyOf(offsets, len+1);
+		    if (colors != null) colors = Arrays.copyOf(colors, len);
+		    if (tags != null) tags = Arrays.copyOf(tags, len);
+		}
+		if (offset + nc > coords.length) {
+		    coords = Arrays.copyOf(coords, 2*(offset + nc));
+		}
+		System.arraycopy(tmp, 0, coords, offset, nc);
+		Color c = si.currentColor();
+		if (c != null) {
+		    if (colors == null) colors = new Color[types.length];
+		    colors[n] = c;
+		}
+		Object tag = si.currentTag();
+		if (tag != null) {
+		    if (tags == null) tags = new Object[types.length];
+		    tags[n] = tag;
+		}
+		types[n] = type;
+		offsets[n++] = offset;
+		offset += nc;
+		si.next();
+	    }
+	    offsets[n] = offset;
+	}
+
+	static int ncoords(int type) {
+	    switch(type) {
+	    case SurfaceIterator.PLANAR_TRIANGLE:
+		return 9;
+	    case SurfaceIterator.CUBIC_TRIANGLE:
+		return 30;
+	    case SurfaceIterator.CUBIC_PATCH:
+		return 48;
+	    case SurfaceIterator.CUBIC_VERTEX:
+		return 15;
+	    default:
+		return 0;
+	    }
+	}
+
+	// Get an iterator for the segments whose indices are in [start, end)
+	SurfaceIterator getSurfaceIterator(int start, int end) {
+	    return new SurfaceIterator() {
+		int index = start;
+
+		@Override
+		public int currentSegment(double[] c) {
+		    int offset = offsets[index];
+		    System.arraycopy(coords, offset, c, 0,
+				     offsets[index+1] - offset);
+		    return types[index];
+		}
+
+		@Override
+		public int currentSegment(float[] c) {
+		    int offset = offsets[index];
+		    int nc = offsets[index+1] - offset;
+		    for (int i = 0; i < nc; i++) {
+			c[i] = (float)coords[offset+i];
+		    }
+		    return types[index];
+		}
+
+		@Override
+		public Color currentColor() {
+		    return (colors == null)? null: colors[index];
+		}
+
+		@Override
+		public Object currentTag() {
+		    return (tags == null)? null: tags[index];
+		}
+
+		@Override
+		public boolean isDone() {
+		    return index >= end;
+		}
+
+		@Override
+		public boolean isOriented() {
+		    return oriented;
+		}
+
+		@Override
+		public void next() {
+		    if (index < end) index++;
+		}
+	    };
+	}
+    }
+
+    private static final class Task<T> extends RecursiveTask<T> {
+	private static final long serialVersionUID = 1;
+	SegmentBuffer buffer;
+	int start;
+	int end;
+	int leafSize;
+	Function<SurfaceIterator,T> op;
+	BinaryOperator<T> combiner;
+
+	Task(SegmentBuffer buffer, int start, int end, int leafSize,
+	     Function<SurfaceIterator,T> op, BinaryOperator<T> combiner)
+	{
+	    this.buffer = buffer;
+	    this.start = start;
+	    this.end = end;
+	    this.leafSize = leafSize;
+	    this.op = op;
+	    this.combiner = combiner;
+	}
+
+	@Override
+	protected T compute() {
+	    if (end - start <= leafSize) {
+		return op.apply(buffer.getSurfaceIterator(start, end));
+	    }
+	    int mid = (start + end) >>> 1;
+	    Task<T> left = new Task<>(buffer, start, mid, leafSize,
+				      op, combiner);
+	    left.fork();
+	    T rightResult = new Task<>(buffer, mid, end, leafSize,
+				       op, combiner).compute();
+	    return combiner.apply(left.join(), rightResult);
+	}
+    }
+
+    /*
+     * A task for a splittable surface iterator.  The iterator is split
+     * directly, so the segments are not copied into a buffer.  A split
+     * returns the segments preceding those remaining in the iterator,
+     * so the combiner is applied to the prefix's result first.
+     */
+    private static final class SplitTask<T> extends RecursiveTask<T> {
+	private static final long serialVersionUID = 1;
+	SplittableSurfaceIterator si;
+	long leafSize;
+	Function<SurfaceIterator,T> op;
+	BinaryOperator<T> combiner;
+
+	SplitTask(SplittableSurfaceIterator si, long leafSize,
+		  Function<SurfaceIterator,T> op, BinaryOperator<T> combiner)
+	{
+	    this.si = si;
+	    this.leafSize = leafSize;
+	    this.op = op;
+	    this.combiner = combiner;
+	}
+
+	@Override
+	protected T compute() {
+	    SplittableSurfaceIterator prefix = (si.estimateSize() > leafSize)?
+		si.trySplit(): null;
+	    if (prefix == null) {
+		return op.apply(si);
+	    }
+	    SplitTask<T> left = new SplitTask<>(prefix, leafSize,
+						op, combiner);
+	    left.fork();
+	    T rightResult = compute();
+	    return combiner.apply(left.join(), rightResult);
+	}
+    }
+
+    /**
+     * Apply an operation to a surface's segments in parallel and
+     * combine the results.
+     * The operation is applied to surface iterators that each cover a
+     * contiguous range of the segments provided by the surface iterator
+     * si, and must return a value that does not depend on how the
+     * segments are grouped, provided the combiner is applied to the
+     * results for adjacent ranges in order.  The combiner's first
+     * argument is always the value for the range that precedes the
+     * range for its second argument, so the combined value is the
+     * same regardless of the parallelism and of the order in which
+     * the ranges were processed.
+     * <P>
+     * When si is a {@link SplittableSurfaceIterator}, it is split
+     * directly. Otherwise its segments are first copied into a buffer.
+     * If parallel computations are disabled, the operation is applied
+     * directly to si.
+     * @param <T> the type of the value computed
+     * @param si the surface iterator
+     * @param op the operation
+     * @param combiner a function that combines the values for two
+     *        adjacent ranges of segments
+     * @return the combined value
+     * @see #setParallelism(int)
+     */
+    public static <T> T reduce(SurfaceIterator si,
+			       Function<SurfaceIterator,T> op,
+			       BinaryOperator<T> combiner)
+    {
+	int size = (si instanceof SplittableSurfaceIterator)?
+	    (int)Math.min(Integer.MAX_VALUE,
+			  ((SplittableSurfaceIterator)si).estimateSize()):
+	    0;
+	return reduce(si, size, op, combiner);
+    }
+
+    /*
+     * Same as reduce(si, op, combiner) but with an estimate of the
+     * number of segments si provides.
+     */
+    static <T> T reduce(SurfaceIterator si, int size,
+			Function<SurfaceIterator,T> op,
+			BinaryOperator<T> combiner)
+    {
+	ForkJoinPool fjp = getPool();
+	if (fjp == null) return op.apply(si);
+	if (si instanceof SplittableSurfaceIterator) {
+	    SplittableSurfaceIterator ssi = (SplittableSurfaceIterator) si;
+	    long leafSize = Math.max(MIN_LEAF_SIZE,
+				     ssi.estimateSize()
+				     / (4 * fjp.getParallelism()) + 1);
+	    SplitTask<T> task = new SplitTask<>(ssi, leafSize, op, combiner);
+	    if (ForkJoinTask.getPool() == fjp) {
+		return task.invoke();
+	    }
+	    try {
+		return fjp.invoke(task);
+	    } catch (RejectedExecutionException e) {
+		// the pool was shut down before the task started
+		return op.apply(si);
+	    }
+	}
+	SegmentBuffer buffer = new SegmentBuffer(si, size);
+	int n = buffer.n;
+	int leafSize = Math.max(MIN_LEAF_SIZE,
+				n / (4 * fjp.getParallelism()) + 1);
+	Task<T> task = new Task<>(buffer, 0, n, leafSize, op, combiner);
+	if (ForkJoinTask.getPool() == fjp) {
+	    // already running in the pool (e.g., a nested computation)
+	    return task.invoke();
+	}
+	try {
+	    return fjp.invoke(task);
+	} catch (RejectedExecutionException e) {
+	    // the pool was shut down by a call to setParallelism
+	    return op.apply(buffer.getSurfaceIterator(0, n));
+	}
+    }
+}
+
+//  LocalWords:  exbundle commonPool setParallelism si combiner
+//  LocalWords:  IllegalArgumentException
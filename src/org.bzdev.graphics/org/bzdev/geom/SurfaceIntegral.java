@@ -1014,7 +1014,7 @@ public class SurfaceIntegral  {
 
 
     private int getNProc(int size) {
-	int nproc = Runtime.getRuntime().availableProcessors();
+	int nproc = SurfaceExecutor.getParallelism();
 	int maxpts = ncp*ncp*size;
 	// int bestpts = 32;
 	int bestpts;
@@ -1025,8 +1025,8 @@ public class SurfaceIntegral  {
 	    bestpts = 6*6*MIN_PARALLEL_SIZE_V;
 	}
 	int want = (maxpts/bestpts) + 1;
-	if (want > (nproc - 1)) {
-	    return nproc - 1;
+	if (want > nproc) {
+	    return nproc;
 	} else {
 	    return want;
 	}
@@ -1068,8 +1068,7 @@ public class SurfaceIntegral  {
 	throws IllegalArgumentException
     {
 	if (parallel) {
-	    int nproc = getNProc(size);
-	    if (nproc < 2) return integrate(si, false, 0);
+	    if (getNProc(size) < 2) return integrate(si, false, 0);
 	    boolean scalar;
 	    if (sf == null) {
 		scalar = false;
@@ -1078,33 +1077,9 @@ public class SurfaceIntegral  {
 		    throw new IllegalArgumentException(errorMsg("notOriented"));
 		}
 	    }
-	    final double[] subtotals = new double[nproc];
-	    final SurfaceIteratorSplitter splitter =
-		new SurfaceIteratorSplitter(nproc, si);
-	    nproc--;
-	    Thread[] threads = new Thread[nproc];
-	    for (int i = 0; i < nproc; i++) {
-		final int index = i;
-		threads[i] = new Thread(() -> {
-			subtotals[index] = SurfaceIntegral.this.integrate
-			    (splitter.getSurfaceIterator(index), false, 0);
-		});
-		threads[i].start();
-	    }
-	    subtotals[nproc] = integrate(splitter.getSurfaceIterator(nproc),
-					 false, 0);
-	    try {
-		for (int i = 0; i < nproc; i++) {
-		    threads[i].join();
-		}
-	    } catch (InterruptedException ei) {
-		splitter.interrupt();
-	    }
-	    double sum = 0.0;
-	    for (int i = 0; i <= nproc; i++) {
-		sum += subtotals[i];
-	    }
-	    return sum;
+	    return SurfaceExecutor.reduce(si, size,
+					  (tsi) -> integrate(tsi, false, 0),
+					  (x, y) -> x + y);
 	} else {
 	    Adder adder = new Adder.Kahan();
 	    if (sf != null) {
@@ -1743,7 +1718,7 @@ public class SurfaceIntegral  {
 	    SurfaceConstants.MIN_PARALLEL_SIZE;
 
 	private int getNProc(int size) {
-	    int nproc = Runtime.getRuntime().availableProcessors();
+	    int nproc = SurfaceExecutor.getParallelism();
 	    int maxpts = ncp*ncp*size;
 	    // int bestpts = 32;
 	    int bestpts;
@@ -1754,8 +1729,8 @@ public class SurfaceIntegral  {
 		bestpts = 6*6*MIN_PARALLEL_SIZE_V;
 	    }
 	    int want = (maxpts/bestpts) + 1;
-	    if (want > (nproc - 1)) {
-		return nproc - 1;
+	    if (want > nproc) {
+		return nproc;
 	    } else {
 		return want;
 	    }
@@ -1798,41 +1773,19 @@ public class SurfaceIntegral  {
 	    throws IllegalArgumentException
 	{
 	    if (parallel) {
-		int nproc = getNProc(size);
-		if (nproc < 2) return integrate(si, false, 0);
+		if (getNProc(size) < 2) return integrate(si, false, 0);
 		if (!isScalar && !si.isOriented()) {
 			throw new
 			    IllegalArgumentException(errorMsg("notOriented"));
 		}
-		final double[][] subtotals = new double[nproc][];
-		final SurfaceIteratorSplitter splitter =
-		    new SurfaceIteratorSplitter(nproc, si);
-		nproc--;
-		Thread[] threads = new Thread[nproc];
-		for (int i = 0; i < nproc; i++) {
-		    final int index = i;
-		    threads[i] = new Thread(() -> {
-			    subtotals[index] = Batched.this.integrate
-				(splitter.getSurfaceIterator(index), false, 0);
+		return SurfaceExecutor.reduce
+		    (si, size, (tsi) -> integrate(tsi, false, 0),
+		     (x, y) -> {
+			for (int j = 0; j < x.length; j++) {
+			    x[j] += y[j];
+			}
+			return x;
 		    });
-		    threads[i].start();
-		}
-		subtotals[nproc] = integrate(splitter.getSurfaceIterator(nproc),
-					     false, 0);
-		try {
-		    for (int i = 0; i < nproc; i++) {
-			threads[i].join();
-		    }
-		} catch (InterruptedException ei) {
-		    splitter.interrupt();
-		}
-		double[] results = new double[siarray.length];
-		for (int i = 0; i <= nproc; i++) {
-		    for (int j = 0; j < results.length; j++) {
-			results[j] += subtotals[i][j];
-		    }
-		}
-		return results;
 	    } else {
 		Adder[] adders = new Adder.Kahan[siarray.length];
 		for (int i = 0; i < adders.length; i++) {
@@ -21,6 +21,11 @@ import java.util.concurrent.BlockingQueue;
  * is not predictable. Similarly the segments each subiterator obtains
  * is not predictable: there is no attempt to keep nearby segments
  * together, for example.
+ * <P>
+ * Each instance creates a thread to read the original surface
+ * iterator.  The surface computations in this package instead use
+ * {@link SurfaceExecutor}, which runs tasks in a shared fork/join
+ * pool.
  */
 public class SurfaceIteratorSplitter {
 
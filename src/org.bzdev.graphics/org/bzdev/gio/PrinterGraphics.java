@@ -69,8 +69,7 @@ public class PrinterGraphics implements OSGraphicsOps {
 	("org.bzdev.gio.lpack.Gio");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     boolean useScaling = true;
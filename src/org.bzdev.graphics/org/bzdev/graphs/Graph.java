@@ -319,8 +319,7 @@ import org.bzdev.util.SafeFormatter;
 	exbundle=ResourceBundle.getBundle("org.bzdev.graphs.lpack.Graphs");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
      /**
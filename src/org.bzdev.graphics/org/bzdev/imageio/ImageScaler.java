@@ -24,8 +24,7 @@ public class ImageScaler {
 	("org.bzdev.imageio.lpack.ImageIO");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
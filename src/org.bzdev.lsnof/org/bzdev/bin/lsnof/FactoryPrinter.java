@@ -42,8 +42,7 @@ public class FactoryPrinter {
 	("org.bzdev.bin.lsnof.lpack.FactoryPrinter");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     private static final String pathSeparator =
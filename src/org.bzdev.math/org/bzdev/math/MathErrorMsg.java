@@ -8,7 +8,6 @@ class MathErrorMsg {
 	("org.bzdev.math.lpack.Math");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
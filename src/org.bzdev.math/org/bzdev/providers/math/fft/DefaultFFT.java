@@ -29,8 +29,7 @@ public class DefaultFFT extends FFT {
 	("org.bzdev.math.lpack.Math");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
@@ -333,8 +333,7 @@ abstract public class NamedObjectFactory<
 	("org.bzdev.obnaming.lpack.NamedObjectFactory");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     /**
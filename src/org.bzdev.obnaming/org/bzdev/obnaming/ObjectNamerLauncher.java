@@ -81,8 +81,7 @@ public abstract class ObjectNamerLauncher
     static String errorMsg(String key, Object... args)
 	throws NullPointerException, MissingResourceException
     {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
@@ -59,8 +59,7 @@ public class ParmParser {
 	throws
 	    NullPointerException, MissingResourceException, ClassCastException
     {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     /**
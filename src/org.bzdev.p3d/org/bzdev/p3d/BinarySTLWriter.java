@@ -0,0 +1,188 @@
+package org.bzdev.p3d;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.WritableByteChannel;
+
+//@exbundle org.bzdev.p3d.lpack.P3d
+
+/**
+ * Writer for binary STL files.
+ * Facets are provided as packed arrays of single-precision
+ * coordinates: nine values per facet for the x, y, and z coordinates
+ * of its three vertices, and optionally three values per facet for
+ * its normal vector.  Facets are copied into a large direct buffer
+ * and written in batches, so that writing an STL file requires few
+ * system calls.
+ * <P>
+ * A file consists of a header, written by calling
+ * {@link #writeHeader(String,int)}, followed by the number of facets
+ * given in the header, written by calling
+ * {@link #writeFacets(float[],float[],int,int)} one or more times.
+ * The method {@link #flush()} must be called after the last facet is
+ * written.  For example,
+ * <BLOCKQUOTE><PRE><CODE>
+ *   BinarySTLWriter w = new BinarySTLWriter(channel);
+ *   w.writeHeader("model", n);
+ *   w.writeFacets(coords, null, 0, n);
+ *   w.flush();
+ * </CODE></PRE></BLOCKQUOTE>
+ * The channel is not closed by this class.
+ * @see MappedSTLParser
+ */
+public class BinarySTLWriter {
+
+    static String errorMsg(String key, Object... args) {
+	return P3dErrorMsg.errorMsg(key, args);
+    }
+
+    // number of facets per batch
+    private static final int BATCH_SIZE = 8192;
+    private static final int FACET_SIZE = 50;
+
+    private WritableByteChannel c;
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor.
+     * @param c the output channel
+     */
+    public BinarySTLWriter(WritableByteChannel c) {
+	this.c = c;
+	buffer = ByteBuffer.allocateDirect(BATCH_SIZE * FACET_SIZE);
+	buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void drain() throws IOException {
+	buffer.flip();
+	while (buffer.hasRemaining()) {
+	    c.write(buffer);
+	}
+	buffer.clear();
+    }
+
+    /**
+     * Write the header for a binary STL file.
+     * @param id the STL file's ID string (limited to 80 7-bit ASCII
+     *        characters)
+     * @param count the number of facets the file will contain
+     * @exception IOException an error occurred while writing
+     * @exception IllegalArgumentException the ID string was too long or
+     *            contained illegal characters
+     */
+    public void writeHeader(String id, int count)
+	throws IOException, IllegalArgumentException
+    {
+	if (id.length() > 80) {
+	    throw new IllegalArgumentException(errorMsg("idTooLong"));
+	}
+	int i = 0;
+	while (i < id.length()) {
+	    char ch = id.charAt(i);
+	    if (ch == 0 || ch > 128)
+		throw new IllegalArgumentException(errorMsg("illegalIdChars"));
+	    buffer.put((byte)ch);
+	    i++;
+	}
+	while (i++ < 80) buffer.put((byte)0);
+	buffer.putInt(count);
+    }
+
+    /**
+     * Write facets.
+     * When normals is null, each facet's normal vector is computed from
+     * its vertices using the right-hand rule.
+     * @param coords the vertex coordinates, nine per facet
+     * @param normals the normal vectors, three per facet; null if the
+     *        normal vectors should be computed
+     * @param offset the index of the first facet to write
+     * @param count the number of facets to write
+     * @exception IOException an error occurred while writing
+     * @exception IndexOutOfBoundsException the offset or count
+     *            referenced facets that are not in the arrays
+     */
+    public void writeFacets(float[] coords, float[] normals,
+			    int offset, int count)
+	throws IOException, IndexOutOfBoundsException
+    {
+	if (offset < 0 || count < 0
+	    || 9L * (offset + (long)count) > coords.length
+	    || (normals != null
+		&& 3L * (offset + (long)count) > normals.length)) {
+	    throw new IndexOutOfBoundsException();
+	}
+	int end = offset + count;
+	for (int i = offset; i < end; i++) {
+	    if (buffer.remaining() < FACET_SIZE) drain();
+	    int k = 9*i;
+	    if (normals == null) {
+		double ux = coords[k+3] - coords[k];
+		double uy = coords[k+4] - coords[k+1];
+		double uz = coords[k+5] - coords[k+2];
+		double vx = coords[k+6] - coords[k];
+		double vy = coords[k+7] - coords[k+1];
+		double vz = coords[k+8] - coords[k+2];
+		double nx = uy*vz - uz*vy;
+		double ny = uz*vx - ux*vz;
+		double nz = ux*vy - uy*vx;
+		double norm = Math.sqrt(nx*nx + ny*ny + nz*nz);
+		if (norm > 0.0) {
+		    nx /= norm; ny /= norm; nz /= norm;
+		}
+		buffer.putFloat((float)nx);
+		buffer.putFloat((float)ny);
+		buffer.putFloat((float)nz);
+	    } else {
+		int m = 3*i;
+		buffer.putFloat(normals[m]);
+		buffer.putFloat(normals[m+1]);
+		buffer.putFloat(normals[m+2]);
+	    }
+	    for (int j = 0; j < 9; j++) {
+		buffer.putFloat(coords[k+j]);
+	    }
+	    buffer.putShort((short)0);
+	}
+    }
+
+    /**
+     * Write any buffered data to the channel.
+     * @exception IOException an error occurred while writing
+     */
+    public void flush() throws IOException {
+	if (buffer.position() > 0) drain();
+    }
+
+    /**
+     * Write a binary STL file.
+     * When normals is null, each facet's normal vector is computed from
+     * its vertices using the right-hand rule.
+     * @param id the STL file's ID string (limited to 80 7-bit ASCII
+     *        characters)
+     * @param coords the vertex coordinates, nine per facet
+     * @param normals the normal vectors, three per facet; null if the
+     *        normal vectors should be computed
+     * @param c the output channel
+     * @exception IOException an error occurred while writing
+     * @exception IllegalArgumentException the ID string was too long or
+     *            contained illegal characters, or the length of coords
+     *            is not divisible by 9
+     */
+    public static void write(String id, float[] coords, float[] normals,
+			     WritableByteChannel c)
+	throws IOException, IllegalArgumentException
+    {
+	if (coords.length % 9 != 0) {
+	    throw new IllegalArgumentException
+		(errorMsg("coordsLength", coords.length));
+	}
+	int count = coords.length / 9;
+	BinarySTLWriter w = new BinarySTLWriter(c);
+	w.writeHeader(id, count);
+	w.writeFacets(coords, normals, 0, count);
+	w.flush();
+    }
+}
+
+//  LocalWords:  exbundle STL BLOCKQUOTE PRE BinarySTLWriter writeHeader
+//  LocalWords:  writeFacets coords IndexOutOfBoundsException
@@ -0,0 +1,573 @@
+package org.bzdev.p3d;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//@exbundle org.bzdev.p3d.lpack.P3d
+
+/**
+ * Parser for STL files using memory-mapped I/O.
+ * Both binary and ASCII STL files are supported. Unlike
+ * {@link BinarySTLParser}, which reads a stream one facet at a time,
+ * this class maps the file into memory.  For binary STL files whose
+ * facets have a fixed size (the usual case), the file is split into
+ * chunks that are mapped and parsed in parallel using the common
+ * fork/join pool.  ASCII STL files are read with a byte-level scanner
+ * that does not create a string for each token.
+ * <P>
+ * The facets are stored in packed arrays: nine single-precision
+ * values per facet for the coordinates of its vertices (x, y, and z
+ * for the first vertex, then the second, then the third), and three
+ * values per facet for its normal vector.  These arrays are
+ * created the first time a method that needs them is called, and
+ * can be used directly or added to a model by calling
+ * {@link #addToModel(Model3D)}.
+ * <P>
+ * A file is treated as a binary STL file when its length matches the
+ * facet count in its header. Otherwise it is treated as an ASCII STL
+ * file if it starts with the keyword "solid", and as a binary STL
+ * file with variable-length facets (that is, with non-zero attribute
+ * byte counts) if it does not.
+ * @see BinarySTLWriter
+ */
+public class MappedSTLParser {
+
+    static String errorMsg(String key, Object... args) {
+	return P3dErrorMsg.errorMsg(key, args);
+    }
+
+    private static final int HEADER_SIZE = 84;
+    private static final int FACET_SIZE = 50;
+    // number of facets parsed by a single task
+    private static final int CHUNK_SIZE = 65536;
+    // maximum size of a mapped region for ASCII files
+    private static final int WINDOW_SIZE = 1 << 30;
+    // the largest facet count for which the packed arrays can be created
+    private static final int MAX_FACETS = Integer.MAX_VALUE / 9;
+
+    File file;
+    boolean ignoreAttributeByteCounts = false;
+    boolean parsed = false;
+    boolean binary;
+    int count;
+    float[] coords;
+    float[] normals;
+
+    /**
+     * Constructor given a file.
+     * @param file the STL file
+     */
+    public MappedSTLParser(File file) {
+	this.file = file;
+    }
+
+    /**
+     * Constructor given a file name.
+     * @param filename the name of the STL file
+     */
+    public MappedSTLParser(String filename) {
+	this(new File(filename));
+    }
+
+    /**
+     * Determine whether the attribute byte count field should be ignored.
+     * When ignored, each facet in a binary STL file is assumed to
+     * use 50 bytes. This method has no effect after the file has been
+     * parsed.
+     * @param value true if the attribute byte count field should be ignored;
+     *        false otherwise
+     */
+    public synchronized void setIgnoreAttributeByteCounts(boolean value) {
+	ignoreAttributeByteCounts = value;
+    }
+
+    /**
+     * Determine if the STL file is a binary STL file.
+     * @return true if the file is a binary STL file; false if it is an
+     *         ASCII STL file
+     * @exception IOException an IO error occurred or the file was not
+     *            a well-formed STL file
+     */
+    public synchronized boolean isBinary() throws IOException {
+	parse();
+	return binary;
+    }
+
+    /**
+     * Get the number of triangles (facets) in the STL file.
+     * @return the number of triangles
+     * @exception IOException an IO error occurred or the file was not
+     *            a well-formed STL file
+     */
+    public synchronized int getTriangleCount() throws IOException {
+	parse();
+	return count;
+    }
+
+    /**
+     * Get the coordinates of each facet's vertices.
+     * The array contains nine values per facet: the x, y, and z
+     * coordinates of its first, second, and third vertices in that
+     * order. The array returned is not a copy, and its length may be
+     * larger than nine times the value returned by
+     * {@link #getTriangleCount()}.
+     * @return the coordinates
+     * @exception IOException an IO error occurred or the file was not
+     *            a well-formed STL file
+     */
+    public synchronized float[] getCoordinates() throws IOException {
+	parse();
+	return coords;
+    }
+
+    /**
+     * Get the normal vector for each facet.
+     * The array contains three values per facet: the x, y, and z
+     * components of the facet's normal vector as given in the STL file.
+     * The array returned is not a copy, and its length may be
+     * larger than three times the value returned by
+     * {@link #getTriangleCount()}.
+     * @return the components of the normal vectors
+     * @exception IOException an IO error occurred or the file was not
+     *            a well-formed STL file
+     */
+    public synchronized float[] getNormals() throws IOException {
+	parse();
+	return normals;
+    }
+
+    /**
+     * Add the contents of an STL file to a model.
+     * If the model is configures to use object transformations,
+     * (rotations and translation), those will be applied.
+     * @param m3d the model
+     * @exception IOException an IO error occurred or the file was not
+     *            a well-formed STL file
+     */
+    public synchronized void addToModel(Model3D m3d) throws IOException {
+	parse();
+	for (int i = 0; i < count; i++) {
+	    int k = 9*i;
+	    m3d.addTriangle((double)coords[k], (double)coords[k+1],
+			    (double)coords[k+2], (double)coords[k+3],
+			    (double)coords[k+4], (double)coords[k+5],
+			    (double)coords[k+6], (double)coords[k+7],
+			    (double)coords[k+8]);
+	}
+    }
+
+    private void parse() throws IOException {
+	if (parsed) return;
+	try (FileChannel fc = new RandomAccessFile(file, "r").getChannel()) {
+	    long size = fc.size();
+	    long n = -1;
+	    if (size >= HEADER_SIZE) {
+		ByteBuffer bb = ByteBuffer.allocate(4);
+		bb.order(ByteOrder.LITTLE_ENDIAN);
+		while (bb.hasRemaining()) {
+		    if (fc.read(bb, 80 + bb.position()) < 0) break;
+		}
+		bb.flip();
+		n = Integer.toUnsignedLong(bb.getInt());
+	    }
+	    boolean fixed = (n >= 0 && size == HEADER_SIZE + FACET_SIZE * n);
+	    if (!fixed && startsWithSolid(fc, size)) {
+		binary = false;
+		parseASCII(fc, size);
+	    } else if (size < HEADER_SIZE) {
+		throw new IOException(errorMsg("stlTruncated", file, size));
+	    } else {
+		binary = true;
+		// Every facet uses at least FACET_SIZE bytes, so check the
+		// count in the header before allocating anything based on it.
+		if (n > (size - HEADER_SIZE) / FACET_SIZE) {
+		    throw new IOException
+			(errorMsg("stlTruncated", file, size));
+		}
+		if (n > MAX_FACETS) {
+		    throw new IOException(errorMsg("tooManyTriangles"));
+		}
+		count = (int)n;
+		coords = new float[9*count];
+		normals = new float[3*count];
+		if (fixed || ignoreAttributeByteCounts) {
+		    parseFixed(fc);
+		} else {
+		    parseVariable(fc, size);
+		}
+	    }
+	}
+	parsed = true;
+    }
+
+    private static boolean startsWithSolid(FileChannel fc, long size)
+	throws IOException
+    {
+	ByteBuffer bb = ByteBuffer.allocate((int)Math.min(size, 256L));
+	while (bb.hasRemaining()) {
+	    if (fc.read(bb, bb.position()) < 0) break;
+	}
+	bb.flip();
+	while (bb.hasRemaining()) {
+	    byte b = bb.get();
+	    if (!isSpace(b)) {
+		bb.position(bb.position() - 1);
+		break;
+	    }
+	}
+	if (bb.remaining() < 5) return false;
+	for (int i = 0; i < 5; i++) {
+	    if (bb.get() != SOLID[i]) return false;
+	}
+	return !bb.hasRemaining() || isSpace(bb.get());
+    }
+
+    // Binary files in which every facet uses FACET_SIZE bytes.
+    private void parseFixed(FileChannel fc) throws IOException {
+	ChunkTask task = new ChunkTask(fc, 0, count);
+	if (ForkJoinPool.getCommonPoolParallelism() > 1
+	    && count > CHUNK_SIZE) {
+	    try {
+		task.invoke();
+	    } catch (UncheckedIOException e) {
+		throw e.getCause();
+	    }
+	} else {
+	    for (int i = 0; i < count; i += CHUNK_SIZE) {
+		parseChunk(fc, i, Math.min(count, i + CHUNK_SIZE));
+	    }
+	}
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	FileChannel fc;
+	int start;
+	int end;
+
+	ChunkTask(FileChannel fc, int start, int end) {
+	    this.fc = fc;
+	    this.start = start;
+	    this.end = end;
+	}
+
+	@Override
+	protected void compute() {
+	    if (end - start <= CHUNK_SIZE) {
+		try {
+		    parseChunk(fc, start, end);
+		} catch (IOException e) {
+		    throw new UncheckedIOException(e);
+		}
+	    } else {
+		int mid = (start + end) >>> 1;
+		invokeAll(new ChunkTask(fc, start, mid),
+			  new ChunkTask(fc, mid, end));
+	    }
+	}
+    }
+
+    // Parse the facets whose indices are in [start, end).
+    private void parseChunk(FileChannel fc, int start, int end)
+	throws IOException
+    {
+	if (start == end) return;
+	MappedByteBuffer mb =
+	    fc.map(FileChannel.MapMode.READ_ONLY,
+		   HEADER_SIZE + FACET_SIZE * (long)start,
+		   FACET_SIZE * (long)(end - start));
+	mb.order(ByteOrder.LITTLE_ENDIAN);
+	int k = 9*start;
+	int m = 3*start;
+	int pos = 0;
+	for (int i = start; i < end; i++) {
+	    normals[m++] = mb.getFloat(pos);
+	    normals[m++] = mb.getFloat(pos+4);
+	    normals[m++] = mb.getFloat(pos+8);
+	    for (int j = 12; j < 48; j += 4) {
+		coords[k++] = mb.getFloat(pos + j);
+	    }
+	    pos += FACET_SIZE;
+	}
+    }
+
+    // Binary files whose facets' attribute byte counts must be honored.
+    private void parseVariable(FileChannel fc, long size)
+	throws IOException
+    {
+	long wstart = HEADER_SIZE;
+	MappedByteBuffer mb = null;
+	int pos = 0;
+	int k = 0;
+	int m = 0;
+	for (int i = 0; i < count; i++) {
+	    if (mb == null || mb.limit() - pos < FACET_SIZE) {
+		wstart += pos;
+		if (size - wstart < FACET_SIZE) {
+		    throw new IOException
+			(errorMsg("stlTruncated", file, size));
+		}
+		mb = fc.map(FileChannel.MapMode.READ_ONLY, wstart,
+			    Math.min(size - wstart, (long)WINDOW_SIZE));
+		mb.order(ByteOrder.LITTLE_ENDIAN);
+		pos = 0;
+	    }
+	    normals[m++] = mb.getFloat(pos);
+	    normals[m++] = mb.getFloat(pos+4);
+	    normals[m++] = mb.getFloat(pos+8);
+	    for (int j = 12; j < 48; j += 4) {
+		coords[k++] = mb.getFloat(pos + j);
+	    }
+	    int acnt = mb.getShort(pos + 48) & 0xffff;
+	    pos += FACET_SIZE + acnt;
+	    if (pos > mb.limit()) {
+		// the attribute bytes extend past the current window
+		wstart += pos;
+		pos = 0;
+		mb = null;
+	    }
+	}
+    }
+
+    private static final byte[] SOLID = keyword("solid");
+    private static final byte[] ENDSOLID = keyword("endsolid");
+    private static final byte[] FACET = keyword("facet");
+    private static final byte[] NORMAL = keyword("normal");
+    private static final byte[] OUTER = keyword("outer");
+    private static final byte[] LOOP = keyword("loop");
+    private static final byte[] VERTEX = keyword("vertex");
+    private static final byte[] ENDLOOP = keyword("endloop");
+    private static final byte[] ENDFACET = keyword("endfacet");
+
+    private static byte[] keyword(String s) {
+	return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isSpace(byte b) {
+	return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    // Scanner state for ASCII files.
+    private MappedByteBuffer mb;
+    private long wstart;
+    private int pos;
+    private int limit;
+    private int tstart;
+    private int tend;
+    private byte[] nbuf = new byte[64];
+
+    private void parseASCII(FileChannel fc, long size) throws IOException {
+	int estimate = (int)Math.min(size / 256 + 16, (long)MAX_FACETS);
+	coords = new float[9*estimate];
+	normals = new float[3*estimate];
+	count = 0;
+	wstart = 0;
+	while (wstart < size) {
+	    long wsize = Math.min(size - wstart, (long)WINDOW_SIZE);
+	    mb = fc.map(FileChannel.MapMode.READ_ONLY, wstart, wsize);
+	    limit = (int)wsize;
+	    if (wstart + wsize < size) {
+		// end the window just after the last "endfacet" keyword so
+		// that no facet is split between windows.
+		int cut = lastEndFacet();
+		if (cut < 0) {
+		    throw new IOException(errorMsg("stlSyntax", file, wstart));
+		}
+		limit = cut;
+	    }
+	    pos = 0;
+	    scanWindow();
+	    wstart += limit;
+	}
+	mb = null;
+    }
+
+    private int lastEndFacet() {
+	int n = ENDFACET.length;
+	for (int i = limit - n; i >= 0; i--) {
+	    if (matchesAt(i, ENDFACET)
+		&& (i == 0 || isSpace(mb.get(i-1)))
+		&& (i + n == limit || isSpace(mb.get(i+n)))) {
+		return i + n;
+	    }
+	}
+	return -1;
+    }
+
+    private boolean matchesAt(int i, byte[] kw) {
+	for (int j = 0; j < kw.length; j++) {
+	    if (mb.get(i+j) != kw[j]) return false;
+	}
+	return true;
+    }
+
+    private boolean tokenIs(byte[] kw) {
+	return (tend - tstart == kw.length) && matchesAt(tstart, kw);
+    }
+
+    // Find the next token; return false at the end of the window.
+    private boolean nextToken() {
+	while (pos < limit && isSpace(mb.get(pos))) pos++;
+	if (pos == limit) return false;
+	tstart = pos;
+	while (pos < limit && !isSpace(mb.get(pos))) pos++;
+	tend = pos;
+	return true;
+    }
+
+    private void skipLine() {
+	while (pos < limit) {
+	    byte b = mb.get(pos++);
+	    if (b == '\n' || b == '\r') break;
+	}
+    }
+
+    private IOException syntaxError() {
+	return new IOException(errorMsg("stlSyntax", file, wstart + tstart));
+    }
+
+    private void scanWindow() throws IOException {
+	float[] vertices = new float[9];
+	float nx = 0.0F, ny = 0.0F, nz = 0.0F;
+	int nv = 0;
+	while (nextToken()) {
+	    if (tokenIs(VERTEX)) {
+		if (nv == 3) throw syntaxError();
+		int k = 3*nv;
+		vertices[k] = nextFloat();
+		vertices[k+1] = nextFloat();
+		vertices[k+2] = nextFloat();
+		nv++;
+	    } else if (tokenIs(ENDFACET)) {
+		if (nv != 3) throw syntaxError();
+		if (9 * (count + 1) > coords.length) {
+		    if (count == MAX_FACETS) {
+			throw new IOException(errorMsg("tooManyTriangles"));
+		    }
+		    int len = (int)Math.min(2L * count, (long)MAX_FACETS);
+		    coords = Arrays.copyOf(coords, 9*len);
+		    normals = Arrays.copyOf(normals, 3*len);
+		}
+		System.arraycopy(vertices, 0, coords, 9*count, 9);
+		int m = 3*count;
+		normals[m] = nx;
+		normals[m+1] = ny;
+		normals[m+2] = nz;
+		count++;
+		nv = 0;
+		nx = 0.0F; ny = 0.0F; nz = 0.0F;
+	    } else if (tokenIs(NORMAL)) {
+		nx = nextFloat();
+		ny = nextFloat();
+		nz = nextFloat();
+	    } else if (tokenIs(SOLID) || tokenIs(ENDSOLID)) {
+		// the rest of the line is the solid's name
+		skipLine();
+	    } else if (tokenIs(FACET) || tokenIs(OUTER) || tokenIs(LOOP)
+		       || tokenIs(ENDLOOP)) {
+		continue;
+	    } else {
+		throw syntaxError();
+	    }
+	}
+	if (nv != 0) throw syntaxError();
+    }
+
+    // powers of ten that can be represented exactly as a float
+    private static final float[] POW10 = {
+	1.0e0F, 1.0e1F, 1.0e2F, 1.0e3F, 1.0e4F, 1.0e5F,
+	1.0e6F, 1.0e7F, 1.0e8F, 1.0e9F, 1.0e10F
+    };
+
+    // largest integer for which all smaller integers are exact floats
+    private static final long MAX_EXACT = 1L << 24;
+
+    /*
+     * Parse a floating-point number. When the number has at most
+     * 24 bits of significand and its exponent is small enough that
+     * the power of ten is exact, a single correctly rounded float
+     * multiplication or division gives the same value as
+     * Float.parseFloat. Otherwise Float.parseFloat is used.
+     */
+    private float nextFloat() throws IOException {
+	if (!nextToken()) throw syntaxError();
+	int i = tstart;
+	boolean negative = false;
+	byte b = mb.get(i);
+	if (b == '-' || b == '+') {
+	    negative = (b == '-');
+	    i++;
+	}
+	long mantissa = 0;
+	int ndigits = 0;
+	int exp = 0;
+	boolean fast = true;
+	boolean sawDigit = false;
+	while (i < tend && (b = mb.get(i)) >= '0' && b <= '9') {
+	    sawDigit = true;
+	    if (mantissa < MAX_EXACT) {
+		mantissa = 10*mantissa + (b - '0');
+	    } else {
+		fast = false;
+	    }
+	    i++;
+	}
+	if (i < tend && mb.get(i) == '.') {
+	    i++;
+	    while (i < tend && (b = mb.get(i)) >= '0' && b <= '9') {
+		sawDigit = true;
+		if (mantissa < MAX_EXACT) {
+		    mantissa = 10*mantissa + (b - '0');
+		    exp--;
+		} else {
+		    fast = false;
+		}
+		i++;
+	    }
+	}
+	if (i < tend && ((b = mb.get(i)) == 'e' || b == 'E')) {
+	    i++;
+	    boolean eneg = false;
+	    if (i < tend && ((b = mb.get(i)) == '-' || b == '+')) {
+		eneg = (b == '-');
+		i++;
+	    }
+	    int e = 0;
+	    boolean sawExpDigit = false;
+	    while (i < tend && (b = mb.get(i)) >= '0' && b <= '9') {
+		sawExpDigit = true;
+		if (e < 1000) e = 10*e + (b - '0');
+		i++;
+	    }
+	    if (!sawExpDigit) fast = false;
+	    exp += eneg? -e: e;
+	}
+	if (fast && sawDigit && i == tend && mantissa <= MAX_EXACT
+	    && exp >= -10 && exp <= 10) {
+	    float value = (float)mantissa;
+	    value = (exp < 0)? value / POW10[-exp]: value * POW10[exp];
+	    return negative? -value: value;
+	}
+	// slow path (also handles "NaN", "Infinity", etc.)
+	int len = tend - tstart;
+	if (len > nbuf.length) nbuf = new byte[len];
+	for (int j = 0; j < len; j++) {
+	    nbuf[j] = mb.get(tstart + j);
+	}
+	try {
+	    return Float.parseFloat
+		(new String(nbuf, 0, len, StandardCharsets.US_ASCII));
+	} catch (NumberFormatException nfe) {
+	    throw syntaxError();
+	}
+    }
+}
+
+//  LocalWords:  exbundle STL BinarySTLParser addToModel getTriangleCount
+//  LocalWords:  configures IOException endsolid endfacet endloop
+//  LocalWords:  significand parseFloat
@@ -38,6 +38,10 @@ import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPOutputStream;
 import java.io.*;
 import javax.imageio.*;
@@ -401,6 +405,12 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	public ImageDataImpl getImageData() {
 	    return idata;
 	}
+
+	// The buffered image, or null if an OSGraphicsOps is used instead
+	BufferedImage getBufferedImage() {
+	    if (gc2d != null) fetchImage();
+	    return image;
+	}
 	
 	@Override
 	public int getWidth() {
@@ -2511,6 +2521,46 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
      */
     public boolean getStackTraceMode() {return stackTraceMode;}
 
+    boolean zbufferMode = false;
+
+    /**
+     * Set z-buffer mode.
+     * When z-buffer mode is off (false), the render methods sort
+     * the model's triangles and line segments by their z coordinates
+     * and draw them in back-to-front order (the painter's algorithm).
+     * When z-buffer mode is on (true), the render methods instead use
+     * a software rasterizer with a depth buffer: the rendered image is
+     * divided into tiles that are rendered in parallel using the common
+     * fork/join pool, only translucent elements are sorted, and opaque
+     * triangles that intersect each other are displayed correctly.
+     * Translucent elements are drawn after opaque ones, in
+     * back-to-front order.  Triangles are not partitioned into smaller
+     * triangles as described for {@link ImageData#setDelta(double)}
+     * because this is not needed to determine which triangle is in
+     * front of another. The shading
+     * (light source, color factor, and normal factor) is the same for
+     * both modes.  When a {@link Model3D.Image} contains a buffered
+     * image, the z-buffer rasterizer writes directly into that image;
+     * otherwise the model is rendered into a transparent image that
+     * is then drawn using the graphics context.
+     * <P>
+     * When render lists are shared by multiple models (i.e., when a
+     * render method's <code>keep</code> argument is true), the mode used
+     * is the one for the model whose render method draws the image.
+     * The default value is false.
+     * @param mode true to turn on z-buffer mode; false to turn it off
+     */
+    public void setZBufferMode(boolean mode) {
+	zbufferMode = mode;
+    }
+
+    /**
+     * Get the current z-buffer mode.
+     * @return true if z-buffer mode is on; false if it is off
+     * @see #setZBufferMode(boolean)
+     */
+    public boolean getZBufferMode() {return zbufferMode;}
+
     private static final double limit = (double)Math.ulp(1F);
 
     private static final double fix(double val)
@@ -4748,6 +4798,12 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
      * Get an iterator that will return a sequence of triangles after
      * tessellation.
      * <P>
+     * Once an iteration has returned all of the triangles, the
+     * triangles are cached, so a later call using the same level
+     * will not tessellate the model again unless the model was
+     * modified in the meantime (for example, by adding or removing
+     * triangles or by appending a surface).
+     * <P>
      * If this method throws a {@link TessellationException}, methods
      * for that exception can be used to determine the source of the
      * error.
@@ -4764,7 +4820,58 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	    String msg = errorMsg("negativeTessellation");
 	    throw new IllegalArgumentException(msg);
 	}
+	HashMap<Integer,List<Triangle>> cache = tessellationCache;
+	if (cache == null) {
+	    cache = new HashMap<Integer,List<Triangle>>();
+	    tessellationCache = cache;
+	} else {
+	    List<Triangle> list = cache.get(level);
+	    if (list != null) return list.iterator();
+	}
+	final HashMap<Integer,List<Triangle>> ourCache = cache;
+	final Iterator<Triangle> it = createTessellation(level);
+	// Record the triangles as they are generated. If this model is
+	// modified before the iteration is complete, the field
+	// tessellationCache will no longer refer to ourCache, so the
+	// list stored in ourCache will not be used.
+	return new Iterator<Triangle>() {
+	    ArrayList<Triangle> list = new ArrayList<>();
+	    public boolean hasNext() {
+		if (it.hasNext()) return true;
+		if (list != null) {
+		    list.trimToSize();
+		    ourCache.put(level, Collections.unmodifiableList(list));
+		    list = null;
+		}
+		return false;
+	    }
+	    public Triangle next() {
+		Triangle triangle = it.next();
+		if (list != null) list.add(triangle);
+		return triangle;
+	    }
+	};
+    }
 
+    /**
+     * Clear this model's tessellation cache.
+     * The triangles provided by {@link #tessellate()} or
+     * {@link #tessellate(int)} are cached for each tessellation level
+     * after an iteration over all of them has completed, and the cache
+     * is cleared whenever this model is modified. This method can be
+     * used to release the memory the cache uses when the model will
+     * not be changed but will not be tessellated again.
+     */
+    public void clearTessellationCache() {
+	tessellationCache = null;
+    }
+
+    // Tessellations indexed by level; set to null when the model changes.
+    HashMap<Integer,List<Triangle>> tessellationCache = null;
+
+    private Iterator<Triangle> createTessellation(int level)
+	throws TessellationException
+    {
 	TreeSetOfDouble xvalueSet = (TreeSetOfDouble)xCornerCoords.clone();
 	TreeSetOfDouble yvalueSet = (TreeSetOfDouble)yCornerCoords.clone();
 	TreeSetOfDouble zvalueSet = (TreeSetOfDouble)zCornerCoords.clone();
@@ -5666,6 +5773,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	cachedArea = null;
 	cachedVolume = null;
 	manifoldComponents = null;
+	tessellationCache = null;
 	double[] coords = new double[48];
 	while (!si.isDone()) {
 	    if (!si.isOriented()) {
@@ -5705,6 +5813,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		cachedArea = null;
 		cachedVolume = null;
 		manifoldComponents = null;
+		tessellationCache = null;
 		if (bbvalid) {
 		    for (int i = 0; i < 48; i += 3) {
 			double x = coords[i];
@@ -5749,6 +5858,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		cachedArea = null;
 		cachedVolume = null;
 		manifoldComponents = null;
+		tessellationCache = null;
 		if (bbvalid) {
 		    for (int i = 0; i < 30; i += 3) {
 			double x = coords[i];
@@ -5793,6 +5903,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		cachedArea = null;
 		cachedVolume = null;
 		manifoldComponents = null;
+		tessellationCache = null;
 		if (bbvalid) {
 		    for (int i = 0; i < 15; i += 3) {
 			double x = coords[i];
@@ -5932,6 +6043,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		cachedArea = null;
 		cachedVolume = null;
 		manifoldComponents = null;
+		tessellationCache = null;
 		if (bbvalid) {
 		    for (int i = 0; i < 48; i += 3) {
 			double x = coords[i];
@@ -5976,6 +6088,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		cachedArea = null;
 		cachedVolume = null;
 		manifoldComponents = null;
+		tessellationCache = null;
 		if (bbvalid) {
 		    for (int i = 0; i < 30; i += 3) {
 			double x = coords[i];
@@ -6020,6 +6133,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		cachedArea = null;
 		cachedVolume = null;
 		manifoldComponents = null;
+		tessellationCache = null;
 		if (bbvalid) {
 		    for (int i = 0; i < 15; i += 3) {
 			double x = coords[i];
@@ -6365,6 +6479,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	cachedArea = null;
 	cachedVolume = null;
 	manifoldComponents = null;
+	tessellationCache = null;
 
 	if (triangle.entryNumber != -1) {
 	    if (cubics == triangle.surface) return triangle;
@@ -6820,6 +6935,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	cachedArea = null;
 	cachedVolume = null;
 	manifoldComponents = null;
+	tessellationCache = null;
 	if (tag instanceof Triangle) {
 	    Object tagtag = ((Triangle) tag).getTag();
 	    if (tagtag == null) {
@@ -7022,7 +7138,8 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	yymin = (yymin < yy3)? yymin: yy3;
 
 
-	if (idata.delta > 0.0 && ((zz - zzmin) > idata.delta
+	if (idata.delta > 0.0 && !zbufferMode
+	    && ((zz - zzmin) > idata.delta
 				  || xx - xxmin > idata.delta
 				  || yy - yymin > idata.delta)) {
 	    // partition triangle into 4 subtriangles for rendering
@@ -7237,6 +7354,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 				      idata.xorigin + xx3 * idata.scaleFactor,
 				      idata.yorigin - yy3 * idata.scaleFactor);
 
+	    RenderListElement e = null;
 	    if (nzz >= 0) {
 		Color tc = (triangle.color == null)? idata.triangleColor:
 		    triangle.color;
@@ -7250,16 +7368,54 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		int blevel = (int)Math.round(tc.getBlue() * dotproduct);
 		int alevel = tc.getAlpha();
 		Color c = new Color(rlevel, glevel, blevel, alevel);
-		renderList.add(p, c, zz, zzmin, nzz, xcf1, ycf1, xcf2, ycf2,
-			       triangle.tag, edgeMask);
+		e = renderList.add(p, c, zz, zzmin, nzz, xcf1, ycf1, xcf2, ycf2,
+				   triangle.tag, edgeMask);
 	    } else if (idata.backsideColor != null) {
-		renderList.add(p, idata.backsideColor, zz, zzmin, nzz,
-			       xcf1, ycf1, xcf2, ycf2,
-			       triangle.tag, edgeMask);
+		e = renderList.add(p, idata.backsideColor, zz, zzmin, nzz,
+				   xcf1, ycf1, xcf2, ycf2,
+				   triangle.tag, edgeMask);
+	    }
+	    if (e != null && zbufferMode) {
+		e.vertices = createVertices(idata, xx1, yy1, zz1, xx2, yy2, zz2,
+					    xx3, yy3, zz3);
 	    }
 	}
     }
 
+    // Device-space x and y coordinates and the z coordinate of each
+    // vertex, as used by the z-buffer rasterizer.  These are needed
+    // only when zbufferMode is true.
+    private static float[] createVertices(Model3D.ImageDataImpl idata,
+					  double x1, double y1, double z1,
+					  double x2, double y2, double z2)
+    {
+	float[] vertices = new float[6];
+	setVertex(vertices, 0, idata, x1, y1, z1);
+	setVertex(vertices, 3, idata, x2, y2, z2);
+	return vertices;
+    }
+
+    private static float[] createVertices(Model3D.ImageDataImpl idata,
+					  double x1, double y1, double z1,
+					  double x2, double y2, double z2,
+					  double x3, double y3, double z3)
+    {
+	float[] vertices = new float[9];
+	setVertex(vertices, 0, idata, x1, y1, z1);
+	setVertex(vertices, 3, idata, x2, y2, z2);
+	setVertex(vertices, 6, idata, x3, y3, z3);
+	return vertices;
+    }
+
+    private static void setVertex(float[] vertices, int i,
+				  Model3D.ImageDataImpl idata,
+				  double x, double y, double z)
+    {
+	vertices[i] = (float)(idata.xorigin + x * idata.scaleFactor);
+	vertices[i+1] = (float)(idata.yorigin - y * idata.scaleFactor);
+	vertices[i+2] = (float)z;
+    }
+
     private void doRenderIteration(Model3D.ImageDataImpl idata,
 				   Triangle triangle)
     {
@@ -7456,15 +7612,20 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	if (nx == 0.0 && ny == 0.0 && nz == 0.0) {
 	    nzz = 1.0;
 	}
+	RenderListElement e = null;
 	if (nzz >= 0) {
 	    Color sc = (segment.color == null)? idata.segmentColor:
 		segment.color;
 
-	    renderList.add(p, sc, zz, zzmin, nzz, 0.0F, 0.0F, 0.0F, 0.0F,
-			   segment.tag);
+	    e = renderList.add(p, sc, zz, zzmin, nzz, 0.0F, 0.0F, 0.0F, 0.0F,
+			       segment.tag);
 	} else if (idata.backsideSegmentColor != null) {
-	    renderList.add(p, idata.backsideSegmentColor,
-			   zz, zzmin, nzz, 0.0F, 0.0F, 0.0F, 0.0F, segment.tag);
+	    e = renderList.add(p, idata.backsideSegmentColor,
+			       zz, zzmin, nzz, 0.0F, 0.0F, 0.0F, 0.0F,
+			       segment.tag);
+	}
+	if (e != null && zbufferMode) {
+	    e.vertices = createVertices(idata, xx1, yy1, zz1, xx2, yy2, zz2);
 	}
     }
 
@@ -7621,6 +7782,19 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 			   double xfract, double yfract,
 			   boolean changeScale)
 	throws TessellationException
+    {
+	return setImageParameters(id, border, magnification, xfract, yfract,
+				  changeScale, null);
+    }
+
+    // The tessellation argument, when not null, contains the triangles
+    // returned by tessellate() and is used instead of calling tessellate().
+    private ImageParams
+	setImageParameters(Model3D.ImageData id, double border,
+			   double magnification,
+			   double xfract, double yfract,
+			   boolean changeScale, List<Triangle> tessellation)
+	throws TessellationException
     {
 	ImageParams result = new ImageParams();
 	ImageDataImpl idata = id.getImageData();
@@ -7653,7 +7827,8 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	double defaultMinY = Double.POSITIVE_INFINITY;
 	double defaultMaxY = Double.NEGATIVE_INFINITY;
 	if (cubics.size() > 0 || cubicVertices.size() > 0) {
-	    Iterator<Triangle> it = tessellate();
+	    Iterator<Triangle> it = (tessellation == null)? tessellate():
+		tessellation.iterator();
 	    while (it.hasNext()) {
 		Triangle triangle = it.next();
 		double xx1, xx2, xx3, yy1, yy2, yy3;
@@ -7918,10 +8093,36 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
      */
     public void render(Model3D.Image image, boolean keep,
 		       double tx, double ty) {
-	Graphics2D g2d = image.createGraphics();
+	render(image, keep, tx, ty, null);
+    }
+
+    // The tessellation argument, when not null, contains the triangles
+    // returned by tessellate() and is used instead of calling tessellate().
+    private void render(Model3D.Image image, boolean keep,
+			double tx, double ty, List<Triangle> tessellation)
+	throws TessellationException
+    {
 	Model3D.ImageDataImpl idata = image.getImageData();
+	BufferedImage bi = zbufferMode? image.getBufferedImage(): null;
+	if (bi != null) {
+	    try {
+		fillRenderList(idata, tessellation);
+		ZBufferRenderer.render(idata.renderList, bi,
+				       tx * idata.scaleFactor,
+				       ty * idata.scaleFactor,
+				       idata.edgeColor, idata.colorFactor,
+				       idata.normalFactor);
+	    } finally {
+		if (!keep) {
+		    idata.renderList.reset();
+		    idata.rlistInvalid = true;
+		}
+	    }
+	    return;
+	}
+	Graphics2D g2d = image.createGraphics();
 	try {
-	    render(idata, g2d, keep, tx, ty);
+	    render(idata, g2d, keep, tx, ty, tessellation);
 	} finally {
 	    g2d.dispose();
 	}
@@ -7965,42 +8166,36 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
     public void render(Model3D.ImageData id, Graphics2D g2d,
 		       boolean keep, double tx, double ty)
 	throws TessellationException
+    {
+	render(id, g2d, keep, tx, ty, null);
+    }
+
+    private void render(Model3D.ImageData id, Graphics2D g2d,
+			boolean keep, double tx, double ty,
+			List<Triangle> tessellation)
+	throws TessellationException
     {
 	ImageDataImpl idata = id.getImageData();
 	AffineTransform at = g2d.getTransform();
-	boolean reset = idata.rlistInvalid;
 	try {
 	    if (tx != 0.0 || ty != 0.0) {
 		tx = tx * idata.scaleFactor;
 		ty = ty * idata.scaleFactor;
 		g2d.translate(-tx, -ty);
 	    }
-	    if (reset) {
-		idata.renderList.reset();
-		if (cubics.size() > 0 || cubicVertices.size() > 0) {
-		    Iterator<Triangle> it = tessellate();
-		    while (it.hasNext()) {
-			Triangle triangle = it.next();
-			doRenderIteration(idata, triangle);
-		    }
-		} else {
-		    for (Triangle triangle: triangleMap.values()) {
-			doRenderIteration(idata, triangle);
-		    }
-		    for (Triangle triangle: triangleSet) {
-			doRenderIteration(idata, triangle);
-		    }
-		}
-		for (LineSegment segment: lineSegmentMap.values()) {
-		    doLineSegmentIteration(idata, segment);
-		}
-		for (LineSegment segment: lineSegmentSet) {
-		    doLineSegmentIteration(idata, segment);
-		}
-		idata.rlistInvalid = false;
+	    fillRenderList(idata, tessellation);
+	    if (zbufferMode) {
+		// the rasterizer applies the translation
+		g2d.setTransform(at);
+		ZBufferRenderer.render(idata.renderList, g2d,
+				       idata.getWidth(), idata.getHeight(),
+				       tx, ty, idata.edgeColor,
+				       idata.colorFactor, idata.normalFactor);
+	    } else {
+		idata.renderList.render(g2d, idata.edgeColor,
+					idata.colorFactor,
+					idata.normalFactor);
 	    }
-	    idata.renderList.render(g2d, idata.edgeColor, idata.colorFactor,
-				    idata.normalFactor);
 	} finally {
 	    g2d.setTransform(at);
 	    if (!keep) {
@@ -8010,6 +8205,40 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	}
     }
 
+    // Add this model's triangles and line segments to an image's
+    // render list if the render list is not valid. The tessellation,
+    // if not null, is used instead of calling tessellate().
+    private void fillRenderList(ImageDataImpl idata,
+				List<Triangle> tessellation)
+	throws TessellationException
+    {
+	if (idata.rlistInvalid) {
+	    idata.renderList.reset();
+	    if (cubics.size() > 0 || cubicVertices.size() > 0) {
+		Iterator<Triangle> it = (tessellation == null)? tessellate():
+		    tessellation.iterator();
+		while (it.hasNext()) {
+		    Triangle triangle = it.next();
+		    doRenderIteration(idata, triangle);
+		}
+	    } else {
+		for (Triangle triangle: triangleMap.values()) {
+		    doRenderIteration(idata, triangle);
+		}
+		for (Triangle triangle: triangleSet) {
+		    doRenderIteration(idata, triangle);
+		}
+	    }
+	    for (LineSegment segment: lineSegmentMap.values()) {
+		doLineSegmentIteration(idata, segment);
+	    }
+	    for (LineSegment segment: lineSegmentSet) {
+		doLineSegmentIteration(idata, segment);
+	    }
+	    idata.rlistInvalid = false;
+	}
+    }
+
     private Triangle createSurrogateTriangleC(Surface3D ourCubics,
 					      int entryNumber, int edgeNumber,
 					      double x1, double y1, double z1,
@@ -8898,39 +9127,6 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
      */
     public double getUnitScaleX3D() {return unitScale;}
 
-    private void writeTriangleSTL(WritableByteChannel c, ByteBuffer buffer,
-				  Triangle triangle)
-	throws IOException
-    {
-	buffer.clear(); buffer.putFloat((float)(triangle.nx));
-	buffer.putFloat((float)(triangle.ny));
-	buffer.putFloat((float)(triangle.nz));
-	if (useSTLBase) {
-	    buffer.putFloat((float)(triangle.x1 + xSTLBase));
-	    buffer.putFloat((float)(triangle.y1 + ySTLBase));
-	    buffer.putFloat((float)(triangle.z1 + zSTLBase));
-	    buffer.putFloat((float)(triangle.x2 + xSTLBase));
-	    buffer.putFloat((float)(triangle.y2 + ySTLBase));
-	    buffer.putFloat((float)(triangle.z2 + zSTLBase));
-	    buffer.putFloat((float)(triangle.x3 + xSTLBase));
-	    buffer.putFloat((float)(triangle.y3 + ySTLBase));
-	    buffer.putFloat((float)(triangle.z3 + zSTLBase));
-	} else {
-	    buffer.putFloat((float)(triangle.x1));
-	    buffer.putFloat((float)(triangle.y1));
-	    buffer.putFloat((float)(triangle.z1));
-	    buffer.putFloat((float)(triangle.x2));
-	    buffer.putFloat((float)(triangle.y2));
-	    buffer.putFloat((float)(triangle.z2));
-	    buffer.putFloat((float)(triangle.x3));
-	    buffer.putFloat((float)(triangle.y3));
-	    buffer.putFloat((float)(triangle.z3));
-	}
-	buffer.putShort((short)0);
-	buffer.flip();
-	c.write(buffer);
-    }
-
     /**
      * Create an X3D file from the model, given a file name.
      * The first three parameters are strings used in meta data.
@@ -9378,11 +9574,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
     public void writeSTL(String id, WritableByteChannel c)
 	throws IOException, TessellationException
     {
-	int i;
 	setSTLBaseIfNeeded();
-	ByteBuffer buffer = ByteBuffer.allocate(126);
-	buffer.order(ByteOrder.LITTLE_ENDIAN);
-	buffer.clear();
 	long triangleCount = triangleMap.size() + triangleSet.size();
 	if (triangleCount >= Integer.MAX_VALUE) {
 	    throw new IOException(errorMsg("tooManyTriangles"));
@@ -9391,7 +9583,7 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	    throw new IllegalArgumentException(errorMsg("idTooLong"));
 	}
 
-	LinkedList<Triangle>tlist = new LinkedList<Triangle>();
+	ArrayList<Triangle>tlist = new ArrayList<Triangle>();
 	if (cubics.size() > 0 || cubicVertices.size() > 0) {
 	    triangleCount = 0;
 	    Iterator<Triangle> it = tessellate();
@@ -9404,28 +9596,56 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 		tlist.add(triangle);
 	    }
 	} else {
+	    tlist.ensureCapacity((int)triangleCount);
 	    tlist.addAll(triangleMap.values());
 	    tlist.addAll(triangleSet);
 	}
 	Collections.sort(tlist);
 
 	int tcount = (int)triangleCount;
-	i = 0;
-	while (i < id.length()) {
-	    char ch = id.charAt(i);
-	    if (ch == 0 || ch > 128)
-		throw new IllegalArgumentException(errorMsg("illegalIdChars"));
-	    buffer.put((byte)ch);
-	    i++;
-	}
-	while (i++ < 80) buffer.put((byte)0);
-	buffer.putInt((int)tcount);
-	buffer.flip();
-	c.write(buffer);
-
+	BinarySTLWriter writer = new BinarySTLWriter(c);
+	writer.writeHeader(id, tcount);
+
+	// Pack the triangles into arrays in batches so the writer can
+	// copy them to its buffer without per-triangle writes.
+	int batchSize = Math.min(tcount, 8192);
+	float[] coords = new float[9*batchSize];
+	float[] normals = new float[3*batchSize];
+	int n = 0;
 	for (Triangle triangle: tlist) {
-	    writeTriangleSTL(c, buffer, triangle);
+	    int k = 9*n;
+	    int m = 3*n;
+	    normals[m] = (float)(triangle.nx);
+	    normals[m+1] = (float)(triangle.ny);
+	    normals[m+2] = (float)(triangle.nz);
+	    if (useSTLBase) {
+		coords[k] = (float)(triangle.x1 + xSTLBase);
+		coords[k+1] = (float)(triangle.y1 + ySTLBase);
+		coords[k+2] = (float)(triangle.z1 + zSTLBase);
+		coords[k+3] = (float)(triangle.x2 + xSTLBase);
+		coords[k+4] = (float)(triangle.y2 + ySTLBase);
+		coords[k+5] = (float)(triangle.z2 + zSTLBase);
+		coords[k+6] = (float)(triangle.x3 + xSTLBase);
+		coords[k+7] = (float)(triangle.y3 + ySTLBase);
+		coords[k+8] = (float)(triangle.z3 + zSTLBase);
+	    } else {
+		coords[k] = (float)(triangle.x1);
+		coords[k+1] = (float)(triangle.y1);
+		coords[k+2] = (float)(triangle.z1);
+		coords[k+3] = (float)(triangle.x2);
+		coords[k+4] = (float)(triangle.y2);
+		coords[k+5] = (float)(triangle.z2);
+		coords[k+6] = (float)(triangle.x3);
+		coords[k+7] = (float)(triangle.y3);
+		coords[k+8] = (float)(triangle.z3);
+	    }
+	    if (++n == batchSize) {
+		writer.writeFacets(coords, normals, 0, n);
+		n = 0;
+	    }
 	}
+	if (n > 0) writer.writeFacets(coords, normals, 0, n);
+	writer.flush();
     }
 
     /**
@@ -9559,6 +9779,59 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 				       double normalFactor, boolean showEdges)
 	throws IOException
     {
+	createImageSequence(os, imageType, nphi, ntheta, delta, colorFactor,
+			    normalFactor, showEdges,
+			    Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a sequence of images, specifying a color factor, normal
+     * factor, the maximum triangle size for rendering, and the number
+     * of threads used to create the images.
+     * The images are the same as the ones created by
+     * {@link #createImageSequence(OutputStream,String,int,int,double,double,double,boolean)}.
+     * <P>
+     * When nthreads is larger than 1, the images are rendered and
+     * encoded concurrently by a pool of nthreads threads, while the
+     * calling thread writes the images into the output stream in
+     * sequence order. The number of images that have been started but
+     * not yet written is limited to twice the number of threads so that
+     * the memory used by completed images is bounded. If the model
+     * contains cubic patches, cubic triangles, or cubic vertices, it is
+     * tessellated once and that tessellation is shared by all the
+     * threads.  The model must not be modified while this method is
+     * running.
+     * @param os the output stream
+     * @param imageType the image type
+     * @param nphi the number of steps for the Eulerian angle &phi;
+     * @param ntheta the number of steps for the Eulerian angle $theta;
+     * @param delta the maximum triangle size for rendering; 0.0 if this
+     *        parameter should be ignored
+     * @param colorFactor the color factor; 0.0 if this parameter should
+     *        be ignored
+     * @param normalFactor the normal factor; 0.0 if there is none
+     * @param showEdges true if edges of triangles and patches should be shown;
+     *        false otherwise
+     * @param nthreads the number of threads to use for rendering images;
+     *        1 if the images should be rendered by the calling thread
+     * @throws IOException if an IO error occurred
+     * @exception IllegalArgumentException nthreads was not positive
+     * @exception TessellationException if tessellation failed
+     * @see Model3D.Image#setDelta(double)
+     * @see Model3D.Image#setColorFactor(double)
+     * @see Model3D.Image#setNormalFactor(double)
+     */
+    public void createImageSequence(OutputStream os, String imageType,
+				    int nphi, int ntheta,
+				    double delta, double colorFactor,
+				    double normalFactor, boolean showEdges,
+				    int nthreads)
+	throws IOException, IllegalArgumentException, TessellationException
+    {
+	if (nthreads < 1) {
+	    throw new IllegalArgumentException
+		(errorMsg("nthreadsNotPositive", nthreads));
+	}
 	ImageSequenceWriter isw = new ImageSequenceWriter(os);
 
 	String ext = OutputStreamGraphics.getSuffixForImageType(imageType);
@@ -9569,64 +9842,164 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 	    cnt++;
 	}
 
-	final int WIDTH = 700;
-	final int HEIGHT = 700;
-
 	String format = "image%0" + cnt + "d." + ext;
 	String mtype = OutputStreamGraphics.getMediaTypeForImageType(imageType);
-	isw.addMetadata(WIDTH, HEIGHT, mtype, format);
+	isw.addMetadata(SEQUENCE_WIDTH, SEQUENCE_HEIGHT, mtype, format);
 	double deltaPhi = (nphi == 0.0)? 0.0: 360.0 / nphi;
 	double deltaTheta = (ntheta == 0.0)? 0.0: 180.0/ntheta;
-	boolean noPhis = true;
 
+	ArrayList<double[]> views = new ArrayList<>();
 	for (int j = 0; j <= ntheta; j++) {
 	    for (int i = 0; i < nphi; i++) {
-		double phi = i * deltaPhi;
-		double theta = j * deltaTheta;
-		String name = String.format("phi=%1.1f,theta=%1.1f",
-					    phi, theta);
-		OSGraphicsOps osg =
-		    isw.nextOutputStreamGraphics("images/"+name);
-		Model3D.Image image = new Model3D.Image(osg);
-		if (showEdges) {
-		    image.setEdgeColor(Color.GREEN);
-		}
-		image.setBacksideColor(Color.RED);
-		Graphics2D g2d = image.createGraphics();
-		g2d.setBackground(Color.BLUE.darker().darker());
-		g2d.clearRect(0, 0, WIDTH, HEIGHT);
-
-		image.setCoordRotation(Math.toRadians(phi),
-				       Math.toRadians(theta),
-				       0.0);
-		image.setDelta (delta);
-		image.setColorFactor(colorFactor);
-		image.setNormalFactor(normalFactor);
-		setImageParameters(image, 50.0);
-		render(image);
-
-		g2d.setColor(Color.WHITE);
-		Font font = new Font(Font.SANS_SERIF,Font.BOLD, 24);
-		g2d.setFont(font);
-		String title = String.format("\u03c6 = %1.1f\u00B0,"
-					     + " \u03b8 = %1.1f\u00B0",
-					    phi, theta);
-		int textwidth = (int) Math.round
-		    (g2d.getFontMetrics(font).getStringBounds(title, g2d)
-		     .getWidth());
-		g2d.drawString(title, (WIDTH - textwidth)/2, HEIGHT-25);
-		g2d.dispose();
-		image.write();
-		osg.close();
-
+		views.add(new double[] {i * deltaPhi, j * deltaTheta});
 		if (j == 0 || j == ntheta) {
 		    break;
 		}
 	    }
 	}
+
+	// Tessellating modifies the model's cubic surfaces, so it is
+	// done once before any images are rendered.
+	final List<Triangle> tessellation;
+	if (cubics.size() > 0 || cubicVertices.size() > 0) {
+	    tessellation = new ArrayList<Triangle>();
+	    Iterator<Triangle> it = tessellate();
+	    while (it.hasNext()) {
+		tessellation.add(it.next());
+	    }
+	} else {
+	    tessellation = null;
+	}
+
+	if (nthreads == 1 || views.size() < 2) {
+	    for (double[] view: views) {
+		byte[] bytes = createSequenceImage(imageType, view[0], view[1],
+						   delta, colorFactor,
+						   normalFactor, showEdges,
+						   tessellation);
+		writeSequenceImage(isw, view, bytes);
+	    }
+	    isw.close();
+	    return;
+	}
+
+	ExecutorService executor =
+	    Executors.newFixedThreadPool(nthreads, (r) -> {
+		    Thread thread = new Thread(r);
+		    thread.setDaemon(true);
+		    return thread;
+		});
+	try {
+	    int maxPending = 2 * nthreads;
+	    ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>(maxPending);
+	    int next = 0;
+	    for (double[] view: views) {
+		while (next < views.size() && pending.size() < maxPending) {
+		    final double[] v = views.get(next++);
+		    pending.add(executor.submit(() -> {
+				return createSequenceImage(imageType,
+							   v[0], v[1],
+							   delta,
+							   colorFactor,
+							   normalFactor,
+							   showEdges,
+							   tessellation);
+			    }));
+		}
+		byte[] bytes;
+		try {
+		    bytes = pending.remove().get();
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+		    Throwable cause = e.getCause();
+		    if (cause instanceof IOException) {
+			throw (IOException) cause;
+		    } else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		    } else if (cause instanceof Error) {
+			throw (Error) cause;
+		    } else {
+			throw new UnexpectedExceptionError(cause);
+		    }
+		}
+		writeSequenceImage(isw, view, bytes);
+	    }
+	} finally {
+	    executor.shutdownNow();
+	}
 	isw.close();
     }
 
+    private static final int SEQUENCE_WIDTH = 700;
+    private static final int SEQUENCE_HEIGHT = 700;
+
+    private static String getSequenceImageName(double phi, double theta) {
+	return String.format("phi=%1.1f,theta=%1.1f", phi, theta);
+    }
+
+    private static void writeSequenceImage(ImageSequenceWriter isw,
+					   double[] view, byte[] bytes)
+	throws IOException
+    {
+	String name = getSequenceImageName(view[0], view[1]);
+	OutputStream out = isw.nextOutputStream("images/" + name, false, 0);
+	try {
+	    out.write(bytes);
+	} finally {
+	    out.close();
+	}
+    }
+
+    // Create one image for createImageSequence, returning the image
+    // encoded using the specified image type.
+    private byte[] createSequenceImage(String imageType,
+				       double phi, double theta,
+				       double delta, double colorFactor,
+				       double normalFactor, boolean showEdges,
+				       List<Triangle> tessellation)
+	throws IOException
+    {
+	final int WIDTH = SEQUENCE_WIDTH;
+	final int HEIGHT = SEQUENCE_HEIGHT;
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	OSGraphicsOps osg =
+	    OutputStreamGraphics.newInstance(bos, WIDTH, HEIGHT, imageType);
+	Model3D.Image image = new Model3D.Image(osg);
+	if (showEdges) {
+	    image.setEdgeColor(Color.GREEN);
+	}
+	image.setBacksideColor(Color.RED);
+	Graphics2D g2d = image.createGraphics();
+	g2d.setBackground(Color.BLUE.darker().darker());
+	g2d.clearRect(0, 0, WIDTH, HEIGHT);
+
+	image.setCoordRotation(Math.toRadians(phi),
+			       Math.toRadians(theta),
+			       0.0);
+	image.setDelta (delta);
+	image.setColorFactor(colorFactor);
+	image.setNormalFactor(normalFactor);
+	setImageParameters(image, 50.0, 1.0, 0.0, 0.0, true, tessellation);
+	render(image, false, 0.0, 0.0, tessellation);
+
+	g2d.setColor(Color.WHITE);
+	Font font = new Font(Font.SANS_SERIF,Font.BOLD, 24);
+	g2d.setFont(font);
+	String title = String.format("\u03c6 = %1.1f\u00B0,"
+				     + " \u03b8 = %1.1f\u00B0",
+				     phi, theta);
+	int textwidth = (int) Math.round
+	    (g2d.getFontMetrics(font).getStringBounds(title, g2d)
+	     .getWidth());
+	g2d.drawString(title, (WIDTH - textwidth)/2, HEIGHT-25);
+	g2d.dispose();
+	image.write();
+	osg.close();
+	return bos.toByteArray();
+    }
+
     /**
      * Generate a graph containing a cross section of this model, using
      * the current tessellation level, where triangle edges pass through
@@ -9913,3 +10286,5 @@ public class Model3D implements Shape3D, Model3DOps<Model3D.Triangle>
 //  LocalWords:  tlevel SteppedGrid utessellation vtessellation ulp
 //  LocalWords:  subclasses ourCubics xp yp zp createCrossSection src
 //  LocalWords:  fakelock nullGraph nullNormal graphDims
+//  LocalWords:  rasterizer setZBufferMode
+//  LocalWords:  nthreads
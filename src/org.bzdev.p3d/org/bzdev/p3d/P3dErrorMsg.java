@@ -8,7 +8,6 @@ class P3dErrorMsg {
 	exbundle=ResourceBundle.getBundle("org.bzdev.p3d.lpack.P3d");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 }
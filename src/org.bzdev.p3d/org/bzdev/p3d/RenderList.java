@@ -5,49 +5,6 @@ import java.awt.*;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Line2D;
 
-class RenderListElement {
-    PolyLine p;
-    boolean edgeMask[];		// Only some edges shown in edge color
-    double z;
-    double zmin;
-    double nz;
-    Color c;
-    Object tag;
-
-    float x1;
-    float y1;
-    float x2;
-    float y2;
-
-    RenderListElement(PolyLine p, Color c, double z, double zmin, double nz,
-		      float x1, float y1, float x2, float y2) {
-	this(p, c, z, zmin, nz, x1, y1, x2, y2, null, null);
-    }
-
-    RenderListElement(PolyLine p, Color c, double z, double zmin,
-		      double nz, float x1, float y1, float x2, float y2,
-		      Object tag)
-    {
-	this(p, c, z, zmin, nz, x1, y1, x2, y2, tag, null);
-    }
-    RenderListElement(PolyLine p, Color c, double z, double zmin,
-		      double nz, float x1, float y1, float x2, float y2,
-		      Object tag, boolean edgeMask[])
-    {
-	this.p = p;
-	this.c = c;
-	this.z = z;
-	this.zmin = zmin;
-	this.nz = nz;
-	this.x1 = x1;
-	this.y1 = y1;
-	this.x2 = x2;
-	this.y2 = y2;
-	this.tag = tag;		// for instrumentation
-	this.edgeMask = edgeMask;
-    }
-}
-
 class RenderList {
     double min = Double.POSITIVE_INFINITY;
     double max = Double.NEGATIVE_INFINITY;
@@ -58,39 +15,51 @@ class RenderList {
 
     java.util.List<RenderListElement> list =
 	new java.util.LinkedList<RenderListElement>();
-    void add(PolyLine p, Color c, double z, double zmin, double nz,
-	     float x1, float y1, float x2, float y2) {
-	list.add(new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2));
+    RenderListElement add(PolyLine p, Color c, double z, double zmin,
+			  double nz, float x1, float y1, float x2, float y2) {
+	RenderListElement e =
+	    new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2);
+	list.add(e);
 	if (nz > 0.0) {
 	    if (z > max) max = z;
 	    if (zmin < min) min = zmin;
 	}
+	return e;
     }
 
-    void add(PolyLine p, Color c, double z, double zmin, double nz,
-	     float x1, float y1, float x2, float y2,
-	     boolean[] edgeMask) {
-	list.add(new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2,
-				       null, edgeMask));
+    RenderListElement add(PolyLine p, Color c, double z, double zmin,
+			  double nz, float x1, float y1, float x2, float y2,
+			  boolean[] edgeMask) {
+	RenderListElement e =
+	    new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2,
+				  null, edgeMask);
+	list.add(e);
 	if (z > max) max = z;
 	if (zmin < min) min = zmin;
+	return e;
     }
 
-    void add(PolyLine p, Color c, double z, double zmin, double nz,
-	     float x1, float y1, float x2, float y2,
-	     Object tag ) {
-	list.add(new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2, tag));
+    RenderListElement add(PolyLine p, Color c, double z, double zmin,
+			  double nz, float x1, float y1, float x2, float y2,
+			  Object tag ) {
+	RenderListElement e =
+	    new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2, tag);
+	list.add(e);
 	if (z > max) max = z;
 	if (zmin < min) min = zmin;
+	return e;
     }
 
-    void add(PolyLine p, Color c, double z, double zmin, double nz,
-	     float x1, float y1, float x2, float y2,
-	     Object tag, boolean[] edgeMask ) {
-	list.add(new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2,
-				       tag, edgeMask));
+    RenderListElement add(PolyLine p, Color c, double z, double zmin,
+			  double nz, float x1, float y1, float x2, float y2,
+			  Object tag, boolean[] edgeMask ) {
+	RenderListElement e =
+	    new RenderListElement(p, c, z, zmin, nz, x1, y1, x2, y2,
+				  tag, edgeMask);
+	list.add(e);
 	if (z > max) max = z;
 	if (zmin < min) min = zmin;
+	return e;
     }
 
     void addAll(RenderList newList) {
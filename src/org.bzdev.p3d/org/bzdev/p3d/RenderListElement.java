@@ -0,0 +1,49 @@
+package org.bzdev.p3d;
+
+import java.awt.Color;
+
+class RenderListElement {
+    PolyLine p;
+    boolean edgeMask[];		// Only some edges shown in edge color
+    double z;
+    double zmin;
+    double nz;
+    Color c;
+    Object tag;
+    // device-space x, y and model-space z for each vertex; used by
+    // ZBufferRenderer
+    float[] vertices;
+
+    float x1;
+    float y1;
+    float x2;
+    float y2;
+
+    RenderListElement(PolyLine p, Color c, double z, double zmin, double nz,
+		      float x1, float y1, float x2, float y2) {
+	this(p, c, z, zmin, nz, x1, y1, x2, y2, null, null);
+    }
+
+    RenderListElement(PolyLine p, Color c, double z, double zmin,
+		      double nz, float x1, float y1, float x2, float y2,
+		      Object tag)
+    {
+	this(p, c, z, zmin, nz, x1, y1, x2, y2, tag, null);
+    }
+    RenderListElement(PolyLine p, Color c, double z, double zmin,
+		      double nz, float x1, float y1, float x2, float y2,
+		      Object tag, boolean edgeMask[])
+    {
+	this.p = p;
+	this.c = c;
+	this.z = z;
+	this.zmin = zmin;
+	this.nz = nz;
+	this.x1 = x1;
+	this.y1 = y1;
+	this.x2 = x2;
+	this.y2 = y2;
+	this.tag = tag;		// for instrumentation
+	this.edgeMask = edgeMask;
+    }
+}
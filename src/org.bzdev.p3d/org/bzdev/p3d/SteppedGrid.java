@@ -13,6 +13,7 @@ import org.bzdev.lang.UnexpectedExceptionError;
 import org.bzdev.util.Cloner;
 
 import java.awt.Color;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -312,6 +313,7 @@ public class SteppedGrid  implements Shape3D {
      *        the outside direction faces down
      * @see #addComponent(int,int,double)
      * @see #addComponent(int,int,double,boolean)
+     * @see #addComponents(DoubleBuffer)
      * @see #addsCompleted()
      */
     public SteppedGrid(Model3DOps<?> m3d, double[] xs, double[] ys,
@@ -351,6 +353,7 @@ public class SteppedGrid  implements Shape3D {
      *        outside faces down
      * @see #addComponent(int,int,double,double)
      * @see #addComponent(int,int,double,double,boolean,boolean)
+     * @see #addComponents(DoubleBuffer,DoubleBuffer)
      * @see #addsCompleted()
      */
     public SteppedGrid(Model3DOps<?> m3d, double[] xs, double[] ys,
@@ -467,8 +470,7 @@ public class SteppedGrid  implements Shape3D {
 	    throw new IllegalArgumentException(errorMsg("indicesRange", i, j));
 	}
 	SteppedGridLayer sgl = (upper != null)? upper: lower;
-	sgl.addComponent(new SteppedGridLayer.LayerComponent(i, j, height,
-							     placeholder));
+	sgl.addComponent(i, j, height, placeholder);
 	if (r3d == null) {
 	    r3d = new Rectangle3D.Double(xs[i], ys[j], sgl.zbase +  height,
 					 0.0, 0.0, 0.0);
@@ -522,10 +524,8 @@ public class SteppedGrid  implements Shape3D {
 	    throw new IllegalArgumentException(errorMsg("indicesRange", i, j));
 	}
 	SteppedGridLayer sgl = (upper != null)? upper: lower;
-	sgl.addHalfComponent(new SteppedGridLayer.LayerComponent(i, j, height,
-								 placeholder));
-	sgl.addComponent(new SteppedGridLayer.LayerComponent(i, j, height,
-								 true));
+	sgl.addHalfComponent(i, j, height, placeholder);
+	sgl.addComponent(i, j, height, true);
 	if (r3d == null) {
 	    r3d = new Rectangle3D.Double(xs[i], ys[j], sgl.zbase + height,
 					 0.0, 0.0, 0.0);
@@ -669,14 +669,8 @@ public class SteppedGrid  implements Shape3D {
 	    String msg = errorMsg("topBottom", i, j, top, bottom);
 	    throw new IllegalArgumentException(msg);
 	}
-	upper.addComponent
-	    (new SteppedGridLayer.LayerComponent(i, j,
-						 upperHeight,
-						 upperIsPlaceholder));
-	lower.addComponent
-	    (new SteppedGridLayer.LayerComponent(i, j,
-						 lowerHeight,
-						 lowerIsPlaceholder));
+	upper.addComponent(i, j, upperHeight, upperIsPlaceholder);
+	lower.addComponent(i, j, lowerHeight, lowerIsPlaceholder);
 
 	if (r3d == null) {
 	    r3d = new Rectangle3D.Double(xs[i], ys[j],
@@ -760,25 +754,13 @@ public class SteppedGrid  implements Shape3D {
 	    throw new IllegalArgumentException(msg);
 	}
 	if (upperIsPlaceholder || !lowerIsPlaceholder)
-	    upper.addHalfComponent
-		(new SteppedGridLayer.LayerComponent(i, j,
-						     upperHeight,
-						     upperIsPlaceholder));
+	    upper.addHalfComponent(i, j, upperHeight, upperIsPlaceholder);
 	if (lowerIsPlaceholder || !upperIsPlaceholder)
-	    lower.addHalfComponent
-		(new SteppedGridLayer.LayerComponent(i, j,
-						     lowerHeight,
-						     lowerIsPlaceholder));
-	upper.addComponent
-	    (new SteppedGridLayer.LayerComponent(i, j,
-						 upperHeight,
-						 upperIsPlaceholder
-						 || !lowerIsPlaceholder));
-	lower.addComponent
-	    (new SteppedGridLayer.LayerComponent(i, j,
-						 lowerHeight,
-						 lowerIsPlaceholder
-						 || !upperIsPlaceholder));
+	    lower.addHalfComponent(i, j, lowerHeight, lowerIsPlaceholder);
+	upper.addComponent(i, j, upperHeight,
+			   upperIsPlaceholder || !lowerIsPlaceholder);
+	lower.addComponent(i, j, lowerHeight,
+			   lowerIsPlaceholder || !upperIsPlaceholder);
 	if (r3d == null) {
 	    r3d = new Rectangle3D.Double(xs[i], ys[j],
 					 upper.zbase + upperHeight,
@@ -789,6 +771,168 @@ public class SteppedGrid  implements Shape3D {
 	r3d.add(xs[i+1], ys[j+1], lower.zbase + lowerHeight);
     }
 
+    /**
+     * Add components to an open stepped grid, with their heights
+     * provided by a packed buffer.
+     * The buffer contains one height for each pair of indices (i, j)
+     * at the buffer's position plus i*{@link #compDimY()} + j, where
+     * i is in the range [0, {@link #compDimX()}) and j is in the range
+     * [0, {@link #compDimY()}). The effect is the same as calling
+     * {@link #addComponent(int,int,double)} for each height that is not
+     * NaN, so a NaN height indicates that no component exists for those
+     * indices. The buffer is read using absolute indices, so its
+     * position is not changed.
+     * <P>
+     * This method allows the heights for a large grid to be provided
+     * without creating an array of arrays. An array of heights can be
+     * passed by using {@link DoubleBuffer#wrap(double[],int,int)}, and
+     * a file can be read directly by mapping it with
+     * {@link java.nio.channels.FileChannel#map FileChannel.map},
+     * setting the byte order of the mapped buffer, and calling
+     * {@link java.nio.ByteBuffer#asDoubleBuffer()}.
+     * @param heights the relative heights for the components added to
+     *        the grid
+     * @exception IllegalStateException {@link #addsCompleted()} was called
+     *            or this stepped grid is a closed grid
+     * @exception IllegalArgumentException the buffer is too short
+     */
+    public void addComponents(DoubleBuffer heights)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	if (done) throw new IllegalStateException(errorMsg("done"));
+	if ((upper != null) && (lower != null)) {
+	    throw new IllegalStateException(errorMsg("oneHeight"));
+	}
+	int n = xs.length - 1;
+	int m = ys.length - 1;
+	long needed = (long)n * m;
+	if (heights.remaining() < needed) {
+	    throw new IllegalArgumentException
+		(errorMsg("bufferTooShort", heights.remaining(), needed));
+	}
+	SteppedGridLayer sgl = (upper != null)? upper: lower;
+	int imin = n, jmin = m, imax = -1, jmax = -1;
+	double zmin = Double.POSITIVE_INFINITY;
+	double zmax = Double.NEGATIVE_INFINITY;
+	int k = heights.position();
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < m; j++) {
+		double height = heights.get(k++);
+		if (Double.isNaN(height)) continue;
+		sgl.addComponent(i, j, height, false);
+		if (i < imin) imin = i;
+		if (i > imax) imax = i;
+		if (j < jmin) jmin = j;
+		if (j > jmax) jmax = j;
+		double z = sgl.zbase + height;
+		if (z < zmin) zmin = z;
+		if (z > zmax) zmax = z;
+	    }
+	}
+	addBounds(imin, jmin, imax, jmax, zmin, zmax);
+    }
+
+    /**
+     * Add components to a closed stepped grid, with their heights
+     * provided by packed buffers.
+     * Each buffer contains one height for each pair of indices (i, j)
+     * at the buffer's position plus i*{@link #compDimY()} + j, where
+     * i is in the range [0, {@link #compDimX()}) and j is in the range
+     * [0, {@link #compDimY()}). The effect is the same as calling
+     * {@link #addComponent(int,int,double,double)} for each pair of
+     * heights, skipping those pairs for which either height is NaN.
+     * The buffers are read using absolute indices, so their positions
+     * are not changed. If an upper height is not above the
+     * corresponding lower height, the components for preceding indices
+     * will have already been added when the exception is thrown.
+     * <P>
+     * This method allows the heights for a large grid to be provided
+     * without creating an array of arrays. Arrays of heights can be
+     * passed by using {@link DoubleBuffer#wrap(double[],int,int)}, and
+     * files can be read directly by mapping them with
+     * {@link java.nio.channels.FileChannel#map FileChannel.map},
+     * setting the byte order of the mapped buffers, and calling
+     * {@link java.nio.ByteBuffer#asDoubleBuffer()}.
+     * @param upperHeights the relative heights for the components added
+     *        to the upper grid
+     * @param lowerHeights the relative heights for the components added
+     *        to the lower grid
+     * @exception IllegalStateException {@link #addsCompleted()} was called
+     *            or this stepped grid is not a closed grid
+     * @exception IllegalArgumentException a buffer is too short or
+     *            an upper height was not above the corresponding
+     *            lower height
+     */
+    public void addComponents(DoubleBuffer upperHeights,
+			      DoubleBuffer lowerHeights)
+	throws IllegalStateException, IllegalArgumentException
+    {
+	if (done) throw new IllegalStateException(errorMsg("done"));
+	if (upper == null || lower == null) {
+	    throw new IllegalStateException(errorMsg("twoHeights"));
+	}
+	int n = xs.length - 1;
+	int m = ys.length - 1;
+	long needed = (long)n * m;
+	if (upperHeights.remaining() < needed) {
+	    throw new IllegalArgumentException
+		(errorMsg("bufferTooShort", upperHeights.remaining(), needed));
+	}
+	if (lowerHeights.remaining() < needed) {
+	    throw new IllegalArgumentException
+		(errorMsg("bufferTooShort", lowerHeights.remaining(), needed));
+	}
+	int imin = n, jmin = m, imax = -1, jmax = -1;
+	double zmin = Double.POSITIVE_INFINITY;
+	double zmax = Double.NEGATIVE_INFINITY;
+	int ku = upperHeights.position();
+	int kl = lowerHeights.position();
+	try {
+	    for (int i = 0; i < n; i++) {
+		for (int j = 0; j < m; j++) {
+		    double upperHeight = upperHeights.get(ku++);
+		    double lowerHeight = lowerHeights.get(kl++);
+		    if (Double.isNaN(upperHeight)
+			|| Double.isNaN(lowerHeight)) {
+			continue;
+		    }
+		    double top = upper.zbase + upperHeight;
+		    double bottom = lower.zbase + lowerHeight;
+		    if (bottom >= top) {
+			String msg = errorMsg("topBottom", i, j, top, bottom);
+			throw new IllegalArgumentException(msg);
+		    }
+		    upper.addComponent(i, j, upperHeight, false);
+		    lower.addComponent(i, j, lowerHeight, false);
+		    if (i < imin) imin = i;
+		    if (i > imax) imax = i;
+		    if (j < jmin) jmin = j;
+		    if (j > jmax) jmax = j;
+		    if (bottom < zmin) zmin = bottom;
+		    if (top > zmax) zmax = top;
+		}
+	    }
+	} finally {
+	    addBounds(imin, jmin, imax, jmax, zmin, zmax);
+	}
+    }
+
+    // Extend r3d to include the components with indices in the
+    // range [imin, imax] and [jmin, jmax] and heights in the range
+    // [zmin, zmax], provided there is at least one component.
+    private void addBounds(int imin, int jmin, int imax, int jmax,
+			   double zmin, double zmax)
+    {
+	if (imax < 0) return;
+	if (r3d == null) {
+	    r3d = new Rectangle3D.Double(xs[imin], ys[jmin], zmin,
+					 0.0, 0.0, 0.0);
+	} else {
+	    r3d.add(xs[imin], ys[jmin], zmin);
+	}
+	r3d.add(xs[imax+1], ys[jmax+1], zmax);
+    }
+
     boolean done = false;
     double[] zvalues;
 
@@ -839,10 +983,7 @@ public class SteppedGrid  implements Shape3D {
 	} else {
 	    throw new IllegalStateException("sgl not set");
 	}
-	SteppedGridLayer.LayerComponent[][] rectangles
-	    = sgl.rectangles;
-	SteppedGridLayer.LayerComponent[][] halfRectangles
-	    = sgl.halfRectangles;
+	int m = sgl.m;
 
 	int i1 = Arrays.binarySearch(xs, lcoords[0]);
 	int i2 = Arrays.binarySearch(xs, coords[0]);
@@ -859,42 +1000,43 @@ public class SteppedGrid  implements Shape3D {
 		(errorMsg("offGrid", coords[0], coords[1]));
 	}
 
-	SteppedGridLayer.LayerComponent c1;
-	SteppedGridLayer.LayerComponent c2;
+	// indices into the layer's packed arrays; -1 for none
+	int c1;
+	int c2;
 	if ((i1 == i2) || (j1 == j2)) {
 	    if (i1 == i2) {
 		if (j1 < j2) {
-		    c1 = (i1 == 0)? null: rectangles[i1-1][j1];
-		    c2 = (i1 == xs.length-1)? null: rectangles[i1][j1];
+		    c1 = (i1 == 0)? -1: (i1-1)*m + j1;
+		    c2 = (i1 == xs.length-1)? -1: i1*m + j1;
 		} else if (j1 > j2) {
-		    c1 = (i1 == 0)? null: rectangles[i1-1][j2];
-		    c2 = (i1 == xs.length-1)? null: rectangles[i1][j2];
+		    c1 = (i1 == 0)? -1: (i1-1)*m + j2;
+		    c2 = (i1 == xs.length-1)? -1: i1*m + j2;
 		} else {
 		    throw new IllegalStateException(errorMsg("lineIsVertical"));
 		}
 	    } else if (j1 == j2) {
 		if (i1 < i2) {
-		    c1 = (j1 == 0)? null: rectangles[i1][j1-1];
-		    c2 = (j1 == ys.length-1)? null: rectangles[i1][j1];
+		    c1 = (j1 == 0)? -1: i1*m + j1-1;
+		    c2 = (j1 == ys.length-1)? -1: i1*m + j1;
 		} else {
-		    c1 = (j1 == 0)? null: rectangles[i2][j1-1];
-		    c2 = (j1 == ys.length-1)? null: rectangles[i2][j1];
+		    c1 = (j1 == 0)? -1: i2*m + j1-1;
+		    c2 = (j1 == ys.length-1)? -1: i2*m + j1;
 		}
 	    } else {
 		throw new IllegalStateException(errorMsg("noComponentsSet"));
 	    }
-	    if (c1 == null) {
-		return sgl.zbase + c2.height;
-	    } else if (c2 == null) {
-		return sgl.zbase + c1.height;
-	    } else if (!c1.filled) {
-		return sgl.zbase + c2.height;
-	    } else if (!c2.filled) {
-		return sgl.zbase + c1.height;
-	    } else if (c1.placeholder) {
-		return sgl.zbase + c1.height;
-	    } else if (c2.placeholder) {
-		return sgl.zbase + c2.height;
+	    if (c1 < 0) {
+		return sgl.zbase + sgl.heights[c2];
+	    } else if (c2 < 0) {
+		return sgl.zbase + sgl.heights[c1];
+	    } else if (!sgl.filled(c1)) {
+		return sgl.zbase + sgl.heights[c2];
+	    } else if (!sgl.filled(c2)) {
+		return sgl.zbase + sgl.heights[c1];
+	    } else if (sgl.placeholder(c1)) {
+		return sgl.zbase + sgl.heights[c1];
+	    } else if (sgl.placeholder(c2)) {
+		return sgl.zbase + sgl.heights[c2];
 	    } else {
 		double xx1 = lcoords[0];
 		double yy1 = lcoords[1];
@@ -906,18 +1048,18 @@ public class SteppedGrid  implements Shape3D {
 	} else {
 	    if (i1 < i2) {
 		if (j1 < j2) {
-		    c1 = halfRectangles[i1][j1];
+		    c1 = i1*m + j1;
 		} else {
-		    c1 = halfRectangles[i1][j2];
+		    c1 = i1*m + j2;
 		}
 	    } else {
 		if (j1 < j2) {
-		    c1 = halfRectangles[i2][j1];
+		    c1 = i2*m + j1;
 		} else {
-		    c1 = halfRectangles[i2][j2];
+		    c1 = i2*m + j2;
 		}
 	    }
-	    return sgl.zbase + c1.height;
+	    return sgl.zbase + sgl.halfHeights[c1];
 	}
     }
 
@@ -1075,7 +1217,7 @@ public class SteppedGrid  implements Shape3D {
 	    throw new IllegalArgumentException(msg);
 	}
 	
-	return sgl.rectangles[i][j].filled;
+	return sgl.filled(i*sgl.m + j);
     }
     
     /**
@@ -1106,7 +1248,7 @@ public class SteppedGrid  implements Shape3D {
 	    String msg = errorMsg("isUpperShouldBe", !isUpper);
 	    throw new IllegalArgumentException(msg);
 	}
-	return sgl.rectangles[i][j].placeholder;
+	return sgl.placeholder(i*sgl.m + j);
     }
 
     /**
@@ -1166,12 +1308,12 @@ public class SteppedGrid  implements Shape3D {
 	if (j < 0 || j >= ys.length-1) {
 	    throw new IllegalArgumentException(errorMsg("arg2Range", j));
 	}
-	SteppedGridLayer.LayerComponent c = sgl.rectangles[i][j];
-	if (!c.filled) {
+	int k = i*sgl.m + j;
+	if (!sgl.filled(k)) {
 	    String msg = errorMsg("notFilled", i, j);
 	    throw new IllegalArgumentException(msg);
 	}
-	return sgl.zbase + c.height;
+	return sgl.zbase + sgl.heights[k];
     }
 
     private static double[] emptyArray = new double[0];
@@ -1221,43 +1363,44 @@ public class SteppedGrid  implements Shape3D {
 	}
 	sgl.update();
 
-	SteppedGridLayer.LayerComponent c = null;
-	SteppedGridLayer.LayerComponent cleft = null;
-	SteppedGridLayer.LayerComponent clower = null;
-	SteppedGridLayer.LayerComponent clowerLeft = null;
+	// indices into the layer's packed arrays; -1 for none
+	int c = -1;
+	int cleft = -1;
+	int clower = -1;
+	int clowerLeft = -1;
 
-	int n = sgl.rectangles.length;
-	int m = sgl.rectangles[0].length;
-	if (i < n && j < m) c = sgl.rectangles[i][j];
-	if (i > 0 && j < m) cleft = sgl.rectangles[i-1][j];
-	if (i < m && j > 0) clower = sgl.rectangles[i][j-1];
-	if (i > 0 && j > 0) clowerLeft = sgl.rectangles[i-1][j-1];
+	int n = xs.length - 1;
+	int m = sgl.m;
+	if (i < n && j < m) c = i*m + j;
+	if (i > 0 && j < m) cleft = (i-1)*m + j;
+	if (i < m && j > 0) clower = i*m + j-1;
+	if (i > 0 && j > 0) clowerLeft = (i-1)*m + j-1;
 
-	if (c != null && !c.filled) c = null;
-	if (cleft != null && !cleft.filled) cleft = null;
-	if (clower != null && !clower.filled) clower = null;
-	if (clowerLeft != null && !clowerLeft.filled) clowerLeft = null;
+	if (c >= 0 && !sgl.filled(c)) c = -1;
+	if (cleft >= 0 && !sgl.filled(cleft)) cleft = -1;
+	if (clower >= 0 && !sgl.filled(clower)) clower = -1;
+	if (clowerLeft >= 0 && !sgl.filled(clowerLeft)) clowerLeft = -1;
 
 	double min = Double.POSITIVE_INFINITY;
 	double max = Double.NEGATIVE_INFINITY;
 	double z = Double.NaN;
-	if (c != null) {
-	    z = sgl.zbase + c.height;
+	if (c >= 0) {
+	    z = sgl.zbase + sgl.heights[c];
 	    if (z < min) min = z;
 	    if (z > max) max = z;
 	}
-	if (cleft != null) {
-	    z = sgl.zbase + cleft.height;
+	if (cleft >= 0) {
+	    z = sgl.zbase + sgl.heights[cleft];
 	    if (z < min) min = z;
 	    if (z > max) max = z;
 	}
-	if (clower != null) {
-	    z = sgl.zbase + clower.height;
+	if (clower >= 0) {
+	    z = sgl.zbase + sgl.heights[clower];
 	    if (z < min) min = z;
 	    if (z > max) max = z;
 	}
-	if (clowerLeft != null) {
-	    z = sgl.zbase + clowerLeft.height;
+	if (clowerLeft >= 0) {
+	    z = sgl.zbase + sgl.heights[clowerLeft];
 	    if (z < min) min = z;
 	    if (z > max) max = z;
 	}
@@ -1596,359 +1739,288 @@ public class SteppedGrid  implements Shape3D {
 	double[] xs;
 	double[] ys;
 	double zbase;
-	LayerComponent[][] rectangles;
-	LayerComponent[][] halfRectangles;
-	ArrayList<LayerComponent> componentList = new ArrayList<>();
-	ArrayList<LayerComponent> halfList = new ArrayList<>();
-	Set<Double> zset;
+	// The components are stored in packed arrays indexed by
+	// i*m + j, where m is ys.length - 1, with a cell's FILLED and
+	// PLACEHOLDER bits in 'flags' and its relative height in
+	// 'heights'.  The half-component arrays are allocated when the
+	// first half component is added, and a half component's flags
+	// also contain the corner computed by update().
+	int m;
+	double[] heights;
+	byte[] flags;
+	double[] halfHeights;
+	byte[] halfFlags;
+	// indices of the half components whose corners are not yet known
+	int[] pending = null;
+	int npending = 0;
+	// Z values of the components added; the first zsorted entries
+	// are sorted with duplicates removed.
+	double[] zs = new double[16];
+	int zcount = 0;
+	int zsorted = 0;
+
+	static final byte FILLED = 1;
+	static final byte PLACEHOLDER = 2;
+	static final int CORNER_SHIFT = 2;
 
-	private boolean updated = false;
 	boolean flipped = false;
 
 	public boolean isFlipped() {return flipped;}
 
-	private static class LayerComponent {
-	    int i; int j;
-	    boolean filled;
-	    double height;
-	    boolean placeholder = false;
-	    public LayerComponent(int i, int j, double height,
-			     boolean placeholder) {
-		this(i, j, height);
-		this.placeholder = placeholder;
-	    }
-	    public LayerComponent(int i, int j, double height) {
-		this.i = i; this.j = j;
-		filled = true;
-		this.height = height;
-	    }
-	    LayerComponent(int i, int j) {
-		this.i = i; this.j = j;
-		filled = false;
-	    }
-	    // fields for half components, set in update()
-	    boolean half = false;
-	    int corner = 0;
-	}
-
 	public SteppedGridLayer(double[] xs, double[] ys, double z,
 				boolean flipped) {
 	    this.xs = xs;
 	    this.ys = ys;
 	    this.flipped = flipped;
 	    this.zbase = z;
-	    zset = new HashSet<Double>(xs.length + ys.length);
+	    m = ys.length - 1;
+	    int size = (xs.length - 1) * m;
+	    heights = new double[size];
+	    flags = new byte[size];
 	}
-    
-	public void addHalfComponent(LayerComponent component) {
-	    updated = false;
-	    halfList.add(component);
-	    zset.add(zbase + component.height);
+
+	boolean filled(int k) {return (flags[k] & FILLED) != 0;}
+
+	boolean placeholder(int k) {return (flags[k] & PLACEHOLDER) != 0;}
+
+	// filled and not a placeholder
+	boolean solid(int k) {return flags[k] == FILLED;}
+
+	boolean isHalf(int k) {
+	    return k >= 0 && halfFlags != null && (halfFlags[k] & FILLED) != 0;
 	}
 
-	public void addComponent(LayerComponent component) {
-	    updated = false;
-	    componentList.add(component);
-	    zset.add(zbase + component.height);
+	boolean halfPlaceholder(int k) {
+	    return (halfFlags[k] & PLACEHOLDER) != 0;
 	}
 
-	public void update() throws IllegalStateException {
-	    if (updated) return;
-	    if (rectangles == null) {
-		rectangles = new LayerComponent[xs.length - 1][ys.length - 1];
+	int corner(int k) {return halfFlags[k] >> CORNER_SHIFT;}
+
+	private void addZ(double z) {
+	    if (zcount > 0 && Double.compare(zs[zcount-1], z) == 0) return;
+	    if (zcount == zs.length) {
+		compactZs();
+		if (2*zcount > zs.length) {
+		    zs = Arrays.copyOf(zs, 2*zs.length);
+		}
 	    }
-	    if (halfRectangles == null) {
-		if (!halfList.isEmpty()) {
-		    halfRectangles =
-			new LayerComponent[xs.length - 1][ys.length - 1];
+	    zs[zcount++] = z;
+	}
+
+	private void compactZs() {
+	    if (zsorted == zcount) return;
+	    Arrays.sort(zs, 0, zcount);
+	    int last = 0;
+	    for (int ind = 1; ind < zcount; ind++) {
+		if (Double.compare(zs[ind], zs[last]) != 0) {
+		    zs[++last] = zs[ind];
 		}
 	    }
-	    for (LayerComponent c: componentList) {
-		rectangles[c.i][c.j] = c;
+	    zcount = (zcount == 0)? 0: last + 1;
+	    zsorted = zcount;
+	}
+
+	// Return the Z values added, sorted and without duplicates.
+	double[] getZs() {
+	    compactZs();
+	    return Arrays.copyOf(zs, zcount);
+	}
+
+	public void addHalfComponent(int i, int j, double height,
+				     boolean placeholder)
+	{
+	    if (halfFlags == null) {
+		halfHeights = new double[flags.length];
+		halfFlags = new byte[flags.length];
+		pending = new int[16];
+	    }
+	    int k = i*m + j;
+	    halfHeights[k] = height;
+	    halfFlags[k] = placeholder? (byte)(FILLED | PLACEHOLDER): FILLED;
+	    if (npending == pending.length) {
+		pending = Arrays.copyOf(pending, 2*npending);
 	    }
-	    componentList.clear();
+	    pending[npending++] = k;
+	    addZ(zbase + height);
+	}
+
+	public void addComponent(int i, int j, double height,
+				 boolean placeholder)
+	{
+	    int k = i*m + j;
+	    heights[k] = height;
+	    flags[k] = placeholder? (byte)(FILLED | PLACEHOLDER): FILLED;
+	    addZ(zbase + height);
+	}
+
+	public void update() throws IllegalStateException {
+	    if (npending == 0) return;
 	    int n = xs.length-1;
-	    int m = ys.length-1;
 	    int nm1 = n - 1;
 	    int mm1 = m - 1;
-	    for (int i = 0; i < n; i++) {
-		for (int j = 0; j < m; j++) {
-		    if (rectangles[i][j] == null) {
-			rectangles[i][j] = new LayerComponent(i, j);
-		    }
+	    for (int p = 0; p < npending; p++) {
+		int k = pending[p];
+		int i = k / m;
+		int j = k % m;
+		// indices of the neighboring components
+		int left = k - m;
+		int right = k + m;
+		int below = k - 1;
+		int above = k + 1;
+		int count = 0;
+		int corner = 0;
+		if ((i == 0 && j == 0)
+		    || (i == 0 && j > 0 && !solid(below))
+		    || (j == 0 && i > 0 && !solid(left))
+		    || (i > 0 && j > 0 && !solid(below) && !solid(left))) {
+		    count++;
+		    corner = 0;
 		}
-	    }
-	    if (halfRectangles != null) {
-		for (LayerComponent c: halfList) {
-		    int i = c.i;
-		    int j = c.j;
-		    c.half = true;
-		    halfRectangles[c.i][c.j] = c;
-		    int im1 = i - 1;
-		    int ip1 = i + 1;
-		    int jm1 = j - 1;
-		    int jp1 = j + 1;
-		    int count = 0;
-		    int corner = 0;
-		    if ((i == 0 && j == 0)
-			|| (i == 0 && j > 0
-			    && (!rectangles[0][jm1].filled
-				|| rectangles[0][jm1].placeholder))
-			|| (j == 0 && i > 0
-			    && (!rectangles[im1][0].filled
-				|| rectangles[im1][0].placeholder))
-			|| (i > 0
-			    && j > 0
-			    &&((!rectangles[i][jm1].filled
-				|| rectangles[i][jm1].placeholder)
-			       && (!rectangles[im1][j].filled
-				   || rectangles[im1][j].placeholder)))) {
-			count++;
-			corner = 0;
-		    }
-		    if ((i == nm1 && j == 0)
-			|| (i == nm1 && j > 0
-			    && (!rectangles[i][jm1].filled
-				|| rectangles[i][jm1].placeholder))
-			|| (j == 0 && i < nm1
-			    && (!rectangles[ip1][0].filled
-				|| rectangles[ip1][0].placeholder))
-			|| (i < nm1 && j > 0
-			    && (((!rectangles[ip1][j].filled
-				  || rectangles[ip1][j].placeholder)
-				 && (!rectangles[i][jm1].filled
-				     || rectangles[i][jm1].placeholder))))) {
-			count++;
-			corner = 1;
-		    }
-		    if ((i == nm1 && j == mm1)
-			|| (i == nm1 && j < mm1
-			    && (!rectangles[i][jp1].filled
-				|| rectangles[i][jp1].placeholder))
-			|| (j == mm1 && i < nm1
-			    && (!rectangles[ip1][j].filled
-				|| rectangles[ip1][j].placeholder))
-			|| (i < nm1 && j < mm1
-			    && ((!rectangles[ip1][j].filled
-				 || rectangles[ip1][j].placeholder)
-				&& (!rectangles[i][jp1].filled
-				    || rectangles[i][jp1].placeholder)))) {
-			count++;
-			corner = 2;
-		    }
-		    if ((i == 0 && j == mm1)
-			|| (i == 0 && j < mm1
-			    && (!rectangles[0][jp1].filled
-				|| rectangles[0][jp1].placeholder))
-			|| (j == mm1 && i > 0
-			    && (!rectangles[im1][j].filled
-				|| rectangles[im1][j].placeholder))
-			|| (j < mm1 && i > 0
-			    && ((!rectangles[i][jp1].filled
-				 || rectangles[i][jp1].placeholder)
-				&& (!rectangles[im1][j].filled
-				    || rectangles[im1][j].placeholder)))) {
-			count++;
-			corner = 3;
-		    }
-		    if (count == 1) {
-			c.corner = corner;
-		    } else {
-			String msg = (errorMsg("SGILGCount", count, i, j));
-			throw new IllegalStateException(msg);
-		    }
-		    // Check consistency
-		    switch (corner) {
-		    case 0:
-			if (j == m) {
-			    String msg = errorMsg("SGILG", 0, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[i][jp1].filled == false
-			   || rectangles[i][jp1].placeholder) {
-			    String msg = errorMsg("SGILG", 0, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (i == n) {
-			    String msg = errorMsg("SGILG", 0, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[ip1][j].filled == false
-			    || rectangles[ip1][j].placeholder) {
-			    String msg = errorMsg("SGILG", 0, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[ip1][jp1].filled == false
-				   || rectangles[ip1][jp1].placeholder) {
-			    String msg = errorMsg("SGILG", 0, i, j);
-			    throw new IllegalStateException(msg);
-			}
-			break;
-		    case 1:
-			if (i == 0) {
-			    String msg = errorMsg("SGILG", 1, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[im1][j].filled == false
-				   || rectangles[im1][j].placeholder) {
-			    String msg = errorMsg("SGILG", 1, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (j == m) {
-			    String msg = errorMsg("SGILG", 1, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[i][jp1].filled == false
-				   || rectangles[i][jp1].placeholder) {
-			    String msg = errorMsg("SGILG", 1, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[im1][jp1].filled == false
-				   || rectangles[im1][jp1].placeholder) {
-			    String msg = errorMsg("SGILG", 1, i, j);
-			    throw new IllegalStateException(msg);
-			}
-			break;
-		    case 2:
-			if (i == 0) {
-			    String msg = errorMsg("SGILG", 2, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[im1][j].filled == false
-			    || rectangles[im1][j].placeholder) {
-			    String msg = errorMsg("SGILG", 2, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (j == 0) {
-			    String msg = errorMsg("SGILG", 2, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[i][jm1].filled == false
-			    || rectangles[i][jm1].placeholder) {
-			    String msg = errorMsg("SGILG", 2, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[im1][jm1].filled == false
-			    || rectangles[im1][jm1].placeholder) {
-			    String msg = errorMsg("SGILG", 2, i, j);
-			    throw new IllegalStateException(msg);
-			}
-			break;
-		    case 3:
-			if (i == n) {
-			    String msg = errorMsg("SGILG", 3, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[ip1][j].filled == false
-				   || rectangles[ip1][j].placeholder) {
-			    String msg = errorMsg("SGILG", 3, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (j == 0) {
-			    String msg = errorMsg("SGILG", 3, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[i][jm1].filled == false
-				   || rectangles[i][jm1].placeholder) {
-			    String msg = errorMsg("SGILG", 3, i, j);
-			    throw new IllegalStateException(msg);
-			} else if (rectangles[ip1][jm1].filled == false
-				   || rectangles[ip1][jm1].placeholder) {
-			    String msg = errorMsg("SGILG", 3, i, j);
-			    throw new IllegalStateException(msg);
-			}
-			break;
-		    }
+		if ((i == nm1 && j == 0)
+		    || (i == nm1 && j > 0 && !solid(below))
+		    || (j == 0 && i < nm1 && !solid(right))
+		    || (i < nm1 && j > 0 && !solid(right) && !solid(below))) {
+		    count++;
+		    corner = 1;
 		}
-	    }
-	    if (halfRectangles != null) {
-		for (int i = 0; i < n; i++) {
-		    for (int j = 0; j < m; j++) {
-			if (halfRectangles[i][j] == null) {
-			    halfRectangles[i][j] = new LayerComponent(i, j);
-			}
-		    }
+		if ((i == nm1 && j == mm1)
+		    || (i == nm1 && j < mm1 && !solid(above))
+		    || (j == mm1 && i < nm1 && !solid(right))
+		    || (i < nm1 && j < mm1
+			&& !solid(right) && !solid(above))) {
+		    count++;
+		    corner = 2;
+		}
+		if ((i == 0 && j == mm1)
+		    || (i == 0 && j < mm1 && !solid(above))
+		    || (j == mm1 && i > 0 && !solid(left))
+		    || (j < mm1 && i > 0 && !solid(above) && !solid(left))) {
+		    count++;
+		    corner = 3;
+		}
+		if (count == 1) {
+		    halfFlags[k] = (byte)((halfFlags[k] & (FILLED|PLACEHOLDER))
+					  | (corner << CORNER_SHIFT));
+		} else {
+		    String msg = (errorMsg("SGILGCount", count, i, j));
+		    throw new IllegalStateException(msg);
+		}
+		// Check consistency
+		boolean ok;
+		switch (corner) {
+		case 0:
+		    ok = j < mm1 && solid(above) && i < nm1 && solid(right)
+			&& solid(right + 1);
+		    break;
+		case 1:
+		    ok = i > 0 && solid(left) && j < mm1 && solid(above)
+			&& solid(left + 1);
+		    break;
+		case 2:
+		    ok = i > 0 && solid(left) && j > 0 && solid(below)
+			&& solid(left - 1);
+		    break;
+		case 3:
+		    ok = i < nm1 && solid(right) && j > 0 && solid(below)
+			&& solid(right - 1);
+		    break;
+		default:
+		    throw new UnexpectedExceptionError();
+		}
+		if (!ok) {
+		    String msg = errorMsg("SGILG", corner, i, j);
+		    throw new IllegalStateException(msg);
 		}
 	    }
-	    halfList.clear();
-	    updated = true;
+	    npending = 0;
 	}
-
 	public void addRectangles(Model3DOps<?> m3d, Model3DOps<?> fm3d) {
 	    update();
 	    int n = xs.length - 1;
-	    int m = ys.length - 1;
 	    int nm1 = n - 1;
 	    int mm1 = m - 1;
 
 	    if (flipped) {
 		for (int i = 0; i < n; i++) {
 		    for (int j = 0; j < m; j++) {
-			LayerComponent c = rectangles[i][j];
-			if (c.filled == false) {
+			int k = i*m + j;
+			if (!filled(k)) {
 			    continue;
 			}
-			if (halfRectangles != null) {
-			    LayerComponent ch = halfRectangles[i][j];
-			    if (ch.filled && ch.half) {
-				switch (ch.corner) {
-				case 0:
-				    m3d.addFlippedTriangle(xs[i], ys[j+1],
-							   zbase+ch.height,
-							   xs[i+1], ys[j],
-							   zbase+ch.height,
-							   xs[i+1], ys[j+1],
-							   zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addFlippedTriangle(xs[i], ys[j+1],
-								zbase,
-								xs[i+1], ys[j],
-								zbase,
-								xs[i+1],ys[j+1],
-								zbase);
-				    }
-				    break;
-				case 1:
-				    m3d.addFlippedTriangle(xs[i], ys[j],
-							   zbase+ch.height,
-							   xs[i+1], ys[j+1],
-							   zbase+ch.height,
-							   xs[i], ys[j+1],
-							   zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addFlippedTriangle(xs[i], ys[j],
-								zbase,
-								xs[i+1],ys[j+1],
-								zbase,
-								xs[i], ys[j+1],
-								zbase);
-				    }
-				    break;
-				case 2:
-				    m3d.addFlippedTriangle(xs[i], ys[j],
-							   zbase+ch.height,
-							   xs[i+1], ys[j],
-							   zbase+ch.height,
-							   xs[i], ys[j+1],
-							   zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addFlippedTriangle(xs[i], ys[j],
-								zbase,
-								xs[i+1], ys[j],
-								zbase,
-								xs[i], ys[j+1],
-								zbase);
-				    }
-				    break;
-				case 3:
-				    m3d.addFlippedTriangle(xs[i], ys[j],
-							   zbase+ch.height,
-							   xs[i+1], ys[j],
-							   zbase+ch.height,
-							   xs[i+1], ys[j+1],
-							   zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addFlippedTriangle(xs[i], ys[j],
-								zbase,
-								xs[i+1], ys[j],
-								zbase,
-								xs[i+1],ys[j+1],
-								zbase);
-				    }
-				    break;
-				default:
-				    throw new UnexpectedExceptionError();
+			if (isHalf(k)) {
+			    double hz = zbase + halfHeights[k];
+			    switch (corner(k)) {
+			    case 0:
+				m3d.addFlippedTriangle(xs[i], ys[j+1],
+						       hz,
+						       xs[i+1], ys[j],
+						       hz,
+						       xs[i+1], ys[j+1],
+						       hz);
+				if (fm3d != null) {
+				    fm3d.addFlippedTriangle(xs[i], ys[j+1],
+							    zbase,
+							    xs[i+1], ys[j],
+							    zbase,
+							    xs[i+1],ys[j+1],
+							    zbase);
 				}
-				continue;
+				break;
+			    case 1:
+				m3d.addFlippedTriangle(xs[i], ys[j],
+						       hz,
+						       xs[i+1], ys[j+1],
+						       hz,
+						       xs[i], ys[j+1],
+						       hz);
+				if (fm3d != null) {
+				    fm3d.addFlippedTriangle(xs[i], ys[j],
+							    zbase,
+							    xs[i+1],ys[j+1],
+							    zbase,
+							    xs[i], ys[j+1],
+							    zbase);
+				}
+				break;
+			    case 2:
+				m3d.addFlippedTriangle(xs[i], ys[j],
+						       hz,
+						       xs[i+1], ys[j],
+						       hz,
+						       xs[i], ys[j+1],
+						       hz);
+				if (fm3d != null) {
+				    fm3d.addFlippedTriangle(xs[i], ys[j],
+							    zbase,
+							    xs[i+1], ys[j],
+							    zbase,
+							    xs[i], ys[j+1],
+							    zbase);
+				}
+				break;
+			    case 3:
+				m3d.addFlippedTriangle(xs[i], ys[j],
+						       hz,
+						       xs[i+1], ys[j],
+						       hz,
+						       xs[i+1], ys[j+1],
+						       hz);
+				if (fm3d != null) {
+				    fm3d.addFlippedTriangle(xs[i], ys[j],
+							    zbase,
+							    xs[i+1], ys[j],
+							    zbase,
+							    xs[i+1],ys[j+1],
+							    zbase);
+				}
+				break;
+			    default:
+				throw new UnexpectedExceptionError();
 			    }
+			    continue;
 			}
-			if (c.placeholder == false) {
-			    P3d.Rectangle.addFlippedH(m3d, zbase + c.height,
+			if (!placeholder(k)) {
+			    P3d.Rectangle.addFlippedH(m3d, zbase + heights[k],
 						      xs[i], ys[j],
 						      xs[i+1], ys[j+1]);
 			    if (fm3d != null) {
@@ -1962,86 +2034,84 @@ public class SteppedGrid  implements Shape3D {
 	    } else {
 		for (int i = 0; i < n; i++) {
 		    for (int j = 0; j < m; j++) {
-			LayerComponent c = rectangles[i][j];
-			if (c.filled == false) {
+			int k = i*m + j;
+			if (!filled(k)) {
 			    continue;
 			}
-			if (halfRectangles != null) {
-			    LayerComponent ch = halfRectangles[i][j];
-			    if (ch.filled == true && ch.half) {
-				switch (ch.corner) {
-				case 0:
-				    m3d.addTriangle(xs[i], ys[j+1],
-						    zbase+ch.height,
-						    xs[i+1], ys[j],
-						    zbase+ch.height,
-						    xs[i+1], ys[j+1],
-						    zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addTriangle(xs[i], ys[j+1],
-							 zbase,
-							 xs[i+1], ys[j],
-							 zbase,
-							 xs[i+1], ys[j+1],
-							 zbase);
-				    }
-				    break;
-				case 1:
-				    m3d.addTriangle(xs[i], ys[j],
-						    zbase+ch.height,
-						    xs[i+1], ys[j+1],
-						    zbase+ch.height,
-						    xs[i], ys[j+1],
-						    zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addTriangle(xs[i], ys[j],
-							 zbase,
-							 xs[i+1], ys[j+1],
-							 zbase,
-							 xs[i], ys[j+1],
-							 zbase);
-				    }
-				    break;
-				case 2:
-				    m3d.addTriangle(xs[i], ys[j],
-						    zbase+ch.height,
-						    xs[i+1], ys[j],
-						    zbase+ch.height,
-						    xs[i], ys[j+1],
-						    zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addTriangle(xs[i], ys[j],
-							 zbase,
-							 xs[i+1], ys[j],
-							 zbase,
-							 xs[i], ys[j+1],
-							 zbase);
-				    }
-				    break;
-				case 3:
-				    m3d.addTriangle(xs[i], ys[j],
-						    zbase+ch.height,
-						    xs[i+1], ys[j],
-						    zbase+ch.height,
-						    xs[i+1], ys[j+1],
-						    zbase+ch.height);
-				    if (fm3d != null) {
-					fm3d.addTriangle(xs[i], ys[j],
-							 zbase,
-							 xs[i+1], ys[j],
-							 zbase,
-							 xs[i+1], ys[j+1],
-							 zbase);
-				    }
-				    break;
-				default:
-				    throw new UnexpectedExceptionError();
+			if (isHalf(k)) {
+			    double hz = zbase + halfHeights[k];
+			    switch (corner(k)) {
+			    case 0:
+				m3d.addTriangle(xs[i], ys[j+1],
+						hz,
+						xs[i+1], ys[j],
+						hz,
+						xs[i+1], ys[j+1],
+						hz);
+				if (fm3d != null) {
+				    fm3d.addTriangle(xs[i], ys[j+1],
+						     zbase,
+						     xs[i+1], ys[j],
+						     zbase,
+						     xs[i+1], ys[j+1],
+						     zbase);
 				}
-				continue;
+				break;
+			    case 1:
+				m3d.addTriangle(xs[i], ys[j],
+						hz,
+						xs[i+1], ys[j+1],
+						hz,
+						xs[i], ys[j+1],
+						hz);
+				if (fm3d != null) {
+				    fm3d.addTriangle(xs[i], ys[j],
+						     zbase,
+						     xs[i+1], ys[j+1],
+						     zbase,
+						     xs[i], ys[j+1],
+						     zbase);
+				}
+				break;
+			    case 2:
+				m3d.addTriangle(xs[i], ys[j],
+						hz,
+						xs[i+1], ys[j],
+						hz,
+						xs[i], ys[j+1],
+						hz);
+				if (fm3d != null) {
+				    fm3d.addTriangle(xs[i], ys[j],
+						     zbase,
+						     xs[i+1], ys[j],
+						     zbase,
+						     xs[i], ys[j+1],
+						     zbase);
+				}
+				break;
+			    case 3:
+				m3d.addTriangle(xs[i], ys[j],
+						hz,
+						xs[i+1], ys[j],
+						hz,
+						xs[i+1], ys[j+1],
+						hz);
+				if (fm3d != null) {
+				    fm3d.addTriangle(xs[i], ys[j],
+						     zbase,
+						     xs[i+1], ys[j],
+						     zbase,
+						     xs[i+1], ys[j+1],
+						     zbase);
+				}
+				break;
+			    default:
+				throw new UnexpectedExceptionError();
 			    }
+			    continue;
 			}
-			if (c.placeholder == false) {
-			    P3d.Rectangle.addH(m3d, zbase + c.height,
+			if (!placeholder(k)) {
+			    P3d.Rectangle.addH(m3d, zbase + heights[k],
 					       xs[i], ys[j],
 					       xs[i+1], ys[j+1]);
 			    if (fm3d != null) {
@@ -2055,15 +2125,54 @@ public class SteppedGrid  implements Shape3D {
 	    }
 	}
 
-	static class Pair {
-	    LayerComponent c;
-	    LayerComponent c2;
-	    int edge;
-	    Pair(LayerComponent c, LayerComponent c2, int edge) {
-		this.c = c;
-		this.c2 = c2;
-		this.edge = edge;
+	// Merge two sorted arrays of Z values, removing duplicates.
+	private static double[] merge(double[] zs1, double[] zs2) {
+	    double[] result = new double[zs1.length + zs2.length];
+	    int i1 = 0;
+	    int i2 = 0;
+	    int k = 0;
+	    while (i1 < zs1.length || i2 < zs2.length) {
+		int cmp = (i1 == zs1.length)? 1: (i2 == zs2.length)? -1:
+		    Double.compare(zs1[i1], zs2[i2]);
+		if (cmp < 0) {
+		    result[k++] = zs1[i1++];
+		} else if (cmp > 0) {
+		    result[k++] = zs2[i2++];
+		} else {
+		    result[k++] = zs1[i1++];
+		    i2++;
+		}
 	    }
+	    return (k == result.length)? result: Arrays.copyOf(result, k);
+	}
+
+	// Add Z values so that sorted Z values are no more than
+	// maxZSpacing apart.
+	private static double[] addZs(double[] zs, double maxZSpacing) {
+	    if (maxZSpacing <= 0.0 || zs.length < 2) return zs;
+	    double[] result = new double[zs.length];
+	    int k = 0;
+	    for (int ind = 0; ind < zs.length; ind++) {
+		if (ind > 0) {
+		    double lastZ = zs[ind-1];
+		    double z = zs[ind];
+		    if (z - lastZ > maxZSpacing) {
+			double zz = lastZ + maxZSpacing;
+			while (zz < z) {
+			    if (k == result.length) {
+				result = Arrays.copyOf(result, 2*k);
+			    }
+			    result[k++] = zz;
+			    zz += maxZSpacing;
+			}
+		    }
+		}
+		if (k == result.length) {
+		    result = Arrays.copyOf(result, 2*k);
+		}
+		result[k++] = zs[ind];
+	    }
+	    return (k == result.length)? result: Arrays.copyOf(result, k);
 	}
 
 	public static double[] attach(Model3DOps<?> m3d, SteppedGridLayer r,
@@ -2071,83 +2180,44 @@ public class SteppedGrid  implements Shape3D {
 	{
 	    r.update();
 	    int n = r.xs.length-1;
-	    int m = r.ys.length-1;
+	    int m = r.m;
 	    long max = ((long)n)*((long)m)*4;
 	    int nm1 = n - 1;
 	    int mm1 = m - 1;
-	    Set<Double> zzset = new TreeSet<Double>();
-	    // Set<Double> zzset = new HashSet<>(r.zset.size());
-	    zzset.addAll(r.zset);
-	    if (maxZSpacing > 0.0) {
-		double lastZ = 0.0;
-		boolean firstTime = true;
-		LinkedList<Double> additions = new LinkedList<>();
-		for (double z: zzset) {
-		    if (firstTime) {
-			firstTime = false;
-		    } else {
-			double diff = z - lastZ;
-			if (diff > maxZSpacing) {
-			    double zz = lastZ + maxZSpacing;
-			    while (zz < z) {
-				additions.add(zz);
-				zz += maxZSpacing;
-			    }
-			}
-		    }
-		    lastZ = z;
-		}
-		zzset.addAll(additions);
-	    }
-	    double[] zvalues = new double[zzset.size()];
-	    int ind = 0;
-	    for (double z: zzset) {
-		zvalues[ind++] = z;
-	    }
-	    // Arrays.sort(zvalues);
+	    double[] zvalues = addZs(r.getZs(), maxZSpacing);
+	    int ind;
 	    for (int i = 0; i < n; i++) {
 		for (int j = 0; j < m; j++) {
-		    LayerComponent c = r.rectangles[i][j];
+		    int c = i*m + j;
 
-		    LayerComponent cright = (i == nm1)? null:
-			r.rectangles[i+1][j];
-		    LayerComponent cupper = (j == mm1)? null:
-			r.rectangles[i][j+1];
-		    LayerComponent clower = (j == 0)? null:
-			r.rectangles[i][j-1];
-		    LayerComponent cleft = (i == 0)? null:
-			r.rectangles[i-1][j];
+		    int cright = (i == nm1)? -1: c + m;
+		    int cupper = (j == mm1)? -1: c + 1;
 
 		    double x1, x2;
 		    double y1, y2;
 		    double z1, z2;
 		    int zind1, zind2, incr;
 
-		    if (c.filled) {
-			if (cright != null && cright.filled) {
-			    boolean ok = c.height != cright.height;
+		    if (r.filled(c)) {
+			if (cright >= 0 && r.filled(cright)) {
+			    boolean ok = r.heights[c] != r.heights[cright];
 			    if (ok) {
-				LayerComponent cH =
-				    (r.halfRectangles == null)? null:
-				    r.halfRectangles[i][j];
-				LayerComponent crightH =
-				    (r.halfRectangles == null)? null:
-				    r.halfRectangles[i+1][j];
-				if (cH != null && !cH.filled) cH = null;
-				if (crightH != null && !crightH.filled)
-				    crightH = null;
-				if (cH == null && crightH == null) {
-				    ok = !c.placeholder || !cright.placeholder;
-				} else if (cH != null && crightH != null) {
+				int cH = r.isHalf(c)? c: -1;
+				int crightH = r.isHalf(cright)? cright: -1;
+				if (cH < 0 && crightH < 0) {
+				    ok = !r.placeholder(c)
+					|| !r.placeholder(cright);
+				} else if (cH >= 0 && crightH >= 0) {
 				    ok = false;
-				} else if (cH != null) {
-				    if (cH.corner == 0 || cH.corner == 3) {
-					ok = !cright.placeholder;
+				} else if (cH >= 0) {
+				    if (r.corner(cH) == 0
+					|| r.corner(cH) == 3) {
+					ok = !r.placeholder(cright);
 				    }
-				} else if (crightH != null) {
-				    if (crightH.corner == 1
-					|| crightH.corner == 2) {
-					ok = !c.placeholder;
+				} else if (crightH >= 0) {
+				    if (r.corner(crightH) == 1
+					|| r.corner(crightH) == 2) {
+					ok = !r.placeholder(c);
 				    }
 				}
 			    }
@@ -2156,8 +2226,8 @@ public class SteppedGrid  implements Shape3D {
 				y1 = r.ys[j];
 				x2 = r.xs[i+1];
 				y2 = r.ys[j+1];
-				z1 = r.zbase + c.height;
-				z2 = r.zbase + cright.height;
+				z1 = r.zbase + r.heights[c];
+				z2 = r.zbase + r.heights[cright];
 				zind1 = Arrays.binarySearch(zvalues, z1);
 				zind2 = Arrays.binarySearch(zvalues, z2);
 				incr = (zind1 > zind2)? -1: 1;
@@ -2175,30 +2245,25 @@ public class SteppedGrid  implements Shape3D {
 				}
 			    }
 			}
-			if (cupper != null && cupper.filled) {
-			    boolean ok = c.height != cupper.height;
+			if (cupper >= 0 && r.filled(cupper)) {
+			    boolean ok = r.heights[c] != r.heights[cupper];
 			    if (ok) {
-				LayerComponent cH =
-				    (r.halfRectangles == null)? null:
-				    r.halfRectangles[i][j];
-				LayerComponent cupperH =
-				    (r.halfRectangles == null)? null:
-				    r.halfRectangles[i][j+1];
-				if (cH != null && !cH.filled) cH = null;
-				if (cupperH != null && !cupperH.filled)
-				    cupperH = null;
-				if (cH == null && cupperH == null) {
-				    ok = !c.placeholder || !cupper.placeholder;
-				} else if (cH != null && cupperH != null) {
+				int cH = r.isHalf(c)? c: -1;
+				int cupperH = r.isHalf(cupper)? cupper: -1;
+				if (cH < 0 && cupperH < 0) {
+				    ok = !r.placeholder(c)
+					|| !r.placeholder(cupper);
+				} else if (cH >= 0 && cupperH >= 0) {
 				    ok = false;
-				} else if (cH != null) {
-				    if (cH.corner == 0 || cH.corner == 1) {
-					ok = !cupper.placeholder;
+				} else if (cH >= 0) {
+				    if (r.corner(cH) == 0
+					|| r.corner(cH) == 1) {
+					ok = !r.placeholder(cupper);
 				    }
-				} else if (cupperH != null) {
-				    if (cupperH.corner == 2
-					|| cupperH.corner == 3) {
-					ok = !c.placeholder;
+				} else if (cupperH >= 0) {
+				    if (r.corner(cupperH) == 2
+					|| r.corner(cupperH) == 3) {
+					ok = !r.placeholder(c);
 				    }
 				}
 			    }
@@ -2207,8 +2272,8 @@ public class SteppedGrid  implements Shape3D {
 				y1 = r.ys[j+1];
 				x2 = r.xs[i+1];
 				y2 = r.ys[j+1];
-				z1 = r.zbase + c.height;
-				z2 = r.zbase + cupper.height;
+				z1 = r.zbase + r.heights[c];
+				z2 = r.zbase + r.heights[cupper];
 				zind1 = Arrays.binarySearch(zvalues, z1);
 				zind2 = Arrays.binarySearch(zvalues, z2);
 				incr = (zind1 > zind2)? -1: 1;
@@ -2240,105 +2305,45 @@ public class SteppedGrid  implements Shape3D {
 	    r2.update();
 
 	    int n = r1.xs.length-1;
-	    int m = r2.ys.length-1;
+	    int m = r1.m;
 	    long max = ((long)n)*((long)m)*4;
 	    int nm1 = n - 1;
 	    int mm1 = m - 1;
 
-	    // Set<Double> zzset=new HashSet<>(r1.zset.size() + r2.zset.size());
-	    Set<Double> zzset = new TreeSet<Double>();
-	    zzset.addAll(r1.zset);
-	    zzset.addAll(r2.zset);
-	    if (maxZSpacing > 0.0) {
-		double lastZ = 0.0;
-		boolean firstTime = true;
-		LinkedList<Double> additions = new LinkedList<>();
-		for (double z: zzset) {
-		    if (firstTime) {
-			firstTime = false;
-		    } else {
-			double diff = z - lastZ;
-			if (diff > maxZSpacing) {
-			    double zz = lastZ + maxZSpacing;
-			    while (zz < z) {
-				additions.add(zz);
-				zz += maxZSpacing;
-			    }
-			}
-		    }
-		    lastZ = z;
-		}
-		zzset.addAll(additions);
-	    }
-	    double[] zvalues = new double[zzset.size()];
-	    int ind = 0;
-	    for (double z: zzset) {
-		zvalues[ind++] = z;
-	    }
-	    // Arrays.sort(zvalues);
+	    double[] zvalues = addZs(merge(r1.getZs(), r2.getZs()),
+				     maxZSpacing);
+	    int ind;
 	    for (int i = 0; i < n; i++) {
 		for (int j = 0; j < m; j++) {
-		    LayerComponent c1 = r1.rectangles[i][j];
-		    LayerComponent c2 = r2.rectangles[i][j];
-
-		    LayerComponent cH1 = null;
-		    LayerComponent cH1right = null;
-		    LayerComponent cH1upper = null;
-		    LayerComponent cH1lower = null;
-		    LayerComponent cH1left = null;
-		    if (r1.halfRectangles != null) {
-			cH1 = r1.halfRectangles[i][j];
-			cH1right = (i == nm1)? null:
-			    r1.halfRectangles[i+1][j];
-			cH1upper = (j == mm1)? null:
-			    r1.halfRectangles[i][j+1];
-			cH1lower = (j == 0)? null:
-			    r1.halfRectangles[i][j-1];
-			cH1left = (i == 0)? null:
-			    r1.halfRectangles[i-1][j];;
-		    }
-		    LayerComponent cH2 = null;
-		    LayerComponent cH2right = null;
-		    LayerComponent cH2upper = null;
-		    if (r2.halfRectangles != null) {
-			cH2 = r2.halfRectangles[i][j];
-			cH2right = (i == nm1)? null:
-			    r2.halfRectangles[i+1][j];
-			cH2upper = (j == mm1)? null:
-			    r2.halfRectangles[i][j+1];
-		    }
+		    int c1 = i*m + j;
+		    int c2 = c1;
+		    int cH1 = r1.isHalf(c1)? c1: -1;
+		    int cH2 = r2.isHalf(c2)? c2: -1;
 
-		    LayerComponent c1right = (i == nm1)? null:
-			r1.rectangles[i+1][j];
-		    LayerComponent c1upper = (j == mm1)? null:
-			r1.rectangles[i][j+1];
-		    LayerComponent c1lower = (j == 0)? null:
-			r1.rectangles[i][j-1];
-		    LayerComponent c1left = (i == 0)? null:
-			r1.rectangles[i-1][j];
+		    int c1right = (i == nm1)? -1: c1 + m;
+		    int c1upper = (j == mm1)? -1: c1 + 1;
+		    int c1lower = (j == 0)? -1: c1 - 1;
+		    int c1left = (i == 0)? -1: c1 - m;
 
-		    LayerComponent c2right = (i == nm1)? null:
-			r2.rectangles[i+1][j];
-		    LayerComponent c2upper = (j == mm1)? null:
-			r2.rectangles[i][j+1];
+		    int c2right = c1right;
+		    int c2upper = c1upper;
 
 		    double x1, x2;
 		    double y1, y2;
 		    double z1, z2;
 		    int zind1, zind2, incr;
 
-		    boolean test1 = cH1 == null || !cH1.filled
-			|| cH1.placeholder ||cH2 == null || !cH2.filled
-			|| cH2.placeholder;
+		    boolean test1 = cH1 < 0 || r1.halfPlaceholder(cH1)
+			|| cH2 < 0 || r2.halfPlaceholder(cH2);
 
-		    if (c1.filled) {
-			if ((c1left == null || !c1left.filled) && test1) {
+		    if (r1.filled(c1)) {
+			if ((c1left < 0 || !r1.filled(c1left)) && test1) {
 			    x1 = r1.xs[i];
 			    y1 = r1.ys[j];
 			    x2 = r1.xs[i];
 			    y2 = r1.ys[j+1];
-			    z1 = r1.zbase + c1.height;
-			    z2 = r2.zbase + c2.height;
+			    z1 = r1.zbase + r1.heights[c1];
+			    z2 = r2.zbase + r2.heights[c2];
 			    zind1 = Arrays.binarySearch(zvalues, z1);
 			    zind2 = Arrays.binarySearch(zvalues, z2);
 			    incr = (zind1 > zind2)? -1: 1;
@@ -2356,31 +2361,27 @@ public class SteppedGrid  implements Shape3D {
 			    }
 
 			}
-			if (c1right != null && c1right.filled) {
-			    boolean ok = c1.height != c1right.height;
+			if (c1right >= 0 && r1.filled(c1right)) {
+			    boolean ok = r1.heights[c1] != r1.heights[c1right];
 			    if (ok) {
-				LayerComponent cH = cH1;
-				LayerComponent crightH =
-				    (r1.halfRectangles == null)? null:
-				    r1.halfRectangles[i+1][j];
-				if (cH != null && !cH.filled) cH = null;
-				if (crightH != null && !crightH.filled)
-				    crightH = null;
-				if (cH == null && crightH == null) {
-				    ok = !c1.placeholder
-					|| !c1right.placeholder;
-				} else if (cH != null && crightH != null) {
+				int cH = cH1;
+				int crightH = r1.isHalf(c1right)? c1right: -1;
+				if (cH < 0 && crightH < 0) {
+				    ok = !r1.placeholder(c1)
+					|| !r1.placeholder(c1right);
+				} else if (cH >= 0 && crightH >= 0) {
 				    ok = false;
-				} else if (cH != null) {
-				    if (cH.corner == 0 || cH.corner == 3) {
-					ok = !c1right.placeholder;
+				} else if (cH >= 0) {
+				    if (r1.corner(cH) == 0
+					|| r1.corner(cH) == 3) {
+					ok = !r1.placeholder(c1right);
 				    } else {
 					ok = false;
 				    }
-				} else if (crightH != null) {
-				    if (crightH.corner == 1
-					|| crightH.corner == 2) {
-					ok = !c1.placeholder;
+				} else if (crightH >= 0) {
+				    if (r1.corner(crightH) == 1
+					|| r1.corner(crightH) == 2) {
+					ok = !r1.placeholder(c1);
 				    } else {
 					ok = false;
 				    }
@@ -2391,8 +2392,8 @@ public class SteppedGrid  implements Shape3D {
 				y1 = r1.ys[j];
 				x2 = r1.xs[i+1];
 				y2 = r1.ys[j+1];
-				z1 = r1.zbase + c1.height;
-				z2 = r1.zbase + c1right.height;
+				z1 = r1.zbase + r1.heights[c1];
+				z2 = r1.zbase + r1.heights[c1right];
 				zind1 = Arrays.binarySearch(zvalues, z1);
 				zind2 = Arrays.binarySearch(zvalues, z2);
 				incr = (zind1 > zind2)? -1: 1;
@@ -2408,8 +2409,8 @@ public class SteppedGrid  implements Shape3D {
 			    y1 = r1.ys[j];
 			    x2 = r1.xs[i+1];
 			    y2 = r1.ys[j+1];
-			    z1 = r1.zbase + c1.height;
-			    z2 = r2.zbase + c2.height;
+			    z1 = r1.zbase + r1.heights[c1];
+			    z2 = r2.zbase + r2.heights[c2];
 			    zind1 = Arrays.binarySearch(zvalues, z1);
 			    zind2 = Arrays.binarySearch(zvalues, z2);
 			    incr = (zind1 > zind2)? -1: 1;
@@ -2425,13 +2426,13 @@ public class SteppedGrid  implements Shape3D {
 							  x2, y2, r2.zbase);
 			    }
 			}
-			if ((c1lower == null || !c1lower.filled) && test1) {
+			if ((c1lower < 0 || !r1.filled(c1lower)) && test1) {
 			    x1 = r1.xs[i];
 			    y1 = r1.ys[j];
 			    x2 = r1.xs[i+1];
 			    y2 = r1.ys[j];
-			    z1 = r1.zbase + c1.height;
-			    z2 = r2.zbase + c2.height;
+			    z1 = r1.zbase + r1.heights[c1];
+			    z2 = r2.zbase + r2.heights[c2];
 			    zind1 = Arrays.binarySearch(zvalues, z1);
 			    zind2 = Arrays.binarySearch(zvalues, z2);
 			    incr = (zind1 > zind2)? -1: 1;
@@ -2447,31 +2448,27 @@ public class SteppedGrid  implements Shape3D {
 							  x2, y2, r2.zbase);
 			    }
 			}
-			if (c1upper != null && c1upper.filled) {
-			    boolean ok = c1.height != c1upper.height;
+			if (c1upper >= 0 && r1.filled(c1upper)) {
+			    boolean ok = r1.heights[c1] != r1.heights[c1upper];
 			    if (ok) {
-				LayerComponent cH = cH1;
-				LayerComponent cupperH =
-				    (r1.halfRectangles == null)? null:
-				    r1.halfRectangles[i][j+1];
-				if (cH != null && !cH.filled) cH = null;
-				if (cupperH != null && !cupperH.filled)
-				    cupperH = null;
-				if (cH == null && cupperH == null) {
-				    ok = !c1.placeholder
-					|| !c1upper.placeholder;
-				} else if (cH != null && cupperH != null) {
+				int cH = cH1;
+				int cupperH = r1.isHalf(c1upper)? c1upper: -1;
+				if (cH < 0 && cupperH < 0) {
+				    ok = !r1.placeholder(c1)
+					|| !r1.placeholder(c1upper);
+				} else if (cH >= 0 && cupperH >= 0) {
 				    ok = false;
-				} else if (cH != null) {
-				    if (cH.corner == 0 || cH.corner == 1) {
-					ok = !c1upper.placeholder;
+				} else if (cH >= 0) {
+				    if (r1.corner(cH) == 0
+					|| r1.corner(cH) == 1) {
+					ok = !r1.placeholder(c1upper);
 				    } else {
 					ok = false;
 				    }
-				} else if (cupperH != null) {
-				    if (cupperH.corner == 2
-					|| cupperH.corner == 3) {
-					ok = !c1.placeholder;
+				} else if (cupperH >= 0) {
+				    if (r1.corner(cupperH) == 2
+					|| r1.corner(cupperH) == 3) {
+					ok = !r1.placeholder(c1);
 				    } else {
 					ok = false;
 				    }
@@ -2482,8 +2479,8 @@ public class SteppedGrid  implements Shape3D {
 				y1 = r1.ys[j+1];
 				x2 = r1.xs[i+1];
 				y2 = r1.ys[j+1];
-				z1 = r1.zbase + c1.height;
-				z2 = r1.zbase + c1upper.height;
+				z1 = r1.zbase + r1.heights[c1];
+				z2 = r1.zbase + r1.heights[c1upper];
 				zind1 = Arrays.binarySearch(zvalues, z1);
 				zind2 = Arrays.binarySearch(zvalues, z2);
 				incr = (zind1 > zind2)? -1: 1;
@@ -2499,8 +2496,8 @@ public class SteppedGrid  implements Shape3D {
 			    y1 = r1.ys[j+1];
 			    x2 = r1.xs[i+1];
 			    y2 = r1.ys[j+1];
-			    z1 = r1.zbase + c1.height;
-			    z2 = r2.zbase + c2.height;
+			    z1 = r1.zbase + r1.heights[c1];
+			    z2 = r2.zbase + r2.heights[c2];
 			    zind1 = Arrays.binarySearch(zvalues, z1);
 			    zind2 = Arrays.binarySearch(zvalues, z2);
 			    incr = (zind1 > zind2)? -1: 1;
@@ -2517,32 +2514,28 @@ public class SteppedGrid  implements Shape3D {
 			    }
 			}
 		    }
-		    if (c2.filled) {
-			if (c2right != null && c2right.filled) {
-			    boolean ok = c2.height != c2right.height;
+		    if (r2.filled(c2)) {
+			if (c2right >= 0 && r2.filled(c2right)) {
+			    boolean ok = r2.heights[c2] != r2.heights[c2right];
 			    if (ok) {
-				LayerComponent cH = cH2;
-				LayerComponent crightH =
-				    (r2.halfRectangles == null)? null:
-				    r2.halfRectangles[i+1][j];
-				if (cH != null && !cH.filled) cH = null;
-				if (crightH != null && !crightH.filled)
-				    crightH = null;
-				if (cH == null && crightH == null) {
-				    ok = !c2.placeholder
-					|| !c2right.placeholder;
-				} else if (cH != null && crightH != null) {
+				int cH = cH2;
+				int crightH = r2.isHalf(c2right)? c2right: -1;
+				if (cH < 0 && crightH < 0) {
+				    ok = !r2.placeholder(c2)
+					|| !r2.placeholder(c2right);
+				} else if (cH >= 0 && crightH >= 0) {
 				    ok = false;
-				} else if (cH != null) {
-				    if (cH.corner == 0 || cH.corner == 3) {
-					ok = !c2right.placeholder;
+				} else if (cH >= 0) {
+				    if (r2.corner(cH) == 0
+					|| r2.corner(cH) == 3) {
+					ok = !r2.placeholder(c2right);
 				    } else {
 					ok = false;
 				    }
-				} else if (crightH != null) {
-				    if (crightH.corner == 1
-					|| crightH.corner == 2) {
-					ok = !c2.placeholder;
+				} else if (crightH >= 0) {
+				    if (r2.corner(crightH) == 1
+					|| r2.corner(crightH) == 2) {
+					ok = !r2.placeholder(c2);
 				    } else {
 					ok = false;
 				    }
@@ -2553,8 +2546,8 @@ public class SteppedGrid  implements Shape3D {
 				y1 = r2.ys[j];
 				x2 = r2.xs[i+1];
 				y2 = r2.ys[j+1];
-				z1 = r2.zbase + c2.height;
-				z2 = r2.zbase + c2right.height;
+				z1 = r2.zbase + r2.heights[c2];
+				z2 = r2.zbase + r2.heights[c2right];
 				zind1 = Arrays.binarySearch(zvalues, z1);
 				zind2 = Arrays.binarySearch(zvalues, z2);
 				incr = (zind1 > zind2)? -1: 1;
@@ -2566,29 +2559,25 @@ public class SteppedGrid  implements Shape3D {
 				}
 			    }
 			}
-			if (c2upper != null && c2upper.filled) {
-			    boolean ok = c2.height != c2upper.height;
+			if (c2upper >= 0 && r2.filled(c2upper)) {
+			    boolean ok = r2.heights[c2] != r2.heights[c2upper];
 			    if (ok) {
-				LayerComponent cH = cH2;
-				LayerComponent cupperH =
-				    (r2.halfRectangles == null)? null:
-				    r2.halfRectangles[i][j+1];
-				if (cH != null && !cH.filled) cH = null;
-				if (cupperH != null && !cupperH.filled)
-				    cupperH = null;
-				if (cH == null && cupperH == null) {
-				    ok = !c2.placeholder
-					|| !c2upper.placeholder;
-				} else if (cH != null && cupperH != null) {
+				int cH = cH2;
+				int cupperH = r2.isHalf(c2upper)? c2upper: -1;
+				if (cH < 0 && cupperH < 0) {
+				    ok = !r2.placeholder(c2)
+					|| !r2.placeholder(c2upper);
+				} else if (cH >= 0 && cupperH >= 0) {
 				    ok = false;
-				} else if (cH != null) {
-				    if (cH.corner == 0 || cH.corner == 1) {
-					ok = !c2upper.placeholder;
+				} else if (cH >= 0) {
+				    if (r2.corner(cH) == 0
+					|| r2.corner(cH) == 1) {
+					ok = !r2.placeholder(c2upper);
 				    }
-				} else if (cupperH != null) {
-				    if (cupperH.corner == 2
-					|| cupperH.corner == 3) {
-					ok = !c2.placeholder;
+				} else if (cupperH >= 0) {
+				    if (r2.corner(cupperH) == 2
+					|| r2.corner(cupperH) == 3) {
+					ok = !r2.placeholder(c2);
 				    }
 				}
 			    }
@@ -2597,8 +2586,8 @@ public class SteppedGrid  implements Shape3D {
 				y1 = r2.ys[j+1];
 				x2 = r2.xs[i+1];
 				y2 = r2.ys[j+1];
-				z1 = r2.zbase + c2.height;
-				z2 = r2.zbase + c2upper.height;
+				z1 = r2.zbase + r2.heights[c2];
+				z2 = r2.zbase + r2.heights[c2upper];
 				zind1 = Arrays.binarySearch(zvalues, z1);
 				zind2 = Arrays.binarySearch(zvalues, z2);
 				incr = (zind1 > zind2)? -1: 1;
@@ -2612,15 +2601,15 @@ public class SteppedGrid  implements Shape3D {
 			    }
 			}
 		    }
-		    if (cH1 != null && cH2 != null
-			&& cH1.filled && cH2.filled
-			&& !cH1.placeholder && !cH2.placeholder) {
-			z1 = r1.zbase + c1.height;
-			z2 = r2.zbase + c2.height;
+		    if (cH1 >= 0 && cH2 >= 0
+			&& !r1.halfPlaceholder(cH1)
+			&& !r2.halfPlaceholder(cH2)) {
+			z1 = r1.zbase + r1.heights[c1];
+			z2 = r2.zbase + r2.heights[c2];
 			zind1 = Arrays.binarySearch(zvalues, z1);
 			zind2 = Arrays.binarySearch(zvalues, z2);
 			incr = (zind1 > zind2)? -1: 1;
-			switch (cH1.corner) {
+			switch (r1.corner(cH1)) {
 			case 0:
 			    x1 = r1.xs[i];
 			    y1 = r1.ys[j+1];
@@ -3941,4 +3930,5 @@ public class SteppedGrid  implements Shape3D {
 //  LocalWords:  SteppedGrids requireLT argOffGrid SteppedGridLayer
 //  LocalWords:  lengthTooLongX lengthTooLongY halfAdded notUpper
 //  LocalWords:  addTriangle getBoundary indices's topBottom
-//  LocalWords:  printSteppedGridBuilderCalls Appendable
+//  LocalWords:  printSteppedGridBuilderCalls Appendable compDimX
+//  LocalWords:  compDimY asDoubleBuffer bufferTooShort
@@ -0,0 +1,565 @@
+package org.bzdev.p3d;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Software rasterizer for render lists.
+ * This class provides an alternative to
+ * {@link RenderList#render(java.awt.Graphics2D,Color,double,double)}.
+ * Instead of sorting a render list and drawing its elements in
+ * back-to-front order, each pixel's color is determined by the element
+ * whose depth (z coordinate) at that pixel is largest.  As a result,
+ * the elements do not have to be sorted, and triangles that intersect
+ * each other are displayed correctly.
+ * <P>
+ * The image is divided into square tiles, and the elements of a
+ * render list are assigned to the tiles their bounding boxes overlap.
+ * The tiles are then rendered in parallel using the common fork/join
+ * pool, each with its own depth buffer.  Triangles are drawn first,
+ * followed by line segments and triangle edges, which are shown when
+ * their depths are not less than the depth buffer's value (with a small
+ * tolerance so that a triangle's edges are not hidden by the triangle
+ * or its neighbors).
+ * <P>
+ * Shading uses the same model as the painter's algorithm: the color
+ * stored in a render-list element already accounts for the light
+ * source, and when the color factor is positive, each pixel's color
+ * is scaled by the factor RenderList.scaleColor would compute for the
+ * depth at that pixel.
+ * <P>
+ * Opaque triangles are drawn before translucent ones.  The translucent
+ * elements are then drawn in back-to-front order, using the ordering
+ * the painter's algorithm uses.  Their pixels are blended with the
+ * pixels behind them when they pass the depth test, but they do not
+ * modify the depth buffer, so an opaque triangle can never be drawn
+ * over a translucent one that is in front of it.
+ */
+final class ZBufferRenderer {
+
+    // tile width and height in pixels; a multiple of 8 so that tiles
+    // never share bytes in images whose pixels are packed into bytes
+    static final int TILE_SIZE = 64;
+
+    // Pixels are ARGB values; depths are initially negative infinity.
+    private static final class Tile {
+	int x0, y0, x1, y1, width;
+	int[] pixels = new int[TILE_SIZE*TILE_SIZE];
+	double[] depths = new double[TILE_SIZE*TILE_SIZE];
+    }
+
+    private final RenderListElement[] elements;
+    private final float[][] vertices;
+    // bins[binStarts[i]] ... bins[binStarts[i+1]-1] are the indices of
+    // the elements that may overlap tile i
+    private final int[] binStarts;
+    private final int[] bins;
+    private final int ntx;
+    private final int nty;
+    private final int width;
+    private final int height;
+    private final Color edgeColor;
+    private final double colorFactor;
+    private final double normalFactor;
+    private final double min;
+    private final double max;
+    private final double bias;
+
+    // destination
+    private final BufferedImage image;
+    private final int[] data;
+    private final int dataOffset;
+    private final int stride;
+    private final boolean opaque;
+
+    private ZBufferRenderer(RenderList list, BufferedImage image,
+			    double dx, double dy, Color edgeColor,
+			    double colorFactor, double normalFactor)
+    {
+	if (colorFactor < 0.0) {
+	    throw new IllegalArgumentException
+		(RenderList.errorMsg("illegalColorFactor", colorFactor));
+	}
+	this.image = image;
+	this.edgeColor = edgeColor;
+	this.colorFactor = colorFactor;
+	this.normalFactor = normalFactor;
+	this.min = list.min;
+	this.max = list.max;
+	double range = max - min;
+	if (range > 0.0 && !Double.isInfinite(range)) {
+	    bias = 1.0e-3 * range;
+	} else {
+	    double amax = Double.isInfinite(max)? 1.0: Math.abs(max);
+	    bias = 1.0e-9 * Math.max(1.0, amax);
+	}
+	width = image.getWidth();
+	height = image.getHeight();
+	ntx = (width + TILE_SIZE - 1) / TILE_SIZE;
+	nty = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+	WritableRaster raster = image.getRaster();
+	DataBuffer db = raster.getDataBuffer();
+	int type = image.getType();
+	if ((type == BufferedImage.TYPE_INT_RGB
+	     || type == BufferedImage.TYPE_INT_ARGB)
+	    && db instanceof DataBufferInt
+	    && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+	    && db.getNumBanks() == 1) {
+	    data = ((DataBufferInt) db).getData();
+	    stride = ((SinglePixelPackedSampleModel) raster.getSampleModel())
+		.getScanlineStride();
+	    dataOffset = db.getOffset()
+		- raster.getSampleModelTranslateY() * stride
+		- raster.getSampleModelTranslateX();
+	} else {
+	    data = null;
+	    stride = 0;
+	    dataOffset = 0;
+	}
+	opaque = (type == BufferedImage.TYPE_INT_RGB);
+
+	// Opaque elements come first, followed by translucent elements
+	// sorted from back to front.  The bins list elements in this
+	// order, so each tile draws its elements in the same order.
+	int n = list.list.size();
+	elements = new RenderListElement[n];
+	int nopaque = 0;
+	for (RenderListElement e: list.list) {
+	    if (e.c.getAlpha() == 255) elements[nopaque++] = e;
+	}
+	int ntranslucent = nopaque;
+	for (RenderListElement e: list.list) {
+	    if (e.c.getAlpha() != 255) elements[ntranslucent++] = e;
+	}
+	java.util.Arrays.sort(elements, nopaque, n, RenderList.comparator);
+	vertices = new float[n][];
+	int ntiles = ntx * nty;
+	int[] xranges = new int[2*n];
+	int[] yranges = new int[2*n];
+	int[] counts = new int[ntiles + 1];
+	for (int i = 0; i < n; i++) {
+	    float[] v = getVertices(elements[i], dx, dy);
+	    vertices[i] = v;
+	    float xmin = Float.POSITIVE_INFINITY;
+	    float xmax = Float.NEGATIVE_INFINITY;
+	    float ymin = Float.POSITIVE_INFINITY;
+	    float ymax = Float.NEGATIVE_INFINITY;
+	    for (int j = 0; j < v.length; j += 3) {
+		if (v[j] < xmin) xmin = v[j];
+		if (v[j] > xmax) xmax = v[j];
+		if (v[j+1] < ymin) ymin = v[j+1];
+		if (v[j+1] > ymax) ymax = v[j+1];
+	    }
+	    // tiles are only assigned to elements with vertices
+	    if (v.length == 0 || !(xmax >= 0.0F && ymax >= 0.0F
+				   && xmin < width && ymin < height)) {
+		xranges[2*i] = 0;
+		xranges[2*i+1] = -1;
+		continue;
+	    }
+	    xranges[2*i] = tileIndex(xmin - 1.0F, ntx);
+	    xranges[2*i+1] = tileIndex(xmax + 1.0F, ntx);
+	    yranges[2*i] = tileIndex(ymin - 1.0F, nty);
+	    yranges[2*i+1] = tileIndex(ymax + 1.0F, nty);
+	    for (int ty = yranges[2*i]; ty <= yranges[2*i+1]; ty++) {
+		for (int tx = xranges[2*i]; tx <= xranges[2*i+1]; tx++) {
+		    counts[ty*ntx + tx + 1]++;
+		}
+	    }
+	}
+	for (int i = 0; i < ntiles; i++) {
+	    counts[i+1] += counts[i];
+	}
+	binStarts = counts.clone();
+	bins = new int[counts[ntiles]];
+	for (int i = 0; i < n; i++) {
+	    for (int ty = yranges[2*i]; ty <= yranges[2*i+1]; ty++) {
+		for (int tx = xranges[2*i]; tx <= xranges[2*i+1]; tx++) {
+		    bins[counts[ty*ntx + tx]++] = i;
+		}
+	    }
+	}
+    }
+
+    private static int tileIndex(float coord, int ntiles) {
+	int index = (int)Math.floor(coord / TILE_SIZE);
+	return (index < 0)? 0: ((index >= ntiles)? ntiles - 1: index);
+    }
+
+    /*
+     * Get an element's vertices in device space as x, y, z triplets.
+     * Elements created without explicit vertices (not expected) use
+     * their path's coordinates and the element's z value.
+     */
+    private static float[] getVertices(RenderListElement e,
+				       double dx, double dy)
+    {
+	float[] v = e.vertices;
+	if (v == null) {
+	    int np = e.p.npoints;
+	    v = new float[3*np];
+	    float[] coords = new float[6];
+	    PathIterator pit = e.p.getPathIterator(null);
+	    int i = 0;
+	    while (!pit.isDone() && i < v.length) {
+		int type = pit.currentSegment(coords);
+		if (type == PathIterator.SEG_MOVETO
+		    || type == PathIterator.SEG_LINETO) {
+		    v[i++] = coords[0];
+		    v[i++] = coords[1];
+		    v[i++] = (float)e.z;
+		}
+		pit.next();
+	    }
+	    if (i < v.length) v = java.util.Arrays.copyOf(v, i);
+	} else if (dx == 0.0 && dy == 0.0) {
+	    return v;
+	} else {
+	    v = v.clone();
+	}
+	if (dx != 0.0 || dy != 0.0) {
+	    for (int i = 0; i < v.length; i += 3) {
+		v[i] = (float)(v[i] - dx);
+		v[i+1] = (float)(v[i+1] - dy);
+	    }
+	}
+	return v;
+    }
+
+    private void loadTile(Tile tile) {
+	int w = tile.x1 - tile.x0;
+	int h = tile.y1 - tile.y0;
+	tile.width = w;
+	java.util.Arrays.fill(tile.depths, 0, w*h, Double.NEGATIVE_INFINITY);
+	if (data != null) {
+	    for (int j = 0; j < h; j++) {
+		int src = dataOffset + (tile.y0 + j) * stride + tile.x0;
+		System.arraycopy(data, src, tile.pixels, j*w, w);
+		if (opaque) {
+		    for (int k = j*w; k < (j+1)*w; k++) {
+			tile.pixels[k] |= 0xff000000;
+		    }
+		}
+	    }
+	} else {
+	    synchronized (image) {
+		image.getRGB(tile.x0, tile.y0, w, h, tile.pixels, 0, w);
+	    }
+	}
+    }
+
+    private void storeTile(Tile tile) {
+	int w = tile.width;
+	int h = tile.y1 - tile.y0;
+	if (data != null) {
+	    for (int j = 0; j < h; j++) {
+		int dst = dataOffset + (tile.y0 + j) * stride + tile.x0;
+		System.arraycopy(tile.pixels, j*w, data, dst, w);
+	    }
+	} else {
+	    synchronized (image) {
+		image.setRGB(tile.x0, tile.y0, w, h, tile.pixels, 0, w);
+	    }
+	}
+    }
+
+    // Source-over compositing of a non-premultiplied ARGB value
+    private static int blend(int src, int dst) {
+	int sa = src >>> 24;
+	if (sa == 255) return src;
+	if (sa == 0) return dst;
+	int da = dst >>> 24;
+	int fa = da * (255 - sa) / 255;
+	int oa = sa + fa;
+	if (oa == 0) return 0;
+	int r = (((src >> 16) & 0xff) * sa + ((dst >> 16) & 0xff) * fa) / oa;
+	int g = (((src >> 8) & 0xff) * sa + ((dst >> 8) & 0xff) * fa) / oa;
+	int b = ((src & 0xff) * sa + (dst & 0xff) * fa) / oa;
+	return (oa << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private void fillTriangle(Tile tile, RenderListElement e, float[] v) {
+	double x0 = v[0], y0 = v[1], z0 = v[2];
+	double x1 = v[3], y1 = v[4], z1 = v[5];
+	double x2 = v[6], y2 = v[7], z2 = v[8];
+	double area = (x1 - x0)*(y2 - y0) - (x2 - x0)*(y1 - y0);
+	if (area == 0.0 || Double.isNaN(area)) return;
+	int pxmin = (int)Math.floor(Math.min(x0, Math.min(x1, x2)));
+	int pxmax = (int)Math.ceil(Math.max(x0, Math.max(x1, x2)));
+	int pymin = (int)Math.floor(Math.min(y0, Math.min(y1, y2)));
+	int pymax = (int)Math.ceil(Math.max(y0, Math.max(y1, y2)));
+	if (pxmin < tile.x0) pxmin = tile.x0;
+	if (pymin < tile.y0) pymin = tile.y0;
+	if (pxmax >= tile.x1) pxmax = tile.x1 - 1;
+	if (pymax >= tile.y1) pymax = tile.y1 - 1;
+	if (pxmin > pxmax || pymin > pymax) return;
+
+	// barycentric coordinates as linear functions of (x, y), using
+	// pixel centers
+	double inv = 1.0/area;
+	double a0 = (y1 - y2) * inv, b0 = (x2 - x1) * inv;
+	double a1 = (y2 - y0) * inv, b1 = (x0 - x2) * inv;
+	double cx = pxmin + 0.5, cy = pymin + 0.5;
+	double w0row = ((x1 - cx)*(y2 - cy) - (x2 - cx)*(y1 - cy)) * inv;
+	double w1row = ((x2 - cx)*(y0 - cy) - (x0 - cx)*(y2 - cy)) * inv;
+
+	int argb = e.c.getRGB();
+	int alpha = argb >>> 24;
+	int red = (argb >> 16) & 0xff;
+	int green = (argb >> 8) & 0xff;
+	int blue = argb & 0xff;
+	double cf = 0.0;
+	boolean shade = colorFactor > 0.0 && max != min;
+	if (shade) {
+	    cf = colorFactor;
+	    if (normalFactor > 0.0) {
+		double nz = (e.nz > 1.0)? 1.0: e.nz;
+		cf *= Math.exp(-(1.0 - nz)/normalFactor);
+	    }
+	    cf /= (max - min);
+	}
+	int[] pixels = tile.pixels;
+	double[] depths = tile.depths;
+	int w = tile.width;
+	for (int py = pymin; py <= pymax; py++) {
+	    double w0 = w0row;
+	    double w1 = w1row;
+	    int index = (py - tile.y0)*w + (pxmin - tile.x0);
+	    for (int px = pxmin; px <= pxmax; px++, index++) {
+		double w2 = 1.0 - w0 - w1;
+		if (w0 >= 0.0 && w1 >= 0.0 && w2 >= 0.0) {
+		    double z = w0*z0 + w1*z1 + w2*z2;
+		    if (z >= depths[index]) {
+			int color = argb;
+			if (shade) {
+			    double fraction = 1.0 - cf * (max - z);
+			    if (fraction < 0.0) fraction = 0.0;
+			    if (fraction < 1.0) {
+				color = (alpha << 24)
+				    | ((int)(fraction*red + 0.5) << 16)
+				    | ((int)(fraction*green + 0.5) << 8)
+				    | (int)(fraction*blue + 0.5);
+			    }
+			}
+			if (alpha == 255) {
+			    pixels[index] = color;
+			    depths[index] = z;
+			} else {
+			    pixels[index] = blend(color, pixels[index]);
+			}
+		    }
+		}
+		w0 += a0;
+		w1 += a1;
+	    }
+	    w0row += b0;
+	    w1row += b1;
+	}
+    }
+
+    private void drawLine(Tile tile, int argb,
+			  double x1, double y1, double z1,
+			  double x2, double y2, double z2)
+    {
+	double dx = x2 - x1;
+	double dy = y2 - y1;
+	double dz = z2 - z1;
+	boolean xmajor = Math.abs(dx) >= Math.abs(dy);
+	int start, end;
+	if (xmajor) {
+	    start = (int)Math.floor(Math.min(x1, x2));
+	    end = (int)Math.floor(Math.max(x1, x2));
+	    if (start < tile.x0) start = tile.x0;
+	    if (end >= tile.x1) end = tile.x1 - 1;
+	} else {
+	    start = (int)Math.floor(Math.min(y1, y2));
+	    end = (int)Math.floor(Math.max(y1, y2));
+	    if (start < tile.y0) start = tile.y0;
+	    if (end >= tile.y1) end = tile.y1 - 1;
+	}
+	int[] pixels = tile.pixels;
+	double[] depths = tile.depths;
+	int w = tile.width;
+	for (int i = start; i <= end; i++) {
+	    double t;
+	    if (xmajor) {
+		t = (dx == 0.0)? 0.0: (i + 0.5 - x1) / dx;
+	    } else {
+		t = (dy == 0.0)? 0.0: (i + 0.5 - y1) / dy;
+	    }
+	    if (t < 0.0) t = 0.0;
+	    if (t > 1.0) t = 1.0;
+	    int px, py;
+	    if (xmajor) {
+		px = i;
+		py = (int)Math.floor(y1 + t*dy);
+		if (py < tile.y0 || py >= tile.y1) continue;
+	    } else {
+		py = i;
+		px = (int)Math.floor(x1 + t*dx);
+		if (px < tile.x0 || px >= tile.x1) continue;
+	    }
+	    int index = (py - tile.y0)*w + (px - tile.x0);
+	    double z = z1 + t*dz;
+	    if (z + bias >= depths[index]) {
+		pixels[index] = blend(argb, pixels[index]);
+	    }
+	}
+    }
+
+    private void drawLines(Tile tile, RenderListElement e, float[] v) {
+	int np = v.length / 3;
+	if (np == 2) {
+	    drawLine(tile, e.c.getRGB(), v[0], v[1], v[2], v[3], v[4], v[5]);
+	} else if (edgeColor != null && np > 2) {
+	    // edgeMask[i] is for the edge ending at vertex i, with
+	    // edgeMask[0] for the edge closing the polygon
+	    int argb = edgeColor.getRGB();
+	    for (int i = 0; i < np; i++) {
+		int j = (i + 1) % np;
+		if (e.edgeMask == null || e.edgeMask[j]) {
+		    int k = 3*i;
+		    int m = 3*j;
+		    drawLine(tile, argb, v[k], v[k+1], v[k+2],
+			     v[m], v[m+1], v[m+2]);
+		}
+	    }
+	}
+    }
+
+    private void renderTile(Tile tile, int tindex) {
+	int start = binStarts[tindex];
+	int end = binStarts[tindex+1];
+	if (start == end) return;
+	int tx = tindex % ntx;
+	int ty = tindex / ntx;
+	tile.x0 = tx * TILE_SIZE;
+	tile.y0 = ty * TILE_SIZE;
+	tile.x1 = Math.min(width, tile.x0 + TILE_SIZE);
+	tile.y1 = Math.min(height, tile.y0 + TILE_SIZE);
+	loadTile(tile);
+	boolean hasLines = false;
+	for (int i = start; i < end; i++) {
+	    int ei = bins[i];
+	    float[] v = vertices[ei];
+	    if (v.length == 9) {
+		fillTriangle(tile, elements[ei], v);
+		if (edgeColor != null) hasLines = true;
+	    } else {
+		hasLines = true;
+	    }
+	}
+	if (hasLines) {
+	    for (int i = start; i < end; i++) {
+		int ei = bins[i];
+		drawLines(tile, elements[ei], vertices[ei]);
+	    }
+	}
+	storeTile(tile);
+    }
+
+    private class TileTask extends RecursiveAction {
+	private static final long serialVersionUID = 1;
+	int start;
+	int end;
+	int grain;
+	TileTask(int start, int end, int grain) {
+	    this.start = start;
+	    this.end = end;
+	    this.grain = grain;
+	}
+
+	@Override
+	protected void compute() {
+	    if (end - start <= grain) {
+		Tile tile = new Tile();
+		for (int i = start; i < end; i++) {
+		    renderTile(tile, i);
+		}
+	    } else {
+		int mid = (start + end) >>> 1;
+		invokeAll(new TileTask(start, mid, grain),
+			  new TileTask(mid, end, grain));
+	    }
+	}
+    }
+
+    private void renderTiles() {
+	int ntiles = ntx * nty;
+	int p = ForkJoinPool.getCommonPoolParallelism();
+	if (p <= 1 || ntiles == 1) {
+	    Tile tile = new Tile();
+	    for (int i = 0; i < ntiles; i++) {
+		renderTile(tile, i);
+	    }
+	} else {
+	    int grain = Math.max(1, ntiles / (4*p));
+	    new TileTask(0, ntiles, grain).invoke();
+	}
+    }
+
+    /**
+     * Render a render list into a buffered image.
+     * The image's pixels are modified directly when its type is
+     * TYPE_INT_RGB or TYPE_INT_ARGB.
+     * @param list the render list
+     * @param image the image
+     * @param dx the amount to subtract from the X coordinates in the
+     *        render list to obtain image coordinates
+     * @param dy the amount to subtract from the Y coordinates in the
+     *        render list to obtain image coordinates
+     * @param edgeColor the color for triangle edges; null if edges
+     *        are not shown
+     * @param colorFactor the color factor
+     * @param normalFactor the normal factor
+     */
+    static void render(RenderList list, BufferedImage image,
+		       double dx, double dy, Color edgeColor,
+		       double colorFactor, double normalFactor)
+    {
+	if (list.list.isEmpty()) return;
+	new ZBufferRenderer(list, image, dx, dy, edgeColor,
+			    colorFactor, normalFactor).renderTiles();
+    }
+
+    /**
+     * Render a render list using a graphics context.
+     * The list is rendered into a transparent image with the specified
+     * width and height, and that image is then drawn using the graphics
+     * context.
+     * @param list the render list
+     * @param g the graphics context
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param dx the amount to subtract from the X coordinates in the
+     *        render list to obtain image coordinates
+     * @param dy the amount to subtract from the Y coordinates in the
+     *        render list to obtain image coordinates
+     * @param edgeColor the color for triangle edges; null if edges
+     *        are not shown
+     * @param colorFactor the color factor
+     * @param normalFactor the normal factor
+     */
+    static void render(RenderList list, Graphics2D g, int width, int height,
+		       double dx, double dy, Color edgeColor,
+		       double colorFactor, double normalFactor)
+    {
+	if (list.list.isEmpty() || width <= 0 || height <= 0) return;
+	BufferedImage image =
+	    new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+	render(list, image, dx, dy, edgeColor, colorFactor, normalFactor);
+	g.drawImage(image, 0, 0, null);
+    }
+}
+
+//  LocalWords:  ARGB TYPE_INT_RGB TYPE_INT_ARGB edgeColor colorFactor
+//  LocalWords:  normalFactor scaleColor
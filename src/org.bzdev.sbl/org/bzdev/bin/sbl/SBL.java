@@ -61,8 +61,7 @@ public class SBL {
 	("org.bzdev.bin.sbl.lpack.SBL");
 
     private static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     private static String localeString(String key) {
@@ -13,8 +13,7 @@ public class ListScriptingLangs {
 	("org.bzdev.bin.scrunner.lpack.SCRunner");
 
     static String localeString(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
@@ -37,8 +37,7 @@ public class SCRunner {
 	("org.bzdev.bin.scrunner.lpack.SCRunner");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
@@ -17,8 +17,7 @@ class CheckOncePerJVM {
 	("org.bzdev.bin.yrunner.lpack.CheckOncePerJVM");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
     /**
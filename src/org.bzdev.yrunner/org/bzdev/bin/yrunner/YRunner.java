@@ -37,8 +37,7 @@ public class YRunner {
 	("org.bzdev.bin.yrunner.lpack.YRunner");
 
     static String errorMsg(String key, Object... args) {
-	return (new SafeFormatter()).format(exbundle.getString(key), args)
-	    .toString();
+	return SafeFormatter.formatMessage(exbundle.getString(key), args);
     }
 
 
@@ -159,6 +159,27 @@ public class TraceTest {
 	    traceSet4.setStackTraceMode(true);
 	} catch (UnsupportedOperationException eu) {}
 
+	// The time in a trace message's prefix uses the default locale
+	// in effect when the message is written.
+	java.util.Locale locale = java.util.Locale.getDefault();
+	Simulation lsim = new Simulation();
+	java.io.StringWriter sw = new java.io.StringWriter();
+	lsim.setTraceOutput(sw);
+	TraceSimObject lobject = new TraceSimObject(lsim, "lobject", true);
+	TraceSet traceSet5 = new TraceSet(lsim, "traceSet5", true);
+	traceSet5.setLevel(0);
+	lobject.addTraceSet(traceSet5);
+	java.util.Locale.setDefault(java.util.Locale.US);
+	lobject.call();
+	java.util.Locale.setDefault(java.util.Locale.GERMANY);
+	lobject.call();
+	java.util.Locale.setDefault(locale);
+	if (!sw.toString().contains("(0.00000)")
+	    || !sw.toString().contains("(0,00000)")) {
+	    System.out.println(sw.toString());
+	    throw new Exception("trace output did not follow the locale");
+	}
+
 	System.exit(0);
     }
 }
@@ -0,0 +1,83 @@
+import java.io.*;
+import java.net.*;
+import org.bzdev.ejws.*;
+import org.bzdev.ejws.maps.*;
+
+public class MetricsTest {
+
+    static int get(String url) throws Exception {
+	HttpURLConnection c = (HttpURLConnection)
+	    (new URL(url)).openConnection();
+	int code = c.getResponseCode();
+	InputStream is = (code < 400)? c.getInputStream(): c.getErrorStream();
+	if (is != null) {
+	    is.transferTo(OutputStream.nullOutputStream());
+	    is.close();
+	}
+	return code;
+    }
+
+    public static void main(String argv[]) throws Exception {
+	EmbeddedWebServer ews = new EmbeddedWebServer(0);
+	ews.add("/", DirWebMap.class, new File("example"), null,
+		true, false, true);
+	ews.add("/metrics/", MetricsWebMap.class, ews, null,
+		true, false, true);
+	if (!ews.addMetricsFilter("/")) {
+	    throw new Exception("addMetricsFilter failed");
+	}
+	if (ews.getMetrics("/metrics/") != null) {
+	    throw new Exception("metrics for a prefix not filtered");
+	}
+	ews.start();
+	String base = "http://localhost:" + ews.getPort() + "/";
+	try {
+	    for (int i = 0; i < 10; i++) {
+		if (get(base + "index.html") != 200) {
+		    throw new Exception("expecting 200");
+		}
+	    }
+	    for (int i = 0; i < 3; i++) {
+		if (get(base + "nosuchfile.html") != 404) {
+		    throw new Exception("expecting 404");
+		}
+	    }
+	    EjwsMetrics metrics = ews.getMetrics("/");
+	    if (metrics.getRequestCount() != 13) {
+		throw new Exception("request count = "
+				    + metrics.getRequestCount());
+	    }
+	    if (metrics.getStatusCount(200) != 10
+		|| metrics.getStatusCount(404) != 3) {
+		throw new Exception("status counts");
+	    }
+	    long len = new File("example/index.html").length();
+	    if (metrics.getBytesOut() < 10*len) {
+		throw new Exception("bytes out = " + metrics.getBytesOut());
+	    }
+	    long p50 = metrics.getLatencyPercentile(50.0);
+	    long p100 = metrics.getLatencyPercentile(100.0);
+	    if (p50 > p100 || p100 != metrics.getMaxLatency()) {
+		throw new Exception("percentiles");
+	    }
+	    HttpURLConnection c = (HttpURLConnection)
+		(new URL(base + "metrics/")).openConnection();
+	    if (c.getResponseCode() != 200) {
+		throw new Exception("could not get metrics");
+	    }
+	    String s = new String(c.getInputStream().readAllBytes(), "UTF-8");
+	    System.out.println(s);
+	    if (!s.contains("\"requests\": 13")) {
+		throw new Exception("JSON output");
+	    }
+	    metrics.reset();
+	    if (metrics.getRequestCount() != 0
+		|| metrics.getLatencyPercentile(99.0) != 0) {
+		throw new Exception("reset failed");
+	    }
+	} finally {
+	    ews.shutdown(0);
+	}
+	System.exit(0);
+    }
+}
@@ -0,0 +1,158 @@
+import org.bzdev.ejws.*;
+import org.bzdev.net.HttpSessionOps;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StateTableTest {
+
+    static final int NTHREADS = 16;
+    static final int NSESSIONS = 10000;
+    static final int NLOOKUPS = 1000000;
+
+    static void timing(String name, HttpSessionOps table)
+	throws Exception
+    {
+	for (int i = 0; i < NSESSIONS; i++) {
+	    table.put("s" + i, Integer.valueOf(i));
+	}
+	String[] ids = new String[NSESSIONS];
+	for (int i = 0; i < NSESSIONS; i++) {
+	    ids[i] = "s" + i;
+	}
+	Thread[] threads = new Thread[NTHREADS];
+	AtomicInteger errors = new AtomicInteger();
+	for (int t = 0; t < NTHREADS; t++) {
+	    final int offset = t;
+	    threads[t] = new Thread(() -> {
+		    for (int i = 0; i < NLOOKUPS; i++) {
+			int k = (i * 31 + offset) % NSESSIONS;
+			Object state = table.get(ids[k]);
+			if (state != null && ((Integer)state) != k) {
+			    errors.incrementAndGet();
+			}
+			if ((i & 0xff) == 0) {
+			    table.put(ids[k], Integer.valueOf(k));
+			}
+		    }
+	    });
+	}
+	long start = System.nanoTime();
+	for (Thread thread: threads) thread.start();
+	for (Thread thread: threads) thread.join();
+	long elapsed = System.nanoTime() - start;
+	if (errors.get() != 0) {
+	    throw new Exception(name + ": wrong states returned");
+	}
+	double rate = (((double)NTHREADS) * NLOOKUPS) / (elapsed * 1.0e-9);
+	System.out.format("%s: %d threads, %.3g lookups/second\n",
+			  name, NTHREADS, rate);
+    }
+
+    public static void main(String argv[]) throws Exception {
+	EjwsBoundedStateTable table = new EjwsBoundedStateTable(100, 0, 0);
+	AtomicInteger evictions = new AtomicInteger();
+	table.setEvictionHandler((sid, state) -> {
+		evictions.incrementAndGet();
+	    });
+	for (int i = 0; i < 150; i++) {
+	    table.put("id" + i, "state" + i);
+	    if (table.size() > 100) {
+		throw new Exception("table too large");
+	    }
+	}
+	if (evictions.get() != 50) {
+	    throw new Exception("evictions = " + evictions.get());
+	}
+	if (!"state149".equals(table.get("id149"))) {
+	    throw new Exception("missing last state");
+	}
+	table.rename("id149", "new149");
+	if (table.contains("id149") || !table.contains("new149")) {
+	    throw new Exception("rename failed");
+	}
+	table.put("null", null);
+	if (!table.contains("null") || table.get("null") != null) {
+	    throw new Exception("null state");
+	}
+
+	// concurrent insertions never exceed the bound
+	EjwsBoundedStateTable ctable = new EjwsBoundedStateTable(64, 0, 0);
+	AtomicInteger tooLarge = new AtomicInteger();
+	Thread[] threads = new Thread[8];
+	for (int t = 0; t < threads.length; t++) {
+	    final int offset = t;
+	    threads[t] = new Thread(() -> {
+		    for (int i = 0; i < 20000; i++) {
+			ctable.put("c" + offset + "-" + i, null);
+			if (ctable.size() > 64) tooLarge.incrementAndGet();
+			if ((i % 7) == 0) {
+			    ctable.remove("c" + offset + "-" + (i/2));
+			}
+		    }
+	    });
+	}
+	for (Thread thread: threads) thread.start();
+	for (Thread thread: threads) thread.join();
+	if (tooLarge.get() != 0 || ctable.size() > 64) {
+	    throw new Exception("concurrent puts exceeded the bound");
+	}
+
+	// eviction samples the whole table: recently used states
+	// should usually survive.
+	table = new EjwsBoundedStateTable(1000, 0, 0);
+	for (int i = 0; i < 1000; i++) {
+	    table.put("r" + i, null);
+	}
+	Thread.sleep(20);
+	for (int i = 0; i < 500; i++) {
+	    table.get("r" + i);
+	}
+	for (int i = 0; i < 200; i++) {
+	    table.put("x" + i, null);
+	}
+	int recent = 0;
+	for (int i = 0; i < 500; i++) {
+	    if (table.contains("r" + i)) recent++;
+	}
+	if (recent < 450) {
+	    throw new Exception("recently used states evicted: "
+				+ (500 - recent));
+	}
+
+	table = new EjwsBoundedStateTable(0, 1, 0);
+	table.put("a", "A");
+	Thread.sleep(1100);
+	table.put("b", "B");
+	if (table.contains("a") || !"B".equals(table.get("b"))) {
+	    throw new Exception("idle timeout");
+	}
+	table = new EjwsBoundedStateTable(0, 0, 1);
+	table.put("a", "A");
+	Thread.sleep(600);
+	table.get("a");
+	Thread.sleep(600);
+	if (table.get("a") != null) {
+	    throw new Exception("absolute timeout");
+	}
+
+	// an unbounded table removes expired states that are never
+	// looked up, and a state put under an expired ID is new.
+	table = new EjwsBoundedStateTable(0, 0, 1);
+	AtomicInteger expirations = new AtomicInteger();
+	table.setEvictionHandler((sid, state) -> {
+		expirations.incrementAndGet();
+	    });
+	table.put("a", "A");
+	table.put("b", "B");
+	Thread.sleep(1100);
+	table.put("b", "B2");
+	if (table.size() != 1 || expirations.get() != 2
+	    || !"B2".equals(table.get("b"))) {
+	    throw new Exception("expired states not purged");
+	}
+
+	timing("EjwsStateTable", new EjwsStateTable());
+	timing("EjwsBoundedStateTable",
+	       new EjwsBoundedStateTable(2*NSESSIONS, 3600, 0));
+	System.exit(0);
+    }
+}
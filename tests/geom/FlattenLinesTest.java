@@ -0,0 +1,226 @@
+import java.awt.geom.*;
+import java.util.Random;
+import org.bzdev.geom.*;
+
+public class FlattenLinesTest {
+
+    static double bezier(double t, double p0, double p1, double p2,
+			 double p3, int degree)
+    {
+	double s = 1.0 - t;
+	if (degree == 2) {
+	    return s*s*p0 + 2.0*s*t*p1 + t*t*p2;
+	} else {
+	    return s*s*s*p0 + 3.0*s*s*t*p1 + 3.0*s*t*t*p2 + t*t*t*p3;
+	}
+    }
+
+    static double distToLine(double[] p, double[] a, double[] b) {
+	double len2 = 0.0;
+	double dot = 0.0;
+	for (int i = 0; i < p.length; i++) {
+	    len2 += (b[i] - a[i])*(b[i] - a[i]);
+	    dot += (p[i] - a[i])*(b[i] - a[i]);
+	}
+	double t = (len2 == 0.0)? 0.0: Math.max(0.0, Math.min(1.0, dot/len2));
+	double sum = 0.0;
+	for (int i = 0; i < p.length; i++) {
+	    double d = p[i] - (a[i] + t*(b[i] - a[i]));
+	    sum += d*d;
+	}
+	return Math.sqrt(sum);
+    }
+
+    // check points against the curve for 2D (dim = 2) or 3D (dim = 3)
+    static void check(int type, int dim, double[] start, double[] coords,
+		      double flatness, int limit, double[] points, int offset,
+		      int n)
+	throws Exception
+    {
+	int degree = (type == PathIterator.SEG_QUADTO)? 2: 3;
+	double[][] cp = new double[dim][4];
+	for (int j = 0; j < dim; j++) {
+	    cp[j][0] = start[j];
+	    for (int k = 0; k < degree; k++) {
+		cp[j][k+1] = coords[k*dim + j];
+	    }
+	}
+	double scale = 0.0;
+	for (double[] row: cp) {
+	    for (double v: row) scale = Math.max(scale, Math.abs(v));
+	}
+	double[] prev = start.clone();
+	double[] p = new double[dim];
+	double[] q = new double[dim];
+	for (int i = 0; i < n; i++) {
+	    double t = (i + 1.0)/n;
+	    for (int j = 0; j < dim; j++) {
+		p[j] = points[offset + dim*i + j];
+		double expected = bezier(t, cp[j][0], cp[j][1], cp[j][2],
+					 cp[j][3], degree);
+		if (Math.abs(p[j] - expected) > 1.0e-10 * scale) {
+		    throw new Exception("point " + i + " not on curve: "
+					+ p[j] + " != " + expected);
+		}
+	    }
+	    if (flatness > 0.0 && n < (1 << limit)) {
+		for (int m = 1; m < 8; m++) {
+		    double tt = (i + m/8.0)/n;
+		    for (int j = 0; j < dim; j++) {
+			q[j] = bezier(tt, cp[j][0], cp[j][1], cp[j][2],
+				      cp[j][3], degree);
+		    }
+		    double d = distToLine(q, prev, p);
+		    if (d > flatness * (1.0 + 1.0e-9)) {
+			throw new Exception("deviation " + d + " > "
+					    + flatness);
+		    }
+		}
+	    }
+	    System.arraycopy(p, 0, prev, 0, dim);
+	}
+	for (int j = 0; j < dim; j++) {
+	    if (points[offset + dim*(n-1) + j] != coords[(degree-1)*dim + j]) {
+		throw new Exception("last point is not the end point");
+	    }
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int npoints = (argv.length > 0)? Integer.parseInt(argv[0]): 100000;
+	Random r = new Random(2357);
+	int limit = 10;
+	double[] points = new double[3 << limit];
+
+	// split results in caller-supplied arrays match those returned
+	// by the allocating method, including in-place splits.
+	for (int trial = 0; trial < 1000; trial++) {
+	    double[] curve = new double[15];
+	    for (int i = 0; i < 15; i++) {
+		curve[i] = (r.nextDouble() - 0.5) * 200.0;
+	    }
+	    double[][] expected =
+		SubdivisionIterator.splitCubicBezierCurve(curve, 3);
+	    double[] left = new double[14];
+	    double[] right = new double[12];
+	    SubdivisionIterator.splitCubicBezierCurve(curve, 3, left, 2,
+						      right, 0);
+	    for (int i = 0; i < 12; i++) {
+		if (left[i+2] != expected[0][i]
+		    || right[i] != expected[1][i]) {
+		    throw new Exception("split results differ");
+		}
+	    }
+	    SubdivisionIterator.splitCubicBezierCurve(curve, 3, curve, 3,
+						      right, 0);
+	    for (int i = 0; i < 12; i++) {
+		if (curve[i+3] != expected[0][i]
+		    || right[i] != expected[1][i]) {
+		    throw new Exception("in-place split results differ");
+		}
+	    }
+	}
+
+	// forward differencing
+	for (int trial = 0; trial < 2000; trial++) {
+	    int type = (trial % 2 == 0)? PathIterator.SEG_QUADTO:
+		PathIterator.SEG_CUBICTO;
+	    double flatness = (trial % 7 == 0)? 0.0:
+		Math.pow(10.0, -3.0 * r.nextDouble());
+	    int lim = (trial % 3 == 0)? 4: limit;
+	    double[] start = {r.nextDouble()*100.0, r.nextDouble()*100.0,
+			      r.nextDouble()*100.0};
+	    double[] coords = new double[9];
+	    for (int i = 0; i < 9; i++) {
+		coords[i] = r.nextDouble()*100.0;
+	    }
+	    int n = FlatteningPathIterator2D.flattenToLines
+		(type, start[0], start[1], coords, flatness, lim, points, 1);
+	    if (n != FlatteningPathIterator2D.getLineCount
+		(type, start[0], start[1], coords, flatness, lim)) {
+		throw new Exception("wrong count");
+	    }
+	    if (flatness == 0.0 && n != (1 << lim)) {
+		throw new Exception("count not set by limit");
+	    }
+	    check(type, 2, new double[] {start[0], start[1]}, coords,
+		  flatness, lim, points, 1, n);
+	    n = FlatteningPathIterator3D.flattenToLines
+		(type, start[0], start[1], start[2], coords, flatness, lim,
+		 points, 0);
+	    check(type, 3, start, coords, flatness, lim, points, 0, n);
+	}
+	if (FlatteningPathIterator2D.flattenToLines
+	    (PathIterator.SEG_LINETO, 0.0, 0.0, new double[] {1.0, 2.0},
+	     0.01, limit, points, 0) != 1
+	    || points[0] != 1.0 || points[1] != 2.0) {
+	    throw new Exception("line not handled");
+	}
+	try {
+	    FlatteningPathIterator2D.getLineCount(PathIterator.SEG_QUADTO,
+						  0.0, 0.0, points, -1.0, 2);
+	    throw new Exception("missing exception");
+	} catch (IllegalArgumentException e) {}
+	try {
+	    FlatteningPathIterator2D.flattenToLines
+		(PathIterator.SEG_CLOSE, 0.0, 0.0, new double[6],
+		 0.01, limit, points, 0);
+	    throw new Exception("SEG_CLOSE accepted");
+	} catch (IllegalArgumentException e) {}
+	try {
+	    FlatteningPathIterator3D.getLineCount
+		(PathIterator3D.SEG_CLOSE, 0.0, 0.0, 0.0, new double[9],
+		 0.01, limit);
+	    throw new Exception("SEG_CLOSE accepted");
+	} catch (IllegalArgumentException e) {}
+
+	// timing for a large spline path
+	Point2D[] knots = new Point2D[npoints];
+	for (int i = 0; i < npoints; i++) {
+	    knots[i] = new Point2D.Double(i + r.nextDouble(),
+					  100.0 * r.nextDouble());
+	}
+	SplinePath2D path = new SplinePath2D(knots, false);
+	double flatness = 0.01;
+	double[] coords = new double[6];
+	for (int pass = 0; pass < 2; pass++) {
+	    long start = System.nanoTime();
+	    PathIterator pit = new FlatteningPathIterator2D
+		(path.getPathIterator(null), flatness, limit);
+	    int count1 = 0;
+	    while (!pit.isDone()) {
+		pit.currentSegment(coords);
+		count1++;
+		pit.next();
+	    }
+	    long t1 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    pit = path.getPathIterator(null);
+	    int count2 = 0;
+	    double x0 = 0.0, y0 = 0.0;
+	    while (!pit.isDone()) {
+		int type = pit.currentSegment(coords);
+		if (type == PathIterator.SEG_MOVETO) {
+		    x0 = coords[0];
+		    y0 = coords[1];
+		} else {
+		    int n = FlatteningPathIterator2D.flattenToLines
+			(type, x0, y0, coords, flatness, limit, points, 0);
+		    count2 += n;
+		    x0 = points[2*n-2];
+		    y0 = points[2*n-1];
+		}
+		pit.next();
+	    }
+	    long t2 = System.nanoTime() - start;
+	    if (pass == 1) {
+		System.out.format("%d cubic segments: flattening iterator %d "
+				  + "segments, %.4g ms; "
+				  + "forward differences %d lines, %.4g ms\n",
+				  npoints-1, count1, t1*1.0e-6,
+				  count2, t2*1.0e-6);
+	    }
+	}
+	System.exit(0);
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.Arrays;
+import org.bzdev.geom.*;
+
+public class IncrBoundaryTest {
+
+    static double height(int i, int j) {
+	return 5.0 * Math.sin(i * 0.4) * Math.cos(j * 0.3);
+    }
+
+    // add the triangles for row j of an n by n grid
+    static void addRow(Surface3D s, int n, int j) {
+	for (int i = 0; i < n; i++) {
+	    double x0 = 10.0 * i, x1 = 10.0 * (i+1);
+	    double y0 = 10.0 * j, y1 = 10.0 * (j+1);
+	    s.addPlanarTriangle(x0, y0, height(i, j),
+				x1, y0, height(i+1, j),
+				x1, y1, height(i+1, j+1));
+	    s.addPlanarTriangle(x0, y0, height(i, j),
+				x1, y1, height(i+1, j+1),
+				x0, y1, height(i, j+1));
+	}
+    }
+
+    static boolean samePaths(Path3D p1, Path3D p2) {
+	if (p1 == null || p2 == null) return p1 == p2;
+	PathIterator3D pi1 = p1.getPathIterator(null);
+	PathIterator3D pi2 = p2.getPathIterator(null);
+	double[] c1 = new double[9];
+	double[] c2 = new double[9];
+	while (!pi1.isDone() && !pi2.isDone()) {
+	    if (pi1.currentSegment(c1) != pi2.currentSegment(c2)
+		|| !Arrays.equals(c1, c2)) {
+		return false;
+	    }
+	    pi1.next();
+	    pi2.next();
+	}
+	return pi1.isDone() && pi2.isDone();
+    }
+
+    // Compare the incrementally computed boundary with the one
+    // computed from all of the surface's edges (isWellFormed with
+    // an Appendable always examines every edge).
+    static void check(String name, Surface3D s) throws Exception {
+	boolean wf = s.isWellFormed();
+	Path3D boundary = s.getBoundary();
+	int[] segments = s.getBoundarySegmentIndices();
+	int[] edges = s.getBoundaryEdgeNumbers();
+	boolean closed = s.isClosedManifold();
+	StringBuilder sb = new StringBuilder();
+	if (s.isWellFormed(sb) != wf) {
+	    throw new Exception(name + ": isWellFormed differs");
+	}
+	if (!samePaths(boundary, s.getBoundary())) {
+	    throw new Exception(name + ": boundaries differ");
+	}
+	if (!Arrays.equals(segments, s.getBoundarySegmentIndices())) {
+	    throw new Exception(name + ": segment indices differ");
+	}
+	if (!Arrays.equals(edges, s.getBoundaryEdgeNumbers())) {
+	    throw new Exception(name + ": edge numbers differ");
+	}
+	if (closed != s.isClosedManifold()) {
+	    throw new Exception(name + ": isClosedManifold differs");
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int n = (argv.length > 0)? Integer.parseInt(argv[0]): 20;
+
+	for (Surface3D s: new Surface3D[] {new Surface3D.Double(),
+					   new Surface3D.Float()}) {
+	    String name = s.getClass().getSimpleName();
+	    for (int j = 0; j < n; j++) {
+		addRow(s, n, j);
+		check(name + ", row " + j, s);
+		if (!s.isWellFormed()) {
+		    throw new Exception(name + ": not well formed");
+		}
+	    }
+	    int[] segments = s.getBoundarySegmentIndices();
+	    if (segments.length != 4*n) {
+		throw new Exception(name + ": boundary has " + segments.length
+				    + " edges");
+	    }
+	    // a duplicate triangle is a conflict
+	    s.addPlanarTriangle(0.0, 0.0, height(0,0),
+				10.0, 0.0, height(1, 0),
+				10.0, 10.0, height(1, 1));
+	    check(name + ", duplicate", s);
+	    if (s.isWellFormed()) {
+		throw new Exception(name + ": conflict not detected");
+	    }
+	    if (s.getBoundary() != null) {
+		throw new Exception(name + ": boundary not null");
+	    }
+	    s.reset();
+	    check(name + ", reset", s);
+	    for (int j = 0; j < n; j++) {
+		addRow(s, n, j);
+	    }
+	    check(name + ", after reset", s);
+	    s.reverseOrientation();
+	    check(name + ", reversed", s);
+	}
+
+	// cubic patches from a grid, added in two steps
+	Point3D[][] array = new Point3D[n][n];
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < n; j++) {
+		array[i][j] = new Point3D.Double(10.0 * i, 10.0 * j,
+						 height(i, j) + 20.0);
+	    }
+	}
+	Point3D[][] array1 = Arrays.copyOf(array, n/2 + 1);
+	Point3D[][] array2 = Arrays.copyOfRange(array, n/2, n);
+	Surface3D s = new Surface3D.Double();
+	s.append(new BezierGrid(array1));
+	check("half grid", s);
+	s.append(new BezierGrid(array2));
+	check("two grids", s);
+	if (!s.isWellFormed() || s.getBoundary().isEmpty()) {
+	    throw new Exception("two grids: bad boundary");
+	}
+
+	if (argv.length > 1) {
+	    // Repeated queries while a surface grows: the incremental
+	    // computation examines only the new edges.
+	    Surface3D big = new Surface3D.Double();
+	    int m = 4 * n;
+	    long start = System.nanoTime();
+	    for (int j = 0; j < m; j++) {
+		addRow(big, m, j);
+		big.isWellFormed();
+	    }
+	    long t1 = System.nanoTime() - start;
+	    big.reset();
+	    start = System.nanoTime();
+	    for (int j = 0; j < m; j++) {
+		addRow(big, m, j);
+		big.isWellFormed(new StringBuilder());
+	    }
+	    long t2 = System.nanoTime() - start;
+	    System.out.format("incremental: %.4g ms, full: %.4g ms\n",
+			      t1 * 1.0e-6, t2 * 1.0e-6);
+	}
+	System.exit(0);
+    }
+}
@@ -0,0 +1,190 @@
+import java.awt.geom.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.bzdev.geom.*;
+
+public class SegIntersectTest {
+
+    // all pairs, for comparison
+    static List<double[]> bruteForce(List<Path2DInfo.Entry> entries) {
+	ArrayList<Path2DInfo.Entry> segs = new ArrayList<>();
+	ArrayList<Integer> subpaths = new ArrayList<>();
+	int subpath = 0;
+	for (Path2DInfo.Entry entry: entries) {
+	    int type = entry.getType();
+	    if (type == PathIterator.SEG_MOVETO) {
+		subpath++;
+		continue;
+	    }
+	    Point2D start = entry.getStart();
+	    Point2D end = entry.getEnd();
+	    if ((type == PathIterator.SEG_CLOSE
+		 || type == PathIterator.SEG_LINETO)
+		&& start.equals(end)) {
+		continue;
+	    }
+	    segs.add(entry);
+	    subpaths.add(subpath);
+	}
+	ArrayList<double[]> results = new ArrayList<>();
+	for (int i = 0; i < segs.size(); i++) {
+	    Path2DInfo.Entry e1 = segs.get(i);
+	    for (int j = i+1; j < segs.size(); j++) {
+		Path2DInfo.Entry e2 = segs.get(j);
+		boolean same = subpaths.get(i).equals(subpaths.get(j));
+		boolean adjacent = same && j == i+1;
+		boolean first = (i == 0
+				 || !subpaths.get(i-1).equals(subpaths.get(i)));
+		boolean last = (j == segs.size()-1
+				|| !subpaths.get(j+1).equals(subpaths.get(j)));
+		boolean closing = same && first && last
+		    && e2.getEnd().equals(e1.getStart());
+		double[] r = Path2DInfo.getSegmentIntersectionUVXY
+		    (type(e1), e1.getStart().getX(), e1.getStart().getY(),
+		     e1.getCoords(),
+		     type(e2), e2.getStart().getX(), e2.getStart().getY(),
+		     e2.getCoords());
+		if (r == null) continue;
+		for (int k = 0; k < r.length; k += 4) {
+		    if (adjacent && r[k] >= 1.0 - 1.0e-9 && r[k+1] <= 1.0e-9) {
+			continue;
+		    }
+		    if (closing && r[k] <= 1.0e-9 && r[k+1] >= 1.0 - 1.0e-9) {
+			continue;
+		    }
+		    results.add(new double[] {
+			    e1.getIndex(), e2.getIndex(),
+			    r[k], r[k+1], r[k+2], r[k+3]
+			});
+		}
+	    }
+	}
+	return results;
+    }
+
+    static int type(Path2DInfo.Entry e) {
+	int type = e.getType();
+	return (type == PathIterator.SEG_CLOSE)? PathIterator.SEG_LINETO: type;
+    }
+
+    static void compare(List<Path2DInfo.SegmentIntersection> list,
+			List<double[]> expected)
+	throws Exception
+    {
+	if (list.size() != expected.size()) {
+	    throw new Exception("found " + list.size() + " intersections, "
+				+ "expected " + expected.size());
+	}
+	for (int i = 0; i < list.size(); i++) {
+	    Path2DInfo.SegmentIntersection si = list.get(i);
+	    double[] e = expected.get(i);
+	    if (si.getEntry1().getIndex() != (int)e[0]
+		|| si.getEntry2().getIndex() != (int)e[1]
+		|| si.getU1() != e[2] || si.getU2() != e[3]
+		|| si.getX() != e[4] || si.getY() != e[5]) {
+		throw new Exception("intersection " + i + " differs");
+	    }
+	}
+    }
+
+    static Path2D randomPath(Random r, int n, boolean close) {
+	Path2D path = new Path2D.Double();
+	path.moveTo(r.nextDouble()*1000.0, r.nextDouble()*1000.0);
+	for (int i = 0; i < n; i++) {
+	    Point2D p = path.getCurrentPoint();
+	    double x = p.getX() + (r.nextDouble() - 0.5) * 50.0;
+	    double y = p.getY() + (r.nextDouble() - 0.5) * 50.0;
+	    switch(i % 3) {
+	    case 0:
+		path.lineTo(x, y);
+		break;
+	    case 1:
+		path.quadTo(x + r.nextDouble()*10.0, y - r.nextDouble()*10.0,
+			    x, y);
+		break;
+	    case 2:
+		path.curveTo(x - r.nextDouble()*10.0, y + r.nextDouble()*10.0,
+			     x + r.nextDouble()*10.0, y - r.nextDouble()*10.0,
+			     x, y);
+		break;
+	    }
+	}
+	if (close) path.closePath();
+	return path;
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int n = (argv.length > 0)? Integer.parseInt(argv[0]): 500;
+
+	// a pentagram has 5 self intersections.
+	Path2D star = new Path2D.Double();
+	for (int i = 0; i < 5; i++) {
+	    double theta = Math.PI/2 + i * 4.0 * Math.PI / 5.0;
+	    double x = 100.0 * Math.cos(theta);
+	    double y = 100.0 * Math.sin(theta);
+	    if (i == 0) star.moveTo(x, y); else star.lineTo(x, y);
+	}
+	star.closePath();
+	List<Path2DInfo.SegmentIntersection> list =
+	    Path2DInfo.getSegmentIntersections(star);
+	if (list.size() != 5) {
+	    throw new Exception("pentagram: " + list.size()
+				+ " intersections");
+	}
+	compare(list, bruteForce(Path2DInfo.getEntries(star)));
+
+	// a simple closed path has no intersections.
+	Ellipse2D circle = new Ellipse2D.Double(-50.0, -50.0, 100.0, 100.0);
+	list = Path2DInfo.getSegmentIntersections(circle);
+	if (list.size() != 0) {
+	    throw new Exception("circle: " + list.size() + " intersections");
+	}
+	Rectangle2D rect = new Rectangle2D.Double(-40.0, -60.0, 80.0, 120.0);
+	list = Path2DInfo.getSegmentIntersections(rect);
+	if (list.size() != 0) {
+	    throw new Exception("rectangle: " + list.size()
+				+ " intersections");
+	}
+
+	// a circle and a rectangle cross at 4 points
+	list = Path2DInfo.getSegmentIntersections(circle, rect);
+	if (list.size() != 4) {
+	    throw new Exception("circle and rectangle: " + list.size()
+				+ " intersections");
+	}
+	for (Path2DInfo.SegmentIntersection si: list) {
+	    double x = si.getX();
+	    double y = si.getY();
+	    if (Math.abs(Math.abs(x) - 40.0) > 1.0e-10
+		|| Math.abs(Math.sqrt(x*x + y*y) - 50.0) > 0.05) {
+		throw new Exception("bad intersection: (" + x + ", "
+				    + y + ")");
+	    }
+	}
+
+	// random paths compared to testing all pairs
+	Random r = new Random(4573);
+	for (int trial = 0; trial < 10; trial++) {
+	    Path2D path = randomPath(r, 200, (trial % 2) == 0);
+	    path.append(randomPath(r, 100, (trial % 2) == 1), false);
+	    List<Path2DInfo.Entry> entries = Path2DInfo.getEntries(path);
+	    compare(Path2DInfo.getSegmentIntersections(entries),
+		    bruteForce(entries));
+	}
+
+	Path2D path = randomPath(r, n, false);
+	List<Path2DInfo.Entry> entries = Path2DInfo.getEntries(path);
+	long start = System.nanoTime();
+	list = Path2DInfo.getSegmentIntersections(entries);
+	long t1 = System.nanoTime() - start;
+	start = System.nanoTime();
+	List<double[]> expected = bruteForce(entries);
+	long t2 = System.nanoTime() - start;
+	compare(list, expected);
+	System.out.format("%d segments, %d intersections: "
+			  + "sweep %.4g ms, all pairs %.4g ms\n",
+			  n, list.size(), t1*1.0e-6, t2*1.0e-6);
+	System.exit(0);
+    }
+}
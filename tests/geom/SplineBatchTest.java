@@ -0,0 +1,183 @@
+import org.bzdev.geom.*;
+import java.awt.geom.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SplineBatchTest {
+
+    static void check(String name, double v1, double v2) throws Exception {
+	if (Double.compare(v1, v2) != 0) {
+	    throw new Exception(name + ": " + v1 + " != " + v2);
+	}
+    }
+
+    static void checkU(double s, double v1, double v2) throws Exception {
+	if (Math.abs(v1 - v2) > 1.0e-10) {
+	    throw new Exception("u(" + s + "): " + v1 + " != " + v2);
+	}
+    }
+
+    static double[] distances(double pathLen, int n, boolean sorted,
+			      boolean cyclic, Random r)
+    {
+	double[] s = new double[n];
+	for (int i = 0; i < n; i++) {
+	    s[i] = sorted? (pathLen * i) / (n - 1): pathLen * r.nextDouble();
+	    if (cyclic && !sorted) s[i] = 3*s[i] - pathLen;
+	}
+	return s;
+    }
+
+    static void test2D(BasicSplinePath2D path, boolean cyclic, Random r)
+	throws Exception
+    {
+	double pathLen = path.getPathLength();
+	int n = 2000;
+	for (boolean sorted: new boolean[] {true, false}) {
+	    double[] s = distances(pathLen, n, sorted, cyclic, r);
+	    // include the segment boundaries
+	    int nsegs = (int)Math.round(path.getMaxParameter());
+	    for (int k = 0; k < nsegs && k < n; k++) {
+		s[(k*n)/nsegs] = path.s((double)k);
+	    }
+	    if (sorted) Arrays.sort(s);
+	    double[] u = new double[n];
+	    path.u(s, u);
+	    for (int i = 0; i < n; i++) {
+		checkU(s[i], u[i], path.u(s[i]));
+	    }
+	    double[] xy = new double[2*n];
+	    double[] tangents = new double[2*n];
+	    double[] curvatures = new double[n];
+	    path.getXY(u, xy);
+	    path.getTangents(u, tangents);
+	    path.curvature(u, curvatures);
+	    double[] tangent = new double[2];
+	    for (int i = 0; i < n; i++) {
+		Point2D p = path.getPoint(u[i]);
+		check("x", xy[2*i], p.getX());
+		check("y", xy[2*i+1], p.getY());
+		path.getTangent(u[i], tangent);
+		check("tx", tangents[2*i], tangent[0]);
+		check("ty", tangents[2*i+1], tangent[1]);
+		check("curvature", curvatures[i], path.curvature(u[i]));
+	    }
+	}
+	if (!cyclic) {
+	    try {
+		path.u(new double[] {0.0, pathLen*1.01}, new double[2]);
+		throw new Exception("missing exception");
+	    } catch (IllegalArgumentException e) {}
+	    try {
+		path.getXY(new double[] {path.getMaxParameter() + 0.5},
+			   new double[2]);
+		throw new Exception("missing exception");
+	    } catch (IllegalArgumentException e) {}
+	}
+    }
+
+    static void test3D(BasicSplinePath3D path, Random r) throws Exception {
+	double pathLen = path.getPathLength();
+	int n = 2000;
+	for (boolean sorted: new boolean[] {true, false}) {
+	    double[] s = distances(pathLen, n, sorted, false, r);
+	    double[] u = new double[n];
+	    path.u(s, u, n);
+	    for (int i = 0; i < n; i++) {
+		checkU(s[i], u[i], path.u(s[i]));
+	    }
+	    double[] xyz = new double[3*n];
+	    double[] tangents = new double[3*n];
+	    double[] curvatures = new double[n];
+	    path.getXYZ(u, xyz);
+	    path.getTangents(u, tangents);
+	    path.curvature(u, curvatures);
+	    double[] tangent = new double[3];
+	    for (int i = 0; i < n; i++) {
+		Point3D p = path.getPoint(u[i]);
+		check("x", xyz[3*i], p.getX());
+		check("y", xyz[3*i+1], p.getY());
+		check("z", xyz[3*i+2], p.getZ());
+		path.getTangent(u[i], tangent);
+		for (int j = 0; j < 3; j++) {
+		    check("tangent", tangents[3*i+j], tangent[j]);
+		}
+		check("curvature", curvatures[i], path.curvature(u[i]));
+	    }
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	Random r = new Random(17);
+	int npoints = 64;
+	Point2D[] points = new Point2D[npoints];
+	for (int i = 0; i < npoints; i++) {
+	    double theta = 2.0 * Math.PI * i / npoints;
+	    double rho = 100.0 + 20.0 * Math.sin(5*theta);
+	    points[i] = new Point2D.Double(rho*Math.cos(theta),
+					   rho*Math.sin(theta));
+	}
+	BasicSplinePath2D cpath = new BasicSplinePath2D(points, true);
+	test2D(cpath, true, r);
+	BasicSplinePath2D opath = new BasicSplinePath2D(points, false);
+	test2D(opath, false, r);
+	opath.setAccuracyMode(true);
+	test2D(opath, false, r);
+	// a path with straight and zero-length segments
+	BasicSplinePath2D lpath = new BasicSplinePath2D();
+	lpath.moveTo(0.0, 0.0);
+	lpath.lineTo(10.0, 0.0);
+	lpath.lineTo(10.0, 0.0);
+	lpath.quadTo(20.0, 0.0, 20.0, 10.0);
+	lpath.curveTo(20.0, 20.0, 10.0, 20.0, 0.0, 20.0);
+	test2D(lpath, false, r);
+
+	Point3D[] points3 = new Point3D[npoints];
+	for (int i = 0; i < npoints; i++) {
+	    double theta = 4.0 * Math.PI * i / npoints;
+	    points3[i] = new Point3D.Double(100.0*Math.cos(theta),
+					    100.0*Math.sin(theta),
+					    5.0 * i);
+	}
+	test3D(new BasicSplinePath3D(points3, false), r);
+
+	// timing: many objects moving along a path
+	int n = 10000;
+	int frames = 50;
+	double pathLen = cpath.getPathLength();
+	double[] s = new double[n];
+	double[] u = new double[n];
+	double[] xy = new double[2*n];
+	double[] tangents = new double[2*n];
+	for (int pass = 0; pass < 2; pass++) {
+	    long start = System.nanoTime();
+	    for (int f = 0; f < frames; f++) {
+		for (int i = 0; i < n; i++) {
+		    double si = (pathLen * i) / n + f;
+		    double ui = cpath.u(si);
+		    Point2D p = cpath.getPoint(ui);
+		    cpath.getTangent(ui, tangents, 2*i);
+		    xy[2*i] = p.getX();
+		    xy[2*i+1] = p.getY();
+		}
+	    }
+	    long t1 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    for (int f = 0; f < frames; f++) {
+		for (int i = 0; i < n; i++) {
+		    s[i] = (pathLen * i) / n + f;
+		}
+		cpath.u(s, u);
+		cpath.getXY(u, xy);
+		cpath.getTangents(u, tangents);
+	    }
+	    long t2 = System.nanoTime() - start;
+	    if (pass == 1) {
+		System.out.format("%d objects: individual calls %.4g ms, "
+				  + "batched calls %.4g ms per frame\n", n,
+				  t1 * 1.0e-6 / frames, t2 * 1.0e-6 / frames);
+	    }
+	}
+	System.exit(0);
+    }
+}
@@ -0,0 +1,215 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.bzdev.geom.*;
+
+public class SplitSurfaceTest {
+
+    static class Segment {
+	int type;
+	double[] coords;
+	Color color;
+	Object tag;
+	Segment(SurfaceIterator si) {
+	    double[] tmp = new double[48];
+	    type = si.currentSegment(tmp);
+	    coords = tmp;
+	    color = si.currentColor();
+	    tag = si.currentTag();
+	}
+	boolean same(Segment other) {
+	    return type == other.type && Arrays.equals(coords, other.coords)
+		&& color == other.color && tag == other.tag;
+	}
+    }
+
+    static ArrayList<Segment> sequential(SurfaceIterator si) {
+	ArrayList<Segment> list = new ArrayList<>();
+	while (!si.isDone()) {
+	    list.add(new Segment(si));
+	    si.next();
+	}
+	return list;
+    }
+
+    // split as far as possible, with prefixes processed first
+    static int split(SplittableSurfaceIterator si, ArrayList<Segment> list)
+	throws Exception
+    {
+	long size = si.estimateSize();
+	SplittableSurfaceIterator prefix = si.trySplit();
+	if (prefix == null) {
+	    while (!si.isDone()) {
+		list.add(new Segment(si));
+		si.next();
+	    }
+	    return 1;
+	}
+	if (prefix.estimateSize() + si.estimateSize() > size) {
+	    throw new Exception("size estimates increased");
+	}
+	return split(prefix, list) + split(si, list);
+    }
+
+    static void compare(String name, SurfaceIterator si1,
+			SurfaceIterator si2)
+	throws Exception
+    {
+	if (!(si2 instanceof SplittableSurfaceIterator)) {
+	    throw new Exception(name + ": not splittable");
+	}
+	ArrayList<Segment> list1 = sequential(si1);
+	ArrayList<Segment> list2 = new ArrayList<>();
+	int leaves = split((SplittableSurfaceIterator)si2, list2);
+	if (list1.size() != list2.size()) {
+	    throw new Exception(name + ": " + list1.size() + " != "
+				+ list2.size());
+	}
+	for (int i = 0; i < list1.size(); i++) {
+	    if (!list1.get(i).same(list2.get(i))) {
+		throw new Exception(name + ": segment " + i + " differs");
+	    }
+	}
+	System.out.println(name + ": " + list1.size() + " segments, "
+			   + leaves + " leaves");
+    }
+
+    static void comparePaths(String name, Path3D p1, Path3D p2)
+	throws Exception
+    {
+	PathIterator3D pi1 = p1.getPathIterator(null);
+	PathIterator3D pi2 = p2.getPathIterator(null);
+	double[] c1 = new double[9];
+	double[] c2 = new double[9];
+	while (!pi1.isDone() && !pi2.isDone()) {
+	    if (pi1.currentSegment(c1) != pi2.currentSegment(c2)
+		|| !Arrays.equals(c1, c2)) {
+		throw new Exception(name + ": boundaries differ");
+	    }
+	    pi1.next();
+	    pi2.next();
+	}
+	if (!pi1.isDone() || !pi2.isDone()) {
+	    throw new Exception(name + ": boundary lengths differ");
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int n = (argv.length > 0)? Integer.parseInt(argv[0]): 40;
+
+	Point3D[][] array = new Point3D[n][n];
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < n; j++) {
+		double x = 10.0 * i;
+		double y = 10.0 * j;
+		double z = 20.0 * Math.sin(i * 0.3) * Math.cos(j * 0.2);
+		array[i][j] = new Point3D.Double(x, y, z);
+	    }
+	}
+	BezierGrid grid = new BezierGrid(array);
+	grid.setColor(Color.BLUE);
+	BezierGrid lgrid = new BezierGrid(array, false, false, true);
+
+	AffineTransform3D af =
+	    AffineTransform3D.getRotateInstance(0.3, 0.2, 0.1);
+	Transform3D tf = new RVFTransform3D((x,y,z) -> x, (x,y,z) -> y,
+					    (x,y,z) -> z + 0.01 * x * y);
+
+	compare("grid", grid.getSurfaceIterator(null),
+		grid.getSurfaceIterator(null));
+	compare("grid (affine)", grid.getSurfaceIterator(af),
+		grid.getSurfaceIterator(af));
+	compare("linear grid", lgrid.getSurfaceIterator(null),
+		lgrid.getSurfaceIterator(null));
+	compare("linear grid (affine)", lgrid.getSurfaceIterator(af),
+		lgrid.getSurfaceIterator(af));
+	if (((SplittableSurfaceIterator)grid.getSurfaceIterator(tf))
+	    .trySplit() != null) {
+	    throw new Exception("grid split with a general transform");
+	}
+
+	Surface3D surface = new Surface3D.Double();
+	surface.append(grid);
+	surface.append(lgrid);
+	Surface3D fsurface = new Surface3D.Float();
+	fsurface.append(grid);
+	compare("surface", surface.getSurfaceIterator(null),
+		surface.getSurfaceIterator(null));
+	compare("surface (affine)", surface.getSurfaceIterator(af),
+		surface.getSurfaceIterator(af));
+	compare("float surface", fsurface.getSurfaceIterator(null),
+		fsurface.getSurfaceIterator(null));
+	compare("float surface (affine)", fsurface.getSurfaceIterator(af),
+		fsurface.getSurfaceIterator(af));
+	if (((SplittableSurfaceIterator)surface.getSurfaceIterator(tf))
+	    .trySplit() != null) {
+	    throw new Exception("surface split with a general transform");
+	}
+
+	// A surface's boundary and area should not depend on the
+	// parallelism.
+	Surface3D closed = new Surface3D.Double();
+	closed.append(grid);
+	Surface3D bottom = new Surface3D.Double();
+	bottom.append(grid,
+		      AffineTransform3D.getTranslateInstance(0.0, 0.0, -50.0));
+	closed.append(bottom);
+
+	Path3D[] boundaries = new Path3D[2];
+	double[] areas = new double[2];
+	boolean[] wellFormed = new boolean[2];
+	Integer result = SurfaceExecutor.reduce
+	    (surface.getSurfaceIterator(null),
+	     (si) -> {
+		int count = 0;
+		while (!si.isDone()) {
+		    count++;
+		    si.next();
+		}
+		return count;
+	    },
+	     (i1, i2) -> i1 + i2);
+	if (result != surface.size()) {
+	    throw new Exception("reduce: " + result + " != "
+				+ surface.size());
+	}
+	int k = 0;
+	for (int p: new int[] {1, 4}) {
+	    SurfaceExecutor.setParallelism(p);
+	    Surface3D s = new Surface3D.Double();
+	    s.append(closed);
+	    boundaries[k] = s.getBoundary();
+	    areas[k] = s.area();
+	    wellFormed[k] = new Surface3D.Boundary
+		(s.getSurfaceIterator(null)).isWellFormed();
+	    k++;
+	}
+	SurfaceExecutor.setParallelism(0);
+	comparePaths("boundary", boundaries[0], boundaries[1]);
+	// partial sums are added in a different order
+	if (Math.abs(areas[0] - areas[1]) > 1.e-10 * areas[0]) {
+	    throw new Exception("areas differ: " + areas[0] + " != "
+				+ areas[1]);
+	}
+	if (wellFormed[0] != wellFormed[1]) {
+	    throw new Exception("well-formed tests differ");
+	}
+
+	if (argv.length > 1) {
+	    Surface3D big = new Surface3D.Double();
+	    for (int i = 0; i < 20; i++) {
+		big.append(closed, AffineTransform3D
+			   .getTranslateInstance(0.0, 0.0, 100.0 * i));
+	    }
+	    for (int p: new int[] {1, 4, 1, 4}) {
+		SurfaceExecutor.setParallelism(p);
+		long start = System.nanoTime();
+		new Surface3D.Boundary(big.getSurfaceIterator(null));
+		long t = System.nanoTime() - start;
+		System.out.format("parallelism %d: %.4g ms\n",
+				  p, t * 1.0e-6);
+	    }
+	}
+	System.exit(0);
+    }
+}
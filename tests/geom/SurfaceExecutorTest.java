@@ -0,0 +1,129 @@
+import org.bzdev.geom.*;
+import org.bzdev.math.*;
+
+public class SurfaceExecutorTest {
+
+    // a closed, slightly distorted sphere (see MomentTest)
+    static Surface3D createSurface(int N) {
+	int NC = N/2;
+	Point3D[][] array1 = new Point3D[N][N];
+	Point3D[][] array2 = new Point3D[N][N];
+	double r = 100.0;
+	for (int i = 0; i < N; i++) {
+	    for (int j = 0; j < N; j++) {
+		int k = Math.max(Math.abs(i-NC),Math.abs(j-NC));
+		double theta = k*(Math.PI/(N-1));
+		double x, y, z, z1, z2;
+		if (k == 0) {
+		    x = 0.0; y = 0.0; z = r;
+		    z1 = z;
+		    z2 = z;
+		} else {
+		    int nanglesHalf = k*4;
+		    double delta = Math.PI/(nanglesHalf);
+		    double angle;
+		    if (i == NC+k) {
+			angle = -(NC-j)*delta;
+		    } else if (j == NC-k) {
+			angle = -(NC + 2*k - i)*delta;
+		    } else if (i == NC-k) {
+			angle = -((j-NC) + 4*k)*delta;
+		    } else {
+			angle = (NC+2*k-i)*delta;
+		    }
+		    x = r * Math.cos(angle) * Math.sin(theta);
+		    y = r * Math.sin(angle) * Math.sin(theta);
+		    z = r * Math.cos(theta);
+		    z1 = z;
+		    z2 = z;
+		    if (k < NC) {
+			x += 0.1*y*Math.sin(2*theta);
+			z1 += 0.1*y*z;
+			z2 -= 0.1*y*z;
+		    }
+		}
+		if (k == NC) {
+		    z1 = 0.0;
+		    z2 = 0.0;
+		}
+		array1[i][j] = new Point3D.Double(x, y, z1);
+		array2[i][j] = new Point3D.Double(x, y, -z2);
+	    }
+	}
+	BezierGrid grid1 = new BezierGrid(array1);
+	BezierGrid grid2 = new BezierGrid(array2);
+	grid2.reverseOrientation(true);
+	Surface3D surface = new Surface3D.Double();
+	surface.append(grid1);
+	surface.append(grid2);
+	return surface;
+    }
+
+    static double[] compute(Surface3D surface) {
+	double area = surface.area(true);
+	double vol = surface.volume(true);
+	Point3D cm = SurfaceOps.centerOfMassOf(surface, vol, true,
+					       surface.size());
+	double[][] m = SurfaceOps.momentsOf(surface, cm, vol, true,
+					    surface.size());
+	return new double[] {
+	    area, vol, cm.getX(), cm.getY(), cm.getZ(),
+	    m[0][0], m[0][1], m[0][2], m[1][1], m[1][2], m[2][2]
+	};
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int nthreads = (argv.length > 0)? Integer.parseInt(argv[0]): 4;
+	Surface3D surface = createSurface(81);
+	System.out.println("surface size = " + surface.size());
+
+	SurfaceExecutor.setParallelism(1);
+	if (SurfaceExecutor.getParallelism() != 1) {
+	    throw new Exception("parallelism not 1");
+	}
+	double[] expected = compute(surface);
+	SurfaceExecutor.setParallelism(nthreads);
+	if (SurfaceExecutor.getParallelism() != nthreads) {
+	    throw new Exception("parallelism not " + nthreads);
+	}
+	double[] values = compute(surface);
+	for (int i = 0; i < values.length; i++) {
+	    double scale = Math.max(1.0, Math.abs(expected[i]));
+	    if (Math.abs(values[i] - expected[i])/scale > 1.e-10) {
+		System.out.println(i + ": " + values[i] + " != " + expected[i]);
+		throw new Exception("parallel and sequential values differ");
+	    }
+	}
+	SurfaceIntegral si = new SurfaceIntegral(2, (x,y,z) -> x*x);
+	double v1 = si.integrate(surface.getSurfaceIterator(null), false, 0);
+	double v2 = si.integrate(surface.getSurfaceIterator(null), true,
+				 surface.size());
+	if (Math.abs(v1 - v2) > 1.e-10 * Math.abs(v1)) {
+	    throw new Exception("surface integrals differ");
+	}
+	try {
+	    SurfaceExecutor.setParallelism(-1);
+	    throw new Exception("negative parallelism accepted");
+	} catch (IllegalArgumentException e) {}
+
+	// many computations on medium-sized surfaces
+	Surface3D small = createSurface(21);
+	int count = 10;
+	for (int mode = 0; mode < 2; mode++) {
+	    SurfaceExecutor.setParallelism((mode == 0)? 1: nthreads);
+	    long start = System.nanoTime();
+	    double sum = 0.0;
+	    for (int i = 0; i < count; i++) {
+		sum += small.volume(true);
+		sum += si.integrate(small.getSurfaceIterator(null), true,
+				    small.size());
+	    }
+	    long t = System.nanoTime() - start;
+	    System.out.format("parallelism %d: %.4g computations/s\n",
+			      SurfaceExecutor.getParallelism(),
+			      2 * count / (t * 1.0e-9));
+	}
+	SurfaceExecutor.setParallelism(0);
+	System.exit(0);
+    }
+}
@@ -0,0 +1,190 @@
+import org.bzdev.io.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+public class CSVScannerTest {
+
+    static final char[] ALPHABET = {
+	'a', 'b', ',', ',', '"', '"', '\n', '\r', '\u00e9', '1', ' '
+    };
+
+    static String randomInput(Random r, int len) {
+	StringBuilder sb = new StringBuilder();
+	for (int i = 0; i < len; i++) {
+	    sb.append(ALPHABET[r.nextInt(ALPHABET.length)]);
+	}
+	return sb.toString();
+    }
+
+    static List<String[]> readAll(CSVReader reader) throws IOException {
+	ArrayList<String[]> list = new ArrayList<>();
+	String[] row;
+	while ((row = reader.nextRow()) != null) list.add(row);
+	return list;
+    }
+
+    static List<String[]> readAll(CSVScanner scanner) throws IOException {
+	ArrayList<String[]> list = new ArrayList<>();
+	CSVScanner.Row row;
+	while ((row = scanner.nextRow()) != null) list.add(row.toArray());
+	return list;
+    }
+
+    static boolean same(List<String[]> l1, List<String[]> l2) {
+	if (l1.size() != l2.size()) return false;
+	for (int i = 0; i < l1.size(); i++) {
+	    if (!Arrays.equals(l1.get(i), l2.get(i))) return false;
+	}
+	return true;
+    }
+
+    static LineReader.Delimiter[] delimiters = {
+	null,
+	LineReader.Delimiter.LF,
+	LineReader.Delimiter.CR,
+	LineReader.Delimiter.CRLF
+    };
+
+    public static void main(String argv[]) throws Exception {
+	Random r = new Random(17);
+	int compared = 0;
+	for (int trial = 0; trial < 20000; trial++) {
+	    String input = randomInput(r, r.nextInt(60));
+	    LineReader.Delimiter delimiter = delimiters[trial % 4];
+	    boolean hasHeader = (trial % 3 == 0);
+	    List<String[]> expected;
+	    String[] eheaders;
+	    try {
+		CSVReader reader = new CSVReader(new StringReader(input),
+						 hasHeader, delimiter);
+		eheaders = reader.getHeaders();
+		expected = readAll(reader);
+	    } catch (IOException e) {
+		try {
+		    readAll(new CSVScanner(new StringReader(input),
+					   hasHeader, delimiter));
+		} catch (IOException ee) {
+		    continue;
+		}
+		throw new Exception("no exception for trial " + trial);
+	    } catch (RuntimeException e) {
+		// CSVReader cannot parse some malformed inputs
+		continue;
+	    }
+	    CSVScanner scanner = new CSVScanner(new StringReader(input),
+						hasHeader, delimiter);
+	    if (!Arrays.equals(eheaders, scanner.getHeaders())
+		|| !same(expected, readAll(scanner))) {
+		System.out.println("input = "
+				   + input.replace("\r", "\\r")
+				   .replace("\n", "\\n"));
+		throw new Exception("rows differ for trial " + trial);
+	    }
+	    compared++;
+	}
+	System.out.println("random inputs: " + compared + " compared");
+
+	String[] doubles = {
+	    "0", "-0", "1.5", "-2.25e-3", "123456789012345", "1e22", "1e23",
+	    "0.1", ".5", "5.", "1234567890.1234567", "NaN", "-Infinity",
+	    "1e-400", "4.9e-324", " 3.0 ", "7d", "0x1p3"
+	};
+	String line = String.join(",", doubles);
+	CSVScanner.Row row = new CSVScanner(new StringReader(line), false)
+	    .nextRow();
+	for (int i = 0; i < doubles.length; i++) {
+	    double expected = Double.parseDouble(doubles[i]);
+	    if (Double.compare(expected, row.parseDouble(i)) != 0) {
+		throw new Exception("parseDouble(\"" + doubles[i] + "\")");
+	    }
+	}
+	for (int i = 0; i < 100000; i++) {
+	    String s = Double.toString(r.nextGaussian() * 1000.0);
+	    double x = new CSVScanner(new StringReader(s), false).nextRow()
+		.parseDouble(0);
+	    if (x != Double.parseDouble(s)) {
+		throw new Exception("parseDouble(\"" + s + "\")");
+	    }
+	}
+	row = new CSVScanner(new StringReader("12,-9223372036854775808,x"),
+			     false).nextRow();
+	if (row.parseInt(0) != 12 || row.parseLong(1) != Long.MIN_VALUE) {
+	    throw new Exception("parseLong");
+	}
+	try {
+	    row.parseLong(2);
+	    throw new Exception("parseLong accepted x");
+	} catch (NumberFormatException e) {}
+
+	// large file: compare timing and the parallel results
+	File f = new File("CSVScannerTest.csv");
+	int nrows = 2000000;
+	try (Writer w = new BufferedWriter
+	     (new OutputStreamWriter(new FileOutputStream(f),
+				     StandardCharsets.UTF_8))) {
+	    w.write("time,value,label\r\n");
+	    for (int i = 0; i < nrows; i++) {
+		w.write(i + "," + (i * 0.25) + ","
+			+ ((i % 10 == 0)? "\"multi\r\nline, \"\"q\"\"\"":
+			   "caf\u00e9") + "\r\n");
+	    }
+	}
+	long start = System.nanoTime();
+	double sum1 = 0.0;
+	try (CSVReader reader = new CSVReader
+	     (new InputStreamReader(new FileInputStream(f),
+				    StandardCharsets.UTF_8), true)) {
+	    String[] fields;
+	    while ((fields = reader.nextRow()) != null) {
+		sum1 += Double.parseDouble(fields[1]);
+	    }
+	}
+	long t1 = System.nanoTime() - start;
+	start = System.nanoTime();
+	double sum2 = 0.0;
+	long count = 0;
+	try (CSVScanner scanner = new CSVScanner(f, true, null)) {
+	    while ((row = scanner.nextRow()) != null) {
+		sum2 += row.parseDouble(1);
+		count += row.parseLong(0);
+	    }
+	}
+	long t2 = System.nanoTime() - start;
+	if (sum1 != sum2 || count != ((long)nrows * (nrows - 1)) / 2) {
+	    throw new Exception("scanner results differ");
+	}
+	int nthreads = (argv.length > 0)? Integer.parseInt(argv[0]):
+	    Runtime.getRuntime().availableProcessors();
+	DoubleAdder sum3 = new DoubleAdder();
+	AtomicLong rows = new AtomicLong();
+	AtomicLong multi = new AtomicLong();
+	String expected = "multi" + System.lineSeparator() + "line, \"q\"";
+	start = System.nanoTime();
+	String[] headers = CSVScanner.forEachRow(f, true, null, nthreads,
+						 (rw) -> {
+		sum3.add(rw.parseDouble(1));
+		rows.incrementAndGet();
+		if (rw.get(2).toString().equals(expected)) {
+		    multi.incrementAndGet();
+		}
+	    });
+	long t3 = System.nanoTime() - start;
+	if (rows.get() != nrows || sum3.sum() != sum1
+	    || multi.get() != nrows / 10
+	    || !Arrays.equals(headers,
+			      new String[] {"time", "value", "label"})) {
+	    throw new Exception("parallel results differ");
+	}
+	f.delete();
+	System.out.format("CSVReader: %.3g rows/s\n", nrows / (t1 * 1.0e-9));
+	System.out.format("CSVScanner: %.3g rows/s\n", nrows / (t2 * 1.0e-9));
+	System.out.format("CSVScanner.forEachRow (%d threads): %.3g rows/s\n",
+			  nthreads, nrows / (t3 * 1.0e-9));
+    }
+}
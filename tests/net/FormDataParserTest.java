@@ -0,0 +1,202 @@
+import org.bzdev.net.FormDataIterator;
+import org.bzdev.net.FormDataParser;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+public class FormDataParserTest {
+
+    static String boundary = "------------------------e0e57aa4a6726592";
+
+    static byte[] header(String name, String filename) {
+	String s = "--" + boundary + "\r\n"
+	    + "Content-Disposition: form-data; name=\"" + name + "\""
+	    + ((filename == null)? "": "; filename=\"" + filename + "\"")
+	    + "\r\n"
+	    + ((filename == null)? "":
+	       "Content-Type: application/octet-stream\r\n")
+	    + "\r\n";
+	return s.getBytes(Charset.forName("US-ASCII"));
+    }
+
+    static byte[] CRLF = {'\r', '\n'};
+    static byte[] TRAILER = ("--" + boundary + "--\r\n").getBytes();
+
+    // Content that frequently contains partial boundaries.
+    static byte[] content(Random r, int len) {
+	byte[] data = new byte[len];
+	byte[] b = ("\r\n--" + boundary).getBytes();
+	int i = 0;
+	while (i < len) {
+	    if (r.nextInt(8) == 0) {
+		int n = Math.min(r.nextInt(b.length - 1), len - i);
+		System.arraycopy(b, 0, data, i, n);
+		i += n;
+	    } else {
+		data[i++] = (byte)r.nextInt(256);
+	    }
+	}
+	return data;
+    }
+
+    // An input stream that returns data in small, irregular pieces.
+    static class ChoppyInputStream extends FilterInputStream {
+	Random r;
+	ChoppyInputStream(InputStream is, Random r) {
+	    super(is);
+	    this.r = r;
+	}
+	public int read(byte[] b, int off, int len) throws IOException {
+	    return super.read(b, off, Math.min(len, 1 + r.nextInt(97)));
+	}
+    }
+
+    static class GeneratedInputStream extends InputStream {
+	long remaining;
+	int state = 0;
+	ByteArrayInputStream hdr = new ByteArrayInputStream
+	    (header("big", "big.dat"));
+	ByteArrayInputStream tail = new ByteArrayInputStream
+	    (("\r\n--" + boundary + "--\r\n").getBytes());
+	GeneratedInputStream(long size) {remaining = size;}
+	public int read() {
+	    byte[] b = new byte[1];
+	    return (read(b, 0, 1) == -1)? -1: (b[0] & 0xFF);
+	}
+	public int read(byte[] b, int off, int len) {
+	    if (state == 0) {
+		int n = hdr.read(b, off, len);
+		if (n != -1) return n;
+		state = 1;
+	    }
+	    if (state == 1) {
+		if (remaining == 0) {
+		    state = 2;
+		} else {
+		    int n = (int)Math.min(remaining, len);
+		    for (int i = 0; i < n; i++) {
+			b[off+i] = (byte)('a' + (i % 26));
+		    }
+		    remaining -= n;
+		    return n;
+		}
+	    }
+	    return tail.read(b, off, len);
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	Random r = new Random(37);
+	for (int trial = 0; trial < 2000; trial++) {
+	    int nparts = 1 + r.nextInt(4);
+	    byte[][] parts = new byte[nparts][];
+	    ByteArrayOutputStream os = new ByteArrayOutputStream();
+	    for (int i = 0; i < nparts; i++) {
+		int len = r.nextInt((trial % 10 == 0)? 40000: 600);
+		parts[i] = content(r, len);
+		os.write(header("p" + i, (i % 2 == 0)? null: ("f" + i)));
+		os.write(parts[i]);
+		os.write(CRLF);
+	    }
+	    os.write(TRAILER);
+	    byte[] form = os.toByteArray();
+
+	    // bulk reads with irregular sizes
+	    FormDataIterator it = new FormDataIterator
+		(new ChoppyInputStream(new ByteArrayInputStream(form), r),
+		 boundary);
+	    int k = 0;
+	    while (it.hasNext()) {
+		InputStream cis = it.next();
+		if (cis == null) break;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[1 + r.nextInt(5000)];
+		int n;
+		while ((n = cis.read(buf, 0, 1 + r.nextInt(buf.length)))
+		       != -1) {
+		    out.write(buf, 0, n);
+		}
+		if (!Arrays.equals(out.toByteArray(), parts[k])) {
+		    throw new Exception("bulk read failed: trial " + trial
+					+ ", part " + k);
+		}
+		k++;
+	    }
+	    if (k != nparts) throw new Exception("wrong number of parts");
+
+	    // parser with a small threshold so that some parts are spilled
+	    try (FormDataParser parser = new FormDataParser
+		 (new ByteArrayInputStream(form), boundary,
+		  300, 1000, null)) {
+		if (parser.getParts().size() != nparts) {
+		    throw new Exception("wrong number of parser parts");
+		}
+		long inMemory = 0;
+		for (int i = 0; i < nparts; i++) {
+		    FormDataParser.Part part = parser.getPart("p" + i);
+		    if (part.size() != parts[i].length) {
+			throw new Exception("wrong size");
+		    }
+		    if (part.isInMemory()) {
+			inMemory += part.size();
+			if (part.size() > 300) {
+			    throw new Exception("threshold not honored");
+			}
+		    } else if (part.getFile().length() != part.size()) {
+			throw new Exception("wrong file length");
+		    }
+		    ByteArrayOutputStream out = new ByteArrayOutputStream();
+		    part.transferTo(out);
+		    if (!Arrays.equals(out.toByteArray(), parts[i])) {
+			throw new Exception("parser failed: trial " + trial
+					    + ", part " + i);
+		    }
+		}
+		if (inMemory > 1000) {
+		    throw new Exception("memory limit not honored");
+		}
+	    }
+	}
+	System.out.println("random forms: OK");
+
+	String fields = new String(header("_charset_", null))
+	    + "ISO-8859-1\r\n"
+	    + new String(header("title", null)) + "hello\r\n"
+	    + new String(TRAILER);
+	try (FormDataParser parser = new FormDataParser
+	     (new ByteArrayInputStream(fields.getBytes()), boundary)) {
+	    if (!"hello".equals(parser.getField("title"))
+		|| parser.getFields().size() != 2) {
+		throw new Exception("fields");
+	    }
+	}
+
+	// no limits: everything is kept in memory
+	try (FormDataParser parser = new FormDataParser
+	     (new ByteArrayInputStream(fields.getBytes()), boundary,
+	      Integer.MAX_VALUE, Long.MAX_VALUE, null)) {
+	    if (!"hello".equals(parser.getField("title"))
+		|| !parser.getPart("title").isInMemory()) {
+		throw new Exception("unlimited threshold");
+	    }
+	}
+
+	long size = 256L << 20;
+	File tmp;
+	long start = System.nanoTime();
+	try (FormDataParser parser = new FormDataParser
+	     (new GeneratedInputStream(size), boundary)) {
+	    FormDataParser.Part part = parser.getPart("big");
+	    tmp = part.getFile();
+	    if (part.isInMemory() || part.size() != size
+		|| tmp.length() != size) {
+		throw new Exception("large upload");
+	    }
+	}
+	long elapsed = System.nanoTime() - start;
+	if (tmp.exists()) throw new Exception("temporary file not deleted");
+	System.out.format("large upload: %.4g MB/s\n",
+			  (size / (1024.0*1024.0)) / (elapsed * 1.0e-9));
+    }
+}
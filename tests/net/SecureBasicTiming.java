@@ -0,0 +1,66 @@
+import org.bzdev.net.*;
+import java.security.cert.Certificate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SecureBasicTiming {
+
+    static final int NPASSWORDS = 64;
+    static final int NCHECKS = 2000;
+
+    public static void main(String argv[]) throws Exception {
+	String[] pems = SecureBasicUtilities.createPEMPair();
+	SecureBasicUtilities signer = new SecureBasicUtilities(pems[0]);
+	SecureBasicUtilities verifier = new SecureBasicUtilities(pems[1]);
+	SecureBasicUtilities digest = new SecureBasicUtilities();
+	Certificate[] nullcert = null;
+
+	byte[][] sigs = new byte[NPASSWORDS][];
+	byte[][] dsigs = new byte[NPASSWORDS][];
+	for (int i = 0; i < NPASSWORDS; i++) {
+	    char[] pw = signer.createPassword(nullcert,
+					      ("pw" + i).toCharArray());
+	    sigs[i] = SecureBasicUtilities.decodePassword(pw);
+	    pw = digest.createPassword(nullcert, ("pw" + i).toCharArray());
+	    dsigs[i] = SecureBasicUtilities.decodePassword(pw);
+	}
+	int nthreads = Runtime.getRuntime().availableProcessors();
+	if (argv.length > 0) nthreads = Integer.parseInt(argv[0]);
+	for (SecureBasicUtilities ops:
+		 new SecureBasicUtilities[] {verifier, digest}) {
+	    final byte[][] sa = (ops == digest)? dsigs: sigs;
+	    for (int n = 1; n <= nthreads; n *= 2) {
+		Thread[] threads = new Thread[n];
+		AtomicInteger errors = new AtomicInteger();
+		for (int t = 0; t < n; t++) {
+		    threads[t] = new Thread(() -> {
+			    try {
+				for (int i = 0; i < NCHECKS; i++) {
+				    int k = i % NPASSWORDS;
+				    // every 8th check uses the wrong password
+				    boolean bad = (i % 8) == 7;
+				    String pw = "pw" + (bad? (k+1): k);
+				    boolean ok = ops.checkPassword(sa[k],
+								   nullcert,
+								   pw);
+				    if (ok == bad) errors.incrementAndGet();
+				}
+			    } catch (Exception e) {
+				errors.incrementAndGet();
+			    }
+		    });
+		}
+		long start = System.nanoTime();
+		for (Thread thread: threads) thread.start();
+		for (Thread thread: threads) thread.join();
+		long elapsed = System.nanoTime() - start;
+		if (errors.get() != 0) {
+		    throw new Exception("verification errors: " + errors.get());
+		}
+		double rate = (((double)n) * NCHECKS) / (elapsed * 1.0e-9);
+		System.out.format("%s, %d threads: %.4g checks/second\n",
+				  ((ops == digest)? "digest": "signature"),
+				  n, rate);
+	    }
+	}
+    }
+}
@@ -0,0 +1,116 @@
+import java.awt.geom.Path2D;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.bzdev.p3d.*;
+import org.bzdev.geom.*;
+
+public class ImageSequenceTest {
+
+    static Model3D createModel() throws Exception {
+	Path2D circle = Paths2D.createArc(51.0, 51.0, 51.0, 1.0,
+					  2*Math.PI, Math.PI/2);
+	circle.closePath();
+	Path3D circle3 = new Path3D.Double(circle, (nn, p, t, bbb) -> {
+		return p;}, 0);
+	PathIterator3D pi = circle3.getPathIterator(null);
+	Surface3D surface = new Surface3D.Double();
+	double lastx = 0.0, lasty = 0.0, lastz = 0.0;
+	double[] coords = new double[48];
+	while (!pi.isDone()) {
+	    switch(pi.currentSegment(coords)) {
+	    case PathIterator3D.SEG_MOVETO:
+		lastx = coords[0];
+		lasty = coords[1];
+		lastz = coords[2];
+		break;
+	    case PathIterator3D.SEG_CUBICTO:
+		surface.addCubicVertex(lastx, lasty, lastz,
+				       PathIterator3D.SEG_CUBICTO,
+				       coords, 51.0, 51.0, 50.0);
+		surface.addFlippedCubicVertex(lastx, lasty, lastz,
+					      PathIterator3D.SEG_CUBICTO,
+					      coords, 51.0, 51.0, -50.0);
+		lastx = coords[6];
+		lasty = coords[7];
+		lastz = coords[8];
+		break;
+	    case PathIterator3D.SEG_CLOSE:
+		break;
+	    default:
+		throw new Exception("unexpected case in switch");
+	    }
+	    pi.next();
+	}
+	Model3D m3d = new Model3D();
+	m3d.append(surface);
+	m3d.setTessellationLevel(3);
+	return m3d;
+    }
+
+    static void readEntries(byte[] zip, ArrayList<String> names,
+			    ArrayList<byte[]> contents)
+	throws IOException
+    {
+	ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip));
+	ZipEntry entry;
+	while ((entry = zis.getNextEntry()) != null) {
+	    names.add(entry.getName());
+	    contents.add(zis.readAllBytes());
+	}
+	zis.close();
+    }
+
+    public static void main(String argv[]) throws Exception {
+	Model3D m3d = createModel();
+	int nphi = 8;
+	int ntheta = 4;
+	int nthreads = (argv.length > 0)? Integer.parseInt(argv[0]): 4;
+
+	try {
+	    m3d.createImageSequence(new ByteArrayOutputStream(), "png",
+				    nphi, ntheta, 0.0, 0.0, 0.0, true, 0);
+	    throw new Exception("missing exception");
+	} catch (IllegalArgumentException e) {}
+
+	ByteArrayOutputStream os1 = new ByteArrayOutputStream();
+	long start = System.nanoTime();
+	m3d.createImageSequence(os1, "png", nphi, ntheta, 0.0, 0.3, 0.0,
+				true, 1);
+	long t1 = System.nanoTime() - start;
+
+	ByteArrayOutputStream os2 = new ByteArrayOutputStream();
+	start = System.nanoTime();
+	m3d.createImageSequence(os2, "png", nphi, ntheta, 0.0, 0.3, 0.0,
+				true, nthreads);
+	long t2 = System.nanoTime() - start;
+
+	ArrayList<String> names1 = new ArrayList<>();
+	ArrayList<byte[]> contents1 = new ArrayList<>();
+	readEntries(os1.toByteArray(), names1, contents1);
+	ArrayList<String> names2 = new ArrayList<>();
+	ArrayList<byte[]> contents2 = new ArrayList<>();
+	readEntries(os2.toByteArray(), names2, contents2);
+
+	int nimages = 0;
+	for (String name: names1) {
+	    if (name.startsWith("images/")) nimages++;
+	}
+	if (nimages != nphi*(ntheta-1) + 2) {
+	    throw new Exception("wrong number of images: " + nimages);
+	}
+	if (!names1.equals(names2)) {
+	    throw new Exception("entry names differ");
+	}
+	for (int i = 0; i < contents1.size(); i++) {
+	    if (!Arrays.equals(contents1.get(i), contents2.get(i))) {
+		throw new Exception("entry " + names1.get(i) + " differs");
+	    }
+	}
+	System.out.format("%d images, 1 thread: %.4g s, %d threads: %.4g s\n",
+			  nimages, t1 * 1.0e-9, nthreads, t2 * 1.0e-9);
+	System.exit(0);
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import org.bzdev.geom.*;
+import org.bzdev.p3d.*;
+
+public class PackedGridTest {
+
+    static double height(int i, int j) {
+	return 20.0 * Math.sin(i * 0.3) * Math.cos(j * 0.2);
+    }
+
+    static void compare(String name, Shape3D s1, Shape3D s2)
+	throws Exception
+    {
+	SurfaceIterator si1 = s1.getSurfaceIterator(null);
+	SurfaceIterator si2 = s2.getSurfaceIterator(null);
+	double[] c1 = new double[48];
+	double[] c2 = new double[48];
+	int count = 0;
+	while (!si1.isDone() && !si2.isDone()) {
+	    if (si1.currentSegment(c1) != si2.currentSegment(c2)
+		|| !Arrays.equals(c1, c2)) {
+		throw new Exception(name + ": segment " + count + " differs");
+	    }
+	    count++;
+	    si1.next();
+	    si2.next();
+	}
+	if (!si1.isDone() || !si2.isDone()) {
+	    throw new Exception(name + ": lengths differ");
+	}
+	System.out.println(name + ": " + count + " segments");
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int n = 30;
+	int m = 20;
+
+	// BezierGrid: Point3D[][] versus packed buffers, with one
+	// missing point.
+	Point3D[][] array = new Point3D[n][m];
+	double[] dcoords = new double[3 + 3*n*m];
+	float[] fcoords = new float[3*n*m];
+	int k = 3;
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < m; j++) {
+		double x = 10.0 * i;
+		double y = 10.0 * j;
+		double z = height(i, j);
+		if (i == 5 && j == 7) {
+		    x = Double.NaN;
+		} else {
+		    array[i][j] = new Point3D.Double(x, y, z);
+		}
+		fcoords[k-3] = (float)x;
+		dcoords[k++] = x;
+		fcoords[k-3] = (float)y;
+		dcoords[k++] = y;
+		fcoords[k-3] = (float)z;
+		dcoords[k++] = z;
+	    }
+	}
+	BezierGrid grid = new BezierGrid(array, false, false, false);
+	DoubleBuffer dbuf = DoubleBuffer.wrap(dcoords, 3, 3*n*m);
+	compare("double buffer",  grid,
+		new BezierGrid(n, false, m, false, dbuf, false));
+	if (dbuf.position() != 3) {
+	    throw new Exception("buffer position changed");
+	}
+	compare("float buffer", grid,
+		new BezierGrid(n, false, m, false,
+			       FloatBuffer.wrap(fcoords), false));
+	compare("linear", new BezierGrid(array, false, false, true),
+		new BezierGrid(n, false, m, false,
+			       FloatBuffer.wrap(fcoords), true));
+
+	// a memory-mapped file
+	File f = File.createTempFile("pgtest", ".dat");
+	f.deleteOnExit();
+	try (RandomAccessFile raf = new RandomAccessFile(f, "rw");
+	     FileChannel fc = raf.getChannel()) {
+	    ByteBuffer bb = fc.map(FileChannel.MapMode.READ_WRITE, 0,
+				   8L*3*n*m);
+	    bb.order(ByteOrder.nativeOrder());
+	    bb.asDoubleBuffer().put(dcoords, 3, 3*n*m);
+	    compare("mapped file", grid,
+		    new BezierGrid(n, false, m, false,
+				   bb.asDoubleBuffer(), false));
+	}
+
+	try {
+	    new BezierGrid(n, false, m, false,
+			   FloatBuffer.wrap(fcoords, 3, 3*n*m - 3), false);
+	    throw new Exception("short buffer accepted");
+	} catch (IllegalArgumentException e) {
+	    System.out.println("expected exception: " + e.getMessage());
+	}
+
+	// SteppedGrid: addComponent versus addComponents
+	double[] xs = new double[n+1];
+	double[] ys = new double[m+1];
+	for (int i = 0; i <= n; i++) xs[i] = i;
+	for (int j = 0; j <= m; j++) ys[j] = j;
+	double[] uheights = new double[n*m];
+	double[] lheights = new double[n*m];
+	Model3D m3d1 = new Model3D(false);
+	SteppedGrid sg1 = new SteppedGrid(m3d1, xs, ys, 1.0, -1.0);
+	k = 0;
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < m; j++) {
+		if ((i - n/2)*(i - n/2) + (j - m/2)*(j - m/2) < 60) {
+		    uheights[k] = 0.5 + ((i + j) % 3) * 0.25;
+		    lheights[k] = -uheights[k];
+		    sg1.addComponent(i, j, uheights[k], lheights[k]);
+		} else {
+		    uheights[k] = Double.NaN;
+		    lheights[k] = Double.NaN;
+		}
+		k++;
+	    }
+	}
+	sg1.addsCompleted();
+	Model3D m3d2 = new Model3D(false);
+	SteppedGrid sg2 = new SteppedGrid(m3d2, xs, ys, 1.0, -1.0);
+	sg2.addComponents(DoubleBuffer.wrap(uheights),
+			  DoubleBuffer.wrap(lheights));
+	sg2.addsCompleted();
+	if (m3d1.size() != m3d2.size() || m3d1.volume() != m3d2.volume()
+	    || m3d1.notPrintable() || m3d2.notPrintable()) {
+	    throw new Exception("closed stepped grids differ");
+	}
+	if (!sg1.getBounds().equals(sg2.getBounds())) {
+	    throw new Exception("closed stepped grid bounds differ");
+	}
+	System.out.println("closed stepped grid: " + m3d2.size()
+			   + " triangles");
+
+	Model3D m3d3 = new Model3D(false);
+	SteppedGrid sg3 = new SteppedGrid(m3d3, xs, ys, 0.0, false);
+	Model3D m3d4 = new Model3D(false);
+	SteppedGrid sg4 = new SteppedGrid(m3d4, xs, ys, 0.0, false);
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < m; j++) {
+		k = i*m + j;
+		if (!Double.isNaN(uheights[k])) {
+		    sg3.addComponent(i, j, uheights[k]);
+		}
+	    }
+	}
+	sg3.addsCompleted();
+	sg4.addComponents(DoubleBuffer.wrap(uheights));
+	sg4.addsCompleted();
+	if (m3d3.size() != m3d4.size() || m3d3.area() != m3d4.area()) {
+	    throw new Exception("open stepped grids differ");
+	}
+	if (!sg3.getBounds().equals(sg4.getBounds())) {
+	    throw new Exception("open stepped grid bounds differ");
+	}
+	System.out.println("open stepped grid: " + m3d4.size()
+			   + " triangles");
+	try {
+	    sg4.addComponents(DoubleBuffer.wrap(uheights));
+	    throw new Exception("addComponents after addsCompleted");
+	} catch (IllegalStateException e) {
+	    System.out.println("expected exception: " + e.getMessage());
+	}
+	System.exit(0);
+    }
+}
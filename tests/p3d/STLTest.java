@@ -0,0 +1,260 @@
+import org.bzdev.p3d.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class STLTest {
+
+    static void addTorus(Model3D m3d, double R, double r, int nu, int nv) {
+	for (int i = 0; i < nu; i++) {
+	    double u1 = 2.0 * Math.PI * i / nu;
+	    double u2 = 2.0 * Math.PI * (i+1) / nu;
+	    for (int j = 0; j < nv; j++) {
+		double v1 = 2.0 * Math.PI * j / nv;
+		double v2 = 2.0 * Math.PI * (j+1) / nv;
+		double[] p11 = point(R, r, u1, v1);
+		double[] p21 = point(R, r, u2, v1);
+		double[] p22 = point(R, r, u2, v2);
+		double[] p12 = point(R, r, u1, v2);
+		m3d.addTriangle(p11[0], p11[1], p11[2],
+				p21[0], p21[1], p21[2],
+				p22[0], p22[1], p22[2]);
+		m3d.addTriangle(p11[0], p11[1], p11[2],
+				p22[0], p22[1], p22[2],
+				p12[0], p12[1], p12[2]);
+	    }
+	}
+    }
+
+    static double[] point(double R, double r, double u, double v) {
+	double rho = R + r * Math.cos(v);
+	return new double[] {
+	    rho * Math.cos(u), rho * Math.sin(u), r * Math.sin(v)
+	};
+    }
+
+    static void writeASCII(File f, int n, float[] coords, float[] normals)
+	throws IOException
+    {
+	PrintWriter w = new PrintWriter
+	    (new BufferedWriter(new FileWriter(f)));
+	w.println("solid torus test");
+	for (int i = 0; i < n; i++) {
+	    w.format("  facet normal %e %e %e\n", normals[3*i],
+		     normals[3*i+1], normals[3*i+2]);
+	    w.println("    outer loop");
+	    for (int j = 0; j < 3; j++) {
+		int k = 9*i + 3*j;
+		// Float.toString gives the shortest exact representation
+		w.println("      vertex " + coords[k] + " " + coords[k+1]
+			  + " " + coords[k+2]);
+	    }
+	    w.println("    endloop");
+	    w.println("  endfacet");
+	}
+	w.println("endsolid torus test");
+	w.close();
+    }
+
+    static void compare(String name, int n, float[] c1, float[] c2)
+	throws Exception
+    {
+	for (int i = 0; i < n; i++) {
+	    if (Float.floatToIntBits(c1[i]) != Float.floatToIntBits(c2[i])) {
+		throw new Exception(name + ": values differ at " + i
+				    + ": " + c1[i] + " != " + c2[i]);
+	    }
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int nu = (argv.length > 0)? Integer.parseInt(argv[0]): 400;
+	Model3D m3d = new Model3D();
+	addTorus(m3d, 30.0, 10.0, nu, nu/2);
+	int n = m3d.size();
+	System.out.println("number of triangles: " + n);
+
+	File bfile = File.createTempFile("stltest", ".stl");
+	bfile.deleteOnExit();
+	long start = System.nanoTime();
+	m3d.writeSTL("torus test", bfile);
+	long t = System.nanoTime() - start;
+	System.out.format("Model3D.writeSTL: %.4g ms\n", t * 1.0e-6);
+	if (bfile.length() != 84 + 50L * n) {
+	    throw new Exception("wrong binary file length");
+	}
+
+	start = System.nanoTime();
+	MappedSTLParser parser = new MappedSTLParser(bfile);
+	if (!parser.isBinary()) throw new Exception("binary file expected");
+	t = System.nanoTime() - start;
+	System.out.format("MappedSTLParser (binary): %.4g ms\n", t * 1.0e-6);
+	if (parser.getTriangleCount() != n) {
+	    throw new Exception("wrong triangle count");
+	}
+	float[] coords = parser.getCoordinates();
+	float[] normals = parser.getNormals();
+
+	start = System.nanoTime();
+	Model3D m3d1 = new Model3D();
+	BinarySTLParser sparser =
+	    new BinarySTLParser(new FileInputStream(bfile));
+	sparser.addToModel(m3d1);
+	t = System.nanoTime() - start;
+	System.out.format("BinarySTLParser.addToModel: %.4g ms\n", t * 1.0e-6);
+	start = System.nanoTime();
+	Model3D m3d2 = new Model3D();
+	parser.addToModel(m3d2);
+	t = System.nanoTime() - start;
+	System.out.format("MappedSTLParser.addToModel: %.4g ms\n", t * 1.0e-6);
+	if (m3d1.size() != n || m3d2.size() != n) {
+	    throw new Exception("wrong model size");
+	}
+
+	// write the packed arrays back and compare the files
+	File bfile2 = File.createTempFile("stltest", ".stl");
+	bfile2.deleteOnExit();
+	start = System.nanoTime();
+	try (FileChannel fc = new FileOutputStream(bfile2).getChannel()) {
+	    BinarySTLWriter w = new BinarySTLWriter(fc);
+	    w.writeHeader("torus test", n);
+	    // use uneven batches to test the writer's buffering
+	    int offset = 0;
+	    int batch = 1;
+	    while (offset < n) {
+		int cnt = Math.min(batch, n - offset);
+		w.writeFacets(coords, normals, offset, cnt);
+		offset += cnt;
+		batch = 3*batch + 1;
+	    }
+	    w.flush();
+	}
+	t = System.nanoTime() - start;
+	System.out.format("BinarySTLWriter: %.4g ms\n", t * 1.0e-6);
+	byte[] b1 = java.nio.file.Files.readAllBytes(bfile.toPath());
+	byte[] b2 = java.nio.file.Files.readAllBytes(bfile2.toPath());
+	if (!Arrays.equals(b1, b2)) {
+	    throw new Exception("rewritten binary file differs");
+	}
+
+	// computed normals
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	BinarySTLWriter.write("computed normals", coords, null,
+			      java.nio.channels.Channels.newChannel(bos));
+	ByteBuffer bb = ByteBuffer.wrap(bos.toByteArray());
+	bb.order(ByteOrder.LITTLE_ENDIAN);
+	if (bb.getInt(80) != n) throw new Exception("wrong count");
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < 3; j++) {
+		float nc = bb.getFloat(84 + 50*i + 4*j);
+		if (Math.abs(nc - normals[3*i+j]) > 1.0e-4) {
+		    throw new Exception("computed normal differs");
+		}
+	    }
+	}
+
+	try {
+	    BinarySTLWriter.write("bad\u00e9id", coords, null,
+				  java.nio.channels.Channels.newChannel(bos));
+	    throw new Exception("missing exception");
+	} catch (IllegalArgumentException e) {}
+	try {
+	    BinarySTLWriter.write("id", new float[10], null,
+				  java.nio.channels.Channels.newChannel(bos));
+	    throw new Exception("missing exception");
+	} catch (IllegalArgumentException e) {}
+
+	// ASCII STL
+	File afile = File.createTempFile("stltest", ".stl");
+	afile.deleteOnExit();
+	writeASCII(afile, n, coords, normals);
+	start = System.nanoTime();
+	MappedSTLParser aparser = new MappedSTLParser(afile);
+	if (aparser.isBinary()) throw new Exception("ASCII file expected");
+	t = System.nanoTime() - start;
+	System.out.format("MappedSTLParser (ASCII, %d bytes): %.4g ms\n",
+			  afile.length(), t * 1.0e-6);
+	if (aparser.getTriangleCount() != n) {
+	    throw new Exception("wrong ASCII triangle count: "
+				+ aparser.getTriangleCount());
+	}
+	compare("ASCII coordinates", 9*n, coords, aparser.getCoordinates());
+	float[] anormals = aparser.getNormals();
+	for (int i = 0; i < 3*n; i++) {
+	    if (Math.abs(anormals[i] - normals[i]) > 1.0e-6) {
+		throw new Exception("ASCII normals differ");
+	    }
+	}
+
+	// attribute byte counts
+	File vfile = File.createTempFile("stltest", ".stl");
+	vfile.deleteOnExit();
+	int nv = Math.min(n, 100);
+	bb = ByteBuffer.allocate(84 + 60*nv);
+	bb.order(ByteOrder.LITTLE_ENDIAN);
+	bb.position(80);
+	bb.putInt(nv);
+	for (int i = 0; i < nv; i++) {
+	    for (int j = 0; j < 3; j++) bb.putFloat(normals[3*i+j]);
+	    for (int j = 0; j < 9; j++) bb.putFloat(coords[9*i+j]);
+	    bb.putShort((short)10);
+	    bb.put(new byte[10]);
+	}
+	try (FileOutputStream fos = new FileOutputStream(vfile)) {
+	    fos.write(bb.array());
+	}
+	MappedSTLParser vparser = new MappedSTLParser(vfile);
+	if (!vparser.isBinary() || vparser.getTriangleCount() != nv) {
+	    throw new Exception("variable-length facets not parsed");
+	}
+	compare("variable-length facets", 9*nv, coords,
+		vparser.getCoordinates());
+
+	// errors
+	File efile = File.createTempFile("stltest", ".stl");
+	efile.deleteOnExit();
+	try (PrintWriter w = new PrintWriter(efile)) {
+	    w.println("solid bad");
+	    w.println("facet normal 0 0 1 outer loop vertex 0 0 0");
+	    w.println("vertex 1 0 0 endloop endfacet");
+	    w.println("endsolid bad");
+	}
+	try {
+	    new MappedSTLParser(efile).getTriangleCount();
+	    throw new Exception("missing exception");
+	} catch (IOException e) {
+	    System.out.println("expected exception: " + e.getMessage());
+	}
+	try (FileOutputStream fos = new FileOutputStream(efile)) {
+	    fos.write(Arrays.copyOf(b1, b1.length - 25));
+	}
+	MappedSTLParser tparser = new MappedSTLParser(efile);
+	tparser.setIgnoreAttributeByteCounts(true);
+	try {
+	    tparser.getTriangleCount();
+	    throw new Exception("missing exception");
+	} catch (IOException e) {
+	    System.out.println("expected exception: " + e.getMessage());
+	}
+	// a short file whose header claims a huge number of facets
+	bb = ByteBuffer.allocate(100);
+	bb.order(ByteOrder.LITTLE_ENDIAN);
+	bb.putInt(80, 200000000);
+	try (FileOutputStream fos = new FileOutputStream(efile)) {
+	    fos.write(bb.array());
+	}
+	for (int i = 0; i < 2; i++) {
+	    tparser = new MappedSTLParser(efile);
+	    tparser.setIgnoreAttributeByteCounts(i == 1);
+	    try {
+		tparser.getTriangleCount();
+		throw new Exception("missing exception");
+	    } catch (IOException e) {
+		System.out.println("expected exception: " + e.getMessage());
+	    }
+	}
+	System.exit(0);
+    }
+}
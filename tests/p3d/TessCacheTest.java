@@ -0,0 +1,150 @@
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Iterator;
+import org.bzdev.p3d.*;
+import org.bzdev.geom.*;
+
+public class TessCacheTest {
+
+    static Model3D createModel() throws Exception {
+	Path2D circle = Paths2D.createArc(51.0, 51.0, 51.0, 1.0,
+					  2*Math.PI, Math.PI/2);
+	circle.closePath();
+	Path3D circle3 = new Path3D.Double(circle, (nn, p, t, bbb) -> {
+		return p;}, 0);
+	PathIterator3D pi = circle3.getPathIterator(null);
+	Surface3D surface = new Surface3D.Double();
+	double lastx = 0.0, lasty = 0.0, lastz = 0.0;
+	double[] coords = new double[48];
+	while (!pi.isDone()) {
+	    switch(pi.currentSegment(coords)) {
+	    case PathIterator3D.SEG_MOVETO:
+		lastx = coords[0];
+		lasty = coords[1];
+		lastz = coords[2];
+		break;
+	    case PathIterator3D.SEG_CUBICTO:
+		surface.addCubicVertex(lastx, lasty, lastz,
+				       PathIterator3D.SEG_CUBICTO,
+				       coords, 51.0, 51.0, 50.0);
+		surface.addFlippedCubicVertex(lastx, lasty, lastz,
+					      PathIterator3D.SEG_CUBICTO,
+					      coords, 51.0, 51.0, -50.0);
+		lastx = coords[6];
+		lasty = coords[7];
+		lastz = coords[8];
+		break;
+	    case PathIterator3D.SEG_CLOSE:
+		break;
+	    default:
+		throw new Exception("unexpected case in switch");
+	    }
+	    pi.next();
+	}
+	Model3D m3d = new Model3D();
+	m3d.append(surface);
+	return m3d;
+    }
+
+    static ArrayList<Model3D.Triangle> list(Iterator<Model3D.Triangle> it) {
+	ArrayList<Model3D.Triangle> result = new ArrayList<>();
+	while (it.hasNext()) result.add(it.next());
+	return result;
+    }
+
+    static boolean same(ArrayList<Model3D.Triangle> l1,
+			ArrayList<Model3D.Triangle> l2)
+    {
+	if (l1.size() != l2.size()) return false;
+	for (int i = 0; i < l1.size(); i++) {
+	    if (l1.get(i) != l2.get(i)) return false;
+	}
+	return true;
+    }
+
+    static boolean equal(ArrayList<Model3D.Triangle> l1,
+			 ArrayList<Model3D.Triangle> l2)
+    {
+	if (l1.size() != l2.size()) return false;
+	for (int i = 0; i < l1.size(); i++) {
+	    if (l1.get(i).compareTo(l2.get(i)) != 0) return false;
+	}
+	return true;
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int level = (argv.length > 0)? Integer.parseInt(argv[0]): 5;
+	Model3D m3d = createModel();
+	m3d.setTessellationLevel(level);
+
+	long start = System.nanoTime();
+	ArrayList<Model3D.Triangle> l1 = list(m3d.tessellate());
+	long t1 = System.nanoTime() - start;
+	start = System.nanoTime();
+	ArrayList<Model3D.Triangle> l2 = list(m3d.tessellate());
+	long t2 = System.nanoTime() - start;
+	System.out.format("%d triangles: first call %.4g ms, "
+			  + "second call %.4g ms\n", l1.size(),
+			  t1 * 1.0e-6, t2 * 1.0e-6);
+	if (!same(l1, l2)) throw new Exception("tessellation not cached");
+
+	// a different level is cached separately
+	ArrayList<Model3D.Triangle> l3 = list(m3d.tessellate(1));
+	if (l3.size() >= l1.size()) throw new Exception("wrong level");
+	if (!same(l1, list(m3d.tessellate()))) {
+	    throw new Exception("level-0 cache replaced");
+	}
+	if (!same(l3, list(m3d.tessellate(1)))) {
+	    throw new Exception("level-1 tessellation not cached");
+	}
+
+	// an incomplete iteration is not cached
+	m3d.clearTessellationCache();
+	Iterator<Model3D.Triangle> it = m3d.tessellate();
+	it.next();
+	ArrayList<Model3D.Triangle> l4 = list(m3d.tessellate());
+	if (same(l1, l4) || !equal(l1, l4)) {
+	    throw new Exception("incomplete tessellation cached");
+	}
+	if (!same(l4, list(m3d.tessellate()))) {
+	    throw new Exception("tessellation not cached");
+	}
+
+	// modifying the model during an iteration
+	it = m3d.tessellate(2);
+	it.next();
+	Object tag = "extra";
+	m3d.addTriangle(200.0, 200.0, 200.0, 201.0, 200.0, 200.0,
+			200.0, 201.0, 200.0, null, tag);
+	while (it.hasNext()) it.next();
+	ArrayList<Model3D.Triangle> l5 = list(m3d.tessellate());
+	if (l5.size() != l1.size() + 1) {
+	    throw new Exception("addTriangle did not invalidate the cache");
+	}
+	Model3D m3d2 = createModel();
+	m3d2.addTriangle(200.0, 200.0, 200.0, 201.0, 200.0, 200.0,
+			 200.0, 201.0, 200.0, null, tag);
+	if (!equal(list(m3d.tessellate(2)), list(m3d2.tessellate(2)))) {
+	    throw new Exception("stale tessellation cached");
+	}
+	m3d.removeTriangle(tag);
+	if (!equal(l1, list(m3d.tessellate()))) {
+	    throw new Exception("removeTriangle did not invalidate the cache");
+	}
+	m3d.append(createModel());
+	if (list(m3d.tessellate()).size() != 2 * l1.size()) {
+	    throw new Exception("append did not invalidate the cache");
+	}
+
+	// repeated queries on an unchanged model
+	m3d = createModel();
+	m3d.setTessellationLevel(level);
+	start = System.nanoTime();
+	for (int i = 0; i < 5; i++) {
+	    m3d.writeSTL("test", new java.io.ByteArrayOutputStream());
+	}
+	long t = System.nanoTime() - start;
+	System.out.format("writeSTL: %.4g ms per call\n", t * 1.0e-6 / 5);
+	System.exit(0);
+    }
+}
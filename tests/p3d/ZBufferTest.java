@@ -0,0 +1,218 @@
+import org.bzdev.p3d.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+public class ZBufferTest {
+
+    static void addTorus(Model3D m3d, double R, double r, int nu, int nv) {
+	for (int i = 0; i < nu; i++) {
+	    double u1 = 2.0 * Math.PI * i / nu;
+	    double u2 = 2.0 * Math.PI * (i+1) / nu;
+	    for (int j = 0; j < nv; j++) {
+		double v1 = 2.0 * Math.PI * j / nv;
+		double v2 = 2.0 * Math.PI * (j+1) / nv;
+		double[] p11 = point(R, r, u1, v1);
+		double[] p21 = point(R, r, u2, v1);
+		double[] p22 = point(R, r, u2, v2);
+		double[] p12 = point(R, r, u1, v2);
+		m3d.addTriangle(p11[0], p11[1], p11[2],
+				p21[0], p21[1], p21[2],
+				p22[0], p22[1], p22[2]);
+		m3d.addTriangle(p11[0], p11[1], p11[2],
+				p22[0], p22[1], p22[2],
+				p12[0], p12[1], p12[2]);
+	    }
+	}
+    }
+
+    static double[] point(double R, double r, double u, double v) {
+	double rho = R + r * Math.cos(v);
+	return new double[] {
+	    rho * Math.cos(u), rho * Math.sin(u), r * Math.sin(v)
+	};
+    }
+
+    static Model3D.Image createImage(int width, int height) {
+	Model3D.Image image =
+	    new Model3D.Image(width, height, BufferedImage.TYPE_INT_RGB);
+	Graphics2D g2d = image.createGraphics();
+	g2d.setColor(Color.WHITE);
+	g2d.fillRect(0, 0, width, height);
+	g2d.dispose();
+	return image;
+    }
+
+    static BufferedImage toBufferedImage(Model3D.Image image) {
+	// Model3D.Image does not expose its buffered image, so write
+	// it to a temporary file and read it back.
+	BufferedImage bi;
+	try {
+	    File tmp = File.createTempFile("zbtest", ".png");
+	    tmp.deleteOnExit();
+	    image.write("png", tmp);
+	    bi = javax.imageio.ImageIO.read(tmp);
+	    tmp.delete();
+	} catch (Exception e) {
+	    throw new RuntimeException(e);
+	}
+	return bi;
+    }
+
+    static void configure(Model3D m3d, Model3D.Image image) {
+	image.setCoordRotation(0.0, Math.PI/3, 0.0);
+	image.setColorFactor(0.6);
+	image.setNormalFactor(0.5);
+	image.setBacksideColor(Color.RED);
+	m3d.setImageParameters(image, 10.0);
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int n = (argv.length > 0)? Integer.parseInt(argv[0]): 200;
+	int width = 800;
+	int height = 600;
+
+	// Two intersecting triangles: the painter's algorithm draws the
+	// blue triangle (with the largest z coordinate) over the red one
+	// everywhere, but the red one is in front where x < 0.
+	Model3D m3d = new Model3D();
+	m3d.addTriangle(-20.0, -20.0, 0.0, 20.0, -20.0, 0.0, 0.0, 20.0, 0.0,
+			Color.RED, null);
+	m3d.addTriangle(-20.0, -10.0, -10.0, 20.0, -10.0, 10.0,
+			0.0, 10.0, 0.0, Color.BLUE, null);
+	m3d.setZBufferMode(true);
+	if (m3d.getZBufferMode() == false) {
+	    throw new Exception("z-buffer mode not set");
+	}
+	Model3D.Image image = createImage(400, 400);
+	m3d.setImageParameters(image, 10.0);
+	m3d.render(image);
+	BufferedImage bi = toBufferedImage(image);
+	int left = bi.getRGB(150, 200);
+	int right = bi.getRGB(250, 200);
+	if (((left >> 16) & 0xff) <= (left & 0xff)) {
+	    throw new Exception("red triangle should be in front: "
+				+ Integer.toHexString(left));
+	}
+	if (((right >> 16) & 0xff) >= (right & 0xff)) {
+	    throw new Exception("blue triangle should be in front: "
+				+ Integer.toHexString(right));
+	}
+
+	// A translucent triangle in front of an opaque one that is added
+	// later: the translucent triangle must still be visible.
+	m3d = new Model3D();
+	m3d.addTriangle(-20.0, -20.0, 10.0, 20.0, -20.0, 10.0, 0.0, 20.0, 10.0,
+			new Color(0, 255, 0, 128), null);
+	m3d.addTriangle(-20.0, -20.0, 0.0, 20.0, -20.0, 0.0, 0.0, 20.0, 0.0,
+			Color.BLUE, null);
+	m3d.setZBufferMode(true);
+	image = createImage(400, 400);
+	m3d.setImageParameters(image, 10.0);
+	m3d.render(image);
+	bi = toBufferedImage(image);
+	int center = bi.getRGB(200, 200);
+	if (((center >> 8) & 0xff) < 64 || (center & 0xff) < 64) {
+	    throw new Exception("translucent triangle not blended: "
+				+ Integer.toHexString(center));
+	}
+
+	// A torus rendered using each mode.
+	m3d = new Model3D();
+	addTorus(m3d, 30.0, 10.0, 2*n, n);
+	System.out.println("number of triangles: " + m3d.size());
+
+	Model3D.Image pimage = createImage(width, height);
+	configure(m3d, pimage);
+	m3d.setZBufferMode(false);
+	m3d.render(pimage);
+
+	Model3D.Image zimage = createImage(width, height);
+	configure(m3d, zimage);
+	m3d.setZBufferMode(true);
+	m3d.render(zimage);
+
+	// the same model rendered by using a graphics context
+	Model3D.Image gimage = createImage(width, height);
+	configure(m3d, gimage);
+	Graphics2D g2d = gimage.createGraphics();
+	m3d.render(gimage.getImageData(), g2d);
+	g2d.dispose();
+
+	BufferedImage pbi = toBufferedImage(pimage);
+	BufferedImage zbi = toBufferedImage(zimage);
+	BufferedImage gbi = toBufferedImage(gimage);
+	int foreground = 0;
+	int coverageDiffs = 0;
+	long colorDiff = 0;
+	for (int i = 0; i < width; i++) {
+	    for (int j = 0; j < height; j++) {
+		int p = pbi.getRGB(i, j) & 0xffffff;
+		int z = zbi.getRGB(i, j) & 0xffffff;
+		int g = gbi.getRGB(i, j) & 0xffffff;
+		if (z != g) {
+		    throw new Exception("graphics-context rendering differs at "
+					+ "(" + i + ", " + j + ")");
+		}
+		if (p != 0xffffff) foreground++;
+		if ((p == 0xffffff) != (z == 0xffffff)) {
+		    coverageDiffs++;
+		} else {
+		    for (int k = 0; k < 24; k += 8) {
+			colorDiff += Math.abs(((p >> k) & 0xff)
+					      - ((z >> k) & 0xff));
+		    }
+		}
+	    }
+	}
+	System.out.format("coverage differs for %d of %d pixels\n",
+			  coverageDiffs, foreground);
+	System.out.format("mean color difference: %.3g\n",
+			  colorDiff / (3.0 * foreground));
+	if (foreground == 0 || coverageDiffs > foreground / 50) {
+	    throw new Exception("z-buffer coverage differs");
+	}
+
+	// translations, with edges shown
+	Model3D.Image timage1 = createImage(width, height);
+	configure(m3d, timage1);
+	timage1.setEdgeColor(Color.GREEN);
+	m3d.render(timage1, false, 5.0, -7.0);
+	Model3D.Image timage2 = createImage(width, height);
+	configure(m3d, timage2);
+	timage2.setEdgeColor(Color.GREEN);
+	g2d = timage2.createGraphics();
+	m3d.render(timage2.getImageData(), g2d, false, 5.0, -7.0);
+	g2d.dispose();
+	BufferedImage tbi1 = toBufferedImage(timage1);
+	BufferedImage tbi2 = toBufferedImage(timage2);
+	for (int i = 0; i < width; i++) {
+	    for (int j = 0; j < height; j++) {
+		if (tbi1.getRGB(i, j) != tbi2.getRGB(i, j)) {
+		    throw new Exception("translated images differ");
+		}
+	    }
+	}
+
+	if (argv.length > 1) {
+	    pimage.write("png", new File("zbuffer-painter.png"));
+	    zimage.write("png", new File("zbuffer.png"));
+	}
+
+	int count = 5;
+	for (boolean mode: new boolean[] {false, true, false, true}) {
+	    m3d.setZBufferMode(mode);
+	    long start = System.nanoTime();
+	    for (int i = 0; i < count; i++) {
+		m3d.render(pimage);
+	    }
+	    long t = System.nanoTime() - start;
+	    System.out.format("%s: %.4g ms per frame\n",
+			      (mode? "z-buffer": "painter's algorithm"),
+			      t * 1.0e-6 / count);
+	}
+	System.exit(0);
+    }
+}
@@ -0,0 +1,169 @@
+import org.bzdev.util.ACMatcher;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ACByteTest {
+
+    // matches as "index:start:end" strings, sorted
+    static List<String> expected(ACMatcher matcher, String text) {
+	ArrayList<String> list = new ArrayList<>();
+	for (ACMatcher.MatchResult mr: matcher.iterableOver(text)) {
+	    // convert char offsets to UTF-8 byte offsets
+	    int start = text.substring(0, mr.getStart())
+		.getBytes(StandardCharsets.UTF_8).length;
+	    int end = text.substring(0, mr.getEnd())
+		.getBytes(StandardCharsets.UTF_8).length;
+	    list.add(mr.getIndex() + ":" + start + ":" + end);
+	}
+	Collections.sort(list);
+	return list;
+    }
+
+    static List<String> collect(ACMatcher.ByteDFA dfa, byte[] bytes,
+				int nthreads)
+    {
+	List<String> list = Collections.synchronizedList(new ArrayList<>());
+	dfa.scan(bytes, 0, bytes.length, nthreads, (index, start, end) -> {
+		list.add(index + ":" + start + ":" + end);
+		return true;
+	    });
+	Collections.sort(list);
+	return list;
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int nthreads = (argv.length > 0)? Integer.parseInt(argv[0]):
+	    Runtime.getRuntime().availableProcessors();
+	Random r = new Random(37);
+	String chars = "abcab\u00e9\u00e8 ";
+	String[][] patternSets = {
+	    {"a", "ab", "bab", "", "abcab", "caf\u00e9", "\u00e9\u00e8"},
+	    {"he", "she", "his", "hers"},
+	    {"aaaa", "aa", "a"},
+	    {"b\u00e9 a"},
+	    {"ab", "ab", "b", "", "ab"}
+	};
+	for (String[] patterns: patternSets) {
+	    for (boolean ignoreCase: new boolean[] {false, true}) {
+		ACMatcher matcher = new ACMatcher(ignoreCase, patterns);
+		ACMatcher.ByteDFA dfa = matcher.getByteDFA();
+		if (dfa != matcher.getByteDFA()) {
+		    throw new Exception("DFA not cached");
+		}
+		for (int trial = 0; trial < 300; trial++) {
+		    StringBuilder sb = new StringBuilder();
+		    int len = r.nextInt(200);
+		    for (int i = 0; i < len; i++) {
+			sb.append(chars.charAt(r.nextInt(chars.length())));
+		    }
+		    String text = ignoreCase? sb.toString().toUpperCase()
+			.replace('\u00c9', '\u00e9').replace('\u00c8', '\u00e8'):
+			sb.toString();
+		    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		    List<String> e = expected(matcher, text);
+		    for (int nt = 1; nt < 6; nt++) {
+			if (!e.equals(collect(dfa, bytes, nt))) {
+			    System.out.println(text + ": " + e + " "
+					       + collect(dfa, bytes, nt));
+			    throw new Exception("matches differ");
+			}
+		    }
+		    List<String> list = new ArrayList<>();
+		    dfa.scan(ByteBuffer.wrap(bytes), (index, start, end) -> {
+			    list.add(index + ":" + start + ":" + end);
+			    return true;
+			});
+		    Collections.sort(list);
+		    if (!e.equals(list)) {
+			throw new Exception("ByteBuffer matches differ");
+		    }
+		}
+	    }
+	}
+	// duplicate patterns are each reported
+	ACMatcher matcher = new ACMatcher("ab", "ab", "b");
+	List<String> dups =
+	    collect(matcher.getByteDFA(),
+		    "xxabx".getBytes(StandardCharsets.US_ASCII), 1);
+	if (!dups.equals(Arrays.asList("0:2:4", "1:2:4", "2:3:4"))) {
+	    throw new Exception("duplicate patterns: " + dups);
+	}
+
+	// stopping a search
+	matcher = new ACMatcher("ab");
+	int[] count = {0};
+	boolean done = matcher.getByteDFA()
+	    .scan("abababab".getBytes(StandardCharsets.US_ASCII),
+		  (index, start, end) -> {
+		      return ++count[0] < 2;
+		  });
+	if (done || count[0] != 2) throw new Exception("stop failed");
+
+	// a large log-like file
+	String[] words = {"ERROR", "WARN", "timeout", "disk full",
+			  "connection reset", "user=admin"};
+	String[] fill = {"INFO", "request", "ok", "user=guest", "time",
+			 "connection", "disk", "WARNING", "ERR"};
+	File f = new File("ACByteTest.log");
+	StringBuilder text = new StringBuilder();
+	try (Writer w = new BufferedWriter(new FileWriter(f))) {
+	    for (int i = 0; i < 1000000; i++) {
+		String line = fill[r.nextInt(fill.length)] + " "
+		    + ((i % 17 == 0)? words[r.nextInt(words.length)]:
+		       fill[r.nextInt(fill.length)])
+		    + " " + i + "\n";
+		w.write(line);
+		if (i < 100000) text.append(line);
+	    }
+	}
+	matcher = new ACMatcher(words);
+	ACMatcher.ByteDFA dfa = matcher.getByteDFA();
+	String s = text.toString();
+	if (!expected(matcher, s).equals
+	    (collect(dfa, s.getBytes(StandardCharsets.UTF_8), nthreads))) {
+	    throw new Exception("log matches differ");
+	}
+	long t1 = 0, t2 = 0, t3 = 0;
+	long n1 = 0, n2 = 0, n3 = 0;
+	for (int trial = 0; trial < 3; trial++) {
+	    long start = System.nanoTime();
+	    n1 = 0;
+	    try (BufferedReader rd = new BufferedReader(new FileReader(f))) {
+		String line;
+		while ((line = rd.readLine()) != null) {
+		    for (ACMatcher.MatchResult mr: matcher.iterableOver(line)) {
+			n1++;
+		    }
+		}
+	    }
+	    t1 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    AtomicLong counter = new AtomicLong();
+	    dfa.scan(f, (index, s1, e1) -> {
+		    counter.incrementAndGet();
+		    return true;
+		});
+	    n2 = counter.get();
+	    t2 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    AtomicLong counter2 = new AtomicLong();
+	    dfa.scan(f, Math.max(nthreads, 2), (index, s1, e1) -> {
+		    counter2.incrementAndGet();
+		    return true;
+		});
+	    n3 = counter2.get();
+	    t3 = System.nanoTime() - start;
+	}
+	long size = f.length();
+	f.delete();
+	if (n1 != n2 || n1 != n3) throw new Exception("counts differ");
+	System.out.format("iterator over lines: %.3g MB/s\n",
+			  (size * 1.0e3) / t1);
+	System.out.format("ByteDFA: %.3g MB/s\n", (size * 1.0e3) / t2);
+	System.out.format("ByteDFA, %d threads: %.3g MB/s\n",
+			  Math.max(nthreads, 2), (size * 1.0e3) / t3);
+    }
+}
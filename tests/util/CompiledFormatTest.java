@@ -0,0 +1,160 @@
+import org.bzdev.util.*;
+import java.util.*;
+
+public class CompiledFormatTest {
+
+    static String safe(Locale l, String format, Object... args) {
+	return new SafeFormatter(l).format(format, args).toString();
+    }
+
+    static String sci(Locale l, String format, Object... args) {
+	return new SciFormatter(l).format(format, args).toString();
+    }
+
+    public static void main(String argv[]) throws Exception {
+	String[] formats = {
+	    "", "no directives", "100%% done%n", "%s", "%d", "%5d|%-5d|",
+	    "x = %8.3f, y = %.2e", "%2$s %1$s %<s %s", "%3$d %d %1$d",
+	    "case %d: x = %5.3e, x= %<#5.3e", "%#5.3g and %5.3g", "%x %o %X",
+	    "%,d %+d %(d", "%08.2f", "%b %c %h", "%S %10s|", "%5%|", "%%%d%%",
+	    "%tY-%<tm-%<td", "%1$#5.3g %1$#5.3e %1$#5.3E",
+	};
+	Object[][] argsets = {
+	    {}, {1, 2.5, "str"}, {3, 2, 1}, {20000.0, .0000002, 1.0},
+	    {-20000, 10.0, -0.5}, {12345678L, 'c', true}, {null, null, null},
+	    {20.0, 30.0, 40.0}, {"a", "b", "c", "d"},
+	    {new GregorianCalendar(2020, 1, 3), 1, 2},
+	};
+	Locale[] locales = {Locale.US, Locale.FRANCE, null,
+			    Locale.forLanguageTag("ar-EG")};
+	int count = 0;
+	for (Locale l: locales) {
+	    for (String format: formats) {
+		SafeFormatter.Compiled sf = SafeFormatter.compile(l, format);
+		SciFormatter.Compiled cf = SciFormatter.compile(l, format);
+		for (Object[] args: argsets) {
+		    // When a directive fails, only that directive is
+		    // replaced, so only successful cases are compared.
+		    String expected;
+		    try {
+			expected = String.format(l, format, args);
+			if (!expected.equals(safe(l, format, args))) {
+			    throw new Exception("String.format differs");
+			}
+		    } catch (IllegalFormatException e) {
+			expected = null;
+		    }
+		    if (expected != null) {
+			String result = sf.format(args);
+			if (!result.equals(expected)) {
+			    System.out.println("expected: " + expected);
+			    System.out.println("result: " + result);
+			    throw new Exception("SafeFormatter: " + format
+						+ ", locale " + l);
+			}
+			count++;
+		    }
+		    try {
+			expected = sci(l, format, args);
+		    } catch (IllegalFormatException e) {
+			expected = null;
+		    } catch (ArrayIndexOutOfBoundsException e) {
+			// SciFormatter quirk for %n and %% with no arguments
+			expected = null;
+		    }
+		    String result;
+		    try {
+			result = cf.format(args);
+		    } catch (IllegalFormatException e) {
+			result = null;
+		    }
+		    // SciFormatter.format uses the Double created for one
+		    // directive when a later '#' directive refers to the same
+		    // non-Double argument, so that case is not compared.
+		    if (format.indexOf('#') != -1 && args.length > 0
+			&& args[0] instanceof Integer) {
+			expected = null;
+		    }
+		    if (expected != null && !expected.equals(result)) {
+			System.out.println("expected: " + expected);
+			System.out.println("result: " + result);
+			throw new Exception("SciFormatter: " + format
+					    + ", locale " + l);
+		    }
+		    if (expected != null) count++;
+		}
+	    }
+	}
+	System.out.println(count + " formats compared");
+
+	// fallback for a single directive
+	String s = SafeFormatter.compile(Locale.US, "%d %5.2f %s")
+	    .format("x", 2.0, 3);
+	if (!s.equals("x  2.00 3")) throw new Exception("fallback: " + s);
+	try {
+	    SafeFormatter.compile("%d %d").format(1);
+	    throw new Exception("missing argument not detected");
+	} catch (MissingFormatArgumentException e) {}
+	try {
+	    SafeFormatter.compile("50%");
+	    throw new Exception("bad format not detected");
+	} catch (UnknownFormatConversionException e) {}
+	// strict mode
+	try {
+	    SciFormatter.compile(Locale.US, "%d", true).format(20.0);
+	    throw new Exception("strict mode ignored");
+	} catch (IllegalFormatConversionException e) {}
+	// a toString method that formats a message recursively
+	Object nested = new Object() {
+		public String toString() {
+		    return SafeFormatter.formatMessage("<%s>", "inner");
+		}
+	    };
+	s = SafeFormatter.formatMessage("outer %s %d", nested, 5);
+	if (!s.equals("outer <inner> 5")) throw new Exception("nested: " + s);
+	StringBuilder sb = new StringBuilder("> ");
+	SciFormatter.compile(Locale.US, "%#.3e").formatTo(sb, 1.0e-12);
+	if (!sb.toString().equals("> " + sci(Locale.US, "%#.3e", 1.0e-12))) {
+	    throw new Exception("formatTo: " + sb);
+	}
+
+	String format = "value %s at %d, time %g (%s)";
+	int n = 200000;
+	for (int k = 0; k < 2; k++) {
+	    long start = System.nanoTime();
+	    for (int i = 0; i < n; i++) {
+		new SafeFormatter().format(format, "obj", i, i * 0.5, "ok")
+		    .toString();
+	    }
+	    long t1 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    for (int i = 0; i < n; i++) {
+		SafeFormatter.formatMessage(format, "obj", i, i * 0.5, "ok");
+	    }
+	    long t2 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    for (int i = 0; i < n; i++) {
+		new SciFormatter().format(format, "obj", i, i * 0.5, "ok")
+		    .toString();
+	    }
+	    long t3 = System.nanoTime() - start;
+	    SciFormatter.Compiled cf = SciFormatter.compile(format);
+	    sb = new StringBuilder();
+	    start = System.nanoTime();
+	    for (int i = 0; i < n; i++) {
+		sb.setLength(0);
+		cf.formatTo(sb, "obj", i, i * 0.5, "ok");
+	    }
+	    long t4 = System.nanoTime() - start;
+	    if (k == 0) continue;
+	    System.out.format("new SafeFormatter(): %.4g calls/s\n",
+			      n / (t1 * 1.0e-9));
+	    System.out.format("SafeFormatter.formatMessage: %.4g calls/s\n",
+			      n / (t2 * 1.0e-9));
+	    System.out.format("new SciFormatter(): %.4g calls/s\n",
+			      n / (t3 * 1.0e-9));
+	    System.out.format("SciFormatter.Compiled.formatTo: %.4g calls/s\n",
+			      n / (t4 * 1.0e-9));
+	}
+    }
+}
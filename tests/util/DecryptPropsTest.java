@@ -0,0 +1,71 @@
+import org.bzdev.util.ConfigPropUtilities;
+import java.util.Arrays;
+import java.util.Properties;
+
+public class DecryptPropsTest {
+
+    public static void main(String argv[]) throws Exception {
+	char[] password = "password".toCharArray();
+	Properties props = new Properties();
+	int n = 40;
+	for (int i = 0; i < n; i++) {
+	    ConfigPropUtilities.setProperty(props, "ebase64.secret" + i,
+					    "secret value " + i, password);
+	}
+	props.setProperty("ebase64.copy", props.getProperty("ebase64.secret0"));
+	ConfigPropUtilities.setProperty(props, "base64.plain", "plain value");
+	ConfigPropUtilities.setProperty(props, "key", "$(base64.plain)!");
+
+	long start = System.nanoTime();
+	for (int i = 0; i < n; i++) {
+	    ConfigPropUtilities.getDecryptedProperty(props, "ebase64.secret" + i,
+						     password);
+	}
+	long t1 = System.nanoTime() - start;
+	char[] saved;
+	start = System.nanoTime();
+	try (ConfigPropUtilities.Decrypted decrypted =
+	     ConfigPropUtilities.decryptProperties(props, password)) {
+	    long t2 = System.nanoTime() - start;
+	    if (decrypted.keySet().size() != n + 1) {
+		throw new Exception("wrong number of keys");
+	    }
+	    for (int i = 0; i < n; i++) {
+		String key = "ebase64.secret" + i;
+		char[] expected = ConfigPropUtilities
+		    .getDecryptedProperty(props, key, password);
+		if (!Arrays.equals(expected, decrypted.get(key))) {
+		    throw new Exception("values differ for " + key);
+		}
+	    }
+	    if (!Arrays.equals(decrypted.get("ebase64.copy"),
+			       decrypted.get("ebase64.secret0"))
+		|| !new String(decrypted.get("key")).equals("plain value!")
+		|| decrypted.get("ebase64.missing").length != 0) {
+		throw new Exception("unexpected value");
+	    }
+	    saved = decrypted.get("ebase64.secret1");
+	    System.out.format("getDecryptedProperty: %.3g ms\n", t1 * 1.0e-6);
+	    System.out.format("decryptProperties: %.3g ms\n", t2 * 1.0e-6);
+	}
+	for (char ch: saved) {
+	    if (ch != '\0') throw new Exception("value not zeroed");
+	}
+
+	try {
+	    ConfigPropUtilities.decryptProperties(props,
+						  "wrong".toCharArray());
+	    throw new Exception("wrong password accepted");
+	} catch (java.security.GeneralSecurityException e) {}
+
+	// a value that is not valid base64 must be reported no matter
+	// which thread decrypts it
+	props.setProperty("ebase64.bad", "===not base64!");
+	for (int i = 0; i < 10; i++) {
+	    try {
+		ConfigPropUtilities.decryptProperties(props, password);
+		throw new Exception("malformed value accepted");
+	    } catch (java.security.GeneralSecurityException e) {}
+	}
+    }
+}
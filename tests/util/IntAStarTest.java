@@ -0,0 +1,156 @@
+import org.bzdev.util.AStarSearch;
+import org.bzdev.util.IntAStarSearch;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class IntAStarTest {
+
+    static final double SQRT2 = Math.sqrt(2.0);
+
+    // An 8-connected grid with blocked cells.
+    static int width;
+    static int height;
+    static boolean[] blocked;
+
+    static void forEachNeighbor(int node, IntAStarSearch.EdgeConsumer c) {
+	int x = node % width;
+	int y = node / width;
+	for (int dy = -1; dy <= 1; dy++) {
+	    int yy = y + dy;
+	    if (yy < 0 || yy >= height) continue;
+	    for (int dx = -1; dx <= 1; dx++) {
+		int xx = x + dx;
+		if (xx < 0 || xx >= width || (dx == 0 && dy == 0)) continue;
+		int nbr = yy * width + xx;
+		if (blocked[nbr]) continue;
+		c.accept(nbr, (dx != 0 && dy != 0)? SQRT2: 1.0);
+	    }
+	}
+    }
+
+    static double dist(int n1, int n2) {
+	int dx = Math.abs(n1 % width - n2 % width);
+	int dy = Math.abs(n1 / width - n2 / width);
+	// octile distance
+	return Math.max(dx, dy) + (SQRT2 - 1.0) * Math.min(dx, dy);
+    }
+
+    static double cost(int[] path) {
+	double sum = 0.0;
+	for (int i = 1; i < path.length; i++) {
+	    sum += (path[i-1] % width != path[i] % width
+		    && path[i-1] / width != path[i] / width)? SQRT2: 1.0;
+	}
+	return sum;
+    }
+
+    static boolean valid(int[] path, int start, int goal) {
+	if (path[0] != start || path[path.length-1] != goal) return false;
+	for (int i = 1; i < path.length; i++) {
+	    if (blocked[path[i]] || dist(path[i-1], path[i]) > 1.5) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    static void setup(Random r, int w, int h, double density) {
+	width = w;
+	height = h;
+	blocked = new boolean[w * h];
+	for (int i = 0; i < blocked.length; i++) {
+	    blocked[i] = r.nextDouble() < density;
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	Random r = new Random(41);
+	setup(r, 60, 40, 0.3);
+	IntAStarSearch search = new IntAStarSearch
+	    (width * height, IntAStarTest::forEachNeighbor,
+	     IntAStarTest::dist);
+	IntAStarSearch dijkstra = new IntAStarSearch
+	    (width * height, IntAStarTest::forEachNeighbor, null);
+	AStarSearch<Integer> osearch = new AStarSearch<Integer>
+	    ((n) -> {
+		Stream.Builder<Integer> builder = Stream.builder();
+		forEachNeighbor(n, (nbr, c) -> builder.add(nbr));
+		return builder.build();
+	    },
+	     (n1, n2) -> dist(n1, n2),
+	     (n1, n2) -> dist(n1, n2));
+	int found = 0;
+	for (int trial = 0; trial < 2000; trial++) {
+	    int start = r.nextInt(width * height);
+	    int goal = r.nextInt(width * height);
+	    if (blocked[start] || blocked[goal]) continue;
+	    List<Integer> opath = osearch.search(start, goal);
+	    int[] path = search.search(start, goal);
+	    int[] dpath = dijkstra.search(start, goal);
+	    int[] bpath = search.searchBidirectional(start, goal);
+	    int[] bdpath = dijkstra.searchBidirectional(start, goal);
+	    if (opath == null) {
+		if (path != null || dpath != null || bpath != null
+		    || bdpath != null) {
+		    throw new Exception("path found when none exists");
+		}
+		continue;
+	    }
+	    found++;
+	    int[] op = opath.stream().mapToInt(Integer::intValue).toArray();
+	    double expected = cost(op);
+	    for (int[] p: new int[][] {path, dpath, bpath, bdpath}) {
+		if (p == null || !valid(p, start, goal)
+		    || Math.abs(cost(p) - expected) > 1.0e-9) {
+		    throw new Exception("bad path for trial " + trial);
+		}
+	    }
+	    if (Math.abs(search.getPathCost() - expected) > 1.0e-9) {
+		throw new Exception("wrong path cost");
+	    }
+	}
+	System.out.println(found + " paths compared");
+
+	// a large grid
+	setup(r, 2000, 2000, 0.25);
+	int n = width * height;
+	osearch = new AStarSearch<Integer>
+	    ((node) -> {
+		Stream.Builder<Integer> builder = Stream.builder();
+		forEachNeighbor(node, (nbr, c) -> builder.add(nbr));
+		return builder.build();
+	    },
+	     (n1, n2) -> dist(n1, n2),
+	     (n1, n2) -> dist(n1, n2));
+	search = new IntAStarSearch(n, IntAStarTest::forEachNeighbor,
+				    IntAStarTest::dist);
+	int start = 0;
+	int goal = n - 1;
+	blocked[start] = false;
+	blocked[goal] = false;
+	long t1 = 0, t2 = 0, t3 = 0;
+	double c1 = 0, c2 = 0, c3 = 0;
+	for (int trial = 0; trial < 3; trial++) {
+	    long time = System.nanoTime();
+	    List<Integer> opath = osearch.search(start, goal);
+	    t1 = System.nanoTime() - time;
+	    c1 = cost(opath.stream().mapToInt(Integer::intValue).toArray());
+	    time = System.nanoTime();
+	    int[] path = search.search(start, goal);
+	    t2 = System.nanoTime() - time;
+	    c2 = cost(path);
+	    time = System.nanoTime();
+	    path = search.searchBidirectional(start, goal);
+	    t3 = System.nanoTime() - time;
+	    c3 = cost(path);
+	}
+	if (Math.abs(c1 - c2) > 1.0e-6 || Math.abs(c1 - c3) > 1.0e-6) {
+	    throw new Exception("large-grid costs differ");
+	}
+	System.out.format("AStarSearch: %.3g ms\n", t1 * 1.0e-6);
+	System.out.format("IntAStarSearch: %.3g ms\n", t2 * 1.0e-6);
+	System.out.format("IntAStarSearch (bidirectional): %.3g ms\n",
+			  t3 * 1.0e-6);
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.*;
+import java.util.*;
+
+import org.bzdev.util.*;
+import org.bzdev.util.JSUtilities.Event;
+import org.bzdev.util.JSUtilities.EventParser;
+
+public class JSEventTest {
+
+    static String toJSON(Object object) throws IOException {
+	StringWriter w = new StringWriter();
+	JSUtilities.JSON.writeTo(w, object);
+	return w.toString();
+    }
+
+    static Object randomValue(Random r, int level) {
+	switch (r.nextInt((level > 3)? 6: 8)) {
+	case 0: return null;
+	case 1: return r.nextBoolean();
+	case 2: return r.nextInt(2000) - 1000;
+	case 3: return r.nextLong();
+	case 4: return r.nextGaussian() * 1.0e6;
+	case 5: return "s\"\\\n" + r.nextInt(100) + "\u00e9";
+	case 6:
+	    {
+		JSObject object = new JSObject();
+		int n = r.nextInt(5);
+		for (int i = 0; i < n; i++) {
+		    object.putObject("key" + i, randomValue(r, level+1));
+		}
+		return object;
+	    }
+	default:
+	    {
+		JSArray array = new JSArray();
+		int n = r.nextInt(5);
+		for (int i = 0; i < n; i++) {
+		    array.addObject(randomValue(r, level+1));
+		}
+		return array;
+	    }
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	String[] samples = {
+	    "[1e5,2]", "[1.5E-3, -0, 12345678901234, 1e400, 1.0, 3e2]",
+	    "{ a: 1, \"b\" : [ true, false, null ], c: {} }",
+	    "  \"text\"  ", "[[], [[]], {\"x\": [{}]}]",
+	    "// comment\n{\"k\": \"v\" // another\n}"
+	};
+	Random r = new Random(43);
+	ArrayList<String> inputs = new ArrayList<>(Arrays.asList(samples));
+	for (int i = 0; i < 2000; i++) {
+	    inputs.add(toJSON(randomValue(r, 0)));
+	}
+	for (String s: inputs) {
+	    String expected = toJSON(JSUtilities.JSON.parse(s));
+	    EventParser parser = JSUtilities.JSON.newEventParser
+		(new StringReader(s));
+	    parser.next();
+	    String value = toJSON(parser.getValue());
+	    if (parser.hasNext() || !value.equals(expected)) {
+		throw new Exception("getValue failed for " + s);
+	    }
+	    // copy events to an event writer
+	    StringWriter w = new StringWriter();
+	    JSUtilities.JSON.EventWriter ew =
+		new JSUtilities.JSON.EventWriter(w);
+	    parser = JSUtilities.JSON.newEventParser(new StringReader(s));
+	    while (parser.hasNext()) {
+		parser.next();
+		ew.write(parser);
+	    }
+	    if (!w.toString().equals(expected)) {
+		throw new Exception("copy failed for " + s);
+	    }
+	    // events from a tree match events from text
+	    EventParser p1 = JSUtilities.JSON.newEventParser
+		(new StringReader(s));
+	    EventParser p2 = EventParser.newInstance(JSUtilities.JSON.parse(s));
+	    while (p1.hasNext()) {
+		Event e = p1.next();
+		if (e != p2.next() || p1.getDepth() != p2.getDepth()) {
+		    throw new Exception("events differ for " + s);
+		}
+	    }
+	    if (p2.hasNext()) throw new Exception("extra tree events");
+	}
+	System.out.println("JSON inputs: " + inputs.size() + " compared");
+
+	String[] bad = {"[1 2]", "{\"a\" 1}", "{\"a\": 1 \"b\": 2}", "[tru]",
+			"{3: 1}", "[1,", "[*]"};
+	for (String s: bad) {
+	    EventParser parser = JSUtilities.JSON.newEventParser
+		(new StringReader(s));
+	    try {
+		while (parser.hasNext()) parser.next();
+		throw new Exception("no error for " + s);
+	    } catch (IOException e) {
+		try {
+		    JSUtilities.JSON.parse(s);
+		    throw new Exception("tree parser accepted " + s);
+		} catch (IOException ee) {
+		    if (!e.getMessage().equals(ee.getMessage())) {
+			System.out.println(e.getMessage());
+			System.out.println(ee.getMessage());
+			throw new Exception("messages differ for " + s);
+		    }
+		}
+	    }
+	}
+
+	JSUtilities.JSON.EventWriter ew =
+	    new JSUtilities.JSON.EventWriter(new StringWriter());
+	ew.startObject();
+	try {
+	    ew.value(1);
+	    throw new Exception("value without a key");
+	} catch (IllegalStateException e) {}
+	try {
+	    ew.endArray();
+	    throw new Exception("endArray for an object");
+	} catch (IllegalStateException e) {}
+
+	// YAML: the events for each document
+	String yaml = "%YAML 1.2\n---\n- a: 1\n  b: x\n- 2.5\n---\n- 1\n- 2\n...\n";
+	EventParser yp = JSUtilities.YAML.newEventParser(new StringReader(yaml));
+	StringBuilder sb = new StringBuilder();
+	while (yp.hasNext()) {
+	    yp.next();
+	    sb.append(toJSON(yp.getValue()));
+	}
+	if (!sb.toString().equals("[{\"a\": 1, \"b\": \"x\"}, 2.5][1, 2]")) {
+	    throw new Exception("YAML events: " + sb);
+	}
+
+	// a large array: sum one field with each parser
+	File f = new File("JSEventTest.json");
+	int n = 500000;
+	try (Writer w = new BufferedWriter(new FileWriter(f))) {
+	    JSUtilities.JSON.EventWriter fw = new JSUtilities.JSON.EventWriter(w);
+	    fw.startArray();
+	    for (int i = 0; i < n; i++) {
+		fw.startObject();
+		fw.key("id");
+		fw.value(i);
+		fw.key("value");
+		fw.value(i * 0.5);
+		fw.key("name");
+		fw.value("item" + i);
+		fw.endObject();
+	    }
+	    fw.endArray();
+	}
+	long start = System.nanoTime();
+	JSArray array;
+	try (Reader rd = new BufferedReader(new FileReader(f))) {
+	    array = (JSArray) JSUtilities.JSON.parse(rd);
+	}
+	double sum1 = 0.0;
+	for (Object object: array) {
+	    sum1 += ((JSObject) object).get("value", Number.class)
+		.doubleValue();
+	}
+	long t1 = System.nanoTime() - start;
+	array = null;
+	start = System.nanoTime();
+	double sum2 = 0.0;
+	try (EventParser parser = JSUtilities.JSON.newEventParser
+	     (new FileReader(f))) {
+	    while (parser.hasNext()) {
+		if (parser.next() == Event.KEY
+		    && parser.getString().equals("value")) {
+		    parser.next();
+		    sum2 += parser.getDouble();
+		}
+	    }
+	}
+	long t2 = System.nanoTime() - start;
+	start = System.nanoTime();
+	StringWriter sw = new StringWriter();
+	try (Reader rd = new BufferedReader(new FileReader(f))) {
+	    JSUtilities.JSON.writeTo(sw, JSUtilities.JSON.parse(rd));
+	}
+	long t3 = System.nanoTime() - start;
+	f.delete();
+	if (sum1 != sum2) throw new Exception("sums differ");
+	System.out.format("JSON.parse: %.3g MB/s\n",
+			  (sw.getBuffer().length() * 1.0e3) / t1);
+	System.out.format("EventParser: %.3g MB/s\n",
+			  (sw.getBuffer().length() * 1.0e3) / t2);
+	System.out.format("JSON.parse + writeTo: %.3g MB/s\n",
+			  (sw.getBuffer().length() * 1.0e3) / t3);
+    }
+}
@@ -0,0 +1,112 @@
+import org.bzdev.util.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class PrimParallelSortTest {
+
+    public static void main(String argv[]) throws Exception {
+	// Run the checks in a pool with a fixed parallelism so that the
+	// parallel sorts and merges are used even when the common pool
+	// has a parallelism of 1.
+	ForkJoinPool pool = new ForkJoinPool(4);
+	pool.submit(() -> {
+		check();
+		return null;
+	    }).get();
+	if (pool.getStealCount() == 0) {
+	    throw new Exception("parallel sorts did not fork tasks");
+	}
+	pool.shutdown();
+	timing();
+    }
+
+    static void check() throws Exception {
+	Random r = new Random(37);
+
+	// stability: sort indices by keys with many ties
+	for (int n: new int[] {0, 1, 100, 10000, 100000, 1000000}) {
+	    int[] keys = new int[n];
+	    for (int i = 0; i < n; i++) keys[i] = r.nextInt(100);
+	    int[] a1 = new int[n];
+	    for (int i = 0; i < n; i++) a1[i] = i;
+	    int[] a2 = a1.clone();
+	    IntComparator c = (i, j) -> Integer.compare(keys[i], keys[j]);
+	    PrimArrays.sort(a1, c);
+	    PrimArrays.parallelSort(a2, c);
+	    if (!Arrays.equals(a1, a2)) {
+		throw new Exception("int sort differs for n = " + n);
+	    }
+	    // a subrange
+	    if (n > 10) {
+		a1 = new int[n];
+		for (int i = 0; i < n; i++) a1[i] = n - i - 1;
+		a2 = a1.clone();
+		PrimArrays.sort(a1, 3, n - 7, c);
+		PrimArrays.parallelSort(a2, 3, n - 7, c);
+		if (!Arrays.equals(a1, a2)) {
+		    throw new Exception("int range sort differs for n = " + n);
+		}
+	    }
+	}
+	int n = 200000;
+	double[] d1 = new double[n];
+	for (int i = 0; i < n; i++) d1[i] = r.nextGaussian();
+	double[] d2 = d1.clone();
+	DoubleComparator dc = (x, y) -> Double.compare(Math.abs(x), Math.abs(y));
+	PrimArrays.sort(d1, dc);
+	PrimArrays.parallelSort(d2, dc);
+	if (!Arrays.equals(d1, d2)) throw new Exception("double sort differs");
+	long[] l1 = new long[n];
+	for (int i = 0; i < n; i++) l1[i] = r.nextLong();
+	long[] l2 = l1.clone();
+	LongComparator lc = (x, y) -> Long.compare(y, x);
+	PrimArrays.sort(l1, lc);
+	PrimArrays.parallelSort(l2, lc);
+	if (!Arrays.equals(l1, l2)) throw new Exception("long sort differs");
+	char[] c1 = new char[n];
+	for (int i = 0; i < n; i++) c1[i] = (char)r.nextInt(65536);
+	char[] c2 = c1.clone();
+	CharComparator cc = (x, y) -> Character.compare(y, x);
+	PrimArrays.sort(c1, cc);
+	PrimArrays.parallelSort(c2, cc);
+	if (!Arrays.equals(c1, c2)) throw new Exception("char sort differs");
+	byte[] b1 = new byte[n];
+	r.nextBytes(b1);
+	byte[] b2 = b1.clone();
+	ByteComparator bc = (x, y) -> Integer.compare(x & 0xff, y & 0xff);
+	PrimArrays.sort(b1, bc);
+	PrimArrays.parallelSort(b2, bc);
+	if (!Arrays.equals(b1, b2)) throw new Exception("byte sort differs");
+	try {
+	    PrimArrays.parallelSort(new int[100000], 10, 100001, (x, y) -> 0);
+	    throw new Exception("range not checked");
+	} catch (ArrayIndexOutOfBoundsException e) {}
+    }
+
+    static void timing() throws Exception {
+	Random r = new Random(37);
+	System.out.println("parallelism = "
+			   + java.util.concurrent.ForkJoinPool
+			   .getCommonPoolParallelism());
+	IntComparator ic = (x, y) -> Integer.compare(y, x);
+	for (int size: new int[] {100000, 1000000, 10000000}) {
+	    int[] data = new int[size];
+	    for (int i = 0; i < size; i++) data[i] = r.nextInt();
+	    long t1 = 0, t2 = 0;
+	    for (int k = 0; k < 3; k++) {
+		int[] a1 = data.clone();
+		int[] a2 = data.clone();
+		long start = System.nanoTime();
+		PrimArrays.sort(a1, ic);
+		t1 = System.nanoTime() - start;
+		start = System.nanoTime();
+		PrimArrays.parallelSort(a2, ic);
+		t2 = System.nanoTime() - start;
+		if (!Arrays.equals(a1, a2)) throw new Exception("sorts differ");
+	    }
+	    System.out.format("n = %d: sort %.4g ms, parallelSort %.4g ms\n",
+			      size, t1 * 1.0e-6, t2 * 1.0e-6);
+	}
+    }
+}
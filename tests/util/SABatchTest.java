@@ -0,0 +1,99 @@
+import org.bzdev.util.SuffixArray;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SABatchTest {
+
+    public static void main(String argv[]) throws Exception {
+	int nthreads = (argv.length > 0)? Integer.parseInt(argv[0]):
+	    Runtime.getRuntime().availableProcessors();
+	Random r = new Random(31);
+	int n = 1000000;
+	byte[] sequence = new byte[n];
+	for (int i = 0; i < n; i++) {
+	    sequence[i] = (byte)"ACGT".charAt(r.nextInt(4));
+	}
+	SuffixArray.UnsignedByte sa = new SuffixArray.UnsignedByte
+	    (sequence, 255);
+
+	// patterns: substrings of the sequence, random strings that
+	// usually do not occur, duplicates, and edge cases.
+	int npatterns = 500000;
+	byte[][] patterns = new byte[npatterns][];
+	for (int i = 0; i < npatterns; i++) {
+	    int len = 1 + r.nextInt(12);
+	    if (i % 3 == 0) {
+		patterns[i] = new byte[len];
+		for (int j = 0; j < len; j++) {
+		    patterns[i][j] = (byte)"ACGTX".charAt(r.nextInt(5));
+		}
+	    } else if (i % 7 == 0 && i > 0) {
+		patterns[i] = patterns[i-1];
+	    } else {
+		int start = r.nextInt(n - len + 1);
+		patterns[i] = Arrays.copyOfRange(sequence, start, start+len);
+	    }
+	}
+	patterns[1] = new byte[0];
+	patterns[2] = Arrays.copyOfRange(sequence, n-5, n);
+	patterns[4] = new byte[] {(byte)0xff};
+
+	int[] starts = new int[npatterns];
+	int[] ends = new int[npatterns];
+	int[] starts2 = new int[npatterns];
+	int[] ends2 = new int[npatterns];
+	int total1 = 0;
+	long t1 = 0, t2 = 0, t3 = 0;
+	// repeat so that the last timing is not dominated by JIT compilation
+	for (int trial = 0; trial < 3; trial++) {
+	    long start = System.nanoTime();
+	    total1 = 0;
+	    for (int i = 0; i < npatterns; i++) {
+		total1 += sa.findRange(patterns[i]).size();
+	    }
+	    t1 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    sa.findRanges(patterns, starts, ends);
+	    t2 = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    sa.findRanges(patterns, starts2, ends2, Math.max(nthreads, 2));
+	    t3 = System.nanoTime() - start;
+	}
+	int total2 = 0;
+	for (int i = 0; i < npatterns; i++) {
+	    SuffixArray.Range range = sa.findRange(patterns[i]);
+	    if (range.start() != starts[i] || range.end() != ends[i]) {
+		throw new Exception("ranges differ for pattern " + i);
+	    }
+	    total2 += ends[i] - starts[i];
+	}
+	if (total1 != total2) throw new Exception("totals differ");
+	if (!Arrays.equals(starts, starts2) || !Arrays.equals(ends, ends2)) {
+	    throw new Exception("parallel results differ");
+	}
+
+	SuffixArray.UTF usa = new SuffixArray.UTF
+	    ("caf\u00e9 caf\u00e9s cafe".getBytes("UTF-8"));
+	String[] words = {"caf\u00e9", "cafe", "caf", "tea", ""};
+	int[] ws = new int[words.length];
+	int[] we = new int[words.length];
+	usa.findRanges(words, ws, we, 2);
+	for (int i = 0; i < words.length; i++) {
+	    SuffixArray.Range range = usa.findRange(words[i]);
+	    if (range.start() != ws[i] || range.end() != we[i]) {
+		throw new Exception("UTF ranges differ for " + words[i]);
+	    }
+	}
+	try {
+	    sa.findRanges(patterns, new int[1], ends);
+	    throw new Exception("short array accepted");
+	} catch (IllegalArgumentException e) {}
+
+	System.out.format("findRange: %.3g patterns/s\n",
+			  npatterns / (t1 * 1.0e-9));
+	System.out.format("findRanges: %.3g patterns/s\n",
+			  npatterns / (t2 * 1.0e-9));
+	System.out.format("findRanges (%d threads): %.3g patterns/s\n",
+			  Math.max(nthreads, 2), npatterns / (t3 * 1.0e-9));
+    }
+}
@@ -0,0 +1,119 @@
+import org.bzdev.util.SuffixArray;
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SAParallelTest {
+
+    static void check(SuffixArray sa, SuffixArray sa2, int nthreads)
+	throws Exception
+    {
+	int[] inv = sa2.getInverse(nthreads);
+	int[] lcp = sa2.getLCP(nthreads);
+	if (!Arrays.equals(inv, sa.getInverse())) {
+	    throw new Exception("inverses differ");
+	}
+	if (!Arrays.equals(lcp, sa.getLCP())) {
+	    throw new Exception("LCP arrays differ");
+	}
+    }
+
+    public static void main(String argv[]) throws Exception {
+	int nthreads = (argv.length > 0)? Integer.parseInt(argv[0]):
+	    Runtime.getRuntime().availableProcessors();
+	if (nthreads < 2) nthreads = 4;
+	Random r = new Random(29);
+
+	// a long byte sequence with a small alphabet and repeated blocks
+	int n = 2000000;
+	byte[] bytes = new byte[n];
+	for (int i = 0; i < n; i++) {
+	    bytes[i] = (i > 1000 && (i / 1000) % 3 == 0)? bytes[i - 1000]:
+		(byte)r.nextInt(4);
+	}
+	SuffixArray.UnsignedByte sa = new SuffixArray.UnsignedByte(bytes, 4);
+	SuffixArray.UnsignedByte sa2 = new SuffixArray.UnsignedByte
+	    (bytes, sa.getArray());
+	check(sa, sa2, nthreads);
+
+	int[] ints = new int[300000];
+	for (int i = 0; i < ints.length; i++) ints[i] = r.nextInt(20);
+	SuffixArray.Integer isa = new SuffixArray.Integer(ints, 20);
+	check(isa, new SuffixArray.Integer(ints, isa.getArray()), nthreads);
+
+	StringBuilder sb = new StringBuilder();
+	for (int i = 0; i < 200000; i++) {
+	    sb.append((char)('a' + r.nextInt(3)));
+	}
+	SuffixArray.String ssa = new SuffixArray.String(sb.toString(), 3 + 'a');
+	check(ssa, new SuffixArray.String(sb.toString(), 3 + 'a'),
+	      nthreads);
+
+	// save and reload, with and without an LCP array
+	File f = new File("SAParallelTest.sa");
+	SuffixArray.UnsignedByte sa3 = new SuffixArray.UnsignedByte
+	    (bytes, sa.getArray());
+	sa3.save(f);
+	SuffixArray.UnsignedByte sa4 = new SuffixArray.UnsignedByte
+	    (bytes, SuffixArray.loadArray(f));
+	if (!Arrays.equals(sa4.getArray(), sa.getArray())
+	    || sa4.loadLCP(f)) {
+	    throw new Exception("reload failed");
+	}
+	sa3.useLCP(nthreads);
+	sa3.save(f);
+	sa4 = new SuffixArray.UnsignedByte(bytes, SuffixArray.loadArray(f));
+	if (!sa4.loadLCP(f) || !Arrays.equals(sa4.getLCP(), sa.getLCP())) {
+	    throw new Exception("reload of LCP array failed");
+	}
+	sa.useLCP();
+	for (int i = 0; i < 1000; i++) {
+	    int start = r.nextInt(n - 10);
+	    byte[] key = Arrays.copyOfRange(bytes, start, start + 8);
+	    SuffixArray.Range r1 = sa.findRange(key);
+	    SuffixArray.Range r2 = sa4.findRange(key);
+	    if (r1.size() != r2.size() || r1.subsequenceIndex(0)
+		!= r2.subsequenceIndex(0)) {
+		throw new Exception("findRange differs");
+	    }
+	}
+	try (OutputStream os = new FileOutputStream(f)) {
+	    os.write(new byte[20]);
+	}
+	try {
+	    SuffixArray.loadArray(f);
+	    throw new Exception("bad file accepted");
+	} catch (IOException e) {}
+
+	// construction from a file
+	try (OutputStream os = new FileOutputStream(f)) {
+	    os.write("the quick brown fox jumps over the lazy dog, twice: the quick brown fox jumps over the lazy dog".getBytes("UTF-8"));
+	}
+	SuffixArray.UTF usa = new SuffixArray.UTF(f);
+	if (usa.findRange("the").size() != 4) {
+	    throw new Exception("UTF(File) failed");
+	}
+
+	// timing
+	long start = System.nanoTime();
+	new SuffixArray.UnsignedByte(bytes, sa.getArray()).getLCP();
+	long t1 = System.nanoTime() - start;
+	start = System.nanoTime();
+	new SuffixArray.UnsignedByte(bytes, sa.getArray()).getLCP(nthreads);
+	long t2 = System.nanoTime() - start;
+	sa3.save(f);
+	start = System.nanoTime();
+	new SuffixArray.UnsignedByte(bytes, 4).getLCP();
+	long t3 = System.nanoTime() - start;
+	start = System.nanoTime();
+	SuffixArray.UnsignedByte sa5 = new SuffixArray.UnsignedByte
+	    (bytes, SuffixArray.loadArray(f));
+	sa5.loadLCP(f);
+	long t4 = System.nanoTime() - start;
+	f.delete();
+	System.out.format("getLCP(): %.3g ms\n", t1 * 1.0e-6);
+	System.out.format("getLCP(%d): %.3g ms\n", nthreads, t2 * 1.0e-6);
+	System.out.format("construct + getLCP(): %.3g ms\n", t3 * 1.0e-6);
+	System.out.format("loadArray + loadLCP: %.3g ms\n", t4 * 1.0e-6);
+    }
+}
@@ -0,0 +1,154 @@
+import org.bzdev.util.TemplateProcessor;
+import org.bzdev.util.TemplateProcessor.KeyMap;
+import java.io.*;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TemplateCacheTest {
+
+    static KeyMap createKeyMap(int n) {
+	KeyMap map = new KeyMap();
+	map.put("hasAllImages", "true");
+	map.put("imageTime", "" + (5000 + n));
+	map.put("minImageTime", "2000");
+	map.put("syncMode", "false");
+	map.put("waitOnError", "false");
+	map.put("highResDir", "high" + n);
+	map.put("wOffset", "15");
+	map.put("hOffset", "15");
+	map.put("wPercent", "100");
+	map.put("hPercent", "100");
+	KeyMap[] maps = new KeyMap[1 + (n % 5)];
+	for (int i = 0; i < maps.length; i++) {
+	    maps[i] = new KeyMap();
+	    maps[i].put("name", "Bunny" + i);
+	    maps[i].put("width", "500");
+	    maps[i].put("height", "375");
+	    maps[i].put("ext", "jpg");
+	    if (i < maps.length - 1) maps[i].put("commaSeparator", ",");
+	}
+	map.put("repeatImageArrayEntries", maps);
+	KeyMap map3 = new KeyMap();
+	map3.put("x", "10");
+	KeyMap map4 = new KeyMap();
+	map4.put("x", "20");
+	map.put("lowx1", "true", map3, map4);
+	map.put("lowx2", null, map3, map4);
+	return map;
+    }
+
+    static String process(KeyMap map) throws IOException {
+	StringWriter w = new StringWriter();
+	new TemplateProcessor(map).processTemplate(new FileReader("params.tpl"),
+						   w);
+	return w.toString();
+    }
+
+    public static void main(String argv[]) throws Exception {
+	URL url = new File("params.tpl").toURI().toURL();
+	TemplateProcessor tp = new TemplateProcessor();
+	TemplateProcessor.Template template = tp.getTemplate(url, "UTF-8");
+	if (template == tp.getTemplate(url, "UTF-8")) {
+	    throw new Exception("template cached by default");
+	}
+	TemplateProcessor.setTemplateCacheLimit(2);
+	template = tp.getTemplate(url, "UTF-8");
+	if (template != tp.getTemplate(url, "UTF-8")) {
+	    throw new Exception("template not cached");
+	}
+	TemplateProcessor.clearTemplateCache();
+	if (template == tp.getTemplate(url, "UTF-8")) {
+	    throw new Exception("cache not cleared");
+	}
+	// the least recently used template is removed when the cache
+	// is full.
+	template = tp.getTemplate(url, "UTF-8");
+	URL url2 = new URL(url.toString() + "?2");
+	URL url3 = new URL(url.toString() + "?3");
+	TemplateProcessor.Template template2 = tp.getTemplate(url2, "UTF-8");
+	if (template != tp.getTemplate(url, "UTF-8")) {
+	    throw new Exception("template not cached");
+	}
+	tp.getTemplate(url3, "UTF-8");
+	if (template != tp.getTemplate(url, "UTF-8")
+	    || template2 == tp.getTemplate(url2, "UTF-8")) {
+	    throw new Exception("wrong template evicted");
+	}
+	template = tp.getTemplate(url, "UTF-8");
+
+	KeyMap[] maps = new KeyMap[100];
+	String[] expected = new String[maps.length];
+	for (int i = 0; i < maps.length; i++) {
+	    maps[i] = createKeyMap(i);
+	    expected[i] = process(maps[i]);
+	    StringBuilder sb = new StringBuilder();
+	    template.process(sb, maps[i]);
+	    if (!sb.toString().equals(expected[i])) {
+		throw new Exception("compiled template output differs");
+	    }
+	    StringWriter w = new StringWriter();
+	    new TemplateProcessor(maps[i]).processTemplate(template, w);
+	    if (!w.toString().equals(expected[i])) {
+		throw new Exception("processTemplate(Template,...) differs");
+	    }
+	}
+
+	// a template with an error in a region that is not used
+	String bad = "a$(+x:end)$(bad $(end)b";
+	tp.compile(new StringReader(bad)).process(new StringBuilder());
+	KeyMap xmap = new KeyMap();
+	xmap.put("x", "1");
+	try {
+	    tp.compile(new StringReader(bad)).process(new StringBuilder(), xmap);
+	    throw new Exception("missing error");
+	} catch (IOException e) {}
+
+	int nthreads = (argv.length > 0)? Integer.parseInt(argv[0]):
+	    Runtime.getRuntime().availableProcessors();
+	int nrenders = 20000;
+	final TemplateProcessor.Template t = template;
+	AtomicInteger errors = new AtomicInteger();
+	Thread[] threads = new Thread[nthreads];
+	for (int k = 0; k < nthreads; k++) {
+	    final int offset = k;
+	    threads[k] = new Thread(() -> {
+		    try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < nrenders; i++) {
+			    int j = (i + offset) % maps.length;
+			    sb.setLength(0);
+			    t.process(sb, maps[j]);
+			    if (!sb.toString().equals(expected[j])) {
+				errors.incrementAndGet();
+			    }
+			}
+		    } catch (Exception e) {
+			errors.incrementAndGet();
+		    }
+	    });
+	}
+	long start = System.nanoTime();
+	for (Thread thread: threads) thread.start();
+	for (Thread thread: threads) thread.join();
+	long t3 = System.nanoTime() - start;
+	if (errors.get() != 0) throw new Exception("concurrent renders failed");
+
+	start = System.nanoTime();
+	for (int i = 0; i < nrenders; i++) {
+	    process(maps[i % maps.length]);
+	}
+	long t1 = System.nanoTime() - start;
+	start = System.nanoTime();
+	for (int i = 0; i < nrenders; i++) {
+	    StringWriter w = new StringWriter();
+	    tp.getTemplate(url, "UTF-8").process(w, maps[i % maps.length]);
+	}
+	long t2 = System.nanoTime() - start;
+	System.out.format("read and process: %.4g renders/s\n",
+			  nrenders / (t1 * 1.0e-9));
+	System.out.format("cached template: %.4g renders/s\n",
+			  nrenders / (t2 * 1.0e-9));
+	System.out.format("cached template, %d threads: %.4g renders/s\n",
+			  nthreads, (nthreads * nrenders) / (t3 * 1.0e-9));
+    }
+}